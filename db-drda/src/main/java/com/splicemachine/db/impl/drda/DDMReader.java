@@ -256,6 +256,17 @@ class DDMReader
     	return dssIsChainedWithDiffID;
   	}
 
+	/**
+	 * Whether there is input left in the buffer which hasn't been
+	 * processed yet
+	 *
+	 * @return true if the buffer holds (part of) another request
+	 */
+	protected boolean hasBufferedData()
+	{
+		return pos < count;
+	}
+
 	/**
 	 * Length of current DDM object
 	 *
@@ -173,7 +173,6 @@ class DRDAConnThread extends Thread {
 
     private final static String TIMEOUT_STATEMENT = "SET STATEMENT_TIMEOUT ";
 
-    private int pendingStatementTimeout; // < 0 means no pending timeout to set
 
 	// this flag is for an execute statement/procedure which actually returns a result set;
 	// do not commit the statement, otherwise result set is closed
@@ -273,7 +272,6 @@ class DRDAConnThread extends Thread {
 		this.server = server;
 		this.timeSlice = timeSlice;
 		this.logConnections = logConnections;
-        this.pendingStatementTimeout = -1;
 		initialize();
     }
 
@@ -325,6 +323,8 @@ class DRDAConnThread extends Thread {
                                 // DDMReader.fill(), which will happen
                                 // only when timeSlice is set.
                             }
+							if (parkIfIdle())
+								break;
 							currentTimeSlice = getTimeSlice();
 						} while ((currentTimeSlice <= 0)  || 
 							(System.currentTimeMillis() - timeStart < currentTimeSlice));
@@ -673,12 +673,43 @@ class DRDAConnThread extends Thread {
 		appRequester = session.appRequester;
 
 		// set sqlamLevel
-		if (session.state == Session.ATTEXC)
+		if (session.state >= Session.ATTEXC && appRequester != null)
 			sqlamLevel = appRequester.getManagerLevel(CodePoint.SQLAM);
 
-        /* All sessions MUST start as EBCDIC */
-        reader.setEbcdicCcsid();
-        writer.setEbcdicCcsid();
+        /* All sessions MUST start as EBCDIC, resumed sessions continue
+         * with whatever was agreed on ACCSEC */
+        if (session.utf8Ccsid)
+            switchToUtf8();
+        else
+            switchToEbcdic();
+	}
+
+	/**
+	 * If the session is connected, and its client has not sent anything
+	 * more, let the session wait for its next request without holding on to
+	 * this thread.
+	 *
+	 * <p>Only the input already read into the reader's buffer is checked
+	 * here. The socket itself can't be asked: it has a channel, and
+	 * <code>available()</code> always returns 0 on such sockets. Input which
+	 * has reached the socket but not the reader is found by the selector as
+	 * soon as the session is registered, and the session goes straight back
+	 * to the run queue.
+	 *
+	 * @return true if the session was parked, in which case this thread
+	 * no longer has a session
+	 */
+	private boolean parkIfIdle()
+	{
+		if (session == null || session.state != Session.CHKSEC ||
+				database instanceof XADatabase ||
+				!server.canParkSession(session) || reader.hasBufferedData())
+			return false;
+		if (SanityManager.DEBUG)
+			trace("Parking idle session " + session.connNum);
+		server.parkSession(session);
+		session = null;
+		return true;
 	}
 	/**      
 	 * In initial state for a session, 
@@ -890,9 +921,9 @@ class DRDAConnThread extends Thread {
 							stmt = database.getDRDAStatement(pkgnamcsn);
 							ps = stmt.getPreparedStatement();
 							ps.clearWarnings();
-                            if (pendingStatementTimeout >= 0) {
-                                ps.setQueryTimeout(pendingStatementTimeout);
-                                pendingStatementTimeout = -1;
+                            if (session.pendingStatementTimeout >= 0) {
+                                ps.setQueryTimeout(session.pendingStatementTimeout);
+                                session.pendingStatementTimeout = -1;
                             }
 							stmt.execute();
 							writeOPNQRYRM(false, stmt);
@@ -1286,6 +1317,7 @@ class DRDAConnThread extends Thread {
 	private void switchToUtf8() {
         writer.setUtf8Ccsid();
         reader.setUtf8Ccsid();
+        session.utf8Ccsid = true;
 	}
 	
 	/**
@@ -1294,6 +1326,7 @@ class DRDAConnThread extends Thread {
 	private void switchToEbcdic() {
         writer.setEbcdicCcsid();
         reader.setEbcdicCcsid();
+        session.utf8Ccsid = false;
 	}
 	
 	/**
@@ -4179,9 +4212,9 @@ class DRDAConnThread extends Thread {
  		stmt.maxrslcnt = maxrslcnt;
  		stmt.outovropt = outovropt;
  		stmt.rslsetflg = rslsetflg;
-        if (pendingStatementTimeout >= 0) {
-            stmt.getPreparedStatement().setQueryTimeout(pendingStatementTimeout);
-            pendingStatementTimeout = -1;
+        if (session.pendingStatementTimeout >= 0) {
+            stmt.getPreparedStatement().setQueryTimeout(session.pendingStatementTimeout);
+            session.pendingStatementTimeout = -1;
         }
  
 	
@@ -5234,9 +5267,9 @@ class DRDAConnThread extends Thread {
 		String sqlStmt = parseEXECSQLIMMobjects();
         Statement statement = drdaStmt.getStatement();
         statement.clearWarnings();
-        if (pendingStatementTimeout >= 0) {
-            statement.setQueryTimeout(pendingStatementTimeout);
-            pendingStatementTimeout = -1;
+        if (session.pendingStatementTimeout >= 0) {
+            statement.setQueryTimeout(session.pendingStatementTimeout);
+            session.pendingStatementTimeout = -1;
         }
 		int updCount = statement.executeUpdate(sqlStmt);
 		return updCount;
@@ -5410,7 +5443,7 @@ class DRDAConnThread extends Thread {
 
                         if (sqlStmt.startsWith(TIMEOUT_STATEMENT)) {
                             String timeoutString = sqlStmt.substring(TIMEOUT_STATEMENT.length());
-                            pendingStatementTimeout = Integer.parseInt(timeoutString);
+                            session.pendingStatementTimeout = Integer.parseInt(timeoutString);
                             break;
                         }
 
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.db.impl.drda;
+
+import java.io.IOException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Watches the sockets of idle sessions, so that they don't hold on to a
+ * <code>DRDAConnThread</code> while they wait for their next request.
+ *
+ * <p>A connection thread which has answered a request, and has no more
+ * input from the client in its buffer, parks its session here and moves on to
+ * other work. The sockets of parked sessions are polled with a single
+ * selector, and as soon as the client has sent something (possibly before
+ * the session was parked) the session is handed back to the server to be
+ * put on the run queue. Reading and parsing the
+ * request is left to the connection thread, with the socket back in blocking
+ * mode, so <code>DDMReader</code> and <code>DDMWriter</code> work as before.
+ *
+ * <p>Only sessions whose socket has a channel can be parked; that is, those
+ * accepted from a server socket opened through a
+ * <code>ServerSocketChannel</code>.
+ */
+final class IdleSessionSelector extends Thread {
+
+    private final NetworkServerControlImpl server;
+    private final Selector selector;
+    // sessions to register with the selector, on the selector thread
+    private final ConcurrentLinkedQueue<Session> pending = new ConcurrentLinkedQueue<Session>();
+
+    IdleSessionSelector(NetworkServerControlImpl server) throws IOException {
+        NetworkServerControlImpl.setUniqueThreadName(this, "NetworkServerSelector");
+        setDaemon(true);
+        this.server = server;
+        this.selector = Selector.open();
+    }
+
+    /**
+     * @return true if the session can be parked
+     */
+    static boolean canPark(Session session) {
+        return session.clientSocket.getChannel() != null;
+    }
+
+    /**
+     * Wait for the client of the session to send its next request. The caller
+     * must not touch the session afterwards, until it is handed out again by
+     * the server.
+     *
+     * @param session an idle session, for which {@link #canPark} is true
+     */
+    void park(Session session) {
+        pending.add(session);
+        selector.wakeup();
+    }
+
+    /**
+     * Stop watching the parked sessions. They are closed by the server on
+     * shutdown.
+     */
+    void close() {
+        try {
+            selector.close();
+        } catch (IOException ioe) {
+            server.consoleExceptionPrintTrace(ioe);
+        }
+    }
+
+    public void run() {
+        List<Session> ready = new ArrayList<Session>();
+        while (!server.getShutdown()) {
+            try {
+                selector.select();
+                registerPending();
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    key.cancel();
+                    ready.add((Session) key.attachment());
+                }
+                if (ready.isEmpty())
+                    continue;
+
+                // deregister the cancelled keys, so the channels can go back
+                // to blocking mode
+                selector.selectNow();
+                for (Session session : ready)
+                    resume(session);
+                ready.clear();
+            } catch (ClosedSelectorException cse) {
+                return;
+            } catch (IOException ioe) {
+                if (server.getShutdown())
+                    return;
+                server.consoleExceptionPrintTrace(ioe);
+            }
+        }
+    }
+
+    private void registerPending() {
+        Session session;
+        while ((session = pending.poll()) != null) {
+            SocketChannel channel = session.clientSocket.getChannel();
+            try {
+                channel.configureBlocking(false);
+                channel.register(selector, SelectionKey.OP_READ, session);
+            } catch (IOException ioe) {
+                // most likely the client went away. Let a connection thread
+                // find out and clean up the session.
+                resume(session);
+            }
+        }
+    }
+
+    /**
+     * Put the socket of the session back in blocking mode, and give the
+     * session back to the server.
+     */
+    private void resume(Session session) {
+        try {
+            session.clientSocket.getChannel().configureBlocking(true);
+        } catch (IOException ioe) {
+            // the connection thread will fail on its first read, and close
+            // the session
+        }
+        server.dispatchSession(session);
+    }
+}
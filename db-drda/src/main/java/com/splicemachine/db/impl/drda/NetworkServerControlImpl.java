@@ -35,6 +35,7 @@ import java.io.OutputStream;
 import java.io.PrintStream;
 import java.io.PrintWriter;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import javax.net.SocketFactory;
@@ -44,6 +45,7 @@ import javax.net.ssl.SSLSocket;
 import javax.net.ssl.SSLSocketFactory;
 import javax.net.ssl.SSLServerSocketFactory;
 import java.net.UnknownHostException;
+import java.nio.channels.ServerSocketChannel;
 import java.nio.charset.Charset;
 import java.security.Permission;
 import java.security.AccessController;
@@ -277,6 +279,8 @@ public final class NetworkServerControlImpl {
 										// and changing timeSlice
 
 	private boolean keepAlive = true;   // keepAlive value for client socket 
+	private boolean selectIdleSessions = true; // watch idle sessions with a selector
+	private IdleSessionSelector idleSessionSelector;
 	private int minPoolSize;			//minimum pool size for pooled connections
 	private int maxPoolSize;			//maximum pool size for pooled connections
 	private Object poolSync = new Object();	// object to use for syning reading
@@ -324,6 +328,9 @@ public final class NetworkServerControlImpl {
 	// number of DRDAConnThreads waiting for something to do
 	private int freeThreads;
 
+	// object to use for syncing the dispatch of sessions to threads
+	private final Object dispatchSync = new Object();
+
 	// known application requesters
 	private Hashtable appRequesterTable = new Hashtable();
 
@@ -673,6 +680,16 @@ public final class NetworkServerControlImpl {
 		switch (getSSLMode()) {
 		case SSL_OFF:
 		default:
+			if (selectIdleSessions) {
+				// open the socket through a channel, so that the client
+				// sockets have channels which can be registered with the
+				// IdleSessionSelector
+				ServerSocketChannel ssc = ServerSocketChannel.open();
+				ServerSocket ss = ssc.socket();
+				ss.setReuseAddress(true);
+				ss.bind(new InetSocketAddress(hostAddress, portNumber));
+				return ss;
+			}
 			ServerSocketFactory sf =
 				ServerSocketFactory.getDefault();
 			return sf.createServerSocket(portNumber
@@ -805,6 +822,18 @@ public final class NetworkServerControlImpl {
 							);
 		clientThread.start();
 
+		if (selectIdleSessions && serverSocket.getChannel() != null) {
+			idleSessionSelector = (IdleSessionSelector) AccessController.doPrivileged(
+								new PrivilegedExceptionAction() {
+									public Object run() throws Exception
+									{
+										return new IdleSessionSelector(thisControl);
+									}
+								}
+							);
+			idleSessionSelector.start();
+		}
+
 		try {
 			// wait until we are told to shutdown or someone sends an InterruptedException
 	        synchronized(shutdownSync) {
@@ -830,6 +859,10 @@ public final class NetworkServerControlImpl {
 	                            //interrupt client thread
 	                            clientThread.interrupt();
 
+	                            //stop watching idle sessions
+	                            if (idleSessionSelector != null)
+	                                idleSessionSelector.close();
+
 	                            return null;
 	                       }
 	                    });
@@ -3083,6 +3116,12 @@ public final class NetworkServerControlImpl {
 		if (propval != null && 
 			StringUtil.SQLEqualsIgnoreCase(propval,"false"))
 			keepAlive = false;
+
+		propval = PropertyUtil.getSystemProperty(
+			Property.DRDA_PROP_SELECTIDLESESSIONS);
+		if (propval != null &&
+			StringUtil.SQLEqualsIgnoreCase(propval,"false"))
+			selectIdleSessions = false;
 		
 		propval = PropertyUtil.getSystemProperty( 
 			Property.DRDA_PROP_HOSTNAME);
@@ -3897,6 +3936,7 @@ public final class NetworkServerControlImpl {
 		retval.put(Property.DRDA_PROP_PORTNUMBER, new Integer(portNumber).toString());
 		retval.put(Property.DRDA_PROP_HOSTNAME, hostArg);
 		retval.put(Property.DRDA_PROP_KEEPALIVE, new Boolean(keepAlive).toString());
+		retval.put(Property.DRDA_PROP_SELECTIDLESESSIONS, new Boolean(selectIdleSessions).toString());
 
 		String tracedir = getTraceDirectory();
 		if (tracedir != null)
@@ -3970,43 +4010,78 @@ public final class NetworkServerControlImpl {
 
 		sessionTable.put(new Integer(connectionNumber), session);
 
-		// Check whether there are enough free threads to service all the
-		// threads in the run queue in addition to the newly added session.
-		boolean enoughThreads;
-		synchronized (runQueue) {
-			enoughThreads = (runQueue.size() < freeThreads);
-		}
-		// No need to hold the synchronization on runQueue any longer than
-		// this. Since no other threads can make runQueue grow, and no other
-		// threads will reduce the number of free threads without removing
-		// sessions from runQueue, (runQueue.size() < freeThreads) cannot go
-		// from true to false until addSession() returns.
-
-		DRDAConnThread thread = null;
-
-		// try to start a new thread if we don't have enough free threads
-		if (!enoughThreads) {
-			// Synchronize on threadsSync to ensure that the value of
-			// maxThreads doesn't change until the new thread is added to
-			// threadList.
-			synchronized (threadsSync) {
-				// only start a new thread if we have no maximum number of
-				// threads or the maximum number of threads is not exceeded
-				if ((maxThreads == 0) || (threadList.size() < maxThreads)) {
-					thread = new DRDAConnThread(session, this, getTimeSlice(),
-												getLogConnections());
-					threadList.add(thread);
-					thread.start();
+		dispatchSession(session);
+	}
+
+	/**
+	 * Hand a session which has work to do to a <code>DRDAConnThread</code>:
+	 * put it into the run queue, and start a new thread if there are more
+	 * sessions waiting than there are free threads, and the maximum number
+	 * of threads is not exceeded. Used for new sessions, and for idle
+	 * sessions whose client has sent a new request.
+	 *
+	 * @param session the session to dispatch
+	 */
+	void dispatchSession(Session session) {
+		synchronized (dispatchSync) {
+			// Check whether there are enough free threads to service all the
+			// threads in the run queue in addition to this session.
+			boolean enoughThreads;
+			synchronized (runQueue) {
+				enoughThreads = (runQueue.size() < freeThreads);
+			}
+			// No need to hold the synchronization on runQueue any longer than
+			// this. Since no other threads can make runQueue grow while we
+			// hold dispatchSync, and no other threads will reduce the number
+			// of free threads without removing sessions from runQueue,
+			// (runQueue.size() < freeThreads) cannot go from true to false
+			// until we are done.
+
+			DRDAConnThread thread = null;
+
+			// try to start a new thread if we don't have enough free threads
+			if (!enoughThreads) {
+				// Synchronize on threadsSync to ensure that the value of
+				// maxThreads doesn't change until the new thread is added to
+				// threadList.
+				synchronized (threadsSync) {
+					// only start a new thread if we have no maximum number of
+					// threads or the maximum number of threads is not exceeded
+					if ((maxThreads == 0) || (threadList.size() < maxThreads)) {
+						thread = new DRDAConnThread(session, this, getTimeSlice(),
+													getLogConnections());
+						threadList.add(thread);
+						thread.start();
+					}
 				}
 			}
-		}
 
-		// add the session to the run queue if we didn't start a new thread
-		if (thread == null) {
-			runQueueAdd(session);
+			// add the session to the run queue if we didn't start a new thread
+			if (thread == null) {
+				runQueueAdd(session);
+			}
 		}
 	}
 
+	/**
+	 * @return true if the session can wait for its next request without
+	 * holding on to a <code>DRDAConnThread</code>
+	 */
+	boolean canParkSession(Session session) {
+		return idleSessionSelector != null &&
+			IdleSessionSelector.canPark(session);
+	}
+
+	/**
+	 * Release an idle session from its thread until its client sends the
+	 * next request. Should only be called if {@link #canParkSession} is true.
+	 *
+	 * @param session the idle session
+	 */
+	void parkSession(Session session) {
+		idleSessionSelector.park(session);
+	}
+
 	/**
 	 * Remove a thread from the thread list. Should be called when a
 	 * <code>DRDAConnThread</code> has been closed.
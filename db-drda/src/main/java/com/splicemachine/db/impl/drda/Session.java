@@ -72,6 +72,8 @@ class Session
 	protected int qryinsid;				// unique identifier for each query
 	protected LocalizedResource langUtil;		// localization information for command session
 										// client
+	protected boolean utf8Ccsid;		// whether the session has switched to UTF8
+	protected int pendingStatementTimeout = -1; // < 0 means no pending timeout to set
 
 	private	Hashtable	dbtable;		// Table of databases accessed in this session
 	private NetworkServerControlImpl nsctrl;        // NetworkServerControlImpl needed for logging
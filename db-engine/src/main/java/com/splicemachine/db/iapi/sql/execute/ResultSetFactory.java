@@ -112,6 +112,8 @@ public interface ResultSetFactory {
 			be inserted into the target table.
 		@param generationClauses	The code to compute column generation clauses if any
 		@param checkGM	The code to enforce the check constraints, if any
+		@param bulkImportDirectory	The directory in which to stage HFiles, if the rows are to be
+			bulk loaded rather than written through the write pipeline
 		@return the insert operation as a result set.
 		@exception StandardException thrown when unable to perform the insert
 	 */
@@ -131,7 +133,8 @@ public interface ResultSetFactory {
 								 String storedAs,
 								 String location,
 								 String compression,
-								 int partitionBy)
+								 int partitionBy,
+								 String bulkImportDirectory)
         throws StandardException;
 
 	/**
@@ -1308,6 +1311,8 @@ public interface ResultSetFactory {
 			which provides the context for normalization.
 		@param resultSetNumber	The resultSetNumber for the ResultSet
 		@param sourceRowWidth	The # of columns in the source row.
+		@param scrollable	Whether or not the result set is scrollable.
+		@param ordered	Whether or not the statement has an ORDER BY clause.
 		@param optimizerEstimatedRowCount	Estimated total # of rows by
 											optimizer
 		@param optimizerEstimatedCost		Estimated total cost by optimizer
@@ -1320,6 +1325,7 @@ public interface ResultSetFactory {
 											int resultSetNumber,
 											int sourceRowWidth,
 											boolean scrollable,
+											boolean ordered,
 											double optimizerEstimatedRowCount,
 											double optimizerEstimatedCost,
 											String explainPlan) 
@@ -360,6 +360,7 @@ public class CursorNode extends DMLStatementNode{
     @Override
     public void optimizeStatement() throws StandardException{
         // Push the order by list down to the ResultSet
+        boolean ordered=orderByList!=null;
         if(orderByList!=null){
             // If we have more than 1 ORDERBY columns, we may be able to
             // remove duplicate columns, e.g., "ORDER BY 1, 1, 2".
@@ -400,6 +401,7 @@ public class CursorNode extends DMLStatementNode{
                         siRCList,
                         null,
                         getContextManager());
+        ((ScrollInsensitiveResultSetNode)resultSet).setOrdered(ordered);
         // Propagate the referenced table map if it's already been created
         if (siChild.getReferencedTableMap() != null) {
             resultSet.setReferencedTableMap((JBitSet) siChild.getReferencedTableMap().clone());
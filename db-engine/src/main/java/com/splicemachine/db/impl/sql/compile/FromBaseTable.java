@@ -525,7 +525,8 @@ public class FromBaseTable extends FromTable {
 
     @Override
     public void verifyProperties(DataDictionary dDictionary) throws StandardException{
-        if (tableDescriptor.getStoredAs()!=null) {
+        // Parquet and ORC files can be read on the control side, so leave those to the cost based choice
+        if (tableDescriptor.getStoredAs()!=null && tableDescriptor.getStoredAs().equals("T")) {
             dataSetProcessorType = CompilerContext.DataSetProcessorType.FORCED_SPARK;
         }
         if(tableProperties==null){
@@ -618,18 +619,24 @@ public class FromBaseTable extends FromTable {
             }
             else if (key.equals("pin")) {
                 try {
+                    // pinned tables are cached on the region servers as well, so leave the engine to the cost based choice
                     pin = Boolean.parseBoolean(StringUtil.SQLToUpperCase(value));
-                    dataSetProcessorType = CompilerContext.DataSetProcessorType.FORCED_SPARK;
                     tableProperties.setProperty("index","null");
                 } catch (Exception pinE) {
                     throw StandardException.newException(SQLState.LANG_INVALID_FORCED_SPARK,value); // TODO Fix Error message - JL
                 }
             }
+            else if (key.equals("vectorize")) {
+                /*
+                 * Nothing to record at compile time: the table properties are handed to the scan, which
+                 * reads the hint back when deciding whether to execute in batch mode.
+                 */
+            }
 
             else{
                 // No other "legal" values at this time
                 throw StandardException.newException(SQLState.LANG_INVALID_FROM_TABLE_PROPERTY,key,
-                        "index, constraint, joinStrategy, useSpark, pin");
+                        "index, constraint, joinStrategy, useSpark, pin, vectorize");
             }
 
 
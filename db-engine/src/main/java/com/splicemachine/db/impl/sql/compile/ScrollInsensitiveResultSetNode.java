@@ -43,6 +43,9 @@ import com.splicemachine.db.iapi.services.classfile.VMOpcode;
 
 public class ScrollInsensitiveResultSetNode  extends SingleChildResultSetNode
 {
+	/* whether the statement asked for its rows in a particular order */
+	private boolean ordered;
+
 	/**
 	 * Initializer for a ScrollInsensitiveResultSetNode.
 	 *
@@ -60,6 +63,17 @@ public class ScrollInsensitiveResultSetNode  extends SingleChildResultSetNode
 		resultColumns = (ResultColumnList) rcl;
 	}
 
+	/**
+	 * Record whether the cursor has an ORDER BY clause. The sort may be satisfied by an index
+	 * rather than by a sort operation, so this cannot be recovered from the generated tree.
+	 *
+	 * @param ordered	true if the rows must be returned in order
+	 */
+	public void setOrdered(boolean ordered)
+	{
+		this.ordered = ordered;
+	}
+
     /**
      *
 	 *
@@ -96,13 +110,14 @@ public class ScrollInsensitiveResultSetNode  extends SingleChildResultSetNode
 		mb.pushThis();
 		mb.callMethod(VMOpcode.INVOKEVIRTUAL, ClassName.BaseActivation, "getScrollable",
 						"boolean", 0);
+		mb.push(ordered);
 
 		mb.push(costEstimate.rowCount());
 		mb.push(costEstimate.getEstimatedCost());
 		mb.push(printExplainInformationForActivation());
 		
 		mb.callMethod(VMOpcode.INVOKEINTERFACE, (String) null, "getScrollInsensitiveResultSet",
-						ClassName.NoPutResultSet, 8);
+						ClassName.NoPutResultSet, 9);
 	}
 
     @Override
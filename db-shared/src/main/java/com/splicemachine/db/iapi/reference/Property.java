@@ -1081,6 +1081,16 @@ public interface Property {
 	 * client socket setKeepAlive value
 	 */
 	public final static String DRDA_PROP_KEEPALIVE = "derby.drda.keepAlive";
+
+	/**
+	 * derby.drda.selectIdleSessions
+	 *<BR>
+	 * Whether sessions waiting for their next request give up their
+	 * connection thread, and are watched by a selector instead, so that idle
+	 * connections don't each hold on to a thread. Only applies when SSL is
+	 * off. Default is true.
+	 */
+	public final static String DRDA_PROP_SELECTIDLESESSIONS = "derby.drda.selectIdleSessions";
 	
 
     /**
@@ -51,6 +51,7 @@ import org.apache.hadoop.hbase.regionserver.RegionCoprocessorHost;
 import org.apache.hadoop.hbase.regionserver.RegionServerServices;
 import org.apache.hadoop.hbase.regionserver.wal.WALEdit;
 import org.apache.hadoop.hbase.regionserver.HRegion;
+import org.apache.hadoop.hbase.util.Pair;
 import org.apache.log4j.Logger;
 
 import javax.annotation.Nullable;
@@ -183,11 +184,20 @@ public class SpliceIndexObserver extends BaseRegionObserver {
             }
             byte[] txnData = put.getAttribute(SIConstants.SI_TRANSACTION_ID_KEY);
             TxnView txn = operationFactory.fromWrites(txnData,0,txnData.length);
+            service.getWritePipeline().markWritten();
             mutate(kv,txn);
         }
         super.prePut(e, put, edit, durability);
     }
 
+    @Override
+    public void preBulkLoadHFile(ObserverContext<RegionCoprocessorEnvironment> ctx,List<Pair<byte[], String>> familyPaths) throws IOException{
+        //bulk loaded data bypasses the write pipeline, but anything caching the region still needs to know about it
+        if(conglomId>0 && service!=null && service.getWritePipeline()!=null)
+            service.getWritePipeline().markWritten();
+        super.preBulkLoadHFile(ctx,familyPaths);
+    }
+
     @Override
     public void postRollBackSplit(ObserverContext<RegionCoprocessorEnvironment> ctx) throws IOException{
         RegionCoprocessorEnvironment rce=ctx.getEnvironment();
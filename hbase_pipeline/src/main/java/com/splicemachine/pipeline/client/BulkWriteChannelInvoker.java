@@ -22,7 +22,9 @@ import com.splicemachine.access.hbase.HBaseTableInfoFactory;
 import com.splicemachine.coprocessor.SpliceMessage;
 import com.splicemachine.pipeline.api.PipelineExceptionFactory;
 import com.splicemachine.pipeline.utils.PipelineCompressor;
+import com.splicemachine.storage.Partition;
 import com.splicemachine.storage.PartitionInfoCache;
+import com.splicemachine.storage.PartitionServer;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.apache.hadoop.hbase.NotServingRegionException;
 import org.apache.hadoop.hbase.TableName;
@@ -34,12 +36,23 @@ import org.apache.log4j.Logger;
 
 import java.io.IOException;
 import java.net.ConnectException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * @author Scott Fines
  *         Date: 3/20/14
  */
 public class BulkWriteChannelInvoker {
+    /*
+     * The highest encoding version that each server we have written to can decode, keyed by the server's
+     * address and startup time (so that a restarted server is negotiated with afresh). Servers advertise the
+     * version they support in every response; until we've heard from a server, or if we cannot tell which
+     * server holds the region, we use the legacy encoding.
+     */
+    private static final ConcurrentMap<String,Integer> serverEncodingVersions = new ConcurrentHashMap<>();
+
     private final byte[] tableName;
     private final PipelineExceptionFactory pef;
     private final PipelineCompressor compressor;
@@ -65,11 +78,13 @@ public class BulkWriteChannelInvoker {
     public BulkWritesResult invoke(BulkWrites write) throws IOException {
         TableName tableName=tableInfoFactory.getTableInfo(this.tableName);
         CoprocessorRpcChannel channel = channelFactory.newChannel(tableName,write.getRegionKey());
+        String server = owningServer(tableName,write.getRegionKey());
 
         boolean cacheCheck = false;
         try {
             SpliceMessage.SpliceIndexService service = ProtobufUtil.newServiceStub(SpliceMessage.SpliceIndexService.class, channel);
             SpliceMessage.BulkWriteRequest.Builder builder = SpliceMessage.BulkWriteRequest.newBuilder();
+            write.setMaxEncodingVersion(encodingVersion(server));
             byte[] requestBytes = compressor.compress(write);
             builder.setBytes(ZeroCopyLiteralByteString.wrap(requestBytes));
             SpliceMessage.BulkWriteRequest bwr = builder.build();
@@ -78,6 +93,7 @@ public class BulkWriteChannelInvoker {
             ServerRpcController controller = new ServerRpcController();
             service.bulkWrite(controller, bwr, doneCallback);
             if (controller.failed()){
+                forgetEncodingVersion(server);
                 IOException error=controller.getFailedOn();
                 clearCacheIfNeeded(error);
                 cacheCheck=true;
@@ -87,6 +103,7 @@ public class BulkWriteChannelInvoker {
                     throw pef.fromErrorString(controller.errorText());
             }
             SpliceMessage.BulkWriteResponse bulkWriteResponse = doneCallback.get();
+            negotiateEncodingVersion(server,bulkWriteResponse);
             byte[] bytes = bulkWriteResponse.getBytes().toByteArray();
             if(bytes==null || bytes.length<=0){
                 Logger logger=Logger.getLogger(BulkWriteChannelInvoker.class);
@@ -95,11 +112,58 @@ public class BulkWriteChannelInvoker {
 
             return compressor.decompress(bytes,BulkWritesResult.class);
         } catch (Exception e) {
-        	if (!cacheCheck) clearCacheIfNeeded(e);
+        	if (!cacheCheck){
+                forgetEncodingVersion(server);
+                clearCacheIfNeeded(e);
+            }
             throw pef.processRemoteException(e);
         }
     }
 
+    /**
+     * @return the server which (as far as the partition cache knows) holds the region containing {@code regionKey},
+     * or {@code null} if that isn't known.
+     */
+    @SuppressWarnings("unchecked")
+    private String owningServer(TableName tableName,byte[] regionKey){
+        try{
+            List<Partition> partitions=partitionInfoCache.getIfPresent(tableName);
+            if(partitions==null) return null;
+            for(Partition partition:partitions){
+                if(partition.containsRow(regionKey)){
+                    PartitionServer server=partition.owningServer();
+                    return server.getHostAndPort()+","+server.getStartupTimestamp();
+                }
+            }
+        }catch(Exception e){
+            //we can always fall back to the legacy encoding
+        }
+        return null;
+    }
+
+    private static int encodingVersion(String server){
+        if(server==null) return PipelineEncoding.VERSION_1;
+        Integer version=serverEncodingVersions.get(server);
+        return version==null?PipelineEncoding.VERSION_1:version;
+    }
+
+    private static void negotiateEncodingVersion(String server,SpliceMessage.BulkWriteResponse response){
+        if(server==null) return;
+        if(!response.hasMaxEncodingVersion())
+            serverEncodingVersions.put(server,PipelineEncoding.VERSION_1);
+        else
+            serverEncodingVersions.put(server,Math.min(response.getMaxEncodingVersion(),PipelineEncoding.LATEST_VERSION));
+    }
+
+    /*
+     * The region may have been sent to a different server than the partition cache told us about, so
+     * after a failure we go back to the legacy encoding until that server has told us what it supports.
+     */
+    private static void forgetEncodingVersion(String server){
+        if(server!=null)
+            serverEncodingVersions.remove(server);
+    }
+
     private boolean clearCacheIfNeeded(Throwable e) throws IOException{
         if (e==null ||
                 e instanceof WrongPartitionException ||
@@ -27,9 +27,9 @@ import com.splicemachine.db.iapi.sql.Activation;
 import com.splicemachine.db.impl.sql.execute.BaseActivation;
 import com.splicemachine.derby.iapi.sql.execute.DataSetProcessorFactory;
 import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
-import com.splicemachine.derby.stream.control.ControlDataSetProcessor;
 import com.splicemachine.derby.stream.iapi.DataSetProcessor;
 import com.splicemachine.derby.stream.iapi.DistributedDataSetProcessor;
+import com.splicemachine.derby.stream.spark.ControlExternalDataSetProcessor;
 import com.splicemachine.derby.stream.spark.HregionDataSetProcessor;
 import com.splicemachine.derby.stream.spark.SparkDataSetProcessor;
 import com.splicemachine.hbase.RegionServerLifecycleObserver;
@@ -62,12 +62,12 @@ public class CostChoosingDataSetProcessorFactory implements DataSetProcessorFact
              */
             if (LOG.isTraceEnabled())
                 SpliceLogUtils.trace(LOG, "chooseProcessor(): localProcessor for op %s", op==null?"null":op.getName());
-            return new ControlDataSetProcessor(driver.getTxnSupplier(), driver.getTransactor(), driver.getOperationFactory());
+            return new ControlExternalDataSetProcessor(driver.getTxnSupplier(), driver.getTransactor(), driver.getOperationFactory());
         }
 
         switch(activation.getLanguageConnectionContext().getDataSetProcessorType()){
             case FORCED_CONTROL:
-                return new ControlDataSetProcessor(driver.getTxnSupplier(), driver.getTransactor(), driver.getOperationFactory());
+                return new ControlExternalDataSetProcessor(driver.getTxnSupplier(), driver.getTransactor(), driver.getOperationFactory());
             case FORCED_SPARK:
                 return new SparkDataSetProcessor();
             default:
@@ -75,14 +75,14 @@ public class CostChoosingDataSetProcessorFactory implements DataSetProcessorFact
         }
         if (((BaseActivation)activation).useSpark())
             return new SparkDataSetProcessor();
-        return new ControlDataSetProcessor(driver.getTxnSupplier(), driver.getTransactor(), driver.getOperationFactory());
+        return new ControlExternalDataSetProcessor(driver.getTxnSupplier(), driver.getTransactor(), driver.getOperationFactory());
     }
 
     @Override
     public DataSetProcessor localProcessor(@Nullable Activation activation,@Nullable SpliceOperation op){
         if (LOG.isTraceEnabled())
             SpliceLogUtils.trace(LOG, "localProcessor(): localProcessor provided for op %s", op==null?"null":op.getName());
-        return new ControlDataSetProcessor(driver.getTxnSupplier(), driver.getTransactor(), driver.getOperationFactory());
+        return new ControlExternalDataSetProcessor(driver.getTxnSupplier(), driver.getTransactor(), driver.getOperationFactory());
     }
 
     @Override
@@ -98,7 +98,7 @@ public class CostChoosingDataSetProcessorFactory implements DataSetProcessorFact
             /*
              * We are running in control node, use a control side processor with less startup cost
              */
-            return new ControlDataSetProcessor(driver.getTxnSupplier(), driver.getTransactor(), driver.getOperationFactory());
+            return new ControlExternalDataSetProcessor(driver.getTxnSupplier(), driver.getTransactor(), driver.getOperationFactory());
 
         }
     }
@@ -0,0 +1,349 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.spark;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Admin;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.RegionLocator;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.filter.FirstKeyOnlyFilter;
+import org.apache.hadoop.hbase.mapreduce.LoadIncrementalHFiles;
+import org.apache.log4j.Logger;
+import org.apache.spark.api.java.JavaPairRDD;
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.function.Function;
+import org.apache.spark.storage.StorageLevel;
+import scala.Tuple2;
+
+import com.splicemachine.access.HConfiguration;
+import com.splicemachine.access.api.PartitionAdmin;
+import com.splicemachine.access.api.SConfiguration;
+import com.splicemachine.access.hbase.HBaseConnectionFactory;
+import com.splicemachine.access.hbase.HBaseTableInfoFactory;
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.RowLocation;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import com.splicemachine.db.iapi.types.SQLVarchar;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.ddl.DDLMessage;
+import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
+import com.splicemachine.derby.impl.SpliceSpark;
+import com.splicemachine.derby.impl.sql.execute.operations.InsertOperation;
+import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
+import com.splicemachine.derby.impl.sql.execute.sequence.SpliceSequence;
+import com.splicemachine.derby.stream.function.BulkInsertEncodeFunction;
+import com.splicemachine.derby.stream.iapi.DataSet;
+import com.splicemachine.derby.stream.iapi.OperationContext;
+import com.splicemachine.derby.stream.iapi.TableWriter;
+import com.splicemachine.derby.stream.output.DataSetWriter;
+import com.splicemachine.derby.stream.output.insert.BulkInsertPartitions;
+import com.splicemachine.derby.stream.output.insert.InsertPipelineWriter;
+import com.splicemachine.pipeline.ErrorState;
+import com.splicemachine.pipeline.Exceptions;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.impl.driver.SIDriver;
+
+/**
+ * Imports rows by writing them straight into HFiles of the table and of each of its indexes, and bulk loading
+ * those, rather than sending each row through the write pipeline.
+ * <p/>
+ * The entries are written with the id of the import's transaction as their timestamp, just as the write pipeline
+ * would have written them, so they become visible when (and only if) that transaction commits. Since nothing
+ * checks the entries against what is already in the table, this only works for empty tables, and since no
+ * write handlers run, only for tables without triggers and without constraints other than the ones their
+ * indexes enforce. Unique constraints are enforced here, by rejecting duplicate keys while the HFiles are
+ * written.
+ * <p/>
+ * The split points of each conglomerate are chosen from a sample of its entries, so that each HFile is about
+ * as large as a region should be, and the conglomerate is split at them before the files are loaded.
+ */
+public class BulkInsertDataSetWriter<K,V> implements DataSetWriter{
+    private static final Logger LOG=Logger.getLogger(BulkInsertDataSetWriter.class);
+    static final String TMP_DIRECTORY="_tmp";
+
+    private JavaPairRDD<K,V> rdd;
+    private OperationContext<? extends SpliceOperation> opContext;
+    private String bulkImportDirectory;
+    private List<DDLMessage.TentativeIndex> tentativeIndexList;
+    private int[] pkCols;
+    private String tableVersion;
+    private ExecRow execRowDefinition;
+    private int[] execRowTypeFormatIds;
+    private long heapConglom;
+    private TxnView txn;
+
+    public BulkInsertDataSetWriter(){
+    }
+
+    public BulkInsertDataSetWriter(JavaPairRDD<K,V> rdd,
+                                   OperationContext<? extends SpliceOperation> opContext,
+                                   String bulkImportDirectory,
+                                   List<DDLMessage.TentativeIndex> tentativeIndexList,
+                                   int[] pkCols,
+                                   String tableVersion,
+                                   ExecRow execRowDefinition,
+                                   int[] execRowTypeFormatIds,
+                                   long heapConglom,
+                                   TxnView txn){
+        this.rdd=rdd;
+        this.opContext=opContext;
+        this.bulkImportDirectory=bulkImportDirectory;
+        this.tentativeIndexList=tentativeIndexList;
+        this.pkCols=pkCols;
+        this.tableVersion=tableVersion;
+        this.execRowDefinition=execRowDefinition;
+        this.execRowTypeFormatIds=execRowTypeFormatIds;
+        this.heapConglom=heapConglom;
+        this.txn=txn;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public DataSet<LocatedRow> write() throws StandardException{
+        SConfiguration config=HConfiguration.getConfiguration();
+        long[] conglomerates=new long[tentativeIndexList.size()+1];
+        conglomerates[0]=heapConglom;
+        for(int i=0;i<tentativeIndexList.size();i++){
+            conglomerates[i+1]=tentativeIndexList.get(i).getIndex().getConglomerate();
+        }
+        checkEmpty(config,conglomerates);
+
+        OperationContext<SpliceOperation> operationContext=(OperationContext<SpliceOperation>)opContext;
+        BulkInsertEncodeFunction encodeFunction=new BulkInsertEncodeFunction(operationContext,pkCols,tableVersion,
+                execRowTypeFormatIds,heapConglom,tentativeIndexList);
+        JavaRDD<ExecRow> rows=(JavaRDD<ExecRow>)rdd.values();
+        JavaPairRDD<byte[],byte[]> entries=JavaPairRDD.fromJavaRDD(rows.mapPartitions(new SparkFlatMapFunction<>(encodeFunction)));
+        entries.persist(StorageLevel.MEMORY_AND_DISK_SER());
+        try{
+            BulkInsertPartitions partitions=getPartitions(entries,conglomerates.length,
+                    config.getBulkImportSampleFraction(),config.getRegionMaxFileSize());
+            split(conglomerates,partitions);
+
+            BulkInsertHFileFunction hfileFunction=new BulkInsertHFileFunction(operationContext,bulkImportDirectory,
+                    conglomerates,getTxn().getTxnId());
+            List<String> hfiles=entries.repartitionAndSortWithinPartitions(new BulkInsertPartitioner(partitions),new KeyComparator())
+                    .mapPartitions(new SparkFlatMapFunction<>(hfileFunction))
+                    .collect();
+            if(LOG.isDebugEnabled())
+                LOG.debug("Bulk loading "+hfiles.size()+" HFiles into conglomerate "+heapConglom);
+            load(config,conglomerates);
+        }catch(Exception e){
+            throw Exceptions.parseException(e);
+        }finally{
+            entries.unpersist();
+        }
+
+        if(opContext.getOperation()!=null){
+            opContext.getOperation().fireAfterStatementTriggers();
+        }
+        ValueRow valueRow=new ValueRow(3);
+        valueRow.setColumn(1,new SQLLongint(opContext.getRecordsWritten()));
+        valueRow.setColumn(2,new SQLLongint());
+        valueRow.setColumn(3,new SQLVarchar());
+        InsertOperation insertOperation=((InsertOperation)opContext.getOperation());
+        if(insertOperation!=null && opContext.isPermissive()) {
+            long numBadRecords = opContext.getBadRecords();
+            valueRow.setColumn(2,new SQLLongint(numBadRecords));
+            if (numBadRecords > 0) {
+                String fileName = opContext.getBadRecordFileName();
+                valueRow.setColumn(3,new SQLVarchar(fileName));
+                if (insertOperation.isAboveFailThreshold(numBadRecords)) {
+                    throw ErrorState.LANG_IMPORT_TOO_MANY_BAD_RECORDS.newException(fileName);
+                }
+            }
+        }
+        return new SparkDataSet<>(SpliceSpark.getContext().parallelize(Collections.singletonList(new LocatedRow(valueRow)), 1));
+    }
+
+    @Override
+    public void setTxn(TxnView childTxn){
+        this.txn=childTxn;
+    }
+
+    @Override
+    public TableWriter getTableWriter() throws StandardException{
+        return new InsertPipelineWriter(pkCols,tableVersion,execRowDefinition,new RowLocation[0],new SpliceSequence[0],
+                heapConglom,txn,opContext,false);
+    }
+
+    @Override
+    public TxnView getTxn(){
+        if(txn==null)
+            return opContext.getTxn();
+        else
+            return txn;
+    }
+
+    @Override
+    public byte[] getDestinationTable(){
+        return Bytes.toBytes(heapConglom);
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+
+    /**
+     * Make sure there is nothing in any of the conglomerates, as the HFiles are loaded without looking at what
+     * is there already. Anything at all counts, even data which has been deleted but not compacted away yet.
+     * <p/>
+     * This check is not atomic with the load: nothing keeps other transactions from writing to the table after
+     * it, and what they write is not checked against the loaded entries. Bulk imports rely on nothing else
+     * writing to the table while they run.
+     */
+    private void checkEmpty(SConfiguration config,long[] conglomerates) throws StandardException{
+        HBaseTableInfoFactory tableInfoFactory=HBaseTableInfoFactory.getInstance(config);
+        try{
+            Connection connection=HBaseConnectionFactory.getInstance(config).getConnection();
+            for(long conglomerate : conglomerates){
+                Scan scan=new Scan();
+                scan.setFilter(new FirstKeyOnlyFilter());
+                scan.setCaching(1);
+                try(Table table=connection.getTable(tableInfoFactory.getTableInfo(Long.toString(conglomerate)));
+                    ResultScanner scanner=table.getScanner(scan)){
+                    if(scanner.next()!=null)
+                        throw ErrorState.LANG_BULK_IMPORT_NOT_SUPPORTED.newException(Long.toString(heapConglom),"it is not empty");
+                }
+            }
+        }catch(IOException e){
+            throw Exceptions.parseException(e);
+        }
+    }
+
+    /**
+     * Choose the split points of each conglomerate from a sample of the entries.
+     */
+    private BulkInsertPartitions getPartitions(JavaPairRDD<byte[],byte[]> entries,int numConglomerates,
+                                               double sampleFraction,long regionSize){
+        List<List<byte[]>> samples=new ArrayList<>(numConglomerates);
+        long[] sampledSizes=new long[numConglomerates];
+        for(int i=0;i<numConglomerates;i++){
+            samples.add(new ArrayList<byte[]>());
+        }
+        if(sampleFraction>0 && sampleFraction<=1){
+            List<Tuple2<byte[],Long>> sample=entries.sample(false,sampleFraction).map(new EntrySize()).collect();
+            for(Tuple2<byte[],Long> entry : sample){
+                int conglomerate=BulkInsertPartitions.getConglomerateIndex(entry._1());
+                samples.get(conglomerate).add(BulkInsertPartitions.getRowKey(entry._1()));
+                sampledSizes[conglomerate]+=entry._2();
+            }
+        }
+        byte[][][] splitPoints=new byte[numConglomerates][][];
+        for(int i=0;i<numConglomerates;i++){
+            List<byte[]> sample=samples.get(i);
+            Collections.sort(sample,Bytes.BASE_COMPARATOR);
+            long estimatedSize=sampleFraction>0?(long)(sampledSizes[i]/sampleFraction):0L;
+            splitPoints[i]=BulkInsertPartitions.selectSplitPoints(sample,estimatedSize,regionSize);
+        }
+        return new BulkInsertPartitions(splitPoints);
+    }
+
+    /**
+     * Split each conglomerate at its split points, so that each HFile lands in a region of its own. This is
+     * only an optimization: the bulk load splits any file which spans several regions itself, so failing to
+     * split (or the split not having finished in time) only costs time.
+     */
+    private void split(long[] conglomerates,BulkInsertPartitions partitions){
+        try(PartitionAdmin admin=SIDriver.driver().getTableFactory().getAdmin()){
+            for(int i=0;i<conglomerates.length;i++){
+                byte[][] splitPoints=partitions.getSplitPoints(i);
+                if(splitPoints.length>0)
+                    admin.splitTable(Long.toString(conglomerates[i]),splitPoints);
+            }
+        }catch(Exception e){
+            LOG.warn("Unable to split conglomerates of "+heapConglom+" before bulk loading",e);
+        }
+    }
+
+    private void load(SConfiguration config,long[] conglomerates) throws Exception{
+        Configuration conf=HConfiguration.unwrapDelegate();
+        Path root=new Path(bulkImportDirectory);
+        FileSystem fs=root.getFileSystem(conf);
+        HBaseTableInfoFactory tableInfoFactory=HBaseTableInfoFactory.getInstance(config);
+        Connection connection=HBaseConnectionFactory.getInstance(config).getConnection();
+        LoadIncrementalHFiles loader=new LoadIncrementalHFiles(conf);
+        try(Admin admin=connection.getAdmin()){
+            for(long conglomerate : conglomerates){
+                Path conglomerateDirectory=new Path(root,Long.toString(conglomerate));
+                if(!fs.exists(conglomerateDirectory)) continue; //no entries
+                TableName tableName=tableInfoFactory.getTableInfo(Long.toString(conglomerate));
+                try(Table table=connection.getTable(tableName);
+                    RegionLocator regionLocator=connection.getRegionLocator(tableName)){
+                    loader.doBulkLoad(conglomerateDirectory,admin,table,regionLocator);
+                }
+                fs.delete(conglomerateDirectory,true);
+            }
+        }finally{
+            fs.delete(new Path(root,TMP_DIRECTORY),true);
+        }
+    }
+
+    private static class EntrySize implements Function<Tuple2<byte[],byte[]>,Tuple2<byte[],Long>>{
+        private static final long serialVersionUID=1L;
+        private static final int FAMILY_LENGTH=1;
+        private static final int QUALIFIER_LENGTH=1;
+
+        @Override
+        public Tuple2<byte[],Long> call(Tuple2<byte[],byte[]> entry) throws Exception{
+            int rowKeyLength=BulkInsertPartitions.getRowKeyLength(entry._1());
+            return new Tuple2<>(entry._1(),KeyValue.getKeyValueDataStructureSize(rowKeyLength,FAMILY_LENGTH,
+                    QUALIFIER_LENGTH,entry._2().length));
+        }
+    }
+
+    private static class BulkInsertPartitioner extends org.apache.spark.Partitioner{
+        private static final long serialVersionUID=1L;
+        private final BulkInsertPartitions partitions;
+
+        BulkInsertPartitioner(BulkInsertPartitions partitions){
+            this.partitions=partitions;
+        }
+
+        @Override
+        public int numPartitions(){
+            return partitions.numPartitions();
+        }
+
+        @Override
+        public int getPartition(Object key){
+            return partitions.getPartition((byte[])key);
+        }
+    }
+
+    private static class KeyComparator implements Comparator<byte[]>, Serializable{
+        private static final long serialVersionUID=1L;
+
+        @Override
+        public int compare(byte[] o1,byte[] o2){
+            return Bytes.BASE_COMPARATOR.compare(o1,o2);
+        }
+    }
+}
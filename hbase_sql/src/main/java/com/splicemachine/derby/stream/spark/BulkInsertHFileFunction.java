@@ -0,0 +1,142 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.spark;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.Collections;
+import java.util.Iterator;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.io.compress.Compression;
+import org.apache.hadoop.hbase.io.hfile.CacheConfig;
+import org.apache.hadoop.hbase.io.hfile.HFileContext;
+import org.apache.hadoop.hbase.io.hfile.HFileContextBuilder;
+import org.apache.hadoop.hbase.regionserver.StoreFile;
+import org.apache.spark.TaskContext;
+import scala.Tuple2;
+
+import com.splicemachine.access.HConfiguration;
+import com.splicemachine.db.iapi.services.io.ArrayUtil;
+import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
+import com.splicemachine.derby.stream.function.SpliceFlatMapFunction;
+import com.splicemachine.derby.stream.iapi.OperationContext;
+import com.splicemachine.derby.stream.output.insert.BulkInsertPartitions;
+import com.splicemachine.pipeline.ErrorState;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.si.constants.SIConstants;
+
+/**
+ * Writes a partition of the (sorted) entries of a bulk import into an HFile, which is staged in the family
+ * directory of its conglomerate under the import directory, ready to be bulk loaded.
+ * <p/>
+ * The file is written to a temporary path first, and only moved into place once it is complete, so that a
+ * failed (or speculative) attempt at the task never leaves a partial file behind to be loaded.
+ */
+public class BulkInsertHFileFunction extends SpliceFlatMapFunction<SpliceOperation,Iterator<Tuple2<byte[],byte[]>>,String>{
+    private String bulkImportDirectory;
+    private long[] conglomerates;
+    private long txnId;
+
+    public BulkInsertHFileFunction(){
+    }
+
+    public BulkInsertHFileFunction(OperationContext<SpliceOperation> operationContext,
+                                   String bulkImportDirectory,
+                                   long[] conglomerates,
+                                   long txnId){
+        super(operationContext);
+        this.bulkImportDirectory=bulkImportDirectory;
+        this.conglomerates=conglomerates;
+        this.txnId=txnId;
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException{
+        super.writeExternal(out);
+        out.writeUTF(bulkImportDirectory);
+        ArrayUtil.writeLongArray(out,conglomerates);
+        out.writeLong(txnId);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException{
+        super.readExternal(in);
+        bulkImportDirectory=in.readUTF();
+        conglomerates=ArrayUtil.readLongArray(in);
+        txnId=in.readLong();
+    }
+
+    @Override
+    public Iterator<String> call(Iterator<Tuple2<byte[],byte[]>> entries) throws Exception{
+        if(!entries.hasNext())
+            return Collections.<String>emptyList().iterator();
+        Tuple2<byte[],byte[]> entry=entries.next();
+        int conglomerateIndex=BulkInsertPartitions.getConglomerateIndex(entry._1());
+        String conglomerate=Long.toString(conglomerates[conglomerateIndex]);
+
+        TaskContext taskContext=TaskContext.get();
+        String fileName=Integer.toString(taskContext.partitionId());
+        Path root=new Path(bulkImportDirectory);
+        Path tmpPath=new Path(new Path(new Path(root,BulkInsertDataSetWriter.TMP_DIRECTORY),conglomerate),
+                fileName+"_"+taskContext.attemptNumber());
+        Path path=new Path(new Path(new Path(root,conglomerate),SIConstants.DEFAULT_FAMILY_NAME),fileName);
+
+        Configuration conf=HConfiguration.unwrapDelegate();
+        FileSystem fs=root.getFileSystem(conf);
+        HFileContext fileContext=new HFileContextBuilder()
+                .withCompression(Compression.getCompressionAlgorithmByName(HConfiguration.getConfiguration().getCompressionAlgorithm()))
+                .build();
+        StoreFile.Writer writer=new StoreFile.WriterBuilder(conf,new CacheConfig(conf),fs)
+                .withFilePath(tmpPath)
+                .withComparator(KeyValue.COMPARATOR)
+                .withFileContext(fileContext)
+                .build();
+        boolean success=false;
+        try{
+            byte[] previous=null;
+            while(true){
+                byte[] rowKey=BulkInsertPartitions.getRowKey(entry._1());
+                if(previous!=null && Bytes.equals(previous,rowKey))
+                    throw ErrorState.LANG_DUPLICATE_KEY_CONSTRAINT.newException(conglomerate,Long.toString(conglomerates[0]));
+                writer.append(new KeyValue(rowKey,SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.PACKED_COLUMN_BYTES,txnId,entry._2()));
+                if(conglomerateIndex==0)
+                    operationContext.recordWrite();
+                previous=rowKey;
+                if(!entries.hasNext()) break;
+                entry=entries.next();
+            }
+            writer.appendFileInfo(StoreFile.BULKLOAD_TIME_KEY,Bytes.toBytes(System.currentTimeMillis()));
+            writer.appendFileInfo(StoreFile.MAJOR_COMPACTION_KEY,Bytes.toBytes(false));
+            writer.appendTrackedTimestampsToMetadata();
+            success=true;
+        }finally{
+            writer.close();
+            if(!success)
+                fs.delete(tmpPath,false);
+        }
+        fs.mkdirs(path.getParent());
+        if(!fs.rename(tmpPath,path)){
+            fs.delete(tmpPath,false);
+            throw new IOException("Unable to move HFile "+tmpPath+" to "+path);
+        }
+        return Collections.singletonList(path.toString()).iterator();
+    }
+}
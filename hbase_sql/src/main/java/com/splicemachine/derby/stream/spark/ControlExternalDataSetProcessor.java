@@ -0,0 +1,120 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.spark;
+
+import com.splicemachine.access.HConfiguration;
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.store.access.Qualifier;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.shared.common.reference.SQLState;
+import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
+import com.splicemachine.derby.stream.control.ControlDataSet;
+import com.splicemachine.derby.stream.control.ControlDataSetProcessor;
+import com.splicemachine.derby.stream.iapi.DataSet;
+import com.splicemachine.derby.stream.iapi.OperationContext;
+import com.splicemachine.si.api.data.TxnOperationFactory;
+import com.splicemachine.si.api.server.Transactor;
+import com.splicemachine.si.api.txn.TxnSupplier;
+import com.splicemachine.stream.ExternalFileIterator;
+import com.splicemachine.stream.orc.OrcFileIterator;
+import com.splicemachine.stream.parquet.ParquetFileIterator;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Control side DataSetProcessor which reads Parquet and ORC external tables directly with the file format
+ * libraries, instead of running a Spark job and pulling its results back.
+ * <p/>
+ * Tables whose location holds directories (partitioned tables, for instance) are still read through Spark, which
+ * knows how to discover their partitions.
+ */
+public class ControlExternalDataSetProcessor extends ControlDataSetProcessor{
+    private static final Logger LOG=Logger.getLogger(ControlExternalDataSetProcessor.class);
+
+    public ControlExternalDataSetProcessor(TxnSupplier txnSupplier,
+                                           Transactor transactory,
+                                           TxnOperationFactory txnOperationFactory){
+        super(txnSupplier,transactory,txnOperationFactory);
+    }
+
+    @Override
+    public <V> DataSet<V> readParquetFile(int[] baseColumnMap,String location,OperationContext context,Qualifier[][] qualifiers,DataValueDescriptor probeValue,ExecRow execRow) throws StandardException{
+        Configuration conf=HConfiguration.unwrapDelegate();
+        List<Path> files=listDataFiles(location,conf);
+        if(files==null)
+            return super.readParquetFile(baseColumnMap,location,context,qualifiers,probeValue,execRow);
+        SpliceOperation op=context==null?null:context.getOperation();
+        return read(new ParquetFileIterator(files,conf,baseColumnMap,qualifiers,probeValue,execRow,op),op);
+    }
+
+    @Override
+    public <V> DataSet<V> readORCFile(int[] baseColumnMap,String location,OperationContext context,Qualifier[][] qualifiers,DataValueDescriptor probeValue,ExecRow execRow) throws StandardException{
+        Configuration conf=HConfiguration.unwrapDelegate();
+        List<Path> files=listDataFiles(location,conf);
+        if(files==null)
+            return super.readORCFile(baseColumnMap,location,context,qualifiers,probeValue,execRow);
+        SpliceOperation op=context==null?null:context.getOperation();
+        return read(new OrcFileIterator(files,conf,baseColumnMap,qualifiers,probeValue,execRow,op),op);
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    @SuppressWarnings("unchecked")
+    private <V> DataSet<V> read(ExternalFileIterator iterator,SpliceOperation op) throws StandardException{
+        if(op!=null)
+            op.registerCloseable(iterator);
+        return new ControlDataSet(iterator);
+    }
+
+    /**
+     * @return the data files at the location, skipping the hidden and metadata files written alongside them
+     * (the same ones Spark skips), or {@code null} if the location holds directories.
+     */
+    private static List<Path> listDataFiles(String location,Configuration conf) throws StandardException{
+        try{
+            Path path=new Path(location);
+            FileSystem fs=path.getFileSystem(conf);
+            FileStatus status=fs.getFileStatus(path);
+            if(!status.isDirectory())
+                return Arrays.asList(status.getPath());
+
+            List<Path> files=new ArrayList<>();
+            for(FileStatus child:fs.listStatus(path)){
+                String name=child.getPath().getName();
+                if(name.startsWith("_") || name.startsWith("."))
+                    continue;
+                if(child.isDirectory()){
+                    if(LOG.isDebugEnabled())
+                        LOG.debug("External table at "+location+" holds directories, reading it through Spark");
+                    return null;
+                }
+                files.add(child.getPath());
+            }
+            return files;
+        }catch(IOException e){
+            throw StandardException.newException(SQLState.EXTERNAL_TABLES_READ_FAILURE,e.getMessage());
+        }
+    }
+}
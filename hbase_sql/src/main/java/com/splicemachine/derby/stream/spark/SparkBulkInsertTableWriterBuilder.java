@@ -0,0 +1,71 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.spark;
+
+import java.util.List;
+
+import org.apache.spark.api.java.JavaPairRDD;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.ddl.DDLMessage;
+import com.splicemachine.derby.stream.output.BulkInsertDataSetWriterBuilder;
+import com.splicemachine.derby.stream.output.DataSetWriter;
+import com.splicemachine.derby.stream.output.insert.InsertTableWriterBuilder;
+
+/**
+ * Builds a {@link BulkInsertDataSetWriter}.
+ */
+public class SparkBulkInsertTableWriterBuilder<K,V> extends InsertTableWriterBuilder implements BulkInsertDataSetWriterBuilder{
+    private transient JavaPairRDD<K,V> rdd;
+    private String bulkImportDirectory;
+    private List<DDLMessage.TentativeIndex> tentativeIndexList;
+
+    public SparkBulkInsertTableWriterBuilder(JavaPairRDD<K,V> rdd){
+        this.rdd=rdd;
+    }
+
+    public SparkBulkInsertTableWriterBuilder(){
+    }
+
+    @Override
+    public BulkInsertDataSetWriterBuilder bulkImportDirectory(String bulkImportDirectory){
+        this.bulkImportDirectory=bulkImportDirectory;
+        return this;
+    }
+
+    @Override
+    public BulkInsertDataSetWriterBuilder tentativeIndexList(List<DDLMessage.TentativeIndex> tentativeIndexList){
+        this.tentativeIndexList=tentativeIndexList;
+        return this;
+    }
+
+    @Override
+    public DataSetWriter build() throws StandardException{
+        if(operationContext.getOperation()!=null){
+            operationContext.getOperation().fireBeforeStatementTriggers();
+        }
+        return new BulkInsertDataSetWriter<>(rdd,
+                operationContext,
+                bulkImportDirectory,
+                tentativeIndexList,
+                pkCols,
+                tableVersion,
+                execRowDefinition,
+                execRowTypeFormatIds,
+                heapConglom,
+                txn);
+    }
+}
@@ -204,9 +204,29 @@ public class SparkDataSetProcessor implements DistributedDataSetProcessor, Seria
         return readTextFile(path, null);
     }
     
-    @SuppressWarnings({ "rawtypes", "unchecked" })
     @Override
     public DataSet<String> readTextFile(String path, SpliceOperation op) throws StandardException {
+        return readTextFile(path, op, new Function<Text,String>() {
+            @Override
+            public String call(Text o) throws Exception {
+                return o.toString();
+            }
+        });
+    }
+
+    @Override
+    public DataSet<byte[]> readTextFileBytes(String path, SpliceOperation op) throws StandardException {
+        return readTextFile(path, op, new Function<Text,byte[]>() {
+            @Override
+            public byte[] call(Text o) throws Exception {
+                //the record reader reuses its Text, so the bytes must be copied
+                return o.copyBytes();
+            }
+        });
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private <T> DataSet<T> readTextFile(String path, SpliceOperation op, Function<Text,T> lineFunction) throws StandardException {
         try {
             FileInfo fileInfo = ImportUtils.getImportFileInfo(path);
             String displayString="";
@@ -221,13 +241,7 @@ public class SparkDataSetProcessor implements DistributedDataSetProcessor, Seria
                     Text.class,
                     new Configuration(HConfiguration.unwrapDelegate()));
 
-            JavaRDD rdd =pairRdd.values()
-                    .map(new Function<Text,String>() {
-                        @Override
-                        public String call(Text o) throws Exception {
-                            return o.toString();
-                        }
-                    });
+            JavaRDD rdd =pairRdd.values().map(lineFunction);
             SparkUtils.setAncestorRDDNames(rdd, 1, new String[] {fileInfo.toSummary()}, null);
             return new SparkDataSet<>(rdd,OperationContext.Scope.READ_TEXT_FILE.displayName());
         } catch (IOException | StandardException ioe) {
@@ -353,6 +353,23 @@ public class SparkOperationContext<Op extends SpliceOperation> implements Operat
         return regionTooBusyExceptions.value();
     }
 
+    /*
+     * Spark manages spilling of its own shuffles and aggregations, so
+     * nothing is recorded on this side.
+     */
+    @Override
+    public void recordSpill(long bytes){ }
+
+    @Override
+    public long getSpillCount(){
+        return 0l;
+    }
+
+    @Override
+    public long getSpilledBytes(){
+        return 0l;
+    }
+
 
     @Override
     public void pushScope(String displayName){
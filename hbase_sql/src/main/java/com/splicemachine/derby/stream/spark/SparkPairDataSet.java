@@ -24,6 +24,7 @@ import com.splicemachine.derby.stream.function.*;
 import com.splicemachine.derby.stream.iapi.DataSet;
 import com.splicemachine.derby.stream.iapi.OperationContext;
 import com.splicemachine.derby.stream.iapi.PairDataSet;
+import com.splicemachine.derby.stream.output.BulkInsertDataSetWriterBuilder;
 import com.splicemachine.derby.stream.output.DataSetWriterBuilder;
 import com.splicemachine.derby.stream.output.InsertDataSetWriterBuilder;
 import com.splicemachine.derby.stream.output.UpdateDataSetWriterBuilder;
@@ -229,6 +230,11 @@ public class SparkPairDataSet<K,V> implements PairDataSet<K, V>{
         return new SparkInsertTableWriterBuilder<>(wrapExceptions());
     }
 
+    @Override
+    public BulkInsertDataSetWriterBuilder bulkInsertData(OperationContext operationContext) throws StandardException{
+        return new SparkBulkInsertTableWriterBuilder<>(rdd);
+    }
+
     @Override
     public UpdateDataSetWriterBuilder updateData(OperationContext operationContext) throws StandardException{
         return new SparkUpdateTableWriterBuilder<>(wrapExceptions());
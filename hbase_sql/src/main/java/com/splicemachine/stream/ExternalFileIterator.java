@@ -0,0 +1,203 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.stream;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.services.io.StoredFormatIds;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.store.access.Qualifier;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.shared.common.reference.SQLState;
+import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
+import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.spark.sql.RowFactory;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads the rows of an external table straight from its files, one file after the other, without going
+ * through Spark.
+ * <p/>
+ * Only the columns of the file which are set in the {@code baseColumnMap} are decoded, and the rows are
+ * built the same way Spark would build them (that is, the projected columns are handed to
+ * {@link ExecRow#fromSparkRow(org.apache.spark.sql.Row)} in file order), so the rows are the same whichever
+ * way the table is read. The scan qualifiers are only used to skip the parts of a file which cannot hold a
+ * qualifying row; the rows which are returned still have to be qualified by the caller.
+ */
+public abstract class ExternalFileIterator implements Iterator<LocatedRow>, AutoCloseable{
+    protected final Configuration conf;
+    protected final Qualifier[][] qualifiers;
+    protected final DataValueDescriptor probeValue;
+    /*the positions (in the file) of the columns to read, in file order*/
+    protected final int[] columns;
+    /*the position of each file column in the row which is returned, or -1 if it is not read*/
+    protected final int[] baseColumnMap;
+
+    private final Iterator<Path> files;
+    private final ExecRow template;
+    private final SpliceOperation op;
+    private final Object[] values;
+    private boolean fileOpen;
+    private boolean closed;
+    private LocatedRow next;
+
+    protected ExternalFileIterator(List<Path> files,
+                                   Configuration conf,
+                                   int[] baseColumnMap,
+                                   Qualifier[][] qualifiers,
+                                   DataValueDescriptor probeValue,
+                                   ExecRow template,
+                                   SpliceOperation op){
+        this.files=files.iterator();
+        this.conf=conf;
+        this.baseColumnMap=baseColumnMap;
+        this.qualifiers=qualifiers;
+        this.probeValue=probeValue;
+        this.template=template;
+        this.op=op;
+        int numColumns=0;
+        for(int position:baseColumnMap){
+            if(position!=-1) numColumns++;
+        }
+        this.columns=new int[numColumns];
+        for(int i=0,c=0;i<baseColumnMap.length;i++){
+            if(baseColumnMap[i]!=-1) columns[c++]=i;
+        }
+        this.values=new Object[numColumns];
+    }
+
+    @Override
+    public boolean hasNext(){
+        if(next!=null) return true;
+        if(closed) return false;
+        try{
+            while(true){
+                if(!fileOpen){
+                    if(!files.hasNext()){
+                        close();
+                        return false;
+                    }
+                    openFile(files.next());
+                    fileOpen=true;
+                }
+                if(readRow(values)){
+                    next=new LocatedRow(template.getNewNullRow().fromSparkRow(RowFactory.create(values)));
+                    return true;
+                }
+                fileOpen=false;
+                closeFile();
+            }
+        }catch(IOException e){
+            throw new RuntimeException(StandardException.newException(SQLState.EXTERNAL_TABLES_READ_FAILURE,e.getMessage()));
+        }
+    }
+
+    @Override
+    public LocatedRow next(){
+        if(!hasNext()) throw new NoSuchElementException();
+        LocatedRow row=next;
+        next=null;
+        if(op!=null)
+            op.setCurrentLocatedRow(row);
+        return row;
+    }
+
+    @Override
+    public void remove(){
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void close() throws IOException{
+        if(closed) return;
+        closed=true;
+        if(fileOpen){
+            fileOpen=false;
+            closeFile();
+        }
+    }
+
+    /**
+     * Open the next file to read.
+     */
+    protected abstract void openFile(Path file) throws IOException;
+
+    /**
+     * Read the next row of the current file.
+     *
+     * @param values filled with the values of the projected columns (in the order of {@link #columns}), as the
+     *               Java objects Spark would have produced for them.
+     * @return false if the file has no more rows.
+     */
+    protected abstract boolean readRow(Object[] values) throws IOException;
+
+    protected abstract void closeFile() throws IOException;
+
+    /* ****************************************************************************************************************/
+    /*helpers for pushing the qualifiers down into the file reader*/
+
+    /**
+     * @return true if the qualifier may be evaluated against the statistics of a file. Qualifiers whose value
+     * can change from row to row, or which let nulls qualify, are left to the caller.
+     */
+    protected boolean canPushDown(Qualifier q,int numFileColumns){
+        if(q.getVariantType()==Qualifier.VARIANT || q.getOrderedNulls()) return false;
+        int position=q.getStoragePosition();
+        return position>=0 && position<baseColumnMap.length && position<numFileColumns && baseColumnMap[position]!=-1;
+    }
+
+    /**
+     * @return the value to compare the column of the qualifier against, or {@code null} if it is SQL NULL.
+     */
+    protected DataValueDescriptor getQualifierValue(Qualifier q,boolean first) throws StandardException{
+        q.clearOrderableCache();
+        DataValueDescriptor value=probeValue==null || !first?q.getOrderable():probeValue;
+        return value==null || value.isNull()?null:value;
+    }
+
+    protected static boolean isIntegral(DataValueDescriptor value){
+        switch(value.getTypeFormatId()){
+            case StoredFormatIds.SQL_TINYINT_ID:
+            case StoredFormatIds.SQL_SMALLINT_ID:
+            case StoredFormatIds.SQL_INTEGER_ID:
+            case StoredFormatIds.SQL_LONGINT_ID:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @return true if the value can be turned into a double without losing precision
+     */
+    protected static boolean isExactDouble(DataValueDescriptor value){
+        switch(value.getTypeFormatId()){
+            case StoredFormatIds.SQL_TINYINT_ID:
+            case StoredFormatIds.SQL_SMALLINT_ID:
+            case StoredFormatIds.SQL_INTEGER_ID:
+            case StoredFormatIds.SQL_REAL_ID:
+            case StoredFormatIds.SQL_DOUBLE_ID:
+                return true;
+            default:
+                return false;
+        }
+    }
+}
@@ -18,6 +18,7 @@ package com.splicemachine.stream;
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.io.Input;
 import com.splicemachine.derby.impl.SpliceSparkKryoRegistrator;
+import com.splicemachine.pipeline.client.PipelineCompressionCodec;
 import com.splicemachine.utils.kryo.KryoPool;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
@@ -25,6 +26,9 @@ import io.netty.handler.codec.ByteToMessageDecoder;
 import org.apache.log4j.Logger;
 import java.util.List;
 
+/**
+ * Reads the frames written by {@link KryoEncoder}, decompressing them if needed.
+ */
 public class KryoDecoder extends ByteToMessageDecoder {
     private static final Logger LOG = Logger.getLogger(KryoDecoder.class);
     static private KryoPool kp = SpliceSparkKryoRegistrator.getInstance();
@@ -33,13 +37,13 @@ public class KryoDecoder extends ByteToMessageDecoder {
     protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
 //        LOG.warn("Decoding");
         
-        if (in.readableBytes() < 2)
+        if (in.readableBytes() < 4)
             return;
 
 
         in.markReaderIndex();
 
-        int len = in.readUnsignedShort();
+        int len = in.readInt();
 //        LOG.warn("Read lenght " + len);
 
         if (in.readableBytes() < len) {
@@ -51,8 +55,17 @@ public class KryoDecoder extends ByteToMessageDecoder {
 
 //        LOG.warn("Decoding object ");
 
-        byte[] buf = new byte[len];
-        in.readBytes(buf);
+        PipelineCompressionCodec codec = PipelineCompressionCodec.forId(in.readByte());
+        byte[] buf;
+        if (codec == PipelineCompressionCodec.NONE) {
+            buf = new byte[len - 1];
+            in.readBytes(buf);
+        } else {
+            buf = new byte[in.readInt()];
+            byte[] compressed = new byte[len - 5];
+            in.readBytes(compressed);
+            codec.decompress(compressed, 0, compressed.length, buf);
+        }
         Input input = new Input(buf);
 
         Kryo decoder = kp.get();
@@ -18,6 +18,7 @@ package com.splicemachine.stream;
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.io.Output;
 import com.splicemachine.derby.impl.SpliceSparkKryoRegistrator;
+import com.splicemachine.pipeline.client.PipelineCompressionCodec;
 import com.splicemachine.utils.kryo.KryoPool;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
@@ -25,17 +26,31 @@ import io.netty.handler.codec.MessageToByteEncoder;
 
 import java.io.ByteArrayOutputStream;
 
+/**
+ * Writes each message as a frame: an int with the length of the rest of the frame, the id of the
+ * {@link PipelineCompressionCodec} applied to the message, the uncompressed length of the message (only if it
+ * is compressed) and the (possibly compressed) Kryo-serialized message.
+ *
+ * @see KryoDecoder
+ */
 public class KryoEncoder extends MessageToByteEncoder<Object> {
-
+    // Messages smaller than this aren't worth compressing
+    private static final int MIN_COMPRESSION_SIZE = 256;
 
     ByteArrayOutputStream outStream;
     Output output;
+    private final PipelineCompressionCodec codec;
 
 
     static private KryoPool kp = SpliceSparkKryoRegistrator.getInstance();
 
 
     public KryoEncoder() {
+        this(PipelineCompressionCodec.NONE);
+    }
+
+    public KryoEncoder(PipelineCompressionCodec codec) {
+        this.codec = codec;
         outStream = new ByteArrayOutputStream();
         output = new Output(outStream, 4096);
     }
@@ -53,8 +68,17 @@ public class KryoEncoder extends MessageToByteEncoder<Object> {
 
         output.flush();
         byte[] outArray = outStream.toByteArray();
-        out.writeShort(outArray.length);
-        out.writeBytes(outArray);
+        if (codec != PipelineCompressionCodec.NONE && outArray.length >= MIN_COMPRESSION_SIZE) {
+            byte[] compressed = codec.compress(outArray, 0, outArray.length);
+            out.writeInt(compressed.length + 5);
+            out.writeByte(codec.getId());
+            out.writeInt(outArray.length);
+            out.writeBytes(compressed);
+        } else {
+            out.writeInt(outArray.length + 1);
+            out.writeByte(PipelineCompressionCodec.NONE.getId());
+            out.writeBytes(outArray);
+        }
     }
 
 }
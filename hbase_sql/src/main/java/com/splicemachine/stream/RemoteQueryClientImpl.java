@@ -18,6 +18,7 @@ package com.splicemachine.stream;
 import com.google.common.net.HostAndPort;
 import com.splicemachine.EngineDriver;
 import com.splicemachine.access.HConfiguration;
+import com.splicemachine.access.api.SConfiguration;
 import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.db.iapi.sql.Activation;
 import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
@@ -72,9 +73,13 @@ public class RemoteQueryClientImpl implements RemoteQueryClient {
 
         try {
             updateLimitOffset();
-            int streamingBatches = HConfiguration.getConfiguration().getSparkResultStreamingBatches();
-            int streamingBatchSize = HConfiguration.getConfiguration().getSparkResultStreamingBatchSize();
-            streamListener = new StreamListener(limit, offset, streamingBatches, streamingBatchSize);
+            SConfiguration config = HConfiguration.getConfiguration();
+            int streamingBatches = config.getSparkResultStreamingBatches();
+            int streamingBatchSize = config.getSparkResultStreamingBatchSize();
+            int streamingFrameSize = config.getSparkResultStreamingFrameSize();
+            String streamingCompressionCodec = config.getSparkResultStreamingCompressionCodec();
+            boolean ordered = !config.getSparkResultStreamingUnordered() || offset > 0 || isOrdered();
+            streamListener = new StreamListener(limit, offset, streamingBatches, streamingBatchSize, ordered);
             StreamListenerServer server = getServer();
             server.register(streamListener);
             HostAndPort hostAndPort = server.getHostAndPort();
@@ -87,7 +92,7 @@ public class RemoteQueryClientImpl implements RemoteQueryClient {
             String userId = activation.getLanguageConnectionContext().getCurrentUserId(activation);
 
             RemoteQueryJob jobRequest = new RemoteQueryJob(ah, root.getResultSetNumber(), uuid, host, port, userId, sql,
-                    streamingBatches, streamingBatchSize);
+                    streamingBatches, streamingBatchSize, streamingFrameSize, streamingCompressionCodec, ordered);
             olapFuture = EngineDriver.driver().getOlapClient().submit(jobRequest);
             olapFuture.addListener(new Runnable() {
                 @Override
@@ -130,6 +135,13 @@ public class RemoteQueryClientImpl implements RemoteQueryClient {
         }
     }
 
+    /**
+     * @return true unless the statement is known not to care about the order of its rows
+     */
+    private boolean isOrdered() {
+        return !(root instanceof ScrollInsensitiveOperation) || ((ScrollInsensitiveOperation) root).isOrdered();
+    }
+
     @Override
     public Iterator<LocatedRow> getIterator() {
         return streamListener.getIterator();
@@ -37,11 +37,14 @@ public class RemoteQueryJob extends DistributedJob {
     String sql;
     int streamingBatches;
     int streamingBatchSize;
-
+    int streamingFrameSize;
+    String streamingCompressionCodec;
+    boolean ordered;
 
     public RemoteQueryJob(ActivationHolder ah, int rootResultSetNumber, UUID uuid, String host, int port,
                           String userId, String sql,
-                          int streamingBatches, int streamingBatchSize) {
+                          int streamingBatches, int streamingBatchSize, int streamingFrameSize,
+                          String streamingCompressionCodec, boolean ordered) {
         this.ah = ah;
         this.rootResultSetNumber = rootResultSetNumber;
         this.uuid = uuid;
@@ -51,6 +54,9 @@ public class RemoteQueryJob extends DistributedJob {
         this.sql = sql;
         this.streamingBatches = streamingBatches;
         this.streamingBatchSize = streamingBatchSize;
+        this.streamingFrameSize = streamingFrameSize;
+        this.streamingCompressionCodec = streamingCompressionCodec;
+        this.ordered = ordered;
     }
 
     @Override
@@ -20,6 +20,7 @@ import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.splicemachine.derby.stream.ActivationHolder;
 import com.splicemachine.derby.stream.iapi.OperationContext;
 import com.splicemachine.derby.stream.spark.SparkOperationContext;
+import com.splicemachine.pipeline.client.PipelineCompressionCodec;
 import com.splicemachine.stream.handlers.OpenHandler;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.channel.ChannelFuture;
@@ -39,6 +40,9 @@ import java.util.UUID;
 import java.util.concurrent.*;
 
 /**
+ * Streams the rows of a partition to the query client. Rows are sent in {@link StreamProtocol.Batch frames} of up to
+ * {@code frameSize} rows, optionally compressed, while flow control with the client still counts individual rows.
+ *
  * Created by dgomezferro on 5/25/16.
  */
 public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements Function2<Integer, Iterator<T>, Iterator<String>>, Serializable {
@@ -59,6 +63,8 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
     private NioEventLoopGroup workerGroup;
     private transient CountDownLatch active;
     private int batches;
+    private int frameSize = 1;
+    private String compressionCodec;
     private volatile TaskContext taskContext;
 
     // Serialization
@@ -77,6 +83,17 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
 
     }
 
+    /**
+     * @param frameSize the most rows to send in a single message
+     * @param compressionCodec the name of the {@link PipelineCompressionCodec} to compress messages with
+     */
+    public ResultStreamer(OperationContext<?> context, UUID uuid, String host, int port, int numPartitions, int batches,
+                          int batchSize, int frameSize, String compressionCodec) {
+        this(context, uuid, host, port, numPartitions, batches, batchSize);
+        this.frameSize = Math.max(1, Math.min(frameSize, batchSize));
+        this.compressionCodec = compressionCodec;
+    }
+
     @Override
     public void channelActive(final ChannelHandlerContext ctx) throws Exception {
         LOG.trace("Starting result streamer " + this);
@@ -87,6 +104,8 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
             private long consumed;
             private long sent;
             private int currentBatch;
+            private final Object[] frame = new Object[frameSize];
+            private int frameCount;
 
             @Override
             public Long call() throws InterruptedException {
@@ -104,7 +123,7 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
                         consumed++;
 
 
-                        ctx.write(lr, ctx.voidPromise());
+                        write(lr);
                         currentBatch++;
                         sent++;
 
@@ -117,6 +136,7 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
                         consumeOffset();
                     }
                     // Data has been written, request close
+                    writeFrame();
                     ctx.writeAndFlush(new StreamProtocol.RequestClose());
 
                     return consumed;
@@ -126,12 +146,39 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
                 }
             }
 
+            /**
+             * Add the row to the current frame, writing the frame once it's full
+             */
+            private void write(T row) {
+                if (frame.length == 1) {
+                    ctx.write(row, ctx.voidPromise());
+                    return;
+                }
+                frame[frameCount++] = row;
+                if (frameCount == frame.length) {
+                    writeFrame();
+                }
+            }
+
+            /**
+             * Write the rows of the current frame, if any. A frame with a single row is sent as that row.
+             */
+            private void writeFrame() {
+                if (frameCount == 0)
+                    return;
+                Object msg = frameCount == 1 ? frame[0] : new StreamProtocol.Batch(Arrays.copyOf(frame, frameCount));
+                Arrays.fill(frame, 0, frameCount, null);
+                frameCount = 0;
+                ctx.write(msg, ctx.voidPromise());
+            }
+
             /**
              * If the current batch exceeds the batch size, flush the connection and take a new permit, blocking if the client
              * hasn't had time yet to process previous messages
              */
             private void flushAndGetPermit() throws InterruptedException {
                 if (currentBatch >= batchSize) {
+                    writeFrame();
                     ctx.flush();
                     currentBatch = 0;
                     permits.acquire();
@@ -150,6 +197,7 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
                         count++;
                         consumed++;
                     }
+                    writeFrame();
                     ctx.writeAndFlush(new StreamProtocol.Skipped(count));
                 }
             }
@@ -160,6 +208,7 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
              */
             private boolean checkLimit() {
                 if (consumed > limit) {
+                    writeFrame();
                     ctx.flush();
                     if (LOG.isTraceEnabled())
                         LOG.trace("Reached limit, stopping. consumed " + consumed + " sent " + sent + " limit " + limit);
@@ -210,7 +259,7 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
             bootstrap.group(workerGroup);
             bootstrap.channel(NioSocketChannel.class);
             bootstrap.option(ChannelOption.SO_KEEPALIVE, true);
-            bootstrap.handler(new OpenHandler(this));
+            bootstrap.handler(new OpenHandler(this, PipelineCompressionCodec.forName(compressionCodec)));
 
 
             ChannelFuture futureConnect = bootstrap.connect(socketAddr).sync();
@@ -245,6 +294,8 @@ public class ResultStreamer<T> extends ChannelInboundHandlerAdapter implements F
                 ", limit=" + limit +
                 ", partition=" + partition +
                 ", batches=" + batches +
+                ", frameSize=" + frameSize +
+                ", compressionCodec=" + compressionCodec +
                 '}';
     }
 }
@@ -27,12 +27,20 @@ import java.util.*;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
 
 
 /**
  * This class handles connections from Spark tasks streaming data to the query client. One connection is created from
  * each task, it handles failures and recovery in case the task is retried.
  *
+ * Tasks send their rows either one by one or in {@link StreamProtocol.Batch batches}; batches are unpacked here, and
+ * the rows in them are accounted for (offset, limit, flow control) as if they had been sent one by one.
+ *
+ * By default partitions are consumed one after the other, so that the rows are returned in the order of the RDD. When
+ * that order doesn't matter (no ORDER BY and no OFFSET) the listener can be created unordered instead, in which case
+ * rows are returned from whichever partition has some available, so a slow partition doesn't hold back the others.
+ *
  * Created by dgomezferro on 5/20/16.
  */
 @ChannelHandler.Sharable
@@ -44,6 +52,7 @@ public class StreamListener<T> extends ChannelInboundHandlerAdapter implements I
     private final int queueSize;
     private final int batchSize;
     private final UUID uuid;
+    private final boolean ordered;
     private long limit;
     private long offset;
 
@@ -52,6 +61,13 @@ public class StreamListener<T> extends ChannelInboundHandlerAdapter implements I
 
     private T currentResult;
     private int currentQueue = -1;
+    // Unordered mode: one entry per message added to a partition's queue, in arrival order
+    private final LinkedBlockingQueue<PartitionState> ready = new LinkedBlockingQueue<>();
+    private int finishedPartitions;
+    // The rows of the last batch received which haven't been returned yet, and the partition they came from
+    private Object[] batch;
+    private int batchPosition;
+    private PartitionState batchState;
     // There's at least one partition, this will be updated when we get a connection
     private volatile long numPartitions = 1;
     private final List<AutoCloseable> closeables = new ArrayList<>();
@@ -69,23 +85,38 @@ public class StreamListener<T> extends ChannelInboundHandlerAdapter implements I
     }
 
     public StreamListener(long limit, long offset, int batches, int batchSize) {
+        this(limit, offset, batches, batchSize, true);
+    }
+
+    /**
+     * @param ordered if false, rows may be returned in any order. Ignored (the listener is ordered) when there's an
+     *                offset, as skipping the first rows of the result only makes sense in a particular order.
+     */
+    public StreamListener(long limit, long offset, int batches, int batchSize, boolean ordered) {
         this.offset = offset;
         this.limit = limit;
         this.batchSize = batchSize;
         this.queueSize = batches*batchSize;
-        // start with this to force a channel advancement
-        PartitionState first = new PartitionState(0, 0);
-        first.messages.add(SENTINEL);
-        first.initialized = true;
-        this.partitionStateMap.put(-1, first);
+        this.ordered = ordered || offset > 0;
+        if (this.ordered) {
+            // start with this to force a channel advancement
+            PartitionState first = new PartitionState(0, 0);
+            first.messages.add(SENTINEL);
+            first.initialized = true;
+            this.partitionStateMap.put(-1, first);
+        }
         this.uuid = UUID.randomUUID();
     }
 
     public Iterator<T> getIterator() {
-        // Initialize first partition
-        PartitionState ps = partitionStateMap.putIfAbsent(0, new PartitionState(1, queueSize));
-        if (failure != null) {
-            ps.messages.add(FAILURE);
+        if (ordered) {
+            // Initialize first partition
+            PartitionState ps = partitionStateMap.putIfAbsent(0, new PartitionState(1, queueSize));
+            if (failure != null) {
+                ps.messages.add(FAILURE);
+            }
+        } else if (failure != null) {
+            wakeUp(FAILURE);
         }
         // This will block until some data is available
         advance();
@@ -111,7 +142,7 @@ public class StreamListener<T> extends ChannelInboundHandlerAdapter implements I
         }
         if (msg instanceof StreamProtocol.RequestClose) {
             // We can't block here, we negotiate throughput with the server to guarantee it
-            state.messages.add(SENTINEL);
+            offer(state, SENTINEL);
             // Let server know it can close the connection
             ctx.writeAndFlush(new StreamProtocol.ConfirmClose());
             ctx.close().sync();
@@ -121,7 +152,7 @@ public class StreamListener<T> extends ChannelInboundHandlerAdapter implements I
         } else {
             // Data or StreamProtocol.Skipped
             // We can't block here, we negotiate throughput with the server to guarantee it
-            state.messages.add(msg);
+            offer(state, msg);
         }
     }
 
@@ -147,9 +178,17 @@ public class StreamListener<T> extends ChannelInboundHandlerAdapter implements I
     }
 
     private void advance() {
+        if (!ordered) {
+            advanceUnordered();
+            return;
+        }
         T next = null;
         try {
             while (next == null) {
+                if (hasBatchedRows()) {
+                    next = accept(batchState, nextBatchedRow());
+                    continue;
+                }
                 PartitionState state = partitionStateMap.get(currentQueue);
                 // We take a message first to make sure we have a connection
                 Object msg = canBlock ? state.messages.take() : state.messages.remove();
@@ -204,36 +243,88 @@ public class StreamListener<T> extends ChannelInboundHandlerAdapter implements I
                     if (failure != null) {
                         ps.messages.add(FAILURE);
                     }
+                } else if (msg instanceof StreamProtocol.Skipped) {
+                    skipped(state, (StreamProtocol.Skipped) msg);
+                } else if (msg instanceof StreamProtocol.Batch) {
+                    startBatch(state, (StreamProtocol.Batch) msg);
                 } else {
-                    if (msg instanceof StreamProtocol.Skipped) {
-                        StreamProtocol.Skipped skipped = (StreamProtocol.Skipped) msg;
-                        offset -= skipped.skipped;
-                        state.readTotal += skipped.skipped;
-                    } else if (offset > 0) {
-                        // We still have to ignore 'offset' messages
-                        offset--;
-                        state.consumed++;
-                        state.readTotal++;
-                    } else {
-                        // We are returning a message
-                        next = (T) msg;
-                        state.consumed++;
-                        state.readTotal++;
-                        // Check the limit
-                        if (limit > 0) {
-                            limit--;
-                            if (limit == 0) {
-                                stopAllStreams();
-                            }
-                        }
-                    }
+                    next = accept(state, msg);
+                }
+            }
+            currentResult = next;
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Like {@link #advance()}, but takes the next message from whichever partition has one available.
+     */
+    private void advanceUnordered() {
+        T next = null;
+        try {
+            while (next == null) {
+                if (stopped) {
+                    // We were told to stop, ignore whatever is left
+                    currentResult = null;
+                    close();
+                    return;
+                }
+                if (hasBatchedRows()) {
+                    next = accept(batchState, nextBatchedRow());
+                    continue;
+                }
+                PartitionState state = canBlock ? ready.take() : ready.remove();
+                Object msg = state.messages.poll();
+                if (msg == null) {
+                    // The messages of this state were dropped when its task was retried
+                    continue;
+                }
+                if (msg == FAILURE) {
+                    // The olap job failed, return
+                    currentResult = null;
+                    return;
+                }
+                if (!state.initialized && limit > 0) {
+                    if (LOG.isTraceEnabled())
+                        LOG.trace("Sending skip " + limit + ", 0 to partition " + state.partition);
+                    state.channel.writeAndFlush(new StreamProtocol.Skip(limit, 0));
+                }
+                state.initialized = true;
+                if (msg == RETRY) {
+                    // There was a retried task, skip all records already accounted for from the previous run
+                    long currentOffset = state.skip + state.readTotal;
+                    long serverLimit = limit > 0 ? limit + currentOffset : -1;
+
+                    state.next.channel.writeAndFlush(new StreamProtocol.Skip(serverLimit, currentOffset));
+                    state.next.initialized = true;
+                    state.next.skip = currentOffset;
+                    state.messages.clear();
 
-                    if (state.consumed > batchSize) {
+                    partitionStateMap.put(state.partition, state.next);
+                    if (LOG.isTraceEnabled()) {
+                        LOG.trace("Retried task, currentOffset " + currentOffset + " serverLimit " + serverLimit +
+                                " state " + state);
+                    }
+                } else if (msg == SENTINEL) {
+                    if (LOG.isTraceEnabled())
+                        LOG.trace("Partition " + state.partition + " finished");
+                    if (partitionStateMap.remove(state.partition, state) && state.channel != null)
+                        partitionMap.remove(state.channel);
+                    finishedPartitions++;
+                    if (finishedPartitions >= numPartitions) {
                         if (LOG.isTraceEnabled())
-                            LOG.trace("Writing CONT");
-                        state.channel.writeAndFlush(new StreamProtocol.Continue());
-                        state.consumed -= batchSize;
+                            LOG.trace("End of stream");
+                        currentResult = null;
+                        close();
+                        return;
                     }
+                } else if (msg instanceof StreamProtocol.Skipped) {
+                    skipped(state, (StreamProtocol.Skipped) msg);
+                } else if (msg instanceof StreamProtocol.Batch) {
+                    startBatch(state, (StreamProtocol.Batch) msg);
+                } else {
+                    next = accept(state, msg);
                 }
             }
             currentResult = next;
@@ -242,6 +333,94 @@ public class StreamListener<T> extends ChannelInboundHandlerAdapter implements I
         }
     }
 
+    /**
+     * Account for a row received from the given partition, either skipping it or returning it.
+     *
+     * @return the row, or null if it had to be skipped
+     */
+    private T accept(PartitionState state, Object msg) {
+        T next = null;
+        if (ordered ? offset > 0 : state.skip > 0) {
+            // We still have to ignore 'offset' messages
+            if (ordered)
+                offset--;
+            else
+                state.skip--;
+            state.consumed++;
+            state.readTotal++;
+        } else {
+            // We are returning a message
+            next = (T) msg;
+            state.consumed++;
+            state.readTotal++;
+            // Check the limit
+            if (limit > 0) {
+                limit--;
+                if (limit == 0) {
+                    stopAllStreams();
+                }
+            }
+        }
+
+        if (state.consumed > batchSize) {
+            if (LOG.isTraceEnabled())
+                LOG.trace("Writing CONT");
+            state.channel.writeAndFlush(new StreamProtocol.Continue());
+            state.consumed -= batchSize;
+        }
+        return next;
+    }
+
+    private void skipped(PartitionState state, StreamProtocol.Skipped skipped) {
+        if (ordered)
+            offset -= skipped.skipped;
+        else
+            state.skip -= skipped.skipped;
+        state.readTotal += skipped.skipped;
+    }
+
+    private void startBatch(PartitionState state, StreamProtocol.Batch msg) {
+        batch = msg.rows;
+        batchPosition = 0;
+        batchState = state;
+    }
+
+    private boolean hasBatchedRows() {
+        // Once stopped, the rest of the batch is no longer needed
+        return batch != null && batchPosition < batch.length && !stopped;
+    }
+
+    private Object nextBatchedRow() {
+        Object row = batch[batchPosition];
+        batch[batchPosition++] = null;
+        if (batchPosition == batch.length) {
+            batch = null;
+            batchState = null;
+        }
+        return row;
+    }
+
+    /**
+     * Add a message to the queue of a partition. When unordered, also let the consumer know that partition has a
+     * message waiting.
+     */
+    private void offer(PartitionState state, Object msg) {
+        state.messages.add(msg);
+        if (!ordered) {
+            ready.add(state);
+        }
+    }
+
+    /**
+     * Unordered mode: deliver a control message to the consumer through a partition of its own, so it's seen even if
+     * no partition has connected yet.
+     */
+    private void wakeUp(Object msg) {
+        PartitionState ps = new PartitionState(-1, 0);
+        ps.initialized = true;
+        offer(ps, msg);
+    }
+
     private void clearCurrentQueue() {
         PartitionState ps = partitionStateMap.remove(currentQueue);
         if (ps != null && ps.channel != null)
@@ -267,11 +446,16 @@ public class StreamListener<T> extends ChannelInboundHandlerAdapter implements I
         for (Channel channel : partitionMap.keySet()) {
             channel.writeAndFlush(new StreamProtocol.RequestClose());
         }
-        // create fake queue with finish message so the next call to next() returns null
-        currentQueue = (int) numPartitions + 1;
-        PartitionState ps = new PartitionState(currentQueue, 0);
-        ps.messages.add(SENTINEL);
-        partitionStateMap.putIfAbsent(currentQueue, ps);
+        if (ordered) {
+            // create fake queue with finish message so the next call to next() returns null
+            currentQueue = (int) numPartitions + 1;
+            PartitionState ps = new PartitionState(currentQueue, 0);
+            ps.messages.add(SENTINEL);
+            partitionStateMap.putIfAbsent(currentQueue, ps);
+        } else {
+            // wake up the consumer in case it's waiting for a message, it will see the stopped flag
+            wakeUp(SENTINEL);
+        }
         close();
     }
 
@@ -292,7 +476,7 @@ public class StreamListener<T> extends ChannelInboundHandlerAdapter implements I
         ps = old != null ? old : ps;
 
         if (failure != null) {
-            ps.messages.add(FAILURE);
+            offer(ps, FAILURE);
         }
         Channel previousChannel = ps.channel;
         if (previousChannel != null) {
@@ -303,7 +487,7 @@ public class StreamListener<T> extends ChannelInboundHandlerAdapter implements I
             partitionMap.put(channel, ps.next);
             partitionMap.remove(ps.channel); // don't accept more messages from this channel
             // this is a new connection from a retried task
-            ps.messages.add(RETRY);
+            offer(ps, RETRY);
         } else {
             partitionMap.put(channel, ps);
             ps.channel = channel;
@@ -374,10 +558,14 @@ public class StreamListener<T> extends ChannelInboundHandlerAdapter implements I
         failure = e;
 
         // Unblock iterator
-        for (PartitionState state : partitionStateMap.values()) {
-            if (state != null) {
-                state.messages.add(FAILURE);
+        if (ordered) {
+            for (PartitionState state : partitionStateMap.values()) {
+                if (state != null) {
+                    state.messages.add(FAILURE);
+                }
             }
+        } else {
+            wakeUp(FAILURE);
         }
     }
 }
@@ -388,6 +576,7 @@ class PartitionState {
     ArrayBlockingQueue<Object> messages;
     long consumed;
     long readTotal;
+    long skip; // rows still to be skipped from this partition, only used by unordered listeners
     boolean initialized;
     volatile PartitionState next = null; // used when a task is retried after a failure
 
@@ -403,6 +592,7 @@ class PartitionState {
                 ", channel=" + channel +
                 ", messages=" + messages.size() +
                 ", consumed=" + consumed +
+                ", skip=" + skip +
                 ", initialized=" + initialized +
                 ", next=" + next +
                 '}';
@@ -100,6 +100,26 @@ public class StreamProtocol implements Serializable {
         }
     }
 
+    /**
+     * Several rows sent in a single message, to be returned one by one in the given order
+     */
+    public static class Batch implements Serializable {
+        public Object[] rows;
+
+        public Batch() {}
+
+        public Batch(Object[] rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public String toString() {
+            return "Batch{" +
+                    "rows=" + rows.length +
+                    '}';
+        }
+    }
+
     public static class Continue implements Serializable {
     }
 
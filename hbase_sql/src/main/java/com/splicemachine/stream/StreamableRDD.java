@@ -46,6 +46,9 @@ public class StreamableRDD<T> {
     private final int clientBatches;
     private final UUID uuid;
     private final OperationContext<?> context;
+    private final int frameSize;
+    private final String compressionCodec;
+    private final boolean ordered;
 
 
     StreamableRDD(JavaRDD<T> rdd, UUID uuid, String clientHost, int clientPort) {
@@ -53,6 +56,17 @@ public class StreamableRDD<T> {
     }
 
     public StreamableRDD(JavaRDD<T> rdd, OperationContext<?> context, UUID uuid, String clientHost, int clientPort, int batches, int batchSize) {
+        this(rdd, context, uuid, clientHost, clientPort, batches, batchSize, 1, null, true);
+    }
+
+    /**
+     * @param frameSize the most rows each task sends in a single message
+     * @param compressionCodec the name of the codec used to compress those messages
+     * @param ordered if false, the client consumes partitions in any order, so partitions are submitted one by one
+     *                rather than in groups, and a slow partition doesn't keep the next ones from starting
+     */
+    public StreamableRDD(JavaRDD<T> rdd, OperationContext<?> context, UUID uuid, String clientHost, int clientPort,
+                         int batches, int batchSize, int frameSize, String compressionCodec, boolean ordered) {
         this.rdd = rdd;
         this.context = context;
         this.uuid = uuid;
@@ -62,14 +76,17 @@ public class StreamableRDD<T> {
         completionService = new ExecutorCompletionService<>(executor);
         this.clientBatchSize = batchSize;
         this.clientBatches = batches;
+        this.frameSize = frameSize;
+        this.compressionCodec = compressionCodec;
+        this.ordered = ordered;
     }
 
     public void submit() throws Exception {
         Exception error = null;
         try {
-            final JavaRDD<String> streamed = rdd.mapPartitionsWithIndex(new ResultStreamer(context, uuid, host, port, rdd.getNumPartitions(), clientBatches, clientBatchSize), true);
+            final JavaRDD<String> streamed = rdd.mapPartitionsWithIndex(new ResultStreamer(context, uuid, host, port, rdd.getNumPartitions(), clientBatches, clientBatchSize, frameSize, compressionCodec), true);
             int numPartitions = streamed.getNumPartitions();
-            int partitionsBatchSize = PARALLEL_PARTITIONS / 2;
+            int partitionsBatchSize = ordered ? PARALLEL_PARTITIONS / 2 : 1;
             int partitionBatches = numPartitions / partitionsBatchSize;
             if (numPartitions % partitionsBatchSize > 0)
                 partitionBatches++;
@@ -79,12 +96,14 @@ public class StreamableRDD<T> {
 
             Properties properties = SpliceSpark.getContext().sc().getLocalProperties();
 
-            submitBatch(0, partitionsBatchSize, numPartitions, streamed, properties);
-            if (partitionBatches > 1)
-                submitBatch(1, partitionsBatchSize, numPartitions, streamed, properties);
+            int submitted = 0;
+            int initialBatches = PARALLEL_PARTITIONS / partitionsBatchSize;
+            while (submitted < initialBatches && submitted < partitionBatches) {
+                submitBatch(submitted, partitionsBatchSize, numPartitions, streamed, properties);
+                submitted++;
+            }
 
             int received = 0;
-            int submitted = 2;
             while (received < partitionBatches && error == null) {
                 Future<Object> resultFuture = null;
                 try {
@@ -15,6 +15,7 @@
 
 package com.splicemachine.stream.handlers;
 
+import com.splicemachine.pipeline.client.PipelineCompressionCodec;
 import com.splicemachine.stream.KryoDecoder;
 import com.splicemachine.stream.KryoEncoder;
 import io.netty.channel.ChannelHandler;
@@ -35,16 +36,26 @@ import io.netty.channel.socket.SocketChannel;
 public class OpenHandler extends ChannelInitializer<SocketChannel> {
 
     private ChannelInboundHandlerAdapter listener;
+    private PipelineCompressionCodec codec;
 
     public OpenHandler(ChannelInboundHandlerAdapter listener) {
+        this(listener, PipelineCompressionCodec.NONE);
+    }
+
+    /**
+     * @param codec the codec used to compress outgoing messages. Incoming messages are decompressed with whichever
+     *              codec the other side used.
+     */
+    public OpenHandler(ChannelInboundHandlerAdapter listener, PipelineCompressionCodec codec) {
         this.listener = listener;
+        this.codec = codec;
     }
 
     @Override
     public void initChannel(SocketChannel ch) throws Exception {
 
         ch.pipeline().addLast(
-                new KryoEncoder(),
+                new KryoEncoder(codec),
                 new KryoDecoder(),
                 listener);
     }
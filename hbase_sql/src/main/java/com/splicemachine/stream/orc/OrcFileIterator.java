@@ -0,0 +1,265 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.stream.orc;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.services.io.StoredFormatIds;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.store.access.Qualifier;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.Orderable;
+import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
+import com.splicemachine.stream.ExternalFileIterator;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.common.type.HiveChar;
+import org.apache.hadoop.hive.common.type.HiveDecimal;
+import org.apache.hadoop.hive.common.type.HiveVarchar;
+import org.apache.hadoop.hive.ql.io.orc.OrcFile;
+import org.apache.hadoop.hive.ql.io.orc.OrcProto;
+import org.apache.hadoop.hive.ql.io.orc.Reader;
+import org.apache.hadoop.hive.ql.io.orc.RecordReader;
+import org.apache.hadoop.hive.ql.io.sarg.SearchArgument;
+import org.apache.hadoop.hive.ql.io.sarg.SearchArgumentFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.StructField;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the rows of ORC files directly with the ORC reader.
+ * <p/>
+ * Only the projected columns are included in the read, and the qualifiers which can be expressed as a
+ * {@link SearchArgument} are handed to the reader, so that row groups whose statistics rule out every
+ * qualifying row are skipped.
+ */
+public class OrcFileIterator extends ExternalFileIterator{
+    private RecordReader rows;
+    private StructObjectInspector inspector;
+    private StructField[] fields;
+    private Object row;
+
+    public OrcFileIterator(List<Path> files,
+                           Configuration conf,
+                           int[] baseColumnMap,
+                           Qualifier[][] qualifiers,
+                           DataValueDescriptor probeValue,
+                           ExecRow template,
+                           SpliceOperation op){
+        super(files,conf,baseColumnMap,qualifiers,probeValue,template,op);
+    }
+
+    @Override
+    protected void openFile(Path file) throws IOException{
+        Reader reader=OrcFile.createReader(file,OrcFile.readerOptions(conf));
+        List<OrcProto.Type> types=reader.getTypes();
+        OrcProto.Type root=types.get(0);
+        int numFileColumns=root.getSubtypesCount();
+
+        inspector=(StructObjectInspector)reader.getObjectInspector();
+        List<? extends StructField> allFields=inspector.getAllStructFieldRefs();
+        fields=new StructField[columns.length];
+        boolean[] include=new boolean[types.size()];
+        include[0]=true;
+        for(int i=0;i<columns.length;i++){
+            if(columns[i]>=numFileColumns)
+                throw new IOException("File "+file+" has no column at position "+columns[i]);
+            fields[i]=allFields.get(columns[i]);
+            if(fields[i].getFieldObjectInspector().getCategory()!=ObjectInspector.Category.PRIMITIVE)
+                throw new IOException("Unsupported type for column "+fields[i].getFieldName()+" in file "+file);
+            include[root.getSubtypes(columns[i])]=true;
+        }
+
+        Reader.Options options=new Reader.Options().include(include);
+        SearchArgument sarg=qualifiers==null?null:buildSearchArgument(types,root);
+        if(sarg!=null){
+            //the reader looks the columns of the search argument up by type id
+            String[] columnNames=new String[types.size()];
+            for(int i=0;i<numFileColumns;i++){
+                columnNames[root.getSubtypes(i)]=root.getFieldNames(i);
+            }
+            options.searchArgument(sarg,columnNames);
+        }
+        rows=reader.rowsOptions(options);
+        row=null;
+    }
+
+    @Override
+    protected boolean readRow(Object[] values) throws IOException{
+        if(!rows.hasNext()) return false;
+        row=rows.next(row);
+        for(int i=0;i<columns.length;i++){
+            Object data=inspector.getStructFieldData(row,fields[i]);
+            values[i]=data==null?null:
+                    toJavaObject(((PrimitiveObjectInspector)fields[i].getFieldObjectInspector()).getPrimitiveJavaObject(data));
+        }
+        return true;
+    }
+
+    @Override
+    protected void closeFile() throws IOException{
+        RecordReader r=rows;
+        rows=null;
+        row=null;
+        if(r!=null)
+            r.close();
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+
+    /*
+     * Convert the Hive specific types to the Java objects Spark would have produced.
+     */
+    private static Object toJavaObject(Object value){
+        if(value instanceof HiveDecimal)
+            return ((HiveDecimal)value).bigDecimalValue();
+        if(value instanceof HiveVarchar)
+            return ((HiveVarchar)value).getValue();
+        if(value instanceof HiveChar)
+            return ((HiveChar)value).getValue();
+        return value;
+    }
+
+    /*
+     * The conjunction of the qualifiers which can be evaluated against the ORC statistics. Terms of the AND list
+     * which cannot be converted are dropped, as are OR lists containing such a term, so that the search argument is
+     * never stricter than the qualifiers themselves.
+     */
+    SearchArgument buildSearchArgument(List<OrcProto.Type> types,OrcProto.Type root) throws IOException{
+        try{
+            List<Leaf> andLeaves=new ArrayList<>(qualifiers[0].length);
+            for(int i=0;i<qualifiers[0].length;i++){
+                Leaf leaf=toLeaf(qualifiers[0][i],i==0,types,root);
+                if(leaf!=null)
+                    andLeaves.add(leaf);
+            }
+            List<List<Leaf>> orLeaves=new ArrayList<>(qualifiers.length);
+            for(int andIdx=1;andIdx<qualifiers.length;andIdx++){
+                List<Leaf> or=new ArrayList<>(qualifiers[andIdx].length);
+                for(Qualifier q:qualifiers[andIdx]){
+                    Leaf leaf=toLeaf(q,false,types,root);
+                    if(leaf==null){
+                        or=null;
+                        break;
+                    }
+                    or.add(leaf);
+                }
+                if(or!=null && !or.isEmpty())
+                    orLeaves.add(or);
+            }
+            if(andLeaves.isEmpty() && orLeaves.isEmpty()) return null;
+
+            SearchArgument.Builder builder=SearchArgumentFactory.newBuilder().startAnd();
+            for(Leaf leaf:andLeaves){
+                leaf.addTo(builder);
+            }
+            for(List<Leaf> or:orLeaves){
+                builder.startOr();
+                for(Leaf leaf:or){
+                    leaf.addTo(builder);
+                }
+                builder.end();
+            }
+            return builder.end().build();
+        }catch(StandardException se){
+            throw new IOException(se);
+        }
+    }
+
+    private Leaf toLeaf(Qualifier q,boolean first,List<OrcProto.Type> types,OrcProto.Type root) throws StandardException{
+        int operator=q.getOperator();
+        if(operator<Orderable.ORDER_OP_LESSTHAN || operator>Orderable.ORDER_OP_GREATEROREQUALS) return null;
+        if(!canPushDown(q,root.getSubtypesCount())) return null;
+        DataValueDescriptor value=getQualifierValue(q,first);
+        if(value==null) return null;
+
+        int position=q.getStoragePosition();
+        Object literal;
+        switch(types.get(root.getSubtypes(position)).getKind()){
+            case BYTE:
+            case SHORT:
+            case INT:
+            case LONG:
+                if(!isIntegral(value)) return null;
+                literal=value.getLong();
+                break;
+            case FLOAT:
+                if(value.getTypeFormatId()!=StoredFormatIds.SQL_REAL_ID) return null;
+                literal=value.getDouble();
+                break;
+            case DOUBLE:
+                if(!isExactDouble(value)) return null;
+                literal=value.getDouble();
+                break;
+            case STRING:
+                if(value.getTypeFormatId()!=StoredFormatIds.SQL_VARCHAR_ID) return null;
+                literal=value.getString();
+                break;
+            default:
+                return null;
+        }
+        return new Leaf(root.getFieldNames(position),operator,q.negateCompareResult(),literal);
+    }
+
+    /**
+     * A single comparison of the search argument.
+     */
+    private static class Leaf{
+        private final String column;
+        private final int operator;
+        private final boolean negate;
+        private final Object literal;
+
+        Leaf(String column,int operator,boolean negate,Object literal){
+            this.column=column;
+            this.operator=operator;
+            this.negate=negate;
+            this.literal=literal;
+        }
+
+        void addTo(SearchArgument.Builder builder){
+            switch(operator){
+                case Orderable.ORDER_OP_LESSTHAN:
+                    if(negate) builder.startNot().lessThan(column,literal).end();
+                    else builder.lessThan(column,literal);
+                    break;
+                case Orderable.ORDER_OP_LESSOREQUALS:
+                    if(negate) builder.startNot().lessThanEquals(column,literal).end();
+                    else builder.lessThanEquals(column,literal);
+                    break;
+                case Orderable.ORDER_OP_GREATERTHAN:
+                    if(negate) builder.lessThanEquals(column,literal);
+                    else builder.startNot().lessThanEquals(column,literal).end();
+                    break;
+                case Orderable.ORDER_OP_GREATEROREQUALS:
+                    if(negate) builder.lessThan(column,literal);
+                    else builder.startNot().lessThan(column,literal).end();
+                    break;
+                case Orderable.ORDER_OP_EQUALS:
+                    if(negate) builder.startNot().equals(column,literal).end();
+                    else builder.equals(column,literal);
+                    break;
+                default:
+                    throw new IllegalStateException("Unexpected operator "+operator);
+            }
+        }
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.stream.parquet;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.services.io.StoredFormatIds;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.store.access.Qualifier;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.Orderable;
+import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
+import com.splicemachine.stream.ExternalFileIterator;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.filter2.compat.FilterCompat;
+import org.apache.parquet.filter2.predicate.FilterApi;
+import org.apache.parquet.filter2.predicate.FilterPredicate;
+import org.apache.parquet.filter2.predicate.Operators;
+import org.apache.parquet.format.converter.ParquetMetadataConverter;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.ParquetReader;
+import org.apache.parquet.hadoop.api.ReadSupport;
+import org.apache.parquet.hadoop.example.GroupReadSupport;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.OriginalType;
+import org.apache.parquet.schema.PrimitiveType;
+import org.apache.parquet.schema.Type;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the rows of Parquet files directly with the Parquet library.
+ * <p/>
+ * Only the projected columns are requested from the reader, and the qualifiers which can be expressed as a
+ * Parquet {@link FilterPredicate} are handed to it, so that row groups whose statistics rule out every
+ * qualifying row are not read at all.
+ */
+public class ParquetFileIterator extends ExternalFileIterator{
+    private static final long JULIAN_DAY_OF_EPOCH=2440588L;
+    private static final long SECONDS_PER_DAY=86400L;
+    private static final long NANOS_PER_SECOND=1000000000L;
+
+    private ParquetReader<Group> reader;
+    private PrimitiveType[] types;
+
+    public ParquetFileIterator(List<Path> files,
+                               Configuration conf,
+                               int[] baseColumnMap,
+                               Qualifier[][] qualifiers,
+                               DataValueDescriptor probeValue,
+                               ExecRow template,
+                               SpliceOperation op){
+        super(files,conf,baseColumnMap,qualifiers,probeValue,template,op);
+    }
+
+    @Override
+    protected void openFile(Path file) throws IOException{
+        MessageType fileSchema=ParquetFileReader.readFooter(conf,file,ParquetMetadataConverter.NO_FILTER)
+                .getFileMetaData().getSchema();
+        List<Type> projection=new ArrayList<>(columns.length);
+        types=new PrimitiveType[columns.length];
+        for(int i=0;i<columns.length;i++){
+            if(columns[i]>=fileSchema.getFieldCount())
+                throw new IOException("File "+file+" has no column at position "+columns[i]);
+            Type type=fileSchema.getType(columns[i]);
+            if(!type.isPrimitive() || type.isRepetition(Type.Repetition.REPEATED))
+                throw new IOException("Unsupported type for column "+type.getName()+" in file "+file);
+            projection.add(type);
+            types[i]=type.asPrimitiveType();
+        }
+        if(projection.isEmpty() && fileSchema.getFieldCount()>0){
+            //nothing needs decoding, but a column still has to be read to know how many rows there are
+            projection.add(fileSchema.getType(0));
+        }
+
+        Configuration fileConf=new Configuration(conf);
+        fileConf.set(ReadSupport.PARQUET_READ_SCHEMA,new MessageType(fileSchema.getName(),projection).toString());
+        ParquetReader.Builder<Group> builder=ParquetReader.builder(new GroupReadSupport(),file).withConf(fileConf);
+        FilterPredicate predicate=qualifiers==null?null:buildPredicate(fileSchema);
+        if(predicate!=null)
+            builder=builder.withFilter(FilterCompat.get(predicate));
+        reader=builder.build();
+    }
+
+    @Override
+    protected boolean readRow(Object[] values) throws IOException{
+        Group group=reader.read();
+        if(group==null) return false;
+        for(int i=0;i<columns.length;i++){
+            values[i]=group.getFieldRepetitionCount(i)==0?null:getValue(group,i,types[i]);
+        }
+        return true;
+    }
+
+    @Override
+    protected void closeFile() throws IOException{
+        ParquetReader<Group> r=reader;
+        reader=null;
+        if(r!=null)
+            r.close();
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+
+    /*
+     * Convert a value to the Java object Spark uses for the same Parquet type.
+     */
+    private static Object getValue(Group group,int field,PrimitiveType type){
+        OriginalType originalType=type.getOriginalType();
+        switch(type.getPrimitiveTypeName()){
+            case BOOLEAN:
+                return group.getBoolean(field,0);
+            case INT32:
+                int intValue=group.getInteger(field,0);
+                if(originalType==null) return intValue;
+                switch(originalType){
+                    case INT_8:
+                        return (byte)intValue;
+                    case INT_16:
+                        return (short)intValue;
+                    case DATE:
+                        return Date.valueOf(LocalDate.ofEpochDay(intValue));
+                    case DECIMAL:
+                        return BigDecimal.valueOf(intValue,type.getDecimalMetadata().getScale());
+                    default:
+                        return intValue;
+                }
+            case INT64:
+                long longValue=group.getLong(field,0);
+                if(originalType==OriginalType.DECIMAL)
+                    return BigDecimal.valueOf(longValue,type.getDecimalMetadata().getScale());
+                if(originalType==OriginalType.TIMESTAMP_MILLIS)
+                    return new Timestamp(longValue);
+                return longValue;
+            case INT96:
+                return toTimestamp(group.getInt96(field,0));
+            case FLOAT:
+                return group.getFloat(field,0);
+            case DOUBLE:
+                return group.getDouble(field,0);
+            case BINARY:
+            case FIXED_LEN_BYTE_ARRAY:
+                Binary binary=group.getBinary(field,0);
+                if(originalType==OriginalType.DECIMAL)
+                    return new BigDecimal(new BigInteger(binary.getBytes()),type.getDecimalMetadata().getScale());
+                if(originalType==OriginalType.UTF8 || originalType==OriginalType.ENUM || originalType==OriginalType.JSON)
+                    return binary.toStringUsingUTF8();
+                return binary.getBytes();
+            default:
+                throw new IllegalStateException("Unexpected Parquet type "+type.getPrimitiveTypeName());
+        }
+    }
+
+    /*
+     * An INT96 timestamp holds the nanoseconds within the day, followed by the Julian day, both little-endian.
+     */
+    private static Timestamp toTimestamp(Binary int96){
+        ByteBuffer buffer=ByteBuffer.wrap(int96.getBytes()).order(ByteOrder.LITTLE_ENDIAN);
+        long nanosOfDay=buffer.getLong();
+        long julianDay=buffer.getInt();
+        long seconds=(julianDay-JULIAN_DAY_OF_EPOCH)*SECONDS_PER_DAY+nanosOfDay/NANOS_PER_SECOND;
+        Timestamp timestamp=new Timestamp(seconds*1000);
+        timestamp.setNanos((int)(nanosOfDay%NANOS_PER_SECOND));
+        return timestamp;
+    }
+
+    /*
+     * The conjunction of the qualifiers which can be evaluated by Parquet. Terms of the AND list which cannot be
+     * converted are dropped, as are OR lists containing such a term, so that the predicate is never stricter than
+     * the qualifiers themselves.
+     */
+    FilterPredicate buildPredicate(MessageType fileSchema) throws IOException{
+        try{
+            FilterPredicate predicate=null;
+            for(int i=0;i<qualifiers[0].length;i++){
+                FilterPredicate term=toPredicate(qualifiers[0][i],i==0,fileSchema);
+                if(term!=null)
+                    predicate=predicate==null?term:FilterApi.and(predicate,term);
+            }
+            for(int andIdx=1;andIdx<qualifiers.length;andIdx++){
+                FilterPredicate orPredicate=null;
+                for(Qualifier q:qualifiers[andIdx]){
+                    FilterPredicate term=toPredicate(q,false,fileSchema);
+                    if(term==null){
+                        orPredicate=null;
+                        break;
+                    }
+                    orPredicate=orPredicate==null?term:FilterApi.or(orPredicate,term);
+                }
+                if(orPredicate!=null)
+                    predicate=predicate==null?orPredicate:FilterApi.and(predicate,orPredicate);
+            }
+            return predicate;
+        }catch(StandardException se){
+            throw new IOException(se);
+        }
+    }
+
+    private FilterPredicate toPredicate(Qualifier q,boolean first,MessageType fileSchema) throws StandardException{
+        if(!canPushDown(q,fileSchema.getFieldCount())) return null;
+        Type type=fileSchema.getType(q.getStoragePosition());
+        //column paths are split on dots
+        if(!type.isPrimitive() || type.isRepetition(Type.Repetition.REPEATED) || type.getName().indexOf('.')>=0)
+            return null;
+        DataValueDescriptor value=getQualifierValue(q,first);
+        if(value==null) return null;
+
+        String name=type.getName();
+        OriginalType originalType=type.getOriginalType();
+        switch(type.asPrimitiveType().getPrimitiveTypeName()){
+            case INT32:
+                if(originalType!=null && originalType!=OriginalType.INT_8
+                        && originalType!=OriginalType.INT_16 && originalType!=OriginalType.INT_32)
+                    return null;
+                if(!isIntegral(value)) return null;
+                long l=value.getLong();
+                if(l<Integer.MIN_VALUE || l>Integer.MAX_VALUE) return null;
+                return compare(FilterApi.intColumn(name),Integer.valueOf((int)l),q);
+            case INT64:
+                if(originalType!=null && originalType!=OriginalType.INT_64) return null;
+                if(!isIntegral(value)) return null;
+                return compare(FilterApi.longColumn(name),Long.valueOf(value.getLong()),q);
+            case DOUBLE:
+                if(!isExactDouble(value)) return null;
+                return compare(FilterApi.doubleColumn(name),Double.valueOf(value.getDouble()),q);
+            case FLOAT:
+                if(value.getTypeFormatId()!=StoredFormatIds.SQL_REAL_ID) return null;
+                return compare(FilterApi.floatColumn(name),Float.valueOf(value.getFloat()),q);
+            default:
+                //the statistics of binary columns cannot be trusted in files written by older Parquet versions
+                return null;
+        }
+    }
+
+    private static <T extends Comparable<T>,C extends Operators.Column<T> & Operators.SupportsLtGt> FilterPredicate compare(C column,T value,Qualifier q){
+        boolean negate=q.negateCompareResult();
+        switch(q.getOperator()){
+            case Orderable.ORDER_OP_LESSTHAN:
+                return negate?FilterApi.gtEq(column,value):FilterApi.lt(column,value);
+            case Orderable.ORDER_OP_LESSOREQUALS:
+                return negate?FilterApi.gt(column,value):FilterApi.ltEq(column,value);
+            case Orderable.ORDER_OP_GREATERTHAN:
+                return negate?FilterApi.ltEq(column,value):FilterApi.gt(column,value);
+            case Orderable.ORDER_OP_GREATEROREQUALS:
+                return negate?FilterApi.lt(column,value):FilterApi.gtEq(column,value);
+            case Orderable.ORDER_OP_EQUALS:
+                return negate?FilterApi.notEq(column,value):FilterApi.eq(column,value);
+            default:
+                return null;
+        }
+    }
+}
@@ -442,6 +442,59 @@ public class ExternalTableIT extends SpliceUnitTest{
         Assert.assertEquals("",TestUtils.FormattedResult.ResultFactory.toString(rs));
     }
 
+    @Test
+    public void testControlAndSparkReadsMatchParquet() throws Exception {
+        assertControlAndSparkReadsMatch("control_spark_parquet", "STORED AS PARQUET");
+    }
+
+    @Test
+    public void testControlAndSparkReadsMatchORC() throws Exception {
+        assertControlAndSparkReadsMatch("control_spark_orc", "COMPRESSED WITH ZLIB STORED AS ORC");
+    }
+
+    private void assertControlAndSparkReadsMatch(String table, String storedAs) throws Exception {
+        methodWatcher.executeUpdate(String.format("create external table %s (col1 int, col2 bigint, col3 double, " +
+                "col4 decimal(12,3), col5 varchar(24), col6 date, col7 timestamp) %s LOCATION '%s'",
+                table, storedAs, getExternalResourceDirectory()+table));
+        int insertCount = methodWatcher.executeUpdate(String.format("insert into %s values " +
+                "(1, 10, 1.5, 1.125, 'a', '2016-01-01', '2016-01-01 01:02:03.123456')," +
+                "(2, 20, 2.5, -2.250, 'b', '2016-01-02', '2016-01-02 00:00:00')," +
+                "(3, 30, 3.5, 123456789.001, 'c', '2016-01-03', '2016-01-03 23:59:59.999')," +
+                "(4, null, null, null, null, null, null)," +
+                "(null, 50, 5.5, 5, 'e', '2016-01-05', '2016-01-05 12:00:00')", table));
+        Assert.assertEquals("insertCount is wrong",5,insertCount);
+
+        String[] predicates = {
+                "",
+                "where col1 > 2",
+                "where col1 <> 3",
+                "where col1 in (1, 4)",
+                "where col1 is null",
+                "where col2 <= 20 or col3 > 3.0",
+                "where not (col2 < 30)",
+                "where col3 = 2.5",
+                "where col4 between -3 and 2",
+                "where col5 = 'b'",
+                "where col6 >= date('2016-01-02')",
+                "where col7 < timestamp('2016-01-03 00:00:00')"
+        };
+        for (String predicate : predicates) {
+            String control;
+            try (ResultSet rs = methodWatcher.executeQuery(String.format("select * from %s " +
+                    "--splice-properties useSpark=false\n %s order by col1", table, predicate))) {
+                control = TestUtils.FormattedResult.ResultFactory.toString(rs);
+            }
+            String spark;
+            try (ResultSet rs = methodWatcher.executeQuery(String.format("select * from %s " +
+                    "--splice-properties useSpark=true\n %s order by col1", table, predicate))) {
+                spark = TestUtils.FormattedResult.ResultFactory.toString(rs);
+            }
+            Assert.assertEquals("Different results for '"+predicate+"'", spark, control);
+            if (predicate.isEmpty())
+                Assert.assertFalse("No rows read", control.isEmpty());
+        }
+    }
+
 
     @Test
     public void testCannotAlterExternalTable() throws Exception {
@@ -0,0 +1,291 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.stream.orc;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.store.access.Qualifier;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.Orderable;
+import com.splicemachine.db.iapi.types.SQLChar;
+import com.splicemachine.db.iapi.types.SQLDecimal;
+import com.splicemachine.db.iapi.types.SQLDouble;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import com.splicemachine.db.iapi.types.SQLReal;
+import com.splicemachine.db.iapi.types.SQLVarchar;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.common.type.HiveDecimal;
+import org.apache.hadoop.hive.ql.io.orc.OrcFile;
+import org.apache.hadoop.hive.ql.io.orc.OrcProto;
+import org.apache.hadoop.hive.ql.io.orc.Writer;
+import org.apache.hadoop.hive.ql.io.sarg.SearchArgument;
+import org.apache.hadoop.hive.ql.io.sarg.SearchArgumentFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for the conversion of scan qualifiers into ORC search arguments, and of ORC values into the objects
+ * Spark would have produced for them.
+ */
+@Category(ArchitectureIndependent.class)
+public class OrcFileIteratorTest{
+    private static final String[] NAMES={"i","l","d","f","s","dec","v","n"};
+    private static final OrcProto.Type.Kind[] KINDS={
+            OrcProto.Type.Kind.INT,
+            OrcProto.Type.Kind.LONG,
+            OrcProto.Type.Kind.DOUBLE,
+            OrcProto.Type.Kind.FLOAT,
+            OrcProto.Type.Kind.STRING,
+            OrcProto.Type.Kind.DECIMAL,
+            OrcProto.Type.Kind.VARCHAR,
+            OrcProto.Type.Kind.INT
+    };
+    private static final int[] ALL_COLUMNS={0,1,2,3,4,5,6,-1};
+
+    @Rule
+    public TemporaryFolder temporaryFolder=new TemporaryFolder();
+
+    @Test
+    public void operatorsAreConverted() throws Exception{
+        Qualifier[][] qualifiers={{
+                qualifier(0,Orderable.ORDER_OP_LESSTHAN,false,new SQLInteger(5)),
+                qualifier(1,Orderable.ORDER_OP_LESSOREQUALS,false,new SQLLongint(7)),
+                qualifier(2,Orderable.ORDER_OP_GREATERTHAN,false,new SQLDouble(1.5)),
+                qualifier(3,Orderable.ORDER_OP_GREATEROREQUALS,false,new SQLReal(2.5f)),
+                qualifier(4,Orderable.ORDER_OP_EQUALS,false,new SQLVarchar("a"))
+        }};
+        SearchArgument expected=SearchArgumentFactory.newBuilder().startAnd()
+                .lessThan("i",5L)
+                .lessThanEquals("l",7L)
+                .startNot().lessThanEquals("d",1.5d).end()
+                .startNot().lessThan("f",2.5d).end()
+                .equals("s","a")
+                .end().build();
+        assertSameArgument(expected,buildSearchArgument(qualifiers,null));
+    }
+
+    @Test
+    public void negatedOperatorsAreInverted() throws Exception{
+        Qualifier[][] qualifiers={{
+                qualifier(0,Orderable.ORDER_OP_LESSTHAN,true,new SQLInteger(5)),
+                qualifier(0,Orderable.ORDER_OP_LESSOREQUALS,true,new SQLInteger(6)),
+                qualifier(1,Orderable.ORDER_OP_GREATERTHAN,true,new SQLLongint(7)),
+                qualifier(1,Orderable.ORDER_OP_GREATEROREQUALS,true,new SQLLongint(8)),
+                qualifier(2,Orderable.ORDER_OP_EQUALS,true,new SQLDouble(1.5))
+        }};
+        SearchArgument expected=SearchArgumentFactory.newBuilder().startAnd()
+                .startNot().lessThan("i",5L).end()
+                .startNot().lessThanEquals("i",6L).end()
+                .lessThanEquals("l",7L)
+                .lessThan("l",8L)
+                .startNot().equals("d",1.5d).end()
+                .end().build();
+        assertSameArgument(expected,buildSearchArgument(qualifiers,null));
+    }
+
+    @Test
+    public void nonConvertibleAndTermsAreDropped() throws Exception{
+        Qualifier variant=qualifier(0,Orderable.ORDER_OP_EQUALS,false,new SQLInteger(1));
+        when(variant.getVariantType()).thenReturn(Qualifier.VARIANT);
+        Qualifier orderedNulls=qualifier(0,Orderable.ORDER_OP_EQUALS,false,new SQLInteger(1));
+        when(orderedNulls.getOrderedNulls()).thenReturn(true);
+        Qualifier[][] qualifiers={{
+                qualifier(0,Orderable.ORDER_OP_EQUALS,false,new SQLInteger(1)),
+                variant,
+                orderedNulls,
+                //decimal and varchar columns are never pushed
+                qualifier(5,Orderable.ORDER_OP_EQUALS,false,new SQLDecimal(new BigDecimal("1.5"))),
+                qualifier(6,Orderable.ORDER_OP_EQUALS,false,new SQLVarchar("a")),
+                //nor columns which are not read
+                qualifier(7,Orderable.ORDER_OP_EQUALS,false,new SQLInteger(1)),
+                //nor values which do not fit the type of the column
+                qualifier(0,Orderable.ORDER_OP_EQUALS,false,new SQLVarchar("1")),
+                qualifier(2,Orderable.ORDER_OP_EQUALS,false,new SQLLongint(1L<<60)),
+                qualifier(3,Orderable.ORDER_OP_EQUALS,false,new SQLDouble(0.1)),
+                //CHAR values are padded, the strings of the file are not
+                qualifier(4,Orderable.ORDER_OP_EQUALS,false,new SQLChar("a")),
+                qualifier(1,Orderable.ORDER_OP_LESSTHAN,false,new SQLLongint(9))
+        }};
+        SearchArgument expected=SearchArgumentFactory.newBuilder().startAnd()
+                .equals("i",1L)
+                .lessThan("l",9L)
+                .end().build();
+        assertSameArgument(expected,buildSearchArgument(qualifiers,null));
+    }
+
+    @Test
+    public void orListsWithNonConvertibleTermsAreDropped() throws Exception{
+        Qualifier[][] qualifiers={
+                {qualifier(0,Orderable.ORDER_OP_LESSOREQUALS,true,new SQLInteger(1))},
+                {qualifier(0,Orderable.ORDER_OP_EQUALS,false,new SQLInteger(2)),
+                        qualifier(6,Orderable.ORDER_OP_EQUALS,false,new SQLVarchar("b"))},
+                {qualifier(1,Orderable.ORDER_OP_EQUALS,false,new SQLLongint(3)),
+                        qualifier(1,Orderable.ORDER_OP_EQUALS,false,new SQLLongint(4))}
+        };
+        SearchArgument expected=SearchArgumentFactory.newBuilder().startAnd()
+                .startNot().lessThanEquals("i",1L).end()
+                .startOr().equals("l",3L).equals("l",4L).end()
+                .end().build();
+        assertSameArgument(expected,buildSearchArgument(qualifiers,null));
+    }
+
+    @Test
+    public void unsupportedOperatorsAreNotPushed() throws Exception{
+        Qualifier[][] qualifiers={{
+                qualifier(0,Orderable.ORDER_OP_EQUALS+100,false,new SQLInteger(1))
+        }};
+        Assert.assertNull(buildSearchArgument(qualifiers,null));
+    }
+
+    @Test
+    public void nullValuesAreNotPushed() throws Exception{
+        Qualifier[][] qualifiers={{
+                qualifier(0,Orderable.ORDER_OP_EQUALS,false,new SQLInteger()),
+                qualifier(1,Orderable.ORDER_OP_EQUALS,false,null)
+        }};
+        Assert.assertNull(buildSearchArgument(qualifiers,null));
+    }
+
+    @Test
+    public void probeValueReplacesTheFirstQualifierOnly() throws Exception{
+        Qualifier[][] qualifiers={{
+                qualifier(0,Orderable.ORDER_OP_EQUALS,false,new SQLInteger(1)),
+                qualifier(0,Orderable.ORDER_OP_LESSTHAN,false,new SQLInteger(10))
+        }};
+        SearchArgument expected=SearchArgumentFactory.newBuilder().startAnd()
+                .equals("i",4L)
+                .lessThan("i",10L)
+                .end().build();
+        assertSameArgument(expected,buildSearchArgument(qualifiers,new SQLInteger(4)));
+    }
+
+    @Test
+    public void nullProbeValuesAreNotPushed() throws Exception{
+        Qualifier[][] qualifiers={{
+                qualifier(0,Orderable.ORDER_OP_EQUALS,false,new SQLInteger(1)),
+                qualifier(0,Orderable.ORDER_OP_LESSTHAN,false,new SQLInteger(10))
+        }};
+        SearchArgument expected=SearchArgumentFactory.newBuilder().startAnd()
+                .lessThan("i",10L)
+                .end().build();
+        assertSameArgument(expected,buildSearchArgument(qualifiers,new SQLInteger()));
+    }
+
+    @Test
+    public void valuesAreConvertedTheWaySparkConvertsThem() throws Exception{
+        Timestamp timestamp=Timestamp.valueOf("2016-07-18 01:02:03.000000123");
+        Path file=new Path(temporaryFolder.getRoot().getAbsolutePath(),"values.orc");
+        ObjectInspector inspector=ObjectInspectorFactory.getReflectionObjectInspector(Values.class,
+                ObjectInspectorFactory.ObjectInspectorOptions.JAVA);
+        Writer writer=OrcFile.createWriter(file,OrcFile.writerOptions(new Configuration()).inspector(inspector));
+        try{
+            writer.addRow(new Values(timestamp,HiveDecimal.create(new BigDecimal("-12345678901234567.891")),
+                    Date.valueOf("2016-07-18"),"not read",42L));
+            writer.addRow(new Values(null,null,null,null,null));
+        }finally{
+            writer.close();
+        }
+
+        //the string column is not read
+        OrcFileIterator iterator=new OrcFileIterator(Collections.<Path>emptyList(),new Configuration(),
+                new int[]{0,1,2,-1,3},null,null,null,null);
+        iterator.openFile(file);
+        try{
+            Object[] values=new Object[4];
+            Assert.assertTrue("The first row is missing",iterator.readRow(values));
+            Assert.assertEquals(timestamp,values[0]);
+            Assert.assertTrue("Expected a BigDecimal, not "+values[1],values[1] instanceof BigDecimal);
+            Assert.assertEquals(0,new BigDecimal("-12345678901234567.891").compareTo((BigDecimal)values[1]));
+            Assert.assertEquals(Date.valueOf("2016-07-18"),values[2]);
+            Assert.assertEquals(42L,values[3]);
+
+            Assert.assertTrue("The second row is missing",iterator.readRow(values));
+            for(Object value:values){
+                Assert.assertNull(value);
+            }
+            Assert.assertFalse("Too many rows",iterator.readRow(values));
+        }finally{
+            iterator.closeFile();
+        }
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static SearchArgument buildSearchArgument(Qualifier[][] qualifiers,DataValueDescriptor probeValue) throws Exception{
+        OrcProto.Type.Builder root=OrcProto.Type.newBuilder().setKind(OrcProto.Type.Kind.STRUCT);
+        List<OrcProto.Type> types=new ArrayList<>(NAMES.length+1);
+        types.add(null);
+        for(int i=0;i<NAMES.length;i++){
+            root.addSubtypes(i+1).addFieldNames(NAMES[i]);
+            types.add(OrcProto.Type.newBuilder().setKind(KINDS[i]).build());
+        }
+        types.set(0,root.build());
+
+        OrcFileIterator iterator=new OrcFileIterator(Collections.<Path>emptyList(),new Configuration(),
+                ALL_COLUMNS,qualifiers,probeValue,null,null);
+        return iterator.buildSearchArgument(types,types.get(0));
+    }
+
+    private static void assertSameArgument(SearchArgument expected,SearchArgument actual){
+        Assert.assertNotNull("No search argument was built",actual);
+        Assert.assertEquals(expected.toString(),actual.toString());
+    }
+
+    private static Qualifier qualifier(int position,int operator,boolean negate,DataValueDescriptor value) throws StandardException{
+        Qualifier q=mock(Qualifier.class);
+        when(q.getStoragePosition()).thenReturn(position);
+        when(q.getOperator()).thenReturn(operator);
+        when(q.negateCompareResult()).thenReturn(negate);
+        when(q.getOrderedNulls()).thenReturn(false);
+        when(q.getVariantType()).thenReturn(Qualifier.CONSTANT);
+        when(q.getOrderable()).thenReturn(value);
+        return q;
+    }
+
+    @SuppressWarnings("unused")
+    static class Values{
+        final Timestamp ts;
+        final HiveDecimal dec;
+        final Date dt;
+        final String s;
+        final Long n;
+
+        Values(Timestamp ts,HiveDecimal dec,Date dt,String s,Long n){
+            this.ts=ts;
+            this.dec=dec;
+            this.dt=dt;
+            this.s=s;
+            this.n=n;
+        }
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.stream.parquet;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.store.access.Qualifier;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.Orderable;
+import com.splicemachine.db.iapi.types.SQLDouble;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import com.splicemachine.db.iapi.types.SQLReal;
+import com.splicemachine.db.iapi.types.SQLVarchar;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.example.data.simple.SimpleGroupFactory;
+import org.apache.parquet.filter2.predicate.FilterApi;
+import org.apache.parquet.filter2.predicate.FilterPredicate;
+import org.apache.parquet.filter2.predicate.Operators;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.example.GroupWriteSupport;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.MessageTypeParser;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.Collections;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for the conversion of scan qualifiers into Parquet predicates, and of Parquet values into the objects
+ * Spark would have produced for them.
+ */
+@Category(ArchitectureIndependent.class)
+public class ParquetFileIteratorTest{
+    private static final MessageType SCHEMA=MessageTypeParser.parseMessageType("message t {" +
+            "optional int32 i; " +
+            "optional int64 l; " +
+            "optional double d; " +
+            "optional float f; " +
+            "optional binary s (UTF8); " +
+            "optional int32 dt (DATE); " +
+            "optional int32 n; }");
+    private static final int[] ALL_COLUMNS={0,1,2,3,4,5,-1};
+
+    private static final Operators.IntColumn I=FilterApi.intColumn("i");
+    private static final Operators.LongColumn L=FilterApi.longColumn("l");
+    private static final Operators.DoubleColumn D=FilterApi.doubleColumn("d");
+    private static final Operators.FloatColumn F=FilterApi.floatColumn("f");
+
+    @Rule
+    public TemporaryFolder temporaryFolder=new TemporaryFolder();
+
+    @Test
+    public void operatorsAreConverted() throws Exception{
+        Qualifier[][] qualifiers={{
+                qualifier(0,Orderable.ORDER_OP_LESSTHAN,false,new SQLInteger(5)),
+                qualifier(1,Orderable.ORDER_OP_LESSOREQUALS,false,new SQLLongint(7)),
+                qualifier(2,Orderable.ORDER_OP_GREATERTHAN,false,new SQLDouble(1.5)),
+                qualifier(3,Orderable.ORDER_OP_GREATEROREQUALS,false,new SQLReal(2.5f)),
+                qualifier(0,Orderable.ORDER_OP_EQUALS,false,new SQLInteger(3))
+        }};
+        FilterPredicate expected=FilterApi.and(FilterApi.and(FilterApi.and(FilterApi.and(
+                FilterApi.lt(I,5),
+                FilterApi.ltEq(L,7L)),
+                FilterApi.gt(D,1.5d)),
+                FilterApi.gtEq(F,2.5f)),
+                FilterApi.eq(I,3));
+        Assert.assertEquals(expected,buildPredicate(qualifiers,null));
+    }
+
+    @Test
+    public void negatedOperatorsAreInverted() throws Exception{
+        Qualifier[][] qualifiers={{
+                qualifier(0,Orderable.ORDER_OP_LESSTHAN,true,new SQLInteger(5)),
+                qualifier(0,Orderable.ORDER_OP_LESSOREQUALS,true,new SQLInteger(6)),
+                qualifier(1,Orderable.ORDER_OP_GREATERTHAN,true,new SQLLongint(7)),
+                qualifier(1,Orderable.ORDER_OP_GREATEROREQUALS,true,new SQLLongint(8)),
+                qualifier(2,Orderable.ORDER_OP_EQUALS,true,new SQLDouble(1.5))
+        }};
+        FilterPredicate expected=FilterApi.and(FilterApi.and(FilterApi.and(FilterApi.and(
+                FilterApi.gtEq(I,5),
+                FilterApi.gt(I,6)),
+                FilterApi.ltEq(L,7L)),
+                FilterApi.lt(L,8L)),
+                FilterApi.notEq(D,1.5d));
+        Assert.assertEquals(expected,buildPredicate(qualifiers,null));
+    }
+
+    @Test
+    public void nonConvertibleAndTermsAreDropped() throws Exception{
+        Qualifier variant=qualifier(0,Orderable.ORDER_OP_EQUALS,false,new SQLInteger(1));
+        when(variant.getVariantType()).thenReturn(Qualifier.VARIANT);
+        Qualifier orderedNulls=qualifier(0,Orderable.ORDER_OP_EQUALS,false,new SQLInteger(1));
+        when(orderedNulls.getOrderedNulls()).thenReturn(true);
+        Qualifier[][] qualifiers={{
+                qualifier(0,Orderable.ORDER_OP_EQUALS,false,new SQLInteger(1)),
+                variant,
+                orderedNulls,
+                //binary columns are never pushed
+                qualifier(4,Orderable.ORDER_OP_EQUALS,false,new SQLVarchar("a")),
+                //neither are dates
+                qualifier(5,Orderable.ORDER_OP_EQUALS,false,new SQLInteger(1)),
+                //nor columns which are not read
+                qualifier(6,Orderable.ORDER_OP_EQUALS,false,new SQLInteger(1)),
+                //nor values which do not fit the type of the column
+                qualifier(0,Orderable.ORDER_OP_EQUALS,false,new SQLLongint(Long.MAX_VALUE)),
+                qualifier(0,Orderable.ORDER_OP_EQUALS,false,new SQLVarchar("1")),
+                qualifier(2,Orderable.ORDER_OP_EQUALS,false,new SQLLongint(1L<<60)),
+                qualifier(3,Orderable.ORDER_OP_EQUALS,false,new SQLDouble(0.1)),
+                qualifier(1,Orderable.ORDER_OP_LESSTHAN,false,new SQLLongint(9))
+        }};
+        FilterPredicate expected=FilterApi.and(FilterApi.eq(I,1),FilterApi.lt(L,9L));
+        Assert.assertEquals(expected,buildPredicate(qualifiers,null));
+    }
+
+    @Test
+    public void orListsWithNonConvertibleTermsAreDropped() throws Exception{
+        Qualifier[][] qualifiers={
+                {qualifier(0,Orderable.ORDER_OP_GREATERTHAN,false,new SQLInteger(1))},
+                {qualifier(0,Orderable.ORDER_OP_EQUALS,false,new SQLInteger(2)),
+                        qualifier(4,Orderable.ORDER_OP_EQUALS,false,new SQLVarchar("b"))},
+                {qualifier(1,Orderable.ORDER_OP_EQUALS,false,new SQLLongint(3)),
+                        qualifier(1,Orderable.ORDER_OP_EQUALS,false,new SQLLongint(4))}
+        };
+        FilterPredicate expected=FilterApi.and(FilterApi.gt(I,1),
+                FilterApi.or(FilterApi.eq(L,3L),FilterApi.eq(L,4L)));
+        Assert.assertEquals(expected,buildPredicate(qualifiers,null));
+    }
+
+    @Test
+    public void orListsAloneArePushed() throws Exception{
+        Qualifier[][] qualifiers={
+                {},
+                {qualifier(0,Orderable.ORDER_OP_EQUALS,false,new SQLInteger(2)),
+                        qualifier(0,Orderable.ORDER_OP_EQUALS,false,new SQLInteger(5))}
+        };
+        FilterPredicate expected=FilterApi.or(FilterApi.eq(I,2),FilterApi.eq(I,5));
+        Assert.assertEquals(expected,buildPredicate(qualifiers,null));
+    }
+
+    @Test
+    public void nullValuesAreNotPushed() throws Exception{
+        Qualifier[][] qualifiers={{
+                qualifier(0,Orderable.ORDER_OP_EQUALS,false,new SQLInteger()),
+                qualifier(1,Orderable.ORDER_OP_EQUALS,false,null)
+        }};
+        Assert.assertNull(buildPredicate(qualifiers,null));
+    }
+
+    @Test
+    public void probeValueReplacesTheFirstQualifierOnly() throws Exception{
+        Qualifier[][] qualifiers={{
+                qualifier(0,Orderable.ORDER_OP_EQUALS,false,new SQLInteger(1)),
+                qualifier(0,Orderable.ORDER_OP_LESSTHAN,false,new SQLInteger(10))
+        }};
+        FilterPredicate expected=FilterApi.and(FilterApi.eq(I,4),FilterApi.lt(I,10));
+        Assert.assertEquals(expected,buildPredicate(qualifiers,new SQLInteger(4)));
+    }
+
+    @Test
+    public void nullProbeValuesAreNotPushed() throws Exception{
+        Qualifier[][] qualifiers={{
+                qualifier(0,Orderable.ORDER_OP_EQUALS,false,new SQLInteger(1)),
+                qualifier(0,Orderable.ORDER_OP_LESSTHAN,false,new SQLInteger(10))
+        }};
+        FilterPredicate expected=FilterApi.lt(I,10);
+        Assert.assertEquals(expected,buildPredicate(qualifiers,new SQLInteger()));
+    }
+
+    @Test
+    public void valuesAreConvertedTheWaySparkConvertsThem() throws Exception{
+        MessageType schema=MessageTypeParser.parseMessageType("message t {" +
+                "optional int96 ts; " +
+                "optional int32 dec32 (DECIMAL(5,2)); " +
+                "optional int64 dec64 (DECIMAL(15,3)); " +
+                "optional fixed_len_byte_array(9) decfixed (DECIMAL(20,4)); " +
+                "optional binary decbin (DECIMAL(20,4)); " +
+                "optional int32 dt (DATE); " +
+                "optional binary s (UTF8); " +
+                "optional int32 n; }");
+        BigDecimal fixed=new BigDecimal("1234567890123456.7891");
+        BigDecimal binary=new BigDecimal("-1234567890123456.7891");
+
+        Path file=new Path(temporaryFolder.getRoot().getAbsolutePath(),"values.parquet");
+        Configuration conf=new Configuration();
+        GroupWriteSupport.setSchema(schema,conf);
+        SimpleGroupFactory groups=new SimpleGroupFactory(schema);
+        try(ParquetWriter<Group> writer=new ParquetWriter<>(file,conf,new GroupWriteSupport())){
+            Group group=groups.newGroup()
+                    //one hour and 123 nanoseconds into the day after the epoch
+                    .append("ts",int96(2440589,3600L*1000000000L+123))
+                    .append("dec32",-12345)
+                    .append("dec64",123456789012345L)
+                    .append("decfixed",Binary.fromByteArray(fixed.unscaledValue().toByteArray()))
+                    .append("decbin",Binary.fromByteArray(binary.unscaledValue().toByteArray()))
+                    .append("dt",17000)
+                    .append("s","not read")
+                    .append("n",42);
+            writer.write(group);
+            //a row of nulls
+            writer.write(groups.newGroup());
+        }
+
+        //the string column is not read
+        ParquetFileIterator iterator=new ParquetFileIterator(Collections.<Path>emptyList(),new Configuration(),
+                new int[]{0,1,2,3,4,5,-1,6},null,null,null,null);
+        iterator.openFile(file);
+        try{
+            Object[] values=new Object[7];
+            Assert.assertTrue("The first row is missing",iterator.readRow(values));
+            Timestamp expected=new Timestamp((86400L+3600L)*1000L);
+            expected.setNanos(123);
+            Assert.assertEquals(expected,values[0]);
+            Assert.assertEquals(new BigDecimal("-123.45"),values[1]);
+            Assert.assertEquals(new BigDecimal("123456789012.345"),values[2]);
+            Assert.assertEquals(fixed,values[3]);
+            Assert.assertEquals(binary,values[4]);
+            Assert.assertEquals(Date.valueOf("2016-07-18"),values[5]);
+            Assert.assertEquals(42,values[6]);
+
+            Assert.assertTrue("The second row is missing",iterator.readRow(values));
+            for(Object value:values){
+                Assert.assertNull(value);
+            }
+            Assert.assertFalse("Too many rows",iterator.readRow(values));
+        }finally{
+            iterator.closeFile();
+        }
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static FilterPredicate buildPredicate(Qualifier[][] qualifiers,DataValueDescriptor probeValue) throws Exception{
+        ParquetFileIterator iterator=new ParquetFileIterator(Collections.<Path>emptyList(),new Configuration(),
+                ALL_COLUMNS,qualifiers,probeValue,null,null);
+        return iterator.buildPredicate(SCHEMA);
+    }
+
+    private static Qualifier qualifier(int position,int operator,boolean negate,DataValueDescriptor value) throws StandardException{
+        Qualifier q=mock(Qualifier.class);
+        when(q.getStoragePosition()).thenReturn(position);
+        when(q.getOperator()).thenReturn(operator);
+        when(q.negateCompareResult()).thenReturn(negate);
+        when(q.getOrderedNulls()).thenReturn(false);
+        when(q.getVariantType()).thenReturn(Qualifier.CONSTANT);
+        when(q.getOrderable()).thenReturn(value);
+        return q;
+    }
+
+    private static Binary int96(int julianDay,long nanosOfDay){
+        ByteBuffer buffer=ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putLong(nanosOfDay).putInt(julianDay);
+        return Binary.fromByteArray(buffer.array());
+    }
+}
@@ -85,6 +85,11 @@ public class ClientPartition extends SkeletonHBaseClientPartition{
         return table.get(get);
     }
 
+    @Override
+    protected Result[] doGet(List<Get> gets) throws IOException{
+        return table.get(gets);
+    }
+
     @Override
     protected ResultScanner getScanner(Scan scan) throws IOException{
         return table.getScanner(scan);
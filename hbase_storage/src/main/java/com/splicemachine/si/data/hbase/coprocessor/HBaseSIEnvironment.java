@@ -29,7 +29,10 @@ import com.splicemachine.access.HConfiguration;
 import com.splicemachine.access.api.DistributedFileSystem;
 import com.splicemachine.access.api.PartitionFactory;
 import com.splicemachine.access.api.SConfiguration;
+import com.splicemachine.access.configuration.SIConfigurations;
 import com.splicemachine.concurrent.Clock;
+import com.splicemachine.concurrent.SystemClock;
+import com.splicemachine.hbase.ZkUtils;
 import com.splicemachine.si.api.data.ExceptionFactory;
 import com.splicemachine.si.api.data.OperationFactory;
 import com.splicemachine.si.api.data.OperationStatusFactory;
@@ -48,6 +51,7 @@ import com.splicemachine.si.impl.SimpleTxnOperationFactory;
 import com.splicemachine.si.impl.TxnNetworkLayerFactory;
 import com.splicemachine.si.impl.driver.SIDriver;
 import com.splicemachine.si.impl.driver.SIEnvironment;
+import com.splicemachine.si.impl.hlc.HLCTimestampSource;
 import com.splicemachine.si.impl.readresolve.SynchronousReadResolver;
 import com.splicemachine.si.impl.rollforward.NoopRollForward;
 import com.splicemachine.si.impl.store.CompletedTxnCacheSupplier;
@@ -126,7 +130,7 @@ public class HBaseSIEnvironment implements SIEnvironment{
         ByteComparisons.setComparator(HBaseComparator.INSTANCE);
         this.config=HConfiguration.getConfiguration();
 
-        this.timestampSource =new ZkTimestampSource(config,rzk);
+        this.timestampSource =newTimestampSource(config,rzk);
         this.partitionCache = PartitionCacheService.loadPartitionCache(config);
         this.partitionFactory =TableFactoryService.loadTableFactory(clock, this.config,partitionCache);
         TxnNetworkLayerFactory txnNetworkLayerFactory= TableFactoryService.loadTxnNetworkLayer(this.config);
@@ -245,4 +249,24 @@ public class HBaseSIEnvironment implements SIEnvironment{
     public SnowflakeFactory snowflakeFactory() {
         return snowflakeFactory;
     }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static TimestampSource newTimestampSource(SConfiguration config,RecoverableZooKeeper rzk) throws IOException{
+        TimestampSource oracle=new ZkTimestampSource(config,rzk);
+        if(!SIConfigurations.HLC_TIMESTAMP_SOURCE.equals(config.getTimestampSource()))
+            return oracle;
+        /*
+         * The snowflake sequence is unique among the live servers, which is just what the clock needs to keep
+         * the timestamps of different servers apart. The timestamp server is left to remember the minimum active
+         * timestamp.
+         */
+        short nodeId;
+        try{
+            nodeId=ZkUtils.assignSnowFlakeSequence();
+        }catch(Exception e){
+            throw new IOException("Unable to assign a node id to the transaction clock",e);
+        }
+        return new HLCTimestampSource(SystemClock.INSTANCE,nodeId,config.getMaxClockSkew(),oracle);
+    }
 }
@@ -236,6 +236,8 @@ public class CoprocessorTxnStore implements TxnStore {
 //            service.getTransaction(controller,request,done);
 //            dealWithError(controller);
             TxnMessage.Txn messageTxn=table.getTxn(rowKey,request);
+            if(messageTxn.hasCommitTs())
+                timestampSource.observeTimestamp(messageTxn.getCommitTs());
             return decode(messageTxn);
         } catch(Throwable throwable){
             throw new IOException(throwable);
@@ -31,11 +31,14 @@ import org.apache.hadoop.hbase.NotServingRegionException;
 import org.apache.hadoop.hbase.RegionTooBusyException;
 import org.apache.hadoop.hbase.client.Delete;
 import org.apache.hadoop.hbase.client.Durability;
+import org.apache.hadoop.hbase.client.Mutation;
 import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.log4j.Logger;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
 
 /**
  * Read-Resolver which resolves elements synchronously on the calling thread.
@@ -79,16 +82,22 @@ public class SynchronousReadResolver implements KeyedReadResolver{
     }
 
     public boolean resolve(Partition region,ByteSlice rowKey,long txnId,TxnSupplier supplier,RollForwardStatus status,boolean failOnError,TrafficControl trafficControl){
+        return resolve(region,Collections.singletonList(rowKey),txnId,supplier,status,failOnError,trafficControl)>0;
+    }
+
+    @Override
+    public int resolve(Partition region,Collection<ByteSlice> rowKeys,long txnId,TxnSupplier supplier,RollForwardStatus status,boolean failOnError,TrafficControl trafficControl){
+        int numRows=rowKeys.size();
         try{
             TxnView transaction=supplier.getTransaction(txnId);
             boolean resolved=false;
             if(transaction.getEffectiveState()==Txn.State.ROLLEDBACK){
-                trafficControl.acquire(1);
+                trafficControl.acquire(numRows);
                 try{
-                    SynchronousReadResolver.INSTANCE.resolveRolledback(region,rowKey,txnId,failOnError);
+                    SynchronousReadResolver.INSTANCE.resolveRolledback(region,rowKeys,txnId,failOnError);
                     resolved=true;
                 }finally{
-                    trafficControl.release(1);
+                    trafficControl.release(numRows);
                 }
             }else{
                 TxnView t=transaction;
@@ -96,79 +105,92 @@ public class SynchronousReadResolver implements KeyedReadResolver{
                     t=t.getParentTxnView();
                 }
                 if(t==Txn.ROOT_TRANSACTION){
-                    trafficControl.acquire(1);
+                    trafficControl.acquire(numRows);
                     try{
-                        SynchronousReadResolver.INSTANCE.resolveCommitted(region,rowKey,txnId,transaction.getEffectiveCommitTimestamp(),failOnError);
+                        SynchronousReadResolver.INSTANCE.resolveCommitted(region,rowKeys,txnId,transaction.getEffectiveCommitTimestamp(),failOnError);
                         resolved=true;
                     }finally{
-                        trafficControl.release(1);
+                        trafficControl.release(numRows);
                     }
                 }
             }
-            status.rowResolved();
-            return resolved;
+            for(int i=0;i<numRows;i++){
+                status.rowResolved();
+            }
+            return resolved?numRows:0;
         }catch(IOException e){
             LOG.info("Unable to fetch transaction for id "+txnId+", will not resolve",e);
             if(failOnError)
                 throw new RuntimeException(e);
-            return false;
+            return 0;
         }catch(InterruptedException e){
             LOG.debug("Interrupted which performing read resolution, will not resolve");
             Thread.currentThread().interrupt();
-            return false;
+            return 0;
         }
     }
 
     /******************************************************************************************************************/
     /*private helper methods */
-    private void resolveCommitted(Partition region,ByteSlice rowKey,long txnId,long commitTimestamp,boolean failOnError){
+    private void resolveCommitted(Partition region,Collection<ByteSlice> rowKeys,long txnId,long commitTimestamp,boolean failOnError){
         assert region instanceof RegionPartition: "Not on a region!";
         /*
-         * Resolve the row as committed directly.
+         * Resolve the rows as committed directly.
          *
-         * This does a Put to the row, bypassing SI and the WAL, so it should be pretty low impact
+         * This does a Put to each row, bypassing SI and the WAL, so it should be pretty low impact
          */
         if(DISABLED_ROLLFORWARD || region.isClosed() || region.isClosing())
             return; //do nothing if we are closing or rollforward is disabled
 
-        Put put=new Put(rowKey.getByteCopy());
-        put.add(SIConstants.DEFAULT_FAMILY_BYTES,
-                SIConstants.SNAPSHOT_ISOLATION_COMMIT_TIMESTAMP_COLUMN_BYTES,txnId,
-                Bytes.toBytes(commitTimestamp));
-        put.setAttribute(SIConstants.SI_EXEMPT,SIConstants.TRUE_BYTES);
-        put.setAttribute(SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_NAME,SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_VALUE);
-        put.setDurability(Durability.SKIP_WAL);
+        byte[] commitTimestampBytes=Bytes.toBytes(commitTimestamp);
+        Mutation[] puts=new Mutation[rowKeys.size()];
+        int i=0;
+        for(ByteSlice rowKey:rowKeys){
+            Put put=new Put(rowKey.getByteCopy());
+            put.add(SIConstants.DEFAULT_FAMILY_BYTES,
+                    SIConstants.SNAPSHOT_ISOLATION_COMMIT_TIMESTAMP_COLUMN_BYTES,txnId,
+                    commitTimestampBytes);
+            put.setAttribute(SIConstants.SI_EXEMPT,SIConstants.TRUE_BYTES);
+            put.setAttribute(SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_NAME,SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_VALUE);
+            put.setDurability(Durability.SKIP_WAL);
+            puts[i++]=put;
+        }
         try{
-            ((RegionPartition)region).unwrapDelegate().put(put);
+            ((RegionPartition)region).unwrapDelegate().batchMutate(puts);
         }catch(IOException e){
             if(!(e instanceof RegionTooBusyException) && !(e instanceof NotServingRegionException)){
-                LOG.info("Exception encountered when attempting to resolve a row as committed",e);
+                LOG.info("Exception encountered when attempting to resolve rows as committed",e);
                 if(failOnError)
                     throw new RuntimeException(e);
             }
         }
     }
 
-    private void resolveRolledback(Partition region,ByteSlice rowKey,long txnId,boolean failOnError){
+    private void resolveRolledback(Partition region,Collection<ByteSlice> rowKeys,long txnId,boolean failOnError){
         assert region instanceof RegionPartition: "Not on a region!";
         /*
-         * Resolve the row as rolled back directly.
+         * Resolve the rows as rolled back directly.
          *
-         * This does a Delete to the row, bypassing SI and the WAL, so it should be pretty low impact
+         * This does a Delete to each row, bypassing SI and the WAL, so it should be pretty low impact
          */
         if(DISABLED_ROLLFORWARD || region.isClosed() || region.isClosing())
             return; //do nothing if we are closing
 
-        Delete delete=new Delete(rowKey.getByteCopy(),txnId)
-                .deleteColumn(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.PACKED_COLUMN_BYTES,txnId) //delete all the columns for our family only
-                .deleteColumn(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.SNAPSHOT_ISOLATION_TOMBSTONE_COLUMN_BYTES,txnId) //delete all the columns for our family only
-                .deleteColumn(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.SNAPSHOT_ISOLATION_ANTI_TOMBSTONE_VALUE_BYTES,txnId); //delete all the columns for our family only
-        delete.setDurability(Durability.SKIP_WAL);
-        delete.setAttribute(SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_NAME,SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_VALUE);
+        Mutation[] deletes=new Mutation[rowKeys.size()];
+        int i=0;
+        for(ByteSlice rowKey:rowKeys){
+            Delete delete=new Delete(rowKey.getByteCopy(),txnId)
+                    .deleteColumn(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.PACKED_COLUMN_BYTES,txnId) //delete all the columns for our family only
+                    .deleteColumn(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.SNAPSHOT_ISOLATION_TOMBSTONE_COLUMN_BYTES,txnId) //delete all the columns for our family only
+                    .deleteColumn(SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.SNAPSHOT_ISOLATION_ANTI_TOMBSTONE_VALUE_BYTES,txnId); //delete all the columns for our family only
+            delete.setDurability(Durability.SKIP_WAL);
+            delete.setAttribute(SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_NAME,SIConstants.SUPPRESS_INDEXING_ATTRIBUTE_VALUE);
+            deletes[i++]=delete;
+        }
         try{
-            ((RegionPartition)region).unwrapDelegate().delete(delete);
+            ((RegionPartition)region).unwrapDelegate().batchMutate(deletes);
         }catch(IOException ioe){
-            LOG.info("Exception encountered when attempting to resolve a row as rolled back",ioe);
+            LOG.info("Exception encountered when attempting to resolve rows as rolled back",ioe);
             if(failOnError)
                 throw new RuntimeException(ioe);
         }
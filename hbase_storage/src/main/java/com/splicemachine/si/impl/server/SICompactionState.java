@@ -33,6 +33,7 @@ import org.apache.hadoop.hbase.KeyValue;
 import org.apache.log4j.Logger;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.SortedSet;
 import java.util.TreeSet;
@@ -42,17 +43,24 @@ import java.util.TreeSet;
  * guts for SICompactionScanner.
  * <p/>
  * It is handed key-values and can change them.
+ * <p/>
+ * The transactions of a row are looked up in the background (see {@link CompactionTxnLookup}) before the row is
+ * processed. Data written by a transaction which could not be looked up in time is left as it is, to be resolved
+ * later.
  */
 public class SICompactionState {
     private static final Logger LOG = Logger.getLogger(SICompactionState.class);
     private final TxnSupplier transactionStore;
+    private final CompactionTxnLookup txnLookup;
     private SortedSet<Cell> dataToReturn;
+    private final List<CellType> cellTypes=new ArrayList<>();
     private final RollForward rollForward;
     private ByteSlice rowSlice = new ByteSlice();
 
     public SICompactionState(TxnSupplier transactionStore,RollForward rollForward,int activeTransactionCacheSize) {
         this.rollForward = rollForward;
         this.transactionStore = new ActiveTxnCacheSupplier(transactionStore,activeTransactionCacheSize);
+        this.txnLookup = CompactionTxnLookup.newLookup(this.transactionStore,transactionStore);
         this.dataToReturn  =new TreeSet<>(KeyValue.COMPARATOR);
     }
 
@@ -64,8 +72,31 @@ public class SICompactionState {
      */
     public void mutate(List<Cell> rawList, List<Cell> results) throws IOException {
         dataToReturn.clear();
+        cellTypes.clear();
         for (Cell aRawList : rawList) {
-            mutate(aRawList);
+            CellType cellType = getKeyValueType(aRawList);
+            cellTypes.add(cellType);
+            switch (cellType) {
+                case COMMIT_TIMESTAMP:
+                    /*
+                     * Older versions of SI code would put an "SI Fail" element in the commit timestamp
+                     * field when a row has been rolled back. While newer versions will just outright delete the entry,
+                     * we still need to deal with entries which are in the old form. As time goes on, this should
+                     * be less and less frequent, but you still have to check
+                     */
+                    ensureTransactionCached(aRawList.getTimestamp(),aRawList);
+                    break;
+                case TOMBSTONE:
+                case ANTI_TOMBSTONE:
+                case USER_DATA:
+                    txnLookup.prefetch(aRawList.getTimestamp());
+                    break;
+                default:
+            }
+        }
+        txnLookup.awaitPrefetched();
+        for (int i = 0; i < rawList.size(); i++) {
+            mutate(rawList.get(i),cellTypes.get(i));
         }
         results.addAll(dataToReturn);
     }
@@ -73,18 +104,10 @@ public class SICompactionState {
     /**
      * Apply SI mutation logic to an individual key-value. Return the "new" key-value.
      */
-    private void mutate(Cell element) throws IOException {
-        final CellType cellType= getKeyValueType(element);
+    private void mutate(Cell element,CellType cellType) throws IOException {
         long timestamp = element.getTimestamp();
         switch (cellType) {
             case COMMIT_TIMESTAMP:
-                /*
-                 * Older versions of SI code would put an "SI Fail" element in the commit timestamp
-                 * field when a row has been rolled back. While newer versions will just outright delete the entry,
-                 * we still need to deal with entries which are in the old form. As time goes on, this should
-                 * be less and less frequent, but you still have to check
-                 */
-                ensureTransactionCached(timestamp,element);
                 dataToReturn.add(element);
                 return;
             case TOMBSTONE:
@@ -119,7 +142,14 @@ public class SICompactionState {
      * Replace unknown commit timestamps with actual commit times.
      */
     private boolean mutateCommitTimestamp(long timestamp,Cell element) throws IOException {
-        TxnView transaction = transactionStore.getTransaction(timestamp);
+        TxnView transaction = txnLookup.getTransaction(timestamp);
+        if(transaction==null){
+            /*
+             * We don't know the state of this transaction yet, so leave the element alone rather than wait
+             * on the transaction table any longer
+             */
+            return true;
+        }
         if(transaction.getEffectiveState()== Txn.State.ROLLEDBACK){
             /*
              * This transaction has been rolled back, so just remove the data
@@ -149,6 +149,15 @@ public class RegionPartition implements Partition{
         }
     }
 
+    @Override
+    public Iterator<DataResult> batchGet(List<DataGet> gets) throws IOException{
+        List<DataResult> results=new ArrayList<>(gets.size());
+        for(DataGet get : gets){
+            results.add(get(get,null));
+        }
+        return results.iterator();
+    }
+
     @Override
     public DataResult getFkCounter(byte[] key,DataResult previous) throws IOException{
         Get g=new Get(key);
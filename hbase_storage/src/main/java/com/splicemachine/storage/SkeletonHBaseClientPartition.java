@@ -53,6 +53,20 @@ public abstract class SkeletonHBaseClientPartition implements Partition{
         return previous;
     }
 
+    @Override
+    public Iterator<DataResult> batchGet(List<DataGet> gets) throws IOException{
+        List<Get> hGets=new ArrayList<>(gets.size());
+        for(DataGet get : gets){
+            assert get instanceof HGet : "Programmer Error: incorrect type for performing a Get!";
+            hGets.add(((HGet)get).unwrapDelegate());
+        }
+        Result[] results=doGet(hGets);
+        List<DataResult> dataResults=new ArrayList<>(results.length);
+        for(Result result : results){
+            dataResults.add(new HResult(result));
+        }
+        return dataResults.iterator();
+    }
 
     @Override
     public DataResult getFkCounter(byte[] key,DataResult previous) throws IOException{
@@ -203,6 +217,8 @@ public abstract class SkeletonHBaseClientPartition implements Partition{
 
     protected abstract Result doGet(Get get) throws IOException;
 
+    protected abstract Result[] doGet(List<Get> gets) throws IOException;
+
     protected abstract ResultScanner getScanner(Scan scan) throws IOException;
 
     protected abstract void doDelete(Delete delete) throws IOException;
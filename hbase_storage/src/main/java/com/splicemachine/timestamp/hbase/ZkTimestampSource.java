@@ -60,7 +60,8 @@ public class ZkTimestampSource implements TimestampSource {
 		    	LOG.info("Creating the TimestampClient...");
                 HBaseConnectionFactory hbcf = HBaseConnectionFactory.getInstance(config);
                 _tc = new TimestampClient(timeout,
-                        new HBaseTimestampHostProvider(hbcf,timestampPort));
+                        new HBaseTimestampHostProvider(hbcf,timestampPort),
+                        config.getTimestampClientMaxBatchSize());
     		}
     	}
     }
@@ -123,4 +124,14 @@ public class ZkTimestampSource implements TimestampSource {
             _tc = null;
         }
     }
+
+    @Override
+    public void observeTimestamp(long timestamp) {
+        // every timestamp comes from the timestamp server, so there is no clock to move forward
+    }
+
+    @Override
+    public void awaitCommit(long commitTimestamp) {
+        // the timestamp server has already handed out the commit timestamp, so nothing can be ordered before it
+    }
 }
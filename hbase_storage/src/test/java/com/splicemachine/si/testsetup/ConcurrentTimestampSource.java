@@ -47,4 +47,14 @@ public class ConcurrentTimestampSource implements TimestampSource{
      public void shutdown() {
 
      }
+
+     @Override
+     public void observeTimestamp(long timestamp) {
+
+     }
+
+     @Override
+     public void awaitCommit(long commitTimestamp) {
+
+     }
 }
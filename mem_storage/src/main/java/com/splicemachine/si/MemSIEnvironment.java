@@ -24,8 +24,10 @@ import com.splicemachine.access.api.SConfiguration;
 import com.splicemachine.access.api.SnowflakeFactory;
 import com.splicemachine.access.configuration.ConfigurationBuilder;
 import com.splicemachine.access.configuration.HConfigurationDefaultsList;
+import com.splicemachine.access.configuration.SIConfigurations;
 import com.splicemachine.concurrent.Clock;
 import com.splicemachine.concurrent.ConcurrentTicker;
+import com.splicemachine.concurrent.SystemClock;
 import com.splicemachine.si.api.data.ExceptionFactory;
 import com.splicemachine.si.api.data.OperationFactory;
 import com.splicemachine.si.api.data.OperationStatusFactory;
@@ -39,6 +41,7 @@ import com.splicemachine.si.impl.*;
 import com.splicemachine.si.impl.data.MExceptionFactory;
 import com.splicemachine.si.impl.driver.SIDriver;
 import com.splicemachine.si.impl.driver.SIEnvironment;
+import com.splicemachine.si.impl.hlc.HLCTimestampSource;
 import com.splicemachine.si.impl.rollforward.NoopRollForward;
 import com.splicemachine.storage.*;
 import com.splicemachine.timestamp.api.TimestampSource;
@@ -53,7 +56,7 @@ public class MemSIEnvironment implements SIEnvironment{
     public static volatile MemSIEnvironment INSTANCE;
     private final ExceptionFactory exceptionFactory = MExceptionFactory.INSTANCE;
     private final Clock clock;
-    private final TimestampSource tsSource = new MemTimestampSource();
+    private final TimestampSource tsSource;
     private final TxnStore txnStore;
     private final PartitionFactory tableFactory;
     private final DataFilterFactory filterFactory = MFilterFactory.INSTANCE;
@@ -75,8 +78,9 @@ public class MemSIEnvironment implements SIEnvironment{
 
     public MemSIEnvironment(PartitionFactory tableFactory,Clock clock){
         this.tableFactory = tableFactory;
-        this.txnStore = new MemTxnStore(clock,tsSource,exceptionFactory,1000);
         this.config=new ConfigurationBuilder().build(new HConfigurationDefaultsList(), new ReflectingConfigurationSource());
+        this.tsSource = newTimestampSource(config);
+        this.txnStore = new MemTxnStore(clock,tsSource,exceptionFactory,1000);
         this.opFactory = new MOperationFactory(clock);
         this.txnOpFactory = new SimpleTxnOperationFactory(exceptionFactory,opFactory);
         this.kaScheduler = new ManualKeepAliveScheduler(txnStore);
@@ -179,4 +183,14 @@ public class MemSIEnvironment implements SIEnvironment{
     public SnowflakeFactory snowflakeFactory() {
         return snowflakeFactory;
     }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static TimestampSource newTimestampSource(SConfiguration config){
+        TimestampSource counter=new MemTimestampSource();
+        if(!SIConfigurations.HLC_TIMESTAMP_SOURCE.equals(config.getTimestampSource()))
+            return counter;
+        //there is only the one node, and the counter is left to remember the minimum active timestamp
+        return new HLCTimestampSource(SystemClock.INSTANCE,0,config.getMaxClockSkew(),counter);
+    }
 }
@@ -21,32 +21,37 @@ import sun.reflect.generics.reflectiveObjects.NotImplementedException;
 import com.splicemachine.access.configuration.ConfigurationSource;
 
 /**
- * Mocked up ConfigurationSource for testing. You get what you give it.
+ * Mocked up ConfigurationSource for testing. You get what you give it, unless a system property
+ * of the same name says otherwise (e.g. {@code -Dsplice.txn.timestampSource=hlc}).
  */
 public class ReflectingConfigurationSource implements ConfigurationSource {
     @Override
     public int getInt(String key, int deflt) {
-        return deflt;
+        String value = System.getProperty(key);
+        return value == null ? deflt : Integer.parseInt(value);
     }
 
     @Override
     public long getLong(String key, long deflt) {
-        return deflt;
+        String value = System.getProperty(key);
+        return value == null ? deflt : Long.parseLong(value);
     }
 
     @Override
     public boolean getBoolean(String key, boolean deflt) {
-        return deflt;
+        String value = System.getProperty(key);
+        return value == null ? deflt : Boolean.parseBoolean(value);
     }
 
     @Override
     public String getString(String key, String deflt) {
-        return deflt;
+        return System.getProperty(key, deflt);
     }
 
     @Override
     public double getDouble(String key, double deflt) {
-        return deflt;
+        String value = System.getProperty(key);
+        return value == null ? deflt : Double.parseDouble(value);
     }
 
     @Override
@@ -30,6 +30,8 @@ import com.splicemachine.utils.TrafficControl;
 import org.apache.log4j.Logger;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
 
 /**
  * Read-Resolver which resolves elements synchronously on the calling thread.
@@ -73,16 +75,24 @@ public class MSynchronousReadResolver implements KeyedReadResolver{
     }
 
     public boolean resolve(Partition region,ByteSlice rowKey,long txnId,TxnSupplier supplier,RollForwardStatus status,boolean failOnError,TrafficControl trafficControl){
+        return resolve(region,Collections.singletonList(rowKey),txnId,supplier,status,failOnError,trafficControl)>0;
+    }
+
+    @Override
+    public int resolve(Partition region,Collection<ByteSlice> rowKeys,long txnId,TxnSupplier supplier,RollForwardStatus status,boolean failOnError,TrafficControl trafficControl){
+        int numRows=rowKeys.size();
         try{
             TxnView transaction=supplier.getTransaction(txnId);
             boolean resolved=false;
             if(transaction.getEffectiveState()==Txn.State.ROLLEDBACK){
-                trafficControl.acquire(1);
+                trafficControl.acquire(numRows);
                 try{
-                    MSynchronousReadResolver.INSTANCE.resolveRolledback(region,rowKey,txnId,failOnError);
+                    for(ByteSlice rowKey:rowKeys){
+                        MSynchronousReadResolver.INSTANCE.resolveRolledback(region,rowKey,txnId,failOnError);
+                    }
                     resolved=true;
                 }finally{
-                    trafficControl.release(1);
+                    trafficControl.release(numRows);
                 }
             }else{
                 TxnView t=transaction;
@@ -90,26 +100,30 @@ public class MSynchronousReadResolver implements KeyedReadResolver{
                     t=t.getParentTxnView();
                 }
                 if(t==Txn.ROOT_TRANSACTION){
-                    trafficControl.acquire(1);
+                    trafficControl.acquire(numRows);
                     try{
-                        MSynchronousReadResolver.INSTANCE.resolveCommitted(region,rowKey,txnId,transaction.getEffectiveCommitTimestamp(),failOnError);
+                        for(ByteSlice rowKey:rowKeys){
+                            MSynchronousReadResolver.INSTANCE.resolveCommitted(region,rowKey,txnId,transaction.getEffectiveCommitTimestamp(),failOnError);
+                        }
                         resolved=true;
                     }finally{
-                        trafficControl.release(1);
+                        trafficControl.release(numRows);
                     }
                 }
             }
-            status.rowResolved();
-            return resolved;
+            for(int i=0;i<numRows;i++){
+                status.rowResolved();
+            }
+            return resolved?numRows:0;
         }catch(IOException e){
             LOG.info("Unable to fetch transaction for id "+txnId+", will not resolve",e);
             if(failOnError)
                 throw new RuntimeException(e);
-            return false;
+            return 0;
         }catch(InterruptedException e){
             LOG.debug("Interrupted which performing read resolution, will not resolve");
             Thread.currentThread().interrupt();
-            return false;
+            return 0;
         }
     }
 
@@ -44,4 +44,14 @@ public class MemTimestampSource implements TimestampSource {
     public void shutdown() {
         
     }
+
+    @Override
+    public void observeTimestamp(long timestamp) {
+
+    }
+
+    @Override
+    public void awaitCommit(long commitTimestamp) {
+
+    }
 }
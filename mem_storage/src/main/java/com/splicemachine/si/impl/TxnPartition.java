@@ -101,6 +101,15 @@ public class TxnPartition implements Partition{
     }
 
 
+    @Override
+    public Iterator<DataResult> batchGet(List<DataGet> gets) throws IOException{
+        List<DataResult> results=new ArrayList<>(gets.size());
+        for(DataGet get : gets){
+            results.add(get(get,null));
+        }
+        return results.iterator();
+    }
+
     @Override
     public DataScanner openScanner(DataScan scan) throws IOException{
         return openScanner(scan,Metrics.noOpMetricFactory());
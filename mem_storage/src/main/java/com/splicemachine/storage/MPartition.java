@@ -117,6 +117,15 @@ public class MPartition implements Partition{
         throw new UnsupportedOperationException("IMPLEMENT");
     }
 
+    @Override
+    public Iterator<DataResult> batchGet(List<DataGet> gets) throws IOException{
+        List<DataResult> results=new ArrayList<>(gets.size());
+        for(DataGet get : gets){
+            results.add(get(get,null));
+        }
+        return results.iterator();
+    }
+
     @Override
     public DataResult getLatest(byte[] rowKey,byte[] family,DataResult previous) throws IOException{
         DataCell start=new MCell(rowKey,family,new byte[]{},Long.MAX_VALUE,new byte[]{},CellType.USER_DATA);
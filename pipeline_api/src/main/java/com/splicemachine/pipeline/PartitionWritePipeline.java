@@ -37,6 +37,7 @@ import com.splicemachine.storage.Partition;
 import java.io.IOException;
 import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * The entry/starting point for BulkWrites remotely (on the region server for the table they will mutate).
@@ -56,6 +57,7 @@ public class PartitionWritePipeline{
     private final PipelineMeter pipelineMeters;
     private final ServerControl rce;
     private final PipelineExceptionFactory exceptionFactory;
+    private final AtomicLong writeSequence=new AtomicLong();
 
     public PartitionWritePipeline(ServerControl rce,
                                   Partition region,
@@ -80,6 +82,23 @@ public class PartitionWritePipeline{
         txnRegion.close();
     }
 
+    /**
+     * Record that the data of this partition is about to change. This must be called <em>before</em> the
+     * change is applied, so that anything which read the partition while {@link #getWriteSequence()} stayed
+     * the same is known not to have missed it.
+     */
+    public void markWritten(){
+        writeSequence.incrementAndGet();
+    }
+
+    /**
+     * @return a counter which is increased every time the data of this partition is written through
+     * this pipeline (or by anything else which calls {@link #markWritten()}).
+     */
+    public long getWriteSequence(){
+        return writeSequence.get();
+    }
+
 
     public BulkWriteResult submitBulkWrite(TxnView txn,
                                            BulkWrite toWrite,
@@ -97,6 +116,7 @@ public class PartitionWritePipeline{
         if(region.isClosed() || region.isClosing()){
             return NOT_SERVING_REGION;
         }
+        markWritten();
 
         WriteContext context;
         try{
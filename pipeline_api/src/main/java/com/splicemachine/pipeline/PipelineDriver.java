@@ -39,6 +39,7 @@ import com.splicemachine.pipeline.contextfactory.ContextFactoryLoader;
 import com.splicemachine.pipeline.traffic.SpliceWriteControl;
 import com.splicemachine.pipeline.traffic.SynchronousWriteControl;
 import com.splicemachine.pipeline.utils.PipelineCompressor;
+import com.splicemachine.timestamp.api.TimestampSource;
 
 /**
  * @author Scott Fines
@@ -69,7 +70,7 @@ public class PipelineDriver{
         PipelineMeter meter = env.pipelineMeter();
         WritePipelineFactory pipelineFactory = env.pipelineFactory();
 
-        INSTANCE = new PipelineDriver(config,ctxFactoryDriver,pef,partitionFactory,compressor,writerFactory,pipelineFactory,meter,env.systemClock());
+        INSTANCE = new PipelineDriver(config,ctxFactoryDriver,pef,partitionFactory,compressor,writerFactory,pipelineFactory,meter,env.systemClock(),env.timestampSource());
         writerFactory.setWriter(INSTANCE.pipelineWriter);
     }
 
@@ -83,7 +84,8 @@ public class PipelineDriver{
                            BulkWriterFactory channelFactory,
                            WritePipelineFactory writePipelineFactory,
                            PipelineMeter meter,
-                           Clock clock){
+                           Clock clock,
+                           TimestampSource timestampSource){
         this.ctxFactoryDriver = ctxFactoryDriver;
         this.pef = pef;
         this.compressor = compressor;
@@ -95,7 +97,7 @@ public class PipelineDriver{
         int maxDependentWrites = config.getMaxDependentWrites();
 
         this.writeControl= new SynchronousWriteControl(ipcThreads/2,ipcThreads/2,maxDependentWrites,maxIndependentWrites);
-        this.pipelineWriter = new PipelineWriter(pef, writePipelineFactory,writeControl,pipelineMeter);
+        this.pipelineWriter = new PipelineWriter(pef, writePipelineFactory,writeControl,pipelineMeter,timestampSource);
         channelFactory.setWriter(pipelineWriter);
         channelFactory.setPipeline(writePipelineFactory);
         try{
@@ -145,6 +147,14 @@ public class PipelineDriver{
         writePipelineFactory.deregisterPipeline(partitionName);
     }
 
+    /**
+     * @return the write pipeline of the named partition, or {@code null} if the partition is not hosted
+     * in this JVM.
+     */
+    public PartitionWritePipeline getWritePipeline(String partitionName){
+        return writePipelineFactory.getPipeline(partitionName);
+    }
+
     @MXBean
     @SuppressWarnings("UnusedDeclaration")
     public interface ActiveWriteHandlersIface{
@@ -23,6 +23,8 @@ import com.splicemachine.pipeline.client.*;
 import com.splicemachine.pipeline.exception.IndexNotSetUpException;
 import com.splicemachine.pipeline.traffic.SpliceWriteControl;
 import com.splicemachine.pipeline.writehandler.SharedCallBufferFactory;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.timestamp.api.TimestampSource;
 import com.splicemachine.utils.Pair;
 import org.apache.log4j.Logger;
 
@@ -46,15 +48,29 @@ public class PipelineWriter{
     private final PipelineExceptionFactory exceptionFactory;
     private final WritePipelineFactory writePipelineFactory;
     private final PipelineMeter pipelineMeter;
+    private final TimestampSource timestampSource;
 
     public PipelineWriter(PipelineExceptionFactory pipelineExceptionFactory,
                           WritePipelineFactory writePipelineFactory,
                           SpliceWriteControl writeControl,
                           PipelineMeter pipelineMeter){
+        this(pipelineExceptionFactory,writePipelineFactory,writeControl,pipelineMeter,null);
+    }
+
+    /**
+     * @param timestampSource the source which is told about the transaction of each write, so that a clock
+     *                        can be kept ahead of the transactions it has seen. May be null.
+     */
+    public PipelineWriter(PipelineExceptionFactory pipelineExceptionFactory,
+                          WritePipelineFactory writePipelineFactory,
+                          SpliceWriteControl writeControl,
+                          PipelineMeter pipelineMeter,
+                          TimestampSource timestampSource){
         this.writeControl = writeControl;
         this.exceptionFactory = pipelineExceptionFactory;
         this.writePipelineFactory = writePipelineFactory;
         this.pipelineMeter = pipelineMeter;
+        this.timestampSource = timestampSource;
     }
 
 
@@ -67,6 +83,9 @@ public class PipelineWriter{
         if (numBulkWrites==0) {
             throw exceptionFactory.doNotRetry("Should Never Send Empty Call to Endpoint");
         }
+        TxnView txn = bulkWrites.getTxn();
+        if (timestampSource!=null && txn!=null)
+            timestampSource.observeTimestamp(txn.getBeginTimestamp());
 
         // Determine whether or not this write is dependent or independent.  Dependent writes are writes to a table with indexes.
         boolean dependent;
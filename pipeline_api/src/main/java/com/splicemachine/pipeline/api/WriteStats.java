@@ -90,6 +90,21 @@ public interface WriteStats {
 			public long getRegionTooBusy() {
 				return 0;
 			}
+
+			@Override
+			public long getUnencodedBytes() {
+				return 0;
+			}
+
+			@Override
+			public long getEncodedBytes() {
+				return 0;
+			}
+
+			@Override
+			public double getCompressionRatio() {
+				return 1d;
+			}
 		};
 
 	long getWrittenCounter();
@@ -105,4 +120,20 @@ public interface WriteStats {
 	long getCatchThrownRows();
 	long getCatchRetriedRows();
 	long getRegionTooBusy();
+
+	/**
+	 * @return the number of bytes that the writes would have been sent as, had they not been compressed
+	 * (i.e. their size in the legacy pipeline encoding)
+	 */
+	long getUnencodedBytes();
+
+	/**
+	 * @return the number of bytes actually sent over the network for the writes
+	 */
+	long getEncodedBytes();
+
+	/**
+	 * @return the ratio of {@link #getUnencodedBytes()} to {@link #getEncodedBytes()}, or 1 if nothing was written
+	 */
+	double getCompressionRatio();
 }
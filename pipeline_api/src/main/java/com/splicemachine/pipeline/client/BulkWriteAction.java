@@ -76,6 +76,8 @@ public class BulkWriteAction implements Callable<WriteStats>{
     private final Counter rejectedCounter;
     private final Counter partialFailureCounter;
     private final Counter regionTooBusy;
+    private final Counter unencodedBytes;
+    private final Counter encodedBytes;
     private final PartitionFactory partitionFactory;
     private PipingCallBuffer retryPipingCallBuffer=null; // retryCallBuffer
 
@@ -117,6 +119,8 @@ public class BulkWriteAction implements Callable<WriteStats>{
         catchThrownRows=metricFactory.newCounter();
         catchRetriedRows=metricFactory.newCounter();
         regionTooBusy=metricFactory.newCounter();
+        unencodedBytes=metricFactory.newCounter();
+        encodedBytes=metricFactory.newCounter();
     }
 
     @Override
@@ -144,7 +148,9 @@ public class BulkWriteAction implements Callable<WriteStats>{
             ignoredRows.getTotal(),
             catchThrownRows.getTotal(),
             catchRetriedRows.getTotal(),
-            regionTooBusy.getTotal()
+            regionTooBusy.getTotal(),
+            unencodedBytes.getTotal(),
+            encodedBytes.getTotal()
                         );
             else
                 return WriteStats.NOOP_WRITE_STATS;
@@ -256,6 +262,8 @@ public class BulkWriteAction implements Callable<WriteStats>{
             writeTimer.startTiming();
             BulkWritesResult bulkWritesResult=writer.write(nextWrite,ctx.refreshCache);
             writeTimer.stopTiming();
+            unencodedBytes.add(nextWrite.getUnencodedSize());
+            encodedBytes.add(nextWrite.getEncodedSize());
             Iterator<BulkWrite> bws=nextWrite.getBulkWrites().iterator();
             Collection<BulkWriteResult> results=bulkWritesResult.getBulkWriteResults();
             for(BulkWriteResult bulkWriteResult : results){
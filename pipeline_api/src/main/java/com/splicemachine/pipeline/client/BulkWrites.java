@@ -35,6 +35,15 @@ public class BulkWrites{
      * any region which is present on the destination region server
      */
     private transient byte[] regionKey;
+    /*
+     * the highest pipeline encoding version that the destination is known to understand
+     */
+    private transient int maxEncodingVersion=PipelineEncoding.LATEST_VERSION;
+    /*
+     * the size of the legacy encoding of this write, and the size it was actually encoded to
+     */
+    private transient long unencodedSize;
+    private transient long encodedSize;
 
     public BulkWrites(){
         bulkWrites=new ArrayList<>(0);
@@ -56,6 +65,34 @@ public class BulkWrites{
         return regionKey;
     }
 
+    public int getMaxEncodingVersion(){
+        return maxEncodingVersion;
+    }
+
+    public void setMaxEncodingVersion(int maxEncodingVersion){
+        this.maxEncodingVersion=maxEncodingVersion;
+    }
+
+    void recordEncodedSize(long unencodedSize,long encodedSize){
+        this.unencodedSize=unencodedSize;
+        this.encodedSize=encodedSize;
+    }
+
+    /**
+     * @return the number of bytes this write would occupy in the uncompressed (version 1) encoding, or 0
+     * if it has not been encoded.
+     */
+    public long getUnencodedSize(){
+        return unencodedSize;
+    }
+
+    /**
+     * @return the number of bytes this write was actually encoded to, or 0 if it has not been encoded.
+     */
+    public long getEncodedSize(){
+        return encodedSize;
+    }
+
     public Collection<BulkWrite> getBulkWrites(){
         return bulkWrites;
     }
@@ -37,6 +37,8 @@ public class MergingWriteStats implements WriteStats {
     private final Counter catchThrownRows;
     private final Counter catchRetriedRows;
     private final Counter regionTooBusy;
+    private final Counter unencodedBytes;
+    private final Counter encodedBytes;
 
     public MergingWriteStats(MetricFactory metricFactory) {
         this.writtenCounter = metricFactory.newCounter();
@@ -52,6 +54,8 @@ public class MergingWriteStats implements WriteStats {
         this.catchThrownRows = metricFactory.newCounter();
         this.catchRetriedRows = metricFactory.newCounter();
         this.regionTooBusy = metricFactory.newCounter();
+        this.unencodedBytes = metricFactory.newCounter();
+        this.encodedBytes = metricFactory.newCounter();
     }
 
     public void merge(WriteStats newStats) {
@@ -68,6 +72,8 @@ public class MergingWriteStats implements WriteStats {
         catchThrownRows.add(newStats.getCatchThrownRows());
         catchRetriedRows.add(newStats.getCatchRetriedRows());
         regionTooBusy.add(newStats.getRegionTooBusy());
+        unencodedBytes.add(newStats.getUnencodedBytes());
+        encodedBytes.add(newStats.getEncodedBytes());
     }
 
     @Override
@@ -134,4 +140,20 @@ public class MergingWriteStats implements WriteStats {
     public long getRegionTooBusy() {
         return regionTooBusy.getTotal();
     }
+
+    @Override
+    public long getUnencodedBytes() {
+        return unencodedBytes.getTotal();
+    }
+
+    @Override
+    public long getEncodedBytes() {
+        return encodedBytes.getTotal();
+    }
+
+    @Override
+    public double getCompressionRatio() {
+        long encoded = encodedBytes.getTotal();
+        return encoded==0? 1d : ((double)unencodedBytes.getTotal())/encoded;
+    }
 }
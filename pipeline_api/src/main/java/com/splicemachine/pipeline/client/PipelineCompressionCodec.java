@@ -0,0 +1,110 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.pipeline.client;
+
+import net.jpountz.lz4.LZ4Factory;
+import org.xerial.snappy.Snappy;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Block compression codecs which may be applied to the KVPairs of each BulkWrite in the
+ * pipeline encoding. The codec is identified on the wire by its id, so ids must never be reused.
+ */
+public enum PipelineCompressionCodec{
+    NONE((byte)0){
+        @Override
+        public byte[] compress(byte[] data,int offset,int length){
+            if(offset==0 && length==data.length) return data;
+            return Arrays.copyOfRange(data,offset,offset+length);
+        }
+
+        @Override
+        public void decompress(byte[] data,int offset,int length,byte[] destination) throws IOException{
+            System.arraycopy(data,offset,destination,0,length);
+        }
+    },
+    SNAPPY((byte)1){
+        @Override
+        public byte[] compress(byte[] data,int offset,int length) throws IOException{
+            byte[] compressed=new byte[Snappy.maxCompressedLength(length)];
+            int compressedLength=Snappy.compress(data,offset,length,compressed,0);
+            return Arrays.copyOf(compressed,compressedLength);
+        }
+
+        @Override
+        public void decompress(byte[] data,int offset,int length,byte[] destination) throws IOException{
+            Snappy.uncompress(data,offset,length,destination,0);
+        }
+    },
+    LZ4((byte)2){
+        @Override
+        public byte[] compress(byte[] data,int offset,int length){
+            return LZ4Holder.FACTORY.fastCompressor().compress(data,offset,length);
+        }
+
+        @Override
+        public void decompress(byte[] data,int offset,int length,byte[] destination){
+            LZ4Holder.FACTORY.fastDecompressor().decompress(data,offset,destination,0,destination.length);
+        }
+    };
+
+    private final byte id;
+
+    PipelineCompressionCodec(byte id){
+        this.id=id;
+    }
+
+    public byte getId(){
+        return id;
+    }
+
+    /**
+     * @return the compressed form of {@code data[offset:offset+length]}. The returned array may be {@code data} itself.
+     */
+    public abstract byte[] compress(byte[] data,int offset,int length) throws IOException;
+
+    /**
+     * Decompress {@code data[offset:offset+length]} into {@code destination}, which must be exactly as long as the
+     * uncompressed data.
+     */
+    public abstract void decompress(byte[] data,int offset,int length,byte[] destination) throws IOException;
+
+    public static PipelineCompressionCodec forId(byte id){
+        for(PipelineCompressionCodec codec:values()){
+            if(codec.id==id) return codec;
+        }
+        throw new IllegalArgumentException("Unknown pipeline compression codec id "+id);
+    }
+
+    /**
+     * @param name the (case-insensitive) name of the codec, as given in the configuration
+     * @return the codec with that name, or {@link #NONE} if {@code name} is null or unknown
+     */
+    public static PipelineCompressionCodec forName(String name){
+        if(name==null) return NONE;
+        for(PipelineCompressionCodec codec:values()){
+            if(codec.name().equalsIgnoreCase(name.trim())) return codec;
+        }
+        return NONE;
+    }
+
+    //lazily initialized, so that the LZ4 library is only loaded when it's actually in use
+    private static class LZ4Holder{
+        private static final LZ4Factory FACTORY=LZ4Factory.fastestInstance();
+    }
+}
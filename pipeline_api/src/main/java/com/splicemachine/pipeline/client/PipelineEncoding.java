@@ -15,6 +15,7 @@
 
 package com.splicemachine.pipeline.client;
 
+import com.splicemachine.encoding.Encoding;
 import com.splicemachine.encoding.ExpandedDecoder;
 import com.splicemachine.encoding.ExpandingEncoder;
 import com.splicemachine.kvpair.KVPair;
@@ -24,19 +25,46 @@ import com.splicemachine.utils.ByteSlice;
 import org.spark_project.guava.collect.Iterators;
 
 import javax.annotation.Nonnull;
+import java.io.IOException;
 import java.util.*;
 
 /**
  * Utilities around encoding and decoding BulkWriteRequests and responses.
  *
+ * There are two versions of the encoding:
+ *
+ * <ul>
+ *     <li>{@link #VERSION_1}: every KVPair is written as its type byte, row key and value.</li>
+ *     <li>{@link #VERSION_2}: the KVPairs of each BulkWrite are written as a run-length encoding of their types,
+ *     followed by each row key (prefix-compressed against the previous row key) and value, and the whole block may
+ *     then be compressed with a {@link PipelineCompressionCodec}.</li>
+ * </ul>
+ *
+ * Version 1 has no version header. Its first byte is the start of the encoded length of the transaction, which
+ * always has its high bit set, while later versions start with the version number itself (which does not), so
+ * {@link #decode(TxnOperationFactory, byte[])} can tell them apart. A writer must never send a version that the
+ * receiver does not understand; receivers advertise the highest version they support ({@link #LATEST_VERSION})
+ * in their responses.
+ *
  * @author Scott Fines
  *         Date: 1/19/15
  */
 public class PipelineEncoding {
+    public static final int VERSION_1 = 1;
+    public static final int VERSION_2 = 2;
+    public static final int LATEST_VERSION = VERSION_2;
 
     public static byte[] encode(TxnOperationFactory operationFactory,BulkWrites bulkWrites){
+        return encode(operationFactory,bulkWrites,VERSION_1,PipelineCompressionCodec.NONE);
+    }
+
+    public static byte[] encode(TxnOperationFactory operationFactory,
+                                BulkWrites bulkWrites,
+                                int version,
+                                PipelineCompressionCodec codec){
         /*
          * The encoding for a BulkWrites is as follows:
+         * (version>1 only) version (1 byte), codec (1 byte)
          * Txn (1-N bytes)
          * # of BulkWrites (1-N bytes)
          * for 1...# of BulkWrites:
@@ -55,7 +83,11 @@ public class PipelineEncoding {
         byte[] txnBytes = operationFactory.encode(bulkWrites.getTxn());
 
         int heapSize = bulkWrites.getBufferHeapSize();
-        ExpandingEncoder buffer = new ExpandingEncoder(heapSize+txnBytes.length);
+        ExpandingEncoder buffer = new ExpandingEncoder(heapSize+txnBytes.length+2);
+        if(version>VERSION_1){
+            buffer.rawEncode((byte)version);
+            buffer.rawEncode(codec.getId());
+        }
         buffer.rawEncode(txnBytes);
 
         //encode BulkWrite metadata
@@ -69,22 +101,38 @@ public class PipelineEncoding {
             buffer.encode(bw.getSkipIndexWrite());
         }
 
+        //the size the encoding would have had in version 1, for reporting the effect of compression
+        long unencodedSize = version>VERSION_1? buffer.currentOffset()-2 : buffer.currentOffset();
         for(BulkWrite bw:bws){
             Collection<KVPair> mutations = bw.getMutations();
-            buffer.encode(mutations.size());
+            unencodedSize += Encoding.encodedLength(mutations.size());
             for(KVPair kvPair:mutations){
-                //TODO -sf- use a run-length encoding for type information here?
-                buffer.rawEncode(kvPair.getType().asByte());
-                buffer.rawEncode(kvPair.rowKeySlice());
-                buffer.rawEncode(kvPair.valueSlice());
+                ByteSlice rowKey = kvPair.rowKeySlice();
+                ByteSlice value = kvPair.valueSlice();
+                unencodedSize += 1+Encoding.encodedLength(rowKey.length())+rowKey.length()
+                        +Encoding.encodedLength(value.length())+value.length();
             }
+            if(version>VERSION_1)
+                encodeCompressed(buffer,mutations,codec);
+            else
+                encodeUncompressed(buffer,mutations);
         }
-        return buffer.getBuffer();
+        byte[] encoded = buffer.getBuffer();
+        bulkWrites.recordEncodedSize(unencodedSize,encoded.length);
+        return encoded;
     }
 
 
     public static BulkWrites decode(TxnOperationFactory operationFactory,byte[] data){
         ExpandedDecoder decoder = new ExpandedDecoder(data);
+        int version = VERSION_1;
+        PipelineCompressionCodec codec = PipelineCompressionCodec.NONE;
+        if((data[0] & 0x80)==0){
+            version = decoder.rawByte();
+            if(version>LATEST_VERSION)
+                throw new IllegalArgumentException("Unable to decode a BulkWrites with encoding version "+version);
+            codec = PipelineCompressionCodec.forId(decoder.rawByte());
+        }
         byte[] txnBytes = decoder.rawBytes();
         TxnView txn = operationFactory.decode(txnBytes,0,txnBytes.length);
         int bwSize = decoder.decodeInt();
@@ -97,10 +145,103 @@ public class PipelineEncoding {
             skipIndexWrites[i] = decoder.decodeByte();
         }
 
-        return new BulkWrites(new BulkWriteCol(skipIndexWrites,data,decoder.currentOffset(),stringNames),txn);
+        return new BulkWrites(new BulkWriteCol(skipIndexWrites,data,decoder.currentOffset(),stringNames,version,codec),txn);
     }
 
 
+    /***********************************************************************************************************/
+    /*private helper methods*/
+    private static void encodeUncompressed(ExpandingEncoder buffer,Collection<KVPair> mutations){
+        buffer.encode(mutations.size());
+        for(KVPair kvPair:mutations){
+            buffer.rawEncode(kvPair.getType().asByte());
+            buffer.rawEncode(kvPair.rowKeySlice());
+            buffer.rawEncode(kvPair.valueSlice());
+        }
+    }
+
+    private static void encodeCompressed(ExpandingEncoder buffer,Collection<KVPair> mutations,PipelineCompressionCodec codec){
+        /*
+         * The block for a single BulkWrite is
+         *
+         * # of KVPairs
+         * # of type runs
+         * for 1...# of type runs:
+         *  type (1 byte), run length
+         * for 1...# of KVPairs:
+         *  length of prefix shared with the previous row key, remainder of the row key, value
+         *
+         * Writes are typically all of the same type (all inserts for an import, all upserts for an index build),
+         * so the type runs generally collapse to a single entry. The block is then compressed as a whole, and
+         * written as its uncompressed length followed by the compressed bytes.
+         */
+        int blockSize = 0;
+        for(KVPair kvPair:mutations){
+            blockSize += kvPair.rowKeySlice().length()+kvPair.valueSlice().length()+8;
+        }
+        ExpandingEncoder block = new ExpandingEncoder(blockSize+16);
+        block.encode(mutations.size());
+
+        int numRuns = 0;
+        KVPair.Type runType = null;
+        for(KVPair kvPair:mutations){
+            if(kvPair.getType()!=runType){
+                numRuns++;
+                runType = kvPair.getType();
+            }
+        }
+        block.encode(numRuns);
+        runType = null;
+        int runLength = 0;
+        for(KVPair kvPair:mutations){
+            if(kvPair.getType()!=runType){
+                if(runType!=null){
+                    block.rawEncode(runType.asByte());
+                    block.encode(runLength);
+                }
+                runType = kvPair.getType();
+                runLength = 0;
+            }
+            runLength++;
+        }
+        if(runType!=null){
+            block.rawEncode(runType.asByte());
+            block.encode(runLength);
+        }
+
+        ByteSlice previousKey = null;
+        for(KVPair kvPair:mutations){
+            ByteSlice rowKey = kvPair.rowKeySlice();
+            int shared = previousKey==null? 0 : sharedPrefixLength(previousKey,rowKey);
+            block.encode(shared);
+            block.rawEncode(rowKey.array(),rowKey.offset()+shared,rowKey.length()-shared);
+            block.rawEncode(kvPair.valueSlice());
+            previousKey = rowKey;
+        }
+
+        byte[] uncompressed = block.getBuffer();
+        byte[] compressed;
+        try{
+            compressed = codec.compress(uncompressed,0,uncompressed.length);
+        }catch(IOException e){
+            throw new RuntimeException(e);
+        }
+        buffer.encode(uncompressed.length);
+        buffer.rawEncode(compressed);
+    }
+
+    private static int sharedPrefixLength(ByteSlice previous,ByteSlice next){
+        byte[] p = previous.array();
+        byte[] n = next.array();
+        int pOff = previous.offset();
+        int nOff = next.offset();
+        int max = Math.min(previous.length(),next.length());
+        int i = 0;
+        while(i<max && p[pOff+i]==n[nOff+i])
+            i++;
+        return i;
+    }
+
     /***********************************************************************************************************/
     /*private helper classes*/
     private static class BulkWriteCol extends AbstractCollection<BulkWrite>{
@@ -108,6 +249,8 @@ public class PipelineEncoding {
         private final List<String> encodedStringNames;
         private final byte[] skipIndexWrites;
         private final byte[] buffer;
+        private final int version;
+        private final PipelineCompressionCodec codec;
         /*
          * we keep a cache of previously created BulkWrites, so that we can have
          * deterministic iteration (i.e. returning the same objects instead of
@@ -117,11 +260,14 @@ public class PipelineEncoding {
         private transient ExpandedDecoder decoder;
         private transient int lastIndex = 0;
 
-        public BulkWriteCol(byte[] skipIndexWrites, byte[] buffer,int kvOffset, List<String> encodedStringNames) {
+        public BulkWriteCol(byte[] skipIndexWrites, byte[] buffer,int kvOffset, List<String> encodedStringNames,
+                            int version,PipelineCompressionCodec codec) {
             this.kvOffset = kvOffset;
             this.encodedStringNames = encodedStringNames;
             this.buffer = buffer;
             this.skipIndexWrites = skipIndexWrites;
+            this.version = version;
+            this.codec = codec;
         }
 
         @Override
@@ -164,6 +310,15 @@ public class PipelineEncoding {
             public BulkWrite next() {
                 String esN = encodedStrings.next();
                 byte skipIndexWrite = skipIndexWrites[index++];
+                Collection<KVPair> kvPairs = version>VERSION_1? decodeCompressed() : decodeUncompressed();
+
+                BulkWrite bulkWrite = new BulkWrite(kvPairs, esN, skipIndexWrite);
+                cache.add(bulkWrite);
+                lastIndex=index;
+                return bulkWrite;
+            }
+
+            private Collection<KVPair> decodeUncompressed(){
                 int size = decoder.decodeInt();
                 Collection<KVPair> kvPairs = new ArrayList<>(size);
                 KVPair template = new KVPair();
@@ -175,12 +330,70 @@ public class PipelineEncoding {
                     decoder.sliceNext(valueSlice);
                     kvPairs.add(template.shallowClone());
                 }
+                return kvPairs;
+            }
 
+            private Collection<KVPair> decodeCompressed(){
+                int uncompressedLength = decoder.decodeInt();
+                ByteSlice compressed = new ByteSlice();
+                decoder.sliceNext(compressed);
+                byte[] block;
+                if(codec==PipelineCompressionCodec.NONE)
+                    block = compressed.array(); //no need to copy, we can read directly from the request
+                else{
+                    block = new byte[uncompressedLength];
+                    try{
+                        codec.decompress(compressed.array(),compressed.offset(),compressed.length(),block);
+                    }catch(IOException e){
+                        throw new RuntimeException(e);
+                    }
+                }
+                ExpandedDecoder blockDecoder = codec==PipelineCompressionCodec.NONE?
+                        new ExpandedDecoder(block,compressed.offset(),compressed.length()) : new ExpandedDecoder(block);
 
-                BulkWrite bulkWrite = new BulkWrite(kvPairs, esN, skipIndexWrite);
-                cache.add(bulkWrite);
-                lastIndex=index;
-                return bulkWrite;
+                int size = blockDecoder.decodeInt();
+                int numRuns = blockDecoder.decodeInt();
+                KVPair.Type[] types = new KVPair.Type[numRuns];
+                int[] runLengths = new int[numRuns];
+                for(int i=0;i<numRuns;i++){
+                    types[i] = KVPair.Type.decode(blockDecoder.rawByte());
+                    runLengths[i] = blockDecoder.decodeInt();
+                }
+
+                Collection<KVPair> kvPairs = new ArrayList<>(size);
+                KVPair template = new KVPair();
+                ByteSlice rowKeySlice = template.rowKeySlice();
+                ByteSlice valueSlice = template.valueSlice();
+                ByteSlice suffix = new ByteSlice();
+                int run = 0;
+                int remainingInRun = numRuns>0? runLengths[0] : 0;
+                byte[] previousKey = null;
+                int previousKeyOffset = 0;
+                for(int i=0;i<size;i++){
+                    while(remainingInRun==0){
+                        run++;
+                        remainingInRun = runLengths[run];
+                    }
+                    remainingInRun--;
+                    template.setType(types[run]);
+
+                    int shared = blockDecoder.decodeInt();
+                    if(shared==0){
+                        //no shared prefix, so the key can be read in place
+                        blockDecoder.sliceNext(rowKeySlice);
+                    }else{
+                        blockDecoder.sliceNext(suffix);
+                        byte[] key = new byte[shared+suffix.length()];
+                        System.arraycopy(previousKey,previousKeyOffset,key,0,shared);
+                        suffix.get(key,shared);
+                        rowKeySlice.set(key);
+                    }
+                    previousKey = rowKeySlice.array();
+                    previousKeyOffset = rowKeySlice.offset();
+                    blockDecoder.sliceNext(valueSlice);
+                    kvPairs.add(template.shallowClone());
+                }
+                return kvPairs;
             }
         }
     }
@@ -37,8 +37,14 @@ public class SimpleWriteStats implements WriteStats {
     private final long catchThrownRows;
     private final long catchRetriedRows;
     private final long regionTooBusy;
+    private final long unencodedBytes;
+    private final long encodedBytes;
 
     public SimpleWriteStats(long writtenCounter, long retryCounter, long thrownErrorsRows, long retriedRows, long partialRows, long partialThrownErrorRows, long partialRetriedRows, long partialIgnoredRows, long partialWrite, long ignoredRows, long catchThrownRows, long catchRetriedRows, long regionTooBusy) {
+        this(writtenCounter,retryCounter,thrownErrorsRows,retriedRows,partialRows,partialThrownErrorRows,partialRetriedRows,partialIgnoredRows,partialWrite,ignoredRows,catchThrownRows,catchRetriedRows,regionTooBusy,0l,0l);
+    }
+
+    public SimpleWriteStats(long writtenCounter, long retryCounter, long thrownErrorsRows, long retriedRows, long partialRows, long partialThrownErrorRows, long partialRetriedRows, long partialIgnoredRows, long partialWrite, long ignoredRows, long catchThrownRows, long catchRetriedRows, long regionTooBusy, long unencodedBytes, long encodedBytes) {
         this.writtenCounter = writtenCounter;
         this.retryCounter = retryCounter;
         this.thrownErrorsRows = thrownErrorsRows;
@@ -52,6 +58,8 @@ public class SimpleWriteStats implements WriteStats {
         this.catchThrownRows = catchThrownRows;
         this.catchRetriedRows = catchRetriedRows;
         this.regionTooBusy = regionTooBusy;
+        this.unencodedBytes = unencodedBytes;
+        this.encodedBytes = encodedBytes;
     }
 
     @Override
@@ -119,4 +127,19 @@ public class SimpleWriteStats implements WriteStats {
         return regionTooBusy;
     }
 
+    @Override
+    public long getUnencodedBytes() {
+        return unencodedBytes;
+    }
+
+    @Override
+    public long getEncodedBytes() {
+        return encodedBytes;
+    }
+
+    @Override
+    public double getCompressionRatio() {
+        return encodedBytes==0? 1d : ((double)unencodedBytes)/encodedBytes;
+    }
+
 }
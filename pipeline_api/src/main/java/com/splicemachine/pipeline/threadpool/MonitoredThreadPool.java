@@ -16,6 +16,7 @@
 package com.splicemachine.pipeline.threadpool;
 
 import java.util.concurrent.Callable;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadFactory;
@@ -55,16 +56,7 @@ public class MonitoredThreadPool implements ThreadPoolStatus {
 
 
     public static MonitoredThreadPool create(SConfiguration config){
-        ThreadFactory factory = new ThreadFactoryBuilder()
-                .setNameFormat("writerpool-%d")
-                .setDaemon(true)
-                .setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
-                    @Override
-                    public void uncaughtException(Thread t, Throwable e) {
-                        LOG.error("["+t.getName()+"]Unexpected error in write pool: ",e);
-                    }
-                })
-                .setPriority(Thread.NORM_PRIORITY).build();
+        ThreadFactory factory = newThreadFactory("writerpool-%d","write pool");
 
         int maxThreads = config.getMaxWriterThreads();
         int coreThreads = config.getCoreWriterThreads();
@@ -78,6 +70,34 @@ public class MonitoredThreadPool implements ThreadPoolStatus {
         return new MonitoredThreadPool(writerPool, countingRejectionHandler);
     }
 
+    /**
+     * Create a pool of up to {@code maxThreads} threads, which queues tasks (in submission order) while all of
+     * its threads are busy. Idle threads are released after {@code keepAliveSeconds}.
+     */
+    public static MonitoredThreadPool create(String nameFormat, final String poolName, int maxThreads, long keepAliveSeconds){
+        ThreadFactory factory = newThreadFactory(nameFormat,poolName);
+        CountingRejectionHandler countingRejectionHandler = new CountingRejectionHandler(new ThreadPoolExecutor.AbortPolicy());
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(maxThreads,
+                maxThreads,keepAliveSeconds,
+                TimeUnit.SECONDS,new LinkedBlockingQueue<Runnable>(),factory,
+                countingRejectionHandler);
+        pool.allowCoreThreadTimeOut(true);
+        return new MonitoredThreadPool(pool, countingRejectionHandler);
+    }
+
+    private static ThreadFactory newThreadFactory(String nameFormat, final String poolName){
+        return new ThreadFactoryBuilder()
+                .setNameFormat(nameFormat)
+                .setDaemon(true)
+                .setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+                    @Override
+                    public void uncaughtException(Thread t, Throwable e) {
+                        LOG.error("["+t.getName()+"]Unexpected error in "+poolName+": ",e);
+                    }
+                })
+                .setPriority(Thread.NORM_PRIORITY).build();
+    }
+
     public void shutdown(){
         writerPool.shutdown();
     }
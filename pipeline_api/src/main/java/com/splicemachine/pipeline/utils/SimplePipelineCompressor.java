@@ -20,6 +20,7 @@ import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
 import com.splicemachine.pipeline.client.BulkWrites;
 import com.splicemachine.pipeline.client.BulkWritesResult;
+import com.splicemachine.pipeline.client.PipelineCompressionCodec;
 import com.splicemachine.pipeline.client.PipelineEncoding;
 import com.splicemachine.si.api.data.TxnOperationFactory;
 import com.splicemachine.utils.kryo.KryoPool;
@@ -35,10 +36,26 @@ import java.io.OutputStream;
 public class SimplePipelineCompressor implements PipelineCompressor{
     private final TxnOperationFactory txnOperationFactory;
     private final KryoPool kp;
+    private final int maxEncodingVersion;
+    private final PipelineCompressionCodec codec;
 
     public SimplePipelineCompressor(KryoPool kp,TxnOperationFactory txnOperationFactory){
+        this(kp,txnOperationFactory,PipelineEncoding.VERSION_1,PipelineCompressionCodec.NONE);
+    }
+
+    /**
+     * @param maxEncodingVersion the highest encoding version to write BulkWrites with. A lower
+     *                           version is used for a BulkWrites destined for a server which does not support it.
+     * @param codec the codec to compress BulkWrites with, when writing an encoding version which supports it.
+     */
+    public SimplePipelineCompressor(KryoPool kp,
+                                    TxnOperationFactory txnOperationFactory,
+                                    int maxEncodingVersion,
+                                    PipelineCompressionCodec codec){
         this.txnOperationFactory = txnOperationFactory;
         this.kp = kp;
+        this.maxEncodingVersion = maxEncodingVersion;
+        this.codec = codec;
     }
 
     @Override
@@ -55,7 +72,8 @@ public class SimplePipelineCompressor implements PipelineCompressor{
     public byte[] compress(Object o) throws IOException{
         if(o instanceof BulkWrites){
             BulkWrites bw = (BulkWrites)o;
-            return PipelineEncoding.encode(txnOperationFactory,bw);
+            int version = Math.min(maxEncodingVersion,bw.getMaxEncodingVersion());
+            return PipelineEncoding.encode(txnOperationFactory,bw,version,codec);
         }else {
             Output out = new Output(128,-1);
             Kryo kryo = kp.get();
@@ -1,83 +1,130 @@
-//package com.splicemachine.pipeline.client;
-//
-//import com.splicemachine.kvpair.KVPair;
-//import com.splicemachine.primitives.Bytes;
-//import com.splicemachine.si.api.txn.TxnView;
-//import com.splicemachine.si.impl.txn.ActiveWriteTxn;
-//import org.junit.Assert;
-//import org.junit.Test;
-//
-//import java.util.ArrayList;
-//import java.util.Arrays;
-//import java.util.Collection;
-//import java.util.Iterator;
-//
-//TODO -sf- move this to hbase_pipeline
-//public class PipelineEncodingTest {
-//
-//    @Test
-//    public void testCanEncodeAndDecodeASingleBulkWrite() throws Exception {
-//        TxnView txnView = new ActiveWriteTxn(1l,1l);
-//
-//        Collection<BulkWrite> bws = generateBulkWrites(1);
-//        BulkWrites toEncode = new BulkWrites(bws,txnView);
-//
-//        byte[] bytes = PipelineEncoding.encode(toEncode);
-//        BulkWrites decoded = PipelineEncoding.decode(bytes);
-//        assertMatches("Incorrect BulkWrites",toEncode,decoded);
-//    }
-//
-//    @Test
-//    public void testCanEncodeAndDecodeMultipleBulkWrites() throws Exception {
-//        TxnView txnView = new ActiveWriteTxn(1l,1l);
-//
-//        Collection<BulkWrite> bws = generateBulkWrites(10);
-//        BulkWrites toEncode = new BulkWrites(bws,txnView);
-//
-//        byte[] bytes = PipelineEncoding.encode(toEncode);
-//        BulkWrites decoded = PipelineEncoding.decode(bytes);
-//        assertMatches("Incorrect BulkWrites",toEncode,decoded);
-//    }
-//
-//    private void assertMatches(String errorMsgPrefix, BulkWrites correct, BulkWrites actual) {
-//        Assert.assertEquals(errorMsgPrefix+": transaction ids don't match!",correct.getTxn().getTxnId(),actual.getTxn().getTxnId());
-//        Assert.assertEquals(errorMsgPrefix+": transaction write permission doesn't match!",correct.getTxn().allowsWrites(),actual.getTxn().allowsWrites());
-//        Collection<BulkWrite> correctBws = correct.getBulkWrites();
-//        Collection<BulkWrite> actualBws = actual.getBulkWrites();
-//        Assert.assertEquals(errorMsgPrefix+": bulk write size does not match!",correctBws.size(),actualBws.size());
-//        Iterator<BulkWrite> correctIter = correctBws.iterator();
-//        Iterator<BulkWrite> actualIter = actualBws.iterator();
-//        int pos =0;
-//        while(correctIter.hasNext()){
-//            BulkWrite cbw = correctIter.next();
-//            BulkWrite abw = actualIter.next();
-//            Assert.assertEquals(errorMsgPrefix+": Incorrect encodedStringName at pos "+ pos,cbw.getEncodedStringName(),abw.getEncodedStringName());
-//
-//            Collection<KVPair> cKvs = cbw.getMutations();
-//            Collection<KVPair> aKvs = abw.getMutations();
-//            Assert.assertEquals(errorMsgPrefix+": Incorrect kvPair size at pos "+ pos,cKvs.size(),aKvs.size());
-//            Iterator<KVPair> cKvIter = cKvs.iterator();
-//            Iterator<KVPair> aKvIter = aKvs.iterator();
-//            while(cKvIter.hasNext()){
-//                KVPair cKv = cKvIter.next();
-//                KVPair aKv = aKvIter.next();
-//                Assert.assertEquals(errorMsgPrefix+": KVPair row not correct",cKv.rowKeySlice(),aKv.rowKeySlice());
-//                Assert.assertEquals(errorMsgPrefix+": KVPair value not correct",cKv.valueSlice(),aKv.valueSlice());
-//                Assert.assertEquals(errorMsgPrefix+": KVPair type not correct",cKv.getType(),aKv.getType());
-//            }
-//        }
-//    }
-//
-//    private Collection<BulkWrite> generateBulkWrites(int size) {
-//        Collection<BulkWrite> bws = new ArrayList<>(size);
-//        for(int i=0;i<size;i++){
-//            Collection<KVPair> kvPairs = new ArrayList<>(Arrays.asList(
-//                new KVPair(Bytes.toBytes(i), Bytes.toBytes(i + 2),KVPair.Type.INSERT),
-//                new KVPair(Bytes.toBytes(i+1), Bytes.toBytes(Integer.toString(2*i)),KVPair.Type.DELETE),
-//                    new KVPair(Bytes.toBytes(i+2), Bytes.toBytes(i/.2f),KVPair.Type.UPDATE)
-//            ));
-//            bws.add(new BulkWrite(kvPairs,Integer.toString(i)));
-//        }
-//        return bws;
-//    }
-//}
\ No newline at end of file
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.pipeline.client;
+
+import com.splicemachine.kvpair.KVPair;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.si.api.data.TxnOperationFactory;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@Category(ArchitectureIndependent.class)
+public class PipelineEncodingTest{
+    private static final byte[] TXN_BYTES=new byte[]{1,2,3};
+
+    private final TxnView txn=mock(TxnView.class);
+    private final TxnOperationFactory operationFactory=mockOperationFactory(txn);
+
+    @Test
+    public void testCanEncodeAndDecodeVersion1() throws Exception{
+        assertRoundTrip(PipelineEncoding.VERSION_1,PipelineCompressionCodec.NONE);
+    }
+
+    @Test
+    public void testCanEncodeAndDecodeVersion2() throws Exception{
+        assertRoundTrip(PipelineEncoding.VERSION_2,PipelineCompressionCodec.NONE);
+    }
+
+    @Test
+    public void testCanEncodeAndDecodeVersion2Snappy() throws Exception{
+        assertRoundTrip(PipelineEncoding.VERSION_2,PipelineCompressionCodec.SNAPPY);
+    }
+
+    @Test
+    public void testCanEncodeAndDecodeVersion2LZ4() throws Exception{
+        assertRoundTrip(PipelineEncoding.VERSION_2,PipelineCompressionCodec.LZ4);
+    }
+
+    @Test
+    public void testVersion2IsSmallerForSortedKeys() throws Exception{
+        BulkWrites toEncode=new BulkWrites(generateBulkWrites(4,1000),txn);
+        byte[] legacy=PipelineEncoding.encode(operationFactory,toEncode,PipelineEncoding.VERSION_1,PipelineCompressionCodec.NONE);
+        Assert.assertEquals("Unencoded size should be the size of the legacy encoding",legacy.length,toEncode.getUnencodedSize());
+
+        byte[] encoded=PipelineEncoding.encode(operationFactory,toEncode,PipelineEncoding.VERSION_2,PipelineCompressionCodec.NONE);
+        Assert.assertEquals(encoded.length,toEncode.getEncodedSize());
+        Assert.assertEquals(legacy.length,toEncode.getUnencodedSize());
+        Assert.assertTrue("Prefix compression did not reduce the size: "+encoded.length+" >= "+legacy.length,encoded.length<legacy.length);
+    }
+
+    private void assertRoundTrip(int version,PipelineCompressionCodec codec){
+        BulkWrites toEncode=new BulkWrites(generateBulkWrites(10,100),txn);
+        byte[] bytes=PipelineEncoding.encode(operationFactory,toEncode,version,codec);
+        BulkWrites decoded=PipelineEncoding.decode(operationFactory,bytes);
+        Assert.assertSame("Incorrect transaction",txn,decoded.getTxn());
+
+        Collection<BulkWrite> correctBws=toEncode.getBulkWrites();
+        Collection<BulkWrite> actualBws=decoded.getBulkWrites();
+        Assert.assertEquals("bulk write size does not match!",correctBws.size(),actualBws.size());
+        Iterator<BulkWrite> correctIter=correctBws.iterator();
+        Iterator<BulkWrite> actualIter=actualBws.iterator();
+        int pos=0;
+        while(correctIter.hasNext()){
+            BulkWrite cbw=correctIter.next();
+            BulkWrite abw=actualIter.next();
+            Assert.assertEquals("Incorrect encodedStringName at pos "+pos,cbw.getEncodedStringName(),abw.getEncodedStringName());
+            Assert.assertEquals("Incorrect skipIndexWrite at pos "+pos,cbw.getSkipIndexWrite(),abw.getSkipIndexWrite());
+
+            Collection<KVPair> cKvs=cbw.getMutations();
+            Collection<KVPair> aKvs=abw.getMutations();
+            Assert.assertEquals("Incorrect kvPair size at pos "+pos,cKvs.size(),aKvs.size());
+            Iterator<KVPair> cKvIter=cKvs.iterator();
+            Iterator<KVPair> aKvIter=aKvs.iterator();
+            while(cKvIter.hasNext()){
+                KVPair cKv=cKvIter.next();
+                KVPair aKv=aKvIter.next();
+                Assert.assertEquals("KVPair row not correct",cKv.rowKeySlice(),aKv.rowKeySlice());
+                Assert.assertEquals("KVPair value not correct",cKv.valueSlice(),aKv.valueSlice());
+                Assert.assertEquals("KVPair type not correct",cKv.getType(),aKv.getType());
+            }
+            pos++;
+        }
+    }
+
+    private static Collection<BulkWrite> generateBulkWrites(int size,int rowsPerWrite){
+        Collection<BulkWrite> bws=new ArrayList<>(size);
+        for(int i=0;i<size;i++){
+            Collection<KVPair> kvPairs=new ArrayList<>(rowsPerWrite);
+            for(int j=0;j<rowsPerWrite;j++){
+                //mostly inserts, with a few runs of other types, and an occasional empty key
+                KVPair.Type type=j%17==0?KVPair.Type.DELETE:(j%13<2?KVPair.Type.UPDATE:KVPair.Type.INSERT);
+                byte[] rowKey=j==50?new byte[]{}:Bytes.toBytes(((long)i<<32)|j);
+                kvPairs.add(new KVPair(rowKey,Bytes.toBytes(Integer.toString(j*i)),type));
+            }
+            bws.add(new BulkWrite(kvPairs,Integer.toString(i),(byte)(i%2)));
+        }
+        return bws;
+    }
+
+    private static TxnOperationFactory mockOperationFactory(TxnView txn){
+        TxnOperationFactory factory=mock(TxnOperationFactory.class);
+        when(factory.encode(any(TxnView.class))).thenReturn(TXN_BYTES);
+        when(factory.decode(any(byte[].class),anyInt(),anyInt())).thenReturn(txn);
+        return factory;
+    }
+}
@@ -101,6 +101,8 @@ public interface SConfiguration {
     // OperationConfiguration
     int getSequenceBlockSize();
 
+    int getSequenceMaxBlockSize();
+
     // PipelineConfiguration
     int getCoreWriterThreads();
 
@@ -130,8 +132,15 @@ public interface SConfiguration {
 
     String getSparkIoCompressionCodec();
 
+    int getPipelineEncodingVersion();
+
+    String getPipelineCompressionCodec();
+
     int getSparkResultStreamingBatches();
     int getSparkResultStreamingBatchSize();
+    boolean getSparkResultStreamingUnordered();
+    int getSparkResultStreamingFrameSize();
+    String getSparkResultStreamingCompressionCodec();
 
     // SIConfigurations
     int getActiveTransactionCacheSize();
@@ -154,8 +163,14 @@ public interface SConfiguration {
 
     int getTimestampClientWaitTime();
 
+    int getTimestampClientMaxBatchSize();
+
     int getTimestampServerBindPort();
 
+    String getTimestampSource();
+
+    long getMaxClockSkew();
+
     int getTransactionKeepAliveThreads();
 
     int getTransactionLockStripes();
@@ -197,6 +212,10 @@ public interface SConfiguration {
 
     long getBroadcastRegionRowThreshold();
 
+    long getBroadcastArenaMbThreshold();
+
+    long getBroadcastCacheMbThreshold();
+
     long getOptimizerPlanMaximumTimeout();
 
     long getOptimizerPlanMinimumTimeout();
@@ -209,6 +228,22 @@ public interface SConfiguration {
 
     int getNestedLoopJoinBatchSize();
 
+    int getNestedLoopJoinMaxThreads();
+
+    int getNestedLoopJoinMaxConcurrentProbes();
+
+    int getNestedLoopJoinLookupBatchSize();
+
+    long getControlSpillMbThreshold();
+
+    String getControlSpillDirectory();
+
+    long getWindowSpillMbThreshold();
+
+    double getBulkImportSampleFraction();
+
+    long getPinnedRegionCacheMbSize();
+
     // StatsConfiguration
     double getFallbackNullFraction();
 
@@ -32,14 +32,18 @@ public class ConfigurationBuilder {
     public int readResolverQueueSize;
     public int readResolverThreads;
     public int timestampClientWaitTime;
+    public int timestampClientMaxBatchSize;
     public int timestampServerBindPort;
     public int transactionKeepAliveThreads;
     public int transactionLockStripes;
     public long transactionKeepAliveInterval;
     public long transactionTimeout;
+    public String timestampSource;
+    public long maxClockSkew;
 
     // OperationConfiguration
     public int sequenceBlockSize;
+    public int sequenceMaxBlockSize;
 
     // DDLConfiguration
     public long ddlDrainingInitialWait;
@@ -111,12 +115,22 @@ public class ConfigurationBuilder {
     public int partitionserverPort;
     public long broadcastRegionMbThreshold;
     public long broadcastRegionRowThreshold;
+    public long broadcastArenaMbThreshold;
+    public long broadcastCacheMbThreshold;
     public long optimizerPlanMaximumTimeout;
     public long optimizerPlanMinimumTimeout;
     public String networkBindAddress;
     public String upgradeForcedFrom;
     public String storageFactoryHome;
     public int nestedLoopJoinBatchSize;
+    public int nestedLoopJoinMaxThreads;
+    public int nestedLoopJoinMaxConcurrentProbes;
+    public int nestedLoopJoinLookupBatchSize;
+    public long controlSpillMbThreshold;
+    public String controlSpillDirectory;
+    public long windowSpillMbThreshold;
+    public double bulkImportSampleFraction;
+    public long pinnedRegionCacheMbSize;
 
     // PipelineConfiguration
     public int coreWriterThreads;
@@ -127,6 +141,8 @@ public class ConfigurationBuilder {
     public int maxRetries;
     public int maxWriterThreads;
     public int pipelineKryoPoolSize;
+    public int pipelineEncodingVersion;
+    public String pipelineCompressionCodec;
     public int writeMaxFlushesPerRegion;
     public long clientPause;
     public long maxBufferHeapSize;
@@ -135,6 +151,9 @@ public class ConfigurationBuilder {
     public String sparkIoCompressionCodec;
     public int sparkResultStreamingBatchSize;
     public int sparkResultStreamingBatches;
+    public boolean sparkResultStreamingUnordered;
+    public int sparkResultStreamingFrameSize;
+    public String sparkResultStreamingCompressionCodec;
     public int compactionReservedSlots;
     public int reservedSlotsTimeout;
     public int olapCompactionMaximumWait;
@@ -48,8 +48,23 @@ public class OperationConfiguration implements ConfigurationDefault {
     public static final String SEQUENCE_BLOCK_SIZE = "splice.sequence.allocationBlockSize";
     private static final int DEFAULT_SEQUENCE_BLOCK_SIZE = 1000;
 
+    /**
+     * The largest block a sequence may reserve at once. When a sequence consumes its blocks
+     * quickly, the block size it reserves is grown (starting from {@link #SEQUENCE_BLOCK_SIZE}) up to
+     * this size, so that high-rate inserts update the sequence row less often. It is shrunk back
+     * down when the rate drops. Setting this to the same value as {@link #SEQUENCE_BLOCK_SIZE}
+     * disables the adaptation.
+     *
+     * Like the block size itself, a larger value means more "missing" ids when a server restarts.
+     *
+     * Defaults to 64000
+     */
+    public static final String SEQUENCE_MAX_BLOCK_SIZE = "splice.sequence.maxAllocationBlockSize";
+    private static final int DEFAULT_SEQUENCE_MAX_BLOCK_SIZE = 64000;
+
     @Override
     public void setDefaults(ConfigurationBuilder builder, ConfigurationSource configurationSource) {
         builder.sequenceBlockSize = configurationSource.getInt(SEQUENCE_BLOCK_SIZE, DEFAULT_SEQUENCE_BLOCK_SIZE);
+        builder.sequenceMaxBlockSize = configurationSource.getInt(SEQUENCE_MAX_BLOCK_SIZE, DEFAULT_SEQUENCE_MAX_BLOCK_SIZE);
     }
 }
@@ -39,6 +39,33 @@ public class PipelineConfiguration implements ConfigurationDefault {
     public static final String SPARK_RESULT_STREAMING_BATCH_SIZE = "spark.result.streaming.batch.size";
     public static final int DEFAULT_SPARK_RESULT_STREAMING_BATCH_SIZE = 1024;
 
+    /**
+     * Whether the results of queries without an ORDER BY may be streamed from Spark in whatever order the partitions
+     * produce them, rather than one partition after the other. Unordered streaming keeps one slow partition from
+     * holding back the rows of all of the partitions after it.
+     *
+     * Defaults to true
+     */
+    public static final String SPARK_RESULT_STREAMING_UNORDERED = "spark.result.streaming.unordered";
+    public static final boolean DEFAULT_SPARK_RESULT_STREAMING_UNORDERED = true;
+
+    /**
+     * The most rows to send from Spark to the query client in a single network frame.
+     *
+     * Defaults to 64
+     */
+    public static final String SPARK_RESULT_STREAMING_FRAME_SIZE = "spark.result.streaming.frame.size";
+    public static final int DEFAULT_SPARK_RESULT_STREAMING_FRAME_SIZE = 64;
+
+    /**
+     * The compression codec to apply to each frame of rows streamed from Spark to the query client. One of "none",
+     * "snappy" or "lz4".
+     *
+     * Defaults to none
+     */
+    public static final String SPARK_RESULT_STREAMING_COMPRESSION_CODEC = "spark.result.streaming.compressionCodec";
+    public static final String DEFAULT_SPARK_RESULT_STREAMING_COMPRESSION_CODEC = "none";
+
     public static final String SPARK_COMPACTION_RESERVED_SLOTS = "spark.compaction.reserved.slots";
     public static final int DEFAULT_SPARK_COMPACTION_RESERVED_SLOTS = 1;
 
@@ -157,6 +184,28 @@ public class PipelineConfiguration implements ConfigurationDefault {
     public static final String PIPELINE_KRYO_POOL_SIZE= "splice.writer.kryoPoolSize";
     private static final int DEFAULT_PIPELINE_KRYO_POOL_SIZE=1024;
 
+    /**
+     * The highest wire encoding version that writers will use when sending BulkWrites to other servers. Version 2
+     * prefix-compresses row keys and run-length encodes row types, and may also compress each BulkWrite with
+     * {@link #PIPELINE_COMPRESSION_CODEC}. The version is negotiated separately with each server: writers use
+     * version 1 for a server until it has advertised (in its response to a write) that it can decode version 2,
+     * so servers which predate version 2 keep receiving version 1 while an upgrade is rolled through the cluster.
+     *
+     * Defaults to 2
+     */
+    public static final String PIPELINE_ENCODING_VERSION = "splice.pipeline.encodingVersion";
+    public static final int DEFAULT_PIPELINE_ENCODING_VERSION = 2;
+
+    /**
+     * The block compression codec to apply to each BulkWrite sent over the network, when using encoding version 2
+     * or higher. One of "none", "snappy" or "lz4". Compression trades CPU time on both ends of the write for
+     * network bandwidth, so it is most useful when the network (rather than the CPU) is the bottleneck.
+     *
+     * Defaults to none
+     */
+    public static final String PIPELINE_COMPRESSION_CODEC = "splice.pipeline.compressionCodec";
+    public static final String DEFAULT_PIPELINE_COMPRESSION_CODEC = "none";
+
     @Override
     public void setDefaults(ConfigurationBuilder builder, ConfigurationSource configurationSource) {
         builder.ipcThreads = configurationSource.getInt(IPC_THREADS, DEFAULT_IPC_THREADS);
@@ -168,6 +217,8 @@ public class PipelineConfiguration implements ConfigurationDefault {
         builder.maxRetries = configurationSource.getInt(MAX_RETRIES, DEFAULT_HBASE_CLIENT_RETRIES_NUMBER);
         builder.maxBufferEntries = configurationSource.getInt(MAX_BUFFER_ENTRIES, DEFAULT_MAX_BUFFER_ENTRIES);
         builder.pipelineKryoPoolSize = configurationSource.getInt(PIPELINE_KRYO_POOL_SIZE, DEFAULT_PIPELINE_KRYO_POOL_SIZE);
+        builder.pipelineEncodingVersion = configurationSource.getInt(PIPELINE_ENCODING_VERSION, DEFAULT_PIPELINE_ENCODING_VERSION);
+        builder.pipelineCompressionCodec = configurationSource.getString(PIPELINE_COMPRESSION_CODEC, DEFAULT_PIPELINE_COMPRESSION_CODEC);
 
         builder.threadKeepaliveTime = configurationSource.getLong(THREAD_KEEPALIVE_TIME, DEFAULT_THREAD_KEEPALIVE_TIME);
         builder.clientPause = configurationSource.getLong(CLIENT_PAUSE, DEFAULT_CLIENT_PAUSE);
@@ -177,6 +228,9 @@ public class PipelineConfiguration implements ConfigurationDefault {
         builder.sparkIoCompressionCodec = configurationSource.getString(SPARK_IO_COMPRESSION_CODEC, DEFAULT_SPARK_IO_COMPRESSION_CODEC);
         builder.sparkResultStreamingBatches = configurationSource.getInt(SPARK_RESULT_STREAMING_BATCHES, DEFAULT_SPARK_RESULT_STREAMING_BATCHES);
         builder.sparkResultStreamingBatchSize = configurationSource.getInt(SPARK_RESULT_STREAMING_BATCH_SIZE, DEFAULT_SPARK_RESULT_STREAMING_BATCH_SIZE);
+        builder.sparkResultStreamingUnordered = configurationSource.getBoolean(SPARK_RESULT_STREAMING_UNORDERED, DEFAULT_SPARK_RESULT_STREAMING_UNORDERED);
+        builder.sparkResultStreamingFrameSize = configurationSource.getInt(SPARK_RESULT_STREAMING_FRAME_SIZE, DEFAULT_SPARK_RESULT_STREAMING_FRAME_SIZE);
+        builder.sparkResultStreamingCompressionCodec = configurationSource.getString(SPARK_RESULT_STREAMING_COMPRESSION_CODEC, DEFAULT_SPARK_RESULT_STREAMING_COMPRESSION_CODEC);
         builder.compactionReservedSlots = configurationSource.getInt(SPARK_COMPACTION_RESERVED_SLOTS, DEFAULT_SPARK_COMPACTION_RESERVED_SLOTS);
         builder.olapCompactionMaximumWait = configurationSource.getInt(SPARK_COMPACTION_MAXIMUM_WAIT, DEFAULT_SPARK_COMPACTION_MAXIMUM_WAIT);
         builder.reservedSlotsTimeout = configurationSource.getInt(SPARK_RESERVED_SLOTS_TIMEOUT, DEFAULT_SPARK_RESERVED_SLOTS_TIMEOUT);
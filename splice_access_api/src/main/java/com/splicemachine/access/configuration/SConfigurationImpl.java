@@ -78,6 +78,7 @@ public final class SConfigurationImpl implements SConfiguration {
 
     // OperationConfiguration
     private final  int sequenceBlockSize;
+    private final  int sequenceMaxBlockSize;
 
     // PipelineConfiguration
     private final  int coreWriterThreads;
@@ -88,6 +89,8 @@ public final class SConfigurationImpl implements SConfiguration {
     private final  int maxRetries;
     private final  int maxWriterThreads;
     private final  int pipelineKryoPoolSize;
+    private final  int pipelineEncodingVersion;
+    private final  String pipelineCompressionCodec;
     private final  int writeMaxFlushesPerRegion;
     private final  long clientPause;
     private final  long maxBufferHeapSize;
@@ -96,6 +99,9 @@ public final class SConfigurationImpl implements SConfiguration {
     private final  String sparkIoCompressionCodec;
     private final int sparkResultStreamingBatches;
     private final int sparkResultStreamingBatchSize;
+    private final boolean sparkResultStreamingUnordered;
+    private final int sparkResultStreamingFrameSize;
+    private final String sparkResultStreamingCompressionCodec;
     private final int compactionReservedSlots;
     private final int olapCompactionMaximumWait;
     private final int reservedSlotsTimeout;
@@ -112,11 +118,14 @@ public final class SConfigurationImpl implements SConfiguration {
     private final  int readResolverQueueSize;
     private final  int readResolverThreads;
     private final  int timestampClientWaitTime;
+    private final  int timestampClientMaxBatchSize;
     private final  int timestampServerBindPort;
     private final  int transactionKeepAliveThreads;
     private final  int transactionLockStripes;
     private final  long transactionKeepAliveInterval;
     private final  long transactionTimeout;
+    private final  String timestampSource;
+    private final  long maxClockSkew;
 
     // SQLConfiguration
     private final  boolean debugDumpBindTree;
@@ -135,12 +144,22 @@ public final class SConfigurationImpl implements SConfiguration {
     private final  int partitionserverPort;
     private final  long broadcastRegionMbThreshold;
     private final  long broadcastRegionRowThreshold;
+    private final  long broadcastArenaMbThreshold;
+    private final  long broadcastCacheMbThreshold;
     private final  long optimizerPlanMaximumTimeout;
     private final  long optimizerPlanMinimumTimeout;
     private final  String networkBindAddress;
     private final  String upgradeForcedFrom;
     private final String storageFactoryHome;
     private final int nestedLoopJoinBatchSize;
+    private final int nestedLoopJoinMaxThreads;
+    private final int nestedLoopJoinMaxConcurrentProbes;
+    private final int nestedLoopJoinLookupBatchSize;
+    private final long controlSpillMbThreshold;
+    private final String controlSpillDirectory;
+    private final long windowSpillMbThreshold;
+    private final double bulkImportSampleFraction;
+    private final long pinnedRegionCacheMbSize;
 
     // StatsConfiguration
     private final  double fallbackNullFraction;
@@ -283,6 +302,10 @@ public final class SConfigurationImpl implements SConfiguration {
     public int getSequenceBlockSize() {
         return sequenceBlockSize;
     }
+    @Override
+    public int getSequenceMaxBlockSize() {
+        return sequenceMaxBlockSize;
+    }
 
     // PipelineConfiguration
     @Override
@@ -341,6 +364,14 @@ public final class SConfigurationImpl implements SConfiguration {
     public String getSparkIoCompressionCodec() {
         return sparkIoCompressionCodec;
     }
+    @Override
+    public int getPipelineEncodingVersion() {
+        return pipelineEncodingVersion;
+    }
+    @Override
+    public String getPipelineCompressionCodec() {
+        return pipelineCompressionCodec;
+    }
 
     @Override
     public int getSparkResultStreamingBatches() {
@@ -352,6 +383,21 @@ public final class SConfigurationImpl implements SConfiguration {
         return sparkResultStreamingBatchSize;
     }
 
+    @Override
+    public boolean getSparkResultStreamingUnordered() {
+        return sparkResultStreamingUnordered;
+    }
+
+    @Override
+    public int getSparkResultStreamingFrameSize() {
+        return sparkResultStreamingFrameSize;
+    }
+
+    @Override
+    public String getSparkResultStreamingCompressionCodec() {
+        return sparkResultStreamingCompressionCodec;
+    }
+
     // SIConfigurations
     @Override
     public int getActiveTransactionCacheSize() {
@@ -394,10 +440,22 @@ public final class SConfigurationImpl implements SConfiguration {
         return timestampClientWaitTime;
     }
     @Override
+    public int getTimestampClientMaxBatchSize() {
+        return timestampClientMaxBatchSize;
+    }
+    @Override
     public int getTimestampServerBindPort() {
         return timestampServerBindPort;
     }
     @Override
+    public String getTimestampSource() {
+        return timestampSource;
+    }
+    @Override
+    public long getMaxClockSkew() {
+        return maxClockSkew;
+    }
+    @Override
     public int getTransactionKeepAliveThreads() {
         return transactionKeepAliveThreads;
     }
@@ -480,6 +538,14 @@ public final class SConfigurationImpl implements SConfiguration {
         return broadcastRegionRowThreshold;
     }
     @Override
+    public long getBroadcastArenaMbThreshold() {
+        return broadcastArenaMbThreshold;
+    }
+    @Override
+    public long getBroadcastCacheMbThreshold() {
+        return broadcastCacheMbThreshold;
+    }
+    @Override
     public long getOptimizerPlanMaximumTimeout() {
         return optimizerPlanMaximumTimeout;
     }
@@ -499,6 +565,38 @@ public final class SConfigurationImpl implements SConfiguration {
     public int getNestedLoopJoinBatchSize() {
         return nestedLoopJoinBatchSize;
     }
+    @Override
+    public int getNestedLoopJoinMaxThreads() {
+        return nestedLoopJoinMaxThreads;
+    }
+    @Override
+    public int getNestedLoopJoinMaxConcurrentProbes() {
+        return nestedLoopJoinMaxConcurrentProbes;
+    }
+    @Override
+    public int getNestedLoopJoinLookupBatchSize() {
+        return nestedLoopJoinLookupBatchSize;
+    }
+    @Override
+    public long getControlSpillMbThreshold() {
+        return controlSpillMbThreshold;
+    }
+    @Override
+    public String getControlSpillDirectory() {
+        return controlSpillDirectory;
+    }
+    @Override
+    public long getWindowSpillMbThreshold() {
+        return windowSpillMbThreshold;
+    }
+    @Override
+    public double getBulkImportSampleFraction() {
+        return bulkImportSampleFraction;
+    }
+    @Override
+    public long getPinnedRegionCacheMbSize() {
+        return pinnedRegionCacheMbSize;
+    }
 
     // StatsConfiguration
     @Override
@@ -588,12 +686,16 @@ public final class SConfigurationImpl implements SConfiguration {
         readResolverQueueSize = builder.readResolverQueueSize;
         readResolverThreads = builder.readResolverThreads;
         timestampClientWaitTime = builder.timestampClientWaitTime;
+        timestampClientMaxBatchSize = builder.timestampClientMaxBatchSize;
         timestampServerBindPort = builder.timestampServerBindPort;
         transactionKeepAliveThreads = builder.transactionKeepAliveThreads;
         transactionLockStripes = builder.transactionLockStripes;
         transactionKeepAliveInterval = builder.transactionKeepAliveInterval;
         transactionTimeout = builder.transactionTimeout;
+        timestampSource = builder.timestampSource;
+        maxClockSkew = builder.maxClockSkew;
         sequenceBlockSize = builder.sequenceBlockSize;
+        sequenceMaxBlockSize = builder.sequenceMaxBlockSize;
         ddlDrainingInitialWait = builder.ddlDrainingInitialWait;
         ddlDrainingMaximumWait = builder.ddlDrainingMaximumWait;
         ddlRefreshInterval = builder.ddlRefreshInterval;
@@ -646,6 +748,8 @@ public final class SConfigurationImpl implements SConfiguration {
         partitionserverPort = builder.partitionserverPort;
         broadcastRegionMbThreshold = builder.broadcastRegionMbThreshold;
         broadcastRegionRowThreshold = builder.broadcastRegionRowThreshold;
+        broadcastArenaMbThreshold = builder.broadcastArenaMbThreshold;
+        broadcastCacheMbThreshold = builder.broadcastCacheMbThreshold;
         optimizerPlanMaximumTimeout = builder.optimizerPlanMaximumTimeout;
         optimizerPlanMinimumTimeout = builder.optimizerPlanMinimumTimeout;
         networkBindAddress = builder.networkBindAddress;
@@ -658,6 +762,8 @@ public final class SConfigurationImpl implements SConfiguration {
         maxRetries = builder.maxRetries;
         maxWriterThreads = builder.maxWriterThreads;
         pipelineKryoPoolSize = builder.pipelineKryoPoolSize;
+        pipelineEncodingVersion = builder.pipelineEncodingVersion;
+        pipelineCompressionCodec = builder.pipelineCompressionCodec;
         writeMaxFlushesPerRegion = builder.writeMaxFlushesPerRegion;
         clientPause = builder.clientPause;
         maxBufferHeapSize = builder.maxBufferHeapSize;
@@ -673,11 +779,22 @@ public final class SConfigurationImpl implements SConfiguration {
         olapServerTickLimit = builder.olapServerTickLimit;
         sparkResultStreamingBatches = builder.sparkResultStreamingBatches;
         sparkResultStreamingBatchSize = builder.sparkResultStreamingBatchSize;
+        sparkResultStreamingUnordered = builder.sparkResultStreamingUnordered;
+        sparkResultStreamingFrameSize = builder.sparkResultStreamingFrameSize;
+        sparkResultStreamingCompressionCodec = builder.sparkResultStreamingCompressionCodec;
         compactionReservedSlots = builder.compactionReservedSlots;
         olapCompactionMaximumWait = builder.olapCompactionMaximumWait;
         reservedSlotsTimeout = builder.reservedSlotsTimeout;
         storageFactoryHome = builder.storageFactoryHome;
         nestedLoopJoinBatchSize = builder.nestedLoopJoinBatchSize;
+        nestedLoopJoinMaxThreads = builder.nestedLoopJoinMaxThreads;
+        nestedLoopJoinMaxConcurrentProbes = builder.nestedLoopJoinMaxConcurrentProbes;
+        nestedLoopJoinLookupBatchSize = builder.nestedLoopJoinLookupBatchSize;
+        controlSpillMbThreshold = builder.controlSpillMbThreshold;
+        controlSpillDirectory = builder.controlSpillDirectory;
+        windowSpillMbThreshold = builder.windowSpillMbThreshold;
+        bulkImportSampleFraction = builder.bulkImportSampleFraction;
+        pinnedRegionCacheMbSize = builder.pinnedRegionCacheMbSize;
 
     }
 
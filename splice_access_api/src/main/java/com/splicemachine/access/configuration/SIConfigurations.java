@@ -105,6 +105,19 @@ public class SIConfigurations implements ConfigurationDefault {
     public static final String TIMESTAMP_CLIENT_WAIT_TIME = "splice.timestamp_server.clientWaitTime";
     private static final int DEFAULT_TIMESTAMP_CLIENT_WAIT_TIME = 60000;
 
+    /**
+     * The maximum number of concurrent callers the timestamp client may serve with a single request
+     * to the timestamp server. Callers which arrive while a request is outstanding are queued and served
+     * together by the next request. A value of 1 sends a request per caller.
+     *
+     * Batched requests are not understood by older timestamp servers, so every server must be upgraded
+     * before this is raised.
+     *
+     * Defaults to 1
+     */
+    public static final String TIMESTAMP_CLIENT_MAX_BATCH_SIZE = "splice.timestamp_server.clientMaxBatchSize";
+    private static final int DEFAULT_TIMESTAMP_CLIENT_MAX_BATCH_SIZE = 1;
+
     /**
      * The Port to bind the Timestamp Server connection to
      * Defaults to 60012
@@ -149,6 +162,31 @@ public class SIConfigurations implements ConfigurationDefault {
     public static final String ACTIVE_TRANSACTION_CACHE_SIZE="splice.txn.activeCacheSize";
     private static final int DEFAULT_ACTIVE_TRANSACTION_CACHE_SIZE = 1<<12;
 
+    /**
+     * Where transaction timestamps come from. Either {@value #ORACLE_TIMESTAMP_SOURCE}, for the central
+     * timestamp server, or {@value #HLC_TIMESTAMP_SOURCE}, for a hybrid logical clock kept by each node
+     * (in which case the clocks of all the nodes must be kept within {@link #MAX_CLOCK_SKEW} of each other).
+     *
+     * Switching from the timestamp server to clocks is safe, as clock timestamps are always larger than
+     * those handed out by the server. Switching back is not.
+     *
+     * Defaults to oracle
+     */
+    public static final String TIMESTAMP_SOURCE = "splice.txn.timestampSource";
+    public static final String ORACLE_TIMESTAMP_SOURCE = "oracle";
+    public static final String HLC_TIMESTAMP_SOURCE = "hlc";
+    private static final String DEFAULT_TIMESTAMP_SOURCE = ORACLE_TIMESTAMP_SOURCE;
+
+    /**
+     * The most (in milliseconds) that the wall clocks of any two nodes may differ by, when transaction
+     * timestamps come from clocks. Commits wait out this long before returning, and timestamps received
+     * from nodes whose clock is further ahead than this are refused.
+     *
+     * Defaults to 100
+     */
+    public static final String MAX_CLOCK_SKEW = "splice.txn.maxClockSkew";
+    private static final long DEFAULT_MAX_CLOCK_SKEW = 100L;
+
     @Override
     public void setDefaults(ConfigurationBuilder builder, ConfigurationSource configurationSource) {
         builder.completedTxnConcurrency  = configurationSource.getInt(completedTxnConcurrency, DEFAULT_COMPLETED_TRANSACTION_CONCURRENCY);
@@ -158,6 +196,7 @@ public class SIConfigurations implements ConfigurationDefault {
         builder.readResolverQueueSize  = configurationSource.getInt(READ_RESOLVER_QUEUE_SIZE, -1); //TODO -sf- reset to DEFAULT once ReadResolution works
 //        builder.readResolverQueueSize  = configurationSource.getInt(READ_RESOLVER_QUEUE_SIZE, DEFAULT_READ_RESOLVER_QUEUE_SIZE);
         builder.timestampClientWaitTime  = configurationSource.getInt(TIMESTAMP_CLIENT_WAIT_TIME, DEFAULT_TIMESTAMP_CLIENT_WAIT_TIME);
+        builder.timestampClientMaxBatchSize  = configurationSource.getInt(TIMESTAMP_CLIENT_MAX_BATCH_SIZE, DEFAULT_TIMESTAMP_CLIENT_MAX_BATCH_SIZE);
         builder.timestampServerBindPort  = configurationSource.getInt(TIMESTAMP_SERVER_BIND_PORT, DEFAULT_TIMESTAMP_SERVER_BIND_PORT);
         builder.activeTransactionCacheSize  = configurationSource.getInt(ACTIVE_TRANSACTION_CACHE_SIZE, DEFAULT_ACTIVE_TRANSACTION_CACHE_SIZE);
         builder.olapServerBindPort  = configurationSource.getInt(OLAP_SERVER_BIND_PORT, DEFAULT_OLAP_SERVER_BIND_PORT);
@@ -168,6 +207,8 @@ public class SIConfigurations implements ConfigurationDefault {
 
         builder.transactionTimeout = configurationSource.getLong(TRANSACTION_TIMEOUT, DEFAULT_TRANSACTION_TIMEOUT);
         builder.transactionKeepAliveInterval = configurationSource.getLong(TRANSACTION_KEEP_ALIVE_INTERVAL, DEFAULT_TRANSACTION_KEEP_ALIVE_INTERVAL);
+        builder.timestampSource = configurationSource.getString(TIMESTAMP_SOURCE, DEFAULT_TIMESTAMP_SOURCE);
+        builder.maxClockSkew = configurationSource.getLong(MAX_CLOCK_SKEW, DEFAULT_MAX_CLOCK_SKEW);
 
     }
 }
@@ -110,6 +110,23 @@ public class SQLConfiguration implements ConfigurationDefault {
     public static final String BROADCAST_REGION_ROW_THRESHOLD = "splice.optimizer.broadcastRegionRowThreshold";
     private static final int DEFAULT_BROADCAST_REGION_ROW_THRESHOLD = 1000000;
 
+    /**
+     * Memory budget (in megabytes) for the encoded inner side of a single broadcast join.
+     * Unhinted joins whose inner side is estimated to exceed this budget will use a merge sort
+     * join instead. Defaults to 5% of the maximum heap size.
+     */
+    public static final String BROADCAST_ARENA_MB_THRESHOLD = "splice.execution.broadcastArenaMBThreshold";
+    private static final long DEFAULT_BROADCAST_ARENA_MB_THRESHOLD = Runtime.getRuntime().maxMemory() / (1024l * 1024l * 20l);
+
+    /**
+     * Memory budget (in megabytes) shared by all broadcast join inner tables cached in a single JVM.
+     * Unhinted broadcast joins whose estimated inner side exceeds the budget are planned with a different
+     * join strategy. Idle tables are evicted to make room for new ones; a table which still does not fit
+     * is shared only while it is in use. Defaults to 10% of the maximum heap size.
+     */
+    public static final String BROADCAST_CACHE_MB_THRESHOLD = "splice.execution.broadcastCacheMBThreshold";
+    private static final long DEFAULT_BROADCAST_CACHE_MB_THRESHOLD = Runtime.getRuntime().maxMemory() / (1024l * 1024l * 10l);
+
     /**
      * Minimum fixed duration (in millisecomds) that should be allowed to lapse
      * before the optimizer can determine that it should stop trying to find
@@ -203,6 +220,81 @@ public class SQLConfiguration implements ConfigurationDefault {
     public static final String NESTEDLOOPJOIN_BATCH_SIZE = "splice.nestedLoopJoin.batchSize";
     private static final int DEFAULT_NESTEDLOOPJOIN_BATCH_SIZE = 10;
 
+    /**
+     * The maximum number of threads in the pool (shared by all nested loop joins in the JVM) on which
+     * nested loop joins probe their inner side.
+     *
+     * Defaults to 64
+     */
+    public static final String NESTEDLOOPJOIN_MAX_THREADS = "splice.nestedLoopJoin.maxThreads";
+    private static final int DEFAULT_NESTEDLOOPJOIN_MAX_THREADS = 64;
+
+    /**
+     * The maximum number of inner side probes a single nested loop join may have running on the shared
+     * pool at once. Further probes wait their turn behind those of other joins, so that one large join
+     * can't take over the pool.
+     *
+     * Defaults to 10
+     */
+    public static final String NESTEDLOOPJOIN_MAX_CONCURRENT_PROBES = "splice.nestedLoopJoin.maxConcurrentProbes";
+    private static final int DEFAULT_NESTEDLOOPJOIN_MAX_CONCURRENT_PROBES = 10;
+
+    /**
+     * The maximum number of outer rows for which a nested loop join reads the matching inner rows in a single
+     * multi-get, when it probes the inner table by its primary key. Set to 0 to probe each outer row with a
+     * scan of its own.
+     *
+     * Defaults to 1000
+     */
+    public static final String NESTEDLOOPJOIN_LOOKUP_BATCH_SIZE = "splice.nestedLoopJoin.lookupBatchSize";
+    private static final int DEFAULT_NESTEDLOOPJOIN_LOOKUP_BATCH_SIZE = 1000;
+
+    /**
+     * Memory budget (in megabytes) for a single hashing operation (grouping, distinct, set operations
+     * and hash joins) executed in control mode. Once an operation buffers more than this, it partitions
+     * its input into spill files on local disk and processes one partition at a time.
+     *
+     * Defaults to 5% of the maximum heap size.
+     */
+    public static final String CONTROL_SPILL_MB_THRESHOLD = "splice.execution.controlSpillMBThreshold";
+    private static final long DEFAULT_CONTROL_SPILL_MB_THRESHOLD = Runtime.getRuntime().maxMemory() / (1024l * 1024l * 20l);
+
+    /**
+     * Local directory in which control-mode operations write their spill files.
+     *
+     * Defaults to java.io.tmpdir
+     */
+    public static final String CONTROL_SPILL_DIRECTORY = "splice.execution.controlSpillDirectory";
+
+    /**
+     * Memory budget (in megabytes) for each of the buffers a window function keeps over a single partition
+     * (the sorted partition, the rows of the current frame, and the results not yet returned). Rows past
+     * this are written to spill files in the control spill directory, and read back as the frame reaches them.
+     *
+     * Defaults to 5% of the maximum heap size.
+     */
+    public static final String WINDOW_SPILL_MB_THRESHOLD = "splice.execution.windowSpillMBThreshold";
+    private static final long DEFAULT_WINDOW_SPILL_MB_THRESHOLD = Runtime.getRuntime().maxMemory() / (1024l * 1024l * 20l);
+
+    /**
+     * The fraction of the rows of a bulk import which are sampled to choose the split points of the table
+     * (and of its indexes) before the HFiles are written.
+     *
+     * Defaults to 0.005
+     */
+    public static final String BULK_IMPORT_SAMPLE_FRACTION = "splice.bulkImport.sampleFraction";
+    private static final double DEFAULT_BULK_IMPORT_SAMPLE_FRACTION = 0.005D;
+
+    /**
+     * Memory budget (in megabytes) for the columnar copies of pinned tables which each server keeps of the
+     * regions it hosts. Control side scans of a pinned table read these copies instead of scanning HBase;
+     * the least recently used are dropped once the budget is exceeded. Set to 0 to disable the cache.
+     *
+     * Defaults to 5% of the maximum heap size.
+     */
+    public static final String PINNED_REGION_CACHE_MB_SIZE = "splice.pin.regionCacheMBSize";
+    private static final long DEFAULT_PINNED_REGION_CACHE_MB_SIZE = Runtime.getRuntime().maxMemory() / (1024l * 1024l * 20l);
+
     @Override
     public void setDefaults(ConfigurationBuilder builder, ConfigurationSource configurationSource) {
         // FIXME: JC - some of these are not referenced anywhere outside. Do we need them?
@@ -216,6 +308,14 @@ public class SQLConfiguration implements ConfigurationDefault {
         builder.partitionserverJmxPort = configurationSource.getInt(PARTITIONSERVER_JMX_PORT, DEFAULT_PARTITIONSERVER_JMX_PORT);
         builder.partitionserverPort = configurationSource.getInt(PARTITIONSERVER_PORT, DEFAULT_PARTITIONSERVER_PORT);
         builder.nestedLoopJoinBatchSize = configurationSource.getInt(NESTEDLOOPJOIN_BATCH_SIZE, DEFAULT_NESTEDLOOPJOIN_BATCH_SIZE);
+        builder.nestedLoopJoinMaxThreads = configurationSource.getInt(NESTEDLOOPJOIN_MAX_THREADS, DEFAULT_NESTEDLOOPJOIN_MAX_THREADS);
+        builder.nestedLoopJoinMaxConcurrentProbes = configurationSource.getInt(NESTEDLOOPJOIN_MAX_CONCURRENT_PROBES, DEFAULT_NESTEDLOOPJOIN_MAX_CONCURRENT_PROBES);
+        builder.nestedLoopJoinLookupBatchSize = configurationSource.getInt(NESTEDLOOPJOIN_LOOKUP_BATCH_SIZE, DEFAULT_NESTEDLOOPJOIN_LOOKUP_BATCH_SIZE);
+        builder.controlSpillMbThreshold = configurationSource.getLong(CONTROL_SPILL_MB_THRESHOLD, DEFAULT_CONTROL_SPILL_MB_THRESHOLD);
+        builder.controlSpillDirectory = configurationSource.getString(CONTROL_SPILL_DIRECTORY, System.getProperty("java.io.tmpdir"));
+        builder.windowSpillMbThreshold = configurationSource.getLong(WINDOW_SPILL_MB_THRESHOLD, DEFAULT_WINDOW_SPILL_MB_THRESHOLD);
+        builder.bulkImportSampleFraction = configurationSource.getDouble(BULK_IMPORT_SAMPLE_FRACTION, DEFAULT_BULK_IMPORT_SAMPLE_FRACTION);
+        builder.pinnedRegionCacheMbSize = configurationSource.getLong(PINNED_REGION_CACHE_MB_SIZE, DEFAULT_PINNED_REGION_CACHE_MB_SIZE);
 
         // Where to place jar files...
         String defaultStorageFactoryHome;
@@ -228,6 +328,8 @@ public class SQLConfiguration implements ConfigurationDefault {
         builder.optimizerPlanMinimumTimeout = configurationSource.getLong(OPTIMIZER_PLAN_MINIMUM_TIMEOUT, DEFAULT_OPTIMIZER_PLAN_MINIMUM_TIMEOUT);
         builder.broadcastRegionMbThreshold = configurationSource.getLong(BROADCAST_REGION_MB_THRESHOLD, DEFAULT_BROADCAST_REGION_MB_THRESHOLD);
         builder.broadcastRegionRowThreshold = configurationSource.getLong(BROADCAST_REGION_ROW_THRESHOLD, DEFAULT_BROADCAST_REGION_ROW_THRESHOLD);
+        builder.broadcastArenaMbThreshold = configurationSource.getLong(BROADCAST_ARENA_MB_THRESHOLD, DEFAULT_BROADCAST_ARENA_MB_THRESHOLD);
+        builder.broadcastCacheMbThreshold = configurationSource.getLong(BROADCAST_CACHE_MB_THRESHOLD, DEFAULT_BROADCAST_CACHE_MB_THRESHOLD);
 
         //always disable debug statements by default
         builder.debugLogStatementContext = configurationSource.getBoolean(DEBUG_LOG_STATEMENT_CONTEXT, DEFAULT_LOG_STATEMENT_CONTEXT);
@@ -52,6 +52,16 @@ public interface Partition extends AutoCloseable{
 
     Iterator<DataResult> batchGet(Attributable attributes,List<byte[]>rowKeys) throws IOException;
 
+    /**
+     * Fetch many rows at once. Unlike {@link #batchGet(Attributable, List)}, each get is performed
+     * exactly as specified (versions, time range, filters and all).
+     *
+     * @param gets the gets to perform
+     * @return the results, in the same order as {@code gets}. Each result is independent of the others.
+     * @throws IOException
+     */
+    Iterator<DataResult> batchGet(List<DataGet> gets) throws IOException;
+
     DataScanner openScanner(DataScan scan) throws IOException;
 
     DataScanner openScanner(DataScan scan,MetricFactory metricFactory) throws IOException;
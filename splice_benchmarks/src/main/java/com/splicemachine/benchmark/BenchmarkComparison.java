@@ -0,0 +1,135 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.benchmark;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two sets of JMH results, and reports the benchmarks which regressed.
+ *
+ * Both files are in JMH's JSON format, as written by {@code java -jar benchmarks.jar -rf json -rff <file>}.
+ * A benchmark has regressed if its score is worse than the baseline by more than the threshold (a percentage,
+ * 10 by default) <em>and</em> by more than the combined error of the two measurements. Whether a higher score is
+ * better depends on the benchmark mode: higher is better for throughput, lower is better for the time-based modes.
+ *
+ * Usage: {@code java -cp benchmarks.jar com.splicemachine.benchmark.BenchmarkComparison <baseline.json> <current.json> [thresholdPercent]}
+ *
+ * The process exits with status 1 if any benchmark regressed, so it can be used to gate upgrades.
+ */
+public class BenchmarkComparison{
+    private final double thresholdPercent;
+
+    public BenchmarkComparison(double thresholdPercent){
+        this.thresholdPercent=thresholdPercent;
+    }
+
+    public static void main(String... args) throws IOException{
+        if(args.length<2){
+            System.err.println("Usage: BenchmarkComparison <baseline.json> <current.json> [thresholdPercent]");
+            System.exit(2);
+        }
+        double threshold=args.length>2?Double.parseDouble(args[2]):10d;
+        BenchmarkComparison comparison=new BenchmarkComparison(threshold);
+        int regressions=comparison.compare(readResults(args[0]),readResults(args[1]),System.out);
+        System.exit(regressions>0?1:0);
+    }
+
+    /**
+     * Print a report comparing each benchmark in {@code current} with its baseline.
+     *
+     * @return the number of benchmarks which regressed
+     */
+    public int compare(Map<String,Result> baseline,Map<String,Result> current,PrintStream out){
+        int regressions=0;
+        out.printf("%-100s %15s %15s %9s%n","Benchmark","Baseline","Current","Change");
+        for(Map.Entry<String,Result> entry:current.entrySet()){
+            Result result=entry.getValue();
+            Result base=baseline.get(entry.getKey());
+            if(base==null){
+                out.printf("%-100s %15s %15.3f %9s%n",entry.getKey(),"-",result.score,"new");
+                continue;
+            }
+            double change=(result.score-base.score)/base.score*100d;
+            double worsening=result.higherIsBetter()?-change:change;
+            boolean outsideError=Math.abs(result.score-base.score)>result.error+base.error;
+            boolean regressed=worsening>thresholdPercent && outsideError;
+            if(regressed) regressions++;
+            out.printf("%-100s %15.3f %15.3f %+8.1f%%%s%n",entry.getKey(),base.score,result.score,change,regressed?" REGRESSION":"");
+        }
+        for(String missing:baseline.keySet()){
+            if(!current.containsKey(missing))
+                out.printf("%-100s %15.3f %15s %9s%n",missing,baseline.get(missing).score,"-","missing");
+        }
+        out.printf("%d benchmark(s) regressed by more than %.1f%%%n",regressions,thresholdPercent);
+        return regressions;
+    }
+
+    /**
+     * @return the results in the given JMH JSON file, keyed by benchmark name and parameters
+     */
+    public static Map<String,Result> readResults(String file) throws IOException{
+        Map<String,Result> results=new TreeMap<>();
+        try(Reader reader=new InputStreamReader(new FileInputStream(file),StandardCharsets.UTF_8)){
+            for(JsonElement element:new JsonParser().parse(reader).getAsJsonArray()){
+                JsonObject benchmark=element.getAsJsonObject();
+                StringBuilder key=new StringBuilder(benchmark.get("benchmark").getAsString());
+                JsonElement params=benchmark.get("params");
+                if(params!=null){
+                    //sort the parameters, so that the key does not depend on the order JMH wrote them in
+                    Map<String,String> sorted=new TreeMap<>();
+                    for(Map.Entry<String,JsonElement> param:params.getAsJsonObject().entrySet()){
+                        sorted.put(param.getKey(),param.getValue().getAsString());
+                    }
+                    key.append(sorted);
+                }
+                String mode=benchmark.get("mode").getAsString();
+                JsonObject metric=benchmark.getAsJsonObject("primaryMetric");
+                double error=metric.get("scoreError").isJsonPrimitive()?metric.get("scoreError").getAsDouble():0d;
+                if(Double.isNaN(error)) error=0d;
+                results.put(key.append(" (").append(mode).append(')').toString(),
+                        new Result(mode,metric.get("score").getAsDouble(),error));
+            }
+        }
+        return results;
+    }
+
+    public static class Result{
+        final String mode;
+        final double score;
+        final double error;
+
+        public Result(String mode,double score,double error){
+            this.mode=mode;
+            this.score=score;
+            this.error=error;
+        }
+
+        boolean higherIsBetter(){
+            return "thrpt".equals(mode);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.benchmark;
+
+import java.util.Random;
+
+/**
+ * Data generation shared by the benchmarks. Everything is generated from a fixed seed, so
+ * runs against different builds see the same data.
+ */
+public class BenchmarkData{
+    private static final char[] ALPHABET="abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789".toCharArray();
+
+    private BenchmarkData(){}
+
+    public static String randomString(Random random,int minLength,int maxLength){
+        int length=minLength+random.nextInt(maxLength-minLength+1);
+        char[] chars=new char[length];
+        for(int i=0;i<length;i++){
+            chars[i]=ALPHABET[random.nextInt(ALPHABET.length)];
+        }
+        return new String(chars);
+    }
+}
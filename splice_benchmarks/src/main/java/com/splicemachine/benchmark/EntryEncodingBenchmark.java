@@ -0,0 +1,117 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.benchmark;
+
+import com.carrotsearch.hppc.BitSet;
+import com.splicemachine.encoding.MultiFieldDecoder;
+import com.splicemachine.encoding.MultiFieldEncoder;
+import com.splicemachine.storage.EntryDecoder;
+import com.splicemachine.storage.EntryEncoder;
+import com.splicemachine.utils.kryo.KryoPool;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the packed row (value) encoding, including the index which records which columns are present.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations=5,time=1)
+@Measurement(iterations=10,time=1)
+@Fork(1)
+public class EntryEncodingBenchmark{
+    private static final int NUM_ROWS=1024;
+    private static final int NUM_COLUMNS=4;
+
+    /**
+     * The fraction of rows with a null string column, which changes the shape of the index.
+     */
+    @Param({"0.0","0.5"})
+    public double nullFraction;
+
+    private final long[] longs=new long[NUM_ROWS];
+    private final String[] strings=new String[NUM_ROWS];
+    private final double[] doubles=new double[NUM_ROWS];
+    private final int[] ints=new int[NUM_ROWS];
+    private final byte[][] encoded=new byte[NUM_ROWS][];
+
+    private BitSet allColumns;
+    private BitSet withoutString;
+    private EntryEncoder encoder;
+    private EntryDecoder decoder;
+
+    @Setup
+    public void setUp() throws IOException{
+        Random random=new Random(0L);
+        allColumns=new BitSet(NUM_COLUMNS);
+        allColumns.set(0,NUM_COLUMNS);
+        withoutString=(BitSet)allColumns.clone();
+        withoutString.clear(1);
+        BitSet scalarFields=new BitSet(NUM_COLUMNS);
+        scalarFields.set(0);
+        scalarFields.set(3);
+        BitSet doubleFields=new BitSet(NUM_COLUMNS);
+        doubleFields.set(2);
+        encoder=EntryEncoder.create(new KryoPool(1),NUM_COLUMNS,allColumns,scalarFields,new BitSet(),doubleFields);
+
+        for(int i=0;i<NUM_ROWS;i++){
+            longs[i]=random.nextLong();
+            strings[i]=random.nextDouble()<nullFraction?null:BenchmarkData.randomString(random,8,32);
+            doubles[i]=random.nextDouble();
+            ints[i]=random.nextInt();
+            encoded[i]=encode(i);
+        }
+        decoder=new EntryDecoder();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_ROWS)
+    public void encode(Blackhole bh) throws IOException{
+        for(int i=0;i<NUM_ROWS;i++){
+            bh.consume(encode(i));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_ROWS)
+    public void decode(Blackhole bh) throws IOException{
+        for(byte[] row:encoded){
+            decoder.set(row);
+            MultiFieldDecoder fieldDecoder=decoder.getEntryDecoder();
+            bh.consume(fieldDecoder.decodeNextLong());
+            if(decoder.isSet(1))
+                bh.consume(fieldDecoder.decodeNextString());
+            bh.consume(fieldDecoder.decodeNextDouble());
+            bh.consume(fieldDecoder.decodeNextInt());
+        }
+    }
+
+    private byte[] encode(int row) throws IOException{
+        String string=strings[row];
+        encoder.reset(string==null?withoutString:allColumns);
+        MultiFieldEncoder fieldEncoder=encoder.getEntryEncoder();
+        fieldEncoder.encodeNext(longs[row]);
+        if(string!=null)
+            fieldEncoder.encodeNext(string);
+        fieldEncoder.encodeNext(doubles[row]).encodeNext(ints[row]);
+        return encoder.encode();
+    }
+}
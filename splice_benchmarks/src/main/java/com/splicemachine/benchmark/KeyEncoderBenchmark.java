@@ -0,0 +1,102 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.benchmark;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.SQLDouble;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import com.splicemachine.db.iapi.types.SQLVarchar;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.derby.utils.marshall.BareKeyHash;
+import com.splicemachine.derby.utils.marshall.KeyEncoder;
+import com.splicemachine.derby.utils.marshall.NoOpPostfix;
+import com.splicemachine.derby.utils.marshall.NoOpPrefix;
+import com.splicemachine.derby.utils.marshall.dvd.DescriptorSerializer;
+import com.splicemachine.derby.utils.marshall.dvd.VersionedSerializers;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building row keys from {@link ExecRow}s, as done when writing rows and when hashing
+ * rows for joins and aggregations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations=5,time=1)
+@Measurement(iterations=10,time=1)
+@Fork(1)
+public class KeyEncoderBenchmark{
+    private static final int NUM_ROWS=1024;
+
+    /**
+     * The (0-based) columns making up the key.
+     */
+    @Param({"0","0,1","0,1,2,3"})
+    public String keyColumns;
+
+    private ExecRow[] rows;
+    private KeyEncoder keyEncoder;
+
+    @Setup
+    public void setUp() throws StandardException{
+        Random random=new Random(0L);
+        rows=new ExecRow[NUM_ROWS];
+        for(int i=0;i<NUM_ROWS;i++){
+            rows[i]=newRow(random.nextInt(),BenchmarkData.randomString(random,8,32),random.nextLong(),random.nextDouble());
+        }
+        DescriptorSerializer[] serializers=VersionedSerializers.latestVersion(false).getSerializers(rows[0]);
+        keyEncoder=new KeyEncoder(NoOpPrefix.INSTANCE,
+                BareKeyHash.encoder(parseColumns(keyColumns),null,serializers),NoOpPostfix.INSTANCE);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException{
+        keyEncoder.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_ROWS)
+    public void getKey(Blackhole bh) throws StandardException, IOException{
+        for(ExecRow row:rows){
+            bh.consume(keyEncoder.getKey(row));
+        }
+    }
+
+    public static ExecRow newRow(int i,String s,long l,double d) throws StandardException{
+        ExecRow row=new ValueRow(4);
+        row.setColumn(1,new SQLInteger(i));
+        row.setColumn(2,new SQLVarchar(s));
+        row.setColumn(3,new SQLLongint(l));
+        row.setColumn(4,new SQLDouble(d));
+        return row;
+    }
+
+    public static int[] parseColumns(String columns){
+        String[] parts=columns.split(",");
+        int[] cols=new int[parts.length];
+        for(int i=0;i<parts.length;i++){
+            cols[i]=Integer.parseInt(parts[i].trim());
+        }
+        return cols;
+    }
+}
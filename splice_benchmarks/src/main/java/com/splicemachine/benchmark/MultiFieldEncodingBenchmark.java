@@ -0,0 +1,106 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.benchmark;
+
+import com.splicemachine.encoding.MultiFieldDecoder;
+import com.splicemachine.encoding.MultiFieldEncoder;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the sorted field encoding which backs row keys and packed rows.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations=5,time=1)
+@Measurement(iterations=10,time=1)
+@Fork(1)
+public class MultiFieldEncodingBenchmark{
+    private static final int NUM_ROWS=1024;
+
+    private final long[] longs=new long[NUM_ROWS];
+    private final int[] ints=new int[NUM_ROWS];
+    private final String[] strings=new String[NUM_ROWS];
+    private final double[] doubles=new double[NUM_ROWS];
+    private final BigDecimal[] decimals=new BigDecimal[NUM_ROWS];
+    private final byte[][] encoded=new byte[NUM_ROWS][];
+
+    private MultiFieldEncoder encoder;
+    private MultiFieldDecoder decoder;
+
+    @Setup
+    public void setUp(){
+        Random random=new Random(0L);
+        encoder=MultiFieldEncoder.create(5);
+        for(int i=0;i<NUM_ROWS;i++){
+            longs[i]=random.nextLong();
+            ints[i]=random.nextInt();
+            strings[i]=BenchmarkData.randomString(random,8,32);
+            doubles[i]=random.nextDouble();
+            decimals[i]=BigDecimal.valueOf(random.nextLong(),random.nextInt(10));
+            encoded[i]=encode(i);
+        }
+        decoder=MultiFieldDecoder.create();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_ROWS)
+    public void encode(Blackhole bh){
+        for(int i=0;i<NUM_ROWS;i++){
+            bh.consume(encode(i));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_ROWS)
+    public void decode(Blackhole bh){
+        for(byte[] row:encoded){
+            decoder.set(row);
+            bh.consume(decoder.decodeNextLong());
+            bh.consume(decoder.decodeNextInt());
+            bh.consume(decoder.decodeNextString());
+            bh.consume(decoder.decodeNextDouble());
+            bh.consume(decoder.decodeNextBigDecimal());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_ROWS)
+    public void skip(Blackhole bh){
+        for(byte[] row:encoded){
+            decoder.set(row);
+            decoder.skip();
+            decoder.skip();
+            decoder.skip();
+            bh.consume(decoder.decodeNextDouble());
+        }
+    }
+
+    private byte[] encode(int row){
+        encoder.reset();
+        return encoder.encodeNext(longs[row])
+                .encodeNext(ints[row])
+                .encodeNext(strings[row])
+                .encodeNext(doubles[row])
+                .encodeNext(decimals[row])
+                .build();
+    }
+}
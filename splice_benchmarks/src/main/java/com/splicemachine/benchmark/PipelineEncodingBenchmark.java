@@ -0,0 +1,98 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.benchmark;
+
+import com.splicemachine.concurrent.ConcurrentTicker;
+import com.splicemachine.kvpair.KVPair;
+import com.splicemachine.pipeline.client.BulkWrite;
+import com.splicemachine.pipeline.client.BulkWrites;
+import com.splicemachine.pipeline.client.PipelineCompressionCodec;
+import com.splicemachine.pipeline.client.PipelineEncoding;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.si.api.data.TxnOperationFactory;
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.impl.MOperationFactory;
+import com.splicemachine.si.impl.SimpleTxnOperationFactory;
+import com.splicemachine.si.impl.data.MExceptionFactory;
+import com.splicemachine.si.impl.txn.InheritingTxnView;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the wire encoding of write pipeline requests, for each encoding version and codec.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations=5,time=1)
+@Measurement(iterations=10,time=1)
+@Fork(1)
+public class PipelineEncodingBenchmark{
+    private static final int NUM_REGIONS=8;
+    private static final int ROWS_PER_REGION=1000;
+
+    @Param({"1","2"})
+    public int version;
+
+    @Param({"NONE","LZ4"})
+    public PipelineCompressionCodec codec;
+
+    private TxnOperationFactory operationFactory;
+    private BulkWrites bulkWrites;
+    private byte[] encoded;
+
+    @Setup
+    public void setUp(){
+        operationFactory=new SimpleTxnOperationFactory(MExceptionFactory.INSTANCE,new MOperationFactory(new ConcurrentTicker(0L)));
+        TxnView txn=new InheritingTxnView(Txn.ROOT_TRANSACTION,1L,1L,Txn.IsolationLevel.SNAPSHOT_ISOLATION,Txn.State.ACTIVE);
+
+        Random random=new Random(0L);
+        Collection<BulkWrite> writes=new ArrayList<>(NUM_REGIONS);
+        for(int i=0;i<NUM_REGIONS;i++){
+            Collection<KVPair> kvPairs=new ArrayList<>(ROWS_PER_REGION);
+            //the keys of a region are sorted and share a prefix, as they would for a sequential insert
+            long baseKey=random.nextLong();
+            for(int j=0;j<ROWS_PER_REGION;j++){
+                byte[] value=Bytes.toBytes(BenchmarkData.randomString(random,16,64));
+                kvPairs.add(new KVPair(Bytes.toBytes(baseKey+j),value,KVPair.Type.INSERT));
+            }
+            writes.add(new BulkWrite(kvPairs,Integer.toString(i),(byte)0));
+        }
+        bulkWrites=new BulkWrites(writes,txn);
+        encoded=PipelineEncoding.encode(operationFactory,bulkWrites,version,codec);
+    }
+
+    @Benchmark
+    public byte[] encode(){
+        return PipelineEncoding.encode(operationFactory,bulkWrites,version,codec);
+    }
+
+    @Benchmark
+    public void decode(Blackhole bh){
+        BulkWrites decoded=PipelineEncoding.decode(operationFactory,encoded);
+        for(BulkWrite bulkWrite:decoded.getBulkWrites()){
+            for(KVPair kvPair:bulkWrite.getMutations()){
+                bh.consume(kvPair);
+            }
+        }
+    }
+}
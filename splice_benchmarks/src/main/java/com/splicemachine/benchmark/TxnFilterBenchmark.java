@@ -0,0 +1,119 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.benchmark;
+
+import com.splicemachine.concurrent.ConcurrentTicker;
+import com.splicemachine.encoding.Encoding;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.constants.SIConstants;
+import com.splicemachine.si.impl.ClientTxnLifecycleManager;
+import com.splicemachine.si.impl.ManualKeepAliveScheduler;
+import com.splicemachine.si.impl.MemTimestampSource;
+import com.splicemachine.si.impl.MemTxnStore;
+import com.splicemachine.si.impl.SimpleTxnFilter;
+import com.splicemachine.si.impl.data.MExceptionFactory;
+import com.splicemachine.si.impl.readresolve.NoOpReadResolver;
+import com.splicemachine.storage.CellType;
+import com.splicemachine.storage.DataCell;
+import com.splicemachine.storage.MCell;
+import com.splicemachine.timestamp.api.TimestampSource;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures snapshot isolation visibility checks over a scan of rows written by a set of committed
+ * transactions, using the in-memory transaction store.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations=5,time=1)
+@Measurement(iterations=10,time=1)
+@Fork(1)
+public class TxnFilterBenchmark{
+    private static final int NUM_ROWS=1024;
+
+    /**
+     * Whether the rows carry a commit timestamp (i.e. have been read-resolved), in which case the
+     * filter does not need to look up the writing transaction.
+     */
+    @Param({"true","false"})
+    public boolean resolved;
+
+    /**
+     * The number of distinct transactions which wrote the rows.
+     */
+    @Param({"1","64"})
+    public int numWriters;
+
+    private DataCell[][] rows;
+    private MemTxnStore txnStore;
+    private TxnView reader;
+
+    @Setup
+    public void setUp() throws IOException{
+        TimestampSource timestampSource=new MemTimestampSource();
+        txnStore=new MemTxnStore(new ConcurrentTicker(0L),timestampSource,MExceptionFactory.INSTANCE,Long.MAX_VALUE);
+        ClientTxnLifecycleManager lifecycleManager=new ClientTxnLifecycleManager(timestampSource,MExceptionFactory.INSTANCE);
+        lifecycleManager.setTxnStore(txnStore);
+        lifecycleManager.setKeepAliveScheduler(new ManualKeepAliveScheduler(txnStore));
+
+        Txn[] writers=new Txn[numWriters];
+        for(int i=0;i<numWriters;i++){
+            writers[i]=lifecycleManager.beginTransaction(Bytes.toBytes("table"));
+            writers[i].commit();
+        }
+        reader=lifecycleManager.beginTransaction();
+
+        Random random=new Random(0L);
+        rows=new DataCell[NUM_ROWS][];
+        for(int i=0;i<NUM_ROWS;i++){
+            Txn writer=writers[random.nextInt(numWriters)];
+            byte[] key=Encoding.encode(i);
+            long version=writer.getBeginTimestamp();
+            DataCell userCell=new MCell(key,SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.PACKED_COLUMN_BYTES,
+                    version,Encoding.encode(BenchmarkData.randomString(random,8,32)),CellType.USER_DATA);
+            if(resolved){
+                DataCell commitCell=new MCell(key,SIConstants.DEFAULT_FAMILY_BYTES,SIConstants.SNAPSHOT_ISOLATION_COMMIT_TIMESTAMP_COLUMN_BYTES,
+                        version,Bytes.toBytes(writer.getCommitTimestamp()),CellType.COMMIT_TIMESTAMP);
+                rows[i]=new DataCell[]{commitCell,userCell};
+            }else
+                rows[i]=new DataCell[]{userCell};
+        }
+    }
+
+    /**
+     * Each invocation is a scan, which gets its own filter (and thus its own transaction cache), as it
+     * would on a region.
+     */
+    @Benchmark
+    @OperationsPerInvocation(NUM_ROWS)
+    public void filterCell(Blackhole bh) throws IOException{
+        SimpleTxnFilter filter=new SimpleTxnFilter(null,reader,NoOpReadResolver.INSTANCE,txnStore);
+        for(DataCell[] row:rows){
+            filter.nextRow();
+            for(DataCell cell:row){
+                bh.consume(filter.filterCell(cell));
+            }
+        }
+    }
+}
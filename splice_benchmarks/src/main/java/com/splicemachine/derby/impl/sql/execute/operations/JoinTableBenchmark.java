@@ -0,0 +1,132 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.benchmark.BenchmarkData;
+import com.splicemachine.benchmark.KeyEncoderBenchmark;
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.derby.impl.sql.JoinTable;
+import com.splicemachine.derby.utils.marshall.BareKeyHash;
+import com.splicemachine.derby.utils.marshall.DataHash;
+import com.splicemachine.derby.utils.marshall.KeyEncoder;
+import com.splicemachine.derby.utils.marshall.dvd.DescriptorSerializer;
+import com.splicemachine.derby.utils.marshall.dvd.VersionedSerializers;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures probing the in-memory hash table of a broadcast join. This lives in the operations
+ * package because the join tables are package-private.
+ *
+ * {@code ARENA} is the table broadcast joins load ({@link ArenaMappedJoinTable}), which decodes each
+ * matching inner row as it is fetched. {@code BYTE_BUFFER} is the map of decoded rows it replaced
+ * ({@link ByteBufferMappedJoinTable}), kept as a baseline for the cost of that decoding.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations=5,time=1)
+@Measurement(iterations=10,time=1)
+@Fork(1)
+public class JoinTableBenchmark{
+    private static final int NUM_PROBES=1024;
+    private static final int[] HASH_KEYS={0};
+
+    @Param({"1000","100000"})
+    public int innerRows;
+
+    /**
+     * The fraction of outer rows which have a match in the inner table.
+     */
+    @Param({"0.1","1.0"})
+    public double hitRatio;
+
+    @Param({"ARENA","BYTE_BUFFER"})
+    public TableType tableType;
+
+    private ExecRow[] outerRows;
+    private JoinTable joinTable;
+
+    @Setup
+    public void setUp() throws StandardException, IOException{
+        Random random=new Random(0L);
+        ExecRow template=KeyEncoderBenchmark.newRow(0,"",0L,0d);
+        DescriptorSerializer[] serializers=VersionedSerializers.latestVersion(false).getSerializers(template);
+        KeyEncoder innerKeyEncoder=KeyEncoder.bare(HASH_KEYS,null,serializers);
+        DataHash<ExecRow> innerRowEncoder=BareKeyHash.encoder(null,null,serializers);
+        ByteArenaHashTable arena=new ByteArenaHashTable();
+        Map<ByteBuffer,List<ExecRow>> map=new HashMap<>(innerRows);
+        for(int i=0;i<innerRows;i++){
+            ExecRow row=KeyEncoderBenchmark.newRow(i,BenchmarkData.randomString(random,8,32),random.nextLong(),random.nextDouble());
+            byte[] key=innerKeyEncoder.getKey(row);
+            if(tableType==TableType.ARENA){
+                innerRowEncoder.setRow(row);
+                arena.add(key,innerRowEncoder.encode());
+            }else{
+                List<ExecRow> rows=map.get(ByteBuffer.wrap(key));
+                if(rows==null){
+                    rows=new ArrayList<>(1);
+                    map.put(ByteBuffer.wrap(key),rows);
+                }
+                rows.add(row);
+            }
+        }
+        innerKeyEncoder.close();
+        innerRowEncoder.close();
+
+        outerRows=new ExecRow[NUM_PROBES];
+        for(int i=0;i<NUM_PROBES;i++){
+            int key=random.nextDouble()<hitRatio?random.nextInt(innerRows):innerRows+random.nextInt(innerRows);
+            outerRows[i]=KeyEncoderBenchmark.newRow(key,BenchmarkData.randomString(random,8,32),random.nextLong(),random.nextDouble());
+        }
+        JoinTable.Factory factory=tableType==TableType.ARENA?
+                new ArenaMappedJoinTable.Factory(arena,HASH_KEYS,template,template):
+                new ByteBufferMappedJoinTable.Factory(map,HASH_KEYS,template,0L);
+        joinTable=factory.newTable();
+    }
+
+    @TearDown
+    public void tearDown(){
+        joinTable.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_PROBES)
+    public void fetchInner(Blackhole bh) throws IOException, StandardException{
+        for(ExecRow outer:outerRows){
+            Iterator<ExecRow> inner=joinTable.fetchInner(outer);
+            while(inner.hasNext()){
+                bh.consume(inner.next());
+            }
+        }
+    }
+
+    public enum TableType{
+        ARENA,
+        BYTE_BUFFER
+    }
+}
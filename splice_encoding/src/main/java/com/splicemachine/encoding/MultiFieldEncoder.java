@@ -225,6 +225,30 @@ public class MultiFieldEncoder {
         return data;
     }
 
+    /**
+     * Get the positions at which every {@code stride}-th field starts within the output of {@link #build()}.
+     *
+     * @param stride the number of fields between each reported position
+     * @return the offsets of fields {@code stride}, {@code 2*stride}, ... (of those encoded so far),
+     * relative to the start of the built array.
+     */
+    public int[] getFieldOffsets(int stride){
+        if(currentPos==0) return new int[0];
+        int[] offsets = new int[(currentPos-1)/stride];
+        int destPos=0;
+        for(int srcPos=0;srcPos<currentPos;srcPos++){
+            if(srcPos!=0){
+                destPos++; //the delimiter
+                if(srcPos%stride==0)
+                    offsets[srcPos/stride-1] = destPos;
+            }
+            byte[] src = fields[srcPos];
+            if(src!=null)
+                destPos+=src.length;
+        }
+        return offsets;
+    }
+
     public void mark() {
         markedPos = currentPos;
         markedSize = currentSize;
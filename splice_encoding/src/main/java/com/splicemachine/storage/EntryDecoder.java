@@ -17,6 +17,7 @@ package com.splicemachine.storage;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.NoSuchElementException;
 import com.splicemachine.encoding.MultiFieldDecoder;
 import com.splicemachine.storage.index.BitIndex;
@@ -38,10 +39,17 @@ public class EntryDecoder implements Supplier<MultiFieldDecoder> {
     /* Just the BitIndex bytes from the last set of bytes we were decoding */
     private ByteSlice lastIndexData;
 
-    /* Position within currentData of the first delimiter (end of BitIndex)  */
+    /* Position within currentData of the first field */
     private int dataOffset;
 
+    /* Position within currentData of the field offset table, or -1 if the entry has none */
+    private int offsetTableOffset = -1;
+    private int offsetWidth;
+    private int offsetShift;
+
     private BitIndex bitIndex;
+    /* The set positions of bitIndex, in order. Built when first needed */
+    private int[] setPositions;
     private MultiFieldDecoder decoder;
 
     public EntryDecoder() {
@@ -64,6 +72,7 @@ public class EntryDecoder implements Supplier<MultiFieldDecoder> {
         currentData.set(bytes, offset, length);
 
         rebuildBitIndex();
+        readFieldOffsets();
         if (decoder != null)
             decoder.set(bytes, offset + dataOffset, length - dataOffset);
     }
@@ -102,10 +111,82 @@ public class EntryDecoder implements Supplier<MultiFieldDecoder> {
             //sparse index
             bitIndex = BitIndexing.sparseBitMap(data, offset, dataOffset);
         }
+        setPositions = null;
         lastIndexData.set(data, offset, dataOffset);
         dataOffset++;
     }
 
+    private void readFieldOffsets() {
+        byte[] data = currentData.array();
+        int offset = currentData.offset();
+        if ((data[offset] & EntryEncoder.FIELD_OFFSETS_BIT) == 0 || dataOffset >= currentData.length()) {
+            offsetTableOffset = -1;
+            return;
+        }
+        //the table header holds the stride and the width of an offset, and the BitIndex tells us how many there are
+        byte header = data[offset + dataOffset];
+        offsetShift = (header >>> 4) & 0x0F;
+        offsetWidth = header & 0x0F;
+        offsetTableOffset = dataOffset + 1;
+        dataOffset = offsetTableOffset + offsetWidth * ((bitIndex.cardinality() - 1) >>> offsetShift);
+    }
+
+    /**
+     * @return true if the current entry carries a field offset table, so that {@link #seekToField(MultiFieldDecoder, int)}
+     * can reach any field without skipping over all the fields in front of it.
+     */
+    public boolean hasFieldOffsets() {
+        return offsetTableOffset >= 0;
+    }
+
+    /**
+     * Move the decoder to the start of the field at {@code position}, which must be set in the index.
+     *
+     * @param decoder a decoder over the current entry, as returned by {@link #getEntryDecoder()}
+     * @param position the position of the field
+     */
+    public void seekToField(MultiFieldDecoder decoder, int position) {
+        int[] positions = getSetPositions();
+        int fieldNumber = Arrays.binarySearch(positions, position);
+        if (fieldNumber < 0) throw new NoSuchElementException();
+
+        int start = currentData.offset() + dataOffset;
+        int skipFrom = 0;
+        if (offsetTableOffset >= 0) {
+            int entry = fieldNumber >>> offsetShift;
+            if (entry > 0) {
+                start += readFieldOffset(entry - 1);
+                skipFrom = entry << offsetShift;
+            }
+        }
+        decoder.seek(start);
+        for (int i = skipFrom; i < fieldNumber; i++) {
+            seekForward(decoder, positions[i]);
+        }
+    }
+
+    private int readFieldOffset(int entry) {
+        byte[] data = currentData.array();
+        int pos = currentData.offset() + offsetTableOffset + entry * offsetWidth;
+        int fieldOffset = 0;
+        for (int i = 0; i < offsetWidth; i++) {
+            fieldOffset = (fieldOffset << 8) | (data[pos + i] & 0xFF);
+        }
+        return fieldOffset;
+    }
+
+    private int[] getSetPositions() {
+        if (setPositions == null) {
+            int[] positions = new int[bitIndex.cardinality()];
+            int n = 0;
+            for (int i = bitIndex.nextSetBit(0); i >= 0 && n < positions.length; i = bitIndex.nextSetBit(i + 1)) {
+                positions[n++] = i;
+            }
+            setPositions = positions;
+        }
+        return setPositions;
+    }
+
     public boolean isSet(int position) {
         return bitIndex.isSet(position);
     }
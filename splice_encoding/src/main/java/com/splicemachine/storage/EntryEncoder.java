@@ -24,6 +24,16 @@ import com.carrotsearch.hppc.BitSet;
 
 
 /**
+ * Encodes a row as its BitIndex, followed by a 0x00 separator and the (0x00-delimited) encoded fields.
+ *
+ * When field offsets are enabled, and the row has enough fields to make it worthwhile, an offset table is
+ * placed between the separator and the fields, so that a reader can jump to a field without skipping over all
+ * the fields in front of it (see {@link EntryDecoder#seekToField(com.splicemachine.encoding.MultiFieldDecoder, int)}).
+ * The table is one header byte, holding the stride shift in the upper 4 bits and the width of an offset (1, 2 or 4
+ * bytes) in the lower 4, followed by the big-endian start offsets (relative to the start of the fields) of every
+ * {@code 1<<shift}-th field, excluding the first. Entries which carry a table have the 0x10 bit set in the first
+ * byte of their BitIndex, which the BitIndex encodings leave unused; entries without it are read as before.
+ *
  * @author Scott Fines
  *         Created on: 7/5/13
  */
@@ -41,14 +51,24 @@ public class EntryEncoder {
      * The bit to indicate whether or not the data has been compressed.
      */
     private static final byte COMPRESSED_DATA_BIT = 0x20;
+    /*
+     * The bit to indicate that an offset table follows the BitIndex.
+     */
+    static final byte FIELD_OFFSETS_BIT = 0x10;
+    /*
+     * An offset is recorded for every 8th field, so a reader skips at most 7 fields to reach any field.
+     */
+    static final int FIELD_OFFSET_SHIFT = 3;
 
     private MultiFieldEncoder encoder;
     private final KryoPool kryoPool;
+    private final boolean storeFieldOffsets;
 
-    private EntryEncoder(KryoPool kryoPool,BitIndex bitIndex){
+    private EntryEncoder(KryoPool kryoPool,BitIndex bitIndex,boolean storeFieldOffsets){
         this.bitIndex = bitIndex;
         this.encoder = MultiFieldEncoder.create(bitIndex.cardinality());
         this.kryoPool = kryoPool;
+        this.storeFieldOffsets = storeFieldOffsets;
     }
 
     public MultiFieldEncoder getEntryEncoder(){
@@ -60,13 +80,53 @@ public class EntryEncoder {
     public byte[] encode() throws IOException {
         byte[] finalData = encoder.build();
         byte[] bitData = bitIndex.encode();
-        byte[] entry = new byte[bitData.length+finalData.length+1];
+        int[] fieldOffsets = storeFieldOffsets? getFieldOffsets(): null;
+        if(fieldOffsets==null){
+            byte[] entry = new byte[bitData.length+finalData.length+1];
+            System.arraycopy(bitData, 0, entry, 0, bitData.length);
+            entry[bitData.length] = 0;
+            System.arraycopy(finalData,0,entry,bitData.length+1,finalData.length);
+            return entry;
+        }
+
+        int width = offsetWidth(finalData.length);
+        int tableLength = 1+width*fieldOffsets.length;
+        byte[] entry = new byte[bitData.length+1+tableLength+finalData.length];
         System.arraycopy(bitData, 0, entry, 0, bitData.length);
+        entry[0] |= FIELD_OFFSETS_BIT; //the BitIndex may be cached, so only mark our copy
         entry[bitData.length] = 0;
-        System.arraycopy(finalData,0,entry,bitData.length+1,finalData.length);
+        int pos = bitData.length+1;
+        entry[pos++] = (byte)(FIELD_OFFSET_SHIFT<<4 | width);
+        for(int fieldOffset:fieldOffsets){
+            for(int shift=8*(width-1);shift>=0;shift-=8){
+                entry[pos++] = (byte)(fieldOffset>>>shift);
+            }
+        }
+        System.arraycopy(finalData,0,entry,pos,finalData.length);
         return entry;
     }
 
+    /*
+     * @return the offsets to record, or null if the entry isn't wide enough to need any.
+     */
+    private int[] getFieldOffsets(){
+        int numFields = bitIndex.cardinality();
+        if(numFields<=1<<FIELD_OFFSET_SHIFT) return null;
+        int[] fieldOffsets = encoder.getFieldOffsets(1<<FIELD_OFFSET_SHIFT);
+        /*
+         * Readers find the size of the table from the BitIndex, so we can only write it when
+         * every field in the index has been encoded
+         */
+        if(fieldOffsets.length!=(numFields-1)>>>FIELD_OFFSET_SHIFT) return null;
+        return fieldOffsets;
+    }
+
+    private static int offsetWidth(int dataLength){
+        if(dataLength<=0xFF) return 1;
+        else if(dataLength<=0xFFFF) return 2;
+        else return 4;
+    }
+
     public void reset(BitSet nonNullFields) {
         int oldCardinality = bitIndex.cardinality();
         boolean differs = nonNullFields.cardinality() != oldCardinality;
@@ -148,13 +208,23 @@ public class EntryEncoder {
     }
 
     public static EntryEncoder create(KryoPool kryoPool,int numCols, BitSet setCols,BitSet scalarFields,BitSet floatFields,BitSet doubleFields){
+        return create(kryoPool,numCols,setCols,scalarFields,floatFields,doubleFields,false);
+    }
+
+    /**
+     * @param storeFieldOffsets whether to write an offset table for wide entries, so that readers can jump
+     *                          straight to the fields they need. Only rows of tables whose readers know about
+     *                          the table should be written with it.
+     */
+    public static EntryEncoder create(KryoPool kryoPool,int numCols, BitSet setCols,BitSet scalarFields,BitSet floatFields,BitSet doubleFields,
+                                      boolean storeFieldOffsets){
         //TODO -sf- return all full stuff as well
         BitIndex indexToUse = BitIndexing.getBestIndex(setCols, scalarFields, floatFields, doubleFields);
-        return new EntryEncoder(kryoPool,indexToUse);
+        return new EntryEncoder(kryoPool,indexToUse,storeFieldOffsets);
     }
 
     public static EntryEncoder create(KryoPool kryoPool,BitIndex newIndex){
-        return new EntryEncoder(kryoPool,newIndex);
+        return new EntryEncoder(kryoPool,newIndex,false);
     }
 
 
@@ -44,16 +44,39 @@ public class EntryPredicateFilter {
 		public boolean match(Indexed index,
 												 Supplier<MultiFieldDecoder> decoderProvider,
 												 EntryAccumulator accumulator) throws IOException{
+				return match(index,decoderProvider.get(),null,accumulator);
+		}
+
+		public boolean match(EntryDecoder entry,EntryAccumulator accumulator) throws IOException {
+				/*
+				 * If the entry records where its fields start, jump over the fields we don't want instead
+				 * of skipping them one at a time
+				 */
+				EntryDecoder fieldSeeker = entry.hasFieldOffsets()? entry: null;
+				return match(entry.getCurrentIndex(),entry.getEntryDecoder(),fieldSeeker,accumulator);
+    }
+
+		private boolean match(Indexed index,
+													MultiFieldDecoder decoder,
+													EntryDecoder fieldSeeker,
+													EntryAccumulator accumulator) throws IOException{
 				BitSet remainingFields = accumulator.getRemainingFields();
 
-				MultiFieldDecoder decoder = decoderProvider.get();
+				boolean skipped = false;
 				for(int encodedPos =index.nextSetBit(0);
 						remainingFields.cardinality()>0 && encodedPos>=0&&encodedPos<=remainingFields.length();
 						encodedPos=index.nextSetBit(encodedPos + 1)){
 						if(!remainingFields.get(encodedPos)){
-								skipField(decoder,encodedPos,index);
+								if(fieldSeeker!=null)
+										skipped = true;
+								else
+										skipField(decoder,encodedPos,index);
 								continue;
 						}
+						if(skipped){
+								fieldSeeker.seekToField(decoder,encodedPos);
+								skipped = false;
+						}
 
 						int offset = decoder.offset();
 
@@ -88,11 +111,6 @@ public class EntryPredicateFilter {
 				return true;
 		}
 
-
-		public boolean match(EntryDecoder entry,EntryAccumulator accumulator) throws IOException {
-				return match(entry.getCurrentIndex(),entry, accumulator);
-    }
-
     public void rowReturned(){
         //no-op
     }
@@ -16,6 +16,7 @@
 package com.splicemachine.storage;
 
 import com.splicemachine.encoding.Encoding;
+import com.splicemachine.encoding.MultiFieldDecoder;
 import com.splicemachine.encoding.MultiFieldEncoder;
 import com.splicemachine.utils.kryo.KryoPool;
 import org.junit.Assert;
@@ -130,4 +131,115 @@ public class EntryEncoderDecoderTest {
         Assert.assertEquals(0,decoder.getData(2).length);
     }
 
+    @Test
+    public void testSeekToFieldWithFieldOffsets() throws Exception {
+        byte[] encode = encodeWideRow(true);
+
+        EntryDecoder decoder = new EntryDecoder();
+        decoder.set(encode);
+        Assert.assertTrue("Entry should carry field offsets",decoder.hasFieldOffsets());
+        assertWideRowReadable(decoder);
+    }
+
+    @Test
+    public void testSeekToFieldWithoutFieldOffsets() throws Exception {
+        byte[] encode = encodeWideRow(false);
+
+        EntryDecoder decoder = new EntryDecoder();
+        decoder.set(encode);
+        Assert.assertFalse("Entry should not carry field offsets",decoder.hasFieldOffsets());
+        assertWideRowReadable(decoder);
+    }
+
+    @Test
+    public void testNarrowRowHasNoFieldOffsets() throws Exception {
+        BitSet setCols = new BitSet();
+        setCols.set(0);
+        setCols.set(1);
+        BitSet scalarFields = new BitSet();
+        scalarFields.set(0);
+        EntryEncoder encoder = EntryEncoder.create(defaultPool,2,setCols,scalarFields,new BitSet(),new BitSet(),true);
+        encoder.getEntryEncoder().encodeNext(1).encodeNext("one");
+        byte[] encode = encoder.encode();
+
+        EntryDecoder decoder = new EntryDecoder();
+        decoder.set(encode);
+        Assert.assertFalse("Narrow entry should not carry field offsets",decoder.hasFieldOffsets());
+        Assert.assertEquals(1, Encoding.decodeInt(decoder.getData(0)));
+        Assert.assertEquals("one", Encoding.decodeString(decoder.getData(1)));
+    }
+
+    @Test
+    public void testMixedEntriesShareDecoder() throws Exception {
+        EntryDecoder decoder = new EntryDecoder();
+        for(boolean fieldOffsets:new boolean[]{true,false,true,true,false}){
+            decoder.set(encodeWideRow(fieldOffsets));
+            Assert.assertEquals(fieldOffsets,decoder.hasFieldOffsets());
+            assertWideRowReadable(decoder);
+        }
+    }
+
+    private static final int WIDE_ROW_COLUMNS=40;
+
+    /*
+     * Every third column is unset, even columns are scalars, and the rest are strings long enough
+     * to need 2-byte offsets
+     */
+    private static byte[] encodeWideRow(boolean fieldOffsets) throws Exception {
+        BitSet setCols = new BitSet();
+        BitSet scalarFields = new BitSet();
+        for(int i=0;i<WIDE_ROW_COLUMNS;i++){
+            if(i%3==2) continue;
+            setCols.set(i);
+            if(i%2==0)
+                scalarFields.set(i);
+        }
+        EntryEncoder encoder = EntryEncoder.create(defaultPool,WIDE_ROW_COLUMNS,setCols,scalarFields,new BitSet(),new BitSet(),fieldOffsets);
+        MultiFieldEncoder entryEncoder = encoder.getEntryEncoder();
+        for(int i=setCols.nextSetBit(0);i>=0;i=setCols.nextSetBit(i+1)){
+            if(i%2==0)
+                entryEncoder.encodeNext((long)i*1000);
+            else
+                entryEncoder.encodeNext(wideString(i));
+        }
+        return encoder.encode();
+    }
+
+    private static String wideString(int column){
+        StringBuilder sb = new StringBuilder();
+        for(int i=0;i<column;i++){
+            sb.append("column").append(column);
+        }
+        return sb.toString();
+    }
+
+    private static void assertWideRowReadable(EntryDecoder decoder) throws Exception {
+        //sequentially
+        MultiFieldDecoder fieldDecoder = decoder.getEntryDecoder();
+        for(int i=0;i<WIDE_ROW_COLUMNS;i++){
+            if(i%3==2){
+                Assert.assertFalse(decoder.isSet(i));
+                continue;
+            }
+            if(i%2==0)
+                Assert.assertEquals((long)i*1000,fieldDecoder.decodeNextLong());
+            else
+                Assert.assertEquals(wideString(i),fieldDecoder.decodeNextString());
+        }
+
+        //in reverse, jumping to each field
+        fieldDecoder = decoder.getEntryDecoder();
+        for(int i=WIDE_ROW_COLUMNS-1;i>=0;i--){
+            if(i%3==2) continue;
+            decoder.seekToField(fieldDecoder,i);
+            if(i%2==0){
+                Assert.assertEquals((long)i*1000,fieldDecoder.decodeNextLong());
+                Assert.assertEquals((long)i*1000,Encoding.decodeLong(decoder.getData(i)));
+            }else{
+                Assert.assertEquals(wideString(i),fieldDecoder.decodeNextString());
+                Assert.assertEquals(wideString(i),Encoding.decodeString(decoder.getData(i)));
+            }
+        }
+    }
+
 }
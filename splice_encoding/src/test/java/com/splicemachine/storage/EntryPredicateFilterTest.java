@@ -16,7 +16,9 @@
 package com.splicemachine.storage;
 
 import com.carrotsearch.hppc.BitSet;
+import com.splicemachine.encoding.Encoding;
 import com.splicemachine.encoding.MultiFieldDecoder;
+import com.splicemachine.encoding.MultiFieldEncoder;
 import com.splicemachine.storage.index.BitIndex;
 import com.splicemachine.storage.index.BitIndexing;
 import com.splicemachine.utils.kryo.KryoPool;
@@ -140,4 +142,44 @@ public class EntryPredicateFilterTest {
         Assert.assertEquals("Incorrect string returned!",testType1,decodedField);
         Assert.assertTrue("more than one field available in field decoder!",fieldDecoder.nextIsNull());
     }
+
+    @Test
+    public void testReturnsOnlyMatchingColumnsFromRowWithFieldOffsets() throws Exception {
+        BitSet fieldsToReturn = new BitSet(30);
+        fieldsToReturn.set(3);
+        fieldsToReturn.set(4);
+        fieldsToReturn.set(25);
+        EntryPredicateFilter predicateFilter = new EntryPredicateFilter(fieldsToReturn,true);
+
+        BitSet setCols = new BitSet(30);
+        BitSet scalarFields = new BitSet(30);
+        for(int i=0;i<30;i++){
+            setCols.set(i);
+            if(i%2==0)
+                scalarFields.set(i);
+        }
+        EntryEncoder encoder = EntryEncoder.create(defaultPool,30,setCols,scalarFields,new BitSet(),new BitSet(),true);
+        MultiFieldEncoder entryEncoder = encoder.getEntryEncoder();
+        for(int i=0;i<30;i++){
+            if(i%2==0)
+                entryEncoder.encodeNext(i);
+            else
+                entryEncoder.encodeNext("field"+i);
+        }
+
+        EntryDecoder decoder = new EntryDecoder();
+        decoder.set(encoder.encode());
+        Assert.assertTrue("Entry should carry field offsets",decoder.hasFieldOffsets());
+
+        EntryAccumulator accumulator = predicateFilter.newAccumulator();
+        Assert.assertTrue("did not match!",predicateFilter.match(decoder, accumulator));
+
+        EntryDecoder returned = new EntryDecoder();
+        returned.set(accumulator.finish());
+        BitIndex returnedIndex = returned.getCurrentIndex();
+        Assert.assertEquals("Incorrect number of fields returned!",3,returnedIndex.cardinality());
+        Assert.assertEquals("field3",Encoding.decodeString(returned.getData(3)));
+        Assert.assertEquals(4,Encoding.decodeInt(returned.getData(4)));
+        Assert.assertEquals("field25",Encoding.decodeString(returned.getData(25)));
+    }
 }
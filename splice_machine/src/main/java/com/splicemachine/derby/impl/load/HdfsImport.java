@@ -109,7 +109,7 @@ public class HdfsImport {
      * in a table. You choose the subset of columns by specifying insert columns.
      * <p/>
      * The syntax and usage of this procedure is identical to the syntax and usage of the
-     * {@link #IMPORT_DATA, SYSCS_UTIL.IMPORT_DATA} system procedure, except that SYSCS_UTIL.UPSERT_DATA_FROM_FILE first
+     * {@link #IMPORT_DATA SYSCS_UTIL.IMPORT_DATA} system procedure, except that SYSCS_UTIL.UPSERT_DATA_FROM_FILE first
      * determines if the database already contains a record that matches an incoming record:
      * <ol>
      * <li>If a matching record is found in the database, that record is updated with column values from the incoming
@@ -188,6 +188,7 @@ public class HdfsImport {
                  charset,
                  true,
                  false,
+                 null,
                  results);
     }
 
@@ -268,6 +269,67 @@ public class HdfsImport {
                  charset,
                  false,
                  false,
+                 null,
+                 results);
+    }
+
+    /**
+     * The SYSCS_UTIL.BULK_IMPORT_HFILE system procedure imports data into an empty table the way
+     * {@link #IMPORT_DATA SYSCS_UTIL.IMPORT_DATA} does, except that, rather than writing each row to the table (and
+     * its indexes) through the write pipeline, it writes the rows into HFiles and bulk loads those. This is much
+     * faster for large initial loads. The import always runs on Spark, and only into tables which:
+     * <ul>
+     *     <li>are empty, along with their indexes</li>
+     *     <li>have no triggers</li>
+     *     <li>have no constraints other than primary keys and unique constraints</li>
+     * </ul>
+     * The table is checked for emptiness before the HFiles are written, but nothing keeps other transactions
+     * from writing to it between that check and the load, and the rows they write are not checked against the
+     * imported ones (for duplicate keys, for instance). Nothing else may write to the table while it is being
+     * bulk imported.
+     * <p/>
+     * The parameters are those of IMPORT_DATA, followed by:
+     *
+     * @param bulkImportDirectory The directory in which the HFiles are written before they are loaded. It must be
+     *                            writable by Splice Machine, and readable by HBase.
+     * @param results the procedure's internal result set, unseen by users.
+     * @throws SQLException
+     */
+    public static void BULK_IMPORT_HFILE(String schemaName,
+                                         String tableName,
+                                         String insertColumnList,
+                                         String fileName,
+                                         String columnDelimiter,
+                                         String characterDelimiter,
+                                         String timestampFormat,
+                                         String dateFormat,
+                                         String timeFormat,
+                                         long badRecordsAllowed,
+                                         String badRecordDirectory,
+                                         String oneLineRecords,
+                                         String charset,
+                                         String bulkImportDirectory,
+                                         ResultSet[] results
+    ) throws SQLException {
+        if (bulkImportDirectory == null)
+            throw PublicAPI.wrapStandardException(ErrorState.LANG_BULK_IMPORT_NOT_SUPPORTED.newException(tableName,
+                    "no bulk import directory was given"));
+        doImport(schemaName,
+                 tableName,
+                 insertColumnList,
+                 fileName,
+                 columnDelimiter,
+                 characterDelimiter,
+                 timestampFormat,
+                 dateFormat,
+                 timeFormat,
+                 badRecordsAllowed,
+                 badRecordDirectory,
+                 oneLineRecords,
+                 charset,
+                 false,
+                 false,
+                 bulkImportDirectory,
                  results);
     }
 
@@ -287,15 +349,16 @@ public class HdfsImport {
                                  String charset,
                                  boolean isUpsert,
                                  boolean isCheckScan,
+                                 String bulkImportDirectory,
                                  ResultSet[] results) throws SQLException {
         if (LOG.isTraceEnabled())
             SpliceLogUtils.trace(LOG, "doImport {schemaName=%s, tableName=%s, insertColumnList=%s, fileName=%s, " +
                                      "columnDelimiter=%s, characterDelimiter=%s, timestampFormat=%s, dateFormat=%s, " +
                 "timeFormat=%s, badRecordsAllowed=%d, badRecordDirectory=%s, oneLineRecords=%s, charset=%s, " +
-                "isUpsert=%s, isCheckScan=%s}",
+                "isUpsert=%s, isCheckScan=%s, bulkImportDirectory=%s}",
                                  schemaName, tableName, insertColumnListString, fileName, columnDelimiter, characterDelimiter,
                                  timestampFormat, dateFormat, timeFormat, badRecordsAllowed, badRecordDirectory,
-                                 oneLineRecords, charset, isUpsert, isCheckScan);
+                                 oneLineRecords, charset, isUpsert, isCheckScan, bulkImportDirectory);
 
         if (charset == null) {
             charset = StandardCharsets.UTF_8.name();
@@ -375,7 +438,8 @@ public class HdfsImport {
             ColumnInfo columnInfo = new ColumnInfo(conn, schemaName, tableName, insertColumnList);
             String insertSql = "INSERT INTO " + entityName + "(" + columnInfo.getInsertColumnNames() + ") " +
                 "--splice-properties insertMode=" + (isUpsert ? "UPSERT" : "INSERT") + ", statusDirectory=" +
-                badRecordDirectory + ", badRecordsAllowed=" + badRecordsAllowed + "\n" +
+                badRecordDirectory + ", badRecordsAllowed=" + badRecordsAllowed +
+                (bulkImportDirectory == null ? "" : ", bulkImportDirectory=" + bulkImportDirectory) + "\n" +
                 " SELECT "+
                     generateColumnList(((EmbedConnection)conn).getLanguageConnection(),schemaName,tableName,insertColumnList) +
                     " from " +
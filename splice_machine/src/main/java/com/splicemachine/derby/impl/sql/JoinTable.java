@@ -29,6 +29,11 @@ public interface JoinTable extends AutoCloseable{
 
     interface Factory{
         JoinTable newTable();
+
+        /**
+         * @return the approximate number of bytes of memory held by the tables this factory creates
+         */
+        long estimatedSizeInBytes();
     }
 
     Iterator<ExecRow> fetchInner(ExecRow outer) throws IOException, StandardException;
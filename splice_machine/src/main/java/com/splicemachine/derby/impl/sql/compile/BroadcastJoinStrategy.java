@@ -79,6 +79,11 @@ public class BroadcastJoinStrategy extends HashableJoinStrategy {
      * Checks to see if the innerTable is hashable.  If so, it then checks to make sure the
      * data size of the conglomerate (Table or Index) is less than SpliceConstants.broadcastRegionMBThreshold
      * using the HBaseRegionLoads.memstoreAndStorefileSize method on each region load.
+     *
+     * Unless hinted, the estimated size must also fit in the broadcast join arena budget, and in the
+     * memory budget of the broadcast join cache; otherwise the optimizer falls back to a merge sort join.
+     * The cache budget is checked against the estimate alone, not against what happens to be cached
+     * while planning, so the plan does not depend on the state of the planning JVM.
      * 
      */
 	@Override
@@ -120,7 +125,10 @@ public class BroadcastJoinStrategy extends HashableJoinStrategy {
         SConfiguration configuration=EngineDriver.driver().getConfiguration();
         long regionThreshold = configuration.getBroadcastRegionMbThreshold();
         long rowCountThreshold = configuration.getBroadcastRegionRowThreshold();
-        return wasHinted || (estimatedMemoryMB<regionThreshold && estimatedRowCount<rowCountThreshold) ;
+        long arenaThreshold = configuration.getBroadcastArenaMbThreshold();
+        long cacheThreshold = configuration.getBroadcastCacheMbThreshold();
+        return wasHinted || (estimatedMemoryMB<regionThreshold && estimatedMemoryMB<arenaThreshold
+                && estimatedMemoryMB<cacheThreshold && estimatedRowCount<rowCountThreshold) ;
 	}
 
     @Override
@@ -235,13 +235,14 @@ public class SpliceGenericResultSetFactory implements ResultSetFactory {
     @Override
     public NoPutResultSet getScrollInsensitiveResultSet(NoPutResultSet source,
                                                         Activation activation, int resultSetNumber, int sourceRowWidth,
-                                                        boolean scrollable, double optimizerEstimatedRowCount,
+                                                        boolean scrollable, boolean ordered,
+                                                        double optimizerEstimatedRowCount,
                                                         double optimizerEstimatedCost,
                                                         String explainPlan) throws StandardException {
         try{
             SpliceLogUtils.trace(LOG, "getScrollInsensitiveResultSet");
             ConvertedResultSet opSet = (ConvertedResultSet)source;
-            ScrollInsensitiveOperation op = new ScrollInsensitiveOperation(opSet.getOperation(),activation,resultSetNumber,sourceRowWidth,scrollable,optimizerEstimatedRowCount,optimizerEstimatedCost);
+            ScrollInsensitiveOperation op = new ScrollInsensitiveOperation(opSet.getOperation(),activation,resultSetNumber,sourceRowWidth,scrollable,ordered,optimizerEstimatedRowCount,optimizerEstimatedCost);
             op.markAsTopResultSet();
             op.setExplainPlan(explainPlan);
             return op;
@@ -1127,13 +1128,14 @@ public class SpliceGenericResultSetFactory implements ResultSetFactory {
                                              String storedAs,
                                              String location,
                                              String compression,
-                                             int partitionBy)
+                                             int partitionBy,
+                                             String bulkImportDirectory)
             throws StandardException {
         try{
             ConvertedResultSet below = (ConvertedResultSet)source;
             SpliceOperation top = new InsertOperation(below.getOperation(), generationClauses, checkGM, insertMode,
                     statusDirectory, failBadRecordCount,optimizerEstimatedRowCount,optimizerEstimatedCost, tableVersion,
-                    delimited,escaped,lines,storedAs,location, compression, partitionBy);
+                    delimited,escaped,lines,storedAs,location, compression, partitionBy, bulkImportDirectory);
             source.getActivation().getLanguageConnectionContext().getAuthorizer().authorize(source.getActivation(), 1);
             top.markAsTopResultSet();
             top.setExplainPlan(explainPlan);
@@ -18,7 +18,6 @@ package com.splicemachine.derby.impl.sql.execute.actions;
 import com.splicemachine.EngineDriver;
 import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.db.iapi.reference.SQLState;
-import com.splicemachine.db.iapi.services.io.FormatableBitSet;
 import com.splicemachine.db.iapi.sql.Activation;
 import com.splicemachine.db.iapi.sql.conn.LanguageConnectionContext;
 import com.splicemachine.db.iapi.sql.dictionary.*;
@@ -26,20 +25,25 @@ import com.splicemachine.db.iapi.sql.execute.ConstantAction;
 import com.splicemachine.db.iapi.store.access.TransactionController;
 import com.splicemachine.derby.ddl.DDLUtils;
 import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
-import com.splicemachine.derby.impl.sql.execute.operations.ScanOperation;
 import com.splicemachine.derby.impl.sql.execute.pin.DistributedPopulatePinJob;
+import com.splicemachine.derby.impl.sql.execute.pin.PinnedRegionCache;
+import com.splicemachine.derby.impl.sql.execute.pin.PinnedTableScans;
 import com.splicemachine.derby.impl.store.access.SpliceTransactionManager;
-import com.splicemachine.derby.impl.store.access.base.SpliceConglomerate;
 import com.splicemachine.derby.stream.iapi.DistributedDataSetProcessor;
 import com.splicemachine.derby.stream.iapi.ScanSetBuilder;
 import com.splicemachine.derby.stream.iapi.ScopeNamed;
 import com.splicemachine.derby.stream.utils.StreamUtils;
+import com.splicemachine.pipeline.Exceptions;
+import com.splicemachine.si.impl.driver.SIDriver;
 import com.splicemachine.si.api.txn.TxnView;
-import com.splicemachine.utils.IntArrays;
+import com.splicemachine.storage.Partition;
 import com.splicemachine.utils.SpliceLogUtils;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.apache.log4j.Logger;
 
+import java.io.IOException;
+import java.util.List;
+
 /**
  * Pin the table into columnar storage
  *
@@ -111,51 +115,26 @@ public class CreatePinConstantOperation implements ConstantAction, ScopeNamed {
 
         DistributedDataSetProcessor dsp = EngineDriver.driver().processorFactory().distributedProcessor();
         TxnView parentTxn = ((SpliceTransactionManager)userTransaction).getActiveStateTxn();
-        SpliceConglomerate conglomerate = (SpliceConglomerate) ((SpliceTransactionManager) activation.getTransactionController()).findConglomerate(td.getHeapConglomerateId());
-        int[] baseColumnMap = IntArrays.count(conglomerate.getFormat_ids().length);
-
-        FormatableBitSet accessedCols = new FormatableBitSet(conglomerate.getFormat_ids().length);
-        for (int i = 0; i < conglomerate.getFormat_ids().length; i++) {
-            accessedCols.set(i);
-        }
-
-        FormatableBitSet accessedKeyCols = new FormatableBitSet(conglomerate.getColumnOrdering().length);
-        for (int i = 0; i < conglomerate.getColumnOrdering().length; i++) {
-            accessedKeyCols.set(i);
-        }
-        ScanSetBuilder<LocatedRow> builder = dsp.newScanSet(null,Long.toString(td.getHeapConglomerateId()));
-            builder.tableDisplayName(tableName)
-                .transaction(parentTxn)
-                .scan(DDLUtils.createFullScan())
-                .keyColumnEncodingOrder(conglomerate.getColumnOrdering())
-                .reuseRowLocation(false)
-                .keyColumnSortOrder(conglomerate.getAscDescInfo())
-                .baseColumnMap(baseColumnMap)
-                .keyColumnTypes(ScanOperation.getKeyFormatIds(conglomerate.getColumnOrdering(),
-                        conglomerate.getFormat_ids()
-                ))
-                .keyDecodingMap(ScanOperation.getKeyDecodingMap(accessedKeyCols,
-                        conglomerate.getColumnOrdering(),
-                        baseColumnMap
-                ))
-                    .rowDecodingMap(ScanOperation.getRowDecodingMap(accessedKeyCols,conglomerate.getColumnOrdering(),baseColumnMap))
-                .accessedKeyColumns(accessedKeyCols)
-                .template(td.getEmptyExecRow())
-                .escaped(td.getEscaped())
-                .lines(td.getLines())
-                .delimited(td.getDelimited())
-                .location(td.getLocation())
-                .storedAs(td.getStoredAs())
-                .compression(td.getCompression());
+        PinnedTableScans scans = PinnedTableScans.forTable(activation, td);
+        ScanSetBuilder<LocatedRow> builder = scans.newScan(dsp, parentTxn, DDLUtils.createFullScan());
         String scope = this.getScopeName();
         String prefix = StreamUtils.getScopeString(this);
         String userId = activation.getLanguageConnectionContext().getCurrentUserId(activation);
         String jobGroup = userId + " <" +parentTxn.getTxnId() +">";
         try {
-            EngineDriver.driver().getOlapClient().execute(new DistributedPopulatePinJob(builder, scope, jobGroup, prefix, conglomerate.getContainerid()));
+            EngineDriver.driver().getOlapClient().execute(new DistributedPopulatePinJob(builder, scope, jobGroup, prefix, td.getHeapConglomerateId()));
         } catch (Exception e) {
             throw StandardException.plainWrapException(e);
         }
+        // control side scans read the regions hosted here from memory, so start copying them now
+        PinnedRegionCache cache = PinnedRegionCache.cache();
+        try (Partition table = SIDriver.driver().getTableFactory().getTable(Long.toString(td.getHeapConglomerateId()))) {
+            List<Partition> regions = table.subPartitions();
+            if (cache.shouldLoad(td.getHeapConglomerateId(), regions))
+                cache.load(regions, scans, EngineDriver.driver().processorFactory().localProcessor(activation, null));
+        } catch (IOException e) {
+            throw Exceptions.parseException(e);
+        }
     }
 
     @Override
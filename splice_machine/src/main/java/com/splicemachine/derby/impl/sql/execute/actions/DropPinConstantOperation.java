@@ -26,6 +26,7 @@ import com.splicemachine.db.iapi.sql.conn.LanguageConnectionContext;
 import com.splicemachine.db.iapi.sql.depend.DependencyManager;
 import com.splicemachine.db.iapi.sql.dictionary.*;
 import com.splicemachine.db.iapi.store.access.TransactionController;
+import com.splicemachine.derby.impl.sql.execute.pin.PinnedRegionCache;
 import com.splicemachine.derby.stream.iapi.DistributedDataSetProcessor;
 
 
@@ -84,6 +85,7 @@ public class DropPinConstantOperation extends DDLSingleTableConstantOperation {
         long heapId = td.getHeapConglomerateId();
         DistributedDataSetProcessor dsp = EngineDriver.driver().processorFactory().distributedProcessor();
         dsp.dropPinnedTable(heapId);
+        PinnedRegionCache.cache().invalidate(heapId);
 
     }
 
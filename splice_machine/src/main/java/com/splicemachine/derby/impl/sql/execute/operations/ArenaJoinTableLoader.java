@@ -0,0 +1,101 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.EngineDriver;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.derby.impl.sql.JoinTable;
+import com.splicemachine.derby.utils.marshall.BareKeyHash;
+import com.splicemachine.derby.utils.marshall.DataHash;
+import com.splicemachine.derby.utils.marshall.KeyEncoder;
+import com.splicemachine.derby.utils.marshall.NoOpPostfix;
+import com.splicemachine.derby.utils.marshall.NoOpPrefix;
+import com.splicemachine.derby.utils.marshall.dvd.DescriptorSerializer;
+import com.splicemachine.derby.utils.marshall.dvd.VersionedSerializers;
+import com.splicemachine.stream.Stream;
+import com.splicemachine.stream.StreamException;
+import com.splicemachine.utils.SpliceLogUtils;
+import org.apache.log4j.Logger;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Loads the inner side of a Broadcast join into a {@link ByteArenaHashTable}, so that the
+ * inner table costs roughly its encoded size in memory, rather than a cloned ExecRow (and
+ * all of its DataValueDescriptors) per row.
+ *
+ * The optimizer will not choose a broadcast join when the estimated inner side exceeds
+ * {@link com.splicemachine.access.api.SConfiguration#getBroadcastArenaMbThreshold()} (choosing a
+ * merge sort join instead), so exceeding that budget here means that the estimate was wrong or the
+ * join was hinted. In that case the table is still loaded (failing the query would be worse), but
+ * a warning is logged so that the plan can be corrected.
+ */
+@ThreadSafe
+class ArenaJoinTableLoader implements BroadcastJoinCache.JoinTableLoader{
+    private static final Logger LOG=Logger.getLogger(ArenaJoinTableLoader.class);
+    public static final BroadcastJoinCache.JoinTableLoader INSTANCE = new ArenaJoinTableLoader();
+
+    private ArenaJoinTableLoader(){} //singleton class
+
+    @Override
+    public JoinTable.Factory load(Callable<Stream<ExecRow>> streamLoader,int[] innerHashKeys,int[] outerHashKeys, ExecRow outerTemplateRow) throws ExecutionException{
+        ByteArenaHashTable table=new ByteArenaHashTable();
+        long budget=getBudget();
+        boolean warned=false;
+
+        ExecRow innerTemplateRow=null;
+        KeyEncoder innerKeyEncoder=null;
+        DataHash<ExecRow> innerRowEncoder=null;
+
+        try(Stream<ExecRow> innerRows=streamLoader.call()){
+            ExecRow right;
+            while((right=innerRows.next())!=null){
+                if(innerTemplateRow==null){
+                    innerTemplateRow=right.getNewNullRow();
+                    DescriptorSerializer[] innerSerializers=VersionedSerializers.latestVersion(false).getSerializers(right);
+                    innerKeyEncoder=new KeyEncoder(NoOpPrefix.INSTANCE,
+                            BareKeyHash.encoder(innerHashKeys,null,innerSerializers),NoOpPostfix.INSTANCE);
+                    innerRowEncoder=BareKeyHash.encoder(null,null,innerSerializers);
+                }
+
+                innerRowEncoder.setRow(right);
+                table.add(innerKeyEncoder.getKey(right),innerRowEncoder.encode());
+
+                if(!warned && table.sizeInBytes()>budget){
+                    warned=true;
+                    SpliceLogUtils.warn(LOG,"Broadcast join inner table exceeds the configured memory budget of %d bytes; "+
+                            "the optimizer estimate for this join is likely inaccurate",budget);
+                }
+            }
+        }catch(StreamException e){
+           throw new ExecutionException(e.getCause());
+        }catch(Exception e){
+            if(e instanceof ExecutionException) throw (ExecutionException)e;
+            else throw new ExecutionException(e);
+        }
+
+        if(LOG.isDebugEnabled())
+            SpliceLogUtils.debug(LOG,"Loaded %d rows with %d distinct keys into %d bytes",
+                    table.rowCount(),table.keyCount(),table.sizeInBytes());
+        return new ArenaMappedJoinTable.Factory(table,outerHashKeys,outerTemplateRow,innerTemplateRow);
+    }
+
+    private static long getBudget(){
+        return EngineDriver.driver().getConfiguration().getBroadcastArenaMbThreshold()*1024L*1024L;
+    }
+}
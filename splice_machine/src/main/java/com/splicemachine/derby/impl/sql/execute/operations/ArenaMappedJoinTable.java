@@ -0,0 +1,137 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.derby.impl.sql.JoinTable;
+import com.splicemachine.derby.utils.marshall.BareKeyHash;
+import com.splicemachine.derby.utils.marshall.KeyEncoder;
+import com.splicemachine.derby.utils.marshall.KeyHashDecoder;
+import com.splicemachine.derby.utils.marshall.NoOpPostfix;
+import com.splicemachine.derby.utils.marshall.NoOpPrefix;
+import com.splicemachine.derby.utils.marshall.dvd.DescriptorSerializer;
+import com.splicemachine.derby.utils.marshall.dvd.VersionedSerializers;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A JoinTable which is backed by a {@link ByteArenaHashTable}. Inner rows are held in their
+ * encoded form, and are only decoded when an outer row actually matches them.
+ *
+ */
+class ArenaMappedJoinTable implements JoinTable{
+    private final ByteArenaHashTable table;
+    private final KeyEncoder outerKeyEncoder;
+    private final ExecRow innerTemplateRow;
+    private final KeyHashDecoder innerRowDecoder;
+
+    ArenaMappedJoinTable(ByteArenaHashTable table,
+                         int[] outerHashkeys,
+                         ExecRow outerTemplateRow,
+                         ExecRow innerTemplateRow){
+        this.table=table;
+        this.innerTemplateRow=innerTemplateRow;
+        DescriptorSerializer[] serializers = VersionedSerializers.latestVersion(false).getSerializers(outerTemplateRow);
+        this.outerKeyEncoder = new KeyEncoder(NoOpPrefix.INSTANCE,
+                BareKeyHash.encoder(outerHashkeys,null,serializers),NoOpPostfix.INSTANCE);
+        if(innerTemplateRow!=null){
+            DescriptorSerializer[] innerSerializers=VersionedSerializers.latestVersion(false).getSerializers(innerTemplateRow);
+            this.innerRowDecoder=BareKeyHash.decoder(null,null,innerSerializers);
+        }else
+            this.innerRowDecoder=null;
+    }
+
+    @Override
+    public Iterator<ExecRow> fetchInner(ExecRow outer) throws IOException, StandardException{
+        if(table.rowCount()<=0)
+            return Collections.emptyIterator();
+        byte[] outerKey=outerKeyEncoder.getKey(outer);
+        assert outerKey!=null: "Programmer error: outer row does not have row key";
+        long head=table.find(outerKey,0,outerKey.length);
+        if(head==ByteArenaHashTable.NO_ENTRY)
+            return Collections.emptyIterator();
+        ByteArenaHashTable.EntryCursor cursor=table.cursor();
+        cursor.reset(head);
+        return new InnerRowIterator(cursor);
+    }
+
+    //nothing to close
+    @Override public void close(){}
+
+    private class InnerRowIterator implements Iterator<ExecRow>{
+        private final ByteArenaHashTable.EntryCursor cursor;
+
+        InnerRowIterator(ByteArenaHashTable.EntryCursor cursor){
+            this.cursor=cursor;
+        }
+
+        @Override
+        public boolean hasNext(){
+            return cursor.hasEntry();
+        }
+
+        @Override
+        public ExecRow next(){
+            if(!cursor.hasEntry()) throw new NoSuchElementException();
+            /*
+             * Callers may hold on to more than one inner row at a time (e.g. when cogrouping),
+             * so each match is decoded into a row of its own.
+             */
+            ExecRow row=innerTemplateRow.getNewNullRow();
+            innerRowDecoder.set(cursor.page(),cursor.rowOffset(),cursor.rowLength());
+            try{
+                innerRowDecoder.decode(row);
+            }catch(StandardException e){
+                throw new RuntimeException(e);
+            }
+            cursor.advance();
+            return row;
+        }
+
+        @Override
+        public void remove(){
+            throw new UnsupportedOperationException("Cannot remove rows from a JoinTable");
+        }
+    }
+
+    static class Factory implements JoinTable.Factory{
+        private final ByteArenaHashTable table;
+        private final int[] outerHashKeys;
+        private final ExecRow outerTemplateRow;
+        private final ExecRow innerTemplateRow;
+
+        Factory(ByteArenaHashTable table,int[] outerHashKeys,ExecRow outerTemplateRow,ExecRow innerTemplateRow){
+            this.table=table;
+            this.outerHashKeys=outerHashKeys;
+            this.outerTemplateRow=outerTemplateRow;
+            this.innerTemplateRow=innerTemplateRow;
+        }
+
+        @Override
+        public JoinTable newTable(){
+            return new ArenaMappedJoinTable(table,outerHashKeys,outerTemplateRow,innerTemplateRow);
+        }
+
+        @Override
+        public long estimatedSizeInBytes(){
+            return table.sizeInBytes();
+        }
+    }
+}
@@ -15,30 +15,65 @@
 
 package com.splicemachine.derby.impl.sql.execute.operations;
 
-import org.spark_project.guava.cache.Cache;
-import org.spark_project.guava.cache.CacheBuilder;
+import com.splicemachine.EngineDriver;
 import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.db.iapi.sql.execute.ExecRow;
 import com.splicemachine.derby.impl.sql.JoinTable;
+import com.splicemachine.hbase.jmx.JMXUtils;
 import com.splicemachine.pipeline.Exceptions;
 import com.splicemachine.stream.Stream;
 
+import javax.annotation.concurrent.ThreadSafe;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Represents a Cache of records for use in a Broadcast Join.
  *
+ * The cache is bounded by the estimated memory footprint of the cached inner tables, rather than
+ * by their number. Concurrent requests for the same operation share a single load.
+ *
+ * Whether a table is cached is decided once it has been built, and its size is known. Tables which are
+ * in use (that is, which have JoinTables open on them) are never evicted; tables which are no longer in
+ * use stay cached for a short while, so that later partitions of the same join can reuse them, and are
+ * evicted (least recently used first) when they expire or when room is needed for a new table. If a new
+ * table does not fit even then, it is not admitted: it is still shared by every join which asks for it while
+ * it is in use, and counts against the budget, but it is dropped as soon as it is no longer in use.
+ *
  * @author Scott Fines
  *         Date: 10/27/15
  */
-public class BroadcastJoinCache{
-    private final Cache<Long,ReferenceCountingFactory> cache;
+@ThreadSafe
+public class BroadcastJoinCache implements BroadcastJoinCacheManagement{
+    private static final long DEFAULT_IDLE_EXPIRY_MS = 2000L;
+
+    /*
+     * Ordered by access, so that the tables which were least recently asked for come first. The map, the
+     * resident bytes and the state of each entry are guarded by the cache's lock.
+     */
+    private final Map<Long,CacheEntry> cache = new LinkedHashMap<>(16,0.75f,true);
+    private long residentBytes;
     private final JoinTableLoader tableLoader;
+    private final long maxBytes;
+    private final long idleExpiryNanos;
+
+    private final AtomicLong hits = new AtomicLong(0l);
+    private final AtomicLong misses = new AtomicLong(0l);
+    private final AtomicLong evictions = new AtomicLong(0l);
+    private final AtomicLong rejectedAdmissions = new AtomicLong(0l);
+    private final AtomicLong loads = new AtomicLong(0l);
+    private final AtomicLong totalLoadTimeNanos = new AtomicLong(0l);
 
     interface JoinTableLoader{
         JoinTable.Factory load(Callable<Stream<ExecRow>> streamLoader,
@@ -47,56 +82,207 @@ public class BroadcastJoinCache{
                                ExecRow outerTemplateRow) throws ExecutionException;
     }
 
+    private static class Holder{
+        private static final BroadcastJoinCache INSTANCE = new BroadcastJoinCache();
+    }
+
+    /**
+     * @return the cache shared by all Broadcast joins in this JVM
+     */
+    public static BroadcastJoinCache getInstance(){
+        return Holder.INSTANCE;
+    }
+
     public BroadcastJoinCache(){
-       this(ByteBufferMapTableLoader.INSTANCE);
+       this(ArenaJoinTableLoader.INSTANCE,EngineDriver.driver().getConfiguration().getBroadcastCacheMbThreshold()*1024L*1024L);
     }
 
-    public BroadcastJoinCache(JoinTableLoader tableLoader){
+    public BroadcastJoinCache(JoinTableLoader tableLoader,long maxBytes){
+        this(tableLoader,maxBytes,DEFAULT_IDLE_EXPIRY_MS);
+    }
+
+    /**
+     * @param idleExpiryMs how long a table which is no longer in use stays cached
+     */
+    BroadcastJoinCache(JoinTableLoader tableLoader,long maxBytes,long idleExpiryMs){
         this.tableLoader = tableLoader;
-        this.cache =CacheBuilder.newBuilder()
-                .maximumSize(1000)
-                .expireAfterAccess(2,TimeUnit.SECONDS)
-                .softValues()
-                .build();
+        this.maxBytes = maxBytes;
+        this.idleExpiryNanos = TimeUnit.MILLISECONDS.toNanos(idleExpiryMs);
+    }
+
+    public static void registerJMX(MBeanServer mbs) throws Exception{
+        mbs.registerMBean(getInstance(),new ObjectName(JMXUtils.BROADCAST_JOIN_CACHE));
     }
 
+    /**
+     * Get the inner table of an operation, building it if no other caller has already done so. Every call must be
+     * matched by closing a JoinTable made by the returned factory, which releases the table.
+     */
     public JoinTable.Factory get(Long operationId,
                          Callable<Stream<ExecRow>> loader,
                          int[] rightHashKeys,
                          int[] leftHashKeys,
                          ExecRow leftTemplateRow) throws IOException, StandardException{
+        CacheEntry entry;
+        boolean load;
+        synchronized(this){
+            expireIdleEntries();
+            entry=cache.get(operationId);
+            load=entry==null;
+            if(load){
+                entry=new CacheEntry(operationId,new Loader(tableLoader,rightHashKeys,leftHashKeys,leftTemplateRow,loader));
+                cache.put(operationId,entry);
+                misses.incrementAndGet();
+            }else
+                hits.incrementAndGet();
+            entry.refCount++;
+        }
         try{
-            Loader callable=new Loader(operationId,tableLoader,rightHashKeys,leftHashKeys,leftTemplateRow,loader);
-            ReferenceCountingFactory joinTable=cache.get(operationId,callable);
-            joinTable.refCount.incrementAndGet();
-            return joinTable;
+            if(load){
+                /*
+                 * Callers for the same operation id wait on this load, so all partitions of an operation on
+                 * this JVM share a single table.
+                 */
+                long start=System.nanoTime();
+                entry.table.run();
+                try{
+                    entry.table.get();
+                }catch(ExecutionException e){
+                    remove(entry);
+                    throw e;
+                }
+                loads.incrementAndGet();
+                totalLoadTimeNanos.addAndGet(System.nanoTime()-start);
+                admit(entry);
+            }else
+                entry.table.get();
+            return entry;
         }catch(ExecutionException e){
+            release(entry);
             Throwable c = e.getCause();
             if(c instanceof StandardException)
                 throw (StandardException)c;
             else if(c instanceof IOException)
                 throw (IOException)c;
             else throw Exceptions.getIOException(c);
+        }catch(InterruptedException e){
+            release(entry);
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+
+    @Override public long getHitCount(){ return hits.get(); }
+    @Override public long getMissCount(){ return misses.get(); }
+    @Override public long getEvictionCount(){ return evictions.get(); }
+    @Override public long getRejectedAdmissionCount(){ return rejectedAdmissions.get(); }
+    @Override public synchronized long getResidentBytes(){ return residentBytes; }
+    @Override public long getMaximumBytes(){ return maxBytes; }
+    @Override public synchronized long getCachedTableCount(){ return cache.size(); }
+
+    @Override
+    public double getHitRate(){
+        long hitCount=hits.get();
+        long requestCount=hitCount+misses.get();
+        return requestCount==0?1.0d:(double)hitCount/requestCount;
+    }
+
+    @Override
+    public long getTotalLoadTimeMs(){
+        return TimeUnit.NANOSECONDS.toMillis(totalLoadTimeNanos.get());
+    }
+
+    @Override
+    public double getAverageLoadTimeMs(){
+        long loadCount=loads.get();
+        return loadCount==0?0.0d:(double)totalLoadTimeNanos.get()/loadCount/TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @Override
+    public synchronized String[] getCachedTables(){
+        List<String> tables=new ArrayList<>(cache.size());
+        for(Map.Entry<Long,CacheEntry> entry:cache.entrySet()){
+            CacheEntry cacheEntry=entry.getValue();
+            tables.add(String.format("operationId=%d, refCount=%d, bytes=%d",
+                    entry.getKey(),cacheEntry.refCount,cacheEntry.sizeInBytes));
+        }
+        return tables.toArray(new String[tables.size()]);
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+
+    /*
+     * Account for a newly built table, evicting idle tables to make room for it. If there is not enough room
+     * even then, the table stays shared (and counted) while it is in use, but is not admitted, so it is dropped
+     * once the last caller releases it.
+     */
+    private synchronized void admit(CacheEntry entry) throws ExecutionException, InterruptedException{
+        long size=entry.table.get().estimatedSizeInBytes();
+        entry.sizeInBytes=size;
+        residentBytes+=size;
+        if(residentBytes>maxBytes){
+            Iterator<CacheEntry> entries=cache.values().iterator();
+            while(residentBytes>maxBytes && entries.hasNext()){
+                CacheEntry candidate=entries.next();
+                if(candidate.isIdle()){
+                    entries.remove();
+                    evict(candidate);
+                }
+            }
+        }
+        if(residentBytes>maxBytes)
+            rejectedAdmissions.incrementAndGet();
+        else
+            entry.admitted=true;
+    }
+
+    private synchronized void release(CacheEntry entry){
+        entry.refCount--;
+        if(entry.refCount>0) return;
+        entry.releasedAt=System.nanoTime();
+        if(!entry.admitted && cache.get(entry.id)==entry){
+            //a table which did not fit is only kept for as long as it is in use
+            cache.remove(entry.id);
+            residentBytes-=entry.sizeInBytes;
+        }
+    }
+
+    private synchronized void remove(CacheEntry entry){
+        if(cache.get(entry.id)==entry)
+            cache.remove(entry.id);
+    }
+
+    private void expireIdleEntries(){
+        long now=System.nanoTime();
+        Iterator<CacheEntry> entries=cache.values().iterator();
+        while(entries.hasNext()){
+            CacheEntry entry=entries.next();
+            if(entry.isIdle() && now-entry.releasedAt>=idleExpiryNanos){
+                entries.remove();
+                evict(entry);
+            }
         }
     }
 
-    private class Loader implements Callable<ReferenceCountingFactory>{
+    private void evict(CacheEntry entry){
+        residentBytes-=entry.sizeInBytes;
+        evictions.incrementAndGet();
+    }
+
+    private static class Loader implements Callable<JoinTable.Factory>{
         private final JoinTableLoader loader;
         private final int[] innerHashKeys;
         private final int[] outerHashKeys;
         private final ExecRow outerTemplateRow;
         private final Callable<Stream<ExecRow>> streamLoader;
 
-        private final Long operationId;
-
-        public Loader(Long operationId,
-                      JoinTableLoader loader,
+        public Loader(JoinTableLoader loader,
                       int[] innerHashKeys,
                       int[] outerHashKeys,
                       ExecRow outerTemplateRow,
                       Callable<Stream<ExecRow>> streamLoader){
             this.loader=loader;
-            this.operationId=operationId;
             this.innerHashKeys=innerHashKeys;
             this.outerHashKeys=outerHashKeys;
             this.outerTemplateRow=outerTemplateRow;
@@ -104,20 +290,20 @@ public class BroadcastJoinCache{
         }
 
         @Override
-        public ReferenceCountingFactory call() throws Exception{
-            JoinTable.Factory load=loader.load(streamLoader,innerHashKeys,outerHashKeys,outerTemplateRow);
-            return new ReferenceCountingFactory(load,operationId);
+        public JoinTable.Factory call() throws Exception{
+            return loader.load(streamLoader,innerHashKeys,outerHashKeys,outerTemplateRow);
         }
     }
 
 
-    private static class ReferenceCountedJoinTable implements JoinTable{
+    private class ReferenceCountedJoinTable implements JoinTable{
         private final JoinTable delegate;
-        private ReferenceCountingFactory refFactory;
+        private final CacheEntry entry;
+        private boolean closed;
 
-        public ReferenceCountedJoinTable(JoinTable delegate,ReferenceCountingFactory refFactory){
+        public ReferenceCountedJoinTable(JoinTable delegate,CacheEntry entry){
             this.delegate=delegate;
-            this.refFactory=refFactory;
+            this.entry=entry;
         }
 
         @Override
@@ -127,30 +313,51 @@ public class BroadcastJoinCache{
 
         @Override
         public void close(){
-            refFactory.markClosed();
+            if(closed) return;
+            closed=true;
+            release(entry);
             delegate.close();
         }
     }
 
-    private class ReferenceCountingFactory implements JoinTable.Factory{
-        private final JoinTable.Factory delegate;
+    /*
+     * A cached table. The reference count is the number of callers of get() which have not yet closed the
+     * JoinTable they made from it.
+     */
+    private class CacheEntry implements JoinTable.Factory{
         private final Long id;
-        private AtomicInteger refCount = new AtomicInteger(0);
+        private final FutureTask<JoinTable.Factory> table;
+        private int refCount;
+        private boolean admitted;
+        private long sizeInBytes;
+        private long releasedAt;
 
-        public ReferenceCountingFactory(JoinTable.Factory delegate,Long id){
-            this.delegate=delegate;
+        CacheEntry(Long id,Callable<JoinTable.Factory> loader){
             this.id=id;
+            this.table=new FutureTask<>(loader);
         }
 
         @Override
         public JoinTable newTable(){
-            return new ReferenceCountedJoinTable(delegate.newTable(),this);
+            return new ReferenceCountedJoinTable(loaded().newTable(),this);
+        }
+
+        @Override
+        public long estimatedSizeInBytes(){
+            return loaded().estimatedSizeInBytes();
+        }
+
+        boolean isIdle(){
+            return admitted && refCount==0;
         }
 
-        public void markClosed(){
-            int refC=refCount.decrementAndGet();
-            if(refC<=0)
-                cache.invalidate(id);
+        private JoinTable.Factory loaded(){
+            assert table.isDone():"Table has not been loaded";
+            try{
+                return table.get();
+            }catch(InterruptedException|ExecutionException e){
+                throw new IllegalStateException(e); //get() only hands out entries which loaded successfully
+            }
         }
     }
 }
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import javax.management.MXBean;
+
+/**
+ * JMX Hook for monitoring the behavior of the Broadcast Join Cache.
+ */
+@MXBean
+public interface BroadcastJoinCacheManagement{
+
+    long getHitCount();
+
+    long getMissCount();
+
+    double getHitRate();
+
+    /**
+     * @return the number of tables which were no longer in use, and were removed from the cache because
+     * they expired or to make room for another table. Tables in use are never evicted.
+     */
+    long getEvictionCount();
+
+    /**
+     * @return the number of inner tables which were built but not cached, because they did not fit in
+     * the budget even after evicting every table not in use. The joins which built them still use them,
+     * but cannot share them with later joins.
+     */
+    long getRejectedAdmissionCount();
+
+    long getTotalLoadTimeMs();
+
+    double getAverageLoadTimeMs();
+
+    long getResidentBytes();
+
+    long getMaximumBytes();
+
+    long getCachedTableCount();
+
+    /**
+     * @return one entry per cached inner table, describing the operation id, the number of
+     * open JoinTables which currently reference it, and its estimated size. Entries whose
+     * reference count never drops back to zero point to JoinTables which are not being closed.
+     */
+    String[] getCachedTables();
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.hash.Hash32;
+import com.splicemachine.hash.HashFunctions;
+import com.splicemachine.primitives.Bytes;
+
+import java.util.Arrays;
+
+/**
+ * An open-addressing hash table which maps encoded keys to one or more encoded rows, where
+ * all keys and rows are packed into a small number of large {@code byte[]} pages instead of
+ * being held as individual objects.
+ *
+ * Each entry is laid out in a page as
+ *
+ * {@code [next entry address (8 bytes)][key length (4 bytes)][row length (4 bytes)][key][row]}
+ *
+ * and entries sharing the same key are chained together through the {@code next} address. The slot
+ * arrays only hold the key hash and the address of the most recently added entry for that key, so the
+ * heap cost of the table is a handful of arrays regardless of the number of rows loaded.
+ *
+ * Loading is not thread-safe: the table must be fully loaded by a single thread before it is read, and
+ * then handed to its readers in a way which makes the loaded state visible to them (the
+ * {@link BroadcastJoinCache} hands it out through a {@code FutureTask}). Once loaded, the table is never
+ * modified again, so it may be probed concurrently by any number of threads, as long as each thread uses
+ * its own {@link EntryCursor}.
+ */
+class ByteArenaHashTable{
+    static final long NO_ENTRY=-1L;
+    private static final int HEADER_SIZE=16;
+    private static final int DEFAULT_PAGE_SIZE=1<<20;
+    private static final float LOAD_FACTOR=0.5f;
+    private static final Hash32 HASH=HashFunctions.murmur3(0);
+
+    private final int pageSize;
+
+    private byte[][] pages;
+    private int numPages;
+    private int pagePosition;
+
+    private int[] slotHashes;
+    private long[] slotHeads;
+    private int numKeys;
+    private long numRows;
+    private long arenaBytes;
+
+    ByteArenaHashTable(){
+        this(16,DEFAULT_PAGE_SIZE);
+    }
+
+    ByteArenaHashTable(int initialKeys,int pageSize){
+        this.pageSize=pageSize;
+        int size=1;
+        while(size<initialKeys/LOAD_FACTOR) size<<=1;
+        this.slotHashes=new int[size];
+        this.slotHeads=new long[size];
+        Arrays.fill(slotHeads,NO_ENTRY);
+        this.pages=new byte[4][];
+        this.numPages=0;
+        this.pagePosition=0;
+    }
+
+    /**
+     * Add a row to the table under the specified key.
+     *
+     * @param key the encoded hash key of the row
+     * @param row the encoded row
+     */
+    void add(byte[] key,byte[] row){
+        int hash=HASH.hash(key,0,key.length);
+        int slot=findSlot(hash,key,0,key.length);
+        long address=append(slotHeads[slot],key,row);
+        if(slotHeads[slot]==NO_ENTRY){
+            slotHashes[slot]=hash;
+            numKeys++;
+        }
+        slotHeads[slot]=address;
+        numRows++;
+        if(numKeys>slotHeads.length*LOAD_FACTOR)
+            resize();
+    }
+
+    /**
+     * @return the address of the first entry stored under the key, or {@link #NO_ENTRY} if the
+     * key is not present in the table.
+     */
+    long find(byte[] key,int offset,int length){
+        int hash=HASH.hash(key,offset,length);
+        return slotHeads[findSlot(hash,key,offset,length)];
+    }
+
+    /**
+     * @return the approximate number of bytes held by this table, including page and slot overhead.
+     */
+    long sizeInBytes(){
+        return arenaBytes+slotHeads.length*(8L+4L);
+    }
+
+    int keyCount(){
+        return numKeys;
+    }
+
+    long rowCount(){
+        return numRows;
+    }
+
+    EntryCursor cursor(){
+        return new EntryCursor();
+    }
+
+    /**
+     * A read-only view over a chain of entries in the table. Cursors are cheap, but not
+     * thread-safe; each reading thread should use its own.
+     */
+    class EntryCursor{
+        private long address=NO_ENTRY;
+
+        void reset(long address){
+            this.address=address;
+        }
+
+        boolean hasEntry(){
+            return address!=NO_ENTRY;
+        }
+
+        void advance(){
+            address=Bytes.bytesToLong(page(),offset());
+        }
+
+        byte[] page(){
+            return pages[(int)(address>>>32)];
+        }
+
+        int rowOffset(){
+            int offset=offset();
+            return offset+HEADER_SIZE+Bytes.bytesToInt(page(),offset+8);
+        }
+
+        int rowLength(){
+            return Bytes.bytesToInt(page(),offset()+12);
+        }
+
+        private int offset(){
+            return (int)address;
+        }
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private int findSlot(int hash,byte[] key,int offset,int length){
+        int mask=slotHeads.length-1;
+        int pos=hash&mask;
+        while(true){
+            long head=slotHeads[pos];
+            if(head==NO_ENTRY) return pos;
+            if(slotHashes[pos]==hash && keyEquals(head,key,offset,length)) return pos;
+            pos=(pos+1)&mask;
+        }
+    }
+
+    private boolean keyEquals(long address,byte[] key,int offset,int length){
+        byte[] page=pages[(int)(address>>>32)];
+        int entryOffset=(int)address;
+        int keyLength=Bytes.bytesToInt(page,entryOffset+8);
+        return Bytes.equals(page,entryOffset+HEADER_SIZE,keyLength,key,offset,length);
+    }
+
+    private long append(long next,byte[] key,byte[] row){
+        int entrySize=HEADER_SIZE+key.length+row.length;
+        if(pagePosition+entrySize>currentPageLength()){
+            //oversized entries get a page of their own
+            newPage(Math.max(pageSize,entrySize));
+        }
+        int pageIndex=numPages-1;
+        byte[] page=pages[pageIndex];
+        int offset=pagePosition;
+        Bytes.longToBytes(next,page,offset);
+        Bytes.intToBytes(key.length,page,offset+8);
+        Bytes.intToBytes(row.length,page,offset+12);
+        System.arraycopy(key,0,page,offset+HEADER_SIZE,key.length);
+        System.arraycopy(row,0,page,offset+HEADER_SIZE+key.length,row.length);
+        pagePosition+=entrySize;
+        return (((long)pageIndex)<<32)|(offset&0xFFFFFFFFL);
+    }
+
+    private int currentPageLength(){
+        return numPages==0?0:pages[numPages-1].length;
+    }
+
+    private void newPage(int size){
+        if(numPages==pages.length)
+            pages=Arrays.copyOf(pages,pages.length*2);
+        pages[numPages++]=new byte[size];
+        pagePosition=0;
+        arenaBytes+=size;
+    }
+
+    private void resize(){
+        int[] oldHashes=slotHashes;
+        long[] oldHeads=slotHeads;
+        int newSize=oldHeads.length<<1;
+        slotHashes=new int[newSize];
+        slotHeads=new long[newSize];
+        Arrays.fill(slotHeads,NO_ENTRY);
+        int mask=newSize-1;
+        for(int i=0;i<oldHeads.length;i++){
+            if(oldHeads[i]==NO_ENTRY) continue;
+            int pos=oldHashes[i]&mask;
+            while(slotHeads[pos]!=NO_ENTRY)
+                pos=(pos+1)&mask;
+            slotHashes[pos]=oldHashes[i];
+            slotHeads[pos]=oldHeads[i];
+        }
+    }
+}
@@ -16,6 +16,7 @@
 package com.splicemachine.derby.impl.sql.execute.operations;
 
 import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
 import com.splicemachine.derby.impl.sql.JoinTable;
 import com.splicemachine.derby.utils.marshall.BareKeyHash;
 import com.splicemachine.derby.utils.marshall.KeyEncoder;
@@ -50,6 +51,7 @@ class ByteBufferMapTableLoader implements BroadcastJoinCache.JoinTableLoader{
 
         DescriptorSerializer[] innerSerializers=null;
         KeyEncoder innerKeyEncoder=null;
+        long estimatedSize=0l;
 
         try(Stream<ExecRow> innerRows=streamLoader.call()){
             ExecRow right;
@@ -65,8 +67,13 @@ class ByteBufferMapTableLoader implements BroadcastJoinCache.JoinTableLoader{
                 if(rows==null){
                     rows=new ArrayList<>(1);
                     table.put(key,rows);
+                    estimatedSize+=key.capacity();
+                }
+                ExecRow clone=right.getClone();
+                rows.add(clone);
+                for(DataValueDescriptor dvd:clone.getRowArray()){
+                    if(dvd!=null) estimatedSize+=dvd.estimateMemoryUsage();
                 }
-                rows.add(right.getClone());
             }
         }catch(StreamException e){
            throw new ExecutionException(e.getCause());
@@ -75,6 +82,6 @@ class ByteBufferMapTableLoader implements BroadcastJoinCache.JoinTableLoader{
             else throw new ExecutionException(e);
         }
 
-        return new ByteBufferMappedJoinTable.Factory(table,outerHashKeys,outerTemplateRow);
+        return new ByteBufferMappedJoinTable.Factory(table,outerHashKeys,outerTemplateRow,estimatedSize);
     }
 }
@@ -18,10 +18,19 @@ package com.splicemachine.derby.impl.sql.execute.operations;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 import com.splicemachine.db.catalog.types.ReferencedColumnsDescriptorImpl;
+import com.splicemachine.db.iapi.sql.conn.LanguageConnectionContext;
+import com.splicemachine.db.iapi.sql.dictionary.ConglomerateDescriptor;
+import com.splicemachine.db.iapi.sql.dictionary.ConstraintDescriptorList;
+import com.splicemachine.db.iapi.sql.dictionary.DataDictionary;
 import com.splicemachine.db.iapi.sql.dictionary.TableDescriptor;
 import com.splicemachine.db.impl.sql.GenericStorablePreparedStatement;
+import com.splicemachine.ddl.DDLMessage;
 import com.splicemachine.derby.stream.iapi.*;
 import com.splicemachine.utils.IntArrays;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
@@ -49,6 +58,7 @@ import com.splicemachine.derby.stream.output.WriteReadUtils;
 import com.splicemachine.derby.stream.output.insert.InsertPipelineWriter;
 import com.splicemachine.pipeline.ErrorState;
 import com.splicemachine.pipeline.Exceptions;
+import com.splicemachine.protobuf.ProtoUtil;
 import com.splicemachine.si.api.txn.TxnView;
 import com.splicemachine.si.impl.driver.SIDriver;
 import com.splicemachine.utils.Pair;
@@ -81,6 +91,7 @@ public class InsertOperation extends DMLWriteOperation implements HasIncrement{
     protected String compression;
     protected int partitionByRefItem;
     protected int[] partitionBy;
+    protected String bulkImportDirectory;
 
 
 
@@ -109,7 +120,8 @@ public class InsertOperation extends DMLWriteOperation implements HasIncrement{
                            String storedAs,
                            String location,
                            String compression,
-                           int partitionByRefItem) throws StandardException{
+                           int partitionByRefItem,
+                           String bulkImportDirectory) throws StandardException{
         super(source,generationClauses,checkGM,source.getActivation(),optimizerEstimatedRowCount,optimizerEstimatedCost,tableVersion);
         this.insertMode=InsertNode.InsertMode.valueOf(insertMode);
         this.statusDirectory=statusDirectory;
@@ -121,6 +133,7 @@ public class InsertOperation extends DMLWriteOperation implements HasIncrement{
         this.location = location;
         this.compression = compression;
         this.partitionByRefItem = partitionByRefItem;
+        this.bulkImportDirectory = bulkImportDirectory;
         init();
     }
 
@@ -253,6 +266,7 @@ public class InsertOperation extends DMLWriteOperation implements HasIncrement{
         location = in.readBoolean()?in.readUTF():null;
         compression = in.readBoolean()?in.readUTF():null;
         this.partitionByRefItem = in.readInt();
+        bulkImportDirectory = in.readBoolean()?in.readUTF():null;
     }
 
     @Override
@@ -287,6 +301,9 @@ public class InsertOperation extends DMLWriteOperation implements HasIncrement{
         if (compression!=null)
             out.writeUTF(compression);
         out.writeInt(partitionByRefItem);
+        out.writeBoolean(bulkImportDirectory!=null);
+        if (bulkImportDirectory!=null)
+            out.writeUTF(bulkImportDirectory);
     }
 
     @SuppressWarnings({ "unchecked" })
@@ -318,6 +335,23 @@ public class InsertOperation extends DMLWriteOperation implements HasIncrement{
                 new RuntimeException("storedAs type not supported -> " + storedAs);
             }
 
+            if(bulkImportDirectory!=null && dsp.getType()==DataSetProcessor.Type.SPARK){
+                PairDataSet dataSet=set.index(new InsertPairFunction(operationContext),true);
+                DataSetWriter writer=dataSet.bulkInsertData(operationContext)
+                        .bulkImportDirectory(bulkImportDirectory)
+                        .tentativeIndexList(getBulkImportIndexes())
+                        .autoIncrementRowLocationArray(autoIncrementRowLocationArray)
+                        .execRowDefinition(getExecRowDefinition())
+                        .execRowTypeFormatIds(execRowTypeFormatIds)
+                        .sequences(spliceSequences)
+                        .pkCols(pkCols)
+                        .tableVersion(tableVersion)
+                        .destConglomerate(heapConglom)
+                        .operationContext(operationContext)
+                        .txn(txn)
+                        .build();
+                return writer.write();
+            }
 
 
 
@@ -341,6 +375,47 @@ public class InsertOperation extends DMLWriteOperation implements HasIncrement{
 
     }
 
+    /**
+     * Check that the rows of this insert may be bulk loaded, rather than written through the write pipeline,
+     * which is only the case for plain inserts into tables whose constraints are all enforced by their
+     * indexes, and which have no triggers.
+     *
+     * @return the indexes of the table, which the rows must be written to as well
+     */
+    private List<DDLMessage.TentativeIndex> getBulkImportIndexes() throws StandardException{
+        LanguageConnectionContext lcc=activation.getLanguageConnectionContext();
+        DataDictionary dd=lcc.getDataDictionary();
+        TableDescriptor td=dd.getTableDescriptor(dd.getConglomerateDescriptor(heapConglom).getTableID());
+        if(!insertMode.equals(InsertNode.InsertMode.INSERT))
+            throw ErrorState.LANG_BULK_IMPORT_NOT_SUPPORTED.newException(td.getQualifiedName(),"only inserts can be bulk imported");
+        ConstraintDescriptorList constraints=dd.getConstraintDescriptors(td);
+        for(int i=0;i<constraints.size();i++){
+            int type=constraints.elementAt(i).getConstraintType();
+            if(type!=DataDictionary.PRIMARYKEY_CONSTRAINT && type!=DataDictionary.UNIQUE_CONSTRAINT)
+                throw ErrorState.LANG_BULK_IMPORT_NOT_SUPPORTED.newException(td.getQualifiedName(),"it has check or foreign key constraints");
+        }
+        if(!dd.getTriggerDescriptors(td).isEmpty())
+            throw ErrorState.LANG_BULK_IMPORT_NOT_SUPPORTED.newException(td.getQualifiedName(),"it has triggers");
+
+        /*
+         * Several descriptors may share an index conglomerate, in which case it is encoded as a unique index if
+         * any of them is unique (see DerbyContextFactoryLoader).
+         */
+        Map<Long,ConglomerateDescriptor> indexes=new LinkedHashMap<>();
+        for(ConglomerateDescriptor cd:td.getConglomerateDescriptorList()){
+            if(!cd.isIndex()) continue;
+            ConglomerateDescriptor other=indexes.get(cd.getConglomerateNumber());
+            if(other==null || (!other.getIndexDescriptor().isUnique() && cd.getIndexDescriptor().isUnique()))
+                indexes.put(cd.getConglomerateNumber(),cd);
+        }
+        List<DDLMessage.TentativeIndex> tentativeIndexList=new ArrayList<>(indexes.size());
+        for(ConglomerateDescriptor cd:indexes.values()){
+            tentativeIndexList.add(ProtoUtil.createTentativeIndex(lcc,heapConglom,cd.getConglomerateNumber(),td,
+                    cd.getIndexDescriptor().getIndexDescriptor()));
+        }
+        return tentativeIndexList;
+    }
+
     @Override
     public String getVTIFileName(){
         return getSubOperations().get(0).getVTIFileName();
@@ -17,7 +17,9 @@ package com.splicemachine.derby.impl.sql.execute.operations;
 
 import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
 import com.splicemachine.derby.iapi.sql.execute.SpliceOperationContext;
+import com.splicemachine.derby.impl.sql.execute.operations.vector.VectorizedScalarAggregate;
 import com.splicemachine.derby.stream.function.ScalarAggregateFlatMapFunction;
+import com.splicemachine.derby.stream.function.VectorizedScalarAggregateFlatMapFunction;
 import com.splicemachine.derby.stream.iapi.DataSet;
 import com.splicemachine.derby.stream.iapi.DataSetProcessor;
 import com.splicemachine.derby.stream.iapi.OperationContext;
@@ -120,6 +122,14 @@ public class ScalarAggregateOperation extends GenericAggregateOperation {
     @Override
     public DataSet<LocatedRow> getDataSet(DataSetProcessor dsp) throws StandardException {
         OperationContext<ScalarAggregateOperation> operationContext = dsp.createOperationContext(this);
+        if (dsp.getType() == DataSetProcessor.Type.LOCAL) {
+            // Batch execution is only available in control, where the scan and the aggregate run in the same thread
+            VectorizedScalarAggregate vectorized = VectorizedScalarAggregate.plan(this);
+            if (vectorized != null) {
+                DataSet<LocatedRow> scan = vectorized.getScan().getDataSet(dsp);
+                return scan.mapPartitions(new VectorizedScalarAggregateFlatMapFunction(operationContext), /*isLast=*/true, /*pushScope=*/true, "Vectorized Aggregation");
+            }
+        }
         DataSet<LocatedRow> dsSource = source.getDataSet(dsp);
         DataSet<LocatedRow> ds = dsSource.mapPartitions(new ScalarAggregateFlatMapFunction(operationContext, false), false, /*pushScope=*/true, "First Aggregation");
         DataSet<LocatedRow> ds2 = ds.coalesce(1, /*shuffle=*/true, /*isLast=*/false, operationContext, /*pushScope=*/true, "Coalesce");
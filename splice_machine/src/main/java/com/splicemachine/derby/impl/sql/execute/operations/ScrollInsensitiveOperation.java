@@ -84,6 +84,7 @@ public class ScrollInsensitiveOperation extends SpliceBaseOperation {
 	protected int sourceRowWidth;
 	protected SpliceOperation source;
 	protected boolean scrollable;
+	protected boolean ordered;
     protected boolean keepAfterCommit;
     private int maxRows;
     protected StatementContext statementContext;
@@ -116,6 +117,7 @@ public class ScrollInsensitiveOperation extends SpliceBaseOperation {
 			  Activation activation, int resultSetNumber,
 			  int sourceRowWidth,
 			  boolean scrollable,
+			  boolean ordered,
 			  double optimizerEstimatedRowCount,
 			  double optimizerEstimatedCost) throws StandardException {
 		super(activation, resultSetNumber, optimizerEstimatedRowCount, optimizerEstimatedCost);
@@ -124,6 +126,7 @@ public class ScrollInsensitiveOperation extends SpliceBaseOperation {
 		this.sourceRowWidth = sourceRowWidth;
 		this.source = source;
 		this.scrollable = scrollable;
+		this.ordered = ordered;
         if (isForUpdate()) {
             target = ((CursorActivation)activation).getTargetResultSet();
         } else {
@@ -131,6 +134,14 @@ public class ScrollInsensitiveOperation extends SpliceBaseOperation {
         }
 	}
 
+    /**
+     * @return true if the statement has an ORDER BY clause, so its rows must be returned in the order
+     * the source produces them
+     */
+    public boolean isOrdered() {
+        return ordered;
+    }
+
     @Override
     public void init(SpliceOperationContext context) throws IOException, StandardException{
         super.init(context);
@@ -144,6 +155,7 @@ public class ScrollInsensitiveOperation extends SpliceBaseOperation {
 		super.readExternal(in);
 		sourceRowWidth = in.readInt();
 		scrollable = in.readBoolean();
+		ordered = in.readBoolean();
         keepAfterCommit = in.readBoolean();
         maxRows = in.readInt();
         source = (SpliceOperation)in.readObject();
@@ -156,6 +168,7 @@ public class ScrollInsensitiveOperation extends SpliceBaseOperation {
 		super.writeExternal(out);
 		out.writeInt(sourceRowWidth);
 		out.writeBoolean(scrollable);
+		out.writeBoolean(ordered);
         out.writeBoolean(keepAfterCommit);
         out.writeInt(maxRows);
         out.writeObject(source);
@@ -25,10 +25,15 @@ import com.splicemachine.db.iapi.store.access.StaticCompiledOpenConglomInfo;
 import com.splicemachine.db.impl.sql.compile.ActivationClassBuilder;
 import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
 import com.splicemachine.derby.iapi.sql.execute.SpliceOperationContext;
+import com.splicemachine.derby.impl.sql.execute.operations.scanner.PrefetchedLookups;
+import com.splicemachine.derby.impl.sql.execute.operations.scanner.PrefetchedRowScanner;
 import com.splicemachine.derby.stream.iapi.DataSet;
 import com.splicemachine.derby.stream.iapi.DataSetProcessor;
+import com.splicemachine.derby.stream.iapi.ScanSetBuilder;
 import com.splicemachine.primitives.Bytes;
 import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.storage.DataCell;
+import com.splicemachine.storage.DataScan;
 import com.splicemachine.utils.ByteSlice;
 import com.splicemachine.utils.SpliceLogUtils;
 import org.apache.log4j.Logger;
@@ -37,6 +42,7 @@ import java.io.ObjectInput;
 import java.io.ObjectOutput;
 import java.util.Collections;
 import java.util.List;
+import java.util.regex.Pattern;
 import com.splicemachine.db.impl.sql.compile.FromTable;
 
 /**
@@ -53,7 +59,9 @@ public class TableScanOperation extends ScanOperation{
     public ByteSlice slice;
     protected int[] baseColumnMap;
     protected static final String NAME=TableScanOperation.class.getSimpleName().replaceAll("Operation","");
+    private static final Pattern VECTORIZE_HINT=Pattern.compile("\\bvectorize=true\\b",Pattern.CASE_INSENSITIVE);
     protected byte[] tableNameBytes;
+    private transient PrefetchedLookups prefetchedLookups;
 
     /**
      *
@@ -153,6 +161,7 @@ public class TableScanOperation extends ScanOperation{
                 tableName,indexName,conglomId);
         this.forUpdate=forUpdate;
         this.isConstraint=isConstraint;
+        this.userSuppliedOptimizerOverrides=userSuppliedOptimizerOverrides;
         this.rowsPerRead=rowsPerRead;
         this.tableName=Long.toString(scanInformation.getConglomerateId());
         this.tableDisplayName = tableName;
@@ -286,6 +295,53 @@ public class TableScanOperation extends ScanOperation{
         return cols;
     }
 
+    /**
+     *
+     * Whether the rows of this scan may be consumed in columnar batches (see
+     * {@link com.splicemachine.derby.impl.sql.execute.operations.vector.VectorizedScalarAggregate}). This is
+     * only done when asked for with the {@code vectorize=true} table property, and only for plain scans of
+     * native tables.
+     *
+     * The table properties are not serialized, so this is always false once the operation has been
+     * shipped elsewhere for execution.
+     *
+     * @return
+     */
+    public boolean isVectorized(){
+        return getClass()==TableScanOperation.class
+                && storedAs==null
+                && !rowIdKey
+                && userSuppliedOptimizerOverrides!=null
+                && VECTORIZE_HINT.matcher(userSuppliedOptimizerOverrides).find();
+    }
+
+    /**
+     *
+     * The key of the single row this scan reads, when it is an equality lookup on the full primary key of
+     * a native table. Such a scan can be served from a read made ahead of time (see
+     * {@link #setPrefetchedLookups(PrefetchedLookups)}).
+     *
+     * The key depends on the current values of the outer rows referenced by the start key, so it should be
+     * asked for once those are in place.
+     *
+     * @return the row key, or {@code null} if this scan may return anything but the row with that key.
+     * @throws StandardException
+     */
+    public byte[] getPointLookupKey() throws StandardException{
+        return getPointLookupKey(getScan());
+    }
+
+    /**
+     *
+     * Serve the scan from rows which have already been read, if the row it looks up is among them.
+     * The lookups apply to every subsequent execution of this scan, until they are replaced.
+     *
+     * @param prefetchedLookups the rows read ahead of time, or {@code null} to always scan.
+     */
+    public void setPrefetchedLookups(PrefetchedLookups prefetchedLookups){
+        this.prefetchedLookups=prefetchedLookups;
+    }
+
     /**
      *
      * Retrieve the DataSet abstraction for this table scan.
@@ -325,11 +381,19 @@ public class TableScanOperation extends ScanOperation{
      */
     public DataSet<LocatedRow> getTableScannerBuilder(DataSetProcessor dsp) throws StandardException{
         TxnView txn=getCurrentTransaction();
-        return dsp.<TableScanOperation,LocatedRow>newScanSet(this,tableName)
+        DataScan scan=getNonSIScan();
+        ScanSetBuilder<LocatedRow> builder=dsp.newScanSet(this,tableName);
+        if(prefetchedLookups!=null){
+            byte[] key=getPointLookupKey(scan);
+            List<DataCell> row=key==null?null:prefetchedLookups.get(key);
+            if(row!=null)
+                builder.scanner(new PrefetchedRowScanner(row));
+        }
+        return builder
                 .tableDisplayName(tableDisplayName)
                 .activation(activation)
                 .transaction(txn)
-                .scan(getNonSIScan())
+                .scan(scan)
                 .template(currentTemplate)
                 .tableVersion(tableVersion)
                 .indexName(indexName)
@@ -349,4 +413,31 @@ public class TableScanOperation extends ScanOperation{
                 .location(location)
                 .buildDataSet(this);
     }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private byte[] getPointLookupKey(DataScan scan) throws StandardException{
+        if(getClass()!=TableScanOperation.class
+                || indexName!=null
+                || storedAs!=null
+                || rowIdKey
+                || pin)
+            return null;
+        int[] columnOrdering=scanInformation.getColumnOrdering();
+        ExecRow startPosition=scanInformation.getStartPosition();
+        if(columnOrdering==null || columnOrdering.length==0
+                || startPosition==null || startPosition.nColumns()!=columnOrdering.length)
+            return null;
+        /*
+         * An equality scan over the full key starts at the key, and stops right after it (see
+         * DerbyBytesUtil.generateScanKeyForIndex()); anything else is a range which may hold more rows.
+         */
+        byte[] start=scan.getStartKey();
+        byte[] stop=scan.getStopKey();
+        if(start==null || start.length==0 || stop==null || stop.length!=start.length+1
+                || stop[start.length]!=0x01 || !Bytes.equals(start,0,start.length,stop,0,start.length)
+                || scan.getFilter()!=null)
+            return null;
+        return start;
+    }
 }
\ No newline at end of file
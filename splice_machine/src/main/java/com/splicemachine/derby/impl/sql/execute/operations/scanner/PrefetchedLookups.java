@@ -0,0 +1,74 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations.scanner;
+
+import com.splicemachine.storage.DataCell;
+import com.splicemachine.storage.DataResult;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The raw contents of a set of rows, read ahead of the scans which will look them up.
+ *
+ * Each row is kept with all of its versions and SI columns, exactly as a scan which has been
+ * {@link com.splicemachine.derby.impl.sql.execute.operations.ScanOperation#deSiify(com.splicemachine.storage.DataScan) deSiified}
+ * would have returned it, so that it can be fed to an {@link SITableScanner} in place of the scan. Rows which were
+ * looked up but do not exist are remembered as well, so that the scans for them can be skipped too.
+ *
+ * Instances are filled by a single thread, and are only read once they have been handed over to the scans.
+ */
+public class PrefetchedLookups{
+    private final Map<ByteBuffer, List<DataCell>> rows;
+
+    public PrefetchedLookups(int expectedSize){
+        this.rows=new HashMap<>(Math.max(16,expectedSize*4/3+1));
+    }
+
+    /**
+     * @param rowKey the key which was looked up
+     * @param result the result of the lookup, or {@code null} if the row could not be found
+     */
+    public void add(byte[] rowKey,DataResult result){
+        List<DataCell> cells;
+        if(result==null || result.size()<=0)
+            cells=Collections.emptyList();
+        else{
+            cells=new ArrayList<>(result.size());
+            for(DataCell cell : result){
+                //results may reuse their cells, so take a copy
+                cells.add(cell.getClone());
+            }
+        }
+        rows.put(ByteBuffer.wrap(rowKey),cells);
+    }
+
+    /**
+     * @return the cells of the row with key {@code rowKey} (empty if it does not exist), or {@code null} if
+     * the row was not looked up.
+     */
+    public List<DataCell> get(byte[] rowKey){
+        return rows.get(ByteBuffer.wrap(rowKey));
+    }
+
+    public int size(){
+        return rows.size();
+    }
+}
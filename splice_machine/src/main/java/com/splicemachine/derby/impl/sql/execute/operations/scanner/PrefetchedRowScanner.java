@@ -0,0 +1,83 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations.scanner;
+
+import com.splicemachine.metrics.Metrics;
+import com.splicemachine.metrics.TimeView;
+import com.splicemachine.storage.DataCell;
+import com.splicemachine.storage.DataScanner;
+import com.splicemachine.storage.Partition;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A scanner over a single row which has already been read (see {@link PrefetchedLookups}).
+ */
+public class PrefetchedRowScanner implements DataScanner{
+    private final List<DataCell> cells;
+    private boolean returned;
+
+    /**
+     * @param cells the cells of the row, or an empty list if there is no row to return
+     */
+    public PrefetchedRowScanner(List<DataCell> cells){
+        this.cells=cells;
+    }
+
+    @Nonnull
+    @Override
+    public List<DataCell> next(int limit){
+        if(returned || cells.isEmpty())
+            return Collections.emptyList();
+        returned=true;
+        return new ArrayList<>(cells);
+    }
+
+    @Override
+    public TimeView getReadTime(){
+        return Metrics.noOpTimeView();
+    }
+
+    @Override
+    public long getBytesOutput(){
+        return 0;
+    }
+
+    @Override
+    public long getRowsFiltered(){
+        return 0;
+    }
+
+    @Override
+    public long getRowsVisited(){
+        return cells.isEmpty()?0:1;
+    }
+
+    @Override
+    public void close(){
+    }
+
+    /**
+     * @return {@code null}, as the row has not been read through a partition of its own.
+     */
+    @Override
+    public Partition getPartition(){
+        return null;
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations.vector;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.Arrays;
+
+/**
+ * A batch of rows held column-wise. Only the columns which are actually needed have a vector; the others
+ * are dropped as rows are added.
+ *
+ * Rows are never physically removed from a batch. Instead, the batch carries a selection vector listing
+ * the positions of the rows which are still live, which predicates narrow down and aggregates iterate over.
+ */
+@NotThreadSafe
+public class ColumnBatch{
+    public static final int DEFAULT_CAPACITY=1024;
+
+    private final int capacity;
+    private final ColumnVector[] columns;
+    private int[] activeColumns=new int[0];
+    private final int[] selection;
+    private int size;
+    private int selectedCount;
+
+    /**
+     * @param numColumns the width of the rows which will be added to this batch
+     * @param capacity the maximum number of rows in the batch
+     */
+    public ColumnBatch(int numColumns,int capacity){
+        this.capacity=capacity;
+        this.columns=new ColumnVector[numColumns];
+        this.selection=new int[capacity];
+    }
+
+    /**
+     * Make sure the column at {@code position} (0-indexed, in the row) is kept in this batch.
+     *
+     * @return the vector holding the column, or {@code null} if the type of {@code template} has no vector
+     * representation.
+     */
+    public ColumnVector addColumn(int position,DataValueDescriptor template){
+        if(columns[position]==null){
+            ColumnVector vector=ColumnVector.newVector(template,capacity);
+            if(vector==null) return null;
+            columns[position]=vector;
+            activeColumns=Arrays.copyOf(activeColumns,activeColumns.length+1);
+            activeColumns[activeColumns.length-1]=position;
+        }
+        return columns[position];
+    }
+
+    public ColumnVector column(int position){
+        return columns[position];
+    }
+
+    public void reset(){
+        for(int position:activeColumns){
+            columns[position].reset();
+        }
+        size=0;
+        selectedCount=0;
+    }
+
+    public boolean isFull(){
+        return size==capacity;
+    }
+
+    public int size(){
+        return size;
+    }
+
+    /**
+     * Copy the kept columns of {@code row} into the next slot of the batch. The row itself is not retained,
+     * so it may be reused by the caller.
+     */
+    public void add(DataValueDescriptor[] row) throws StandardException{
+        assert size<capacity: "Batch is full";
+        for(int position:activeColumns){
+            columns[position].set(size,row[position]);
+        }
+        size++;
+    }
+
+    /**
+     * Take the first {@code size} rows as having been written straight into the column vectors (through their
+     * backing arrays and {@link ColumnVector#setNull(int)}) since the last {@link #reset()}, rather than
+     * through {@link #add(DataValueDescriptor[])}.
+     */
+    public void setSize(int size){
+        assert size<=capacity: "Batch is too small";
+        this.size=size;
+    }
+
+    /**
+     * Mark every row in the batch as live.
+     */
+    public void selectAll(){
+        for(int i=0;i<size;i++){
+            selection[i]=i;
+        }
+        selectedCount=size;
+    }
+
+    /**
+     * @return the positions of the live rows, in ascending order. Only the first {@link #selectedCount()}
+     * entries are meaningful.
+     */
+    public int[] selection(){
+        return selection;
+    }
+
+    public int selectedCount(){
+        return selectedCount;
+    }
+
+    /**
+     * Narrow the live rows down to the first {@code selectedCount} entries of {@link #selection()}.
+     */
+    public void setSelectedCount(int selectedCount){
+        assert selectedCount<=this.selectedCount: "Cannot select rows which were not already selected";
+        this.selectedCount=selectedCount;
+    }
+}
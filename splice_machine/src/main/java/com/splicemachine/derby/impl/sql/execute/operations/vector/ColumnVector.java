@@ -0,0 +1,136 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations.vector;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.services.io.StoredFormatIds;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+
+import java.util.Arrays;
+
+/**
+ * The values of a single column over a batch of rows, held as primitives with a separate null bitmap.
+ *
+ * Only the numeric types which fit losslessly into a {@code long} or a {@code double} have a vector
+ * representation; everything else is evaluated in row mode.
+ */
+public abstract class ColumnVector{
+    /**
+     * The type family of a column, which determines both how it is stored and how it compares
+     * against values of another family.
+     */
+    public enum Kind{
+        /** TINYINT, SMALLINT, INTEGER and BIGINT, stored as longs */
+        INTEGRAL,
+        /** REAL, stored as (exactly widened) doubles, but compared as floats against INTEGRAL values */
+        REAL,
+        /** DOUBLE */
+        DOUBLE
+    }
+
+    private final Kind kind;
+    private final DataValueDescriptor template;
+    private final long[] nulls;
+    private boolean hasNulls;
+
+    ColumnVector(Kind kind,DataValueDescriptor template,int capacity){
+        this.kind=kind;
+        this.template=template;
+        this.nulls=new long[(capacity+63)>>>6];
+    }
+
+    /**
+     * @return the kind of {@code dvd}, or {@code null} if values of its type cannot be held in a vector.
+     */
+    public static Kind kindOf(DataValueDescriptor dvd){
+        if(dvd==null) return null;
+        switch(dvd.getTypeFormatId()){
+            case StoredFormatIds.SQL_TINYINT_ID:
+            case StoredFormatIds.SQL_SMALLINT_ID:
+            case StoredFormatIds.SQL_INTEGER_ID:
+            case StoredFormatIds.SQL_LONGINT_ID:
+                return Kind.INTEGRAL;
+            case StoredFormatIds.SQL_REAL_ID:
+                return Kind.REAL;
+            case StoredFormatIds.SQL_DOUBLE_ID:
+                return Kind.DOUBLE;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @return a vector for values of the same type as {@code template}, or {@code null} if that type
+     * has no vector representation.
+     */
+    public static ColumnVector newVector(DataValueDescriptor template,int capacity){
+        Kind kind=kindOf(template);
+        if(kind==null) return null;
+        switch(kind){
+            case INTEGRAL:
+                return new LongColumnVector(template,capacity);
+            default:
+                return new DoubleColumnVector(kind,template,capacity);
+        }
+    }
+
+    public Kind getKind(){
+        return kind;
+    }
+
+    /**
+     * @return a value of the column's SQL type, to be used as a prototype when materializing values
+     * computed over this vector.
+     */
+    public DataValueDescriptor getTemplate(){
+        return template;
+    }
+
+    public final void set(int row,DataValueDescriptor value) throws StandardException{
+        if(value==null || value.isNull()){
+            nulls[row>>>6]|=1L<<row;
+            hasNulls=true;
+        }else{
+            nulls[row>>>6]&=~(1L<<row);
+            setValue(row,value);
+        }
+    }
+
+    public final void setNull(int row){
+        nulls[row>>>6]|=1L<<row;
+        hasNulls=true;
+    }
+
+    public final boolean isNull(int row){
+        return hasNulls && (nulls[row>>>6]&(1L<<row))!=0;
+    }
+
+    /**
+     * @return true if any value set since the last {@link #reset()} was null.
+     */
+    public final boolean hasNulls(){
+        return hasNulls;
+    }
+
+    final void reset(){
+        if(hasNulls){
+            Arrays.fill(nulls,0L);
+            hasNulls=false;
+        }
+    }
+
+    protected abstract void setValue(int row,DataValueDescriptor value) throws StandardException;
+}
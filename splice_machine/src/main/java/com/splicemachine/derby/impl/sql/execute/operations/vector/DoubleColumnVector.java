@@ -0,0 +1,48 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations.vector;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+
+/**
+ * A vector of REAL or DOUBLE values. REAL values are widened to doubles, which is exact.
+ */
+public class DoubleColumnVector extends ColumnVector{
+    private final double[] values;
+
+    DoubleColumnVector(Kind kind,DataValueDescriptor template,int capacity){
+        super(kind,template,capacity);
+        assert kind!=Kind.INTEGRAL: "Integral values belong in a LongColumnVector";
+        this.values=new double[capacity];
+    }
+
+    /**
+     * @return the backing array. Entries for null rows are undefined.
+     */
+    public double[] values(){
+        return values;
+    }
+
+    public double get(int row){
+        return values[row];
+    }
+
+    @Override
+    protected void setValue(int row,DataValueDescriptor value) throws StandardException{
+        values[row]=getKind()==Kind.REAL?value.getFloat():value.getDouble();
+    }
+}
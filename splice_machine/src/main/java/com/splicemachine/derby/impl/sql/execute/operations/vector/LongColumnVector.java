@@ -0,0 +1,47 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations.vector;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+
+/**
+ * A vector of integral values of any width.
+ */
+public class LongColumnVector extends ColumnVector{
+    private final long[] values;
+
+    LongColumnVector(DataValueDescriptor template,int capacity){
+        super(Kind.INTEGRAL,template,capacity);
+        this.values=new long[capacity];
+    }
+
+    /**
+     * @return the backing array. Entries for null rows are undefined.
+     */
+    public long[] values(){
+        return values;
+    }
+
+    public long get(int row){
+        return values[row];
+    }
+
+    @Override
+    protected void setValue(int row,DataValueDescriptor value) throws StandardException{
+        values[row]=value.getLong();
+    }
+}
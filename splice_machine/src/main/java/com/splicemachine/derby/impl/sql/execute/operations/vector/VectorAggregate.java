@@ -0,0 +1,264 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations.vector;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.reference.ClassName;
+import com.splicemachine.db.iapi.sql.execute.ExecAggregator;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLDouble;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import com.splicemachine.db.impl.sql.execute.AggregatorInfo;
+
+/**
+ * One of the built-in aggregates, computed over the live rows of {@link ColumnBatch}es into primitive
+ * partial results.
+ *
+ * The partial results are handed to the regular {@link ExecAggregator} when {@link #finish()} is called,
+ * so that the final value (including its type, overflow checking and the nulls-eliminated warning) is
+ * produced exactly as it would be in row mode.
+ */
+public class VectorAggregate{
+    public enum Function{
+        COUNT_STAR,
+        COUNT,
+        SUM,
+        MIN,
+        MAX
+    }
+
+    private final Function function;
+    private final ColumnVector.Kind kind;
+    private final int position;
+    private final DataValueDescriptor template;
+    private final ExecAggregator aggregator;
+    private final Object genericAggregator;
+
+    private long count;
+    private long longValue;
+    private double doubleValue;
+    private boolean sawNulls;
+
+    /**
+     * @param position the position of the input column in the batch, or -1 for COUNT(*)
+     * @param template a value of the input column's type, or {@code null} for COUNT(*)
+     * @param aggregator the aggregator to hand the results to
+     * @param genericAggregator the wrapper which owns {@code aggregator}, to pass along in
+     * {@link ExecAggregator#accumulate(DataValueDescriptor,Object)}
+     */
+    public VectorAggregate(Function function,
+                           int position,
+                           DataValueDescriptor template,
+                           ExecAggregator aggregator,
+                           Object genericAggregator){
+        assert function==Function.COUNT_STAR || supports(function,ColumnVector.kindOf(template)): "Unsupported input for "+function;
+        this.function=function;
+        this.position=position;
+        this.template=template;
+        this.kind=template==null?null:ColumnVector.kindOf(template);
+        this.aggregator=aggregator;
+        this.genericAggregator=genericAggregator;
+    }
+
+    /**
+     * @return the function computed by the aggregate described by {@code info}, or {@code null} if it is
+     * not one of the aggregates which can be computed over batches.
+     */
+    public static Function functionOf(AggregatorInfo info){
+        if(info==null || info.isDistinct()) return null;
+        String name=info.getAggregateName();
+        String className=info.getAggregatorClassName();
+        if(ClassName.CountAggregator.equals(className))
+            return "COUNT(*)".equals(name)?Function.COUNT_STAR:Function.COUNT;
+        else if(ClassName.MaxMinAggregator.equals(className)){
+            if("MAX".equals(name)) return Function.MAX;
+            else if("MIN".equals(name)) return Function.MIN;
+        }else if(ClassName.SumAggregator.equals(className) && "SUM".equals(name))
+            return Function.SUM;
+        return null;
+    }
+
+    /**
+     * @return true if {@code function} can be computed over a column of the given kind.
+     */
+    public static boolean supports(Function function,ColumnVector.Kind kind){
+        if(function==Function.COUNT_STAR) return true;
+        if(kind==null) return false;
+        /*
+         * REAL sums are accumulated as floats in row mode, so summing them as doubles here could
+         * produce a different result.
+         */
+        return function!=Function.SUM || kind!=ColumnVector.Kind.REAL;
+    }
+
+    public void accumulate(ColumnBatch batch) throws StandardException{
+        int[] selection=batch.selection();
+        int selected=batch.selectedCount();
+        if(function==Function.COUNT_STAR){
+            count+=selected;
+            return;
+        }
+        ColumnVector vector=batch.column(position);
+        if(kind==ColumnVector.Kind.INTEGRAL){
+            long[] values=((LongColumnVector)vector).values();
+            switch(function){
+                case COUNT:
+                    countNonNull(vector,selection,selected);
+                    break;
+                case SUM:
+                    sum(vector,values,selection,selected);
+                    break;
+                default:
+                    minMax(vector,values,selection,selected);
+            }
+        }else{
+            double[] values=((DoubleColumnVector)vector).values();
+            switch(function){
+                case COUNT:
+                    countNonNull(vector,selection,selected);
+                    break;
+                case SUM:
+                    sum(vector,values,selection,selected);
+                    break;
+                default:
+                    minMax(vector,values,selection,selected);
+            }
+        }
+    }
+
+    /**
+     * Hand everything accumulated so far to the underlying aggregator.
+     */
+    public void finish() throws StandardException{
+        switch(function){
+            case COUNT_STAR:
+            case COUNT:
+                aggregator.add(new SQLLongint(count));
+                break;
+            case SUM:
+                if(count>0)
+                    aggregator.accumulate(kind==ColumnVector.Kind.INTEGRAL?new SQLLongint(longValue):new SQLDouble(doubleValue),genericAggregator);
+                break;
+            default:
+                if(count>0){
+                    DataValueDescriptor value=template.cloneValue(false);
+                    if(kind==ColumnVector.Kind.INTEGRAL)
+                        value.setValue(longValue);
+                    else
+                        value.setValue(doubleValue);
+                    aggregator.accumulate(value,genericAggregator);
+                }
+        }
+        if(sawNulls){
+            //records the elimination of nulls, without otherwise changing the aggregate
+            aggregator.accumulate(template.getNewNull(),genericAggregator);
+        }
+        count=0;
+        longValue=0;
+        doubleValue=0;
+        sawNulls=false;
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private void countNonNull(ColumnVector vector,int[] selection,int selected){
+        if(!vector.hasNulls()){
+            count+=selected;
+            return;
+        }
+        for(int i=0;i<selected;i++){
+            if(vector.isNull(selection[i]))
+                sawNulls=true;
+            else
+                count++;
+        }
+    }
+
+    private void sum(ColumnVector vector,long[] values,int[] selection,int selected) throws StandardException{
+        boolean checkNulls=vector.hasNulls();
+        long sum=longValue;
+        for(int i=0;i<selected;i++){
+            int row=selection[i];
+            if(checkNulls && vector.isNull(row)){
+                sawNulls=true;
+                continue;
+            }
+            long value=values[row];
+            long next=sum+value;
+            if(((sum^next)&(value^next))<0){
+                /*
+                 * The partial sum overflowed. Push what we have so far to the aggregator, and let it decide
+                 * how to deal with values of this size, as it would in row mode.
+                 */
+                if(count>0)
+                    aggregator.accumulate(new SQLLongint(sum),genericAggregator);
+                next=value;
+            }
+            sum=next;
+            count++;
+        }
+        longValue=sum;
+    }
+
+    private void sum(ColumnVector vector,double[] values,int[] selection,int selected){
+        boolean checkNulls=vector.hasNulls();
+        double sum=doubleValue;
+        for(int i=0;i<selected;i++){
+            int row=selection[i];
+            if(checkNulls && vector.isNull(row)){
+                sawNulls=true;
+                continue;
+            }
+            sum+=values[row];
+            count++;
+        }
+        doubleValue=sum;
+    }
+
+    private void minMax(ColumnVector vector,long[] values,int[] selection,int selected){
+        boolean checkNulls=vector.hasNulls();
+        boolean max=function==Function.MAX;
+        long current=longValue;
+        for(int i=0;i<selected;i++){
+            int row=selection[i];
+            if(checkNulls && vector.isNull(row)){
+                sawNulls=true;
+                continue;
+            }
+            long value=values[row];
+            if(count++==0 || (max?value>current:value<current))
+                current=value;
+        }
+        longValue=current;
+    }
+
+    private void minMax(ColumnVector vector,double[] values,int[] selection,int selected){
+        boolean checkNulls=vector.hasNulls();
+        boolean max=function==Function.MAX;
+        double current=doubleValue;
+        for(int i=0;i<selected;i++){
+            int row=selection[i];
+            if(checkNulls && vector.isNull(row)){
+                sawNulls=true;
+                continue;
+            }
+            double value=values[row];
+            if(count++==0 || (max?value>current:value<current))
+                current=value;
+        }
+        doubleValue=current;
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations.vector;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.store.access.Qualifier;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.Orderable;
+
+/**
+ * Scan qualifiers, evaluated over a whole {@link ColumnBatch} at a time.
+ *
+ * This has the same semantics as {@link com.splicemachine.derby.utils.Scans#qualifyRecordFromRow}, but
+ * only for qualifiers which compare a numeric column against a non-null numeric constant, with unordered
+ * nulls. Qualifiers outside of that subset are not compiled, and must be evaluated row by row instead.
+ */
+public class VectorPredicate{
+    private final Clause[] conjuncts;
+    private final Clause[][] disjunctions;
+
+    private VectorPredicate(Clause[] conjuncts,Clause[][] disjunctions){
+        this.conjuncts=conjuncts;
+        this.disjunctions=disjunctions;
+    }
+
+    /**
+     * Compile {@code qualifiers}, adding the columns they refer to to {@code batch}.
+     *
+     * @param baseColumnMap the map from storage position to position in the row, or {@code null} if they are the same
+     * @param template a row of the shape that will be added to {@code batch}
+     * @return the compiled predicate, or {@code null} if any of the qualifiers can't be evaluated over vectors.
+     */
+    public static VectorPredicate compile(Qualifier[][] qualifiers,
+                                          int[] baseColumnMap,
+                                          DataValueDescriptor[] template,
+                                          ColumnBatch batch) throws StandardException{
+        Clause[] conjuncts=compile(qualifiers[0],baseColumnMap,template);
+        if(conjuncts==null) return null;
+        Clause[][] disjunctions=new Clause[qualifiers.length-1][];
+        for(int i=1;i<qualifiers.length;i++){
+            disjunctions[i-1]=compile(qualifiers[i],baseColumnMap,template);
+            if(disjunctions[i-1]==null) return null;
+        }
+
+        //only claim the columns once we know the whole predicate can be evaluated
+        for(Clause clause:conjuncts){
+            clause.bind(batch,template);
+        }
+        for(Clause[] disjunction:disjunctions){
+            for(Clause clause:disjunction){
+                clause.bind(batch,template);
+            }
+        }
+        return new VectorPredicate(conjuncts,disjunctions);
+    }
+
+    /**
+     * Narrow the selection of {@code batch} down to the rows which satisfy this predicate.
+     */
+    public void filter(ColumnBatch batch){
+        int[] selection=batch.selection();
+        int count=batch.selectedCount();
+        for(int i=0;i<conjuncts.length && count>0;i++){
+            count=conjuncts[i].select(batch.column(conjuncts[i].position),selection,count);
+        }
+        for(int i=0;i<disjunctions.length && count>0;i++){
+            Clause[] disjunction=disjunctions[i];
+            int kept=0;
+            for(int s=0;s<count;s++){
+                int row=selection[s];
+                for(Clause clause:disjunction){
+                    if(clause.matches(batch.column(clause.position),row)){
+                        selection[kept++]=row;
+                        break;
+                    }
+                }
+            }
+            count=kept;
+        }
+        batch.setSelectedCount(count);
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static Clause[] compile(Qualifier[] qualifiers,int[] baseColumnMap,DataValueDescriptor[] template) throws StandardException{
+        Clause[] clauses=new Clause[qualifiers.length];
+        for(int i=0;i<qualifiers.length;i++){
+            clauses[i]=compile(qualifiers[i],baseColumnMap,template);
+            if(clauses[i]==null) return null;
+        }
+        return clauses;
+    }
+
+    private static Clause compile(Qualifier qualifier,int[] baseColumnMap,DataValueDescriptor[] template) throws StandardException{
+        if(qualifier.getVariantType()==Qualifier.VARIANT || qualifier.getOrderedNulls())
+            return null;
+        int operator=qualifier.getOperator();
+        if(operator<Orderable.ORDER_OP_LESSTHAN || operator>Orderable.ORDER_OP_GREATEROREQUALS)
+            return null;
+        int storagePosition=qualifier.getStoragePosition();
+        if(baseColumnMap!=null && (storagePosition<0 || storagePosition>=baseColumnMap.length))
+            return null;
+        int position=baseColumnMap!=null?baseColumnMap[storagePosition]:storagePosition;
+        if(position<0 || position>=template.length)
+            return null;
+
+        ColumnVector.Kind columnKind=ColumnVector.kindOf(template[position]);
+        DataValueDescriptor orderable=qualifier.getOrderable();
+        //a null constant filters the row out entirely, which the row-based path handles
+        if(columnKind==null || orderable==null || orderable.isNull())
+            return null;
+        ColumnVector.Kind constantKind=ColumnVector.kindOf(orderable);
+        if(constantKind==null)
+            return null;
+        if(columnKind!=constantKind && columnKind!=ColumnVector.Kind.DOUBLE && constantKind!=ColumnVector.Kind.DOUBLE){
+            /*
+             * A REAL compared against an integral value is compared as a float, which would round
+             * differently from our doubles.
+             */
+            return null;
+        }
+        //an integral column against a DOUBLE constant is compared as a double, as SQLDouble.compare() does
+        boolean integralColumn=columnKind==ColumnVector.Kind.INTEGRAL;
+        boolean integral=integralColumn && constantKind==ColumnVector.Kind.INTEGRAL;
+        return new Clause(position,operator,qualifier.negateCompareResult(),qualifier.getUnknownRV(),integralColumn,integral,
+                integral?orderable.getLong():0L,
+                integral?0d:orderable.getDouble());
+    }
+
+    private static final class Clause{
+        private final int position;
+        private final int operator;
+        private final boolean negate;
+        private final boolean unknownRV;
+        private final boolean integralColumn;
+        private final boolean integral;
+        private final long longConstant;
+        private final double doubleConstant;
+
+        Clause(int position,int operator,boolean negate,boolean unknownRV,boolean integralColumn,boolean integral,
+               long longConstant,double doubleConstant){
+            this.position=position;
+            this.operator=operator;
+            this.negate=negate;
+            this.unknownRV=unknownRV;
+            this.integralColumn=integralColumn;
+            this.integral=integral;
+            this.longConstant=longConstant;
+            this.doubleConstant=doubleConstant;
+        }
+
+        void bind(ColumnBatch batch,DataValueDescriptor[] template){
+            ColumnVector vector=batch.addColumn(position,template[position]);
+            assert vector!=null: "Clause compiled against a column with no vector representation";
+        }
+
+        boolean matches(ColumnVector vector,int row){
+            if(vector.isNull(row))
+                return unknownRV!=negate;
+            int c;
+            if(integral)
+                c=Long.compare(((LongColumnVector)vector).get(row),longConstant);
+            else if(integralColumn)
+                c=compare((double)((LongColumnVector)vector).get(row));
+            else
+                c=compare(((DoubleColumnVector)vector).get(row));
+            return test(c)!=negate;
+        }
+
+        /**
+         * Keep the entries of {@code selection} which satisfy this clause, packed at the front.
+         *
+         * @return the number of entries kept
+         */
+        int select(ColumnVector vector,int[] selection,int count){
+            if(vector.hasNulls()){
+                int kept=0;
+                for(int i=0;i<count;i++){
+                    int row=selection[i];
+                    if(matches(vector,row))
+                        selection[kept++]=row;
+                }
+                return kept;
+            }
+            int kept=0;
+            if(integral){
+                long[] values=((LongColumnVector)vector).values();
+                for(int i=0;i<count;i++){
+                    int row=selection[i];
+                    if(test(Long.compare(values[row],longConstant))!=negate)
+                        selection[kept++]=row;
+                }
+            }else if(integralColumn){
+                long[] values=((LongColumnVector)vector).values();
+                for(int i=0;i<count;i++){
+                    int row=selection[i];
+                    if(test(compare((double)values[row]))!=negate)
+                        selection[kept++]=row;
+                }
+            }else{
+                double[] values=((DoubleColumnVector)vector).values();
+                for(int i=0;i<count;i++){
+                    int row=selection[i];
+                    if(test(compare(values[row]))!=negate)
+                        selection[kept++]=row;
+                }
+            }
+            return kept;
+        }
+
+        private int compare(double value){
+            //SQL doubles have no NaNs, and -0.0 equals 0.0, so the primitive comparisons are exact
+            return value==doubleConstant?0:(value>doubleConstant?1:-1);
+        }
+
+        private boolean test(int c){
+            switch(operator){
+                case Orderable.ORDER_OP_LESSTHAN:
+                    return c<0;
+                case Orderable.ORDER_OP_EQUALS:
+                    return c==0;
+                case Orderable.ORDER_OP_LESSOREQUALS:
+                    return c<=0;
+                case Orderable.ORDER_OP_GREATERTHAN:
+                    return c>0;
+                default:
+                    return c>=0;
+            }
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations.vector;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.execute.ExecAggregator;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.impl.sql.execute.AggregatorInfo;
+import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
+import com.splicemachine.derby.impl.sql.execute.operations.ProjectRestrictOperation;
+import com.splicemachine.derby.impl.sql.execute.operations.ScalarAggregateOperation;
+import com.splicemachine.derby.impl.sql.execute.operations.TableScanOperation;
+import com.splicemachine.derby.impl.sql.execute.operations.framework.SpliceGenericAggregator;
+import com.splicemachine.derby.stream.iterator.TableScannerIterator;
+import org.apache.log4j.Logger;
+
+import java.util.Iterator;
+
+/**
+ * Executes a scalar aggregate directly over a table scan, a batch of rows at a time.
+ *
+ * This handles plans of the shape
+ * <pre>
+ *     ScalarAggregate
+ *          ProjectRestrict (no restriction)
+ *              TableScan
+ * </pre>
+ * where every aggregate is a non-distinct COUNT(*), or a COUNT, SUM, MIN or MAX of a numeric column of the
+ * table. Rows are decoded by the scanner as usual, but are then copied into a {@link ColumnBatch} instead of
+ * being cloned and passed through the projection one at a time. The scan qualifiers are evaluated over the
+ * batch when they are simple enough (see {@link VectorPredicate}), and row by row otherwise.
+ *
+ * Plans of any other shape are left to the row-based operations.
+ */
+public class VectorizedScalarAggregate{
+    private static final Logger LOG=Logger.getLogger(VectorizedScalarAggregate.class);
+
+    private final ScalarAggregateOperation operation;
+    private final TableScanOperation scan;
+    private final VectorAggregate.Function[] functions;
+    private final int[] inputPositions;
+
+    private VectorizedScalarAggregate(ScalarAggregateOperation operation,
+                                      TableScanOperation scan,
+                                      VectorAggregate.Function[] functions,
+                                      int[] inputPositions){
+        this.operation=operation;
+        this.scan=scan;
+        this.functions=functions;
+        this.inputPositions=inputPositions;
+    }
+
+    /**
+     * @return a vectorized execution of {@code operation}, or {@code null} if it must be executed row by row.
+     */
+    public static VectorizedScalarAggregate plan(ScalarAggregateOperation operation) throws StandardException{
+        if(!(operation.getSource() instanceof ProjectRestrictOperation))
+            return null;
+        ProjectRestrictOperation projection=(ProjectRestrictOperation)operation.getSource();
+        if(projection.getRestrictionMethodName()!=null
+                || projection.getConstantRestrictionMethodName()!=null
+                || projection.projectMapping==null
+                || !(projection.getSource() instanceof TableScanOperation))
+            return null;
+        TableScanOperation scan=(TableScanOperation)projection.getSource();
+        if(!scan.isVectorized())
+            return null;
+
+        DataValueDescriptor[] template=scan.getExecRowDefinition().getRowArray();
+        SpliceGenericAggregator[] aggregates=operation.aggregates;
+        VectorAggregate.Function[] functions=new VectorAggregate.Function[aggregates.length];
+        int[] inputPositions=new int[aggregates.length];
+        for(int i=0;i<aggregates.length;i++){
+            AggregatorInfo info=aggregates[i].getAggregatorInfo();
+            VectorAggregate.Function function=VectorAggregate.functionOf(info);
+            if(function==null){
+                if(LOG.isDebugEnabled())
+                    LOG.debug("Falling back to row mode for unsupported aggregate "+info);
+                return null;
+            }
+            functions[i]=function;
+            if(function==VectorAggregate.Function.COUNT_STAR){
+                inputPositions[i]=-1;
+                continue;
+            }
+            /*
+             * The input of the aggregate must be a column of the table, copied as-is by the projection:
+             * anything computed by the projection can only be evaluated row by row.
+             */
+            int input=info.getInputColNum();
+            int sourceColumn=input<projection.projectMapping.length?projection.projectMapping[input]:-1;
+            if(sourceColumn<=0 || sourceColumn>template.length
+                    || !VectorAggregate.supports(function,ColumnVector.kindOf(template[sourceColumn-1]))){
+                if(LOG.isDebugEnabled())
+                    LOG.debug("Falling back to row mode for aggregate over computed or non-numeric input "+info);
+                return null;
+            }
+            inputPositions[i]=sourceColumn-1;
+        }
+        return new VectorizedScalarAggregate(operation,scan,functions,inputPositions);
+    }
+
+    public TableScanOperation getScan(){
+        return scan;
+    }
+
+    /**
+     * Aggregate all the rows of the scan.
+     *
+     * @param source the rows of {@link #getScan()}. When these come straight from the scanner, they are read
+     *               in batches; otherwise they are batched up as they are read.
+     * @return the aggregated row, exactly as the row-based {@link ScalarAggregateOperation} would produce it.
+     */
+    public ExecRow execute(Iterator<LocatedRow> source) throws StandardException{
+        DataValueDescriptor[] template=scan.getExecRowDefinition().getRowArray();
+        ColumnBatch batch=new ColumnBatch(template.length,ColumnBatch.DEFAULT_CAPACITY);
+
+        ExecRow result=operation.getExecRowDefinition();
+        SpliceGenericAggregator[] aggregates=operation.aggregates;
+        VectorAggregate[] vectorAggregates=new VectorAggregate[aggregates.length];
+        for(int i=0;i<aggregates.length;i++){
+            int position=inputPositions[i];
+            if(position>=0)
+                batch.addColumn(position,template[position]);
+            aggregates[i].initialize(result);
+            ExecAggregator aggregator=(ExecAggregator)result.getColumn(aggregates[i].getAggregatorColumnId()).getObject();
+            vectorAggregates[i]=new VectorAggregate(functions[i],position,position>=0?template[position]:null,aggregator,aggregates[i]);
+        }
+
+        long rows=0;
+        if(source instanceof TableScannerIterator){
+            TableScannerIterator scanner=(TableScannerIterator)source;
+            VectorPredicate predicate=scanner.compilePredicate(template,batch);
+            while(scanner.fillBatch(batch,predicate)){
+                rows+=accumulate(batch,vectorAggregates);
+            }
+        }else{
+            //the qualifiers have already been applied to these rows
+            while(source.hasNext()){
+                batch.reset();
+                while(!batch.isFull() && source.hasNext()){
+                    batch.add(source.next().getRow().getRowArray());
+                }
+                batch.selectAll();
+                rows+=accumulate(batch,vectorAggregates);
+            }
+        }
+
+        if(rows==0){
+            //no rows qualified, which the row-based aggregation reports with an unaggregated row
+            return operation.getExecRowDefinition();
+        }
+        for(VectorAggregate vectorAggregate:vectorAggregates){
+            vectorAggregate.finish();
+        }
+        operation.finishAggregation(result);
+        return result;
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static int accumulate(ColumnBatch batch,VectorAggregate[] aggregates) throws StandardException{
+        if(batch.selectedCount()==0) return 0;
+        for(VectorAggregate aggregate:aggregates){
+            aggregate.accumulate(batch);
+        }
+        return batch.selectedCount();
+    }
+}
@@ -29,6 +29,14 @@ import static com.splicemachine.db.iapi.sql.compile.AggregateDefinition.*;
 public interface WindowAggregator {
     void accumulate(ExecRow nextRow, ExecRow accumulatorRow) throws StandardException;
 
+    /**
+     * Remove a row which was {@link #accumulate(ExecRow, ExecRow) accumulated} earlier, and has now
+     * left the window frame. Rows are always removed in the order in which they were accumulated.
+     *
+     * @param row the row, or {@code null} if it was never accumulated
+     */
+    void remove(ExecRow row, ExecRow accumulatorRow) throws StandardException;
+
     void finish(ExecRow row) throws StandardException;
 
     boolean initialize(ExecRow row) throws StandardException;
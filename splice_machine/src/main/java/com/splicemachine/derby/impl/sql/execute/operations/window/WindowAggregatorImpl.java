@@ -145,6 +145,13 @@ public class WindowAggregatorImpl implements WindowAggregator {
         accumulate(getInputColumns(nextRow, inputColumnIds),aggCol, outputCol);
     }
 
+    @Override
+    public void remove(ExecRow row, ExecRow accumulatorRow) throws StandardException {
+        SpliceGenericWindowFunction function =
+                (SpliceGenericWindowFunction) accumulatorRow.getColumn(functionColumnId).getObject();
+        function.remove(row == null ? null : getInputColumns(row, inputColumnIds));
+    }
+
 	@Override
     public void finish(ExecRow row) throws StandardException{
 		DataValueDescriptor outputCol = row.getColumn(resultColumnId);
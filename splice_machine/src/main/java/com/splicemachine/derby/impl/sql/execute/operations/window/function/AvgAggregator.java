@@ -15,75 +15,143 @@
 
 package com.splicemachine.derby.impl.sql.execute.operations.window.function;
 
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
 import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.db.iapi.services.io.FormatableHashtable;
+import com.splicemachine.db.iapi.services.io.StoredFormatIds;
 import com.splicemachine.db.iapi.services.loader.ClassFactory;
 import com.splicemachine.db.iapi.sql.execute.WindowFunction;
 import com.splicemachine.db.iapi.types.DataTypeDescriptor;
 import com.splicemachine.db.iapi.types.DataValueDescriptor;
 import com.splicemachine.db.iapi.types.NumberDataValue;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import com.splicemachine.db.iapi.types.TypeId;
 
 /**
+ * Keeps a running sum and count of the non-null values in the frame, and divides them as
+ * {@link com.splicemachine.db.impl.sql.execute.AvgAggregator} does. REAL and DOUBLE values are summed
+ * with a {@link RunningWindowAggregate.CompensatedSum}, so that values leaving the frame don't leave
+ * their rounding errors behind.
  *
  * Created by jyuan on 7/31/14.
  */
-public class AvgAggregator extends SpliceGenericWindowFunction {
+public class AvgAggregator extends RunningWindowAggregate {
+    private NumberDataValue sum;
+    private long nonNullCount;
+    private int scale;
+    private final CompensatedSum floatingSum = new CompensatedSum();
+    private boolean floatingPoint;
 
     @Override
     public WindowFunction setup( ClassFactory cf, String aggregateName, DataTypeDescriptor returnType,
                                  FormatableHashtable functionSpecificArgs) {
         super.setup( cf, aggregateName, returnType );
+        if (returnType == null) {
+            scale = NumberDataValue.MIN_DECIMAL_DIVIDE_SCALE;
+            return this;
+        }
+        switch (returnType.getTypeId().getTypeFormatId()) {
+            case StoredFormatIds.TINYINT_TYPE_ID:
+            case StoredFormatIds.SMALLINT_TYPE_ID:
+            case StoredFormatIds.INT_TYPE_ID:
+            case StoredFormatIds.LONGINT_TYPE_ID:
+                scale = 0;
+                break;
+            case StoredFormatIds.REAL_TYPE_ID:
+            case StoredFormatIds.SQL_DOUBLE_ID:
+                scale = TypeId.DECIMAL_SCALE;
+                break;
+            default:
+                scale = Math.max(returnType.getScale(), NumberDataValue.MIN_DECIMAL_DIVIDE_SCALE);
+        }
         return this;
     }
 
     @Override
-    public void accumulate(DataValueDescriptor[] valueDescriptors) throws StandardException {
-        this.add(valueDescriptors);
+    protected void addValues(DataValueDescriptor[] dvds) throws StandardException {
+        DataValueDescriptor input = dvds[0];
+        if (isNull(input)) {
+            return;
+        }
+        if (sum == null) {
+            sum = newSum(input);
+            floatingPoint = isFloatingPoint(input);
+            floatingSum.reset();
+        } else if (!floatingPoint) {
+            sum.plus(sum, (NumberDataValue) input, sum);
+        }
+        if (floatingPoint) {
+            floatingSum.add(input.getDouble());
+        }
+        nonNullCount++;
     }
 
     @Override
-    protected void calculateOnAdd(WindowChunk chunk, DataValueDescriptor[] dvds) throws StandardException{
-        DataValueDescriptor result = chunk.getResult();
-        if (result == null || result.isNull()) {
-            chunk.setResult(dvds[0].cloneValue(false));
+    protected void removeValues(DataValueDescriptor[] dvds) throws StandardException {
+        DataValueDescriptor input = dvds[0];
+        if (isNull(input)) {
+            return;
+        }
+        if (--nonNullCount == 0) {
+            sum = null;
+        } else if (floatingPoint) {
+            floatingSum.subtract(input.getDouble());
         } else {
-            NumberDataValue input = (NumberDataValue)dvds[0];
-            if (input != null && ! input.isNull()) {
-                NumberDataValue nv = (NumberDataValue) result.cloneValue(false);
-                nv.plus(input, nv, nv);
-                chunk.setResult(nv);
-            }
+            sum.minus(sum, (NumberDataValue) input, sum);
         }
     }
 
     @Override
-    protected void calculateOnRemove(WindowChunk chunk, DataValueDescriptor[] dvds) throws StandardException {
-        DataValueDescriptor result = chunk.getResult();
-        NumberDataValue input = (NumberDataValue)dvds[0];
-        if (input != null && ! input.isNull()) {
-            NumberDataValue nv = (NumberDataValue) result.cloneValue(false);
-            nv.minus(nv, input, nv);
-            chunk.setResult(nv);
+    public DataValueDescriptor getResult() throws StandardException {
+        if (sum == null) {
+            return null;
+        }
+        if (floatingPoint) {
+            // fails as plus() would, if the sum is out of range
+            sum.setValue(floatingSum.value());
         }
+        NumberDataValue avg = (NumberDataValue) sum.getNewNull();
+        sum.divide(sum, new SQLLongint(nonNullCount), avg, scale);
+        return avg;
     }
 
-    public DataValueDescriptor getResult() throws StandardException {
-        // Iterate through each chunk, compute the max/min of each chunk
-        WindowChunk first = chunks.get(0);
-        long count = first.last - first.first;
-        NumberDataValue result = (NumberDataValue)first.getResult().cloneValue(false);
-        long r = result.getLong();
-        for (int i = 1; i < chunks.size(); ++i) {
-            WindowChunk chunk = chunks.get(i);
-            NumberDataValue dvd = (NumberDataValue)chunk.getResult();
-            r += dvd.getLong();
-            count += chunk.last - chunk.first;
-        }
-        result.setValue((r*1.0)/count);
-        return result;
+    @Override
+    public void reset() {
+        sum = null;
+        nonNullCount = 0;
     }
 
+    @Override
     public WindowFunction newWindowFunction() {
-        return new AvgAggregator();
+        AvgAggregator aa = new AvgAggregator();
+        aa.scale = scale;
+        return aa;
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        out.writeInt(scale);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+        scale = in.readInt();
+    }
+
+    /*
+     * Integers are summed as longs, as their own arithmetic would overflow long before the average could.
+     */
+    private static NumberDataValue newSum(DataValueDescriptor input) throws StandardException {
+        switch (input.getTypeFormatId()) {
+            case StoredFormatIds.SQL_TINYINT_ID:
+            case StoredFormatIds.SQL_SMALLINT_ID:
+            case StoredFormatIds.SQL_INTEGER_ID:
+                return new SQLLongint(input.getLong());
+            default:
+                return (NumberDataValue) input.cloneValue(false);
+        }
     }
 }
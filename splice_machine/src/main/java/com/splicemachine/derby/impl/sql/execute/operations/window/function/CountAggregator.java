@@ -24,10 +24,12 @@ import com.splicemachine.db.iapi.types.DataValueDescriptor;
 import com.splicemachine.db.iapi.types.SQLLongint;
 
 /**
+ * Keeps a running count of the rows in the frame.
  *
  * Created by jyuan on 7/31/14.
  */
-public class CountAggregator extends SpliceGenericWindowFunction {
+public class CountAggregator extends RunningWindowAggregate {
+    private long count;
 
     @Override
     public WindowFunction setup( ClassFactory cf, String aggregateName, DataTypeDescriptor returnType,
@@ -37,40 +39,26 @@ public class CountAggregator extends SpliceGenericWindowFunction {
     }
 
     @Override
-    public void accumulate(DataValueDescriptor[] valueDescriptors) throws StandardException {
-        this.add(valueDescriptors);
+    protected void addValues(DataValueDescriptor[] dvds) throws StandardException {
+        count++;
     }
 
     @Override
-    protected void calculateOnAdd(SpliceGenericWindowFunction.WindowChunk chunk, DataValueDescriptor[] dvds) throws StandardException{
-        DataValueDescriptor result = chunk.getResult();
-        if (result == null || result.isNull()) {
-            SQLLongint r = new SQLLongint(1);
-            chunk.setResult(r);
-        } else {
-            long count = result.getLong();
-            result.setValue(count+1);
-            chunk.setResult(result);
-        }
+    protected void removeValues(DataValueDescriptor[] dvds) throws StandardException {
+        count--;
     }
 
     @Override
-    protected void calculateOnRemove(SpliceGenericWindowFunction.WindowChunk chunk, DataValueDescriptor[] dvds) throws StandardException {
-        DataValueDescriptor result = chunk.getResult();
-        long count = result.getLong();
-        result.setValue(count-1);
-        chunk.setResult(result);
-    }
-
     public DataValueDescriptor getResult() throws StandardException {
-        // Iterate through each chunk, compute the max/min of each chunk
-        long count = 0;
-        for (WindowChunk chunk : chunks) {
-            count += chunk.getResult().getLong();
-        }
         return new SQLLongint(count);
     }
 
+    @Override
+    public void reset() {
+        count = 0;
+    }
+
+    @Override
     public WindowFunction newWindowFunction() {
         return new CountAggregator();
     }
@@ -27,7 +27,7 @@ import com.splicemachine.db.impl.sql.compile.FirstLastValueFunctionDefinition;
  * @author Jeff Cunningham
  *         Date: 9/30/15
  */
-public class FirstLastValueFunction extends SpliceGenericWindowFunction {
+public class FirstLastValueFunction extends ChunkedWindowFunction {
     boolean isLastValue;
     boolean ignoreNulls;
 
@@ -15,8 +15,7 @@
 
 package com.splicemachine.derby.impl.sql.execute.operations.window.function;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.io.IOException;
 
 import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.db.iapi.services.io.FormatableHashtable;
@@ -25,12 +24,18 @@ import com.splicemachine.db.iapi.sql.execute.WindowFunction;
 import com.splicemachine.db.iapi.types.DataTypeDescriptor;
 import com.splicemachine.db.iapi.types.DataValueDescriptor;
 import com.splicemachine.db.impl.sql.compile.LeadLagFunctionDefinition;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.derby.stream.window.SpillableRowBuffer;
 
 /**
+ * LEAD and LAG need the whole partition, so their results are only known once the frame is finished. Rows
+ * are not kept by the function; the results are written to a {@link SpillableRowBuffer} as soon as they are
+ * known, and handed to the frame buffer by {@link #finishFrame()}.
+ *
  * @author Jeff Cunningham
  *         Date: 9/30/15
  */
-public class LeadLagFunction extends SpliceGenericWindowFunction {
+public class LeadLagFunction extends ChunkedWindowFunction {
     private int offset;
     // TODO: JC - handle default value
     private DataValueDescriptor defaultValue;
@@ -61,36 +66,53 @@ public class LeadLagFunction extends SpliceGenericWindowFunction {
 
     @Override
     public void accumulate(DataValueDescriptor[] valueDescriptors) throws StandardException {
-        this.add(valueDescriptors);
-        buffer.addRow(valueDescriptors[0], defaultValue);
+        try {
+            buffer.addRow(valueDescriptors[0], defaultValue);
+        } catch (IOException e) {
+            throw StandardException.plainWrapException(e);
+        }
+    }
+
+    @Override
+    public void remove(DataValueDescriptor[] values) throws StandardException {
+        // no rows are kept, so there is nothing to remove
     }
 
     @Override
     protected void calculateOnAdd(WindowChunk chunk, DataValueDescriptor[] dvds) throws StandardException {
-        // just set default results here, otherwise framework will break
-        chunk.setResult(dvds[0]);
+        // rows are not chunked
     }
 
     @Override
     protected void calculateOnRemove(WindowChunk chunk, DataValueDescriptor[] dvds) throws StandardException {
-        // nothing to do here
+        // rows are not chunked
     }
 
     @Override
-    public List<DataValueDescriptor> finishFrame() throws StandardException {
-        List<DataValueDescriptor> leadLag = buffer.terminate();
-        buffer.initialize(offset);
-        for(WindowChunk chunk : chunks) {
-            for (int i = chunk.first; i < chunk.last; i++) {
-                chunk.setResult(chunk.values[i][0]);
-            }
+    public SpillableRowBuffer finishFrame() throws StandardException {
+        SpillableRowBuffer leadLag;
+        try {
+            leadLag = buffer.terminate();
+        } catch (IOException e) {
+            throw StandardException.plainWrapException(e);
         }
+        buffer.initialize(offset);
         return leadLag;
     }
 
     @Override
     public DataValueDescriptor getResult() throws StandardException {
-        return chunks.get(0).getResult();
+        // the actual results come from finishFrame()
+        return defaultValue;
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        if (buffer != null) {
+            // drops the results of a frame which was never finished
+            buffer.initialize(offset);
+        }
     }
 
     @Override
@@ -102,12 +124,20 @@ public class LeadLagFunction extends SpliceGenericWindowFunction {
      * Add, evaluate and determine lead/lag values and buffer the the results for a given
      * window frame.
      */
-    interface LeadLagBuffer {
+    static abstract class LeadLagBuffer {
+        private SpillableRowBuffer results;
+
         /**
-         * Call this after {@link #terminate()} to remove prior collected values.
+         * Call this after {@link #terminate()}, before adding the rows of the next frame. Any results
+         * which were not handed out by {@link #terminate()} are dropped.
          * @param leadLagAmt the lead/lage offset
          */
-        void initialize(int leadLagAmt);
+        void initialize(int leadLagAmt) {
+            if (results != null) {
+                results.close();
+            }
+            results = SpillableRowBuffer.newBuffer(null);
+        }
 
         /**
          * Add the current value for this row and the default value. The default value
@@ -116,53 +146,73 @@ public class LeadLagFunction extends SpliceGenericWindowFunction {
          * @param defaultValue the default lead/lag value in case we don't get to the
          *                     offset row
          */
-        void addRow(DataValueDescriptor leadExprValue, DataValueDescriptor defaultValue);
+        abstract void addRow(DataValueDescriptor leadExprValue, DataValueDescriptor defaultValue) throws IOException;
+
+        /**
+         * Call this when you're finished with the frame to get the lead/lag values. The results are handed
+         * over to the caller, which must close them, and {@link #initialize(int)} has to be called before
+         * adding the rows of another frame.
+         * @return the lead/lag result values evaluated in a frame, as single-column rows in the order of
+         * the rows they belong to.
+         */
+        SpillableRowBuffer terminate() throws IOException {
+            if (results == null) {
+                return new SpillableRowBuffer(0, null);
+            }
+            finish();
+            SpillableRowBuffer terminated = results;
+            results = null;
+            return terminated;
+        }
 
         /**
-         * Call this when you're finished with the frame to get the lead/lag values.
-         * <b>NOTE</b>: This does <b>not</b> clear any values or reset in any way. You'll
-         * need to do that when moving to a new frame before adding new rows. This is for
-         * performance reasons - we don't attempt to anticipate what you want to do.
-         * @return the lead/lag result values evaluated in a frame.
+         * Add the results which are still owed once every row of the frame has been added.
          */
-        List<DataValueDescriptor> terminate();
+        abstract void finish() throws IOException;
 
+        void addResult(DataValueDescriptor value) throws IOException {
+            ValueRow row = new ValueRow(1);
+            row.setColumn(1, value);
+            results.add(row);
+        }
     }
 
-
-    static class LeadBuffer implements LeadLagBuffer {
-        ArrayList<DataValueDescriptor> values;
+    /*
+     * The LEAD of a row is the value of the row leadAmt rows after it, so the results are the values of every row
+     * but the first leadAmt, followed by the defaults of the last leadAmt rows.
+     */
+    static class LeadBuffer extends LeadLagBuffer {
         int leadAmt;
         DataValueDescriptor[] leadWindow;
         int nextPosInWindow;
         int lastRowIdx;
 
-        public void initialize(int leadAmt) {
+        @Override
+        void initialize(int leadAmt) {
             if (leadAmt < 0) {
                 throw new RuntimeException("LEAD() offset must be positive.");
             }
+            super.initialize(leadAmt);
             this.leadAmt = leadAmt;
-            values = new ArrayList<>();
             leadWindow = new DataValueDescriptor[(leadAmt > 0 ? leadAmt : 1)];
             nextPosInWindow = 0;
             lastRowIdx = -1;
         }
 
-        public void addRow(DataValueDescriptor leadExprValue, DataValueDescriptor defaultValue) {
+        @Override
+        void addRow(DataValueDescriptor leadExprValue, DataValueDescriptor defaultValue) throws IOException {
             int row = lastRowIdx + 1;
             int leadRow = row - leadAmt;
             if ( leadRow >= 0 ) {
-                values.add(leadExprValue);
+                addResult(leadExprValue);
             }
             leadWindow[nextPosInWindow] = defaultValue;
             nextPosInWindow = (nextPosInWindow + 1) % (leadAmt > 0 ? leadAmt : 1);
             lastRowIdx++;
         }
 
-        public List<DataValueDescriptor> terminate() {
-            if (values == null) {
-                return new ArrayList<>(0);
-            }
+        @Override
+        void finish() throws IOException {
           /*
            * if there are fewer than leadAmt values in leadWindow; start reading from the first position.
            * Otherwise the window starts from nextPosInWindow.
@@ -173,59 +223,58 @@ public class LeadLagFunction extends SpliceGenericWindowFunction {
             for(int i=0; i < leadAmt; i++) {
                 DataValueDescriptor value = leadWindow[nextPosInWindow];
                 if (value != null) {
-                    values.add(value);
+                    addResult(value);
                 }
                 nextPosInWindow = (nextPosInWindow + 1) % leadAmt;
             }
-            return values;
         }
 
     }
 
-    static class LagBuffer implements LeadLagBuffer {
-        ArrayList<DataValueDescriptor> values;
+    /*
+     * The LAG of a row is the value of the row lagAmt rows before it, so the results are the defaults of the first
+     * lagAmt rows, followed by the values of every row but the last lagAmt. Only those last lagAmt values are held,
+     * until it is known whether another row follows them.
+     */
+    static class LagBuffer extends LeadLagBuffer {
         int lagAmt;
-        ArrayList<DataValueDescriptor> lagValues;
+        DataValueDescriptor[] lagWindow;
+        int nextPosInWindow;
         int lastRowIdx;
 
-        public void initialize(int lagAmt) {
+        @Override
+        void initialize(int lagAmt) {
             if (lagAmt < 0) {
                 throw new RuntimeException("LAG() offset must be positive.");
             }
+            super.initialize(lagAmt);
             this.lagAmt = lagAmt;
-            lagValues = new ArrayList<>(lagAmt);
-            values = new ArrayList<>();
+            lagWindow = new DataValueDescriptor[lagAmt];
+            nextPosInWindow = 0;
             lastRowIdx = -1;
         }
 
-        public void addRow(DataValueDescriptor currValue, DataValueDescriptor defaultValue) {
+        @Override
+        void addRow(DataValueDescriptor currValue, DataValueDescriptor defaultValue) throws IOException {
             int row = lastRowIdx + 1;
+            lastRowIdx++;
+            if (lagAmt == 0) {
+                addResult(currValue);
+                return;
+            }
             if ( row < lagAmt) {
-                lagValues.add(defaultValue);
+                addResult(defaultValue);
+            } else {
+                addResult(lagWindow[nextPosInWindow]);
             }
-            values.add(currValue);
-            lastRowIdx++;
+            lagWindow[nextPosInWindow] = currValue;
+            nextPosInWindow = (nextPosInWindow + 1) % lagAmt;
         }
 
-        public List<DataValueDescriptor> terminate() {
-          /*
-           * if partition is smaller than the lagAmt;
-           * the entire partition is in lagValues.
-           */
-            if (values != null) {
-                if ( values.size() < lagAmt ) {
-                    values = lagValues;
-                    return lagValues;
-                }
-
-                int lastIdx = values.size() - 1;
-                for(int i = 0; i < lagAmt; i++) {
-                    values.remove(lastIdx - i);
-                }
-                values.addAll(0, lagValues);
-                return values;
-            }
-            return new ArrayList<>(0);
+        @Override
+        void finish() {
+            // the last lagAmt values are not the LAG of any row
+            lagWindow = new DataValueDescriptor[lagAmt];
         }
     }
 
@@ -18,6 +18,7 @@ package com.splicemachine.derby.impl.sql.execute.operations.window.function;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.util.ArrayDeque;
 
 import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.db.iapi.services.io.FormatableHashtable;
@@ -27,11 +28,19 @@ import com.splicemachine.db.iapi.types.DataTypeDescriptor;
 import com.splicemachine.db.iapi.types.DataValueDescriptor;
 
 /**
+ * Keeps the max (or min) of the frame with a monotonic deque: the values in the frame which no later value
+ * beats, oldest (and so best) first. A new value evicts the values it beats from the back of the deque, and
+ * the oldest value in the frame leaves the front of the deque if it is still there, so that the result is
+ * always at the front, and each value enters and leaves the deque at most once.
  *
  * Created by jyuan on 7/22/14.
  */
-public class MaxMinAggregator extends SpliceGenericWindowFunction {
+public class MaxMinAggregator extends RunningWindowAggregate {
     private boolean isMax;
+    private ArrayDeque<Candidate> candidates;
+    // the number of rows added to and removed from the frame, which give each row its position
+    private long added;
+    private long removed;
 
     @Override
     public WindowFunction setup( ClassFactory cf, String aggregateName, DataTypeDescriptor returnType,
@@ -42,69 +51,41 @@ public class MaxMinAggregator extends SpliceGenericWindowFunction {
     }
 
     @Override
-    public void accumulate(DataValueDescriptor[] valueDescriptors) throws StandardException {
-        this.add(valueDescriptors);
-    }
-
-    @Override
-    protected void calculateOnAdd(WindowChunk chunk, DataValueDescriptor[] dvd) throws StandardException{
-        DataValueDescriptor result = chunk.getResult();
-        if (result == null || result.isNull()) {
-            chunk.setResult(dvd[0]);
-        }
-        else if(isMax && dvd[0].compare(result) > 0) {
-            chunk.setResult(dvd[0]);
+    protected void addValues(DataValueDescriptor[] dvds) throws StandardException {
+        long position = added++;
+        DataValueDescriptor input = dvds[0];
+        if (isNull(input)) {
+            return;
         }
-        else if (!isMax && dvd[0].compare(result) < 0) {
-            chunk.setResult(dvd[0]);
+        while (!candidates.isEmpty() && beats(input, candidates.peekLast().value)) {
+            candidates.pollLast();
         }
+        candidates.addLast(new Candidate(position, input));
     }
 
     @Override
-    protected void calculateOnRemove(WindowChunk chunk, DataValueDescriptor[] dvds) throws StandardException {
-        DataValueDescriptor result = chunk.getResult();
-        if (dvds[0].compare(result) == 0) {
-            recalculate(chunk);
+    protected void removeValues(DataValueDescriptor[] dvds) throws StandardException {
+        long position = removed++;
+        if (!candidates.isEmpty() && candidates.peekFirst().position == position) {
+            candidates.pollFirst();
         }
     }
 
-    private void recalculate(WindowChunk chunk) throws StandardException{
-        DataValueDescriptor result = chunk.get(chunk.first)[0];
+    @Override
+    public DataValueDescriptor getResult() throws StandardException {
+        return candidates.isEmpty() ? null : candidates.peekFirst().value;
+    }
 
-        for (int i = chunk.first+1; i < chunk.last; ++i) {
-            DataValueDescriptor dvd = chunk.get(i)[0];
-            if (isMax) {
-                if (dvd.compare(result) > 0) {
-                    result = dvd;
-                }
-            }
-            else {
-                if (dvd.compare(result) < 0) {
-                    result = dvd;
-                }
-            }
-        }
-        chunk.setResult(result);
+    @Override
+    public void reset() {
+        candidates = new ArrayDeque<>();
+        added = removed = 0;
     }
 
-    public DataValueDescriptor getResult() throws StandardException {
-        // Iterate through each chunk, compute the max/min of each chunk
-        WindowChunk first = chunks.get(0);
-        DataValueDescriptor result = first.getResult();
-        for (int i = 1; i < chunks.size(); ++i) {
-            DataValueDescriptor dvd = chunks.get(i).getResult();
-            if (isMax) {
-                if (dvd.compare(result) > 0) {
-                    result = dvd;
-                }
-            }
-            else {
-                if (dvd.compare(result) < 0) {
-                    result = dvd;
-                }
-            }
-        }
-        return result;
+    private boolean beats(DataValueDescriptor value, DataValueDescriptor candidate) throws StandardException {
+        // ties go to the newer value, which stays in the frame for longer
+        int c = value.compare(candidate);
+        return isMax ? c >= 0 : c <= 0;
     }
 
     @Override
@@ -123,4 +104,14 @@ public class MaxMinAggregator extends SpliceGenericWindowFunction {
     public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
         isMax = in.readBoolean();
     }
+
+    private static class Candidate {
+        final long position;
+        final DataValueDescriptor value;
+
+        Candidate(long position, DataValueDescriptor value) {
+            this.position = position;
+            this.value = value;
+        }
+    }
 }
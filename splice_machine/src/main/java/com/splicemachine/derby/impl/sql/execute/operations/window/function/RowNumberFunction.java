@@ -33,7 +33,7 @@ import com.splicemachine.db.iapi.types.SQLLongint;
  * @author Jeff Cunningham
  *         Date: 8/5/14
  */
-public class RowNumberFunction extends SpliceGenericWindowFunction implements WindowFunction {
+public class RowNumberFunction extends ChunkedWindowFunction implements WindowFunction {
     private long rowNum;
 
     @Override
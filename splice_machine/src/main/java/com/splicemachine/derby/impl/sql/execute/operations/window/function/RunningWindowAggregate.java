@@ -0,0 +1,105 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations.window.function;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.services.io.StoredFormatIds;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+
+/**
+ * Base class for aggregates which keep a running result over the window frame, instead of the values in it.
+ *
+ * Rows are added as they enter the frame and removed as they leave it (oldest first), each in constant
+ * amortized time, so that sliding a frame over a partition takes time linear in the size of the partition,
+ * whatever the size of the frame. Unlike {@link ChunkedWindowFunction}s, these aggregates don't keep the
+ * values of the frame; the values of a row are handed back to {@link #remove(DataValueDescriptor[])} when it
+ * leaves the frame.
+ */
+public abstract class RunningWindowAggregate extends SpliceGenericWindowFunction {
+
+    @Override
+    public void accumulate(DataValueDescriptor[] valueDescriptors) throws StandardException {
+        addValues(valueDescriptors);
+    }
+
+    @Override
+    public void remove(DataValueDescriptor[] values) throws StandardException {
+        if (values != null) {
+            removeValues(values);
+        }
+    }
+
+    /**
+     * Add a row to the frame.
+     */
+    protected abstract void addValues(DataValueDescriptor[] values) throws StandardException;
+
+    /**
+     * Remove the oldest row in the frame.
+     *
+     * @param values the values which the row was added with
+     */
+    protected abstract void removeValues(DataValueDescriptor[] values) throws StandardException;
+
+    protected static boolean isNull(DataValueDescriptor dvd) {
+        return dvd == null || dvd.isNull();
+    }
+
+    /**
+     * @return true if the value is a REAL or a DOUBLE, which have to be summed with a {@link CompensatedSum}
+     */
+    protected static boolean isFloatingPoint(DataValueDescriptor dvd) {
+        int formatId = dvd.getTypeFormatId();
+        return formatId == StoredFormatIds.SQL_DOUBLE_ID || formatId == StoredFormatIds.SQL_REAL_ID;
+    }
+
+    /**
+     * A running sum of doubles, which values can be subtracted from as well as added to.
+     *
+     * Subtracting the values which leave the frame from a plain running sum is not the same as summing the
+     * values in the frame: each step rounds, and once a large value has left the frame, the error it caused
+     * is left behind in the small values which remain (adding 1e20 and 1 and then subtracting 1e20 leaves 0).
+     * So the sum keeps the error of each step in a compensation term, as in Kahan-Babuska summation, and
+     * the result stays close to what summing the values in the frame directly would give.
+     */
+    protected static final class CompensatedSum {
+        private double sum;
+        private double compensation;
+
+        void add(double value) {
+            double t = sum + value;
+            if (Math.abs(sum) >= Math.abs(value)) {
+                compensation += (sum - t) + value;
+            } else {
+                compensation += (value - t) + sum;
+            }
+            sum = t;
+        }
+
+        void subtract(double value) {
+            add(-value);
+        }
+
+        double value() {
+            return sum + compensation;
+        }
+
+        void reset() {
+            sum = 0d;
+            compensation = 0d;
+        }
+    }
+}
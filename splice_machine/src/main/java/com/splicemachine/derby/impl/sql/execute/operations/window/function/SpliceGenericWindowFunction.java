@@ -18,8 +18,6 @@ package com.splicemachine.derby.impl.sql.execute.operations.window.function;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
-import java.util.ArrayList;
-import java.util.List;
 
 import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.db.iapi.services.io.FormatableHashtable;
@@ -28,20 +26,18 @@ import com.splicemachine.db.iapi.sql.execute.ExecAggregator;
 import com.splicemachine.db.iapi.sql.execute.WindowFunction;
 import com.splicemachine.db.iapi.types.DataTypeDescriptor;
 import com.splicemachine.db.iapi.types.DataValueDescriptor;
-import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import com.splicemachine.derby.stream.window.SpillableRowBuffer;
 
 /**
- * Base class for all window functions. Contains frame "chucking" mechanism for
- * window frames.
+ * Base class for all window functions. Functions which need to keep the values of the frame
+ * extend {@link ChunkedWindowFunction}, and aggregates which only keep a running result extend
+ * {@link RunningWindowAggregate}.
  *
  * Created by jyuan on 7/28/14.
  */
 public abstract class SpliceGenericWindowFunction implements WindowFunction {
 
-    public static final int CHUNKSIZE = 100;
     protected DataValueDescriptor resultType;
-    protected ArrayList<WindowChunk> chunks;
-    protected WindowChunk first, last;
 
     public SpliceGenericWindowFunction() {
         reset();
@@ -62,39 +58,12 @@ public abstract class SpliceGenericWindowFunction implements WindowFunction {
         this.resultType = resultType.cloneValue(false);
     }
 
-    protected void add(DataValueDescriptor[] addends) throws StandardException{
-        if (first == null && last == null) {
-            reset();
-        }
-
-        if (last.isFull()) {
-            last = new WindowChunk();
-            chunks.add(last);
-        }
-        last.add(addends);
-        calculateOnAdd(last, addends);
-    }
-
-    public DataValueDescriptor[] remove() throws StandardException{
-
-        DataValueDescriptor[] dvd = first.remove();
-        if (first.consumed()) {
-            chunks.remove(first);
-            if (chunks.size() == 0) {
-                first = last = null;
-                return null;
-            }
-            first = chunks.get(0);
-        }
-        else {
-            calculateOnRemove(first, dvd);
-        }
-        return dvd;
-    }
-
-    protected abstract void calculateOnAdd(WindowChunk chunk, DataValueDescriptor[] dvds) throws StandardException;
-
-    protected abstract void calculateOnRemove(WindowChunk chunk, DataValueDescriptor[] dvds) throws StandardException;
+    /**
+     * Remove the oldest row from the frame.
+     *
+     * @param values the values the row was accumulated with, or {@code null} if it was never accumulated.
+     */
+    public abstract void remove(DataValueDescriptor[] values) throws StandardException;
 
     /**
      * Return the first non-zero comparison of each array item in order.<br/>
@@ -138,12 +107,11 @@ public abstract class SpliceGenericWindowFunction implements WindowFunction {
         return (dvd == null || dvd.length == 0);
     }
 
-    public void reset() {
-        WindowChunk chunk = new WindowChunk();
-        first = last = chunk;
-        chunks = new ArrayList<>();
-        chunks.add(chunk);
-    }
+    /**
+     * Clear the state of the function, ready for a new frame. This is also called by the constructor, so
+     * any state should be initialized here rather than in field initializers.
+     */
+    public abstract void reset();
 
 
     public void writeExternal(ObjectOutput out) throws IOException {
@@ -164,59 +132,6 @@ public abstract class SpliceGenericWindowFunction implements WindowFunction {
         }
     }
 
-    protected class WindowChunk {
-        DataValueDescriptor result;
-        DataValueDescriptor[] previous;
-        DataValueDescriptor[][] values;
-        int first, last;
-
-        public WindowChunk() {
-            values = new DataValueDescriptor[CHUNKSIZE][];
-            first = last = 0;
-        }
-
-        @SuppressFBWarnings(value = "EI_EXPOSE_REP",justification = "Intentional")
-        public DataValueDescriptor[] getPrevious() {
-            return previous;
-        }
-
-        @SuppressFBWarnings(value = "EI_EXPOSE_REP2",justification = "Intentional")
-        public void setPrevious(DataValueDescriptor[] previousValues) {
-            this.previous = previousValues;
-        }
-
-        public DataValueDescriptor getResult() {
-            return result;
-        }
-
-        public DataValueDescriptor[] remove() {
-            return values[first++];
-        }
-
-        public void add(DataValueDescriptor[] v) {
-            values[last++] = v;
-        }
-
-        public void setResult(DataValueDescriptor v) throws StandardException {
-            if (result == null) {
-                result = resultType.cloneValue(false);
-            }
-            this.result.setValue(v);
-        }
-
-        public DataValueDescriptor[] get(int i) {
-            return values[i];
-        }
-
-        private boolean consumed () {
-            return (first >= last);
-        }
-
-        private boolean isFull() {
-            return (last == CHUNKSIZE);
-        }
-    }
-
     //
     // Derby no-ops
     //
@@ -245,7 +160,12 @@ public abstract class SpliceGenericWindowFunction implements WindowFunction {
         return false;
     }
 
-    public List<DataValueDescriptor> finishFrame() throws StandardException {
+    /**
+     * @return the results of a function which needs the entire frame, as single-column rows in the order of the
+     * rows they belong to, or {@code null} if the results come from {@link #getResult()} row by row. The caller
+     * must close the returned buffer.
+     */
+    public SpillableRowBuffer finishFrame() throws StandardException {
         // override/implement if function needs the entire frame
         return null;
     }
@@ -24,10 +24,17 @@ import com.splicemachine.db.iapi.types.DataValueDescriptor;
 import com.splicemachine.db.iapi.types.NumberDataValue;
 
 /**
+ * Keeps a running sum of the non-null values in the frame. REAL and DOUBLE values are summed with a
+ * {@link RunningWindowAggregate.CompensatedSum}, so that values leaving the frame don't leave their
+ * rounding errors behind.
  *
  * Created by jyuan on 7/31/14.
  */
-public class SumAggregator extends SpliceGenericWindowFunction {
+public class SumAggregator extends RunningWindowAggregate {
+    private NumberDataValue sum;
+    private long nonNullCount;
+    private final CompensatedSum floatingSum = new CompensatedSum();
+    private boolean floatingPoint;
 
     @Override
     public WindowFunction setup( ClassFactory cf, String aggregateName, DataTypeDescriptor returnType,
@@ -37,46 +44,57 @@ public class SumAggregator extends SpliceGenericWindowFunction {
     }
 
     @Override
-    public void accumulate(DataValueDescriptor[] valueDescriptors) throws StandardException {
-        this.add(valueDescriptors);
+    protected void addValues(DataValueDescriptor[] dvds) throws StandardException {
+        DataValueDescriptor input = dvds[0];
+        if (isNull(input)) {
+            return;
+        }
+        if (sum == null) {
+            // sum in the result type, so that it overflows exactly when the result would
+            sum = (NumberDataValue) resultType.cloneValue(false);
+            sum.setValue(input);
+            floatingPoint = isFloatingPoint(input);
+            floatingSum.reset();
+        } else if (!floatingPoint) {
+            sum.plus(sum, (NumberDataValue) input, sum);
+        }
+        if (floatingPoint) {
+            floatingSum.add(input.getDouble());
+        }
+        nonNullCount++;
     }
 
     @Override
-    protected void calculateOnAdd(WindowChunk chunk, DataValueDescriptor[] dvds) throws StandardException{
-        DataValueDescriptor result = chunk.getResult();
-        if (result == null || result.isNull()) {
-            chunk.setResult(dvds[0].cloneValue(false));
+    protected void removeValues(DataValueDescriptor[] dvds) throws StandardException {
+        DataValueDescriptor input = dvds[0];
+        if (isNull(input)) {
+            return;
+        }
+        if (--nonNullCount == 0) {
+            sum = null;
+        } else if (floatingPoint) {
+            floatingSum.subtract(input.getDouble());
         } else {
-            NumberDataValue input = (NumberDataValue)dvds[0];
-            if (input != null && ! input.isNull()) {
-                NumberDataValue nv = (NumberDataValue) result.cloneValue(false);
-                nv.plus(input, nv, nv);
-                chunk.setResult(nv);
-            }
+            sum.minus(sum, (NumberDataValue) input, sum);
         }
     }
 
     @Override
-    protected void calculateOnRemove(WindowChunk chunk, DataValueDescriptor[] dvds) throws StandardException {
-        DataValueDescriptor result = chunk.getResult();
-        NumberDataValue input = (NumberDataValue)dvds[0];
-        if (input != null && ! input.isNull()) {
-            NumberDataValue nv = (NumberDataValue) result.cloneValue(false);
-            nv.minus(nv, input, nv);
-            chunk.setResult(nv);
+    public DataValueDescriptor getResult() throws StandardException {
+        if (sum == null) {
+            return null;
+        }
+        if (floatingPoint) {
+            // fails as plus() would, if the sum is out of range
+            sum.setValue(floatingSum.value());
         }
+        return sum.cloneValue(false);
     }
 
     @Override
-    public DataValueDescriptor getResult() throws StandardException {
-        // Iterate through each chunk, compute the max/min of each chunk
-        WindowChunk first = chunks.get(0);
-        NumberDataValue result = (NumberDataValue)first.getResult();
-        for (int i = 1; i < chunks.size(); ++i) {
-            NumberDataValue dvd = (NumberDataValue)chunks.get(i).getResult();
-            result.plus(result, dvd, result);
-        }
-        return result;
+    public void reset() {
+        sum = null;
+        nonNullCount = 0;
     }
 
     @Override
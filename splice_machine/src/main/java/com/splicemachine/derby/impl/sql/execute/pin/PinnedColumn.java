@@ -0,0 +1,410 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.pin;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.derby.impl.sql.execute.operations.vector.ColumnVector;
+import com.splicemachine.derby.impl.sql.execute.operations.vector.DoubleColumnVector;
+import com.splicemachine.derby.impl.sql.execute.operations.vector.LongColumnVector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The values of a single column of a {@link PinnedSegment}, stored according to the type of the column:
+ * <ul>
+ *     <li>integral columns as bit-packed offsets from the smallest value in the column,</li>
+ *     <li>REAL and DOUBLE columns as doubles (so that they can be handed straight to a vector),</li>
+ *     <li>and everything else as bit-packed references into a dictionary of the distinct values of the column.</li>
+ * </ul>
+ * Nulls are kept in a separate bitmap in each case. Once built, a column is immutable, and may be read by
+ * many threads at once.
+ */
+abstract class PinnedColumn{
+    private final long[] nulls;
+
+    PinnedColumn(long[] nulls){
+        this.nulls=nulls;
+    }
+
+    static Builder newBuilder(DataValueDescriptor template){
+        ColumnVector.Kind kind=ColumnVector.kindOf(template);
+        if(kind==null) return new DictionaryBuilder();
+        switch(kind){
+            case INTEGRAL:
+                return new IntegralBuilder();
+            default:
+                return new FloatingBuilder(kind);
+        }
+    }
+
+    final boolean isNull(int row){
+        return nulls!=null && (nulls[row>>>6]&(1L<<row))!=0;
+    }
+
+    /**
+     * Set {@code dest} to the value of the column in the given row.
+     */
+    final void read(int row,DataValueDescriptor dest) throws StandardException{
+        if(isNull(row))
+            dest.setToNull();
+        else
+            readValue(row,dest);
+    }
+
+    /**
+     * Copy the values of rows {@code from} to {@code from+count-1} into the first {@code count} entries
+     * of {@code vector}, which must have been reset.
+     *
+     * @return false if the column cannot be copied into vectors of that kind.
+     */
+    boolean load(ColumnVector vector,int from,int count){
+        return false;
+    }
+
+    /**
+     * @return an estimate of the heap used by the column
+     */
+    abstract long sizeInBytes();
+
+    protected abstract void readValue(int row,DataValueDescriptor dest) throws StandardException;
+
+    protected final long nullsSize(){
+        return nulls==null?0L:8L*nulls.length;
+    }
+
+    protected final void loadNulls(ColumnVector vector,int from,int count){
+        if(nulls==null) return;
+        for(int i=0;i<count;i++){
+            if(isNull(from+i))
+                vector.setNull(i);
+        }
+    }
+
+    /* ****************************************************************************************************************/
+    /*bit packing*/
+
+    /**
+     * @return the number of bits needed to hold every value from 0 to {@code range}, taken as unsigned.
+     */
+    static int bitsFor(long range){
+        return 64-Long.numberOfLeadingZeros(range);
+    }
+
+    /**
+     * Pack the first {@code count} entries of {@code values}, less {@code base}, into {@code bits} bits each.
+     */
+    static long[] pack(long[] values,int count,long base,int bits){
+        long[] packed=new long[(int)(((long)count*bits+63)>>>6)];
+        if(bits==0) return packed;
+        for(int i=0;i<count;i++){
+            long value=values[i]-base;
+            long bitPos=(long)i*bits;
+            int word=(int)(bitPos>>>6);
+            int shift=(int)(bitPos&63);
+            packed[word]|=value<<shift;
+            if(shift+bits>64)
+                packed[word+1]|=value>>>(64-shift);
+        }
+        return packed;
+    }
+
+    static long unpack(long[] packed,int bits,int index){
+        if(bits==0) return 0L;
+        long bitPos=(long)index*bits;
+        int word=(int)(bitPos>>>6);
+        int shift=(int)(bitPos&63);
+        long value=packed[word]>>>shift;
+        if(shift+bits>64)
+            value|=packed[word+1]<<(64-shift);
+        return bits==64?value:value&((1L<<bits)-1);
+    }
+
+    /* ****************************************************************************************************************/
+    /*column types*/
+
+    private static final class IntegralColumn extends PinnedColumn{
+        private final long base;
+        private final int bits;
+        private final long[] packed;
+
+        IntegralColumn(long[] nulls,long base,int bits,long[] packed){
+            super(nulls);
+            this.base=base;
+            this.bits=bits;
+            this.packed=packed;
+        }
+
+        @Override
+        protected void readValue(int row,DataValueDescriptor dest) throws StandardException{
+            dest.setValue(base+unpack(packed,bits,row));
+        }
+
+        @Override
+        boolean load(ColumnVector vector,int from,int count){
+            if(!(vector instanceof LongColumnVector)) return false;
+            long[] values=((LongColumnVector)vector).values();
+            for(int i=0;i<count;i++){
+                values[i]=base+unpack(packed,bits,from+i);
+            }
+            loadNulls(vector,from,count);
+            return true;
+        }
+
+        @Override
+        long sizeInBytes(){
+            return 8L*packed.length+nullsSize();
+        }
+    }
+
+    private static final class FloatingColumn extends PinnedColumn{
+        private final ColumnVector.Kind kind;
+        private final double[] values;
+
+        FloatingColumn(long[] nulls,ColumnVector.Kind kind,double[] values){
+            super(nulls);
+            this.kind=kind;
+            this.values=values;
+        }
+
+        @Override
+        protected void readValue(int row,DataValueDescriptor dest) throws StandardException{
+            if(kind==ColumnVector.Kind.REAL)
+                dest.setValue((float)values[row]);
+            else
+                dest.setValue(values[row]);
+        }
+
+        @Override
+        boolean load(ColumnVector vector,int from,int count){
+            if(!(vector instanceof DoubleColumnVector) || vector.getKind()!=kind) return false;
+            System.arraycopy(values,from,((DoubleColumnVector)vector).values(),0,count);
+            loadNulls(vector,from,count);
+            return true;
+        }
+
+        @Override
+        long sizeInBytes(){
+            return 8L*values.length+nullsSize();
+        }
+    }
+
+    private static final class DictionaryColumn extends PinnedColumn{
+        private final DataValueDescriptor[] dictionary;
+        private final int bits;
+        private final long[] codes;
+        private final long size;
+
+        DictionaryColumn(long[] nulls,DataValueDescriptor[] dictionary,int bits,long[] codes,long dictionarySize){
+            super(nulls);
+            this.dictionary=dictionary;
+            this.bits=bits;
+            this.codes=codes;
+            this.size=dictionarySize+8L*codes.length+nullsSize();
+        }
+
+        @Override
+        protected void readValue(int row,DataValueDescriptor dest) throws StandardException{
+            dest.setValue(dictionary[(int)unpack(codes,bits,row)]);
+        }
+
+        @Override
+        long sizeInBytes(){
+            return size;
+        }
+    }
+
+    /* ****************************************************************************************************************/
+    /*builders*/
+
+    abstract static class Builder{
+        protected int count;
+        private long[] nulls;
+
+        /**
+         * Append the value of the column in the next row.
+         */
+        final void add(DataValueDescriptor value) throws StandardException{
+            ensureCapacity(count+1);
+            if(value==null || value.isNull()){
+                if(nulls==null)
+                    nulls=new long[(count>>>6)+1];
+                else if((count>>>6)>=nulls.length)
+                    nulls=Arrays.copyOf(nulls,Math.max(2*nulls.length,(count>>>6)+1));
+                nulls[count>>>6]|=1L<<count;
+                addNull();
+            }else
+                addValue(value);
+            count++;
+        }
+
+        /**
+         * @return an estimate of the heap which the built column will use
+         */
+        abstract long sizeInBytes();
+
+        abstract PinnedColumn build();
+
+        protected abstract void ensureCapacity(int capacity);
+
+        protected abstract void addValue(DataValueDescriptor value) throws StandardException;
+
+        protected abstract void addNull();
+
+        protected final boolean isNull(int row){
+            return nulls!=null && (row>>>6)<nulls.length && (nulls[row>>>6]&(1L<<row))!=0;
+        }
+
+        protected final long[] nulls(){
+            if(nulls==null) return null;
+            int length=(count+63)>>>6;
+            return nulls.length==length?nulls:Arrays.copyOf(nulls,length);
+        }
+
+        protected static int grow(int length,int capacity){
+            return Math.max(capacity,Math.max(16,length+(length>>>1)));
+        }
+    }
+
+    private static final class IntegralBuilder extends Builder{
+        private long[] values=new long[16];
+        private long min=Long.MAX_VALUE;
+        private long max=Long.MIN_VALUE;
+
+        @Override
+        protected void ensureCapacity(int capacity){
+            if(capacity>values.length)
+                values=Arrays.copyOf(values,grow(values.length,capacity));
+        }
+
+        @Override
+        protected void addValue(DataValueDescriptor value) throws StandardException{
+            long v=value.getLong();
+            values[count]=v;
+            if(v<min) min=v;
+            if(v>max) max=v;
+        }
+
+        @Override
+        protected void addNull(){
+            values[count]=0L;
+        }
+
+        @Override
+        long sizeInBytes(){
+            return 8L*count;
+        }
+
+        @Override
+        PinnedColumn build(){
+            long base=min<=max?min:0L;
+            for(int i=0;i<count;i++){
+                //nulls are stored as the smallest value, so they take no extra bits
+                if(isNull(i))
+                    values[i]=base;
+            }
+            int bits=min<=max?bitsFor(max-min):0;
+            return new IntegralColumn(nulls(),base,bits,pack(values,count,base,bits));
+        }
+    }
+
+    private static final class FloatingBuilder extends Builder{
+        private final ColumnVector.Kind kind;
+        private double[] values=new double[16];
+
+        FloatingBuilder(ColumnVector.Kind kind){
+            this.kind=kind;
+        }
+
+        @Override
+        protected void ensureCapacity(int capacity){
+            if(capacity>values.length)
+                values=Arrays.copyOf(values,grow(values.length,capacity));
+        }
+
+        @Override
+        protected void addValue(DataValueDescriptor value) throws StandardException{
+            values[count]=kind==ColumnVector.Kind.REAL?value.getFloat():value.getDouble();
+        }
+
+        @Override
+        protected void addNull(){
+            values[count]=0d;
+        }
+
+        @Override
+        long sizeInBytes(){
+            return 8L*count;
+        }
+
+        @Override
+        PinnedColumn build(){
+            return new FloatingColumn(nulls(),kind,Arrays.copyOf(values,count));
+        }
+    }
+
+    private static final class DictionaryBuilder extends Builder{
+        private final Map<Object,Integer> codesByValue=new HashMap<>();
+        private final List<DataValueDescriptor> dictionary=new ArrayList<>();
+        private long[] codes=new long[16];
+        private long dictionarySize;
+
+        @Override
+        protected void ensureCapacity(int capacity){
+            if(capacity>codes.length)
+                codes=Arrays.copyOf(codes,grow(codes.length,capacity));
+        }
+
+        @Override
+        protected void addValue(DataValueDescriptor value) throws StandardException{
+            Object key=value.getObject();
+            Integer code=key==null?null:codesByValue.get(key);
+            if(code==null){
+                code=dictionary.size();
+                DataValueDescriptor copy=value.cloneValue(true);
+                dictionary.add(copy);
+                dictionarySize+=copy.estimateMemoryUsage();
+                if(key!=null)
+                    codesByValue.put(key,code);
+            }
+            codes[count]=code;
+        }
+
+        @Override
+        protected void addNull(){
+            codes[count]=0L;
+        }
+
+        @Override
+        long sizeInBytes(){
+            return dictionarySize+4L*count;
+        }
+
+        @Override
+        PinnedColumn build(){
+            int bits=dictionary.isEmpty()?0:bitsFor(dictionary.size()-1);
+            return new DictionaryColumn(nulls(),
+                    dictionary.toArray(new DataValueDescriptor[dictionary.size()]),
+                    bits,
+                    pack(codes,count,0L,bits),
+                    dictionarySize);
+        }
+    }
+}
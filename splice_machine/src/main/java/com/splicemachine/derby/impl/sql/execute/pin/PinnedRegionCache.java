@@ -0,0 +1,213 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.pin;
+
+import com.splicemachine.derby.stream.iapi.DataSetProcessor;
+import com.splicemachine.pipeline.PipelineDriver;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.impl.driver.SIDriver;
+import com.splicemachine.storage.Partition;
+import org.apache.log4j.Logger;
+import org.spark_project.guava.util.concurrent.ThreadFactoryBuilder;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@link PinnedSegment}s of the pinned table regions hosted by this server.
+ * <p/>
+ * Segments are read in the background, the first time a control side scan of a pinned table finds one of the
+ * regions it needs missing, and are dropped as soon as a lookup finds that their region has been written to
+ * (or has moved); the next scan then reads the region again. The total size of the segments is kept within
+ * {@code splice.pin.regionCacheMBSize}, by dropping the least recently used.
+ */
+public class PinnedRegionCache{
+    private static final Logger LOG=Logger.getLogger(PinnedRegionCache.class);
+    private static volatile PinnedRegionCache INSTANCE;
+
+    private final long maxSize;
+    private final Executor executor;
+    /*keyed by region name, in access order; guarded by this*/
+    private final LinkedHashMap<String,PinnedSegment> segments=new LinkedHashMap<>(16,0.75f,true);
+    private long size;
+    private final Set<String> loading=ConcurrentHashMap.newKeySet();
+
+    PinnedRegionCache(long maxSize,Executor executor){
+        this.maxSize=maxSize;
+        this.executor=executor;
+    }
+
+    public static PinnedRegionCache cache(){
+        PinnedRegionCache cache=INSTANCE;
+        if(cache==null){
+            synchronized(PinnedRegionCache.class){
+                cache=INSTANCE;
+                if(cache==null){
+                    long maxSize=SIDriver.driver().getConfiguration().getPinnedRegionCacheMbSize()*1024L*1024L;
+                    ThreadPoolExecutor pool=new ThreadPoolExecutor(1,1,
+                            60,TimeUnit.SECONDS,
+                            new LinkedBlockingQueue<Runnable>(),
+                            new ThreadFactoryBuilder().setNameFormat("pinnedRegionLoader-%d").setDaemon(true).build());
+                    pool.allowCoreThreadTimeOut(true);
+                    cache=INSTANCE=new PinnedRegionCache(maxSize,pool);
+                }
+            }
+        }
+        return cache;
+    }
+
+    public boolean isEnabled(){
+        return maxSize>0;
+    }
+
+    public long getMaxSize(){
+        return maxSize;
+    }
+
+    /**
+     * @param conglomerateId the pinned table
+     * @param regions the regions of the table to read, in row key order
+     * @param txn the transaction which is to read them
+     * @param requiredColumns the number of (storage) columns the scan needs
+     * @return the segments of every one of {@code regions}, or {@code null} if any of them is not cached,
+     * is out of date, or cannot be read by {@code txn}.
+     */
+    public List<PinnedSegment> getSegments(long conglomerateId,List<Partition> regions,TxnView txn,int requiredColumns){
+        List<PinnedSegment> found=new ArrayList<>(regions.size());
+        for(Partition region:regions){
+            PinnedSegment segment=get(region.getName());
+            if(segment==null || segment.getConglomerateId()!=conglomerateId) return null;
+            if(!segment.isCurrent()){
+                remove(segment);
+                return null;
+            }
+            if(!segment.isVisibleTo(txn) || segment.columnCount()<requiredColumns) return null;
+            found.add(segment);
+        }
+        return found;
+    }
+
+    /**
+     * @return true if {@link #load(List, PinnedTableScans, DataSetProcessor)} would read any of {@code regions}
+     */
+    public boolean shouldLoad(long conglomerateId,List<Partition> regions){
+        if(!isEnabled() || !isHostedHere(regions)) return false;
+        for(Partition region:regions){
+            String name=region.getName();
+            PinnedSegment segment=get(name);
+            if((segment==null || segment.getConglomerateId()!=conglomerateId || !segment.isCurrent())
+                    && !loading.contains(name))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Read those of {@code regions} which are not cached (or are out of date) into the cache, in the
+     * background. As a scan is only served from the cache if every region it covers is cached, nothing is
+     * read unless all of {@code regions} are hosted by this server.
+     *
+     * @param dsp the (control side) processor to read the regions with
+     */
+    public void load(List<Partition> regions,PinnedTableScans scans,DataSetProcessor dsp){
+        if(!isEnabled() || !isHostedHere(regions)) return;
+        for(Partition region:regions){
+            String name=region.getName();
+            PinnedSegment segment=get(name);
+            if(segment!=null && segment.getConglomerateId()==scans.getConglomerateId() && segment.isCurrent()) continue;
+            if(!loading.add(name)) continue;
+            PopulatePinnedRegion task=new PopulatePinnedRegion(this,name,region.getStartKey(),region.getEndKey(),scans,dsp);
+            try{
+                executor.execute(task);
+            }catch(RejectedExecutionException ree){
+                LOG.warn("Unable to read region "+name+" into the pinned table cache",ree);
+                loading.remove(name);
+            }
+        }
+    }
+
+    /**
+     * Drop every segment of the given table.
+     */
+    public synchronized void invalidate(long conglomerateId){
+        Iterator<PinnedSegment> it=segments.values().iterator();
+        while(it.hasNext()){
+            PinnedSegment segment=it.next();
+            if(segment.getConglomerateId()==conglomerateId){
+                it.remove();
+                size-=segment.sizeInBytes();
+            }
+        }
+    }
+
+    public synchronized long size(){
+        return size;
+    }
+
+    /* ****************************************************************************************************************/
+    /*package-private methods, for the loader*/
+    void put(PinnedSegment segment){
+        if(segment.sizeInBytes()>maxSize) return;
+        synchronized(this){
+            PinnedSegment old=segments.put(segment.getRegionName(),segment);
+            if(old!=null)
+                size-=old.sizeInBytes();
+            size+=segment.sizeInBytes();
+            Iterator<Map.Entry<String,PinnedSegment>> it=segments.entrySet().iterator();
+            while(size>maxSize && it.hasNext()){
+                PinnedSegment eldest=it.next().getValue();
+                it.remove();
+                size-=eldest.sizeInBytes();
+            }
+        }
+    }
+
+    void loaded(String regionName){
+        loading.remove(regionName);
+    }
+
+    synchronized PinnedSegment get(String regionName){
+        return segments.get(regionName);
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static boolean isHostedHere(List<Partition> regions){
+        PipelineDriver pipelines=PipelineDriver.driver();
+        if(pipelines==null) return false;
+        for(Partition region:regions){
+            if(pipelines.getWritePipeline(region.getName())==null) return false;
+        }
+        return true;
+    }
+
+    private synchronized void remove(PinnedSegment segment){
+        if(segments.get(segment.getRegionName())==segment){
+            segments.remove(segment.getRegionName());
+            size-=segment.sizeInBytes();
+        }
+    }
+}
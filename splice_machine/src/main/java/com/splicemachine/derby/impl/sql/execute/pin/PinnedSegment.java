@@ -0,0 +1,219 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.pin;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.pipeline.PartitionWritePipeline;
+import com.splicemachine.pipeline.PipelineDriver;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnView;
+
+import java.util.Arrays;
+
+/**
+ * A columnar copy of the rows of a single region of a pinned table, as of a snapshot.
+ * <p/>
+ * The rows are held in row key order, with every column of the table in its storage position. A segment is
+ * only good for as long as the region it was read from stays open on this server and is not written to; see
+ * {@link #isCurrent()}. Even then, it can only stand in for a scan by a transaction which began after the
+ * snapshot was taken; see {@link #isVisibleTo(TxnView)}.
+ */
+public class PinnedSegment{
+    private final long conglomerateId;
+    private final String regionName;
+    private final PartitionWritePipeline pipeline;
+    private final long writeSequence;
+    private final long snapshotTimestamp;
+    private final int rowCount;
+    private final byte[] keys;
+    private final int[] keyOffsets;
+    private final PinnedColumn[] columns;
+    private final long sizeInBytes;
+
+    private PinnedSegment(long conglomerateId,
+                          String regionName,
+                          PartitionWritePipeline pipeline,
+                          long writeSequence,
+                          long snapshotTimestamp,
+                          int rowCount,
+                          byte[] keys,
+                          int[] keyOffsets,
+                          PinnedColumn[] columns){
+        this.conglomerateId=conglomerateId;
+        this.regionName=regionName;
+        this.pipeline=pipeline;
+        this.writeSequence=writeSequence;
+        this.snapshotTimestamp=snapshotTimestamp;
+        this.rowCount=rowCount;
+        this.keys=keys;
+        this.keyOffsets=keyOffsets;
+        this.columns=columns;
+        long size=keys.length+4L*keyOffsets.length;
+        for(PinnedColumn column:columns){
+            size+=column.sizeInBytes();
+        }
+        this.sizeInBytes=size;
+    }
+
+    public long getConglomerateId(){
+        return conglomerateId;
+    }
+
+    public String getRegionName(){
+        return regionName;
+    }
+
+    public int rowCount(){
+        return rowCount;
+    }
+
+    public int columnCount(){
+        return columns.length;
+    }
+
+    public long sizeInBytes(){
+        return sizeInBytes;
+    }
+
+    /**
+     * @return true if the region is still open on this server, and has not been written to since the
+     * segment was read.
+     */
+    public boolean isCurrent(){
+        PipelineDriver driver=PipelineDriver.driver();
+        return pipeline!=null && driver!=null
+                && driver.getWritePipeline(regionName)==pipeline
+                && pipeline.getWriteSequence()==writeSequence;
+    }
+
+    /**
+     * @return true if {@code txn} sees exactly the rows in this segment (assuming it is still current).
+     * The snapshot held every write committed before it began, and none were made since, so any transaction
+     * which began after the snapshot (as did all of its parents) sees the same data.
+     */
+    public boolean isVisibleTo(TxnView txn){
+        for(TxnView t=txn;t!=null && t.getTxnId()!=Txn.ROOT_TRANSACTION.getTxnId();t=t.getParentTxnView()){
+            if(t.getBeginTimestamp()<snapshotTimestamp) return false;
+        }
+        return txn!=null;
+    }
+
+    public byte[] rowKey(int row){
+        return Arrays.copyOfRange(keys,keyOffsets[row],keyOffsets[row+1]);
+    }
+
+    /**
+     * @return the first row whose key is not less than {@code key}, or {@link #rowCount()} if there is none.
+     * An empty or null key comes before every row.
+     */
+    public int lowerBound(byte[] key){
+        if(key==null || key.length==0) return 0;
+        int low=0;
+        int high=rowCount;
+        while(low<high){
+            int mid=(low+high)>>>1;
+            int c=Bytes.BASE_COMPARATOR.compare(keys,keyOffsets[mid],keyOffsets[mid+1]-keyOffsets[mid],key,0,key.length);
+            if(c<0)
+                low=mid+1;
+            else
+                high=mid;
+        }
+        return low;
+    }
+
+    boolean isNull(int row,int column){
+        return columns[column].isNull(row);
+    }
+
+    /**
+     * Set {@code dest} to the value of the given column (by storage position) in the given row.
+     */
+    void read(int row,int column,DataValueDescriptor dest) throws StandardException{
+        columns[column].read(row,dest);
+    }
+
+    PinnedColumn column(int column){
+        return columns[column];
+    }
+
+    /**
+     * Collects the rows of a region, in row key order.
+     */
+    public static class Builder{
+        private final PinnedColumn.Builder[] columns;
+        private byte[] keys=new byte[256];
+        private int[] keyOffsets=new int[17];
+        private int rowCount;
+
+        /**
+         * @param template a row of the table, with every column in its storage position
+         */
+        public Builder(DataValueDescriptor[] template){
+            this.columns=new PinnedColumn.Builder[template.length];
+            for(int i=0;i<template.length;i++){
+                columns[i]=PinnedColumn.newBuilder(template[i]);
+            }
+        }
+
+        public void add(byte[] rowKey,DataValueDescriptor[] row) throws StandardException{
+            assert row.length==columns.length: "Row is not of the table's shape";
+            int end=keyOffsets[rowCount];
+            if(end+rowKey.length>keys.length)
+                keys=Arrays.copyOf(keys,Math.max(2*keys.length,end+rowKey.length));
+            System.arraycopy(rowKey,0,keys,end,rowKey.length);
+            if(rowCount+2>keyOffsets.length)
+                keyOffsets=Arrays.copyOf(keyOffsets,2*keyOffsets.length);
+            keyOffsets[rowCount+1]=end+rowKey.length;
+            for(int i=0;i<columns.length;i++){
+                columns[i].add(row[i]);
+            }
+            rowCount++;
+        }
+
+        /**
+         * @return an estimate of the heap the built segment will use
+         */
+        public long sizeInBytes(){
+            long size=keyOffsets[rowCount]+4L*rowCount;
+            for(PinnedColumn.Builder column:columns){
+                size+=column.sizeInBytes();
+            }
+            return size;
+        }
+
+        /**
+         * @param pipeline the write pipeline of the region, as of when it was read
+         * @param writeSequence the write sequence of {@code pipeline} from before the region was read
+         * @param snapshotTimestamp the begin timestamp of the transaction the region was read with
+         */
+        public PinnedSegment build(long conglomerateId,
+                                   String regionName,
+                                   PartitionWritePipeline pipeline,
+                                   long writeSequence,
+                                   long snapshotTimestamp){
+            PinnedColumn[] built=new PinnedColumn[columns.length];
+            for(int i=0;i<columns.length;i++){
+                built[i]=columns[i].build();
+            }
+            return new PinnedSegment(conglomerateId,regionName,pipeline,writeSequence,snapshotTimestamp,rowCount,
+                    Arrays.copyOf(keys,keyOffsets[rowCount]),
+                    Arrays.copyOf(keyOffsets,rowCount+1),
+                    built);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.pin;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.store.access.Qualifier;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
+import com.splicemachine.derby.impl.sql.execute.operations.ScanOperation;
+import com.splicemachine.derby.impl.sql.execute.operations.vector.ColumnBatch;
+import com.splicemachine.derby.impl.sql.execute.operations.vector.ColumnVector;
+import com.splicemachine.derby.impl.sql.execute.operations.vector.VectorPredicate;
+import com.splicemachine.derby.impl.store.access.hbase.HBaseRowLocation;
+import com.splicemachine.derby.stream.utils.StreamLogUtils;
+import com.splicemachine.derby.utils.Scans;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Scans a range of rows out of the {@link PinnedSegment}s of a table, in place of a scan of its regions.
+ * <p/>
+ * Rows are produced in the shape of {@code template}, and the scan qualifiers are applied to them. Where
+ * the qualifiers can be evaluated over vectors, they are evaluated a {@link ColumnBatch} at a time over the
+ * columns they refer to, which are copied out of the segment directly; only the rows which pass are then
+ * materialized. Otherwise each row is materialized and qualified in turn.
+ */
+@NotThreadSafe
+public class PinnedSegmentIterator implements Iterator<LocatedRow>{
+    private final List<PinnedSegment> segments;
+    private final byte[] startKey;
+    private final byte[] stopKey;
+    private final ExecRow template;
+    private final int[] baseColumnMap;
+    private final int[] storagePositions;
+    private final Qualifier[][] qualifiers;
+    private final DataValueDescriptor probeValue;
+    private final ScanOperation operation;
+    private final ColumnBatch batch;
+    private final VectorPredicate predicate;
+
+    private int segmentIndex=-1;
+    private PinnedSegment segment;
+    private int position;
+    private int end;
+    /*the rows of the current batch which passed the predicate, relative to batchStart*/
+    private int batchStart;
+    private int[] selected;
+    private int selectedCount;
+    private int selectedIndex;
+    private LocatedRow next;
+
+    /**
+     * @param segments the segments to read, in row key order
+     * @param startKey the first row key to return, or an empty array to start at the beginning
+     * @param stopKey the row key to stop before, or an empty array to read to the end
+     * @param template a row of the shape to return
+     * @param baseColumnMap the map from storage position to position in the row, or {@code null} if they
+     *                      are the same
+     * @param qualifiers the scan qualifiers, or {@code null} if there are none
+     * @param probeValue the probe value of a multi-probe scan, or {@code null}
+     * @param operation the scan operation which is reading the table, or {@code null}
+     */
+    public PinnedSegmentIterator(List<PinnedSegment> segments,
+                                 byte[] startKey,
+                                 byte[] stopKey,
+                                 ExecRow template,
+                                 int[] baseColumnMap,
+                                 Qualifier[][] qualifiers,
+                                 DataValueDescriptor probeValue,
+                                 ScanOperation operation) throws StandardException{
+        this.segments=segments;
+        this.startKey=startKey;
+        this.stopKey=stopKey;
+        this.template=template;
+        this.baseColumnMap=baseColumnMap;
+        this.storagePositions=storagePositions(baseColumnMap,template.nColumns());
+        this.qualifiers=operation!=null && operation.getRowIdKey()?null:qualifiers;
+        this.probeValue=probeValue;
+        this.operation=operation;
+        this.batch=new ColumnBatch(template.nColumns(),ColumnBatch.DEFAULT_CAPACITY);
+        this.predicate=this.qualifiers==null || probeValue!=null?null:
+                VectorPredicate.compile(this.qualifiers,baseColumnMap,template.getRowArray(),batch);
+        this.selected=new int[ColumnBatch.DEFAULT_CAPACITY];
+    }
+
+    /**
+     * @return the number of columns a segment needs to serve a scan with the given column map
+     */
+    public static int requiredColumns(int[] baseColumnMap,int rowWidth){
+        if(baseColumnMap==null) return rowWidth;
+        for(int i=baseColumnMap.length-1;i>=0;i--){
+            if(baseColumnMap[i]>=0) return i+1;
+        }
+        return 0;
+    }
+
+    @Override
+    public boolean hasNext(){
+        if(next!=null) return true;
+        try{
+            while(true){
+                while(selectedIndex<selectedCount){
+                    int row=batchStart+selected[selectedIndex++];
+                    ExecRow candidate=materialize(row);
+                    if(predicate==null && qualifiers!=null
+                            && !Scans.qualifyRecordFromRow(candidate.getRowArray(),qualifiers,baseColumnMap,probeValue))
+                        continue;
+                    next=new LocatedRow(new HBaseRowLocation(segment.rowKey(row)),candidate);
+                    return true;
+                }
+                if(!nextBatch()) return false;
+            }
+        }catch(StandardException se){
+            throw new RuntimeException(se);
+        }
+    }
+
+    @Override
+    public LocatedRow next(){
+        if(!hasNext()) throw new NoSuchElementException();
+        LocatedRow locatedRow=next;
+        next=null;
+        if(operation!=null){
+            StreamLogUtils.logOperationRecord(locatedRow,operation);
+            operation.setCurrentLocatedRow(locatedRow);
+        }
+        return locatedRow;
+    }
+
+    @Override
+    public void remove(){
+        throw new UnsupportedOperationException();
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static int[] storagePositions(int[] baseColumnMap,int rowWidth){
+        int[] positions=new int[rowWidth];
+        for(int i=0;i<rowWidth;i++){
+            positions[i]=baseColumnMap==null?i:-1;
+        }
+        if(baseColumnMap!=null){
+            for(int i=0;i<baseColumnMap.length;i++){
+                if(baseColumnMap[i]>=0 && baseColumnMap[i]<rowWidth)
+                    positions[baseColumnMap[i]]=i;
+            }
+        }
+        return positions;
+    }
+
+    private ExecRow materialize(int row) throws StandardException{
+        ExecRow copy=template.getNewNullRow();
+        DataValueDescriptor[] columns=copy.getRowArray();
+        for(int i=0;i<columns.length;i++){
+            if(storagePositions[i]>=0)
+                segment.read(row,storagePositions[i],columns[i]);
+        }
+        return copy;
+    }
+
+    /**
+     * Move on to the next batch of rows, and work out which of them pass the predicate.
+     *
+     * @return false if there are no rows left.
+     */
+    private boolean nextBatch(){
+        while(segment==null || position>=end){
+            if(++segmentIndex>=segments.size()) return false;
+            segment=segments.get(segmentIndex);
+            position=segment.lowerBound(startKey);
+            end=stopKey==null || stopKey.length==0?segment.rowCount():segment.lowerBound(stopKey);
+        }
+        int count=Math.min(selected.length,end-position);
+        batchStart=position;
+        position+=count;
+        selectedIndex=0;
+        if(predicate==null){
+            for(int i=0;i<count;i++){
+                selected[i]=i;
+            }
+            selectedCount=count;
+            return true;
+        }
+        batch.reset();
+        for(int i=0;i<storagePositions.length;i++){
+            ColumnVector vector=batch.column(i);
+            if(vector!=null){
+                boolean loaded=segment.column(storagePositions[i]).load(vector,batchStart,count);
+                assert loaded: "Pinned column cannot be read into a vector of its own type";
+            }
+        }
+        batch.setSize(count);
+        batch.selectAll();
+        predicate.filter(batch);
+        selectedCount=batch.selectedCount();
+        System.arraycopy(batch.selection(),0,selected,0,selectedCount);
+        return true;
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.pin;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.reference.SQLState;
+import com.splicemachine.db.iapi.services.io.FormatableBitSet;
+import com.splicemachine.db.iapi.sql.Activation;
+import com.splicemachine.db.iapi.sql.dictionary.ConglomerateDescriptor;
+import com.splicemachine.db.iapi.sql.dictionary.DataDictionary;
+import com.splicemachine.db.iapi.sql.dictionary.TableDescriptor;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
+import com.splicemachine.derby.impl.sql.execute.operations.ScanOperation;
+import com.splicemachine.derby.impl.store.access.SpliceTransactionManager;
+import com.splicemachine.derby.impl.store.access.base.SpliceConglomerate;
+import com.splicemachine.derby.stream.iapi.DataSetProcessor;
+import com.splicemachine.derby.stream.iapi.ScanSetBuilder;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.storage.DataScan;
+import com.splicemachine.utils.IntArrays;
+
+/**
+ * Builds scans which read every column of a table, in storage order, which is the shape in which pinned tables
+ * are held.
+ * <p/>
+ * Everything needed from the data dictionary is looked up when this is created, so that scans can be built
+ * later on threads which have no language context.
+ */
+public class PinnedTableScans{
+    private final long conglomerateId;
+    private final String tableName;
+    private final ExecRow template;
+    private final int[] columnOrdering;
+    private final int[] formatIds;
+    private final boolean[] ascDescInfo;
+    private final String escaped;
+    private final String lines;
+    private final String delimited;
+    private final String location;
+    private final String storedAs;
+    private final String compression;
+
+    private PinnedTableScans(TableDescriptor td,SpliceConglomerate conglomerate) throws StandardException{
+        this.conglomerateId=td.getHeapConglomerateId();
+        this.tableName=td.getName();
+        this.template=td.getEmptyExecRow();
+        this.columnOrdering=conglomerate.getColumnOrdering();
+        this.formatIds=conglomerate.getFormat_ids();
+        this.ascDescInfo=conglomerate.getAscDescInfo();
+        this.escaped=td.getEscaped();
+        this.lines=td.getLines();
+        this.delimited=td.getDelimited();
+        this.location=td.getLocation();
+        this.storedAs=td.getStoredAs();
+        this.compression=td.getCompression();
+    }
+
+    public static PinnedTableScans forTable(Activation activation,TableDescriptor td) throws StandardException{
+        SpliceConglomerate conglomerate=(SpliceConglomerate)((SpliceTransactionManager)activation.getTransactionController())
+                .findConglomerate(td.getHeapConglomerateId());
+        return new PinnedTableScans(td,conglomerate);
+    }
+
+    /**
+     * @param conglomerateId the heap conglomerate of the table
+     */
+    public static PinnedTableScans forConglomerate(Activation activation,long conglomerateId) throws StandardException{
+        DataDictionary dd=activation.getLanguageConnectionContext().getDataDictionary();
+        ConglomerateDescriptor cd=dd.getConglomerateDescriptor(conglomerateId);
+        TableDescriptor td=cd==null?null:dd.getTableDescriptor(cd.getTableID());
+        if(td==null)
+            throw StandardException.newException(SQLState.LANG_TABLE_NOT_FOUND_DURING_EXECUTION,Long.toString(conglomerateId));
+        return forTable(activation,td);
+    }
+
+    public long getConglomerateId(){
+        return conglomerateId;
+    }
+
+    /**
+     * @return a row of the table, with every column in its storage position
+     */
+    public ExecRow getTemplate(){
+        return template;
+    }
+
+    public ScanSetBuilder<LocatedRow> newScan(DataSetProcessor dsp,TxnView txn,DataScan scan) throws StandardException{
+        int[] baseColumnMap=IntArrays.count(formatIds.length);
+
+        FormatableBitSet accessedKeyCols=new FormatableBitSet(columnOrdering.length);
+        for(int i=0;i<columnOrdering.length;i++){
+            accessedKeyCols.set(i);
+        }
+        ScanSetBuilder<LocatedRow> builder=dsp.newScanSet(null,Long.toString(conglomerateId));
+        builder.tableDisplayName(tableName)
+                .transaction(txn)
+                .scan(scan)
+                .keyColumnEncodingOrder(columnOrdering)
+                .reuseRowLocation(false)
+                .keyColumnSortOrder(ascDescInfo)
+                .baseColumnMap(baseColumnMap)
+                .keyColumnTypes(ScanOperation.getKeyFormatIds(columnOrdering,formatIds))
+                .keyDecodingMap(ScanOperation.getKeyDecodingMap(accessedKeyCols,columnOrdering,baseColumnMap))
+                .rowDecodingMap(ScanOperation.getRowDecodingMap(accessedKeyCols,columnOrdering,baseColumnMap))
+                .accessedKeyColumns(accessedKeyCols)
+                .template(template.getClone())
+                .escaped(escaped)
+                .lines(lines)
+                .delimited(delimited)
+                .location(location)
+                .storedAs(storedAs)
+                .compression(compression);
+        return builder;
+    }
+}
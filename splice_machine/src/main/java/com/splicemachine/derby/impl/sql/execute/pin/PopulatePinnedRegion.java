@@ -0,0 +1,139 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.pin;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.derby.ddl.DDLUtils;
+import com.splicemachine.derby.impl.sql.execute.actions.ActiveTransactionReader;
+import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
+import com.splicemachine.derby.stream.iapi.DataSetProcessor;
+import com.splicemachine.pipeline.PartitionWritePipeline;
+import com.splicemachine.pipeline.PipelineDriver;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.impl.driver.SIDriver;
+import com.splicemachine.stream.Stream;
+import com.splicemachine.stream.StreamException;
+import com.splicemachine.utils.SpliceLogUtils;
+import org.apache.log4j.Logger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * Reads a single region of a pinned table into a {@link PinnedSegment}.
+ * <p/>
+ * The region must be hosted by this server, so that writes to it can be detected through its
+ * {@link PartitionWritePipeline}. The segment is read under a fresh transaction, so that it holds every write
+ * which had committed when the read started; to make sure that every write it misses is noticed, the read
+ * <ol>
+ *     <li>notes the write sequence of the region,</li>
+ *     <li>gives up if any transaction which has written to the table is still active,</li>
+ *     <li>begins its transaction and reads the region,</li>
+ *     <li>and only caches the segment if the write sequence has not moved in the meantime.</li>
+ * </ol>
+ * Any write the segment misses was then either made after step 1, and so moved the sequence, or made before it
+ * by a transaction which committed after step 3; such a transaction was still active at step 2, which would
+ * have given up.
+ */
+public class PopulatePinnedRegion implements Runnable{
+    private static final Logger LOG=Logger.getLogger(PopulatePinnedRegion.class);
+
+    private final PinnedRegionCache cache;
+    private final String regionName;
+    private final byte[] startKey;
+    private final byte[] endKey;
+    private final PinnedTableScans scans;
+    private final DataSetProcessor dsp;
+
+    PopulatePinnedRegion(PinnedRegionCache cache,
+                         String regionName,
+                         byte[] startKey,
+                         byte[] endKey,
+                         PinnedTableScans scans,
+                         DataSetProcessor dsp){
+        this.cache=cache;
+        this.regionName=regionName;
+        this.startKey=startKey;
+        this.endKey=endKey;
+        this.scans=scans;
+        this.dsp=dsp;
+    }
+
+    @Override
+    public void run(){
+        try{
+            PinnedSegment segment=read();
+            if(segment!=null)
+                cache.put(segment);
+        }catch(Exception e){
+            LOG.warn("Unable to read region "+regionName+" into the pinned table cache",e);
+        }finally{
+            cache.loaded(regionName);
+        }
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private PinnedSegment read() throws IOException, StandardException{
+        PipelineDriver driver=PipelineDriver.driver();
+        PartitionWritePipeline pipeline=driver==null?null:driver.getWritePipeline(regionName);
+        if(pipeline==null) return null; //not hosted here
+        long writeSequence=pipeline.getWriteSequence();
+        if(hasActiveWriters()){
+            SpliceLogUtils.debug(LOG,"Not reading region %s, as the table has active writers",regionName);
+            return null;
+        }
+
+        Txn snapshot=SIDriver.driver().lifecycleManager().beginTransaction();
+        Iterator<LocatedRow> rows=null;
+        try{
+            PinnedSegment.Builder builder=new PinnedSegment.Builder(scans.getTemplate().getRowArray());
+            rows=scans.newScan(dsp,snapshot,DDLUtils.createFullScan().startKey(startKey).stopKey(endKey))
+                    .buildDataSet()
+                    .toLocalIterator();
+            while(rows.hasNext()){
+                LocatedRow row=rows.next();
+                builder.add(row.getRowLocation().getBytes(),row.getRow().getRowArray());
+                if(builder.sizeInBytes()>cache.getMaxSize()){
+                    SpliceLogUtils.debug(LOG,"Not caching region %s, as it exceeds the size of the cache",regionName);
+                    return null;
+                }
+                if(pipeline.getWriteSequence()!=writeSequence) return null;
+            }
+            if(pipeline.getWriteSequence()!=writeSequence
+                    || driver.getWritePipeline(regionName)!=pipeline)
+                return null;
+            return builder.build(scans.getConglomerateId(),regionName,pipeline,writeSequence,snapshot.getBeginTimestamp());
+        }finally{
+            if(rows instanceof Closeable)
+                ((Closeable)rows).close();
+            snapshot.commit();
+        }
+    }
+
+    private boolean hasActiveWriters() throws IOException{
+        byte[] conglomBytes=Bytes.toBytes(Long.toString(scans.getConglomerateId()));
+        ActiveTransactionReader reader=new ActiveTransactionReader(0L,Long.MAX_VALUE,conglomBytes);
+        try(Stream<TxnView> activeTxns=reader.getActiveTransactions()){
+            return activeTxns.next()!=null;
+        }catch(StreamException e){
+            throw new IOException(e.getCause());
+        }
+    }
+}
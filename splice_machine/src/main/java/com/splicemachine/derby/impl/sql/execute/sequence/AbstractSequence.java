@@ -15,47 +15,113 @@
 
 package com.splicemachine.derby.impl.sql.execute.sequence;
 
+import com.splicemachine.concurrent.MoreExecutors;
 import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.pipeline.Exceptions;
+import org.apache.log4j.Logger;
 
 import java.io.Externalizable;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * A sequence which hands out values from blocks reserved from the sequence row.
+ *
+ * Values are handed out of the current block without locking. Once half of a block has been handed out,
+ * the next block is reserved in the background, so that callers don't have to wait for the sequence row
+ * to be updated when the block runs out. Prefetching is only done for batched sequences (those with a block
+ * size of more than 1).
+ *
+ * The size of the blocks adapts to the rate at which values are consumed: a block which would be used up
+ * in under a second is followed by one twice as large (up to the maximum block size), and a block which
+ * would last more than half a minute is followed by one half as large (down to the configured block size).
+ */
 public abstract class AbstractSequence implements Sequence, Externalizable{
-    protected final AtomicLong remaining=new AtomicLong(0l);
-    protected final AtomicLong currPosition=new AtomicLong(0l);
+    private static final Logger LOG=Logger.getLogger(AbstractSequence.class);
+    private static final long GROW_INTERVAL_NANOS=TimeUnit.SECONDS.toNanos(1);
+    private static final long SHRINK_INTERVAL_NANOS=TimeUnit.SECONDS.toNanos(30);
+    private static final ThreadPoolExecutor PREFETCH_EXECUTOR;
+    static{
+        PREFETCH_EXECUTOR=MoreExecutors.namedThreadPool(2,2,"splice-sequence-prefetch-%d",60,true);
+        PREFETCH_EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
     protected long blockAllocationSize;
+    protected long maxBlockAllocationSize;
     protected long incrementSteps;
     protected final Lock updateLock=new ReentrantLock();
     protected long startingValue;
+    /*
+     * The value of the sequence row when it was last read, which is the value expected by
+     * atomicIncrement(). Guarded by updateLock.
+     */
+    protected long currPosition;
+    protected SequenceAllocationStatistics.Counters statistics=new SequenceAllocationStatistics.Counters();
+
+    private final Object refillLock=new Object();
+    private volatile Block currentBlock=new Block(0l,0l,1l,-1l); //empty, so the first call reserves a block
+    private final AtomicReference<Future<Block>> prefetch=new AtomicReference<>();
+    private volatile long nextBlockSize;
 
     public AbstractSequence(){
 
     }
 
     public AbstractSequence(long blockAllocationSize,long incrementSteps,long startingValue){
-        if(incrementSteps>blockAllocationSize)
-            blockAllocationSize=incrementSteps;
+        this(blockAllocationSize,incrementSteps,startingValue,blockAllocationSize);
+    }
+
+    public AbstractSequence(long blockAllocationSize,long incrementSteps,long startingValue,long maxBlockAllocationSize){
+        if(Math.abs(incrementSteps)>blockAllocationSize)
+            blockAllocationSize=Math.abs(incrementSteps);
         this.blockAllocationSize=blockAllocationSize;
+        this.maxBlockAllocationSize=Math.max(blockAllocationSize,maxBlockAllocationSize);
         this.incrementSteps=incrementSteps;
         this.startingValue=startingValue;
     }
 
     public long getNext() throws StandardException{
-        if(remaining.getAndDecrement()<=0)
-            allocateBlock(false);
-        return currPosition.getAndAdd(incrementSteps);
+        while(true){
+            Block block=currentBlock;
+            long index=block.issued.getAndIncrement();
+            if(index<block.count){
+                if(index==block.prefetchIndex)
+                    startPrefetch(block);
+                statistics.allocatedValues.increment();
+                return block.valueAt(index);
+            }
+            refill(block);
+        }
     }
 
     public long peekAtCurrentValue() throws StandardException {
-        if(remaining.get()<= 0)
-            allocateBlock(true);
-        return currPosition.get();
+        while(true){
+            Block block=currentBlock;
+            long index=block.issued.get();
+            if(index<block.count)
+                return block.valueAt(index);
+            refill(block);
+        }
+    }
+
+    /**
+     * @return the size of the next block this sequence will reserve
+     */
+    public long getCurrentBlockSize(){
+        long size=nextBlockSize;
+        return size>0?size:blockAllocationSize;
     }
 
     protected abstract long getCurrentValue() throws IOException;
@@ -64,33 +130,133 @@ public abstract class AbstractSequence implements Sequence, Externalizable{
 
     public abstract void close() throws IOException;
 
-    private void allocateBlock(boolean peek) throws StandardException{
-        boolean success=false;
-        while(!success){
-            updateLock.lock();
-            try{
-                if(remaining.getAndDecrement()>0)
-                    return;
-                currPosition.set(getCurrentValue());
-                success=atomicIncrement(currPosition.get()+(incrementSteps>blockAllocationSize?incrementSteps:blockAllocationSize));
-                if(success){
-                    long v = blockAllocationSize/incrementSteps;
-                    remaining.set(peek?v:v-1);
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+
+    /**
+     * Replace {@code exhausted} as the current block, with the prefetched block if there is one.
+     */
+    private void refill(Block exhausted) throws StandardException{
+        synchronized(refillLock){
+            if(currentBlock!=exhausted) return; //someone else got here first
+
+            long waitStart=System.nanoTime();
+            boolean waited=false;
+            Block next=null;
+            Future<Block> pending=prefetch.getAndSet(null);
+            if(pending!=null){
+                waited=!pending.isDone();
+                try{
+                    next=pending.get();
+                }catch(InterruptedException e){
+                    prefetch.compareAndSet(null,pending); //leave it for the next caller
+                    Thread.currentThread().interrupt();
+                    throw Exceptions.parseException(e);
+                }catch(ExecutionException e){
+                    LOG.warn("Unable to prefetch the next sequence block, reserving it directly",e.getCause());
+                }
+            }
+            if(next==null){
+                waited=true;
+                try{
+                    next=reserveBlock(exhausted);
+                }catch(IOException e){
+                    throw Exceptions.parseException(e);
                 }
-            }catch(IOException e){
-                throw Exceptions.parseException(e);
-            }finally{
-                updateLock.unlock();
             }
+            if(waited)
+                statistics.recordStall(System.nanoTime()-waitStart);
+            currentBlock=next;
         }
     }
 
+    private void startPrefetch(final Block block){
+        FutureTask<Block> task=new FutureTask<>(new Callable<Block>(){
+            @Override
+            public Block call() throws Exception{
+                Block next=reserveBlock(block);
+                statistics.prefetchedBlocks.increment();
+                return next;
+            }
+        });
+        if(!prefetch.compareAndSet(null,task)) return;
+        try{
+            PREFETCH_EXECUTOR.execute(task);
+        }catch(RejectedExecutionException e){
+            //the block will be reserved when this one runs out instead
+            prefetch.compareAndSet(task,null);
+        }
+    }
+
+    /**
+     * Reserve a new block from the sequence row, sized according to how quickly {@code previous} is being used.
+     */
+    private Block reserveBlock(Block previous) throws IOException{
+        updateLock.lock();
+        try{
+            long blockSize=adaptBlockSize(previous);
+            /*
+             * The block holds whole increments, so that the values of consecutive blocks follow on from each
+             * other; a descending sequence (one with a negative increment) reserves its block below the current value.
+             */
+            long count=blockSize/Math.abs(incrementSteps);
+            boolean success;
+            do{
+                currPosition=getCurrentValue();
+                success=atomicIncrement(currPosition+count*incrementSteps);
+            }while(!success);
+            statistics.reservedBlocks.increment();
+            return new Block(currPosition,count,incrementSteps,blockAllocationSize>1?count/2:-1);
+        }finally{
+            updateLock.unlock();
+        }
+    }
+
+    private long adaptBlockSize(Block previous){
+        long blockSize=getCurrentBlockSize();
+        if(maxBlockAllocationSize>blockAllocationSize && previous.count>0){
+            long issued=Math.min(previous.count,previous.issued.get());
+            if(issued>0){
+                //project how long the previous block will have lasted, at the rate it has been used so far
+                long lifetime=(System.nanoTime()-previous.createdNanos)/issued*previous.count;
+                if(lifetime<GROW_INTERVAL_NANOS)
+                    blockSize=Math.min(maxBlockAllocationSize,blockSize*2);
+                else if(lifetime>SHRINK_INTERVAL_NANOS)
+                    blockSize=Math.max(blockAllocationSize,blockSize/2);
+            }
+        }
+        nextBlockSize=blockSize;
+        statistics.blockSize=blockSize;
+        return blockSize;
+    }
+
+    private static final class Block{
+        private final long start;
+        private final long count;
+        private final long step;
+        /*the index at which to start reserving the next block, or -1 to not prefetch*/
+        private final long prefetchIndex;
+        private final long createdNanos=System.nanoTime();
+        private final AtomicLong issued=new AtomicLong(0l);
+
+        Block(long start,long count,long step,long prefetchIndex){
+            this.start=start;
+            this.count=count;
+            this.step=step;
+            this.prefetchIndex=prefetchIndex;
+        }
+
+        long valueAt(long index){
+            return start+index*step;
+        }
+    }
 
     @Override
     public void writeExternal(ObjectOutput out) throws IOException{
         out.writeLong(blockAllocationSize);
         out.writeLong(incrementSteps);
         out.writeLong(startingValue);
+        out.writeLong(maxBlockAllocationSize);
     }
 
     @Override
@@ -98,5 +264,6 @@ public abstract class AbstractSequence implements Sequence, Externalizable{
         blockAllocationSize=in.readLong();
         incrementSteps=in.readLong();
         startingValue=in.readLong();
+        maxBlockAllocationSize=in.readLong();
     }
 }
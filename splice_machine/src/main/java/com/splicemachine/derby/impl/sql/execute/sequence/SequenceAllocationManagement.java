@@ -0,0 +1,53 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.sequence;
+
+import javax.management.MXBean;
+
+/**
+ * JMX Hook for monitoring how sequences (and identity columns) reserve and hand out values.
+ */
+@MXBean
+public interface SequenceAllocationManagement{
+
+    /**
+     * @return the number of values handed out by all sequences
+     */
+    long getAllocatedValues();
+
+    /**
+     * @return the number of blocks reserved from sequence rows, including prefetched blocks
+     */
+    long getReservedBlocks();
+
+    /**
+     * @return the number of blocks which were reserved in the background, before they were needed
+     */
+    long getPrefetchedBlocks();
+
+    /**
+     * @return the number of times a caller had to wait for a block to be reserved
+     */
+    long getStallCount();
+
+    double getAverageStallTimeMs();
+
+    /**
+     * @return one entry per sequence, describing the sequence row, the values handed out, blocks reserved
+     * and prefetched, stalls, and the size of the next block the sequence will reserve.
+     */
+    String[] getSequences();
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.sequence;
+
+import com.splicemachine.hbase.jmx.JMXUtils;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Allocation metrics for the sequences in this JVM.
+ *
+ * Counters are kept per sequence row rather than per {@link AbstractSequence} instance, so they carry
+ * over when a sequence is evicted from the sequence pool and later re-created.
+ */
+public class SequenceAllocationStatistics implements SequenceAllocationManagement{
+    private static final SequenceAllocationStatistics INSTANCE=new SequenceAllocationStatistics();
+
+    private final ConcurrentMap<String,Counters> sequences=new ConcurrentHashMap<>();
+
+    public static SequenceAllocationStatistics getInstance(){
+        return INSTANCE;
+    }
+
+    public static void registerJMX(MBeanServer mbs) throws Exception{
+        mbs.registerMBean(INSTANCE,new ObjectName(JMXUtils.SEQUENCE_ALLOCATION));
+    }
+
+    /**
+     * @return the counters for the sequence with the given name, shared by every instance of that sequence.
+     */
+    public Counters countersFor(String sequenceName){
+        Counters counters=sequences.get(sequenceName);
+        if(counters==null){
+            Counters newCounters=new Counters();
+            counters=sequences.putIfAbsent(sequenceName,newCounters);
+            if(counters==null)
+                counters=newCounters;
+        }
+        return counters;
+    }
+
+    @Override
+    public long getAllocatedValues(){
+        long total=0l;
+        for(Counters counters:sequences.values()){
+            total+=counters.allocatedValues.sum();
+        }
+        return total;
+    }
+
+    @Override
+    public long getReservedBlocks(){
+        long total=0l;
+        for(Counters counters:sequences.values()){
+            total+=counters.reservedBlocks.sum();
+        }
+        return total;
+    }
+
+    @Override
+    public long getPrefetchedBlocks(){
+        long total=0l;
+        for(Counters counters:sequences.values()){
+            total+=counters.prefetchedBlocks.sum();
+        }
+        return total;
+    }
+
+    @Override
+    public long getStallCount(){
+        long total=0l;
+        for(Counters counters:sequences.values()){
+            total+=counters.stalls.sum();
+        }
+        return total;
+    }
+
+    @Override
+    public double getAverageStallTimeMs(){
+        long stalls=0l;
+        long stallNanos=0l;
+        for(Counters counters:sequences.values()){
+            stalls+=counters.stalls.sum();
+            stallNanos+=counters.stallNanos.sum();
+        }
+        return stalls==0?0d:((double)stallNanos/stalls)/TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    @Override
+    public String[] getSequences(){
+        List<String> entries=new ArrayList<>(sequences.size());
+        for(Map.Entry<String,Counters> entry:sequences.entrySet()){
+            Counters counters=entry.getValue();
+            entries.add(String.format("sequence=%s, allocatedValues=%d, reservedBlocks=%d, prefetchedBlocks=%d, stalls=%d, blockSize=%d",
+                    entry.getKey(),
+                    counters.allocatedValues.sum(),
+                    counters.reservedBlocks.sum(),
+                    counters.prefetchedBlocks.sum(),
+                    counters.stalls.sum(),
+                    counters.blockSize));
+        }
+        return entries.toArray(new String[entries.size()]);
+    }
+
+    /**
+     * The allocation counters of a single sequence.
+     */
+    public static class Counters{
+        final LongAdder allocatedValues=new LongAdder();
+        final LongAdder reservedBlocks=new LongAdder();
+        final LongAdder prefetchedBlocks=new LongAdder();
+        final LongAdder stalls=new LongAdder();
+        final LongAdder stallNanos=new LongAdder();
+        volatile long blockSize;
+
+        void recordStall(long nanos){
+            stalls.increment();
+            stallNanos.add(nanos);
+        }
+
+        public long getAllocatedValues(){
+            return allocatedValues.sum();
+        }
+
+        public long getReservedBlocks(){
+            return reservedBlocks.sum();
+        }
+
+        public long getPrefetchedBlocks(){
+            return prefetchedBlocks.sum();
+        }
+
+        public long getStallCount(){
+            return stalls.sum();
+        }
+    }
+}
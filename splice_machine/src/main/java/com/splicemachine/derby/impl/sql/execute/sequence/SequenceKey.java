@@ -15,6 +15,7 @@
 
 package com.splicemachine.derby.impl.sql.execute.sequence;
 
+import com.splicemachine.EngineDriver;
 import com.splicemachine.access.api.PartitionFactory;
 import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.si.api.data.TxnOperationFactory;
@@ -70,7 +71,12 @@ public class SequenceKey implements ResourcePool.Key{
     }
 
     public SpliceSequence makeNew() throws StandardException{
-        return new SpliceSequence(blockAllocationSize,sysColumnsRow,
+        //only batched sequences adapt their block size; a block size of 1 asks for no values to be wasted
+        long maxBlockAllocationSize=blockAllocationSize;
+        EngineDriver driver=EngineDriver.driver();
+        if(blockAllocationSize>1 && driver!=null)
+            maxBlockAllocationSize=Math.max(blockAllocationSize,driver.getConfiguration().getSequenceMaxBlockSize());
+        return new SpliceSequence(blockAllocationSize,maxBlockAllocationSize,sysColumnsRow,
                 autoIncStart, autoIncrement,partitionFactory,opFactory);
     }
 }
\ No newline at end of file
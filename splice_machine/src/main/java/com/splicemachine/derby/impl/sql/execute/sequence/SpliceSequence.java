@@ -18,6 +18,7 @@ package com.splicemachine.derby.impl.sql.execute.sequence;
 import com.splicemachine.access.api.PartitionFactory;
 import com.splicemachine.access.configuration.OperationConfiguration;
 import com.splicemachine.encoding.Encoding;
+import com.splicemachine.primitives.Bytes;
 import com.splicemachine.si.api.data.TxnOperationFactory;
 import com.splicemachine.si.constants.SIConstants;
 import com.splicemachine.storage.*;
@@ -38,13 +39,14 @@ public class SpliceSequence extends AbstractSequence{
     }
 
     @SuppressFBWarnings(value = "EI_EXPOSE_REP2",justification = "Intentional")
-    public SpliceSequence(long blockAllocationSize,byte[] sysColumnsRow,
+    public SpliceSequence(long blockAllocationSize,long maxBlockAllocationSize,byte[] sysColumnsRow,
                           long startingValue,
                           long incrementSteps,
                           PartitionFactory partitionFactory,
                           TxnOperationFactory operationFactory){
-        super(blockAllocationSize,incrementSteps,startingValue);
+        super(blockAllocationSize,incrementSteps,startingValue,maxBlockAllocationSize);
         this.sysColumnsRow=sysColumnsRow;
+        this.statistics=SequenceAllocationStatistics.getInstance().countersFor(Bytes.toHex(sysColumnsRow));
         this.partitionFactory = partitionFactory;
         this.opFactory = operationFactory;
     }
@@ -71,7 +73,7 @@ public class SpliceSequence extends AbstractSequence{
             put.addCell(SIConstants.DEFAULT_FAMILY_BYTES,autoIncrementValueQualifier,Encoding.encode(next));
             return sysColumnTable.checkAndPut(sysColumnsRow,
                     SIConstants.DEFAULT_FAMILY_BYTES,
-                    autoIncrementValueQualifier,currPosition.get()==startingValue?null:Encoding.encode(currPosition.get()),put);
+                    autoIncrementValueQualifier,currPosition==startingValue?null:Encoding.encode(currPosition),put);
         }
     }
 
@@ -94,5 +96,6 @@ public class SpliceSequence extends AbstractSequence{
         int size=in.readInt();
         sysColumnsRow=new byte[size];
         in.readFully(sysColumnsRow);
+        statistics=SequenceAllocationStatistics.getInstance().countersFor(Bytes.toHex(sysColumnsRow));
     }
 }
@@ -16,7 +16,11 @@
 package com.splicemachine.derby.lifecycle;
 
 import com.splicemachine.access.api.SConfiguration;
+import com.splicemachine.derby.impl.sql.execute.operations.BroadcastJoinCache;
+import com.splicemachine.derby.impl.sql.execute.sequence.SequenceAllocationStatistics;
+import com.splicemachine.derby.stream.function.NestedLoopJoinExecutor;
 import com.splicemachine.derby.utils.DatabasePropertyManagementImpl;
+import com.splicemachine.si.api.readresolve.AsyncReadResolver;
 import com.yammer.metrics.core.MetricsRegistry;
 import com.yammer.metrics.reporting.JmxReporter;
 
@@ -43,6 +47,10 @@ public class MonitoredLifecycleService extends EngineLifecycleService{
         metricsReporter.start();
 
         DatabasePropertyManagementImpl.registerJMX(mbs);
+        BroadcastJoinCache.registerJMX(mbs);
+        SequenceAllocationStatistics.registerJMX(mbs);
+        NestedLoopJoinExecutor.registerJMX(mbs);
+        AsyncReadResolver.registerJMX(mbs);
     }
 
 
@@ -93,12 +93,25 @@ public class ControlDataSet<V> implements DataSet<V> {
 
     @Override
     public DataSet<V> distinct() {
-        return new ControlDataSet<>(Sets.<V>newHashSet(iterator).iterator());
+        return distinct(null);
     }
 
     @Override
     public DataSet<V> distinct(String name, boolean isLast, OperationContext context, boolean pushScope, String scopeDetail) {
-        return distinct();
+        return distinct(context);
+    }
+
+    private DataSet<V> distinct(OperationContext context) {
+        GraceHashPartitioner<V,Object> partitioner = GraceHashPartitioner.newPartitioner(context);
+        addAll(partitioner, iterator);
+        return new ControlDataSet<>(Iterators.concat(Iterators.transform(partitioner.partitions(),
+                new Function<Iterator<Tuple2<V, Object>>, Iterator<V>>() {
+            @Override
+            public Iterator<V> apply(@Nullable Iterator<Tuple2<V, Object>> partition) {
+                assert partition!=null;
+                return Sets.newHashSet(values(partition)).iterator();
+            }
+        })));
     }
 
     public <Op extends SpliceOperation, K,U>PairDataSet<K, U> index(final SplicePairFunction<Op,V,K,U> function) {
@@ -112,7 +125,7 @@ public class ControlDataSet<V> implements DataSet<V> {
                     throw new RuntimeException(e);
                 }
             }
-        }));
+        }), function.operationContext);
     }
 
     @Override
@@ -147,7 +160,7 @@ public class ControlDataSet<V> implements DataSet<V> {
 
     @Override
     public <Op extends SpliceOperation, K> PairDataSet<K, V> keyBy(final SpliceFunction<Op, V, K> function) {
-        return new ControlPairDataSet<>(entryToTuple(Multimaps.index(iterator,function).entries()));
+        return new ControlPairDataSet<>(entryToTuple(Multimaps.index(iterator,function).entries()), function.operationContext);
     }
 
     @Override
@@ -221,29 +234,67 @@ public class ControlDataSet<V> implements DataSet<V> {
 
     @Override
     public DataSet<V> intersect(DataSet<V> dataSet, String name, OperationContext context, boolean pushScope, String scopeDetail){
-        return intersect(dataSet);
+        return setOperation(dataSet, context, true);
     }
 
     @Override
     public DataSet< V> intersect(DataSet< V> dataSet) {
-        Set<V> left=Sets.newHashSet(iterator);
-        Set<V> right=Sets.newHashSet(((ControlDataSet<V>)dataSet).iterator);
-        Sets.SetView<V> intersection=Sets.intersection(left,right);
-        return new ControlDataSet<>(intersection.iterator());
+        return setOperation(dataSet, null, true);
     }
 
 
     @Override
     public DataSet<V> subtract(DataSet<V> dataSet, String name, OperationContext context, boolean pushScope, String scopeDetail){
-        return subtract(dataSet);
+        return setOperation(dataSet, context, false);
     }
 
 
     @Override
     public DataSet< V> subtract(DataSet< V> dataSet) {
-        Set<V> left=Sets.newHashSet(iterator);
-        Set<V> right=Sets.newHashSet(((ControlDataSet<V>)dataSet).iterator);
-        return new ControlDataSet<>(Sets.difference(left,right).iterator());
+        return setOperation(dataSet, null, false);
+    }
+
+    /**
+     * Intersect or subtract {@code dataSet} from this DataSet. Both sides are hash partitioned in the same way
+     * (in memory if they fit, or on disk if not), so the operation can be applied to one pair of partitions at a time.
+     */
+    private DataSet<V> setOperation(DataSet<V> dataSet, OperationContext context, final boolean intersect) {
+        GraceHashPartitioner<V,Object> right = GraceHashPartitioner.newPartitioner(context);
+        addAll(right, ((ControlDataSet<V>)dataSet).iterator);
+        GraceHashPartitioner<V,Object> left = GraceHashPartitioner.newPartitioner(context);
+        if (right.hasSpilled())
+            left.spill();
+        addAll(left, iterator);
+        if (left.hasSpilled())
+            right.spill();
+
+        final Iterator<Iterator<Tuple2<V, Object>>> rightPartitions = right.partitions();
+        return new ControlDataSet<>(Iterators.concat(Iterators.transform(left.partitions(),
+                new Function<Iterator<Tuple2<V, Object>>, Iterator<V>>() {
+            @Override
+            public Iterator<V> apply(@Nullable Iterator<Tuple2<V, Object>> leftPartition) {
+                assert leftPartition!=null;
+                Set<V> leftSet=Sets.newHashSet(values(leftPartition));
+                Set<V> rightSet=Sets.newHashSet(values(rightPartitions.next()));
+                return (intersect ? Sets.intersection(leftSet,rightSet) : Sets.difference(leftSet,rightSet)).iterator();
+            }
+        })));
+    }
+
+    private static <V> void addAll(GraceHashPartitioner<V,Object> partitioner, Iterator<V> values) {
+        while (values.hasNext()) {
+            partitioner.add(values.next(), null);
+        }
+    }
+
+    private static <V> Iterator<V> values(Iterator<Tuple2<V, Object>> partition) {
+        return Iterators.transform(partition, new Function<Tuple2<V, Object>, V>() {
+            @Override
+            public V apply(@Nullable Tuple2<V, Object> t) {
+                assert t!=null;
+                return t._1();
+            }
+        });
     }
 
     @Override
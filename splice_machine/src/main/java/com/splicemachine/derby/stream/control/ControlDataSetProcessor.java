@@ -16,6 +16,7 @@
 package com.splicemachine.derby.stream.control;
 
 import javax.annotation.Nonnull;
+import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.SequenceInputStream;
@@ -24,8 +25,11 @@ import java.nio.file.Files;
 import java.nio.file.OpenOption;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Scanner;
 import java.util.zip.GZIPInputStream;
 
@@ -44,8 +48,14 @@ import com.splicemachine.db.iapi.sql.Activation;
 import com.splicemachine.db.iapi.sql.execute.ExecRow;
 import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
 import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
+import com.splicemachine.derby.impl.sql.execute.operations.ScanOperation;
 import com.splicemachine.derby.impl.sql.execute.operations.scanner.TableScannerBuilder;
+import com.splicemachine.derby.impl.sql.execute.pin.PinnedRegionCache;
+import com.splicemachine.derby.impl.sql.execute.pin.PinnedSegment;
+import com.splicemachine.derby.impl.sql.execute.pin.PinnedSegmentIterator;
+import com.splicemachine.derby.impl.sql.execute.pin.PinnedTableScans;
 import com.splicemachine.derby.stream.function.Partitioner;
+import com.splicemachine.derby.stream.function.TableScanQualifierFunction;
 import com.splicemachine.derby.stream.iterator.TableScannerIterator;
 import com.splicemachine.pipeline.Exceptions;
 import com.splicemachine.si.api.data.TxnOperationFactory;
@@ -110,13 +120,22 @@ public class ControlDataSetProcessor implements DataSetProcessor{
         return new TableScannerBuilder<V>(){
             @Override
             public DataSet<V> buildDataSet() throws StandardException{
+                if(pin){
+                    DataSet<V> pinned=readPinnedRegions();
+                    if(pinned!=null)
+                        return pinned;
+                }
+                if(storedAs!=null)
+                    return buildExternalDataSet();
                 Partition p;
                 try{
                     p =SIDriver.driver().getTableFactory().getTable(tableName);
                     TxnRegion localRegion=new TxnRegion(p,NoopRollForward.INSTANCE,NoOpReadResolver.INSTANCE,
                             txnSupplier,transactory,txnOperationFactory);
 
-                    this.region(localRegion).scanner(p.openScanner(getScan(),metricFactory)); //set the scanner
+                    this.region(localRegion);
+                    if(scanner==null) //unless the rows have already been read
+                        this.scanner(p.openScanner(getScan(),metricFactory));
                     TableScannerIterator tableScannerIterator=new TableScannerIterator(this,spliceOperation);
                     if(spliceOperation!=null){
                         spliceOperation.registerCloseable(tableScannerIterator);
@@ -127,6 +146,61 @@ public class ControlDataSetProcessor implements DataSetProcessor{
                     throw Exceptions.parseException(e);
                 }
             }
+
+            /*
+             * Pinned tables are read from the columnar copies of their regions which this server keeps, when
+             * every region the scan covers has an up to date copy that our transaction can read. Otherwise the
+             * regions are scanned as usual, and (if they are all hosted here) copied in the background for the
+             * scans which follow.
+             */
+            @SuppressWarnings("unchecked")
+            private DataSet<V> readPinnedRegions() throws StandardException{
+                PinnedRegionCache cache=PinnedRegionCache.cache();
+                if(!cache.isEnabled() || scanner!=null || scan==null || scan.isDescendingScan())
+                    return null;
+                long conglomerateId=Long.parseLong(tableName);
+                ScanOperation operation=(ScanOperation)spliceOperation;
+                try(Partition table=SIDriver.driver().getTableFactory().getTable(tableName)){
+                    List<Partition> regions=table.subPartitions(scan.getStartKey(),scan.getStopKey());
+                    List<PinnedSegment> segments=cache.getSegments(conglomerateId,regions,txn,
+                            PinnedSegmentIterator.requiredColumns(baseColumnMap,template.nColumns()));
+                    if(segments==null){
+                        Activation scanActivation=activation!=null?activation:
+                                spliceOperation!=null?spliceOperation.getActivation():null;
+                        if(scanActivation!=null && cache.shouldLoad(conglomerateId,regions))
+                            cache.load(regions,PinnedTableScans.forConglomerate(scanActivation,conglomerateId),ControlDataSetProcessor.this);
+                        return null;
+                    }
+                    Qualifier[][] qualifiers=operation==null?null:operation.getScanInformation().getScanQualifiers();
+                    return new ControlDataSet(new PinnedSegmentIterator(segments,scan.getStartKey(),scan.getStopKey(),
+                            template,baseColumnMap,qualifiers,optionalProbeValue,operation));
+                }catch(IOException e){
+                    throw Exceptions.parseException(e);
+                }
+            }
+
+            /*
+             * External tables are not stored in HBase, so read them the way the Spark scan does,
+             * qualifying the rows as they come back.
+             */
+            @SuppressWarnings("unchecked")
+            private DataSet<V> buildExternalDataSet() throws StandardException{
+                OperationContext context=spliceOperation!=null?
+                        createOperationContext(spliceOperation):createOperationContext(activation);
+                ScanOperation operation=(ScanOperation)spliceOperation;
+                ExecRow execRow=operation==null?template:operation.getExecRowDefinition();
+                Qualifier[][] qualifiers=operation==null?null:operation.getScanInformation().getScanQualifiers();
+                DataSet<LocatedRow> rows;
+                if(storedAs.equals("T"))
+                    rows=readTextFile(spliceOperation,location,escaped,delimited,baseColumnMap,context,execRow);
+                else if(storedAs.equals("P"))
+                    rows=readParquetFile(baseColumnMap,location,context,qualifiers,null,execRow);
+                else if(storedAs.equals("O"))
+                    rows=readORCFile(baseColumnMap,location,context,qualifiers,null,execRow);
+                else
+                    throw new UnsupportedOperationException("storedAs Type not supported -> "+storedAs);
+                return (DataSet<V>)rows.flatMap(new TableScanQualifierFunction(context,null));
+            }
         };
     }
 
@@ -206,6 +280,16 @@ public class ControlDataSetProcessor implements DataSetProcessor{
         return readTextFile(s);
     }
 
+    @Override
+    public DataSet<byte[]> readTextFileBytes(String s,SpliceOperation op){
+        try{
+            InputStream is=getFileStream(s);
+            return new ControlDataSet<>(new ByteLineIterator(is));
+        }catch(IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     @Override
     public <K,V> PairDataSet<K, V> getEmptyPair(){
         return new ControlPairDataSet<>(Collections.<Tuple2<K, V>>emptyList().iterator());
@@ -251,6 +335,69 @@ public class ControlDataSetProcessor implements DataSetProcessor{
 
     }
 
+    /**
+     * Splits a stream into lines, like {@link TextFileIterator}, but without decoding them. Lines end at
+     * a {@code \n}, a {@code \r} or a {@code \r\n}.
+     */
+    private static class ByteLineIterator implements Iterator<byte[]>{
+        private final InputStream in;
+        private byte[] line=new byte[256];
+        private byte[] next;
+        private boolean eof;
+
+        public ByteLineIterator(InputStream inputStream){
+            this.in=new BufferedInputStream(inputStream);
+        }
+
+        @Override
+        public void remove(){
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public byte[] next(){
+            if(!hasNext()) throw new NoSuchElementException();
+            byte[] n=next;
+            next=null;
+            return n;
+        }
+
+        @Override
+        public boolean hasNext(){
+            if(next==null && !eof)
+                next=readLine();
+            return next!=null;
+        }
+
+        private byte[] readLine(){
+            try{
+                int length=0;
+                int b;
+                while((b=in.read())>=0){
+                    if(b=='\n') break;
+                    if(b=='\r'){
+                        in.mark(1);
+                        if(in.read()!='\n')
+                            in.reset();
+                        break;
+                    }
+                    if(length==line.length)
+                        line=Arrays.copyOf(line,2*length);
+                    line[length++]=(byte)b;
+                }
+                if(b<0){
+                    eof=true;
+                    in.close();
+                    //a terminator at the end of the file does not start another line
+                    if(length==0) return null;
+                }
+                return Arrays.copyOf(line,length);
+            }catch(IOException e){
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
     @Override
     public void setPermissive(String statusDirectory, String importFileName, long badRecordThreshold){
         this.permissive = true;
@@ -49,6 +49,8 @@ public class ControlOperationContext<Op extends SpliceOperation> implements Oper
         long rowsJoinedLeft;
         long rowsJoinedRight;
         long rowsProduced;
+        long spillCount;
+        long spilledBytes;
         List<String> badRecords;
         public ActivationHolder activationHolder;
         public SpliceTransactionResourceImpl impl;
@@ -270,6 +272,22 @@ public class ControlOperationContext<Op extends SpliceOperation> implements Oper
         return tooBusy;
     }
 
+    @Override
+    public void recordSpill(long bytes) {
+        spillCount++;
+        spilledBytes+=bytes;
+    }
+
+    @Override
+    public long getSpillCount() {
+        return spillCount;
+    }
+
+    @Override
+    public long getSpilledBytes() {
+        return spilledBytes;
+    }
+
     @Override
     public void pushScope(String displayName) {
         // no op
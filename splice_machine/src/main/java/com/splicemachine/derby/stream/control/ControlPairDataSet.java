@@ -19,11 +19,13 @@ import org.apache.spark.api.java.Optional;
 import org.spark_project.guava.base.Function;
 import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.ddl.DDLMessage;
 import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
 import com.splicemachine.derby.stream.function.*;
 import com.splicemachine.derby.stream.iapi.DataSet;
 import com.splicemachine.derby.stream.iapi.OperationContext;
 import com.splicemachine.derby.stream.iapi.PairDataSet;
+import com.splicemachine.derby.stream.output.BulkInsertDataSetWriterBuilder;
 import com.splicemachine.derby.stream.output.DataSetWriter;
 import com.splicemachine.derby.stream.output.DataSetWriterBuilder;
 import com.splicemachine.derby.stream.output.InsertDataSetWriterBuilder;
@@ -51,6 +53,8 @@ import static org.spark_project.guava.collect.Maps.*;
 
 /**
  *
+ * Hashing operations (grouping and hash joins) hold their input in memory up to the configured
+ * control-side memory budget, and partition it to local disk beyond that; see {@link GraceHashPartitioner}.
  *
  * @see org.spark_project.guava.collect.Multimap
  * @see org.spark_project.guava.collect.Multimaps
@@ -59,8 +63,16 @@ import static org.spark_project.guava.collect.Maps.*;
  */
 public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
     public Iterator<Tuple2<K,V>> source;
+    /*the context of the operation which keyed this DataSet, which spills are recorded against (may be null)*/
+    private final OperationContext context;
+
     public ControlPairDataSet(Iterator<Tuple2<K,V>> source) {
+        this(source, null);
+    }
+
+    public ControlPairDataSet(Iterator<Tuple2<K,V>> source, OperationContext context) {
         this.source = source;
+        this.context = context;
     }
 
 
@@ -100,8 +112,21 @@ public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
 
     @Override
     public <Op extends SpliceOperation> PairDataSet<K, V> reduceByKey(final SpliceFunction2<Op,V, V, V> function2) {
-        Multimap<K,V> newMap = multimapFromIterator(source);
-        return new ControlPairDataSet<>(entryToTuple(Multimaps.<K,V>forMap(transformValues(newMap.asMap(),
+        OperationContext reduceContext = function2.operationContext != null ? function2.operationContext : context;
+        GraceHashPartitioner<K,V> partitioner = GraceHashPartitioner.newPartitioner(reduceContext);
+        partitioner.addAll(source);
+        return new ControlPairDataSet<>(Iterators.concat(Iterators.transform(partitioner.partitions(),
+                new Function<Iterator<Tuple2<K, V>>, Iterator<Tuple2<K, V>>>() {
+            @Override
+            public Iterator<Tuple2<K, V>> apply(@Nullable Iterator<Tuple2<K, V>> partition) {
+                assert partition!=null;
+                return reduce(multimapFromIterator(partition),function2);
+            }
+        })), reduceContext);
+    }
+
+    private static <K,V,Op extends SpliceOperation> Iterator<Tuple2<K, V>> reduce(Multimap<K,V> newMap, final SpliceFunction2<Op,V, V, V> function2) {
+        return entryToTuple(Multimaps.<K,V>forMap(transformValues(newMap.asMap(),
                 new Function<Collection<V>, V>() {
             @Override
             public V apply(@Nullable Collection<V> vs) {
@@ -115,7 +140,7 @@ public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
                     throw new RuntimeException(e);
                 }
             }
-        })).entries()));
+        })).entries());
     }
 
     @Override
@@ -131,17 +156,12 @@ public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
     @Override
     public PairDataSet<K, V> sortByKey(final Comparator<K> comparator) {
         /*
-         * -sf- this is done a bit goofily, so that we can support multiple versions of guava.
-         *
-         * This is essentially copying out FluentIterable.from(source).toSortedList(comparator) logic
-         * directly into the method, so that we can support the same code line from 12.0.1 on.
+         * Sorts in memory when the data fits within the control-side memory budget, and
+         * writes sorted runs to disk and merges them back lazily when it does not.
          */
-        return new ControlPairDataSet<>(Ordering.from(new Comparator<Tuple2<K, V>>() {
-            @Override
-            public int compare(Tuple2<K, V> o1, Tuple2<K, V> o2) {
-                return comparator.compare(o1._1(), o2._1());
-            }
-        }).immutableSortedCopy(() -> source).iterator());
+        ExternalSorter<K,V> sorter = ExternalSorter.newSorter(comparator, context);
+        sorter.addAll(source);
+        return new ControlPairDataSet<>(sorter.sorted(), context);
     }
 
     @Override
@@ -158,15 +178,27 @@ public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
 
     @Override
     public PairDataSet<K, Iterable<V>> groupByKey() {
-        Multimap<K,V> newMap = multimapFromIterator(source);
-        return new ControlPairDataSet<>(FluentIterable.from(newMap.asMap().entrySet()).transform(new Function<Map.Entry<K, Collection<V>>, Tuple2<K, Iterable<V>>>() {
+        GraceHashPartitioner<K,V> partitioner = GraceHashPartitioner.newPartitioner(context);
+        partitioner.addAll(source);
+        return new ControlPairDataSet<>(Iterators.concat(Iterators.transform(partitioner.partitions(),
+                new Function<Iterator<Tuple2<K, V>>, Iterator<Tuple2<K, Iterable<V>>>>() {
+            @Override
+            public Iterator<Tuple2<K, Iterable<V>>> apply(@Nullable Iterator<Tuple2<K, V>> partition) {
+                assert partition!=null;
+                return group(multimapFromIterator(partition));
+            }
+        })), context);
+    }
+
+    private static <K,V> Iterator<Tuple2<K, Iterable<V>>> group(Multimap<K,V> newMap) {
+        return FluentIterable.from(newMap.asMap().entrySet()).transform(new Function<Map.Entry<K, Collection<V>>, Tuple2<K, Iterable<V>>>() {
             @Nullable
             @Override
             public Tuple2<K, Iterable<V>> apply(@Nullable Map.Entry<K, Collection<V>> e) {
                 assert e!=null: "E cannot be null";
                 return new Tuple2<K, Iterable<V>>(e.getKey(), e.getValue());
             }
-        }).iterator());
+        }).iterator();
     }
 
     @Override
@@ -176,12 +208,15 @@ public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
 
     @Override
     public <W> PairDataSet< K, Tuple2<V, Optional<W>>> hashLeftOuterJoin(final PairDataSet< K, W> rightDataSet) {
-        // Materializes the right side
-        final Multimap<K,W> rightSide = multimapFromIterator(((ControlPairDataSet) rightDataSet).source);
-        return new ControlPairDataSet(Iterators.concat(Iterators.transform(source,new Function<Tuple2<K, V>, Iterable<Tuple2<K, Tuple2<V, Optional<W>>>>>() {
+        // Materializes the right side, one partition at a time
+        return new ControlPairDataSet<>(graceHashJoin(rightDataSet, this::leftOuterProbe), joinContext(rightDataSet));
+    }
+
+    private <W> Iterator<Tuple2<K, Tuple2<V, Optional<W>>>> leftOuterProbe(final Multimap<K,W> rightSide, Iterator<Tuple2<K, V>> leftSide) {
+        return Iterators.concat(Iterators.transform(leftSide,new Function<Tuple2<K, V>, Iterator<Tuple2<K, Tuple2<V, Optional<W>>>>>() {
             @Nullable
             @Override
-            public Iterable<Tuple2<K, Tuple2<V, Optional<W>>>> apply(@Nullable Tuple2<K, V> t) {
+            public Iterator<Tuple2<K, Tuple2<V, Optional<W>>>> apply(@Nullable Tuple2<K, V> t) {
                 assert t!=null: "T cannot be null";
                 List<Tuple2<K,Tuple2<V,Optional<W>>>> result = new ArrayList<>();
                 K key = t._1();
@@ -192,17 +227,19 @@ public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
                     }
                 } else
                     result.add(new Tuple2<>(key,new Tuple2<>(value,Optional.<W>empty())));
-                return result;
+                return result.iterator();
             }
-        })));
-
+        }));
     }
 
     @Override
     public <W> PairDataSet< K, Tuple2<Optional<V>, W>> hashRightOuterJoin(PairDataSet< K, W> rightDataSet) {
-        // Materializes the left side
-        final Multimap<K, V> leftSide = multimapFromIterator(source);
-        return new ControlPairDataSet(Iterators.transform( ( (ControlPairDataSet<K,W>) rightDataSet).source, new Function<Tuple2<K, W>, Iterator<Tuple2<K, Tuple2<Optional<V>, W>>>>() {
+        // Materializes the left side, one partition at a time
+        return new ControlPairDataSet<>(((ControlPairDataSet<K,W>) rightDataSet).graceHashJoin(this, ControlPairDataSet::rightOuterProbe), joinContext(rightDataSet));
+    }
+
+    private static <K,V,W> Iterator<Tuple2<K, Tuple2<Optional<V>, W>>> rightOuterProbe(final Multimap<K, V> leftSide, Iterator<Tuple2<K, W>> rightSide) {
+        return Iterators.concat(Iterators.transform(rightSide, new Function<Tuple2<K, W>, Iterator<Tuple2<K, Tuple2<Optional<V>, W>>>>() {
             @Nullable
             @Override
             public Iterator<Tuple2<K, Tuple2<Optional<V>, W>>> apply(@Nullable Tuple2<K, W> t) {
@@ -223,9 +260,12 @@ public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
 
     @Override
     public <W> PairDataSet< K, Tuple2<V, W>> hashJoin(PairDataSet< K, W> rightDataSet) {
-        // Materializes the right side
-        final Multimap<K,W> rightSide = multimapFromIterator(((ControlPairDataSet<K,W>) rightDataSet).source);
-        return new ControlPairDataSet(Iterators.concat(Iterators.transform(source,new Function<Tuple2<K, V>, Iterator<Tuple2<K, Tuple2<V, W>>>>() {
+        // Materializes the right side, one partition at a time
+        return new ControlPairDataSet<>(graceHashJoin(rightDataSet, this::innerProbe), joinContext(rightDataSet));
+    }
+
+    private <W> Iterator<Tuple2<K, Tuple2<V, W>>> innerProbe(final Multimap<K,W> rightSide, Iterator<Tuple2<K, V>> leftSide) {
+        return Iterators.concat(Iterators.transform(leftSide,new Function<Tuple2<K, V>, Iterator<Tuple2<K, Tuple2<V, W>>>>() {
             @Nullable
             @Override
             public Iterator<Tuple2<K, Tuple2<V, W>>> apply(@Nullable Tuple2<K, V> t) {
@@ -238,7 +278,7 @@ public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
                 }
                 return result.iterator();
             }
-        })));
+        }));
     }
 
     @Override
@@ -249,17 +289,60 @@ public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
     
     @Override
     public <W> PairDataSet< K, V> subtractByKey(PairDataSet< K, W> rightDataSet) {
-        // Materializes the right side
-        final Multimap<K,W> rightSide = multimapFromIterator(((ControlPairDataSet<K,W>) rightDataSet).source);
-        return new ControlPairDataSet<>(Iterators.filter(source, new Predicate<Tuple2<K, V>>() {
+        // Materializes the right side, one partition at a time
+        return new ControlPairDataSet<>(graceHashJoin(rightDataSet, this::subtractProbe), joinContext(rightDataSet));
+    }
+
+    private <W> Iterator<Tuple2<K, V>> subtractProbe(final Multimap<K,W> rightSide, Iterator<Tuple2<K, V>> leftSide) {
+        return Iterators.filter(leftSide, new Predicate<Tuple2<K, V>>() {
             @Override
             public boolean apply(@Nullable Tuple2<K, V> t) {
                 assert t!=null: "T cannot be null";
                 return rightSide.get(t._1()).isEmpty();
             }
+        });
+    }
+
+    /**
+     * Joins the contents of this DataSet (the probe side) against a hash table built over {@code buildDataSet}.
+     *
+     * If the build side fits in memory, this is a plain hash join. Otherwise, both sides are partitioned to
+     * disk by key, and each pair of partitions is joined in turn, so that only a single partition of the build
+     * side is in memory at any time.
+     */
+    private <W, R> Iterator<R> graceHashJoin(PairDataSet<K, W> buildDataSet, final HashProbe<K, V, W, R> probe) {
+        OperationContext joinContext = joinContext(buildDataSet);
+        final GraceHashPartitioner<K,W> buildSide = GraceHashPartitioner.newPartitioner(joinContext);
+        buildSide.addAll(((ControlPairDataSet<K,W>) buildDataSet).source);
+        if (!buildSide.hasSpilled()) {
+            return probe.probe(multimapFromIterator(buildSide.partition(0)), source);
+        }
+        GraceHashPartitioner<K,V> probeSide = GraceHashPartitioner.newPartitioner(joinContext);
+        probeSide.spill();
+        probeSide.addAll(source);
+        final Iterator<Iterator<Tuple2<K, W>>> buildPartitions = buildSide.partitions();
+        return Iterators.concat(Iterators.transform(probeSide.partitions(), new Function<Iterator<Tuple2<K, V>>, Iterator<R>>() {
+            @Override
+            public Iterator<R> apply(@Nullable Iterator<Tuple2<K, V>> probePartition) {
+                assert probePartition!=null;
+                // both sides are partitioned identically, so partitions are consumed in lock step
+                return probe.probe(multimapFromIterator(buildPartitions.next()), probePartition);
+            }
         }));
     }
 
+    /**
+     * @return the context of the join of this DataSet with {@code other}: both sides are normally keyed by the
+     * join operation itself, so whichever side knows it will do.
+     */
+    private OperationContext joinContext(PairDataSet<K, ?> other) {
+        return context != null ? context : ((ControlPairDataSet<K, ?>) other).context;
+    }
+
+    private interface HashProbe<K, V, W, R> {
+        Iterator<R> probe(Multimap<K, W> buildSide, Iterator<Tuple2<K, V>> probeSide);
+    }
+
     @Override
     public <W> PairDataSet< K, V> subtractByKey(PairDataSet< K, W> rightDataSet, String name) {
         // Ignore name on control side
@@ -320,7 +403,7 @@ public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
             Collection<W> ws=right.get(key);
             result.add(new Tuple2<>(key,new Tuple2<Iterable<V>, Iterable<W>>(vs,ws)));
         }
-        return new ControlPairDataSet<>(result.iterator());
+        return new ControlPairDataSet<>(result.iterator(), joinContext(rightDataSet));
     }
 
     @Override
@@ -331,7 +414,7 @@ public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
 
     @Override
     public PairDataSet<K, V> union(PairDataSet<K, V> dataSet) {
-        return new ControlPairDataSet(Iterators.concat(source,((ControlPairDataSet<K,V>)dataSet).source));
+        return new ControlPairDataSet<>(Iterators.concat(source,((ControlPairDataSet<K,V>)dataSet).source), joinContext(dataSet));
     }
 
     @Override
@@ -349,25 +432,19 @@ public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
     }
 
     @Override
-    @SuppressFBWarnings(value = "SE_NO_SUITABLE_CONSTRUCTOR_FOR_EXTERNALIZATION",justification = "Serialization" +
-            "of Control-side operations does not happen and would be a mistake")
     public InsertDataSetWriterBuilder insertData(OperationContext operationContext) throws StandardException{
-        return new InsertTableWriterBuilder(){
-            @Override
-            public DataSetWriter build() throws StandardException{
-                assert txn!=null:"Txn is null";
-                InsertPipelineWriter ipw = new InsertPipelineWriter(pkCols,
-                        tableVersion,
-                        execRowDefinition,
-                        autoIncrementRowLocationArray,
-                        spliceSequences,
-                        heapConglom,
-                        txn,
-                        operationContext,
-                        isUpsert);
-                return new ControlDataSetWriter<>((ControlPairDataSet<K,ExecRow>)ControlPairDataSet.this,ipw,operationContext);
-            }
-        }.operationContext(operationContext);
+        return new PipelineInsertTableWriterBuilder().operationContext(operationContext);
+    }
+
+    /**
+     * Control-side data sets are small enough to be written through the write pipeline instead of as HFiles,
+     * which also maintains the table's indexes, so the bulk import directory and indexes are not needed.
+     */
+    @Override
+    public BulkInsertDataSetWriterBuilder bulkInsertData(OperationContext operationContext) throws StandardException{
+        PipelineInsertTableWriterBuilder builder=new PipelineInsertTableWriterBuilder();
+        builder.operationContext(operationContext);
+        return builder;
     }
 
     @Override
@@ -403,4 +480,32 @@ public class ControlPairDataSet<K,V> implements PairDataSet<K,V> {
         };
     }
 
+    @SuppressFBWarnings(value = "SE_NO_SUITABLE_CONSTRUCTOR_FOR_EXTERNALIZATION",justification = "Serialization" +
+            "of Control-side operations does not happen and would be a mistake")
+    private class PipelineInsertTableWriterBuilder extends InsertTableWriterBuilder implements BulkInsertDataSetWriterBuilder{
+        @Override
+        public BulkInsertDataSetWriterBuilder bulkImportDirectory(String bulkImportDirectory){
+            return this;
+        }
+
+        @Override
+        public BulkInsertDataSetWriterBuilder tentativeIndexList(List<DDLMessage.TentativeIndex> tentativeIndexList){
+            return this;
+        }
+
+        @Override
+        public DataSetWriter build() throws StandardException{
+            assert txn!=null:"Txn is null";
+            InsertPipelineWriter ipw = new InsertPipelineWriter(pkCols,
+                    tableVersion,
+                    execRowDefinition,
+                    autoIncrementRowLocationArray,
+                    spliceSequences,
+                    heapConglom,
+                    txn,
+                    operationContext,
+                    isUpsert);
+            return new ControlDataSetWriter<>((ControlPairDataSet<K,ExecRow>)ControlPairDataSet.this,ipw,operationContext);
+        }
+    }
 }
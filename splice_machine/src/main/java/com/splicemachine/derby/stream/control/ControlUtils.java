@@ -15,6 +15,12 @@
 
 package com.splicemachine.derby.stream.control;
 
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
+import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
+import com.splicemachine.derby.stream.iapi.OperationContext;
 import org.spark_project.guava.base.Function;
 import org.spark_project.guava.collect.*;
 import scala.Tuple2;
@@ -48,4 +54,45 @@ public class ControlUtils {
         }
         return newMap;
     }
+
+    /**
+     * A rough estimate of the heap occupied by an object flowing through a control-side DataSet. This
+     * is only used to decide when an operation should spill to disk, so it favors speed over accuracy.
+     */
+    public static long estimateSize(Object o) {
+        if (o == null)
+            return 0;
+        if (o instanceof LocatedRow)
+            return 32 + estimateSize(((LocatedRow) o).getRow());
+        if (o instanceof ExecRow) {
+            long size = 32;
+            for (DataValueDescriptor dvd : ((ExecRow) o).getRowArray()) {
+                if (dvd != null)
+                    size += dvd.estimateMemoryUsage();
+            }
+            return size;
+        }
+        return 64;
+    }
+
+    /**
+     * Have {@code closeable} closed when the operation of {@code context} is closed, so that resources which are
+     * normally released once they have been read completely (such as spill files) are also released when the
+     * operation stops reading early.
+     *
+     * @param context the context of the operation, or {@code null} if there is none (in which case the caller
+     *                remains responsible for closing).
+     */
+    public static void closeWithOperation(OperationContext context, AutoCloseable closeable) {
+        if (context == null)
+            return;
+        SpliceOperation op = context.getOperation();
+        if (op == null)
+            return;
+        try {
+            op.registerCloseable(closeable);
+        } catch (StandardException e) {
+            throw new RuntimeException(e);
+        }
+    }
 }
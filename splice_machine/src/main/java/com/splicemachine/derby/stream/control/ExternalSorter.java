@@ -0,0 +1,294 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.control;
+
+import com.splicemachine.EngineDriver;
+import com.splicemachine.derby.stream.iapi.OperationContext;
+import com.splicemachine.utils.SpliceLogUtils;
+import org.apache.log4j.Logger;
+import scala.Tuple2;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+
+/**
+ * Sorts key-value pairs by key, using no more than (approximately) a fixed amount of memory.
+ *
+ * Pairs are buffered until the memory budget is exceeded, at which point the buffer is sorted and
+ * written to a {@link SpillFile} as a sorted run. Once all the input has been seen, the runs (and whatever
+ * remains in the buffer) are merged lazily through a priority queue, so rows are returned as soon as the
+ * first row of each run has been read, and only one row per run is held in memory during the merge.
+ *
+ * If there are more runs than can be merged at once, runs are first merged with one another into
+ * longer runs, to bound the number of files open at the same time.
+ *
+ * The sort is stable: pairs with equal keys are returned in the order they were added.
+ *
+ * A sorter created for an operation is closed along with that operation, which removes any runs that were not
+ * read to the end.
+ */
+@NotThreadSafe
+public class ExternalSorter<K,V> implements AutoCloseable{
+    private static final Logger LOG=Logger.getLogger(ExternalSorter.class);
+    static final int DEFAULT_MERGE_WIDTH=64;
+
+    private final Comparator<Tuple2<K,V>> comparator;
+    private final long memoryBudget;
+    private final File spillDirectory;
+    private final int mergeWidth;
+    private final OperationContext context;
+
+    private List<Tuple2<K,V>> buffer=new ArrayList<>();
+    private long bufferedBytes;
+    private List<SpillFile> runs=new ArrayList<>();
+
+    ExternalSorter(final Comparator<K> keyComparator,long memoryBudget,File spillDirectory,int mergeWidth,OperationContext context){
+        assert mergeWidth>1: "Cannot merge fewer than 2 runs at a time";
+        this.comparator=new Comparator<Tuple2<K,V>>(){
+            @Override
+            public int compare(Tuple2<K,V> o1,Tuple2<K,V> o2){
+                return keyComparator.compare(o1._1(),o2._1());
+            }
+        };
+        this.memoryBudget=memoryBudget;
+        this.spillDirectory=spillDirectory;
+        this.mergeWidth=mergeWidth;
+        this.context=context;
+    }
+
+    /**
+     * @param context the context to record spills against (and whose operation closes the sorter), or
+     *                {@code null} if there is none.
+     * @return a sorter using the configured control-side memory budget and spill directory.
+     */
+    static <K,V> ExternalSorter<K,V> newSorter(Comparator<K> keyComparator,OperationContext context){
+        EngineDriver driver=EngineDriver.driver();
+        if(driver==null) //not running within an engine, so we cannot know our budget
+            return newSorter(keyComparator,Long.MAX_VALUE,context);
+        return newSorter(keyComparator,driver.getConfiguration().getControlSpillMbThreshold()*1024L*1024L,context);
+    }
+
+    /**
+     * @param memoryBudget the number of bytes the sorter may buffer before it spills a sorted run.
+     * @param context the context to record spills against (and whose operation closes the sorter), or
+     *                {@code null} if there is none, in which case the caller must close the sorter.
+     * @return a sorter using the given memory budget, and the configured spill directory.
+     */
+    public static <K,V> ExternalSorter<K,V> newSorter(Comparator<K> keyComparator,long memoryBudget,OperationContext context){
+        ExternalSorter<K,V> sorter=newUnmanagedSorter(keyComparator,memoryBudget,context);
+        ControlUtils.closeWithOperation(context,sorter);
+        return sorter;
+    }
+
+    /**
+     * @param memoryBudget the number of bytes the sorter may buffer before it spills a sorted run.
+     * @param context the context to record spills against, or {@code null} if there is none.
+     * @return a sorter using the given memory budget, and the configured spill directory, which the caller
+     * must close (it is not closed along with the operation).
+     */
+    public static <K,V> ExternalSorter<K,V> newUnmanagedSorter(Comparator<K> keyComparator,long memoryBudget,OperationContext context){
+        EngineDriver driver=EngineDriver.driver();
+        String spillDirectory=driver==null?System.getProperty("java.io.tmpdir"):driver.getConfiguration().getControlSpillDirectory();
+        return new ExternalSorter<>(keyComparator,memoryBudget,new File(spillDirectory),DEFAULT_MERGE_WIDTH,context);
+    }
+
+    public void add(K key,V value){
+        buffer.add(new Tuple2<>(key,value));
+        bufferedBytes+=ControlUtils.estimateSize(key)+ControlUtils.estimateSize(value);
+        if(bufferedBytes>memoryBudget)
+            spillRun();
+    }
+
+    public void addAll(Iterator<Tuple2<K,V>> source){
+        while(source.hasNext()){
+            Tuple2<K,V> t=source.next();
+            add(t._1(),t._2());
+        }
+    }
+
+    /**
+     * @return all pairs added to this sorter, in sorted order. This may be called only once, after all
+     * pairs have been added.
+     */
+    public Iterator<Tuple2<K,V>> sorted(){
+        List<Tuple2<K,V>> tail=buffer;
+        buffer=null;
+        tail.sort(comparator);
+        if(runs.isEmpty())
+            return tail.iterator();
+
+        if(LOG.isDebugEnabled())
+            SpliceLogUtils.debug(LOG,"Merging %d sorted runs and %d rows held in memory",runs.size(),tail.size());
+        try{
+            /*
+             * The in-memory buffer is the last source of the final merge, so leave room for it. Consecutive
+             * runs are merged together, which keeps runs in the order their contents were added.
+             */
+            while(runs.size()>=mergeWidth){
+                List<SpillFile> merged=new ArrayList<>(runs.size()/mergeWidth+1);
+                for(int start=0;start<runs.size();start+=mergeWidth){
+                    List<SpillFile> group=runs.subList(start,Math.min(start+mergeWidth,runs.size()));
+                    if(group.size()==1){
+                        merged.add(group.get(0));
+                        continue;
+                    }
+                    List<Iterator<Tuple2<K,V>>> sources=new ArrayList<>(group.size());
+                    for(SpillFile run:group){
+                        sources.add(readRun(run));
+                    }
+                    merged.add(writeRun(new MergingIterator<>(sources,comparator)));
+                }
+                runs=merged;
+            }
+            List<Iterator<Tuple2<K,V>>> sources=new ArrayList<>(runs.size()+1);
+            for(SpillFile run:runs){
+                sources.add(readRun(run));
+            }
+            sources.add(tail.iterator());
+            return new MergingIterator<>(sources,comparator);
+        }catch(IOException e){
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void close(){
+        for(SpillFile run:runs){
+            run.close();
+        }
+        runs.clear();
+        buffer=null;
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private void spillRun(){
+        buffer.sort(comparator);
+        try{
+            runs.add(writeRun(buffer.iterator()));
+        }catch(IOException e){
+            throw new RuntimeException(e);
+        }
+        buffer=new ArrayList<>();
+        bufferedBytes=0;
+    }
+
+    private SpillFile writeRun(Iterator<Tuple2<K,V>> sortedPairs) throws IOException{
+        SpillFile run=SpillFile.create(spillDirectory,"sort");
+        try{
+            while(sortedPairs.hasNext()){
+                Tuple2<K,V> t=sortedPairs.next();
+                run.write(t._1());
+                run.write(t._2());
+            }
+            long bytes=run.finish();
+            if(context!=null)
+                context.recordSpill(bytes);
+            return run;
+        }catch(RuntimeException e){
+            run.close();
+            throw e;
+        }
+    }
+
+    private Iterator<Tuple2<K,V>> readRun(SpillFile run) throws IOException{
+        final Iterator<Object> objects=run.read();
+        return new Iterator<Tuple2<K,V>>(){
+            @Override
+            public boolean hasNext(){
+                return objects.hasNext();
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public Tuple2<K,V> next(){
+                if(!objects.hasNext()) throw new NoSuchElementException();
+                K key=(K)objects.next();
+                V value=(V)objects.next();
+                return new Tuple2<>(key,value);
+            }
+
+            @Override
+            public void remove(){
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    /**
+     * Lazily merges a set of sorted iterators. Ties are broken by the position of the source iterator,
+     * which keeps the merge stable as long as the sources are listed in the order their contents were added.
+     */
+    private static class MergingIterator<T> implements Iterator<T>{
+        private final PriorityQueue<Head<T>> heads;
+
+        MergingIterator(List<Iterator<T>> sources,final Comparator<T> comparator){
+            this.heads=new PriorityQueue<>(Math.max(1,sources.size()),new Comparator<Head<T>>(){
+                @Override
+                public int compare(Head<T> o1,Head<T> o2){
+                    int c=comparator.compare(o1.value,o2.value);
+                    return c!=0?c:Integer.compare(o1.sourceIndex,o2.sourceIndex);
+                }
+            });
+            for(int i=0;i<sources.size();i++){
+                Iterator<T> source=sources.get(i);
+                if(source.hasNext())
+                    heads.add(new Head<>(source.next(),source,i));
+            }
+        }
+
+        @Override
+        public boolean hasNext(){
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public T next(){
+            Head<T> head=heads.poll();
+            if(head==null) throw new NoSuchElementException();
+            T value=head.value;
+            if(head.source.hasNext()){
+                head.value=head.source.next();
+                heads.add(head);
+            }
+            return value;
+        }
+
+        @Override
+        public void remove(){
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private static class Head<T>{
+        private T value;
+        private final Iterator<T> source;
+        private final int sourceIndex;
+
+        Head(T value,Iterator<T> source,int sourceIndex){
+            this.value=value;
+            this.source=source;
+            this.sourceIndex=sourceIndex;
+        }
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.control;
+
+import com.splicemachine.EngineDriver;
+import com.splicemachine.derby.stream.iapi.OperationContext;
+import com.splicemachine.utils.SpliceLogUtils;
+import org.apache.log4j.Logger;
+import scala.Tuple2;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Buffers key-value pairs for a control-side hashing operation (aggregation, distinct, set operations
+ * and hash joins).
+ *
+ * As long as the buffered data fits within the memory budget, the pairs are simply held in memory
+ * and returned as a single partition. Once the budget is exceeded, every pair (those already buffered,
+ * and all that follow) is hash-partitioned by key into a fixed number of {@link SpillFile}s, so that
+ * the operation can then be performed one partition at a time, with roughly {@code 1/numPartitions}
+ * of the data in memory (the "grace" hash join technique). Since all values for a given key end up
+ * in the same partition, processing each partition independently yields the same result as
+ * processing all the data at once.
+ *
+ * Two partitioners created with the same number of partitions will place equal keys in partitions with
+ * the same index, which allows both sides of a join to be partitioned independently. Call {@link #spill()}
+ * on one side to force it to partition when the other side did not fit in memory.
+ *
+ * A partitioner created for an operation is closed along with that operation, which removes any partitions that
+ * were not read to the end.
+ *
+ * Partitions are not further sub-divided, so a single partition (e.g. a heavily skewed key) which exceeds
+ * the budget is still processed in memory.
+ */
+@NotThreadSafe
+class GraceHashPartitioner<K,V> implements AutoCloseable{
+    private static final Logger LOG=Logger.getLogger(GraceHashPartitioner.class);
+    static final int DEFAULT_NUM_PARTITIONS=32;
+
+    private final long memoryBudget;
+    private final File spillDirectory;
+    private final int numPartitions;
+    private final OperationContext context;
+
+    private List<Tuple2<K,V>> buffer=new ArrayList<>();
+    private long bufferedBytes;
+    private SpillFile[] partitions;
+    private boolean spillRecorded;
+
+    GraceHashPartitioner(long memoryBudget,File spillDirectory,int numPartitions,OperationContext context){
+        this.memoryBudget=memoryBudget;
+        this.spillDirectory=spillDirectory;
+        this.numPartitions=numPartitions;
+        this.context=context;
+    }
+
+    /**
+     * @param context the context to record spills against (and whose operation closes the partitioner), or
+     *                {@code null} if there is none.
+     * @return a partitioner using the configured control-side memory budget and spill directory.
+     */
+    static <K,V> GraceHashPartitioner<K,V> newPartitioner(OperationContext context){
+        EngineDriver driver=EngineDriver.driver();
+        GraceHashPartitioner<K,V> partitioner;
+        if(driver==null) //not running within an engine, so we cannot know our budget
+            partitioner=new GraceHashPartitioner<>(Long.MAX_VALUE,new File(System.getProperty("java.io.tmpdir")),DEFAULT_NUM_PARTITIONS,context);
+        else
+            partitioner=new GraceHashPartitioner<>(driver.getConfiguration().getControlSpillMbThreshold()*1024L*1024L,
+                    new File(driver.getConfiguration().getControlSpillDirectory()),
+                    DEFAULT_NUM_PARTITIONS,context);
+        ControlUtils.closeWithOperation(context,partitioner);
+        return partitioner;
+    }
+
+    void add(K key,V value){
+        if(partitions!=null){
+            SpillFile file=partitions[partitionFor(key)];
+            file.write(key);
+            file.write(value);
+            return;
+        }
+        buffer.add(new Tuple2<>(key,value));
+        bufferedBytes+=ControlUtils.estimateSize(key)+ControlUtils.estimateSize(value);
+        if(bufferedBytes>memoryBudget)
+            spill();
+    }
+
+    void addAll(Iterator<Tuple2<K,V>> source){
+        while(source.hasNext()){
+            Tuple2<K,V> t=source.next();
+            add(t._1(),t._2());
+        }
+    }
+
+    /**
+     * Move all buffered data to disk, and write all subsequent data there as well. Calling this
+     * more than once has no effect.
+     */
+    void spill(){
+        if(partitions!=null) return;
+        SpillFile[] files=new SpillFile[numPartitions];
+        try{
+            for(int i=0;i<numPartitions;i++){
+                files[i]=SpillFile.create(spillDirectory,"grace");
+            }
+        }catch(IOException e){
+            for(SpillFile file:files){
+                if(file!=null) file.close();
+            }
+            throw new RuntimeException(e);
+        }
+        if(LOG.isDebugEnabled())
+            SpliceLogUtils.debug(LOG,"Spilling %d buffered rows (~%d bytes) into %d partitions",
+                    buffer.size(),bufferedBytes,numPartitions);
+        partitions=files;
+        for(Tuple2<K,V> t:buffer){
+            int p=partitionFor(t._1());
+            partitions[p].write(t._1());
+            partitions[p].write(t._2());
+        }
+        buffer=null;
+        bufferedBytes=0;
+    }
+
+    boolean hasSpilled(){
+        return partitions!=null;
+    }
+
+    /**
+     * @return the number of partitions which must be processed. This is 1 if the data
+     * is held entirely in memory.
+     */
+    int numPartitions(){
+        return partitions==null?1:numPartitions;
+    }
+
+    /**
+     * Read back the pairs in a partition. Each partition may be read only once.
+     */
+    Iterator<Tuple2<K,V>> partition(int partition){
+        if(partitions==null){
+            assert partition==0: "Data is held in memory, there is only one partition";
+            Iterator<Tuple2<K,V>> it=buffer.iterator();
+            buffer=null;
+            return it;
+        }
+        recordSpill();
+        SpillFile file=partitions[partition];
+        try{
+            final Iterator<Object> objects=file.read();
+            return new Iterator<Tuple2<K,V>>(){
+                @Override
+                public boolean hasNext(){
+                    return objects.hasNext();
+                }
+
+                @Override
+                @SuppressWarnings("unchecked")
+                public Tuple2<K,V> next(){
+                    if(!objects.hasNext()) throw new NoSuchElementException();
+                    K key=(K)objects.next();
+                    V value=(V)objects.next();
+                    return new Tuple2<>(key,value);
+                }
+
+                @Override
+                public void remove(){
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }catch(IOException e){
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * @return all partitions, one after the other.
+     */
+    Iterator<Iterator<Tuple2<K,V>>> partitions(){
+        return new Iterator<Iterator<Tuple2<K,V>>>(){
+            private int next=0;
+
+            @Override
+            public boolean hasNext(){
+                return next<numPartitions();
+            }
+
+            @Override
+            public Iterator<Tuple2<K,V>> next(){
+                if(!hasNext()) throw new NoSuchElementException();
+                return partition(next++);
+            }
+
+            @Override
+            public void remove(){
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    @Override
+    public void close(){
+        if(partitions!=null){
+            for(SpillFile file:partitions){
+                file.close();
+            }
+        }
+        buffer=null;
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    /**
+     * Record the spill (all partitions together) against the context, once all the data has been written.
+     */
+    private void recordSpill(){
+        if(spillRecorded) return;
+        spillRecorded=true;
+        long bytes=0;
+        for(SpillFile file:partitions){
+            bytes+=file.finish();
+        }
+        if(context!=null)
+            context.recordSpill(bytes);
+    }
+
+    private int partitionFor(K key){
+        int h=key==null?0:key.hashCode();
+        /*
+         * Spread the bits, so that the partition is not correlated with the buckets of the
+         * hash tables that will be built over each partition.
+         */
+        h^=(h>>>16);
+        h*=0x85ebca6b;
+        h^=(h>>>13);
+        return (h&Integer.MAX_VALUE)%numPartitions;
+    }
+}
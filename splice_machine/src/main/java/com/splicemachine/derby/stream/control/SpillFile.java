@@ -0,0 +1,161 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.control;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.splicemachine.EngineDriver;
+import com.splicemachine.SpliceKryoRegistry;
+import com.splicemachine.utils.kryo.KryoPool;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A temporary file on local disk, holding a sequence of Kryo-serialized objects which a control-side
+ * operation could not keep in memory.
+ *
+ * A SpillFile is written once, then read back (at most once) in the order in which objects were written.
+ * The file is removed once it has been read completely, or when the SpillFile is closed, whichever comes first.
+ * Whoever creates a SpillFile must make sure that it is closed even when it is not read to the end (the files
+ * are deliberately not registered with {@link File#deleteOnExit()}, which would hold on to every path created
+ * for the life of the JVM).
+ */
+@NotThreadSafe
+public class SpillFile implements Closeable{
+    private static final int BUFFER_SIZE=64*1024;
+
+    private final File file;
+    private final KryoPool kryoPool;
+    private Output output;
+    private Input input;
+    private long bytesWritten;
+
+    private SpillFile(File file,KryoPool kryoPool) throws IOException{
+        this.file=file;
+        this.kryoPool=kryoPool;
+        this.output=new Output(new FileOutputStream(file),BUFFER_SIZE);
+    }
+
+    /**
+     * Create a new SpillFile in the configured spill directory
+     * (see {@link com.splicemachine.access.api.SConfiguration#getControlSpillDirectory()}).
+     */
+    public static SpillFile create(String prefix) throws IOException{
+        return create(spillDirectory(),prefix);
+    }
+
+    public static SpillFile create(File directory,String prefix) throws IOException{
+        File file=File.createTempFile(prefix,".spill",directory);
+        return new SpillFile(file,SpliceKryoRegistry.getInstance());
+    }
+
+    public void write(Object o){
+        assert output!=null: "Cannot write to a SpillFile which has already been finished";
+        /*
+         * Each object is written as a complete graph, so there's no need to hold on to a single
+         * Kryo instance for the lifetime of the file (which, with many files open at once, would
+         * exhaust the pool).
+         */
+        Kryo kryo=kryoPool.get();
+        try{
+            kryo.writeClassAndObject(output,o);
+        }finally{
+            kryoPool.returnInstance(kryo);
+        }
+    }
+
+    /**
+     * Flush any buffered data, and close the file for writing.
+     *
+     * @return the number of bytes in the file
+     */
+    public long finish(){
+        if(output!=null){
+            output.close();
+            bytesWritten=output.total();
+            output=null;
+        }
+        return bytesWritten;
+    }
+
+    public long sizeInBytes(){
+        return output!=null?output.total():bytesWritten;
+    }
+
+    /**
+     * Read back the contents of this file. The returned iterator removes the file once it has been
+     * exhausted.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Iterator<T> read() throws IOException{
+        finish();
+        assert input==null: "A SpillFile can only be read once";
+        input=new Input(new FileInputStream(file),BUFFER_SIZE);
+        return new Iterator<T>(){
+            @Override
+            public boolean hasNext(){
+                if(input==null) return false;
+                if(!input.eof()) return true;
+                close();
+                return false;
+            }
+
+            @Override
+            public T next(){
+                if(!hasNext()) throw new NoSuchElementException();
+                Kryo kryo=kryoPool.get();
+                try{
+                    return (T)kryo.readClassAndObject(input);
+                }finally{
+                    kryoPool.returnInstance(kryo);
+                }
+            }
+
+            @Override
+            public void remove(){
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    @Override
+    public void close(){
+        if(output!=null){
+            output.close();
+            output=null;
+        }
+        if(input!=null){
+            input.close();
+            input=null;
+        }
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+    }
+
+    private static File spillDirectory(){
+        EngineDriver driver=EngineDriver.driver();
+        String dir=driver==null?System.getProperty("java.io.tmpdir"):driver.getConfiguration().getControlSpillDirectory();
+        return new File(dir);
+    }
+}
@@ -18,6 +18,8 @@ package com.splicemachine.derby.stream.function;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
 import java.util.List;
@@ -132,60 +134,140 @@ public abstract class AbstractFileFunction<I> extends SpliceFlatMapFunction<Spli
                 throw StandardException.newException(SQLState.COLUMN_NUMBER_MISMATCH, execRow.nColumns(), 0);
             for (int i = 1; i <= returnRow.nColumns(); i++) {
                 DataValueDescriptor dvd = returnRow.getColumn(i);
-                int type = dvd.getTypeFormatId();
                 if (values.size()<=i-1) {
                     throw StandardException.newException(SQLState.COLUMN_NUMBER_MISMATCH, execRow.nColumns(),values.size());
                 }
                 String value = values.get(i - 1);
                 if (shouldBeNull(value,quotedColumns.valueAt(i-1)))
                     value = null;
-                switch(type){
-                    case StoredFormatIds.SQL_TIME_ID:
-                        if(calendar==null)
-                            calendar = new GregorianCalendar();
-                        if (timeFormat == null || value==null){
-                            ((DateTimeDataValue)dvd).setValue(value,calendar);
-                        }else
-                            dvd.setValue(SpliceDateFunctions.TO_TIME(value, timeFormat),calendar);
+                setValue(dvd,value);
+            }
+            return new LocatedRow(returnRow);
+        } catch (Exception e) {
+            if (operationContext.isPermissive()) {
+               operationContext.recordBadRecord(e.getLocalizedMessage() + values, e);
+                return null;
+            }
+            throw e; // Not Permissive of errors
+        }
+    }
+
+    /**
+     * Parse the current row of the tokenizer. Integral and decimal columns are parsed straight from the tokenizer's
+     * buffer. Everything else (character, floating point and date/time columns) is decoded into a String first, as
+     * that is what those types are parsed from.
+     */
+    @SuppressFBWarnings(value = "REC_CATCH_EXCEPTION",justification = "Intentional")
+    public LocatedRow call(ByteCsvTokenizer tokenizer,Charset charset) throws Exception {
+        operationContext.recordRead();
+        try {
+            ExecRow returnRow = execRow.getClone();
+            for (int i = 1; i <= returnRow.nColumns(); i++) {
+                DataValueDescriptor dvd = returnRow.getColumn(i);
+                if (tokenizer.columnCount()<=i-1) {
+                    throw StandardException.newException(SQLState.COLUMN_NUMBER_MISMATCH, execRow.nColumns(),tokenizer.columnCount());
+                }
+                int column = i-1;
+                if (tokenizer.isNull(column)) {
+                    setValue(dvd,null);
+                    continue;
+                }
+                long value;
+                switch(dvd.getTypeFormatId()){
+                    case StoredFormatIds.SQL_TINYINT_ID:
+                        value = tokenizer.parseLong(column);
+                        if (value!=ByteCsvTokenizer.NOT_A_NUMBER && value>=Byte.MIN_VALUE && value<=Byte.MAX_VALUE) {
+                            dvd.setValue((int)value);
+                            continue;
+                        }
+                        break;
+                    case StoredFormatIds.SQL_SMALLINT_ID:
+                        value = tokenizer.parseLong(column);
+                        if (value!=ByteCsvTokenizer.NOT_A_NUMBER && value>=Short.MIN_VALUE && value<=Short.MAX_VALUE) {
+                            dvd.setValue((int)value);
+                            continue;
+                        }
+                        break;
+                    case StoredFormatIds.SQL_INTEGER_ID:
+                        value = tokenizer.parseLong(column);
+                        if (value!=ByteCsvTokenizer.NOT_A_NUMBER && value>=Integer.MIN_VALUE && value<=Integer.MAX_VALUE) {
+                            dvd.setValue((int)value);
+                            continue;
+                        }
                         break;
-                    case StoredFormatIds.SQL_DATE_ID:
-                        if(calendar==null)
-                            calendar = new GregorianCalendar();
-                        if (dateTimeFormat == null || value == null)
-                            ((DateTimeDataValue)dvd).setValue(value,calendar);
-                        else
-                            dvd.setValue(SpliceDateFunctions.TO_DATE(value, dateTimeFormat),calendar);
+                    case StoredFormatIds.SQL_LONGINT_ID:
+                        value = tokenizer.parseLong(column);
+                        if (value!=ByteCsvTokenizer.NOT_A_NUMBER) {
+                            dvd.setValue(value);
+                            continue;
+                        }
                         break;
-                    case StoredFormatIds.SQL_TIMESTAMP_ID:
-                        if(calendar==null)
-                            calendar = new GregorianCalendar();
-                        if (timestampFormat == null || value==null)
-                            ((DateTimeDataValue)dvd).setValue(value,calendar);
-                        else
-                            dvd.setValue(SpliceDateFunctions.TO_TIMESTAMP(value, timestampFormat),calendar);
+                    case StoredFormatIds.SQL_DECIMAL_ID:
+                        BigDecimal decimal = tokenizer.parseDecimal(column);
+                        if (decimal!=null) {
+                            dvd.setBigDecimal(decimal);
+                            continue;
+                        }
                         break;
                     default:
-                        dvd.setValue(value);
                 }
+                //anything we could not parse directly goes through the String path, which reports errors
+                setValue(dvd,tokenizer.getString(column,charset));
             }
             return new LocatedRow(returnRow);
         } catch (Exception e) {
             if (operationContext.isPermissive()) {
-               operationContext.recordBadRecord(e.getLocalizedMessage() + values, e);
+                operationContext.recordBadRecord(e.getLocalizedMessage() + tokenizer.columnsToString(charset), e);
                 return null;
             }
             throw e; // Not Permissive of errors
         }
     }
 
+    private void setValue(DataValueDescriptor dvd,String value) throws StandardException {
+        switch(dvd.getTypeFormatId()){
+            case StoredFormatIds.SQL_TIME_ID:
+                if(calendar==null)
+                    calendar = new GregorianCalendar();
+                if (timeFormat == null || value==null){
+                    ((DateTimeDataValue)dvd).setValue(value,calendar);
+                }else
+                    dvd.setValue(SpliceDateFunctions.TO_TIME(value, timeFormat),calendar);
+                break;
+            case StoredFormatIds.SQL_DATE_ID:
+                if(calendar==null)
+                    calendar = new GregorianCalendar();
+                if (dateTimeFormat == null || value == null)
+                    ((DateTimeDataValue)dvd).setValue(value,calendar);
+                else
+                    dvd.setValue(SpliceDateFunctions.TO_DATE(value, dateTimeFormat),calendar);
+                break;
+            case StoredFormatIds.SQL_TIMESTAMP_ID:
+                if(calendar==null)
+                    calendar = new GregorianCalendar();
+                if (timestampFormat == null || value==null)
+                    ((DateTimeDataValue)dvd).setValue(value,calendar);
+                else
+                    dvd.setValue(SpliceDateFunctions.TO_TIMESTAMP(value, timestampFormat),calendar);
+                break;
+            default:
+                dvd.setValue(value);
+        }
+    }
+
+    char quoteCharacter() {
+        return characterDelimiter!=null && characterDelimiter.length()>0?characterDelimiter.charAt(0):DEFAULT_STRIP_STRING;
+    }
+
+    char columnDelimiterCharacter() {
+        return columnDelimiter!=null && columnDelimiter.length()>0?columnDelimiter.charAt(0):DEFAULT_COLUMN_DELIMITTER;
+    }
 
     void checkPreference() {
         if (preference==null){
             SConfiguration config =EngineDriver.driver().getConfiguration();
             int maxQuotedLines = config.getImportMaxQuotedColumnLines();
-            preference=new CsvPreference.Builder(
-                    characterDelimiter!=null && characterDelimiter.length()>0?characterDelimiter.charAt(0):DEFAULT_STRIP_STRING,
-                    columnDelimiter!=null && columnDelimiter.length()>0?columnDelimiter.charAt(0):DEFAULT_COLUMN_DELIMITTER,
+            preference=new CsvPreference.Builder(quoteCharacter(),columnDelimiterCharacter(),
                     "\n").maxLinesPerRow(maxQuotedLines).build();
         }
     }
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.function;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.services.io.ArrayUtil;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.ddl.DDLMessage;
+import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
+import com.splicemachine.derby.impl.sql.execute.operations.DMLWriteOperation;
+import com.splicemachine.derby.stream.iapi.OperationContext;
+import com.splicemachine.derby.stream.output.WriteReadUtils;
+import com.splicemachine.derby.stream.output.insert.BulkInsertPartitions;
+import com.splicemachine.derby.stream.output.insert.BulkInsertRowEncoder;
+import com.splicemachine.kvpair.KVPair;
+import com.splicemachine.pipeline.Exceptions;
+import scala.Tuple2;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Encodes the rows of a bulk import into the entries they make in the table and in each of its indexes, keyed
+ * by {@link BulkInsertPartitions#prefixKey(int,byte[])}.
+ */
+public class BulkInsertEncodeFunction extends SpliceFlatMapFunction<SpliceOperation,Iterator<ExecRow>,Tuple2<byte[],byte[]>>{
+    private int[] pkCols;
+    private String tableVersion;
+    private int[] execRowTypeFormatIds;
+    private long heapConglom;
+    private List<DDLMessage.TentativeIndex> tentativeIndexList;
+
+    public BulkInsertEncodeFunction(){
+    }
+
+    public BulkInsertEncodeFunction(OperationContext<SpliceOperation> operationContext,
+                                    int[] pkCols,
+                                    String tableVersion,
+                                    int[] execRowTypeFormatIds,
+                                    long heapConglom,
+                                    List<DDLMessage.TentativeIndex> tentativeIndexList){
+        super(operationContext);
+        this.pkCols=pkCols;
+        this.tableVersion=tableVersion;
+        this.execRowTypeFormatIds=execRowTypeFormatIds;
+        this.heapConglom=heapConglom;
+        this.tentativeIndexList=tentativeIndexList;
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException{
+        super.writeExternal(out);
+        ArrayUtil.writeIntArray(out,pkCols);
+        out.writeUTF(tableVersion);
+        ArrayUtil.writeIntArray(out,execRowTypeFormatIds);
+        out.writeLong(heapConglom);
+        out.writeInt(tentativeIndexList.size());
+        for(DDLMessage.TentativeIndex tentativeIndex : tentativeIndexList){
+            byte[] bytes=tentativeIndex.toByteArray();
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException{
+        super.readExternal(in);
+        pkCols=ArrayUtil.readIntArray(in);
+        tableVersion=in.readUTF();
+        execRowTypeFormatIds=ArrayUtil.readIntArray(in);
+        heapConglom=in.readLong();
+        int size=in.readInt();
+        tentativeIndexList=new ArrayList<>(size);
+        for(int i=0;i<size;i++){
+            byte[] bytes=new byte[in.readInt()];
+            in.readFully(bytes);
+            tentativeIndexList.add(DDLMessage.TentativeIndex.parseFrom(bytes));
+        }
+    }
+
+    @Override
+    public Iterator<Tuple2<byte[],byte[]>> call(final Iterator<ExecRow> rows) throws Exception{
+        ExecRow execRowDefinition=WriteReadUtils.getExecRowFromTypeFormatIds(execRowTypeFormatIds);
+        final BulkInsertRowEncoder encoder=new BulkInsertRowEncoder(pkCols,tableVersion,execRowDefinition,heapConglom,tentativeIndexList);
+        final DMLWriteOperation operation=(DMLWriteOperation)operationContext.getOperation();
+        return new Iterator<Tuple2<byte[],byte[]>>(){
+            private final KVPair[] entries=new KVPair[encoder.numConglomerates()];
+            private int position=entries.length;
+
+            @Override
+            public boolean hasNext(){
+                while(position>=entries.length){
+                    if(!rows.hasNext()) return false;
+                    ExecRow row=rows.next();
+                    try{
+                        if(operation!=null)
+                            operation.evaluateGenerationClauses(row);
+                        encoder.encode(row,entries);
+                        position=0;
+                    }catch(Exception e){
+                        if(operationContext.isPermissive()){
+                            operationContext.recordBadRecord(e.getLocalizedMessage()+row.toString(),e);
+                            continue;
+                        }
+                        throw new RuntimeException(Exceptions.parseException(e));
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public Tuple2<byte[],byte[]> next(){
+                if(!hasNext()) throw new NoSuchElementException();
+                KVPair entry=entries[position];
+                Tuple2<byte[],byte[]> next=new Tuple2<>(BulkInsertPartitions.prefixKey(position,entry.getRowKey()),entry.getValue());
+                entries[position++]=null;
+                return next;
+            }
+
+            @Override
+            public void remove(){
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
@@ -0,0 +1,381 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.function;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A CSV tokenizer which works on the raw bytes of the file, rather than on decoded characters.
+ * <p/>
+ * Rows are read into a reusable buffer, and columns are left in place as slices of that buffer (quoted
+ * columns are unescaped in place), so that tokenizing a row allocates nothing. Columns are only turned into
+ * Strings when asked for, and integral and decimal columns can be parsed straight from the buffer.
+ * <p/>
+ * The tokenizing rules are those of {@link QuoteTrackingTokenizer} (with surrounding spaces kept, and empty
+ * lines skipped). As delimiters are located by byte, this may only be used with character sets in which the
+ * quote and delimiter characters are single bytes which never occur inside the encoding of other characters;
+ * see {@link #supports(Charset,char,char)}.
+ * <p/>
+ * A tokenizer may also be created without a stream, and handed one line at a time with
+ * {@link #setLine(byte[],int)}.
+ */
+public class ByteCsvTokenizer{
+    /**
+     * Returned by {@link #parseLong(int)} for columns which are not plain integers.
+     */
+    public static final long NOT_A_NUMBER=Long.MIN_VALUE;
+
+    private static final int DEFAULT_BUFFER_SIZE=64*1024;
+    private static final int DEFAULT_LINE_BUFFER_SIZE=1024;
+    private static final int MAX_LONG_DIGITS=18; //so that parsing cannot overflow
+
+    private final InputStream in;
+    private final byte quote;
+    private final byte delimiter;
+    private final int maxLinesPerRow;
+
+    private byte[] buffer;
+    private int position;
+    private int limit;
+    private boolean eof;
+    private int linesRead;
+
+    /*the current row, with column bounds relative to rowStart*/
+    private int rowStart;
+    private int columnCount;
+    private int[] columnStarts=new int[16];
+    private int[] columnEnds=new int[16];
+    private boolean[] quoted=new boolean[16];
+
+    /**
+     * @param in the stream to tokenize
+     * @param quote the quote character
+     * @param delimiter the column delimiter
+     * @param maxLinesPerRow the most lines a quoted column may span, or 0 for no limit
+     */
+    public ByteCsvTokenizer(InputStream in,char quote,char delimiter,int maxLinesPerRow){
+        this(in,quote,delimiter,maxLinesPerRow,DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Create a tokenizer for lines handed to it by {@link #setLine(byte[],int)}.
+     */
+    public ByteCsvTokenizer(char quote,char delimiter,int maxLinesPerRow){
+        this(null,quote,delimiter,maxLinesPerRow,DEFAULT_LINE_BUFFER_SIZE);
+    }
+
+    ByteCsvTokenizer(InputStream in,char quote,char delimiter,int maxLinesPerRow,int bufferSize){
+        this.in=in;
+        this.quote=(byte)quote;
+        this.delimiter=(byte)delimiter;
+        this.maxLinesPerRow=maxLinesPerRow;
+        this.buffer=new byte[bufferSize];
+    }
+
+    /**
+     * @return true if files in the given character set, with the given quote and delimiter characters, can be
+     * tokenized by this class.
+     */
+    public static boolean supports(Charset charset,char quote,char delimiter){
+        if(quote>=0x80 || delimiter>=0x80) return false;
+        return StandardCharsets.UTF_8.equals(charset)
+                || StandardCharsets.US_ASCII.equals(charset)
+                || StandardCharsets.ISO_8859_1.equals(charset);
+    }
+
+    /**
+     * Replace the input of a tokenizer created without a stream with a single line, which is read as if it
+     * were the whole file. The line is copied, so the caller may reuse {@code line} afterwards.
+     */
+    public void setLine(byte[] line,int length){
+        assert in==null:"Tokenizer reads from a stream";
+        if(buffer.length<length)
+            buffer=new byte[Math.max(length,2*buffer.length)];
+        System.arraycopy(line,0,buffer,0,length);
+        position=rowStart=0;
+        limit=length;
+        linesRead=0;
+        eof=true;
+    }
+
+    /**
+     * Move to the next row.
+     *
+     * @return false if there are no more rows.
+     * @throws IOException if the stream cannot be read, or if the row is malformed. In the latter case, the
+     * tokenizer moves on to the next line, so that the following rows can still be read.
+     */
+    public boolean next() throws IOException{
+        columnCount=0;
+        //skip empty lines
+        while(true){
+            rowStart=position;
+            if(position>=limit && !fill()) return false;
+            byte b=buffer[position];
+            if(b=='\n'){
+                position++;
+            }else if(b=='\r'){
+                position++;
+                skipLineFeed();
+            }else break;
+            linesRead++;
+        }
+
+        int write=position;
+        int columnStart=0;
+        boolean columnQuoted=false;
+        boolean inQuotes=false;
+        int quoteStartLine=-1;
+        while(true){
+            if(position>=limit){
+                int shift=rowStart;
+                if(!fill()){
+                    if(inQuotes)
+                        throw new IOException(String.format("unexpected end of file while reading quoted column "+
+                                "beginning on line %d and ending on line %d",quoteStartLine,linesRead+1));
+                    addColumn(columnStart,write-shift,columnQuoted);
+                    return true;
+                }
+                write-=shift-rowStart;
+            }
+            byte b=buffer[position++];
+            if(inQuotes){
+                if(b==quote){
+                    if(position>=limit){
+                        int shift=rowStart;
+                        fill();
+                        write-=shift-rowStart;
+                    }
+                    if(position<limit && buffer[position]==quote){
+                        //an escaped quote
+                        buffer[write++]=quote;
+                        position++;
+                    }else
+                        inQuotes=false;
+                }else if(b=='\n' || b=='\r'){
+                    if(maxLinesPerRow>0 && linesRead+1-quoteStartLine+1>=maxLinesPerRow){
+                        String msg=maxLinesPerRow==1?
+                                String.format("unexpected end of line while reading quoted column on line %d",
+                                        linesRead+1):
+                                String.format("max number of lines to read exceeded while reading quoted column"+
+                                        " beginning on line %d and ending on line %d",quoteStartLine,linesRead+1);
+                        if(b=='\r') skipLineFeed();
+                        linesRead++;
+                        throw new IOException(msg);
+                    }
+                    if(b=='\r'){
+                        int shift=rowStart;
+                        skipLineFeed();
+                        write-=shift-rowStart;
+                    }
+                    linesRead++;
+                    buffer[write++]='\n';
+                }else
+                    buffer[write++]=b;
+            }else if(b==delimiter){
+                addColumn(columnStart,write-rowStart,columnQuoted);
+                columnStart=write-rowStart;
+                columnQuoted=false;
+            }else if(b==quote){
+                inQuotes=true;
+                columnQuoted=true;
+                quoteStartLine=linesRead+1;
+            }else if(b=='\n' || b=='\r'){
+                int end=write-rowStart;
+                if(b=='\r') skipLineFeed();
+                linesRead++;
+                addColumn(columnStart,end,columnQuoted);
+                return true;
+            }else
+                buffer[write++]=b;
+        }
+    }
+
+    public int columnCount(){
+        return columnCount;
+    }
+
+    public boolean isQuoted(int column){
+        return quoted[column];
+    }
+
+    /**
+     * @return true if the column should be read as NULL: it is empty, or it is an unquoted {@code null}
+     * (ignoring case).
+     */
+    public boolean isNull(int column){
+        int length=columnEnds[column]-columnStarts[column];
+        if(length==0) return true;
+        if(quoted[column] || length!=4) return false;
+        int offset=rowStart+columnStarts[column];
+        return (buffer[offset]|0x20)=='n'
+                && (buffer[offset+1]|0x20)=='u'
+                && (buffer[offset+2]|0x20)=='l'
+                && (buffer[offset+3]|0x20)=='l';
+    }
+
+    /**
+     * @return the column as a String, or {@code null} if it is empty
+     */
+    public String getString(int column,Charset charset){
+        int length=columnEnds[column]-columnStarts[column];
+        if(length==0) return null;
+        return new String(buffer,rowStart+columnStarts[column],length,charset);
+    }
+
+    /**
+     * Parse the column as an integer, the way {@link Long#parseLong(String)} would after trimming it, without
+     * turning it into a String first.
+     *
+     * @return the value of the column, or {@link #NOT_A_NUMBER} if it is anything but an optional sign
+     * followed by (at most 18) digits.
+     */
+    public long parseLong(int column){
+        int offset=rowStart+columnStarts[column];
+        int end=rowStart+columnEnds[column];
+        while(offset<end && (buffer[offset]&0xFF)<=' ') offset++;
+        while(end>offset && (buffer[end-1]&0xFF)<=' ') end--;
+        if(offset==end) return NOT_A_NUMBER;
+
+        boolean negative=false;
+        if(buffer[offset]=='-'){
+            negative=true;
+            offset++;
+        }else if(buffer[offset]=='+')
+            offset++;
+        int digits=end-offset;
+        if(digits<=0 || digits>MAX_LONG_DIGITS) return NOT_A_NUMBER;
+
+        long value=0;
+        for(int i=offset;i<end;i++){
+            int digit=buffer[i]-'0';
+            if(digit<0 || digit>9) return NOT_A_NUMBER;
+            value=value*10+digit;
+        }
+        return negative?-value:value;
+    }
+
+    /**
+     * Parse the column as a decimal, the way {@link BigDecimal#BigDecimal(String)} would after trimming it,
+     * without turning it into a String first.
+     *
+     * @return the value of the column, or {@code null} if it is anything but an optional sign followed by
+     * (at most 18) digits and at most one decimal point.
+     */
+    public BigDecimal parseDecimal(int column){
+        int offset=rowStart+columnStarts[column];
+        int end=rowStart+columnEnds[column];
+        while(offset<end && (buffer[offset]&0xFF)<=' ') offset++;
+        while(end>offset && (buffer[end-1]&0xFF)<=' ') end--;
+        if(offset==end) return null;
+
+        boolean negative=false;
+        if(buffer[offset]=='-'){
+            negative=true;
+            offset++;
+        }else if(buffer[offset]=='+')
+            offset++;
+
+        long unscaled=0;
+        int digits=0;
+        int scale=-1;
+        for(int i=offset;i<end;i++){
+            if(buffer[i]=='.'){
+                if(scale>=0) return null;
+                scale=0;
+                continue;
+            }
+            int digit=buffer[i]-'0';
+            if(digit<0 || digit>9 || ++digits>MAX_LONG_DIGITS) return null;
+            unscaled=unscaled*10+digit;
+            if(scale>=0) scale++;
+        }
+        if(digits==0) return null;
+        return BigDecimal.valueOf(negative?-unscaled:unscaled,scale<0?0:scale);
+    }
+
+    /**
+     * @return the columns of the current row, formatted as a List of Strings would be. Meant for error messages.
+     */
+    public String columnsToString(Charset charset){
+        StringBuilder sb=new StringBuilder("[");
+        for(int i=0;i<columnCount;i++){
+            if(i>0) sb.append(", ");
+            sb.append(getString(i,charset));
+        }
+        return sb.append(']').toString();
+    }
+
+    public void close() throws IOException{
+        if(in!=null)
+            in.close();
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private void addColumn(int start,int end,boolean wasQuoted){
+        if(columnCount==columnStarts.length){
+            columnStarts=Arrays.copyOf(columnStarts,2*columnCount);
+            columnEnds=Arrays.copyOf(columnEnds,2*columnCount);
+            quoted=Arrays.copyOf(quoted,2*columnCount);
+        }
+        columnStarts[columnCount]=start;
+        columnEnds[columnCount]=end;
+        quoted[columnCount]=wasQuoted;
+        columnCount++;
+    }
+
+    private void skipLineFeed() throws IOException{
+        if(position>=limit && !fill()) return;
+        if(buffer[position]=='\n')
+            position++;
+    }
+
+    /**
+     * Read more of the stream into the buffer. The current row is moved to the front of the buffer first (and
+     * {@code rowStart} adjusted to match), and the buffer grows if the row already fills it.
+     *
+     * @return false if there is nothing more to read.
+     */
+    private boolean fill() throws IOException{
+        if(eof) return false;
+        if(position>=limit && rowStart>=limit){
+            position=limit=rowStart=0;
+        }else if(rowStart>0){
+            System.arraycopy(buffer,rowStart,buffer,0,limit-rowStart);
+            position-=rowStart;
+            limit-=rowStart;
+            rowStart=0;
+        }
+        if(limit==buffer.length)
+            buffer=Arrays.copyOf(buffer,2*buffer.length);
+        int read;
+        do{
+            read=in.read(buffer,limit,buffer.length-limit);
+        }while(read==0);
+        if(read<0){
+            eof=true;
+            return false;
+        }
+        limit+=read;
+        return true;
+    }
+}
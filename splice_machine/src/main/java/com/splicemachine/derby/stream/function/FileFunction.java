@@ -24,6 +24,7 @@ import org.apache.commons.collections.iterators.SingletonIterator;
 
 import javax.annotation.concurrent.NotThreadSafe;
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
@@ -36,11 +37,16 @@ import java.util.List;
  * Special attention should be paid to permissive execution of the OperationContext.  This occurs
  * during imports so that failures are <i>handled</i>.
  *
+ * The lines arrive as their undecoded UTF-8 bytes, and are tokenized by a {@link ByteCsvTokenizer}, as in
+ * {@link StreamFileFunction}. Only when the quote or delimiter characters rule that out are they decoded
+ * into Strings for a {@link MutableCSVTokenizer}.
+ *
  *
  */
 @NotThreadSafe
-public class FileFunction extends AbstractFileFunction<String> {
+public class FileFunction extends AbstractFileFunction<byte[]> {
     boolean initialized = false;
+    ByteCsvTokenizer byteTokenizer;
     MutableCSVTokenizer tokenizer;
     public FileFunction() {
         super();
@@ -53,28 +59,41 @@ public class FileFunction extends AbstractFileFunction<String> {
 
     /**
      *
-     * Call Method for parsing the string into either a singleton List with a LocatedRow or
+     * Call Method for parsing the line into either a singleton List with a LocatedRow or
      * an empty list.
      *
-     * @param s
+     * @param line the UTF-8 bytes of the line, without its terminator
      * @return
      * @throws Exception
      */
     @Override
-    public Iterator<LocatedRow> call(final String s) throws Exception {
+    public Iterator<LocatedRow> call(final byte[] line) throws Exception {
         if (operationContext.isFailed())
             return Collections.<LocatedRow>emptyList().iterator();
         if (!initialized) {
-            Reader reader = new StringReader(s);
             checkPreference();
-            tokenizer= new MutableCSVTokenizer(reader,preference);
+            if (ByteCsvTokenizer.supports(StandardCharsets.UTF_8,quoteCharacter(),columnDelimiterCharacter()))
+                byteTokenizer = new ByteCsvTokenizer(quoteCharacter(),columnDelimiterCharacter(),preference.getMaxLinesPerRow());
+            else
+                tokenizer = new MutableCSVTokenizer(new StringReader(""),preference);
             initialized = true;
         }
         try {
-            tokenizer.setLine(s);
-            List<String> read=tokenizer.read();
-            BooleanList quotedColumns=tokenizer.getQuotedColumns();
-            LocatedRow lr =  call(read,quotedColumns);
+            LocatedRow lr;
+            if (byteTokenizer != null) {
+                byteTokenizer.setLine(line,line.length);
+                /*
+                 * An empty line leaves the tokenizer with no columns, which is reported as a column count
+                 * mismatch, just as the String tokenizer's null row is.
+                 */
+                byteTokenizer.next();
+                lr = call(byteTokenizer,StandardCharsets.UTF_8);
+            } else {
+                tokenizer.setLine(new String(line,StandardCharsets.UTF_8));
+                List<String> read=tokenizer.read();
+                BooleanList quotedColumns=tokenizer.getQuotedColumns();
+                lr = call(read,quotedColumns);
+            }
             return lr==null?Collections.<LocatedRow>emptyList().iterator():new SingletonIterator(lr);
         } catch (Exception e) {
             if (operationContext.isPermissive()) {
@@ -84,4 +103,4 @@ public class FileFunction extends AbstractFileFunction<String> {
             throw StandardException.plainWrapException(e);
         }
     }
-}
\ No newline at end of file
+}
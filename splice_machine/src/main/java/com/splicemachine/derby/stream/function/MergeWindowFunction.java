@@ -20,8 +20,11 @@ import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
 import com.splicemachine.derby.impl.sql.execute.operations.WindowOperation;
 import com.splicemachine.derby.impl.sql.execute.operations.window.WindowAggregator;
 import com.splicemachine.derby.impl.sql.execute.operations.window.WindowContext;
+import com.splicemachine.derby.stream.control.ControlUtils;
+import com.splicemachine.derby.stream.control.ExternalSorter;
 import com.splicemachine.derby.stream.iapi.OperationContext;
 import com.splicemachine.derby.stream.window.BaseFrameBuffer;
+import com.splicemachine.derby.stream.window.SpillableRowBuffer;
 import com.splicemachine.derby.stream.window.WindowFrameBuffer;
 import scala.Tuple2;
 
@@ -31,13 +34,13 @@ import java.io.ObjectOutput;
 import java.io.Serializable;
 import java.util.*;
 
-import static java.util.Collections.sort;
-
 /**
  * Created by jleach on 4/24/15.
  */
 
 public class MergeWindowFunction<Op extends WindowOperation> extends SpliceFlatMapFunction<Op, Tuple2<ExecRow, Iterable<LocatedRow>>,LocatedRow> implements Serializable {
+    private transient OpenPartitions openPartitions;
+
     public MergeWindowFunction() {
     }
 
@@ -58,42 +61,123 @@ public class MergeWindowFunction<Op extends WindowOperation> extends SpliceFlatM
     @Override
     public Iterator<LocatedRow> call(Tuple2<ExecRow, Iterable<LocatedRow>> tuple) throws Exception {
         Iterable<LocatedRow> locatedRows = tuple._2();
-        List<LocatedRow> partitionRows =new ArrayList<>();
-        for(LocatedRow lr:locatedRows){
-            partitionRows.add(lr);
-        }
         WindowContext windowContext = operationContext.getOperation().getWindowContext();
-        sort(partitionRows, new LocatedRowComparator(windowContext.getKeyColumns(), windowContext.getKeyOrders()));
-
-        // window logic
-        final WindowFrameBuffer frameBuffer = BaseFrameBuffer.createFrameBuffer(
-                windowContext.getWindowFunctions(),
-                new LocatedToExecRowIter(partitionRows.iterator()),
-                windowContext.getFrameDefinition(),
-                windowContext.getSortColumns(),
-                operationContext.getOperation().getExecRowDefinition().getClone());
-
-        return new ExecRowToLocatedRowIterable(new Iterable<ExecRow>() {
-            @Override public Iterator<ExecRow> iterator() { return frameBuffer; }
-        });
+        // sort the partition within the window memory budget, spilling sorted runs if it does not fit
+        ExternalSorter<ExecRow, Object> partitionRows = ExternalSorter.newUnmanagedSorter(
+                new ColumnComparator(windowContext.getKeyColumns(), windowContext.getKeyOrders(), true),
+                SpillableRowBuffer.memoryBudget(),
+                operationContext);
+        WindowPartition partition = new WindowPartition(partitionRows);
+        try {
+            for (LocatedRow lr : locatedRows) {
+                partitionRows.add(lr.getRow(), null);
+            }
+
+            // window logic
+            partition.frameBuffer = BaseFrameBuffer.createFrameBuffer(
+                    windowContext.getWindowFunctions(),
+                    new SortedToExecRowIter(partitionRows.sorted()),
+                    windowContext.getFrameDefinition(),
+                    windowContext.getSortColumns(),
+                    operationContext.getOperation().getExecRowDefinition().getClone(),
+                    operationContext);
+        } catch (Exception e) {
+            partition.close();
+            throw e;
+        }
+
+        return new ExecRowToLocatedRowIterable(partition);
+    }
+
+    /*
+     * Partitions close themselves once all their rows have been returned. Those which are still open when the
+     * operation closes (because it stopped reading early) are closed along with it, which removes whatever
+     * they spilled. All partitions share a single closeable, so that the operation does not have to keep
+     * track of every partition it has seen.
+     */
+    private void opened(WindowPartition partition) {
+        if (openPartitions == null) {
+            openPartitions = new OpenPartitions();
+            ControlUtils.closeWithOperation(operationContext, openPartitions);
+        }
+        openPartitions.partitions.add(partition);
+    }
+
+    private void closed(WindowPartition partition) {
+        if (openPartitions != null) {
+            openPartitions.partitions.remove(partition);
+        }
+    }
+
+    private class OpenPartitions implements AutoCloseable {
+        private final Set<WindowPartition> partitions = new HashSet<>();
+
+        @Override
+        public void close() {
+            for (WindowPartition partition : new ArrayList<>(partitions)) {
+                partition.close();
+            }
+        }
     }
 
-    private class LocatedRowComparator implements Comparator<LocatedRow> {
-        private final ColumnComparator rowComparator;
+    /*
+     * The sorted rows of a partition, and the frame buffer which computes their results.
+     */
+    private class WindowPartition implements Iterable<ExecRow>, Iterator<ExecRow>, AutoCloseable {
+        private final ExternalSorter<ExecRow, Object> sorter;
+        private WindowFrameBuffer frameBuffer;
+        private boolean closed;
+
+        WindowPartition(ExternalSorter<ExecRow, Object> sorter) {
+            this.sorter = sorter;
+            opened(this);
+        }
+
+        @Override
+        public Iterator<ExecRow> iterator() {
+            return this;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (closed) {
+                return false;
+            }
+            if (frameBuffer.hasNext()) {
+                return true;
+            }
+            close();
+            return false;
+        }
+
+        @Override
+        public ExecRow next() {
+            return frameBuffer.next();
+        }
 
-        public LocatedRowComparator(int[] keyColumns, boolean[] keyOrders) {
-            this.rowComparator = new ColumnComparator(keyColumns, keyOrders, true);
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
         }
 
         @Override
-        public int compare(LocatedRow r1, LocatedRow r2) {
-            return rowComparator.compare(r1.getRow(), r2.getRow());
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (frameBuffer != null) {
+                frameBuffer.close();
+            }
+            sorter.close();
+            closed(this);
         }
     }
-    private static class LocatedToExecRowIter implements Iterator<ExecRow> {
-        private final Iterator<LocatedRow> delegate;
 
-        public LocatedToExecRowIter(Iterator<LocatedRow> delegate){
+    private static class SortedToExecRowIter implements Iterator<ExecRow> {
+        private final Iterator<Tuple2<ExecRow, Object>> delegate;
+
+        public SortedToExecRowIter(Iterator<Tuple2<ExecRow, Object>> delegate){
             this.delegate=delegate;
         }
 
@@ -104,12 +188,12 @@ public class MergeWindowFunction<Op extends WindowOperation> extends SpliceFlatM
 
         @Override
         public ExecRow next() {
-            return delegate.next().getRow();
+            return delegate.next()._1();
         }
 
         @Override
         public void remove() {
-            delegate.remove();
+            throw new UnsupportedOperationException();
         }
     }
 
@@ -22,16 +22,31 @@ import com.splicemachine.db.iapi.sql.execute.ExecRow;
 import com.splicemachine.db.iapi.sql.execute.ExecutionFactory;
 import com.splicemachine.db.iapi.types.RowLocation;
 import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
+import com.splicemachine.derby.impl.sql.execute.operations.JoinOperation;
 import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
+import com.splicemachine.derby.impl.sql.execute.operations.ProjectRestrictOperation;
+import com.splicemachine.derby.impl.sql.execute.operations.TableScanOperation;
+import com.splicemachine.derby.impl.sql.execute.operations.scanner.PrefetchedLookups;
 import com.splicemachine.derby.stream.iapi.IterableJoinFunction;
 import com.splicemachine.derby.stream.iapi.OperationContext;
 import com.splicemachine.derby.stream.iterator.GetNLJoinIterator;
 import com.splicemachine.pipeline.Exceptions;
+import com.splicemachine.si.api.data.TxnOperationFactory;
+import com.splicemachine.si.impl.driver.SIDriver;
+import com.splicemachine.storage.DataGet;
+import com.splicemachine.storage.DataResult;
+import com.splicemachine.storage.Partition;
 import com.splicemachine.utils.Pair;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.*;
 
 /**
@@ -60,7 +75,17 @@ public abstract class NLJoinFunction <Op extends SpliceOperation, From, To> exte
     protected boolean isOneRowInnerJoin;
 
     protected ExecutorCompletionService<Pair<OperationContext, Iterator<LocatedRow>>> completionService;
-    protected ExecutorService executorService;
+    protected NestedLoopJoinExecutor.Lane executorLane;
+
+    /*
+     * When the inner side looks up a single row by its primary key, the rows for a batch of outer rows are
+     * read with one multi-get up front, and the probes are served from those (see TableScanOperation).
+     * The lookup context is only used to work out the key each outer row probes.
+     */
+    protected int lookupBatchSize;
+    protected OperationContext lookupContext;
+    protected Queue<LocatedRow> pendingLeftRows;
+    protected PrefetchedLookups prefetchedLookups;
 
     public NLJoinFunction () {}
 
@@ -73,10 +98,11 @@ public abstract class NLJoinFunction <Op extends SpliceOperation, From, To> exte
         checkInit();
         SConfiguration configuration= EngineDriver.driver().getConfiguration();
         batchSize = configuration.getNestedLoopJoinBatchSize();
+        lookupBatchSize = configuration.getNestedLoopJoinLookupBatchSize();
         nLeftRows = 0;
         leftSideIterator = from;
-        executorService = Executors.newFixedThreadPool(batchSize);
-        completionService = new ExecutorCompletionService<>(executorService);
+        executorLane = NestedLoopJoinExecutor.getInstance().newLane(batchSize);
+        completionService = new ExecutorCompletionService<>(executorLane);
 
         initOperationContexts();
         loadBatch();
@@ -88,6 +114,10 @@ public abstract class NLJoinFunction <Op extends SpliceOperation, From, To> exte
             for (int i = 0; i < batchSize; ++i) {
                 operationContextList.add(operationContext.getClone());
             }
+            if (lookupBatchSize > 0 && getLookupScan(operationContextList.get(0)) != null) {
+                lookupContext = operationContext.getClone();
+                pendingLeftRows = new ArrayDeque<>(lookupBatchSize);
+            }
         }
         catch (Exception e) {
             throw Exceptions.parseException(e);
@@ -98,13 +128,10 @@ public abstract class NLJoinFunction <Op extends SpliceOperation, From, To> exte
 
         try {
             while (nLeftRows < batchSize) {
-                if (!leftSideIterator.hasNext())
+                if (!hasNextLeftRow())
                     break;
                 nLeftRows++;
-                LocatedRow locatedRow = leftSideIterator.next();
-                GetNLJoinIterator getNLJoinIterator =  GetNLJoinIterator.makeGetNLJoinIterator(joinType,
-                        operationContextList.remove(0), locatedRow);
-                completionService.submit(getNLJoinIterator);
+                submitProbe(nextLeftRow());
             }
             if (nLeftRows > 0) {
                 Future<Pair<OperationContext, Iterator<LocatedRow>>> future = completionService.take();
@@ -134,12 +161,9 @@ public abstract class NLJoinFunction <Op extends SpliceOperation, From, To> exte
                 currentOperationContext.getOperation().close();
                 operationContextList.add(currentOperationContext);
 
-                if (leftSideIterator.hasNext()) {
+                if (hasNextLeftRow()) {
                     // If we haven't consumed left side iterator, submit a task to scan righ side
-                    LocatedRow locatedRow = leftSideIterator.next();
-                    GetNLJoinIterator getNLJoinIterator = GetNLJoinIterator.makeGetNLJoinIterator(joinType,
-                            operationContextList.remove(0), locatedRow);
-                    completionService.submit(getNLJoinIterator);
+                    submitProbe(nextLeftRow());
                     nLeftRows++;
                 }
 
@@ -156,7 +180,7 @@ public abstract class NLJoinFunction <Op extends SpliceOperation, From, To> exte
                 }
             }
             if (!rightSideNLJIterator.hasNext()) {
-                executorService.shutdownNow();
+                executorLane.close();
             }
 
             return rightSideNLJIterator.hasNext();
@@ -166,6 +190,78 @@ public abstract class NLJoinFunction <Op extends SpliceOperation, From, To> exte
         }
     }
 
+    private boolean hasNextLeftRow() {
+        return (pendingLeftRows != null && !pendingLeftRows.isEmpty()) || leftSideIterator.hasNext();
+    }
+
+    private LocatedRow nextLeftRow() throws StandardException {
+        if (pendingLeftRows == null)
+            return leftSideIterator.next();
+        if (pendingLeftRows.isEmpty() && lookupContext != null)
+            prefetch();
+        return pendingLeftRows.isEmpty() ? leftSideIterator.next() : pendingLeftRows.poll();
+    }
+
+    private void submitProbe(LocatedRow locatedRow) {
+        OperationContext context = operationContextList.remove(0);
+        if (pendingLeftRows != null) {
+            getLookupScan(context).setPrefetchedLookups(prefetchedLookups);
+        }
+        GetNLJoinIterator getNLJoinIterator = GetNLJoinIterator.makeGetNLJoinIterator(joinType, context, locatedRow);
+        completionService.submit(getNLJoinIterator);
+    }
+
+    /**
+     * Read ahead the next batch of outer rows, and the inner rows they join with.
+     */
+    private void prefetch() throws StandardException {
+        JoinOperation lookupJoin = (JoinOperation) lookupContext.getOperation();
+        TableScanOperation lookupScan = getLookupScan(lookupContext);
+        TxnOperationFactory operationFactory = SIDriver.driver().getOperationFactory();
+        Set<ByteBuffer> seenKeys = new HashSet<>();
+        List<byte[]> keys = new ArrayList<>();
+        List<DataGet> gets = new ArrayList<>();
+        while (pendingLeftRows.size() < lookupBatchSize && leftSideIterator.hasNext()) {
+            LocatedRow locatedRow = leftSideIterator.next();
+            pendingLeftRows.add(locatedRow);
+            lookupJoin.getLeftOperation().setCurrentLocatedRow(locatedRow);
+            byte[] key = lookupScan.getPointLookupKey();
+            if (key == null) {
+                if (prefetchedLookups == null && keys.isEmpty()) {
+                    // the inner side is not a lookup by primary key, so probe it the usual way from now on
+                    lookupContext = null;
+                    return;
+                }
+                continue; // this row gets a scan of its own
+            }
+            if (seenKeys.add(ByteBuffer.wrap(key))) {
+                keys.add(key);
+                // SI is applied by the scanner the rows are fed to, so read every version
+                gets.add(operationFactory.newDataGet(null, key, null));
+            }
+        }
+        PrefetchedLookups lookups = new PrefetchedLookups(keys.size());
+        if (!gets.isEmpty()) {
+            try (Partition table = SIDriver.driver().getTableFactory().getTable(lookupScan.getTableName())) {
+                Iterator<DataResult> results = table.batchGet(gets);
+                for (byte[] key : keys) {
+                    lookups.add(key, results.next());
+                }
+            } catch (IOException e) {
+                throw Exceptions.parseException(e);
+            }
+        }
+        prefetchedLookups = lookups;
+    }
+
+    private static TableScanOperation getLookupScan(OperationContext context) {
+        SpliceOperation op = context.getOperation().getRightOperation();
+        while (op instanceof ProjectRestrictOperation) {
+            op = ((ProjectRestrictOperation) op).getSource();
+        }
+        return op instanceof TableScanOperation ? (TableScanOperation) op : null;
+    }
+
     @Override
     public LocatedRow getLeftLocatedRow() {
         return new LocatedRow(leftRowLocation, leftRow);
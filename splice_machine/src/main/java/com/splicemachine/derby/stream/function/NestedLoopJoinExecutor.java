@@ -0,0 +1,165 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.function;
+
+import com.splicemachine.EngineDriver;
+import com.splicemachine.access.api.SConfiguration;
+import com.splicemachine.hbase.jmx.JMXUtils;
+import com.splicemachine.pipeline.threadpool.MonitoredThreadPool;
+import com.splicemachine.pipeline.threadpool.ThreadPoolStatus;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * The pool on which nested loop joins probe their inner side, shared by all the joins in the JVM.
+ *
+ * Each join submits its probes through its own {@link Lane}, which lets at most a fixed number of them onto
+ * the pool at a time, and queues the rest. Since the pool runs tasks in submission order, and a lane only
+ * submits its next probe when one of its probes finishes, a join with many probes to run takes its turn with
+ * the others instead of filling up the pool.
+ *
+ * Probes are free to start nested loop joins of their own. Those run their probes in the calling thread, as
+ * waiting on the (bounded) pool from one of its own threads could deadlock it.
+ */
+public class NestedLoopJoinExecutor{
+    private static final long KEEP_ALIVE_SECONDS=60;
+    private static volatile NestedLoopJoinExecutor INSTANCE;
+
+    private static final ThreadLocal<Boolean> IN_PROBE=new ThreadLocal<>();
+
+    private final MonitoredThreadPool pool;
+    private final int maxConcurrentProbes;
+
+    NestedLoopJoinExecutor(MonitoredThreadPool pool,int maxConcurrentProbes){
+        this.pool=pool;
+        this.maxConcurrentProbes=maxConcurrentProbes;
+    }
+
+    public static NestedLoopJoinExecutor getInstance(){
+        NestedLoopJoinExecutor executor=INSTANCE;
+        if(executor==null){
+            synchronized(NestedLoopJoinExecutor.class){
+                executor=INSTANCE;
+                if(executor==null){
+                    SConfiguration config=EngineDriver.driver().getConfiguration();
+                    MonitoredThreadPool pool=MonitoredThreadPool.create("nestedLoopJoin-%d","nested loop join pool",
+                            config.getNestedLoopJoinMaxThreads(),KEEP_ALIVE_SECONDS);
+                    executor=INSTANCE=new NestedLoopJoinExecutor(pool,config.getNestedLoopJoinMaxConcurrentProbes());
+                }
+            }
+        }
+        return executor;
+    }
+
+    public static void registerJMX(MBeanServer mbs) throws Exception{
+        mbs.registerMBean(getInstance().pool,new ObjectName(JMXUtils.NESTED_LOOP_JOIN_THREAD_POOL));
+    }
+
+    public ThreadPoolStatus getStatus(){
+        return pool;
+    }
+
+    /**
+     * @param maxConcurrency the number of probes the caller will have outstanding at most. The lane
+     *                       lets no more than this (or the configured limit, if lower) run at once.
+     * @return a new lane, to be {@link Lane#close() closed} once the join is done with it.
+     */
+    public Lane newLane(int maxConcurrency){
+        return new Lane(Math.max(1,Math.min(maxConcurrency,maxConcurrentProbes)));
+    }
+
+    public class Lane implements Executor{
+        private final int maxRunning;
+        private final Queue<Runnable> waiting=new ArrayDeque<>();
+        private int running;
+        private boolean closed;
+
+        Lane(int maxRunning){
+            this.maxRunning=maxRunning;
+        }
+
+        @Override
+        public void execute(Runnable command){
+            if(IN_PROBE.get()!=null){
+                command.run();
+                return;
+            }
+            synchronized(this){
+                if(closed)
+                    throw new RejectedExecutionException("Nested loop join has already been closed");
+                if(running>=maxRunning){
+                    waiting.add(command);
+                    return;
+                }
+                running++;
+            }
+            dispatch(command);
+        }
+
+        /**
+         * Drop the probes which have not started yet. Probes which are already running are left to finish.
+         */
+        public synchronized void close(){
+            closed=true;
+            waiting.clear();
+        }
+
+        private void dispatch(final Runnable command){
+            try{
+                pool.submit(new Callable<Void>(){
+                    @Override
+                    public Void call() throws Exception{
+                        IN_PROBE.set(Boolean.TRUE);
+                        try{
+                            command.run();
+                        }finally{
+                            IN_PROBE.remove();
+                            next();
+                        }
+                        return null;
+                    }
+                });
+            }catch(RejectedExecutionException ree){
+                synchronized(this){
+                    running--;
+                }
+                throw ree;
+            }
+        }
+
+        private void next(){
+            Runnable command;
+            synchronized(this){
+                command=waiting.poll();
+                if(command==null){
+                    running--;
+                    return;
+                }
+            }
+            /*
+             * Resubmit rather than running it here, so that it queues up behind the probes which other
+             * joins have submitted in the meantime.
+             */
+            dispatch(command);
+        }
+    }
+}
@@ -23,6 +23,7 @@ import com.splicemachine.derby.stream.iapi.OperationContext;
 import com.splicemachine.derby.stream.utils.BooleanList;
 
 import java.io.*;
+import java.nio.charset.Charset;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
@@ -63,6 +64,9 @@ import java.util.NoSuchElementException;
         if (operationContext.isFailed())
             return Collections.<LocatedRow>emptyList().iterator();
         checkPreference();
+        Charset cs = Charset.forName(charset);
+        if (ByteCsvTokenizer.supports(cs,quoteCharacter(),columnDelimiterCharacter()))
+            return new ByteTokenizingIterator(s,cs);
 
         return new Iterator<LocatedRow>() {
                     private LocatedRow nextRow;
@@ -121,4 +125,65 @@ import java.util.NoSuchElementException;
                     }
                 };
             }
+
+    /**
+     * Parses the stream with a {@link ByteCsvTokenizer}, for character sets which allow it.
+     */
+    private class ByteTokenizingIterator implements Iterator<LocatedRow> {
+        private final InputStream stream;
+        private final Charset cs;
+        private ByteCsvTokenizer tokenizer;
+        private LocatedRow nextRow;
+        private boolean hasNext = true;
+        private boolean stale = false;
+
+        ByteTokenizingIterator(InputStream stream,Charset cs) {
+            this.stream = stream;
+            this.cs = cs;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (!hasNext || stale)
+                return hasNext;
+            try {
+                if (tokenizer == null)
+                    tokenizer = new ByteCsvTokenizer(stream,quoteCharacter(),columnDelimiterCharacter(),
+                            preference.getMaxLinesPerRow());
+                while (true) {
+                    try {
+                        if (!tokenizer.next()) {
+                            tokenizer.close();
+                            hasNext = false;
+                            return false;
+                        }
+                        nextRow = call(tokenizer,cs);
+                        if (nextRow != null) {
+                            stale = true;
+                            return true;
+                        }
+                    } catch (Exception e) {
+                        if (operationContext.isPermissive()) {
+                            operationContext.recordBadRecord(e.getLocalizedMessage(), e);
+                        } else
+                            throw StandardException.plainWrapException(e);
+                    }
+                }
+            } catch (Exception ioe) {
+                throw new RuntimeException("Terminal, should have been caught", ioe);
+            }
+        }
+
+        @Override
+        public LocatedRow next() {
+            if(!hasNext()) throw new NoSuchElementException();
+            stale = false;
+            return nextRow;
+        }
+
+        @Override
+        public void remove() {
+            throw new RuntimeException("not supported");
+        }
     }
+    }
\ No newline at end of file
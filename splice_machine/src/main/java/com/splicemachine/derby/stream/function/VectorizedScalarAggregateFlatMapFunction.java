@@ -0,0 +1,51 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.function;
+
+import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
+import com.splicemachine.derby.impl.sql.execute.operations.ScalarAggregateOperation;
+import com.splicemachine.derby.impl.sql.execute.operations.vector.VectorizedScalarAggregate;
+import com.splicemachine.derby.stream.iapi.OperationContext;
+import org.apache.commons.collections.iterators.SingletonIterator;
+
+import java.util.Iterator;
+
+/**
+ * Computes a scalar aggregate over the rows of a table scan in a single pass, using
+ * {@link VectorizedScalarAggregate}.
+ */
+public class VectorizedScalarAggregateFlatMapFunction
+    extends SpliceFlatMapFunction<ScalarAggregateOperation, Iterator<LocatedRow>, LocatedRow> {
+
+    private static final long serialVersionUID = 2365171423657438910L;
+
+    public VectorizedScalarAggregateFlatMapFunction() {
+    }
+
+    public VectorizedScalarAggregateFlatMapFunction(OperationContext<ScalarAggregateOperation> operationContext) {
+        super(operationContext);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Iterator<LocatedRow> call(Iterator<LocatedRow> locatedRows) throws Exception {
+        ScalarAggregateOperation op = getOperation();
+        VectorizedScalarAggregate vectorized = VectorizedScalarAggregate.plan(op);
+        if (vectorized == null)
+            throw new IllegalStateException("Operation " + op + " cannot be vectorized");
+        return new SingletonIterator(new LocatedRow(vectorized.execute(locatedRows)));
+    }
+}
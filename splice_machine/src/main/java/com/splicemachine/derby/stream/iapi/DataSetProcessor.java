@@ -93,6 +93,12 @@ public interface DataSetProcessor {
 
     DataSet<String> readTextFile(String path, SpliceOperation op) throws StandardException;
 
+    /**
+     * Reads a text file like {@link #readTextFile(String, SpliceOperation)}, but returns each line as its
+     * undecoded UTF-8 bytes, without the line terminator.
+     */
+    DataSet<byte[]> readTextFileBytes(String path, SpliceOperation op) throws StandardException;
+
     /**
      * Gets an empty PairDataSet
      */
@@ -42,6 +42,15 @@ public interface OperationContext<Op extends SpliceOperation> extends Externaliz
     long getRetryAttempts();
     long getRegionTooBusyExceptions();
 
+    /**
+     * Record that an operation ran out of memory, and wrote some of its data to local disk.
+     *
+     * @param bytes the number of bytes written to disk
+     */
+    void recordSpill(long bytes);
+    long getSpillCount();
+    long getSpilledBytes();
+
     BadRecordsRecorder getBadRecordsRecorder();
 
     boolean isPermissive();
@@ -18,6 +18,7 @@ package com.splicemachine.derby.stream.iapi;
 import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
 import com.splicemachine.derby.stream.function.*;
+import com.splicemachine.derby.stream.output.BulkInsertDataSetWriterBuilder;
 import com.splicemachine.derby.stream.output.DataSetWriterBuilder;
 import com.splicemachine.derby.stream.output.InsertDataSetWriterBuilder;
 import com.splicemachine.derby.stream.output.UpdateDataSetWriterBuilder;
@@ -167,6 +168,7 @@ public interface PairDataSet<K,V> {
     <Op extends SpliceOperation, U> DataSet<U> mapPartitions(SpliceFlatMapFunction<Op, Iterator<Tuple2<K, V>>, U> f);
     DataSetWriterBuilder deleteData(OperationContext operationContext) throws StandardException;
     InsertDataSetWriterBuilder insertData(OperationContext operationContext) throws StandardException;
+    BulkInsertDataSetWriterBuilder bulkInsertData(OperationContext operationContext) throws StandardException;
     UpdateDataSetWriterBuilder updateData(OperationContext operationContext) throws StandardException;
     DataSetWriterBuilder directWriteData() throws StandardException;
     String toString();
@@ -18,13 +18,17 @@ package com.splicemachine.derby.stream.iterator;
 import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.db.iapi.sql.execute.ExecRow;
 import com.splicemachine.db.iapi.store.access.Qualifier;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
 import com.splicemachine.derby.iapi.sql.execute.SpliceOperation;
 import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
 import com.splicemachine.derby.impl.sql.execute.operations.ScanOperation;
 import com.splicemachine.derby.impl.sql.execute.operations.scanner.SITableScanner;
 import com.splicemachine.derby.impl.sql.execute.operations.scanner.TableScannerBuilder;
+import com.splicemachine.derby.impl.sql.execute.operations.vector.ColumnBatch;
+import com.splicemachine.derby.impl.sql.execute.operations.vector.VectorPredicate;
 import com.splicemachine.derby.stream.utils.StreamLogUtils;
 import com.splicemachine.derby.utils.Scans;
+import com.splicemachine.pipeline.Exceptions;
 import javax.annotation.concurrent.NotThreadSafe;
 import java.io.Closeable;
 import java.io.IOException;
@@ -38,6 +42,7 @@ public class TableScannerIterator implements Iterable<LocatedRow>, Iterator<Loca
     protected TableScannerBuilder siTableBuilder;
     protected SITableScanner tableScanner;
     protected boolean initialized;
+    private boolean exhausted; // the batch scan has ended, and must not be reopened
     private ExecRow execRow;
     boolean slotted;
     boolean hasNext;
@@ -68,24 +73,7 @@ public class TableScannerIterator implements Iterable<LocatedRow>, Iterator<Loca
             if (slotted)
                 return hasNext;
             slotted = true;
-            if (!initialized) {
-                initialized = true;
-                tableScanner = siTableBuilder.build();
-                tableScanner.open();
-                if (operation!= null) {
-                    operation.registerCloseable(new Closeable() {
-                        @Override
-                        public void close() throws IOException {
-                            try {
-                                if (tableScanner != null && initialized)
-                                    tableScanner.close();
-                            } catch (Exception e) {
-                                throw new IOException(e);
-                            }
-                        }
-                    });
-                }
-            }
+            open();
             while (true) {
                 execRow = tableScanner.next();
                 if (execRow == null) {
@@ -105,6 +93,56 @@ public class TableScannerIterator implements Iterable<LocatedRow>, Iterator<Loca
         }
     }
 
+    /**
+     * Compile the scan qualifiers so that they can be evaluated over the batches returned by
+     * {@link #fillBatch(ColumnBatch, VectorPredicate)}.
+     *
+     * @param template a row of the shape returned by the scanner
+     * @return the compiled qualifiers, or {@code null} if there are none, or if they must be evaluated row by row.
+     */
+    public VectorPredicate compilePredicate(DataValueDescriptor[] template, ColumnBatch batch) throws StandardException {
+        if (qualifiers == null || rowIdKey || siTableBuilder.getOptionalProbeValue() != null)
+            return null;
+        return VectorPredicate.compile(qualifiers, baseColumnMap, template, batch);
+    }
+
+    /**
+     * Read the next rows of the scan into {@code batch}, replacing its contents. This bypasses the
+     * per-row cloning done by {@link #next()}, and so must not be mixed with it.
+     *
+     * @param predicate the compiled scan qualifiers, or {@code null} if they are to be evaluated row by row
+     * @return false if the scan was exhausted before any row could be read, true otherwise. The batch may
+     * have no live rows even if true is returned.
+     */
+    public boolean fillBatch(ColumnBatch batch, VectorPredicate predicate) throws StandardException {
+        try {
+            batch.reset();
+            if (exhausted)
+                return false;
+            open();
+            while (!batch.isFull()) {
+                ExecRow row = tableScanner.next();
+                if (row == null) {
+                    tableScanner.close();
+                    initialized = false;
+                    exhausted = true;
+                    break;
+                }
+                rows++;
+                if (predicate == null && qualifiers != null && !rowIdKey
+                        && !Scans.qualifyRecordFromRow(row.getRowArray(), qualifiers, baseColumnMap, siTableBuilder.getOptionalProbeValue()))
+                    continue;
+                batch.add(row.getRowArray());
+            }
+            batch.selectAll();
+            if (predicate != null)
+                predicate.filter(batch);
+            return batch.size() > 0;
+        } catch (IOException e) {
+            throw Exceptions.parseException(e);
+        }
+    }
+
     @Override
     public LocatedRow next() {
         slotted = false;
@@ -122,6 +160,27 @@ public class TableScannerIterator implements Iterable<LocatedRow>, Iterator<Loca
         throw new RuntimeException("Not Implemented");
     }
 
+    private void open() throws StandardException, IOException {
+        if (initialized)
+            return;
+        initialized = true;
+        tableScanner = siTableBuilder.build();
+        tableScanner.open();
+        if (operation!= null) {
+            operation.registerCloseable(new Closeable() {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        if (tableScanner != null && initialized)
+                            tableScanner.close();
+                    } catch (Exception e) {
+                        throw new IOException(e);
+                    }
+                }
+            });
+        }
+    }
+
     @Override
     public void close() throws IOException {
         if (tableScanner != null) {
@@ -0,0 +1,37 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.output;
+
+import com.splicemachine.ddl.DDLMessage;
+
+import java.util.List;
+
+/**
+ * Builds a writer which imports rows by writing them into HFiles of the table (and of each of its indexes),
+ * and bulk loading those, rather than sending them through the write pipeline.
+ */
+public interface BulkInsertDataSetWriterBuilder extends InsertDataSetWriterBuilder{
+
+    /**
+     * @param bulkImportDirectory the directory in which the HFiles are staged before they are loaded
+     */
+    BulkInsertDataSetWriterBuilder bulkImportDirectory(String bulkImportDirectory);
+
+    /**
+     * @param tentativeIndexList the indexes of the table, which are written along with it
+     */
+    BulkInsertDataSetWriterBuilder tentativeIndexList(List<DDLMessage.TentativeIndex> tentativeIndexList);
+}
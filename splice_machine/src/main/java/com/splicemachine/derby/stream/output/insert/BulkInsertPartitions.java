@@ -0,0 +1,134 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.output.insert;
+
+import com.splicemachine.primitives.Bytes;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * How the entries of a bulk import are divided up into HFiles.
+ * <p/>
+ * Each entry is keyed by the index of the conglomerate it belongs to (as numbered by {@link BulkInsertRowEncoder}),
+ * followed by its row key, see {@link #prefixKey(int,byte[])}. The entries of each conglomerate are split into
+ * ranges by a list of split points, which are meant to become the region boundaries of the conglomerate, and each
+ * range of each conglomerate is written to its own HFile. Sorting entries by their prefixed key therefore sorts
+ * them by HFile, then by row key.
+ */
+public class BulkInsertPartitions implements Serializable{
+    private static final long serialVersionUID=1L;
+    private static final int PREFIX_LENGTH=4;
+
+    private final byte[][][] splitPoints;
+    private final int[] firstPartition;
+    private final int numPartitions;
+
+    /**
+     * @param splitPoints for each conglomerate, the sorted (and distinct) keys at which its entries are split
+     */
+    public BulkInsertPartitions(byte[][][] splitPoints){
+        this.splitPoints=splitPoints;
+        this.firstPartition=new int[splitPoints.length];
+        int partitions=0;
+        for(int i=0;i<splitPoints.length;i++){
+            firstPartition[i]=partitions;
+            partitions+=splitPoints[i].length+1;
+        }
+        this.numPartitions=partitions;
+    }
+
+    public int numPartitions(){
+        return numPartitions;
+    }
+
+    /**
+     * @param prefixedKey the key of an entry, as built by {@link #prefixKey(int,byte[])}
+     * @return the partition (and so the HFile) the entry belongs to
+     */
+    public int getPartition(byte[] prefixedKey){
+        int conglomerate=getConglomerateIndex(prefixedKey);
+        byte[][] splits=splitPoints[conglomerate];
+        //count the split points which are <= the key, as a region holds the keys from its start key on
+        int low=0;
+        int high=splits.length;
+        while(low<high){
+            int mid=(low+high)>>>1;
+            byte[] split=splits[mid];
+            int c=Bytes.BASE_COMPARATOR.compare(split,0,split.length,
+                    prefixedKey,PREFIX_LENGTH,prefixedKey.length-PREFIX_LENGTH);
+            if(c<=0)
+                low=mid+1;
+            else
+                high=mid;
+        }
+        return firstPartition[conglomerate]+low;
+    }
+
+    public byte[][] getSplitPoints(int conglomerateIndex){
+        return splitPoints[conglomerateIndex];
+    }
+
+    public static byte[] prefixKey(int conglomerateIndex,byte[] rowKey){
+        byte[] prefixed=new byte[PREFIX_LENGTH+rowKey.length];
+        System.arraycopy(Bytes.toBytes(conglomerateIndex),0,prefixed,0,PREFIX_LENGTH);
+        System.arraycopy(rowKey,0,prefixed,PREFIX_LENGTH,rowKey.length);
+        return prefixed;
+    }
+
+    public static int getConglomerateIndex(byte[] prefixedKey){
+        return Bytes.toInt(prefixedKey,0);
+    }
+
+    public static int getRowKeyLength(byte[] prefixedKey){
+        return prefixedKey.length-PREFIX_LENGTH;
+    }
+
+    public static byte[] getRowKey(byte[] prefixedKey){
+        byte[] rowKey=new byte[getRowKeyLength(prefixedKey)];
+        System.arraycopy(prefixedKey,PREFIX_LENGTH,rowKey,0,rowKey.length);
+        return rowKey;
+    }
+
+    /**
+     * Choose the split points of a conglomerate from a sample of its row keys, so that each range holds
+     * about the same share of the sample, and no more than {@code regionSize} bytes of entries.
+     *
+     * @param sortedSample the row keys of a sample of the entries of the conglomerate, in sorted order
+     * @param estimatedSize the estimated size of all of the entries of the conglomerate
+     * @param regionSize the size to aim for in each range
+     * @return the split points, sorted and distinct
+     */
+    public static byte[][] selectSplitPoints(List<byte[]> sortedSample,long estimatedSize,long regionSize){
+        long numRanges=regionSize<=0?1:(estimatedSize+regionSize-1)/regionSize;
+        numRanges=Math.min(numRanges,sortedSample.size());
+        if(numRanges<=1) return new byte[0][];
+        byte[][] splits=new byte[(int)numRanges-1][];
+        int count=0;
+        for(int i=1;i<numRanges;i++){
+            byte[] split=sortedSample.get((int)(i*sortedSample.size()/numRanges));
+            if(split.length==0) continue; //the empty key is the start of the first region already
+            if(count>0 && Bytes.BASE_COMPARATOR.compare(splits[count-1],split)>=0) continue;
+            splits[count++]=split;
+        }
+        if(count<splits.length){
+            byte[][] distinct=new byte[count][];
+            System.arraycopy(splits,0,distinct,0,count);
+            splits=distinct;
+        }
+        return splits;
+    }
+}
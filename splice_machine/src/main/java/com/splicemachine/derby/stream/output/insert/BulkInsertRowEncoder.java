@@ -0,0 +1,82 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.output.insert;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.ddl.DDLMessage;
+import com.splicemachine.derby.impl.sql.execute.index.IndexTransformer;
+import com.splicemachine.derby.utils.marshall.PairEncoder;
+import com.splicemachine.kvpair.KVPair;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Encodes the rows of a bulk import into the entries they make in the table and in each of its indexes,
+ * the way the write pipeline would have: the table entry is encoded as {@link InsertPipelineWriter} does it,
+ * and the index entries are translated from it as the index write handlers do.
+ * <p/>
+ * Conglomerate 0 is the table itself, and conglomerate {@code i} (for {@code i>0}) is the {@code i-1}th index.
+ */
+public class BulkInsertRowEncoder{
+    private final PairEncoder encoder;
+    private final IndexTransformer[] indexTransformers;
+    private final long[] conglomerates;
+
+    public BulkInsertRowEncoder(int[] pkCols,
+                                String tableVersion,
+                                ExecRow execRowDefinition,
+                                long heapConglom,
+                                List<DDLMessage.TentativeIndex> tentativeIndexList) throws StandardException{
+        this.encoder=new PairEncoder(InsertPipelineWriter.newKeyEncoder(pkCols,tableVersion,execRowDefinition),
+                InsertPipelineWriter.newRowHash(pkCols,tableVersion,execRowDefinition),KVPair.Type.INSERT);
+        this.indexTransformers=new IndexTransformer[tentativeIndexList.size()];
+        this.conglomerates=new long[tentativeIndexList.size()+1];
+        conglomerates[0]=heapConglom;
+        for(int i=0;i<indexTransformers.length;i++){
+            DDLMessage.TentativeIndex tentativeIndex=tentativeIndexList.get(i);
+            indexTransformers[i]=new IndexTransformer(tentativeIndex);
+            conglomerates[i+1]=tentativeIndex.getIndex().getConglomerate();
+        }
+    }
+
+    /**
+     * @return the number of conglomerates each row is written to: the table and each of its indexes
+     */
+    public int numConglomerates(){
+        return conglomerates.length;
+    }
+
+    public long getConglomerate(int conglomerate){
+        return conglomerates[conglomerate];
+    }
+
+    /**
+     * Encode a row.
+     *
+     * @param row the row to encode
+     * @param entries filled with the entry of the row in each conglomerate. Must hold at least
+     *                {@link #numConglomerates()} entries.
+     */
+    public void encode(ExecRow row,KVPair[] entries) throws StandardException, IOException{
+        KVPair tableEntry=encoder.encode(row);
+        entries[0]=tableEntry;
+        for(int i=0;i<indexTransformers.length;i++){
+            entries[i+1]=indexTransformers[i].translate(tableEntry);
+        }
+    }
+}
@@ -29,6 +29,7 @@ import com.splicemachine.derby.stream.output.PermissiveInsertWriteConfiguration;
 import com.splicemachine.derby.stream.output.AbstractPipelineWriter;
 import com.splicemachine.derby.utils.marshall.*;
 import com.splicemachine.derby.utils.marshall.dvd.DescriptorSerializer;
+import com.splicemachine.derby.utils.marshall.dvd.SerializerMap;
 import com.splicemachine.derby.utils.marshall.dvd.VersionedSerializers;
 import com.splicemachine.kvpair.KVPair;
 import com.splicemachine.pipeline.Exceptions;
@@ -142,6 +143,14 @@ public class InsertPipelineWriter extends AbstractPipelineWriter<ExecRow>{
 
 
     public KeyEncoder getKeyEncoder() throws StandardException {
+        return newKeyEncoder(pkCols,tableVersion,execRowDefinition);
+    }
+
+    public DataHash getRowHash() throws StandardException {
+        return newRowHash(pkCols,tableVersion,execRowDefinition);
+    }
+
+    public static KeyEncoder newKeyEncoder(int[] pkCols,String tableVersion,ExecRow execRowDefinition) throws StandardException {
         HashPrefix prefix;
         DataHash dataHash;
         KeyPostfix postfix = NoOpPostfix.INSTANCE;
@@ -160,11 +169,12 @@ public class InsertPipelineWriter extends AbstractPipelineWriter<ExecRow>{
         return new KeyEncoder(prefix,dataHash,postfix);
     }
 
-    public DataHash getRowHash() throws StandardException {
+    public static DataHash newRowHash(int[] pkCols,String tableVersion,ExecRow execRowDefinition) throws StandardException {
         //get all columns that are being set
         int[] columns = getEncodingColumns(execRowDefinition.nColumns(),pkCols);
-        DescriptorSerializer[] serializers = VersionedSerializers.forVersion(tableVersion,true).getSerializers(execRowDefinition);
-        return new EntryDataHash(columns,null,serializers);
+        SerializerMap serializerMap = VersionedSerializers.forVersion(tableVersion,true);
+        DescriptorSerializer[] serializers = serializerMap.getSerializers(execRowDefinition);
+        return new EntryDataHash(columns,null,serializers,serializerMap.storeFieldOffsets());
     }
 
     @Override
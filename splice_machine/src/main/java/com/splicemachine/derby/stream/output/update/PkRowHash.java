@@ -46,8 +46,9 @@ public class PkRowHash extends EntryDataHash{
                      FormatableBitSet finalHeapList,
                      int[] colPositionMap,
                      ResultSupplier supplier,
-                     DescriptorSerializer[] serializers){
-        super(keyColumns,keySortOrder,serializers);
+                     DescriptorSerializer[] serializers,
+                     boolean storeFieldOffsets){
+        super(keyColumns,keySortOrder,serializers,storeFieldOffsets);
         this.finalHeapList=finalHeapList;
         this.colPositionMap=colPositionMap;
         this.supplier=supplier;
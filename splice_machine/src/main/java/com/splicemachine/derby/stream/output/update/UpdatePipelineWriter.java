@@ -29,6 +29,7 @@ import com.splicemachine.derby.stream.iapi.OperationContext;
 import com.splicemachine.derby.stream.output.AbstractPipelineWriter;
 import com.splicemachine.derby.utils.marshall.*;
 import com.splicemachine.derby.utils.marshall.dvd.DescriptorSerializer;
+import com.splicemachine.derby.utils.marshall.dvd.SerializerMap;
 import com.splicemachine.derby.utils.marshall.dvd.VersionedSerializers;
 import com.splicemachine.kvpair.KVPair;
 import com.splicemachine.metrics.Metrics;
@@ -167,12 +168,13 @@ public class UpdatePipelineWriter extends AbstractPipelineWriter<ExecRow>{
 
     public DataHash getRowHash() throws StandardException{
         //if we haven't modified any of our primary keys, then we can just change it directly
-        DescriptorSerializer[] serializers=VersionedSerializers.forVersion(tableVersion,false).getSerializers(execRowDefinition);
+        SerializerMap serializerMap=VersionedSerializers.forVersion(tableVersion,false);
+        DescriptorSerializer[] serializers=serializerMap.getSerializers(execRowDefinition);
         if(!modifiedPrimaryKeys){
             return new NonPkRowHash(colPositionMap,null,serializers,heapList);
         }
         ResultSupplier resultSupplier=new ResultSupplier(new BitSet(),txn,heapConglom);
-        return new PkRowHash(finalPkColumns,null,heapList,colPositionMap,resultSupplier,serializers);
+        return new PkRowHash(finalPkColumns,null,heapList,colPositionMap,resultSupplier,serializers,serializerMap.storeFieldOffsets());
     }
 
     public RecordingCallBuffer<KVPair> transformWriteBuffer(final RecordingCallBuffer<KVPair> bufferToTransform) throws StandardException{
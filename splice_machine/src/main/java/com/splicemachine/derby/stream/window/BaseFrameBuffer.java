@@ -17,10 +17,10 @@ package com.splicemachine.derby.stream.window;
 
 import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.db.iapi.sql.execute.ExecRow;
-import com.splicemachine.db.iapi.types.DataValueDescriptor;
 import com.splicemachine.derby.impl.sql.execute.operations.window.FrameDefinition;
 import com.splicemachine.derby.impl.sql.execute.operations.window.WindowAggregator;
 import com.splicemachine.derby.impl.sql.execute.operations.window.function.SpliceGenericWindowFunction;
+import com.splicemachine.derby.stream.iapi.OperationContext;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import org.spark_project.guava.collect.Iterators;
 import org.spark_project.guava.collect.PeekingIterator;
@@ -38,12 +38,18 @@ abstract public class BaseFrameBuffer implements WindowFrameBuffer{
     protected final long frameEnd;
     private final WindowAggregator[] aggregators;
     private final ExecRow templateRow;
+    private final OperationContext context;
     private ResultBuffer resultBuffer;
 
     protected int start;
     protected int end;
     protected int current;
-    protected ArrayList<ExecRow> rows;
+    /*
+     * The rows from the first one still needed (either in the frame, or not yet returned) onwards. Rows are
+     * added at the end and dropped from the front, so the buffer only ever holds about a frame's worth of rows,
+     * and spills those which do not fit in memory (when the frame is unbounded, for instance).
+     */
+    protected SpillableRowBuffer rows;
     protected PeekingIterator<ExecRow> source;
     protected byte[] partition;
     protected int[] sortColumns;
@@ -55,17 +61,18 @@ abstract public class BaseFrameBuffer implements WindowFrameBuffer{
                                                       Iterator<ExecRow> source,
                                                       FrameDefinition frameDefinition,
                                                       int[] sortColumns,
-                                                      ExecRow templateRow) throws StandardException {
+                                                      ExecRow templateRow,
+                                                      OperationContext context) throws StandardException {
 
         FrameDefinition.FrameMode frameMode = frameDefinition.getFrameMode();
         PeekingIterator<ExecRow> peekingSource = Iterators.peekingIterator(source);
         if (frameMode == FrameDefinition.FrameMode.ROWS) {
             return new PhysicalGroupFrameBuffer(
-                    aggregators, peekingSource, frameDefinition, sortColumns, templateRow);
+                    aggregators, peekingSource, frameDefinition, sortColumns, templateRow, context);
         }
         else {
             return new LogicalGroupFrameBuffer(
-                    aggregators, peekingSource, frameDefinition, sortColumns, templateRow);
+                    aggregators, peekingSource, frameDefinition, sortColumns, templateRow, context);
         }
     }
 
@@ -74,11 +81,13 @@ abstract public class BaseFrameBuffer implements WindowFrameBuffer{
                             PeekingIterator<ExecRow> source,
                             FrameDefinition frameDefinition,
                             int[] sortColumns,
-                            ExecRow templateRow) throws StandardException {
+                            ExecRow templateRow,
+                            OperationContext context) throws StandardException {
         this.aggregators = aggregators;
         this.source = source;
         this.sortColumns = sortColumns;
         this.templateRow = templateRow;
+        this.context = context;
 
         for (WindowAggregator aggregator: this.aggregators) {
             aggregator.initialize(this.templateRow);
@@ -88,12 +97,16 @@ abstract public class BaseFrameBuffer implements WindowFrameBuffer{
         // The frame definition will not change over the life of this frame buffer
         this.frameStart = frameDefinition.getFrameStart().getValue();
         this.frameEnd = frameDefinition.getFrameEnd().getValue();
-        this.rows = new ArrayList<ExecRow>();
-        this.resultBuffer = new ResultBuffer();
+        this.rows = spillsRows() ? SpillableRowBuffer.newBuffer(context) : new SpillableRowBuffer(Long.MAX_VALUE, context);
+        this.resultBuffer = new ResultBuffer(SpillableRowBuffer.newBuffer(context));
     }
 
     public ExecRow next() {
-        return resultBuffer.next();
+        try {
+            return resultBuffer.next();
+        } catch (IOException | StandardException e) {
+            throw new RuntimeException(e);
+        }
     }
 
     private ExecRow nextInternal() throws IOException, StandardException {
@@ -114,10 +127,12 @@ abstract public class BaseFrameBuffer implements WindowFrameBuffer{
     }
 
     private void finishFrame() throws StandardException {
+        // every row has been returned by now, so the buffer only holds those which are still in the frame
+        rows.close();
         for (WindowAggregator aggregator : aggregators) {
             SpliceGenericWindowFunction cachedAggregator = aggregator.getCachedAggregator();
             if (cachedAggregator != null) {
-                List<DataValueDescriptor> results = cachedAggregator.finishFrame();
+                SpillableRowBuffer results = cachedAggregator.finishFrame();
                 if (results != null) {
                     int resultColumnId = aggregator.getResultColumnId();
                     resultBuffer.setColumnResults(resultColumnId, results);
@@ -144,6 +159,19 @@ abstract public class BaseFrameBuffer implements WindowFrameBuffer{
         return resultBuffer.hasNext();
     }
 
+    @Override
+    public void close() {
+        rows.close();
+        resultBuffer.reset();
+        // drops whatever a window function holds for a frame which was never finished
+        for (WindowAggregator aggregator : aggregators) {
+            SpliceGenericWindowFunction cachedAggregator = aggregator.getCachedAggregator();
+            if (cachedAggregator != null) {
+                cachedAggregator.reset();
+            }
+        }
+    }
+
     @Override
     public void remove() {
         throw new UnsupportedOperationException();
@@ -155,17 +183,34 @@ abstract public class BaseFrameBuffer implements WindowFrameBuffer{
         }
     }
 
-    protected void removeInternal() throws StandardException {
+    /**
+     * Remove the oldest row from the window frame.
+     *
+     * @param row the row, or {@code null} if it was never added to the frame
+     */
+    protected void removeInternal(ExecRow row) throws StandardException {
         for(WindowAggregator aggregator : aggregators) {
-            int aggregatorColumnId = aggregator.getFunctionColumnId();
-            SpliceGenericWindowFunction windowFunction =
-                    (SpliceGenericWindowFunction) templateRow.getColumn(aggregatorColumnId).getObject();
-            windowFunction.remove();
+            aggregator.remove(row, templateRow);
         }
     }
 
+    /**
+     * Add a row from the source to the end of the buffer. Source rows belong to the partition being
+     * processed, so they are buffered (and returned) as they are.
+     */
+    protected void bufferRow(ExecRow row) throws IOException {
+        rows.add(row);
+    }
+
+    /**
+     * Drop the first row of the buffer.
+     */
+    protected void dropFirstRow() throws IOException {
+        rows.removeFirst();
+    }
+
     protected void reset() throws StandardException, IOException {
-        rows = new ArrayList<ExecRow>();
+        rows.close();
 
         // Initialize window functions
         for (WindowAggregator aggregator : this.aggregators) {
@@ -182,62 +227,77 @@ abstract public class BaseFrameBuffer implements WindowFrameBuffer{
 
     abstract protected void loadFrame() throws IOException, StandardException;
 
-    private static class ResultBuffer implements Iterator<ExecRow> {
-        private final List<ExecRow> results = new ArrayList<>();
-        private Iterator<ExecRow> resultItr;
+    /**
+     * @return whether the rows of the frame may be spilled. Spilling only pays off when rows are not read
+     * as soon as they are buffered, so frame buffers which do read them right away should not spill.
+     */
+    protected boolean spillsRows() {
+        return true;
+    }
+
+    /*
+     * The results of the partition, in order. Results which come from the whole partition at once (rather than
+     * from each row's frame) are set on the rows as they are returned, so that the rows themselves can be spilled.
+     */
+    private static class ResultBuffer {
+        private final SpillableRowBuffer results;
+        private final List<ColumnResults> columnResults = new ArrayList<>();
         private boolean finished;
 
-        void bufferResult(ExecRow resultRow) {
-            results.add(resultRow);
+        ResultBuffer(SpillableRowBuffer results) {
+            this.results = results;
         }
 
-        boolean isFinished() {
-            return finished;
+        void bufferResult(ExecRow resultRow) throws IOException {
+            results.add(resultRow);
         }
 
         void reset() {
-            resultItr = null;
-            results.clear();
+            results.close();
+            for (ColumnResults c : columnResults) {
+                c.results.close();
+            }
+            columnResults.clear();
             finished = false;
         }
 
         public void setFinished() {
             finished = true;
-            resultItr = results.iterator();
         }
 
-        public int size() {
-            return results.size();
-        }
-
-        @Override
         public boolean hasNext() {
-            return (resultItr != null && resultItr.hasNext());
+            return finished && !results.isEmpty();
         }
 
-        @Override
-        public ExecRow next() {
-            if (resultItr == null || ! resultItr.hasNext()) {
+        public ExecRow next() throws IOException, StandardException {
+            if (!hasNext()) {
                 return null;
             }
-            ExecRow resultRow = resultItr.next();
+            ExecRow resultRow = results.get(0);
+            results.removeFirst();
+            for (ColumnResults c : columnResults) {
+                resultRow.setColumn(c.resultColumnId, c.results.get(0).getColumn(1));
+                c.results.removeFirst();
+            }
             if (! hasNext()) {
                 reset();
             }
             return resultRow;
         }
 
-        @Override
-        public void remove() {
-            // not implemented
+        public void setColumnResults(int resultColumnId, SpillableRowBuffer columnResults) {
+            this.columnResults.add(new ColumnResults(resultColumnId, columnResults));
         }
+    }
 
-        public void setColumnResults(int resultColumnId, List<DataValueDescriptor> columnResults) {
-            for (int i = 0; i < results.size(); i++) {
-                ExecRow row = results.get(i);
-                row.setColumn(resultColumnId, columnResults.get(i));
-            }
+    private static class ColumnResults {
+        final int resultColumnId;
+        final SpillableRowBuffer results;
+
+        ColumnResults(int resultColumnId, SpillableRowBuffer results) {
+            this.resultColumnId = resultColumnId;
+            this.results = results;
         }
     }
 
-}
+}
\ No newline at end of file
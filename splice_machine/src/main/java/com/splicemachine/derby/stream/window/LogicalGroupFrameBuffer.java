@@ -21,6 +21,7 @@ import com.splicemachine.db.iapi.sql.execute.ExecRow;
 import com.splicemachine.db.iapi.types.DataValueDescriptor;
 import com.splicemachine.derby.impl.sql.execute.operations.window.FrameDefinition;
 import com.splicemachine.derby.impl.sql.execute.operations.window.WindowAggregator;
+import com.splicemachine.derby.stream.iapi.OperationContext;
 import java.io.IOException;
 
 /**
@@ -33,8 +34,9 @@ public class LogicalGroupFrameBuffer extends BaseFrameBuffer {
                                     PeekingIterator<ExecRow> source,
                                     FrameDefinition frameDefinition,
                                     int[] sortColumns,
-                                    ExecRow templateRow) throws StandardException {
-        super(aggregators, source, frameDefinition, sortColumns, templateRow);
+                                    ExecRow templateRow,
+                                    OperationContext context) throws StandardException {
+        super(aggregators, source, frameDefinition, sortColumns, templateRow, context);
     }
 
     @Override
@@ -49,15 +51,13 @@ public class LogicalGroupFrameBuffer extends BaseFrameBuffer {
 
         boolean endOfFrame = false;
         while (!endOfFrame) {
-            ExecRow clonedRow = row.getClone();
-
             if (frameEnd < Long.MAX_VALUE) {
                 // if frame end is not unbounded following, compare values
-                DataValueDescriptor v = clonedRow.getColumn(sortColumns[0]+1);
+                DataValueDescriptor v = row.getColumn(sortColumns[0]+1);
                 if (v.compare(currentValue)==0) {
                     // if the value falls into the window frame, aggregate it
-                    add(clonedRow);
-                    rows.add(clonedRow);
+                    add(row);
+                    bufferRow(row);
                 }
                 else {
                     endOfFrame = true;
@@ -66,8 +66,8 @@ public class LogicalGroupFrameBuffer extends BaseFrameBuffer {
             }
             else {
                 // Otherwise, always aggregate it
-                rows.add(clonedRow);
-                add(clonedRow);
+                bufferRow(row);
+                add(row);
             }
             // advance iterator
             source.next();
@@ -90,11 +90,10 @@ public class LogicalGroupFrameBuffer extends BaseFrameBuffer {
 
             if (source.hasNext()) {
                 ExecRow row = source.next();
-                ExecRow clonedRow = row.getClone();
-                rows.add(clonedRow);
+                bufferRow(row);
                 // One more row is added into the frame buffer, include one more row into the window frame
                 end++;
-                add(rows.get(end));
+                add(row);
             } else {
                 return;
             }
@@ -111,7 +110,7 @@ public class LogicalGroupFrameBuffer extends BaseFrameBuffer {
                 ExecRow row = rows.get(start);
                 DataValueDescriptor v = row.getColumn(sortColumns[0]+1);
                 if (v.compare(newKey) < 0) {
-                    removeInternal();
+                    removeInternal(row);
                     start++;
                 }
                 else {
@@ -120,10 +119,11 @@ public class LogicalGroupFrameBuffer extends BaseFrameBuffer {
             }
         }
 
-        // Remove rows from buffer if they are no longer needed
-        int minIndex = current < start ? current : start;
+        // Remove rows from buffer if they are no longer needed. Rows are never removed from a frame which
+        // starts at UNBOUNDED PRECEDING, so only the ones not yet returned are needed then.
+        int minIndex = frameStart > Long.MIN_VALUE && start < current ? start : current;
         for (int i = 0; i < minIndex; ++i) {
-            rows.remove(0);
+            dropFirstRow();
             start--;
             current--;
             end--;
@@ -134,13 +134,12 @@ public class LogicalGroupFrameBuffer extends BaseFrameBuffer {
         if (frameEnd < Long.MAX_VALUE) {
             while(source.hasNext()) {
                 ExecRow row = source.peek();
-                ExecRow clonedRow = row.getClone();
                 DataValueDescriptor v = row.getColumn(sortColumns[0]+1);
                 if (newKey != null && newKey.compare(v) == 0) {
                     //advance iterator
                     source.next();
-                    rows.add(clonedRow);
-                    add(clonedRow);
+                    bufferRow(row);
+                    add(row);
                     end++;
                 } else {
                     // not in range, bail out
@@ -19,6 +19,7 @@ import com.splicemachine.db.iapi.error.StandardException;
 import com.splicemachine.db.iapi.sql.execute.ExecRow;
 import com.splicemachine.derby.impl.sql.execute.operations.window.FrameDefinition;
 import com.splicemachine.derby.impl.sql.execute.operations.window.WindowAggregator;
+import com.splicemachine.derby.stream.iapi.OperationContext;
 import org.spark_project.guava.collect.PeekingIterator;
 import java.io.IOException;
 
@@ -32,8 +33,9 @@ public class PhysicalGroupFrameBuffer extends BaseFrameBuffer {
                                      PeekingIterator<ExecRow> source,
                                      FrameDefinition frameDefinition,
                                      int[] sortColumns,
-                                     ExecRow templateRow) throws StandardException {
-        super(aggregators, source, frameDefinition, sortColumns, templateRow);
+                                     ExecRow templateRow,
+                                     OperationContext context) throws StandardException {
+        super(aggregators, source, frameDefinition, sortColumns, templateRow, context);
     }
 
     @Override
@@ -48,18 +50,24 @@ public class PhysicalGroupFrameBuffer extends BaseFrameBuffer {
                 break;
             }
             ExecRow row = source.next();
-            ExecRow clonedRow = row.getClone();
-            rows.add(clonedRow);
+            bufferRow(row);
 
             // if the next row belongs to the same partition and falls
             // into the window range
             if (i >= frameStart)
-                add(clonedRow);
+                add(row);
         }
         current = 0;
         end = rows.size() -1;
     }
 
+    @Override
+    protected boolean spillsRows() {
+        // A frame which ends at the current row (or a few rows before or after it) reads each row as soon as it
+        // is buffered, and holds no more rows than the query asks for. Only unbounded frames need to spill.
+        return frameEnd == Long.MAX_VALUE;
+    }
+
     @Override
     public void move() throws StandardException, IOException{
         // Increment the current index first
@@ -68,7 +76,8 @@ public class PhysicalGroupFrameBuffer extends BaseFrameBuffer {
         if (frameStart != Long.MIN_VALUE) {
             // Remove rows from the frame
             if (start < current + frameStart) {
-                removeInternal();
+                // the row may never have been added, if the frame starts after the current row
+                removeInternal(start <= end ? rows.get(start) : null);
                 start++;
             }
         }
@@ -81,7 +90,7 @@ public class PhysicalGroupFrameBuffer extends BaseFrameBuffer {
             // 2. the row was just moved out of th window frame
             // 3. window start frame is after the current row
 
-            rows.remove(0);
+            dropFirstRow();
             start--;
             current--;
             end--;
@@ -93,11 +102,10 @@ public class PhysicalGroupFrameBuffer extends BaseFrameBuffer {
                 // read a row from scanner
                 if (source.hasNext()) {
                     ExecRow row = source.next();
-                    ExecRow clonedRow = row.getClone();
-                    rows.add(clonedRow);
+                    bufferRow(row);
                     // One more row is added into the frame buffer, include one more row into the window frame
                     end++;
-                    add(rows.get(end));
+                    add(row);
                 }
             }
         }
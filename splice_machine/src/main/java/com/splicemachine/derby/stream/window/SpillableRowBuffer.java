@@ -0,0 +1,179 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.window;
+
+import com.splicemachine.EngineDriver;
+import com.splicemachine.collections.RingBuffer;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.derby.stream.control.ControlUtils;
+import com.splicemachine.derby.stream.control.SpillFile;
+import com.splicemachine.derby.stream.iapi.OperationContext;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+
+/**
+ * A sequence of rows which are added at the end and dropped from the front, holding no more than (approximately)
+ * a fixed amount of memory.
+ *
+ * Rows are kept in memory until the budget is exceeded. From then on, rows are appended to a {@link SpillFile},
+ * and are read back (in order) once a row past the ones in memory is asked for. Rows added while the
+ * file is being read go to a new file, so the sequence always keeps its order.
+ *
+ * Reading a row past the ones in memory brings every row up to it into memory, so only rows which are actually
+ * needed at the same time count against the budget.
+ */
+@NotThreadSafe
+public class SpillableRowBuffer implements Closeable {
+    private static final int INITIAL_BUFFER_SIZE = 16;
+
+    private final long memoryBudget;
+    private final OperationContext context;
+
+    private RingBuffer<ExecRow> rows = new RingBuffer<>(INITIAL_BUFFER_SIZE);
+    private RingBuffer<Long> rowSizes = new RingBuffer<>(INITIAL_BUFFER_SIZE);
+    private long bufferedBytes;
+
+    // spilled rows, which come after the ones in memory: the rest of the file being read, then the file being written
+    private int spilledRows;
+    private SpillFile readFile;
+    private Iterator<ExecRow> readRows;
+    private SpillFile writeFile;
+
+    /**
+     * @param memoryBudget the number of bytes of rows to hold in memory before spilling
+     * @param context the context to record spills against, or {@code null} if they are not to be recorded
+     */
+    public SpillableRowBuffer(long memoryBudget, OperationContext context) {
+        this.memoryBudget = memoryBudget;
+        this.context = context;
+    }
+
+    /**
+     * @return a buffer using the configured window memory budget.
+     */
+    public static SpillableRowBuffer newBuffer(OperationContext context) {
+        return new SpillableRowBuffer(memoryBudget(), context);
+    }
+
+    /**
+     * @return the number of bytes of rows which each of the buffers of a window function may hold in memory
+     */
+    public static long memoryBudget() {
+        EngineDriver driver = EngineDriver.driver();
+        if (driver == null) //not running within an engine, so we cannot know our budget
+            return Long.MAX_VALUE;
+        return driver.getConfiguration().getWindowSpillMbThreshold() * 1024L * 1024L;
+    }
+
+    public void add(ExecRow row) throws IOException {
+        long size = ControlUtils.estimateSize(row);
+        if (spilledRows == 0 && bufferedBytes + size <= memoryBudget) {
+            buffer(row, size);
+            return;
+        }
+        if (writeFile == null) {
+            writeFile = SpillFile.create("window");
+        }
+        writeFile.write(row);
+        spilledRows++;
+    }
+
+    /**
+     * @param index the position of the row, counting from the first row still in the buffer
+     */
+    public ExecRow get(int index) throws IOException {
+        assert index >= 0 && index < size() : "Index " + index + " out of bounds for size " + size();
+        while (index >= rows.size()) {
+            pageIn();
+        }
+        return rows.get(index);
+    }
+
+    public int size() {
+        return rows.size() + spilledRows;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Drop the first row of the buffer.
+     */
+    public void removeFirst() throws IOException {
+        if (rows.isEmpty()) {
+            pageIn();
+        }
+        rows.readAdvance();
+        bufferedBytes -= rowSizes.next();
+    }
+
+    @Override
+    public void close() {
+        if (readFile != null) {
+            readFile.close();
+            readFile = null;
+            readRows = null;
+        }
+        if (writeFile != null) {
+            writeFile.close();
+            writeFile = null;
+        }
+        rows = new RingBuffer<>(INITIAL_BUFFER_SIZE);
+        rowSizes = new RingBuffer<>(INITIAL_BUFFER_SIZE);
+        bufferedBytes = 0;
+        spilledRows = 0;
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private void buffer(ExecRow row, long size) {
+        if (rows.isFull()) {
+            rows.expand();
+            rowSizes.expand();
+        }
+        rows.add(row);
+        rowSizes.add(size);
+        bufferedBytes += size;
+    }
+
+    /*
+     * Read the next spilled row into memory
+     */
+    private void pageIn() throws IOException {
+        assert spilledRows > 0 : "No rows to page in";
+        if (readRows == null) {
+            // the rows being asked for are all in the file being written, so switch it over to reading
+            long bytes = writeFile.finish();
+            if (context != null)
+                context.recordSpill(bytes);
+            readFile = writeFile;
+            writeFile = null;
+            readRows = readFile.read();
+        }
+        ExecRow row = readRows.next();
+        spilledRows--;
+        if (!readRows.hasNext()) {
+            // the file removes itself once it has been read completely
+            readFile = null;
+            readRows = null;
+        }
+        buffer(row, ControlUtils.estimateSize(row));
+    }
+}
@@ -23,6 +23,13 @@ import java.util.Iterator;
 /**
  * Created by jyuan on 9/15/14.
  */
-public interface WindowFrameBuffer extends Iterator<ExecRow> {
+public interface WindowFrameBuffer extends Iterator<ExecRow>, AutoCloseable {
     void move() throws StandardException, IOException;
+
+    /**
+     * Drop all rows and results still buffered, removing any that were spilled. Frame buffers close themselves
+     * once all their rows have been returned, so this is only needed when the caller stops reading early.
+     */
+    @Override
+    void close();
 }
@@ -74,15 +74,28 @@ public class EntryDataDecoder extends BareKeyHash implements KeyHashDecoder{
 						throw Exceptions.parseException(e);
 				}
 				DataValueDescriptor[] fields = destination.getRowArray();
+				/*
+				 * When the row records where its fields start, we jump over the fields we don't need rather
+				 * than skipping them one at a time
+				 */
+				boolean seekFields = entryDecoder.hasFieldOffsets();
+				boolean skipped = false;
 				if(keyColumns!=null){
 						for(int i=index.nextSetBit(0);i>=0 && i<keyColumns.length;i=index.nextSetBit(i+1)){
 								int pos = keyColumns[i];
 								if(pos<0) continue;
 								DataValueDescriptor dvd = fields[pos];
 								if(dvd==null){
-										entryDecoder.seekForward(decoder, i);
+										if(seekFields)
+												skipped = true;
+										else
+												entryDecoder.seekForward(decoder, i);
 										continue;
 								}
+								if(skipped){
+										entryDecoder.seekToField(decoder,i);
+										skipped = false;
+								}
 								DescriptorSerializer serializer = serializers[pos];
 								boolean sortOrder = keySortOrder != null && !keySortOrder[i];
 								serializer.decode(decoder,dvd,sortOrder);
@@ -91,9 +104,16 @@ public class EntryDataDecoder extends BareKeyHash implements KeyHashDecoder{
 						for(int i=index.nextSetBit(0);i>=0 && i<fields.length;i=index.nextSetBit(i+1)){
 								DataValueDescriptor dvd = fields[i];
 								if(dvd==null){
-										entryDecoder.seekForward(decoder,i);
+										if(seekFields)
+												skipped = true;
+										else
+												entryDecoder.seekForward(decoder,i);
 										continue;
 								}
+								if(skipped){
+										entryDecoder.seekToField(decoder,i);
+										skipped = false;
+								}
 								boolean sortOrder = keySortOrder != null && !keySortOrder[i];
 								DescriptorSerializer serializer = serializers[i];
 								serializer.decode(decoder,dvd,sortOrder);
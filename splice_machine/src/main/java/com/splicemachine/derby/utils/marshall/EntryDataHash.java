@@ -35,14 +35,29 @@ public class EntryDataHash extends BareKeyHash implements DataHash<ExecRow>{
 		protected ExecRow currentRow;
 		protected DataValueDescriptor dvds;
 		protected KryoPool kryoPool;
+		protected final boolean storeFieldOffsets;
 
 		public EntryDataHash(int[] keyColumns, boolean[] keySortOrder,DescriptorSerializer[] serializers) {
-				this(keyColumns, keySortOrder, SpliceKryoRegistry.getInstance(),serializers);
+				this(keyColumns, keySortOrder, SpliceKryoRegistry.getInstance(),serializers,false);
+		}
+
+		/**
+		 * @param storeFieldOffsets whether to write rows with a field offset table. Should be
+		 *                          {@link com.splicemachine.derby.utils.marshall.dvd.SerializerMap#storeFieldOffsets()}
+		 *                          for the version of the table being written.
+		 */
+		public EntryDataHash(int[] keyColumns, boolean[] keySortOrder,DescriptorSerializer[] serializers,boolean storeFieldOffsets) {
+				this(keyColumns, keySortOrder, SpliceKryoRegistry.getInstance(),serializers,storeFieldOffsets);
 		}
 
 		public EntryDataHash(int[] keyColumns, boolean[] keySortOrder,KryoPool kryoPool,DescriptorSerializer[] serializers) {
+				this(keyColumns, keySortOrder, kryoPool,serializers,false);
+		}
+
+		public EntryDataHash(int[] keyColumns, boolean[] keySortOrder,KryoPool kryoPool,DescriptorSerializer[] serializers,boolean storeFieldOffsets) {
 				super(keyColumns, keySortOrder,true,kryoPool,serializers);
 				this.kryoPool = kryoPool;
+				this.storeFieldOffsets = storeFieldOffsets;
 		}
 
 		@Override
@@ -96,7 +111,7 @@ public class EntryDataHash extends BareKeyHash implements DataHash<ExecRow>{
 								i++;
 						}
 				}
-				return EntryEncoder.create(kryoPool,nCols,notNullFields,scalarFields,floatFields,doubleFields);
+				return EntryEncoder.create(kryoPool,nCols,notNullFields,scalarFields,floatFields,doubleFields,storeFieldOffsets);
 		}
 
 		protected BitSet getNotNullFields(ExecRow row,BitSet notNullFields) {
@@ -35,4 +35,10 @@ public interface SerializerMap {
 		DescriptorSerializer getEagerSerializer(int typeFormatId);
 
 		DescriptorSerializer[] getSerializers(int[] typeFormatIds);
+
+		/**
+		 * @return true if rows of this version are written with a field offset table, so that readers can
+		 * jump straight to the columns they need.
+		 */
+		boolean storeFieldOffsets();
 }
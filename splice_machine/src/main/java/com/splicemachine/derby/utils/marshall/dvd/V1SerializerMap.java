@@ -124,6 +124,11 @@ public class V1SerializerMap implements SerializerMap,TypeProvider {
 				return serializers;
 		}
 
+		@Override
+		public boolean storeFieldOffsets() {
+				return false;
+		}
+
 		@Override
 		public boolean isScalar(int typeFormatId) {
 				for(DescriptorSerializer.Factory factory:eagerFactories){
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.utils.marshall.dvd;
+
+/**
+ * Serializes columns exactly as {@link V2SerializerMap} does, but writes rows with a field offset table, so that
+ * scans which only need a few of the columns of a wide row can jump straight to them.
+ */
+public class V3SerializerMap extends V2SerializerMap {
+
+		public static final V3SerializerMap SPARSE_MAP = new V3SerializerMap(true);
+		public static final V3SerializerMap DENSE_MAP = new V3SerializerMap(false);
+
+		public static final String VERSION = "3.0";
+
+		public static V3SerializerMap instance(boolean sparse){
+				return sparse? SPARSE_MAP: DENSE_MAP;
+		}
+
+		public V3SerializerMap(boolean sparse) {
+				super(sparse);
+		}
+
+		@Override
+		public boolean storeFieldOffsets() {
+				return true;
+		}
+}
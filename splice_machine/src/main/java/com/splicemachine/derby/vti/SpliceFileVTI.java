@@ -123,7 +123,7 @@ public class SpliceFileVTI implements DatasetProvider, VTICosting {
         try {
             ImportUtils.validateReadable(fileName, false);
             if (oneLineRecords && (charset==null || charset.toLowerCase().equals("utf-8"))) {
-                DataSet<String> textSet = dsp.readTextFile(fileName, op);
+                DataSet<byte[]> textSet = dsp.readTextFileBytes(fileName, op);
                 operationContext.pushScopeForOp("Parse File");
                 return textSet.flatMap(new FileFunction(characterDelimiter, columnDelimiter, execRow, columnIndex, timeFormat, dateTimeFormat, timestampFormat, operationContext), true);
             } else {
@@ -30,6 +30,8 @@ import org.spark_project.guava.collect.Lists;
 
 import com.splicemachine.EngineDriver;
 import com.splicemachine.access.api.DatabaseVersion;
+import com.splicemachine.derby.impl.sql.execute.operations.BroadcastJoinCacheManagement;
+import com.splicemachine.derby.impl.sql.execute.sequence.SequenceAllocationManagement;
 import com.splicemachine.derby.management.StatementManagement;
 import com.splicemachine.derby.utils.DatabasePropertyManagement;
 import com.splicemachine.pipeline.PipelineDriver;
@@ -50,6 +52,10 @@ public class JMXUtils {
     public static final String TIMESTAMP_MASTER_MANAGEMENT = "com.splicemachine.si.client.timestamp.generator:type=TimestampMasterManagement";
     public static final String TIMESTAMP_REGION_MANAGEMENT = "com.splicemachine.si.client.timestamp.request:type=TimestampRegionManagement";
 	public static final String DATABASE_PROPERTY_MANAGEMENT = "com.splicemachine.derby.utils:type=DatabasePropertyManagement";
+    public static final String BROADCAST_JOIN_CACHE = "com.splicemachine.derby.impl.sql.execute:type=BroadcastJoinCache";
+    public static final String SEQUENCE_ALLOCATION = "com.splicemachine.derby.impl.sql.execute:type=SequenceAllocation";
+    public static final String NESTED_LOOP_JOIN_THREAD_POOL = "com.splicemachine.derby.stream:type=NestedLoopJoinThreadPool";
+    public static final String READ_RESOLVER = "com.splicemachine.si.api.readresolve:type=ReadResolver";
 
     public static List<Pair<String,JMXConnector>> getMBeanServerConnections(Collection<Pair<String,String>> serverConnections) throws IOException {
         List<Pair<String,JMXConnector>> mbscArray =new ArrayList<>(serverConnections.size());
@@ -132,6 +138,30 @@ public class JMXUtils {
         return dbProps;
     }
 
+    public static List<Pair<String,BroadcastJoinCacheManagement>> getBroadcastJoinCacheManagement(List<Pair<String, JMXConnector>> connections) throws MalformedObjectNameException, IOException {
+        List<Pair<String, BroadcastJoinCacheManagement>> managers = Lists.newArrayListWithCapacity(connections.size());
+        for (Pair<String,JMXConnector> connectorPair : connections) {
+            managers.add(Pair.newPair(connectorPair.getFirst(), getNewMXBeanProxy(connectorPair.getSecond(), BROADCAST_JOIN_CACHE, BroadcastJoinCacheManagement.class)));
+        }
+        return managers;
+    }
+
+    public static List<Pair<String,SequenceAllocationManagement>> getSequenceAllocationManagement(List<Pair<String, JMXConnector>> connections) throws MalformedObjectNameException, IOException {
+        List<Pair<String, SequenceAllocationManagement>> managers = Lists.newArrayListWithCapacity(connections.size());
+        for (Pair<String,JMXConnector> connectorPair : connections) {
+            managers.add(Pair.newPair(connectorPair.getFirst(), getNewMXBeanProxy(connectorPair.getSecond(), SEQUENCE_ALLOCATION, SequenceAllocationManagement.class)));
+        }
+        return managers;
+    }
+
+    public static List<Pair<String,ThreadPoolStatus>> getNestedLoopJoinThreadPools(List<Pair<String, JMXConnector>> connections) throws MalformedObjectNameException, IOException {
+        List<Pair<String, ThreadPoolStatus>> pools = Lists.newArrayListWithCapacity(connections.size());
+        for (Pair<String,JMXConnector> connectorPair : connections) {
+            pools.add(Pair.newPair(connectorPair.getFirst(), getNewMXBeanProxy(connectorPair.getSecond(), NESTED_LOOP_JOIN_THREAD_POOL, ThreadPoolStatus.class)));
+        }
+        return pools;
+    }
+
 	public static <T> T getNewMBeanProxy(JMXConnector mbsc, String mbeanName, Class<T> type) throws MalformedObjectNameException, IOException {
 		ObjectName objectName = new ObjectName(mbeanName);
 		return JMX.newMBeanProxy(mbsc.getMBeanServerConnection(), objectName,type, true);
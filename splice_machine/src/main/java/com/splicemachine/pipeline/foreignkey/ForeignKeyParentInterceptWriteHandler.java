@@ -22,6 +22,7 @@ import com.splicemachine.pipeline.client.WriteResult;
 import com.splicemachine.pipeline.constraint.ConstraintContext;
 import com.splicemachine.primitives.Bytes;
 import com.splicemachine.si.api.data.TxnOperationFactory;
+import com.splicemachine.si.api.txn.TxnView;
 import com.splicemachine.si.impl.SimpleTxnFilter;
 import com.splicemachine.si.impl.readresolve.NoOpReadResolver;
 import com.splicemachine.si.impl.txn.ActiveWriteTxn;
@@ -34,6 +35,7 @@ import com.splicemachine.pipeline.writehandler.WriteHandler;
 import com.splicemachine.si.impl.driver.SIDriver;
 import javax.annotation.concurrent.NotThreadSafe;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 
@@ -43,6 +45,12 @@ import java.util.List;
  */
 @NotThreadSafe
 public class ForeignKeyParentInterceptWriteHandler implements WriteHandler{
+    /**
+     * The number of index rows between two deleted keys that we read through before we re-open the
+     * scanner at the next key instead.
+     */
+    private static final int MAX_SKIPPED_ROWS = 64;
+
     private final List<Long> referencingIndexConglomerateIds;
     private final List<DDLMessage.FKConstraintInfo> constraintInfos;
     private final ForeignKeyViolationProcessor violationProcessor;
@@ -84,24 +92,37 @@ public class ForeignKeyParentInterceptWriteHandler implements WriteHandler{
 
     @Override
     public void flush(WriteContext ctx) throws IOException {
+        if (mutations.isEmpty())
+            return;
         try {
-            // TODO Buffer with skip scan
-            for (int k = 0; k<mutations.size();k++) {
-                KVPair mutation = mutations.get(k);
-                for (int i = 0; i < referencingIndexConglomerateIds.size(); i++) {
-                    long indexConglomerateId = referencingIndexConglomerateIds.get(i);
-                    Partition table = null;
-                    if (childPartitions.containsKey(indexConglomerateId))
-                        table = childPartitions.get(indexConglomerateId);
-                    else {
-                        table = SIDriver.driver().getTableFactory().getTable(Long.toString((indexConglomerateId)));
-                        childPartitions.put(indexConglomerateId, table);
-                    }
-                    if (hasReferences(indexConglomerateId, table, mutation, ctx))
-                        failRow(mutation, ctx, constraintInfos.get(i));
-                    else
-                        ctx.success(mutation);
+            /*
+             * Sort the deleted keys, so that each referencing index can be checked for all of them with
+             * a single ordered walk (see findReferences), rather than with one scan per deleted row.
+             */
+            KVPair[] sortedMutations = mutations.toArray(KVPair.class);
+            Arrays.sort(sortedMutations);
+            byte[][] keys = new byte[sortedMutations.length][];
+            for (int k = 0; k < sortedMutations.length; k++) {
+                keys[k] = sortedMutations[k].getRowKey();
+            }
+            int[] violations = new int[keys.length];
+            Arrays.fill(violations, -1);
+            for (int i = 0; i < referencingIndexConglomerateIds.size(); i++) {
+                long indexConglomerateId = referencingIndexConglomerateIds.get(i);
+                Partition table = null;
+                if (childPartitions.containsKey(indexConglomerateId))
+                    table = childPartitions.get(indexConglomerateId);
+                else {
+                    table = SIDriver.driver().getTableFactory().getTable(Long.toString((indexConglomerateId)));
+                    childPartitions.put(indexConglomerateId, table);
                 }
+                findReferences(indexConglomerateId, table, keys, violations, i, ctx);
+            }
+            for (int k = 0; k < sortedMutations.length; k++) {
+                if (violations[k] >= 0)
+                    failRow(sortedMutations[k], ctx, constraintInfos.get(violations[k]));
+                else
+                    ctx.success(sortedMutations[k]);
             }
         } catch (Exception e) {
             violationProcessor.failWrite(e, ctx);
@@ -123,59 +144,113 @@ public class ForeignKeyParentInterceptWriteHandler implements WriteHandler{
         return getClass().getSimpleName();
     }
 
-            /*
-         * The way prefix keys work is that longer keys sort after shorter keys. We
-         * are already starting exactly where we want to be, and we want to end as soon
-         * as we hit a record which is not this key.
-         *
-         * Historically, we did this by using an HBase PrefixFilter. We can do that again,
-         * but it's a bit of a pain to make that work in an architecture-independent
-         * way (we would need to implement a version of that for other architectures,
-         * for example. It's much easier for us to just make use of row key sorting
-         * to do the job for us.
-         *
-         * We start where we want, and we need to end as soon as we run off that. The
-         * first key which is higher than the start key is the start key as a prefix followed
-         * by 0x00 (in unsigned sort order). Therefore, we make the end key
-         * [startKey | 0x00].
-         */
-
-
-        private boolean hasReferences(Long indexConglomerateId, Partition table, KVPair kvPair, WriteContext ctx) throws IOException {
-        byte[] startKey = kvPair.getRowKey();
-        //make sure this is a transactional scan
-        DataScan scan = txnOperationFactory.newDataScan(null); // Non-Transactional, will resolve on this side
-        scan =scan.startKey(startKey);
-        byte[] endKey = Bytes.unsignedCopyAndIncrement(startKey);//new byte[startKey.length+1];
-        scan = scan.stopKey(endKey);
+    /*
+     * The way prefix keys work is that longer keys sort after shorter keys, so every index row which references
+     * a parent key K sorts in the range [K, K+1), where K+1 is K incremented as an unsigned number
+     * (Bytes.unsignedCopyAndIncrement). Historically we opened one scan over that range per deleted row.
+     *
+     * Instead, we walk the index once for all of the (sorted) deleted keys: every row we read either falls
+     * in the range of the first unresolved key, in which case it's a candidate reference, or it sorts before it,
+     * in which case it falls in the gap between two deleted keys and is of no interest to us. Short gaps are
+     * cheaper to read through than to seek over, but long ones are not, so once we have read through
+     * MAX_SKIPPED_ROWS rows of a gap we skip the rest of it by re-opening the scanner at the next key.
+     * Thus deleting a dense range of parent keys costs one scan of the index, and deleting sparse keys
+     * costs no more than a scan per key.
+     */
+    private void findReferences(long indexConglomerateId, Partition table, byte[][] keys, int[] violations,
+                                int constraintIndex, WriteContext ctx) throws IOException {
+        int head = 0;
+        while (head < keys.length && violations[head] >= 0)
+            head++;
+        if (head == keys.length)
+            return; //every key already references some other index
+        byte[] stopKey = null;
+        for (int k = head; k < keys.length; k++) {
+            if (violations[k] >= 0)
+                continue;
+            byte[] keyStop = Bytes.unsignedCopyAndIncrement(keys[k]);
+            if (stopKey == null || Bytes.BASE_COMPARATOR.compare(keyStop, 0, keyStop.length, stopKey, 0, stopKey.length) > 0)
+                stopKey = keyStop;
+        }
 
-            SimpleTxnFilter readUncommittedFilter;
-            SimpleTxnFilter readCommittedFilter;
-            if (ctx.getTxn() instanceof ActiveWriteTxn) {
-                readCommittedFilter = new SimpleTxnFilter(Long.toString(indexConglomerateId), ((ActiveWriteTxn) ctx.getTxn()).getReadCommittedActiveTxn(), NoOpReadResolver.INSTANCE, SIDriver.driver().getTxnStore());
-                readUncommittedFilter = new SimpleTxnFilter(Long.toString(indexConglomerateId), ((ActiveWriteTxn) ctx.getTxn()).getReadUncommittedActiveTxn(), NoOpReadResolver.INSTANCE, SIDriver.driver().getTxnStore());
+        //the same filters are used for every row, they are reset before each one
+        SimpleTxnFilter readCommittedFilter;
+        SimpleTxnFilter readUncommittedFilter;
+        if (ctx.getTxn() instanceof ActiveWriteTxn) {
+            readCommittedFilter = newTxnFilter(indexConglomerateId, ((ActiveWriteTxn) ctx.getTxn()).getReadCommittedActiveTxn());
+            readUncommittedFilter = newTxnFilter(indexConglomerateId, ((ActiveWriteTxn) ctx.getTxn()).getReadUncommittedActiveTxn());
+        }
+        else if (ctx.getTxn() instanceof WritableTxn) {
+            readCommittedFilter = newTxnFilter(indexConglomerateId, ((WritableTxn) ctx.getTxn()).getReadCommittedActiveTxn());
+            readUncommittedFilter = newTxnFilter(indexConglomerateId, ((WritableTxn) ctx.getTxn()).getReadUncommittedActiveTxn());
+        }
+        else
+            throw new IOException("invalidTxn");
 
-            }
-            else if (ctx.getTxn() instanceof WritableTxn) {
-                readCommittedFilter = new SimpleTxnFilter(Long.toString(indexConglomerateId), ((WritableTxn) ctx.getTxn()).getReadCommittedActiveTxn(), NoOpReadResolver.INSTANCE, SIDriver.driver().getTxnStore());
-                readUncommittedFilter = new SimpleTxnFilter(Long.toString(indexConglomerateId), ((WritableTxn) ctx.getTxn()).getReadUncommittedActiveTxn(), NoOpReadResolver.INSTANCE, SIDriver.driver().getTxnStore());
-            }
-            else
-                throw new IOException("invalidTxn");
-        try(DataScanner scanner = table.openScanner(scan)) {
+        DataScanner scanner = openScanner(table, keys[head], stopKey);
+        try {
+            int skipped = 0;
             List<DataCell> next;
             while ((next = scanner.next(-1)) != null && !next.isEmpty()) {
+                DataCell cell = next.get(0);
+                byte[] row = cell.keyArray();
+                int rowOffset = cell.keyOffset();
+                int rowLength = cell.keyLength();
+                //the keys which sort entirely before this row have no (further) references
+                while (head < keys.length
+                        && (violations[head] >= 0 || (compare(keys[head], row, rowOffset, rowLength) < 0 && !isPrefix(keys[head], row, rowOffset, rowLength))))
+                    head++;
+                if (head == keys.length)
+                    break;
+                if (!isPrefix(keys[head], row, rowOffset, rowLength)) {
+                    //the row is in a gap between two deleted keys
+                    if (++skipped >= MAX_SKIPPED_ROWS) {
+                        scanner.close();
+                        scanner = openScanner(table, keys[head], stopKey);
+                        skipped = 0;
+                    }
+                    continue;
+                }
+                skipped = 0;
                 readCommittedFilter.reset();
                 readUncommittedFilter.reset();
-                if (hasData(next, readCommittedFilter) || hasData(next, readUncommittedFilter))
-                    return true;
+                if (hasData(next, readCommittedFilter) || hasData(next, readUncommittedFilter)) {
+                    /*
+                     * Usually only the head key is a prefix of the row, but with variable-length keys a
+                     * later key can be too.
+                     */
+                    for (int k = head; k < keys.length && compare(keys[k], row, rowOffset, rowLength) <= 0; k++) {
+                        if (violations[k] < 0 && isPrefix(keys[k], row, rowOffset, rowLength))
+                            violations[k] = constraintIndex;
+                    }
+                }
             }
-            return false;
-        }catch (Exception e) {
+        } catch (Exception e) {
             throw new IOException(e);
+        } finally {
+            scanner.close();
         }
     }
 
+    private DataScanner openScanner(Partition table, byte[] startKey, byte[] stopKey) throws IOException {
+        //make sure this is a transactional scan
+        DataScan scan = txnOperationFactory.newDataScan(null); // Non-Transactional, will resolve on this side
+        scan = scan.startKey(startKey).stopKey(stopKey);
+        return table.openScanner(scan);
+    }
+
+    private SimpleTxnFilter newTxnFilter(long indexConglomerateId, TxnView txn) {
+        return new SimpleTxnFilter(Long.toString(indexConglomerateId), txn, NoOpReadResolver.INSTANCE, SIDriver.driver().getTxnStore());
+    }
+
+    private static int compare(byte[] key, byte[] row, int rowOffset, int rowLength) {
+        return Bytes.BASE_COMPARATOR.compare(key, 0, key.length, row, rowOffset, rowLength);
+    }
+
+    private static boolean isPrefix(byte[] key, byte[] row, int rowOffset, int rowLength) {
+        return key.length <= rowLength && Bytes.BASE_COMPARATOR.equals(key, 0, key.length, row, rowOffset, key.length);
+    }
+
     private boolean hasData(List<DataCell> next, SimpleTxnFilter txnFilter) throws IOException {
         int cellCount = next.size();
         for(DataCell dc:next){
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.load;
+
+import com.splicemachine.derby.test.framework.SpliceIndexWatcher;
+import com.splicemachine.derby.test.framework.SpliceSchemaWatcher;
+import com.splicemachine.derby.test.framework.SpliceTableWatcher;
+import com.splicemachine.derby.test.framework.SpliceUnitTest;
+import com.splicemachine.derby.test.framework.SpliceWatcher;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.RuleChain;
+import org.junit.rules.TestRule;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Tests for SYSCS_UTIL.BULK_IMPORT_HFILE, which writes the imported rows (and their index entries) into HFiles
+ * and bulk loads them, rather than writing them through the write pipeline.
+ */
+public class BulkImportHFileIT extends SpliceUnitTest{
+    private static final String SCHEMA_NAME=BulkImportHFileIT.class.getSimpleName().toUpperCase();
+    private static final String TABLE_DEF="(ID INT PRIMARY KEY, NAME VARCHAR(20), CODE INT)";
+    private static final int ROW_COUNT=1000;
+
+    private static final SpliceWatcher spliceClassWatcher=new SpliceWatcher(SCHEMA_NAME);
+    private static final SpliceSchemaWatcher spliceSchemaWatcher=new SpliceSchemaWatcher(SCHEMA_NAME);
+    private static final SpliceTableWatcher imported=new SpliceTableWatcher("IMPORTED",SCHEMA_NAME,TABLE_DEF);
+    private static final SpliceIndexWatcher importedIndex=new SpliceIndexWatcher("IMPORTED",SCHEMA_NAME,
+            "IMPORTED_CODE",SCHEMA_NAME,"(CODE)",true);
+    private static final SpliceTableWatcher duplicates=new SpliceTableWatcher("DUPLICATES",SCHEMA_NAME,TABLE_DEF);
+    private static final SpliceIndexWatcher duplicatesIndex=new SpliceIndexWatcher("DUPLICATES",SCHEMA_NAME,
+            "DUPLICATES_CODE",SCHEMA_NAME,"(CODE)",true);
+    private static final SpliceTableWatcher notEmpty=new SpliceTableWatcher("NOT_EMPTY",SCHEMA_NAME,TABLE_DEF);
+
+    @ClassRule
+    public static TestRule chain=RuleChain.outerRule(spliceClassWatcher)
+            .around(spliceSchemaWatcher)
+            .around(imported)
+            .around(importedIndex)
+            .around(duplicates)
+            .around(duplicatesIndex)
+            .around(notEmpty);
+
+    @Rule
+    public SpliceWatcher methodWatcher=new SpliceWatcher(SCHEMA_NAME);
+
+    private static File BADDIR;
+    private static File IMPORTDIR;
+    private static File HFILEDIR;
+
+    @BeforeClass
+    public static void createDirectories() throws Exception{
+        BADDIR=SpliceUnitTest.createBadLogDirectory(SCHEMA_NAME);
+        assertNotNull(BADDIR);
+        IMPORTDIR=SpliceUnitTest.createImportFileDirectory(SCHEMA_NAME);
+        assertNotNull(IMPORTDIR);
+        HFILEDIR=new File(SpliceUnitTest.getBaseDirectory()+"/target/bulk_import/"+SCHEMA_NAME);
+        if(HFILEDIR.exists())
+            SpliceUnitTest.recursiveDelete(HFILEDIR);
+        Assert.assertTrue("Couldn't create "+HFILEDIR,HFILEDIR.mkdirs());
+    }
+
+    @Test
+    public void importedRowsCanBeReadThroughTheTableAndItsIndexes() throws Exception{
+        String fileName=writeFile("imported.csv",ROW_COUNT,false);
+        bulkImport("IMPORTED",fileName,"imported");
+
+        try(ResultSet rs=methodWatcher.executeQuery("select count(*), sum(cast(id as bigint)) from "+imported)){
+            Assert.assertTrue("Did not return a row!",rs.next());
+            Assert.assertEquals("Incorrect row count!",ROW_COUNT,rs.getLong(1));
+            Assert.assertEquals("Incorrect sum of ids!",(long)ROW_COUNT*(ROW_COUNT+1)/2,rs.getLong(2));
+        }
+
+        //primary key lookups
+        try(PreparedStatement ps=methodWatcher.prepareStatement("select name, code from "+imported+" where id = ?")){
+            for(int id : new int[]{1,ROW_COUNT/2,ROW_COUNT}){
+                ps.setInt(1,id);
+                try(ResultSet rs=ps.executeQuery()){
+                    Assert.assertTrue("No row for id "+id,rs.next());
+                    Assert.assertEquals("name"+id,rs.getString(1));
+                    Assert.assertEquals(code(id),rs.getInt(2));
+                    Assert.assertFalse("More than one row for id "+id,rs.next());
+                }
+            }
+        }
+
+        //the unique index has an entry for every row, pointing back at it
+        try(ResultSet rs=methodWatcher.executeQuery("select count(*) from "+imported+
+                " --splice-properties index=IMPORTED_CODE\n")){
+            Assert.assertTrue("Did not return a row!",rs.next());
+            Assert.assertEquals("Incorrect index row count!",ROW_COUNT,rs.getLong(1));
+        }
+        try(PreparedStatement ps=methodWatcher.prepareStatement("select id, name from "+imported+
+                " --splice-properties index=IMPORTED_CODE\n where code = ?")){
+            for(int id : new int[]{1,ROW_COUNT/2,ROW_COUNT}){
+                ps.setInt(1,code(id));
+                try(ResultSet rs=ps.executeQuery()){
+                    Assert.assertTrue("No row for code "+code(id),rs.next());
+                    Assert.assertEquals(id,rs.getInt(1));
+                    Assert.assertEquals("name"+id,rs.getString(2));
+                    Assert.assertFalse("More than one row for code "+code(id),rs.next());
+                }
+            }
+        }
+
+        //the constraints still hold for rows written after the import
+        try{
+            methodWatcher.executeUpdate("insert into "+imported+" values ("+(ROW_COUNT+1)+", 'duplicate', "+code(1)+")");
+            Assert.fail("Expected a unique constraint violation");
+        }catch(SQLException e){
+            Assert.assertEquals("Wrong Exception","23505",e.getSQLState());
+        }
+    }
+
+    @Test
+    public void duplicateKeysFailTheImport() throws Exception{
+        String fileName=writeFile("duplicates.csv",100,true);
+        try{
+            bulkImport("DUPLICATES",fileName,"duplicates");
+            Assert.fail("Expected a duplicate key error");
+        }catch(SQLException e){
+            Assert.assertEquals("Wrong Exception","23505",e.getSQLState());
+        }
+        try(ResultSet rs=methodWatcher.executeQuery("select count(*) from "+duplicates)){
+            Assert.assertTrue("Did not return a row!",rs.next());
+            Assert.assertEquals("A failed import should leave nothing behind",0,rs.getLong(1));
+        }
+    }
+
+    @Test
+    public void tablesWhichAreNotEmptyAreRefused() throws Exception{
+        methodWatcher.executeUpdate("insert into "+notEmpty+" values (0, 'existing', 0)");
+        String fileName=writeFile("not_empty.csv",10,false);
+        try{
+            bulkImport("NOT_EMPTY",fileName,"not_empty");
+            Assert.fail("Expected the import to be refused");
+        }catch(SQLException e){
+            Assert.assertEquals("Wrong Exception","SE023",e.getSQLState());
+        }
+        try(ResultSet rs=methodWatcher.executeQuery("select count(*) from "+notEmpty)){
+            Assert.assertTrue("Did not return a row!",rs.next());
+            Assert.assertEquals(1,rs.getLong(1));
+        }
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static int code(int id){
+        return ROW_COUNT*10-id;
+    }
+
+    /*
+     * Writes rows 1 through rowCount, followed by the last row again when duplicateLastRow is set
+     */
+    private static String writeFile(String name,int rowCount,boolean duplicateLastRow) throws Exception{
+        File file=new File(IMPORTDIR,name);
+        try(PrintWriter writer=new PrintWriter(file,"UTF-8")){
+            for(int id=1;id<=rowCount;id++){
+                writer.println(id+",name"+id+","+code(id));
+            }
+            if(duplicateLastRow)
+                writer.println(rowCount+",name"+rowCount+","+code(rowCount));
+        }
+        return file.getCanonicalPath();
+    }
+
+    private void bulkImport(String tableName,String fileName,String hfileDirectory) throws Exception{
+        try(PreparedStatement ps=methodWatcher.prepareStatement(format("call SYSCS_UTIL.BULK_IMPORT_HFILE(" +
+                        "'%s'," +    // schema name
+                        "'%s'," +    // table name
+                        "null," +    // insert column list
+                        "'%s'," +    // file path
+                        "','," +     // column delimiter
+                        "null," +    // character delimiter
+                        "null," +    // timestamp format
+                        "null," +    // date format
+                        "null," +    // time format
+                        "0," +       // max bad records
+                        "'%s'," +    // bad record dir
+                        "'true'," +  // has one line records
+                        "null," +    // char set
+                        "'%s')",     // bulk import directory
+                SCHEMA_NAME,tableName,fileName,BADDIR.getCanonicalPath(),
+                new File(HFILEDIR,hfileDirectory).getCanonicalPath()))){
+            ps.execute();
+        }
+    }
+}
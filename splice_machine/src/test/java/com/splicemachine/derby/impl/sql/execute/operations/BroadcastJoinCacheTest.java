@@ -0,0 +1,197 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.derby.impl.sql.JoinTable;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import com.splicemachine.stream.Stream;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+@Category(ArchitectureIndependent.class)
+public class BroadcastJoinCacheTest{
+    private static final long NEVER=Long.MAX_VALUE/2;
+
+    @Test
+    public void testSameOperationSharesOneTable() throws Exception{
+        CountingLoader loader=new CountingLoader(10);
+        BroadcastJoinCache cache=new BroadcastJoinCache(loader,100,NEVER);
+        JoinTable first=get(cache,1L);
+        JoinTable second=get(cache,1L);
+        Assert.assertEquals(1,loader.loads);
+        Assert.assertEquals(1,cache.getMissCount());
+        Assert.assertEquals(1,cache.getHitCount());
+        Assert.assertEquals(10,cache.getResidentBytes());
+        first.close();
+        second.close();
+    }
+
+    @Test
+    public void testIdleTablesAreReused() throws Exception{
+        CountingLoader loader=new CountingLoader(10);
+        BroadcastJoinCache cache=new BroadcastJoinCache(loader,100,NEVER);
+        get(cache,1L).close();
+        get(cache,1L).close();
+        Assert.assertEquals("The idle table should have been reused",1,loader.loads);
+        Assert.assertEquals(1,cache.getCachedTableCount());
+    }
+
+    @Test
+    public void testTablesInUseAreNotEvicted() throws Exception{
+        CountingLoader loader=new CountingLoader(80);
+        BroadcastJoinCache cache=new BroadcastJoinCache(loader,100,NEVER);
+        JoinTable inUse=get(cache,1L);
+
+        loader.size=50;
+        JoinTable rejected=get(cache,2L);
+        Assert.assertEquals(0,cache.getEvictionCount());
+        Assert.assertEquals(1,cache.getRejectedAdmissionCount());
+        Assert.assertEquals("A table which does not fit still counts while it is in use",130,cache.getResidentBytes());
+        Assert.assertEquals(2,cache.getCachedTableCount());
+
+        //the table which did not fit is still shared while it is in use
+        get(cache,2L).close();
+        Assert.assertEquals(2,loader.loads);
+        Assert.assertEquals(1,cache.getRejectedAdmissionCount());
+
+        //but is dropped as soon as it is no longer in use
+        rejected.close();
+        Assert.assertEquals(80,cache.getResidentBytes());
+        Assert.assertEquals(1,cache.getCachedTableCount());
+        get(cache,2L).close();
+        Assert.assertEquals(3,loader.loads);
+        Assert.assertEquals(2,cache.getRejectedAdmissionCount());
+        Assert.assertEquals(80,cache.getResidentBytes());
+
+        //while the table in use stays cached
+        get(cache,1L).close();
+        Assert.assertEquals(3,loader.loads);
+        inUse.close();
+    }
+
+    @Test
+    public void testIdleTablesAreEvictedToMakeRoom() throws Exception{
+        CountingLoader loader=new CountingLoader(40);
+        BroadcastJoinCache cache=new BroadcastJoinCache(loader,130,NEVER);
+        get(cache,1L).close();
+        JoinTable inUse=get(cache,2L);
+        get(cache,3L).close();
+        Assert.assertEquals(3,loader.loads);
+        Assert.assertEquals(120,cache.getResidentBytes());
+        Assert.assertEquals(0,cache.getRejectedAdmissionCount());
+
+        //evicts the least recently used idle table (1) and no more, and never the table in use (2)
+        JoinTable newTable=get(cache,4L);
+        Assert.assertEquals(1,cache.getEvictionCount());
+        Assert.assertEquals(0,cache.getRejectedAdmissionCount());
+        Assert.assertEquals(120,cache.getResidentBytes());
+        get(cache,3L).close();
+        Assert.assertEquals("Table 3 should still be cached",4,loader.loads);
+        get(cache,1L).close();
+        Assert.assertEquals("Table 1 should have been evicted",5,loader.loads);
+        newTable.close();
+        inUse.close();
+    }
+
+    @Test
+    public void testIdleTablesExpire() throws Exception{
+        CountingLoader loader=new CountingLoader(10);
+        BroadcastJoinCache cache=new BroadcastJoinCache(loader,100,0);
+        get(cache,1L).close();
+        JoinTable inUse=get(cache,2L);
+        Assert.assertEquals(1,cache.getEvictionCount());
+        Assert.assertEquals(10,cache.getResidentBytes());
+
+        get(cache,3L).close();
+        Assert.assertEquals("The table in use should not expire",1,cache.getEvictionCount());
+        inUse.close();
+    }
+
+    @Test
+    public void testFailedLoadsAreNotCached() throws Exception{
+        CountingLoader loader=new CountingLoader(10);
+        BroadcastJoinCache cache=new BroadcastJoinCache(loader,100,NEVER);
+        loader.fail=true;
+        try{
+            get(cache,1L);
+            Assert.fail("Expected the load to fail");
+        }catch(IOException expected){
+            //expected
+        }
+        Assert.assertEquals(0,cache.getCachedTableCount());
+
+        loader.fail=false;
+        get(cache,1L).close();
+        Assert.assertEquals(2,loader.loads);
+        Assert.assertEquals(10,cache.getResidentBytes());
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static JoinTable get(BroadcastJoinCache cache,long operationId) throws IOException, StandardException{
+        return cache.get(operationId,null,new int[]{0},new int[]{0},null).newTable();
+    }
+
+    private static class CountingLoader implements BroadcastJoinCache.JoinTableLoader{
+        private long size;
+        private boolean fail;
+        private int loads;
+
+        CountingLoader(long size){
+            this.size=size;
+        }
+
+        @Override
+        public JoinTable.Factory load(Callable<Stream<ExecRow>> streamLoader,
+                                      int[] innerHashKeys,
+                                      int[] outerHashKeys,
+                                      ExecRow outerTemplateRow) throws ExecutionException{
+            loads++;
+            if(fail)
+                throw new ExecutionException(new IOException("failed to load"));
+            final long tableSize=size;
+            return new JoinTable.Factory(){
+                @Override
+                public JoinTable newTable(){
+                    return new JoinTable(){
+                        @Override
+                        public Iterator<ExecRow> fetchInner(ExecRow outer){
+                            return Collections.emptyIterator();
+                        }
+
+                        @Override
+                        public void close(){
+                        }
+                    };
+                }
+
+                @Override
+                public long estimatedSizeInBytes(){
+                    return tableSize;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations;
+
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+@Category(ArchitectureIndependent.class)
+public class ByteArenaHashTableTest{
+
+    @Test
+    public void testMissingKeyReturnsNoEntry() throws Exception{
+        ByteArenaHashTable table=new ByteArenaHashTable();
+        byte[] key=Bytes.toBytes("missing");
+        Assert.assertEquals(ByteArenaHashTable.NO_ENTRY,table.find(key,0,key.length));
+
+        table.add(Bytes.toBytes("present"),Bytes.toBytes("row"));
+        Assert.assertEquals(ByteArenaHashTable.NO_ENTRY,table.find(key,0,key.length));
+    }
+
+    @Test
+    public void testDuplicateKeysAreChained() throws Exception{
+        ByteArenaHashTable table=new ByteArenaHashTable();
+        byte[] key=Bytes.toBytes(1L);
+        table.add(key,Bytes.toBytes("row1"));
+        table.add(key,Bytes.toBytes("row2"));
+        table.add(Bytes.toBytes(2L),Bytes.toBytes("row3"));
+
+        Assert.assertEquals(2,table.keyCount());
+        Assert.assertEquals(3,table.rowCount());
+
+        Set<String> rows=new HashSet<>();
+        ByteArenaHashTable.EntryCursor cursor=table.cursor();
+        cursor.reset(table.find(key,0,key.length));
+        while(cursor.hasEntry()){
+            rows.add(Bytes.toString(cursor.page(),cursor.rowOffset(),cursor.rowLength()));
+            cursor.advance();
+        }
+        Assert.assertEquals(2,rows.size());
+        Assert.assertTrue(rows.contains("row1"));
+        Assert.assertTrue(rows.contains("row2"));
+    }
+
+    @Test
+    public void testManyKeysAcrossPagesAndResizes() throws Exception{
+        //use a tiny page size to force many pages, as well as entries larger than a page
+        ByteArenaHashTable table=new ByteArenaHashTable(2,64);
+        int numKeys=10000;
+        for(int i=0;i<numKeys;i++){
+            byte[] row=new byte[4+i%100];
+            Bytes.intToBytes(i,row,row.length-4);
+            table.add(Bytes.toBytes(i),row);
+        }
+        Assert.assertEquals(numKeys,table.keyCount());
+
+        ByteArenaHashTable.EntryCursor cursor=table.cursor();
+        for(int i=0;i<numKeys;i++){
+            byte[] key=Bytes.toBytes(i);
+            long address=table.find(key,0,key.length);
+            Assert.assertNotEquals("Missing key "+i,ByteArenaHashTable.NO_ENTRY,address);
+            cursor.reset(address);
+            int len=cursor.rowLength();
+            Assert.assertEquals(i,Bytes.bytesToInt(cursor.page(),cursor.rowOffset()+len-4));
+            cursor.advance();
+            Assert.assertFalse(cursor.hasEntry());
+        }
+    }
+
+    @Test
+    public void testConcurrentProbesOfALoadedTable() throws Exception{
+        final int numKeys=10000;
+        final ByteArenaHashTable table=new ByteArenaHashTable(16,1024);
+        for(int i=0;i<numKeys;i++){
+            table.add(Bytes.toBytes((long)i),Bytes.toBytes("row"+i));
+            if(i%3==0)
+                table.add(Bytes.toBytes((long)i),Bytes.toBytes("dup"+i));
+        }
+
+        int numThreads=8;
+        ExecutorService executor=Executors.newFixedThreadPool(numThreads);
+        try{
+            List<Future<Void>> probes=new ArrayList<>(numThreads);
+            for(int t=0;t<numThreads;t++){
+                final int start=t;
+                probes.add(executor.submit(new Callable<Void>(){
+                    @Override
+                    public Void call() throws Exception{
+                        ByteArenaHashTable.EntryCursor cursor=table.cursor();
+                        for(int n=0;n<numKeys;n++){
+                            int i=(start*997+n)%numKeys;
+                            byte[] key=Bytes.toBytes((long)i);
+                            cursor.reset(table.find(key,0,key.length));
+                            Set<String> rows=new HashSet<>();
+                            while(cursor.hasEntry()){
+                                rows.add(Bytes.toString(cursor.page(),cursor.rowOffset(),cursor.rowLength()));
+                                cursor.advance();
+                            }
+                            Assert.assertTrue("Missing row for key "+i,rows.remove("row"+i));
+                            if(i%3==0)
+                                Assert.assertTrue("Missing duplicate for key "+i,rows.remove("dup"+i));
+                            Assert.assertTrue("Unexpected rows for key "+i+": "+rows,rows.isEmpty());
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for(Future<Void> probe:probes){
+                probe.get();
+            }
+        }finally{
+            executor.shutdownNow();
+        }
+    }
+}
@@ -330,4 +330,26 @@ public class ScalarAggregateOperationIT extends SpliceUnitTest {
                                                                                  " from summer"))
                                         .get(0));
     }
+
+    @Test
+    public void testVectorizedAggregatesMatchRowMode() throws Exception {
+        String[] queries = new String[]{
+                "select count(*), count(i), sum(i), min(i), max(i) from %s %s",
+                "select count(*), sum(i), max(i) from %s %s where i > 3 and i <= 8",
+                "select count(a), sum(a), min(a), max(a), sum(b) from %s %s",
+                "select count(*), sum(b) from %s %s where a >= 3 or b < 4",
+                "select count(*), sum(b) from %s %s where a > 100",
+                "select avg(i), sum(i+1) from %s %s"
+        };
+        String[] tables = new String[]{spliceTableWatcher.toString(), spliceTableWatcher.toString(),
+                nullTableWatcher.toString(), nullTableWatcher.toString(), nullTableWatcher.toString(),
+                spliceTableWatcher.toString()};
+        for (int q = 0; q < queries.length; q++) {
+            Object[] rowMode = TestUtils.resultSetToArrays(methodWatcher.executeQuery(
+                    String.format(queries[q], tables[q], "--splice-properties vectorize=false\n"))).get(0);
+            Object[] vectorized = TestUtils.resultSetToArrays(methodWatcher.executeQuery(
+                    String.format(queries[q], tables[q], "--splice-properties vectorize=true\n"))).get(0);
+            Assert.assertArrayEquals("Incorrect results for " + queries[q], rowMode, vectorized);
+        }
+    }
 }
@@ -79,6 +79,31 @@ public class NestedLoopJoinOperationIT extends SpliceUnitTest {
 
     }
 
+    @Test
+    public void joinOnPrimaryKeyLookupsMatchesBroadcast() throws Exception {
+        methodWatcher.executeUpdate("create table PK_LOOKUP_R (a int primary key, b int)");
+        methodWatcher.executeUpdate("insert into PK_LOOKUP_R values (1,10),(2,20),(3,30),(4,40)");
+        for (int n = 4; n < 4096; n *= 2) {
+            methodWatcher.executeUpdate(String.format("insert into PK_LOOKUP_R select a+%d, b+%d from PK_LOOKUP_R", n, n * 10));
+        }
+        // more outer rows than a single lookup batch, with duplicate, missing and null keys
+        methodWatcher.executeUpdate("create table PK_LOOKUP_L (c int)");
+        methodWatcher.executeUpdate("insert into PK_LOOKUP_L select a from PK_LOOKUP_R");
+        methodWatcher.executeUpdate("insert into PK_LOOKUP_L select a from PK_LOOKUP_R where mod(a,3) = 0");
+        methodWatcher.executeUpdate("insert into PK_LOOKUP_L values (null),(0),(5000)");
+        // deleted and updated inner rows must be seen as such
+        methodWatcher.executeUpdate("delete from PK_LOOKUP_R where mod(a,7) = 0");
+        methodWatcher.executeUpdate("update PK_LOOKUP_R set b = b+1 where mod(a,5) = 0");
+
+        for (String join : new String[]{"inner join", "left outer join"}) {
+            String query = "select count(*), count(r.a), sum(r.b) from --splice-properties joinOrder=FIXED\n" +
+                    " PK_LOOKUP_L l " + join + " PK_LOOKUP_R r --splice-properties joinStrategy=%s\n on l.c = r.a";
+            String expected = toString(methodWatcher.executeQuery(String.format(query, "BROADCAST")));
+            ResultSet rs = methodWatcher.executeQuery(String.format(query, "NESTEDLOOP"));
+            assertEquals("Incorrect results for " + join, expected, toString(rs));
+        }
+    }
+
     private String toString(ResultSet rs) throws Exception {
         return TestUtils.FormattedResult.ResultFactory.toString(rs);
     }
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations.vector;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.execute.ExecAggregator;
+import com.splicemachine.db.iapi.types.DataTypeDescriptor;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLDouble;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import com.splicemachine.db.impl.sql.execute.CountAggregator;
+import com.splicemachine.db.impl.sql.execute.MaxMinAggregator;
+import com.splicemachine.db.impl.sql.execute.SumAggregator;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.sql.Types;
+import java.util.Random;
+
+@Category(ArchitectureIndependent.class)
+public class VectorAggregateTest{
+    private static final int NUM_ROWS=2500; //more than one batch
+
+    @Test
+    public void testIntegralAggregatesMatchRowMode() throws Exception{
+        Random random=new Random(0L);
+        DataValueDescriptor[][] rows=new DataValueDescriptor[NUM_ROWS][];
+        for(int i=0;i<NUM_ROWS;i++){
+            rows[i]=new DataValueDescriptor[]{random.nextInt(7)==0?new SQLInteger():new SQLInteger(random.nextInt(1000)-500)};
+        }
+        assertMatchesRowMode(rows,Types.BIGINT);
+    }
+
+    @Test
+    public void testDoubleAggregatesMatchRowMode() throws Exception{
+        Random random=new Random(0L);
+        DataValueDescriptor[][] rows=new DataValueDescriptor[NUM_ROWS][];
+        for(int i=0;i<NUM_ROWS;i++){
+            //whole numbers, so that the sum is exact regardless of the order of summation
+            rows[i]=new DataValueDescriptor[]{random.nextInt(7)==0?new SQLDouble():new SQLDouble(random.nextInt(1000)-500)};
+        }
+        assertMatchesRowMode(rows,Types.DOUBLE);
+    }
+
+    @Test
+    public void testSumOverflowIsReportedByAggregator() throws Exception{
+        DataValueDescriptor[][] rows=new DataValueDescriptor[][]{
+                {new SQLLongint(Long.MAX_VALUE)},{new SQLLongint(1)}
+        };
+        ExecAggregator sum=new SumAggregator().setup(null,"SUM",DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.BIGINT));
+        VectorAggregate aggregate=new VectorAggregate(VectorAggregate.Function.SUM,0,rows[0][0],sum,null);
+        ColumnBatch batch=new ColumnBatch(1,ColumnBatch.DEFAULT_CAPACITY);
+        batch.addColumn(0,rows[0][0]);
+        fill(batch,rows,0,rows.length);
+        aggregate.accumulate(batch);
+        try{
+            aggregate.finish();
+            sum.getResult();
+            Assert.fail("Expected the overflow to be reported");
+        }catch(StandardException expected){
+            //the same error as in row mode
+        }
+    }
+
+    @Test
+    public void testEmptySelection() throws Exception{
+        ColumnBatch batch=new ColumnBatch(1,ColumnBatch.DEFAULT_CAPACITY);
+        SQLInteger template=new SQLInteger();
+        batch.addColumn(0,template);
+        batch.add(new DataValueDescriptor[]{new SQLInteger(5)});
+        batch.selectAll();
+        batch.setSelectedCount(0);
+
+        ExecAggregator max=new MaxMinAggregator().setup(null,"MAX",DataTypeDescriptor.getBuiltInDataTypeDescriptor(Types.INTEGER));
+        VectorAggregate aggregate=new VectorAggregate(VectorAggregate.Function.MAX,0,template,max,null);
+        aggregate.accumulate(batch);
+        aggregate.finish();
+        Assert.assertTrue(max.getResult()==null || max.getResult().isNull());
+        Assert.assertFalse(max.didEliminateNulls());
+    }
+
+    private void assertMatchesRowMode(DataValueDescriptor[][] rows,int sumType) throws Exception{
+        DataValueDescriptor template=rows[0][0].getNewNull();
+        String[] names=new String[]{"COUNT(*)","COUNT","SUM","MIN","MAX"};
+        VectorAggregate.Function[] functions=VectorAggregate.Function.values();
+        for(int f=0;f<functions.length;f++){
+            ExecAggregator expected=newAggregator(functions[f],names[f],sumType);
+            for(DataValueDescriptor[] row:rows){
+                expected.accumulate(row[0],null);
+            }
+
+            ExecAggregator actual=newAggregator(functions[f],names[f],sumType);
+            VectorAggregate aggregate=new VectorAggregate(functions[f],0,template,actual,null);
+            ColumnBatch batch=new ColumnBatch(1,ColumnBatch.DEFAULT_CAPACITY);
+            batch.addColumn(0,template);
+            for(int start=0;start<rows.length;start+=ColumnBatch.DEFAULT_CAPACITY){
+                fill(batch,rows,start,Math.min(rows.length,start+ColumnBatch.DEFAULT_CAPACITY));
+                aggregate.accumulate(batch);
+            }
+            aggregate.finish();
+
+            Assert.assertEquals("Incorrect result for "+names[f],expected.getResult(),actual.getResult());
+            Assert.assertEquals("Incorrect null elimination for "+names[f],expected.didEliminateNulls(),actual.didEliminateNulls());
+        }
+    }
+
+    private static void fill(ColumnBatch batch,DataValueDescriptor[][] rows,int start,int end) throws Exception{
+        batch.reset();
+        for(int i=start;i<end;i++){
+            batch.add(rows[i]);
+        }
+        batch.selectAll();
+    }
+
+    private static ExecAggregator newAggregator(VectorAggregate.Function function,String name,int sumType){
+        switch(function){
+            case COUNT_STAR:
+            case COUNT:
+                return new CountAggregator().setup(null,name,null);
+            case SUM:
+                return new SumAggregator().setup(null,name,DataTypeDescriptor.getBuiltInDataTypeDescriptor(sumType));
+            default:
+                return new MaxMinAggregator().setup(null,name,null);
+        }
+    }
+}
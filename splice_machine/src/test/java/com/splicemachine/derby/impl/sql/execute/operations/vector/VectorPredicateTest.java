@@ -0,0 +1,150 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations.vector;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.store.access.Qualifier;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.Orderable;
+import com.splicemachine.db.iapi.types.SQLChar;
+import com.splicemachine.db.iapi.types.SQLDouble;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import com.splicemachine.db.iapi.types.SQLReal;
+import com.splicemachine.derby.utils.Scans;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@Category(ArchitectureIndependent.class)
+public class VectorPredicateTest{
+    private static final int NUM_ROWS=3000; //more than one batch
+
+    @Test
+    public void testConjunctionMatchesRowMode() throws Exception{
+        Qualifier[][] qualifiers=new Qualifier[][]{{
+                qualifier(0,Orderable.ORDER_OP_GREATERTHAN,new SQLInteger(10),false,false),
+                qualifier(1,Orderable.ORDER_OP_LESSOREQUALS,new SQLDouble(40.5d),false,false),
+                qualifier(0,Orderable.ORDER_OP_EQUALS,new SQLLongint(17),true,false)
+        }};
+        assertMatchesRowMode(qualifiers);
+    }
+
+    @Test
+    public void testDisjunctionMatchesRowMode() throws Exception{
+        Qualifier[][] qualifiers=new Qualifier[][]{
+                {qualifier(1,Orderable.ORDER_OP_GREATEROREQUALS,new SQLInteger(-20),false,false)},
+                {qualifier(0,Orderable.ORDER_OP_LESSTHAN,new SQLInteger(5),false,false),
+                 qualifier(2,Orderable.ORDER_OP_GREATERTHAN,new SQLReal(25f),false,true)}
+        };
+        assertMatchesRowMode(qualifiers);
+    }
+
+    @Test
+    public void testIntegralColumnAgainstDoubleConstantMatchesRowMode() throws Exception{
+        Qualifier[][] qualifiers=new Qualifier[][]{{
+                qualifier(0,Orderable.ORDER_OP_GREATERTHAN,new SQLDouble(9.5d),false,false),
+                qualifier(0,Orderable.ORDER_OP_LESSOREQUALS,new SQLDouble(40d),false,false)
+        },{
+                qualifier(0,Orderable.ORDER_OP_EQUALS,new SQLDouble(20d),true,false),
+                qualifier(1,Orderable.ORDER_OP_LESSTHAN,new SQLInteger(0),false,false)
+        }};
+        assertMatchesRowMode(qualifiers);
+    }
+
+    @Test
+    public void testUnsupportedQualifiersAreNotCompiled() throws Exception{
+        DataValueDescriptor[] template=newRow(new Random(0L));
+        ColumnBatch batch=new ColumnBatch(template.length,ColumnBatch.DEFAULT_CAPACITY);
+        //string column
+        Assert.assertNull(VectorPredicate.compile(new Qualifier[][]{{
+                qualifier(3,Orderable.ORDER_OP_EQUALS,new SQLChar("a"),false,false)}},null,template,batch));
+        //REAL against an integral constant is compared as a float
+        Assert.assertNull(VectorPredicate.compile(new Qualifier[][]{{
+                qualifier(2,Orderable.ORDER_OP_EQUALS,new SQLInteger(1),false,false)}},null,template,batch));
+        //null constant
+        Assert.assertNull(VectorPredicate.compile(new Qualifier[][]{{
+                qualifier(0,Orderable.ORDER_OP_EQUALS,new SQLInteger(),false,false)}},null,template,batch));
+        Assert.assertNull("Columns should not be claimed by a predicate that could not be compiled",batch.column(0));
+    }
+
+    private void assertMatchesRowMode(Qualifier[][] qualifiers) throws Exception{
+        Random random=new Random(0L);
+        List<DataValueDescriptor[]> rows=new ArrayList<>(NUM_ROWS);
+        for(int i=0;i<NUM_ROWS;i++){
+            rows.add(newRow(random));
+        }
+        ColumnBatch batch=new ColumnBatch(rows.get(0).length,ColumnBatch.DEFAULT_CAPACITY);
+        VectorPredicate predicate=VectorPredicate.compile(qualifiers,null,rows.get(0),batch);
+        Assert.assertNotNull("Predicate should be vectorizable",predicate);
+
+        int start=0;
+        int matched=0;
+        while(start<rows.size()){
+            batch.reset();
+            int end=start;
+            while(!batch.isFull() && end<rows.size()){
+                batch.add(rows.get(end++));
+            }
+            batch.selectAll();
+            predicate.filter(batch);
+
+            int s=0;
+            for(int row=start;row<end;row++){
+                boolean expected=Scans.qualifyRecordFromRow(rows.get(row),qualifiers,null,null);
+                boolean actual=s<batch.selectedCount() && batch.selection()[s]==row-start;
+                Assert.assertEquals("Incorrect result for row "+row,expected,actual);
+                if(actual){
+                    s++;
+                    matched++;
+                }
+            }
+            start=end;
+        }
+        Assert.assertTrue("Test should select some rows",matched>0);
+        Assert.assertTrue("Test should filter some rows",matched<rows.size());
+    }
+
+    private static DataValueDescriptor[] newRow(Random random) throws StandardException{
+        return new DataValueDescriptor[]{
+                random.nextInt(10)==0?new SQLInteger():new SQLInteger(random.nextInt(50)),
+                random.nextInt(10)==0?new SQLDouble():new SQLDouble(random.nextInt(100)-50+random.nextDouble()),
+                random.nextInt(10)==0?new SQLReal():new SQLReal(random.nextInt(50)),
+                new SQLChar("a")
+        };
+    }
+
+    private static Qualifier qualifier(int position,int operator,DataValueDescriptor constant,boolean negate,boolean unknownRV) throws Exception{
+        Qualifier qualifier=mock(Qualifier.class);
+        when(qualifier.getStoragePosition()).thenReturn(position);
+        when(qualifier.getColumnId()).thenReturn(position);
+        when(qualifier.getOperator()).thenReturn(operator);
+        when(qualifier.getOrderable()).thenReturn(constant);
+        when(qualifier.negateCompareResult()).thenReturn(negate);
+        when(qualifier.getUnknownRV()).thenReturn(unknownRV);
+        when(qualifier.getOrderedNulls()).thenReturn(false);
+        when(qualifier.getVariantType()).thenReturn(Qualifier.QUERY_INVARIANT);
+        return qualifier;
+    }
+}
@@ -17,6 +17,7 @@ package com.splicemachine.derby.impl.sql.execute.operations.window.function;
 
 import com.splicemachine.db.iapi.types.DataValueDescriptor;
 import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.derby.stream.window.SpillableRowBuffer;
 import com.splicemachine.si.testenv.ArchitectureIndependent;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
@@ -205,8 +206,8 @@ public class LeadLagBufferTest {
     // Test help
     //================================================================================================
 
-    private void helpTestBufferLifecyle(LeadLagFunction.LeadLagBuffer buff) {
-        List<DataValueDescriptor> result = buff.terminate();
+    private void helpTestBufferLifecyle(LeadLagFunction.LeadLagBuffer buff) throws Exception {
+        SpillableRowBuffer result = buff.terminate();
         assertNotNull(result);
         assertEquals(0, result.size());
 
@@ -216,11 +217,16 @@ public class LeadLagBufferTest {
         assertNotNull(result);
         assertEquals("haven't added anything yet", 0, result.size());
 
+        buff.initialize(5);
         DataValueDescriptor dvd = new SQLInteger(13);
         buff.addRow(dvd, dvd.getNewNull());
         result = buff.terminate();
         assertNotNull(result);
-        assertTrue("we don't remove things in terminate(). have to call initialize()", result.size() > 0);
+        assertTrue("terminate() should hand out the results of the frame", result.size() > 0);
+        result.close();
+        result = buff.terminate();
+        assertNotNull(result);
+        assertEquals("results are handed out once; have to call initialize() for a new frame", 0, result.size());
 
         buff.initialize(5);
         result = buff.terminate();
@@ -228,7 +234,7 @@ public class LeadLagBufferTest {
         assertEquals("we've initialized() but haven't added anything yet", 0, result.size());
     }
 
-    private void helpTestLeadLagBuffer(LeadLagFunction.LeadLagBuffer buff, int frameSize, int offset) {
+    private void helpTestLeadLagBuffer(LeadLagFunction.LeadLagBuffer buff, int frameSize, int offset) throws Exception {
         List<Tuple> expectedResultTuples =  // to gen expected results for lag fn, convert offset to its negative
             genExpectedResults(frameSize, (buff instanceof LeadLagFunction.LagBuffer ? offset*-1 : offset));
         buff.initialize(offset);
@@ -238,7 +244,7 @@ public class LeadLagBufferTest {
             buff.addRow(dvd, dvd.getNewNull());
         }
 
-        List<DataValueDescriptor> actualResults = buff.terminate();
+        List<DataValueDescriptor> actualResults = results(buff.terminate());
         // set debug = true to print values
         if (this.debug) {
             printDebug(expectedResultTuples, actualResults);
@@ -251,6 +257,16 @@ public class LeadLagBufferTest {
         }
     }
 
+    private static List<DataValueDescriptor> results(SpillableRowBuffer buffer) throws Exception {
+        List<DataValueDescriptor> results = new ArrayList<>(buffer.size());
+        while (!buffer.isEmpty()) {
+            results.add(buffer.get(0).getColumn(1));
+            buffer.removeFirst();
+        }
+        buffer.close();
+        return results;
+    }
+
     private void printDebug(List<Tuple> expectedResultTuples, List<DataValueDescriptor> actualResults) {
         System.out.println("--------------------------------------------------------------------------");
         System.out.print("Row:      ");
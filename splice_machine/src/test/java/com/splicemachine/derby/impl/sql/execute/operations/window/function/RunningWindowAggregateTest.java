@@ -0,0 +1,179 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.operations.window.function;
+
+import com.splicemachine.db.iapi.types.DataTypeDescriptor;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLDouble;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.math.BigDecimal;
+import java.sql.Types;
+import java.util.Random;
+
+@Category(ArchitectureIndependent.class)
+public class RunningWindowAggregateTest {
+    private static final int NUM_ROWS = 1000;
+
+    @Test
+    public void maxMinMatchBruteForce() throws Exception {
+        Integer[] values = randomValues(new Random(0L));
+        for (int frameSize : new int[]{1, 2, 7, 100}) {
+            RunningWindowAggregate max = newAggregate(new MaxMinAggregator(), "MAX", new SQLInteger());
+            RunningWindowAggregate min = newAggregate(new MaxMinAggregator(), "MIN", new SQLInteger());
+            for (int i = 0; i < values.length; i++) {
+                slide(max, values, i, frameSize);
+                slide(min, values, i, frameSize);
+                Integer expectedMax = null, expectedMin = null;
+                for (int j = Math.max(0, i - frameSize + 1); j <= i; j++) {
+                    if (values[j] == null) continue;
+                    if (expectedMax == null || values[j] > expectedMax) expectedMax = values[j];
+                    if (expectedMin == null || values[j] < expectedMin) expectedMin = values[j];
+                }
+                assertResult("MAX of frame ending at " + i, expectedMax, max.getResult());
+                assertResult("MIN of frame ending at " + i, expectedMin, min.getResult());
+            }
+        }
+    }
+
+    @Test
+    public void sumCountAvgMatchBruteForce() throws Exception {
+        Integer[] values = randomValues(new Random(1L));
+        for (int frameSize : new int[]{1, 3, 50}) {
+            RunningWindowAggregate sum = newAggregate(new SumAggregator(), "SUM", new SQLLongint());
+            RunningWindowAggregate count = newAggregate(new CountAggregator(), "COUNT", new SQLLongint());
+            RunningWindowAggregate avg = newAggregate(new AvgAggregator(), "AVG", new SQLInteger());
+            for (int i = 0; i < values.length; i++) {
+                slide(sum, values, i, frameSize);
+                slide(count, values, i, frameSize);
+                slide(avg, values, i, frameSize);
+                long expectedSum = 0;
+                int rows = 0, nonNull = 0;
+                for (int j = Math.max(0, i - frameSize + 1); j <= i; j++) {
+                    rows++;
+                    if (values[j] == null) continue;
+                    expectedSum += values[j];
+                    nonNull++;
+                }
+                Assert.assertEquals("COUNT of frame ending at " + i, rows, count.getResult().getLong());
+                if (nonNull == 0) {
+                    Assert.assertNull("SUM of frame ending at " + i, sum.getResult());
+                    Assert.assertNull("AVG of frame ending at " + i, avg.getResult());
+                } else {
+                    Assert.assertEquals("SUM of frame ending at " + i, expectedSum, sum.getResult().getLong());
+                    Assert.assertEquals("AVG of frame ending at " + i, expectedSum / nonNull, avg.getResult().getLong());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void avgOfDoublesIsNotTruncated() throws Exception {
+        RunningWindowAggregate avg = newAggregate(new AvgAggregator(), "AVG", new SQLDouble());
+        avg.accumulate(new DataValueDescriptor[]{new SQLDouble(1.5d)});
+        avg.accumulate(new DataValueDescriptor[]{new SQLDouble(2.25d)});
+        Assert.assertEquals(1.875d, avg.getResult().getDouble(), 0d);
+        avg.remove(new DataValueDescriptor[]{new SQLDouble(1.5d)});
+        Assert.assertEquals(2.25d, avg.getResult().getDouble(), 0d);
+    }
+
+    @Test
+    public void floatingPointSumsForgetTheValuesWhichLeftTheFrame() throws Exception {
+        RunningWindowAggregate sum = newAggregate(new SumAggregator(), "SUM", new SQLDouble());
+        RunningWindowAggregate avg = newAggregate(new AvgAggregator(), "AVG", new SQLDouble());
+        for (RunningWindowAggregate aggregate : new RunningWindowAggregate[]{sum, avg}) {
+            aggregate.accumulate(new DataValueDescriptor[]{new SQLDouble(1e20d)});
+            aggregate.accumulate(new DataValueDescriptor[]{new SQLDouble(1d)});
+            aggregate.accumulate(new DataValueDescriptor[]{new SQLDouble(2d)});
+            aggregate.remove(new DataValueDescriptor[]{new SQLDouble(1e20d)});
+        }
+        // a plain running sum would have lost the small values to the large one
+        Assert.assertEquals(3d, sum.getResult().getDouble(), 0d);
+        Assert.assertEquals(1.5d, avg.getResult().getDouble(), 0d);
+    }
+
+    @Test
+    public void floatingPointSumMatchesBruteForce() throws Exception {
+        Random random = new Random(2L);
+        double[] values = new double[NUM_ROWS];
+        for (int i = 0; i < NUM_ROWS; i++) {
+            // widely varying magnitudes, so that a plain running sum drifts
+            values[i] = (random.nextDouble() - 0.5d) * Math.pow(10d, random.nextInt(30) - 10);
+        }
+        int frameSize = 20;
+        RunningWindowAggregate sum = newAggregate(new SumAggregator(), "SUM", new SQLDouble());
+        for (int i = 0; i < values.length; i++) {
+            sum.accumulate(new DataValueDescriptor[]{new SQLDouble(values[i])});
+            if (i >= frameSize) {
+                sum.remove(new DataValueDescriptor[]{new SQLDouble(values[i - frameSize])});
+            }
+            BigDecimal expected = BigDecimal.ZERO;
+            double magnitude = 0d;
+            for (int j = Math.max(0, i - frameSize + 1); j <= i; j++) {
+                expected = expected.add(new BigDecimal(values[j]));
+                magnitude += Math.abs(values[j]);
+            }
+            Assert.assertEquals("SUM of frame ending at " + i, expected.doubleValue(), sum.getResult().getDouble(),
+                    Math.ulp(magnitude));
+        }
+    }
+
+    private static RunningWindowAggregate newAggregate(RunningWindowAggregate function, String name,
+                                                       DataValueDescriptor resultType) {
+        DataTypeDescriptor type = DataTypeDescriptor.getBuiltInDataTypeDescriptor(
+                resultType instanceof SQLDouble ? Types.DOUBLE : resultType instanceof SQLLongint ? Types.BIGINT : Types.INTEGER);
+        RunningWindowAggregate aggregate =
+                (RunningWindowAggregate) function.setup(null, name, type, null).newWindowFunction();
+        aggregate.setResultType(resultType);
+        return aggregate;
+    }
+
+    /*
+     * Add row i to the frame, and remove the row which no longer fits into it
+     */
+    private static void slide(RunningWindowAggregate aggregate, Integer[] values, int i, int frameSize) throws Exception {
+        aggregate.accumulate(row(values[i]));
+        if (i >= frameSize) {
+            aggregate.remove(row(values[i - frameSize]));
+        }
+    }
+
+    private static DataValueDescriptor[] row(Integer value) {
+        return new DataValueDescriptor[]{value == null ? new SQLInteger() : new SQLInteger(value)};
+    }
+
+    private static Integer[] randomValues(Random random) {
+        Integer[] values = new Integer[NUM_ROWS];
+        for (int i = 0; i < NUM_ROWS; i++) {
+            // small range, so that there are plenty of ties
+            values[i] = random.nextInt(8) == 0 ? null : random.nextInt(50) - 25;
+        }
+        return values;
+    }
+
+    private static void assertResult(String message, Integer expected, DataValueDescriptor actual) throws Exception {
+        if (expected == null) {
+            Assert.assertNull(message, actual);
+        } else {
+            Assert.assertEquals(message, expected.intValue(), actual.getInt());
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.impl.sql.execute.pin;
+
+import com.splicemachine.db.iapi.error.StandardException;
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.store.access.Qualifier;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.Orderable;
+import com.splicemachine.db.iapi.types.SQLDouble;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.iapi.types.SQLLongint;
+import com.splicemachine.db.iapi.types.SQLReal;
+import com.splicemachine.db.iapi.types.SQLVarchar;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.derby.impl.sql.execute.operations.LocatedRow;
+import com.splicemachine.derby.utils.Scans;
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@Category(ArchitectureIndependent.class)
+public class PinnedSegmentTest{
+    private static final int NUM_ROWS=2500; //more than one batch
+    private static final String[] NAMES={"alpha","beta","gamma","delta"};
+
+    @Test
+    public void testColumnsRoundTrip() throws Exception{
+        List<DataValueDescriptor[]> rows=newRows(new Random(0L),NUM_ROWS);
+        rows.add(new DataValueDescriptor[]{new SQLInteger(Integer.MIN_VALUE),new SQLVarchar(),new SQLDouble(-0.5d),new SQLLongint(Long.MAX_VALUE),new SQLReal()});
+        rows.add(new DataValueDescriptor[]{new SQLInteger(Integer.MAX_VALUE),new SQLVarchar(""),new SQLDouble(),new SQLLongint(Long.MIN_VALUE),new SQLReal(1.25f)});
+        PinnedSegment segment=newSegment(rows,0);
+
+        Assert.assertEquals(rows.size(),segment.rowCount());
+        DataValueDescriptor[] read=newTemplate();
+        for(int i=0;i<rows.size();i++){
+            Assert.assertArrayEquals(key(i),segment.rowKey(i));
+            for(int c=0;c<read.length;c++){
+                segment.read(i,c,read[c]);
+                DataValueDescriptor expected=rows.get(i)[c];
+                Assert.assertEquals("Incorrect null for row "+i+", column "+c,expected.isNull(),read[c].isNull());
+                if(!expected.isNull())
+                    Assert.assertEquals("Incorrect value for row "+i+", column "+c,expected.getObject(),read[c].getObject());
+            }
+        }
+    }
+
+    @Test
+    public void testColumnsAreCompressed() throws Exception{
+        PinnedSegment segment=newSegment(newRows(new Random(0L),NUM_ROWS),0);
+        //ids below 2^12 and a 4-value dictionary need far less than a word per value
+        Assert.assertTrue(segment.column(0).sizeInBytes()<NUM_ROWS*2);
+        Assert.assertTrue(segment.column(1).sizeInBytes()<NUM_ROWS);
+    }
+
+    @Test
+    public void testLowerBound() throws Exception{
+        PinnedSegment segment=newSegment(newRows(new Random(0L),10),0);
+        Assert.assertEquals(0,segment.lowerBound(new byte[0]));
+        Assert.assertEquals(0,segment.lowerBound(null));
+        Assert.assertEquals(4,segment.lowerBound(key(4)));
+        Assert.assertEquals(5,segment.lowerBound(Bytes.concat(Arrays.asList(key(4),new byte[]{0}))));
+        Assert.assertEquals(10,segment.lowerBound(key(100)));
+    }
+
+    @Test
+    public void testVectorizedScanMatchesRowMode() throws Exception{
+        Qualifier[][] qualifiers=new Qualifier[][]{{
+                qualifier(2,Orderable.ORDER_OP_GREATERTHAN,new SQLDouble(-10d)),
+                qualifier(3,Orderable.ORDER_OP_LESSOREQUALS,new SQLLongint(30))
+        }};
+        assertScanMatches(qualifiers);
+    }
+
+    @Test
+    public void testRowModeScan() throws Exception{
+        Qualifier[][] qualifiers=new Qualifier[][]{{
+                qualifier(1,Orderable.ORDER_OP_EQUALS,new SQLVarchar("beta")),
+                qualifier(3,Orderable.ORDER_OP_GREATERTHAN,new SQLLongint(10))
+        }};
+        assertScanMatches(qualifiers);
+    }
+
+    private void assertScanMatches(Qualifier[][] qualifiers) throws Exception{
+        List<DataValueDescriptor[]> rows=newRows(new Random(1L),NUM_ROWS);
+        int split=NUM_ROWS/3;
+        List<PinnedSegment> segments=Arrays.asList(newSegment(rows.subList(0,split),0),
+                newSegment(rows.subList(split,NUM_ROWS),split));
+        int start=7;
+        int stop=NUM_ROWS-11;
+
+        //read storage columns 1, 2 and 3 into a narrower row
+        int[] baseColumnMap={-1,0,1,2,-1};
+        ExecRow template=new ValueRow(3);
+        template.setRowArray(new DataValueDescriptor[]{new SQLVarchar(),new SQLDouble(),new SQLLongint()});
+        PinnedSegmentIterator scan=new PinnedSegmentIterator(segments,key(start),key(stop),template,baseColumnMap,qualifiers,null,null);
+        Assert.assertEquals(4,PinnedSegmentIterator.requiredColumns(baseColumnMap,3));
+
+        int matched=0;
+        for(int i=start;i<stop;i++){
+            DataValueDescriptor[] row=rows.get(i);
+            if(!Scans.qualifyRecordFromRow(row,qualifiers,null,null)) continue;
+            Assert.assertTrue("Missing row "+i,scan.hasNext());
+            LocatedRow next=scan.next();
+            Assert.assertArrayEquals("Incorrect row returned",key(i),next.getRowLocation().getBytes());
+            for(int c=1;c<=3;c++){
+                DataValueDescriptor actual=next.getRow().getColumn(c);
+                Assert.assertEquals(row[c].isNull(),actual.isNull());
+                if(!row[c].isNull())
+                    Assert.assertEquals(row[c].getObject(),actual.getObject());
+            }
+            matched++;
+        }
+        Assert.assertFalse("Too many rows returned",scan.hasNext());
+        Assert.assertTrue("Test should select some rows",matched>0);
+        Assert.assertTrue("Test should filter some rows",matched<stop-start);
+    }
+
+    private static PinnedSegment newSegment(List<DataValueDescriptor[]> rows,int firstKey) throws Exception{
+        PinnedSegment.Builder builder=new PinnedSegment.Builder(newTemplate());
+        for(int i=0;i<rows.size();i++){
+            builder.add(key(firstKey+i),rows.get(i));
+        }
+        Assert.assertTrue(builder.sizeInBytes()>0);
+        return builder.build(1L,"region",null,0L,0L);
+    }
+
+    private static byte[] key(int i){
+        return Bytes.toBytes(i);
+    }
+
+    private static DataValueDescriptor[] newTemplate(){
+        return new DataValueDescriptor[]{new SQLInteger(),new SQLVarchar(),new SQLDouble(),new SQLLongint(),new SQLReal()};
+    }
+
+    private static List<DataValueDescriptor[]> newRows(Random random,int count) throws StandardException{
+        List<DataValueDescriptor[]> rows=new ArrayList<>(count);
+        for(int i=0;i<count;i++){
+            rows.add(new DataValueDescriptor[]{
+                    new SQLInteger(i),
+                    random.nextInt(10)==0?new SQLVarchar():new SQLVarchar(NAMES[random.nextInt(NAMES.length)]),
+                    random.nextInt(10)==0?new SQLDouble():new SQLDouble(random.nextInt(100)-50+random.nextDouble()),
+                    random.nextInt(10)==0?new SQLLongint():new SQLLongint(random.nextInt(50)),
+                    random.nextInt(10)==0?new SQLReal():new SQLReal(random.nextFloat())
+            });
+        }
+        return rows;
+    }
+
+    private static Qualifier qualifier(int position,int operator,DataValueDescriptor constant) throws Exception{
+        Qualifier qualifier=mock(Qualifier.class);
+        when(qualifier.getStoragePosition()).thenReturn(position);
+        when(qualifier.getColumnId()).thenReturn(position);
+        when(qualifier.getOperator()).thenReturn(operator);
+        when(qualifier.getOrderable()).thenReturn(constant);
+        when(qualifier.negateCompareResult()).thenReturn(false);
+        when(qualifier.getUnknownRV()).thenReturn(false);
+        when(qualifier.getOrderedNulls()).thenReturn(false);
+        when(qualifier.getVariantType()).thenReturn(Qualifier.QUERY_INVARIANT);
+        return qualifier;
+    }
+}
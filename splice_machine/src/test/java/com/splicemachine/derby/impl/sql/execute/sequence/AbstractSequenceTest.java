@@ -16,6 +16,14 @@
 package com.splicemachine.derby.impl.sql.execute.sequence;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import com.splicemachine.si.testenv.ArchitectureIndependent;
 import org.junit.Assert;
@@ -60,11 +68,111 @@ public class AbstractSequenceTest {
 		}
 	}
 	
+	@Test
+	public void singleThreaded100BlockDescendingIncrementWithRollover() throws Exception {
+		Sequence sequence = new SpliceTestSequence(100,-3,100000);
+		for (long i = 0; i< 1000; i++) {
+			long next = sequence.getNext();
+			Assert.assertEquals(100000-i*3,next);
+		}
+	}
+
+	@Test
+	public void descendingSequenceGrowsItsBlocks() throws Exception {
+		SpliceTestSequence sequence = new SpliceTestSequence(10,-1,100000,1000);
+		for (long i = 0; i< 10000; i++) {
+			Assert.assertEquals(100000-i,sequence.getNext());
+		}
+		Assert.assertTrue("Block size did not grow: "+sequence.getCurrentBlockSize(),sequence.getCurrentBlockSize()>10);
+		//the sequence row has been moved down past every value handed out
+		Assert.assertTrue(sequence.currentValue<=100000-10000);
+	}
+
+	@Test
+	public void peekDoesNotConsumeValues() throws Exception {
+		Sequence sequence = new SpliceTestSequence(10,1,0);
+		Assert.assertEquals(0,sequence.peekAtCurrentValue());
+		Assert.assertEquals(0,sequence.getNext());
+		Assert.assertEquals(1,sequence.peekAtCurrentValue());
+		Assert.assertEquals(1,sequence.getNext());
+	}
+
+	@Test
+	public void nextBlockIsPrefetched() throws Exception {
+		SpliceTestSequence sequence = new SpliceTestSequence(100,1,0);
+		for (long i = 0; i< 1000; i++) {
+			Assert.assertEquals(i,sequence.getNext());
+		}
+		//every block after the first was reserved before the previous one ran out
+		Assert.assertTrue(sequence.statistics.getPrefetchedBlocks()>=9);
+	}
+
+	@Test
+	public void blockSizeGrowsWhenConsumedQuickly() throws Exception {
+		SpliceTestSequence sequence = new SpliceTestSequence(10,1,0,1000);
+		for (long i = 0; i< 10000; i++) {
+			Assert.assertEquals(i,sequence.getNext());
+		}
+		Assert.assertTrue("Block size did not grow: "+sequence.getCurrentBlockSize(),sequence.getCurrentBlockSize()>10);
+		Assert.assertTrue(sequence.getCurrentBlockSize()<=1000);
+	}
+
+	@Test
+	public void unbatchedSequenceDoesNotAdapt() throws Exception {
+		SpliceTestSequence sequence = new SpliceTestSequence(1,1,0);
+		for (long i = 0; i< 1000; i++) {
+			Assert.assertEquals(i,sequence.getNext());
+		}
+		Assert.assertEquals(1,sequence.getCurrentBlockSize());
+		Assert.assertEquals(0,sequence.statistics.getPrefetchedBlocks());
+	}
+
+	@Test
+	public void concurrentCallersGetDistinctValues() throws Exception {
+		final Sequence sequence = new SpliceTestSequence(100,1,0,10000);
+		final int threads = 8;
+		final int perThread = 10000;
+		final long[][] values = new long[threads][perThread];
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<Void>> futures = new ArrayList<>(threads);
+			for (int t = 0; t < threads; t++) {
+				final long[] mine = values[t];
+				futures.add(executor.submit(new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						for (int i = 0; i < perThread; i++) {
+							mine[i] = sequence.getNext();
+						}
+						return null;
+					}
+				}));
+			}
+			for (Future<Void> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		Set<Long> seen = new HashSet<>(threads*perThread);
+		for (long[] threadValues : values) {
+			for (int i = 0; i < perThread; i++) {
+				Assert.assertTrue("Duplicate value "+threadValues[i],seen.add(threadValues[i]));
+				if (i > 0)
+					Assert.assertTrue("Values went backwards within a thread",threadValues[i]>threadValues[i-1]);
+			}
+		}
+	}
+
 	private class SpliceTestSequence extends AbstractSequence {
 		long currentValue = -1;
 		SpliceTestSequence(long blockAllocationSize, long incrementSteps, long startingValue) {
 			super(blockAllocationSize,incrementSteps,startingValue);
 		}
+
+		SpliceTestSequence(long blockAllocationSize, long incrementSteps, long startingValue, long maxBlockAllocationSize) {
+			super(blockAllocationSize,incrementSteps,startingValue,maxBlockAllocationSize);
+		}
 		
 			@Override
 			protected long getCurrentValue() throws IOException {
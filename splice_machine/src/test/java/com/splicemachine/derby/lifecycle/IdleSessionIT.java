@@ -0,0 +1,183 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.lifecycle;
+
+import com.splicemachine.db.drda.NetworkServerControl;
+import com.splicemachine.derby.test.framework.SpliceNetConnection;
+import com.splicemachine.derby.test.framework.SpliceSchemaWatcher;
+import com.splicemachine.derby.test.framework.SpliceTableWatcher;
+import com.splicemachine.derby.test.framework.SpliceWatcher;
+import com.splicemachine.test.SerialTest;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.RuleChain;
+import org.junit.rules.TestRule;
+
+import java.net.InetAddress;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests that idle client sessions don't hold on to a network server thread, by keeping more sessions open
+ * than the server has threads, and using them in turn. Between requests the sessions are parked, so each
+ * request may be served by another thread than the previous one, and the state of the session (the UTF-8
+ * CCSID and any pending statement timeout) has to move with it.
+ */
+@Category(SerialTest.class)
+public class IdleSessionIT{
+    private static final String SCHEMA_NAME=IdleSessionIT.class.getSimpleName().toUpperCase();
+    private static final int MAX_THREADS=2;
+    private static final int SESSIONS=MAX_THREADS*4;
+    private static final int ROUNDS=5;
+    private static final String[] WORDS={"Gr\u00fc\u00dfe","\u65e5\u672c\u8a9e","\u0395\u03bb\u03bb\u03b7\u03bd\u03b9\u03ba\u03ac","na\u00efve caf\u00e9","\u03a9mega \u2211"};
+
+    private static final SpliceWatcher spliceClassWatcher=new SpliceWatcher(SCHEMA_NAME);
+    private static final SpliceSchemaWatcher spliceSchemaWatcher=new SpliceSchemaWatcher(SCHEMA_NAME);
+    private static final SpliceTableWatcher words=new SpliceTableWatcher("WORDS",SCHEMA_NAME,
+            "(ID INT, WORD VARCHAR(40))");
+
+    @ClassRule
+    public static TestRule chain=RuleChain.outerRule(spliceClassWatcher)
+            .around(spliceSchemaWatcher)
+            .around(words);
+
+    private static NetworkServerControl server;
+    private static int oldMaxThreads;
+
+    @BeforeClass
+    public static void limitServerThreads() throws Exception{
+        server=new NetworkServerControl(InetAddress.getByName("localhost"),1527);
+        oldMaxThreads=server.getMaxThreads();
+        server.setMaxThreads(MAX_THREADS);
+    }
+
+    @AfterClass
+    public static void restoreServerThreads() throws Exception{
+        server.setMaxThreads(oldMaxThreads);
+    }
+
+    @Test(timeout=120000)
+    public void moreSessionsThanThreads() throws Exception{
+        List<Connection> connections=new ArrayList<>(SESSIONS);
+        try{
+            for(int i=0;i<SESSIONS;i++){
+                connections.add(SpliceNetConnection.getConnection());
+            }
+            /*
+             * Without parking, each of the first MAX_THREADS sessions would keep its thread, and the others
+             * would never be served.
+             */
+            for(int round=0;round<ROUNDS;round++){
+                for(int i=0;i<SESSIONS;i++){
+                    int id=round*SESSIONS+i;
+                    String word=word(id);
+                    try(PreparedStatement ps=connections.get(i).prepareStatement("insert into "+words+" values (?,?)")){
+                        ps.setQueryTimeout(60+i);
+                        ps.setInt(1,id);
+                        ps.setString(2,word);
+                        Assert.assertEquals(1,ps.executeUpdate());
+                    }
+                }
+                //give the sessions time to be parked
+                Thread.sleep(100);
+                for(int i=0;i<SESSIONS;i++){
+                    int id=round*SESSIONS+i;
+                    try(Statement s=connections.get((i+1)%SESSIONS).createStatement()){
+                        s.setQueryTimeout(60+i);
+                        try(ResultSet rs=s.executeQuery("select word, '"+word(id)+"' from "+words+" where id = "+id)){
+                            Assert.assertTrue("No row for id "+id,rs.next());
+                            Assert.assertEquals("The value written over one session was read back wrong",
+                                    word(id),rs.getString(1));
+                            Assert.assertEquals("The literal sent over the session was read back wrong",
+                                    word(id),rs.getString(2));
+                            Assert.assertFalse(rs.next());
+                        }
+                    }
+                }
+                Thread.sleep(100);
+            }
+        }finally{
+            closeQuietly(connections);
+        }
+
+        try(ResultSet rs=spliceClassWatcher.executeQuery("select count(*) from "+words)){
+            Assert.assertTrue(rs.next());
+            Assert.assertEquals(SESSIONS*ROUNDS,rs.getInt(1));
+        }
+    }
+
+    @Test(timeout=120000)
+    public void statementTimeoutAppliesAfterTheSessionIsResumed() throws Exception{
+        List<Connection> connections=new ArrayList<>(SESSIONS);
+        try{
+            for(int i=0;i<SESSIONS;i++){
+                connections.add(SpliceNetConnection.getConnection());
+            }
+            //the statement is closed with its connection, which the timeout may have broken
+            Statement s=connections.get(0).createStatement();
+            s.setQueryTimeout(1);
+            try(ResultSet rs=s.executeQuery("values 1")){
+                Assert.assertTrue(rs.next());
+            }
+            //let the other sessions take their turn on the threads
+            for(int i=1;i<SESSIONS;i++){
+                try(Statement other=connections.get(i).createStatement();
+                    ResultSet rs=other.executeQuery("values "+i)){
+                    Assert.assertTrue(rs.next());
+                }
+            }
+            Thread.sleep(100);
+
+            //the session has been parked, and is resumed on whichever thread is free
+            long start=System.currentTimeMillis();
+            try(ResultSet rs=s.executeQuery("select count(*) from sys.syscolumns a --splice-properties useSpark=false\n" +
+                    ", sys.syscolumns b, sys.syscolumns c, sys.syscolumns d")){
+                rs.next();
+                Assert.fail("Expected the query to time out");
+            }catch(SQLException e){
+                String state=e.getSQLState();
+                Assert.assertTrue("Expected a query timeout, not "+state+": "+e.getMessage(),
+                        "XCL52".equals(state) || "08006".equals(state));
+            }
+            Assert.assertTrue("The query timed out too late",System.currentTimeMillis()-start<60000);
+        }finally{
+            closeQuietly(connections);
+        }
+    }
+
+    private static void closeQuietly(List<Connection> connections){
+        for(Connection connection:connections){
+            try{
+                connection.close();
+            }catch(SQLException e){
+                // ignore
+            }
+        }
+    }
+
+    private static String word(int id){
+        return WORDS[id%WORDS.length]+" "+id;
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.control;
+
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import scala.Tuple2;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Random;
+
+@Category(ArchitectureIndependent.class)
+public class ExternalSorterTest{
+    private static final File TMP=new File(System.getProperty("java.io.tmpdir"));
+    private static final Comparator<Integer> COMPARATOR=new Comparator<Integer>(){
+        @Override
+        public int compare(Integer o1,Integer o2){
+            return o1.compareTo(o2);
+        }
+    };
+
+    @Test
+    public void testSortsInMemory() throws Exception{
+        ControlOperationContext context=new ControlOperationContext();
+        try(ExternalSorter<Integer,Integer> sorter=new ExternalSorter<>(COMPARATOR,Long.MAX_VALUE,TMP,4,context)){
+            assertSorted(sorter,1000);
+            Assert.assertEquals(0,context.getSpillCount());
+        }
+    }
+
+    @Test
+    public void testSortsAcrossRuns() throws Exception{
+        ControlOperationContext context=new ControlOperationContext();
+        //only a handful of pairs per run
+        try(ExternalSorter<Integer,Integer> sorter=new ExternalSorter<>(COMPARATOR,64*10,TMP,64,context)){
+            assertSorted(sorter,1000);
+            Assert.assertTrue(context.getSpillCount()>0);
+            Assert.assertTrue(context.getSpilledBytes()>0);
+        }
+    }
+
+    @Test
+    public void testCloseRemovesUnreadRuns() throws Exception{
+        File dir=Files.createTempDirectory("sort").toFile();
+        try{
+            ExternalSorter<Integer,Integer> sorter=new ExternalSorter<>(COMPARATOR,64*10,dir,64,null);
+            for(int i=0;i<1000;i++){
+                sorter.add(1000-i,i);
+            }
+            Assert.assertTrue(dir.list().length>0);
+            //stop after the first row, as a LIMIT would
+            Iterator<Tuple2<Integer,Integer>> sorted=sorter.sorted();
+            Assert.assertEquals(1,sorted.next()._1().intValue());
+            sorter.close();
+            Assert.assertEquals("Sorted runs left behind",0,dir.list().length);
+        }finally{
+            //noinspection ResultOfMethodCallIgnored
+            dir.delete();
+        }
+    }
+
+    @Test
+    public void testSortsWithIntermediateMerges() throws Exception{
+        //a merge width of 2 forces several passes over the runs
+        try(ExternalSorter<Integer,Integer> sorter=new ExternalSorter<>(COMPARATOR,64*10,TMP,2,null)){
+            assertSorted(sorter,1000);
+        }
+    }
+
+    private void assertSorted(ExternalSorter<Integer,Integer> sorter,int numPairs){
+        Random random=new Random(0L);
+        for(int i=0;i<numPairs;i++){
+            //lots of duplicate keys, with the value recording the insertion order
+            sorter.add(random.nextInt(numPairs/10),i);
+        }
+        Iterator<Tuple2<Integer,Integer>> sorted=sorter.sorted();
+        Tuple2<Integer,Integer> previous=null;
+        int count=0;
+        while(sorted.hasNext()){
+            Tuple2<Integer,Integer> next=sorted.next();
+            if(previous!=null){
+                int c=previous._1().compareTo(next._1());
+                Assert.assertTrue("Out of order: "+previous+" before "+next,c<=0);
+                if(c==0)
+                    Assert.assertTrue("Sort is not stable: "+previous+" before "+next,previous._2()<next._2());
+            }
+            previous=next;
+            count++;
+        }
+        Assert.assertEquals(numPairs,count);
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.control;
+
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.derby.stream.BaseStreamTest;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import scala.Tuple2;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+@Category(ArchitectureIndependent.class)
+public class GraceHashPartitionerTest extends BaseStreamTest{
+    private static final File TMP=new File(System.getProperty("java.io.tmpdir"));
+
+    @Test
+    public void testInMemoryWhenUnderBudget() throws Exception{
+        try(GraceHashPartitioner<ExecRow,ExecRow> partitioner=new GraceHashPartitioner<>(Long.MAX_VALUE,TMP,4,null)){
+            partitioner.addAll(tenRows.iterator());
+            Assert.assertFalse(partitioner.hasSpilled());
+            Assert.assertEquals(1,partitioner.numPartitions());
+
+            int count=0;
+            Iterator<Tuple2<ExecRow,ExecRow>> it=partitioner.partition(0);
+            while(it.hasNext()){
+                it.next();
+                count++;
+            }
+            Assert.assertEquals(tenRows.size(),count);
+        }
+    }
+
+    @Test
+    public void testSpilledPartitionsKeepKeysTogether() throws Exception{
+        ControlOperationContext context=new ControlOperationContext();
+        try(GraceHashPartitioner<ExecRow,ExecRow> partitioner=new GraceHashPartitioner<>(1L,TMP,4,context)){
+            partitioner.addAll(tenRows.iterator());
+            Assert.assertTrue(partitioner.hasSpilled());
+            Assert.assertEquals(4,partitioner.numPartitions());
+
+            Map<ExecRow,Integer> keyPartitions=new HashMap<>();
+            int count=0;
+            for(int p=0;p<partitioner.numPartitions();p++){
+                Iterator<Tuple2<ExecRow,ExecRow>> it=partitioner.partition(p);
+                while(it.hasNext()){
+                    Tuple2<ExecRow,ExecRow> t=it.next();
+                    Integer previous=keyPartitions.put(t._1(),p);
+                    Assert.assertTrue("Key "+t._1()+" found in more than one partition",previous==null || previous==p);
+                    Assert.assertEquals(t._1().getColumn(1).getInt(),t._2().getColumn(1).getInt()%2);
+                    count++;
+                }
+            }
+            Assert.assertEquals(tenRows.size(),count);
+            Assert.assertEquals(2,keyPartitions.size());
+            Assert.assertEquals("A spill is recorded once, not once per partition",1,context.getSpillCount());
+            Assert.assertTrue(context.getSpilledBytes()>0);
+        }
+    }
+
+    @Test
+    public void testCloseRemovesUnreadPartitions() throws Exception{
+        File dir=Files.createTempDirectory("grace").toFile();
+        try{
+            GraceHashPartitioner<ExecRow,ExecRow> partitioner=new GraceHashPartitioner<>(1L,dir,4,null);
+            partitioner.addAll(tenRows.iterator());
+            Assert.assertEquals(4,dir.list().length);
+            //stop part way through the first partition, as a LIMIT would
+            Iterator<Tuple2<ExecRow,ExecRow>> it=partitioner.partition(0);
+            if(it.hasNext()) it.next();
+            partitioner.close();
+            Assert.assertEquals("Spill files left behind",0,dir.list().length);
+        }finally{
+            //noinspection ResultOfMethodCallIgnored
+            dir.delete();
+        }
+    }
+
+    @Test
+    public void testForcedSpillMatchesPartitioning() throws Exception{
+        try(GraceHashPartitioner<ExecRow,ExecRow> left=new GraceHashPartitioner<>(Long.MAX_VALUE,TMP,4,null);
+            GraceHashPartitioner<ExecRow,ExecRow> right=new GraceHashPartitioner<>(1L,TMP,4,null)){
+            right.addAll(evenRows.iterator());
+            Assert.assertTrue(right.hasSpilled());
+            left.spill();
+            left.addAll(tenRows.iterator());
+
+            for(int p=0;p<4;p++){
+                Iterator<Tuple2<ExecRow,ExecRow>> l=left.partition(p);
+                Iterator<Tuple2<ExecRow,ExecRow>> r=right.partition(p);
+                boolean leftHasEven=false;
+                while(l.hasNext()){
+                    if(l.next()._1().getColumn(1).getInt()==0)
+                        leftHasEven=true;
+                }
+                Assert.assertEquals("Even keys must be in the same partition on both sides",leftHasEven,r.hasNext());
+                while(r.hasNext()) r.next();
+            }
+        }
+    }
+}
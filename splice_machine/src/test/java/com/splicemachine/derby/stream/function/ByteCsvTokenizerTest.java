@@ -0,0 +1,192 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.function;
+
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@Category(ArchitectureIndependent.class)
+public class ByteCsvTokenizerTest{
+
+    @Test
+    public void readsQuotedAndUnquotedColumns() throws Exception{
+        ByteCsvTokenizer tokenizer=tokenizer("\"hello\",goodbye, parse this ,\"a,b\"\n",0,1024);
+        Assert.assertTrue(tokenizer.next());
+        Assert.assertEquals(Arrays.asList("hello","goodbye"," parse this ","a,b"),columns(tokenizer));
+        Assert.assertEquals(Arrays.asList(true,false,false,true),quotes(tokenizer));
+        Assert.assertFalse(tokenizer.next());
+    }
+
+    @Test
+    public void handlesQuotedLineBreaksAndEscapedQuotes() throws Exception{
+        String csv="1,\"boots\r\nmagoo\",\"say \"\"hi\"\"\"\r\n\n\r\n2,\"\",null,\"null\",,\"x\"y\r3";
+        //a tiny buffer, so that rows straddle refills and the buffer has to grow
+        ByteCsvTokenizer tokenizer=tokenizer(csv,0,4);
+        Assert.assertTrue(tokenizer.next());
+        Assert.assertEquals(Arrays.asList("1","boots\nmagoo","say \"hi\""),columns(tokenizer));
+
+        Assert.assertTrue("Empty lines should be skipped",tokenizer.next());
+        Assert.assertEquals(Arrays.asList("2",null,"null","null",null,"xy"),columns(tokenizer));
+        Assert.assertTrue("Quoted empty column is null",tokenizer.isNull(1));
+        Assert.assertTrue("Unquoted null is null",tokenizer.isNull(2));
+        Assert.assertFalse("Quoted null is a string",tokenizer.isNull(3));
+        Assert.assertTrue(tokenizer.isNull(4));
+
+        Assert.assertTrue(tokenizer.next());
+        Assert.assertEquals(Arrays.asList("3"),columns(tokenizer));
+        Assert.assertFalse(tokenizer.next());
+    }
+
+    @Test
+    public void decodesMultiByteCharacters() throws Exception{
+        ByteCsvTokenizer tokenizer=tokenizer("\u00e9t\u00e9,\u65e5\u672c\n",0,3);
+        Assert.assertTrue(tokenizer.next());
+        Assert.assertEquals(Arrays.asList("\u00e9t\u00e9","\u65e5\u672c"),columns(tokenizer));
+    }
+
+    @Test
+    public void parsesIntegersInPlace() throws Exception{
+        ByteCsvTokenizer tokenizer=tokenizer(" 42 ,-7,+15,1x,,123456789012345678,1234567890123456789,-,\"12\"\n",0,1024);
+        Assert.assertTrue(tokenizer.next());
+        Assert.assertEquals(42L,tokenizer.parseLong(0));
+        Assert.assertEquals(-7L,tokenizer.parseLong(1));
+        Assert.assertEquals(15L,tokenizer.parseLong(2));
+        Assert.assertEquals(ByteCsvTokenizer.NOT_A_NUMBER,tokenizer.parseLong(3));
+        Assert.assertEquals(ByteCsvTokenizer.NOT_A_NUMBER,tokenizer.parseLong(4));
+        Assert.assertEquals(123456789012345678L,tokenizer.parseLong(5));
+        Assert.assertEquals("Too many digits to parse safely",ByteCsvTokenizer.NOT_A_NUMBER,tokenizer.parseLong(6));
+        Assert.assertEquals(ByteCsvTokenizer.NOT_A_NUMBER,tokenizer.parseLong(7));
+        Assert.assertEquals(12L,tokenizer.parseLong(8));
+    }
+
+    @Test
+    public void parsesDecimalsInPlace() throws Exception{
+        ByteCsvTokenizer tokenizer=tokenizer(" 1.50 ,-0.001,+7,12.,.5,1.2.3,1e5,.,,123456789012345.678,1234567890123456.789,\"-3.25\"\n",0,1024);
+        Assert.assertTrue(tokenizer.next());
+        Assert.assertEquals(new BigDecimal("1.50"),tokenizer.parseDecimal(0));
+        Assert.assertEquals(new BigDecimal("-0.001"),tokenizer.parseDecimal(1));
+        Assert.assertEquals(new BigDecimal("+7"),tokenizer.parseDecimal(2));
+        Assert.assertEquals(new BigDecimal("12."),tokenizer.parseDecimal(3));
+        Assert.assertEquals(new BigDecimal(".5"),tokenizer.parseDecimal(4));
+        Assert.assertNull(tokenizer.parseDecimal(5));
+        Assert.assertNull("Exponents are left to BigDecimal",tokenizer.parseDecimal(6));
+        Assert.assertNull(tokenizer.parseDecimal(7));
+        Assert.assertNull(tokenizer.parseDecimal(8));
+        Assert.assertEquals(new BigDecimal("123456789012345.678"),tokenizer.parseDecimal(9));
+        Assert.assertNull("Too many digits to parse safely",tokenizer.parseDecimal(10));
+        Assert.assertEquals(new BigDecimal("-3.25"),tokenizer.parseDecimal(11));
+    }
+
+    @Test
+    public void rejectsQuotedColumnsSpanningTooManyLines() throws Exception{
+        ByteCsvTokenizer tokenizer=tokenizer("\"a\nb\nc\n2,3\n",2,1024);
+        try{
+            tokenizer.next();
+            Assert.fail("Expected the quoted column to span too many lines");
+        }catch(IOException expected){
+            Assert.assertTrue(expected.getMessage(),expected.getMessage().startsWith("max number of lines"));
+        }
+        //moves on to the following line
+        Assert.assertTrue(tokenizer.next());
+        Assert.assertEquals(Arrays.asList("c"),columns(tokenizer));
+        Assert.assertTrue(tokenizer.next());
+        Assert.assertEquals(Arrays.asList("2","3"),columns(tokenizer));
+    }
+
+    @Test
+    public void reportsUnterminatedQuote() throws Exception{
+        ByteCsvTokenizer tokenizer=tokenizer("1,\"abc",0,1024);
+        try{
+            tokenizer.next();
+            Assert.fail("Expected an unterminated quote to be reported");
+        }catch(IOException expected){
+            Assert.assertTrue(expected.getMessage(),expected.getMessage().startsWith("unexpected end of file"));
+        }
+        Assert.assertFalse(tokenizer.next());
+    }
+
+    @Test
+    public void tokenizesLinesHandedToIt() throws Exception{
+        ByteCsvTokenizer tokenizer=new ByteCsvTokenizer('"',',',0);
+        byte[] line=new byte[4096];
+        //longer than the tokenizer's buffer, with unused bytes at the end of the array
+        String first="1,\"say \"\"hi\"\"\","+new String(new char[2000]).replace('\0','x');
+        int length=copy(first,line);
+        tokenizer.setLine(line,length);
+        Assert.assertTrue(tokenizer.next());
+        Assert.assertEquals(Arrays.asList("1","say \"hi\"",first.substring(first.lastIndexOf(',')+1)),columns(tokenizer));
+        Assert.assertFalse("A line holds a single row",tokenizer.next());
+
+        //the tokenizer has its own copy of the line
+        length=copy("2,\u00e9t\u00e9",line);
+        tokenizer.setLine(line,length);
+        Arrays.fill(line,(byte)'z');
+        Assert.assertTrue(tokenizer.next());
+        Assert.assertEquals(Arrays.asList("2","\u00e9t\u00e9"),columns(tokenizer));
+        Assert.assertEquals(2L,tokenizer.parseLong(0));
+
+        tokenizer.setLine(line,0);
+        Assert.assertFalse(tokenizer.next());
+        Assert.assertEquals(0,tokenizer.columnCount());
+
+        length=copy("3,\"abc",line);
+        tokenizer.setLine(line,length);
+        try{
+            tokenizer.next();
+            Assert.fail("Expected an unterminated quote to be reported");
+        }catch(IOException expected){
+            Assert.assertTrue(expected.getMessage(),expected.getMessage().startsWith("unexpected end of file"));
+        }
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private static ByteCsvTokenizer tokenizer(String csv,int maxLinesPerRow,int bufferSize){
+        return new ByteCsvTokenizer(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)),'"',',',maxLinesPerRow,bufferSize);
+    }
+
+    private static int copy(String line,byte[] destination){
+        byte[] bytes=line.getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(bytes,0,destination,0,bytes.length);
+        return bytes.length;
+    }
+
+    private static List<String> columns(ByteCsvTokenizer tokenizer){
+        List<String> columns=new ArrayList<>(tokenizer.columnCount());
+        for(int i=0;i<tokenizer.columnCount();i++){
+            columns.add(tokenizer.getString(i,StandardCharsets.UTF_8));
+        }
+        return columns;
+    }
+
+    private static List<Boolean> quotes(ByteCsvTokenizer tokenizer){
+        List<Boolean> quotes=new ArrayList<>(tokenizer.columnCount());
+        for(int i=0;i<tokenizer.columnCount();i++){
+            quotes.add(tokenizer.isQuoted(i));
+        }
+        return quotes;
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.function;
+
+import com.splicemachine.pipeline.threadpool.MonitoredThreadPool;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Category(ArchitectureIndependent.class)
+public class NestedLoopJoinExecutorTest{
+    private MonitoredThreadPool pool;
+    private NestedLoopJoinExecutor executor;
+
+    @Before
+    public void setUp() throws Exception{
+        pool=MonitoredThreadPool.create("nlj-test-%d","test pool",4,60);
+        executor=new NestedLoopJoinExecutor(pool,2);
+    }
+
+    @After
+    public void tearDown() throws Exception{
+        pool.shutdown();
+    }
+
+    @Test
+    public void testLaneLimitsConcurrentProbes() throws Exception{
+        final AtomicInteger running=new AtomicInteger();
+        final AtomicInteger maxRunning=new AtomicInteger();
+        NestedLoopJoinExecutor.Lane lane=executor.newLane(10);
+        ExecutorCompletionService<Integer> completionService=new ExecutorCompletionService<>(lane);
+        int numTasks=20;
+        for(int i=0;i<numTasks;i++){
+            final int task=i;
+            completionService.submit(new Callable<Integer>(){
+                @Override
+                public Integer call() throws Exception{
+                    int current=running.incrementAndGet();
+                    int max;
+                    while((max=maxRunning.get())<current && !maxRunning.compareAndSet(max,current));
+                    Thread.sleep(5);
+                    running.decrementAndGet();
+                    return task;
+                }
+            });
+        }
+        int sum=0;
+        for(int i=0;i<numTasks;i++){
+            sum+=completionService.take().get();
+        }
+        lane.close();
+        Assert.assertEquals("Not every probe ran",numTasks*(numTasks-1)/2,sum);
+        Assert.assertTrue("Too many probes ran at once: "+maxRunning.get(),maxRunning.get()<=2);
+    }
+
+    @Test
+    public void testNestedProbesRunInline() throws Exception{
+        //occupy every thread of the pool with a probe which waits for a nested probe of its own
+        final CountDownLatch finished=new CountDownLatch(pool.getMaxThreadCount());
+        for(int i=0;i<pool.getMaxThreadCount();i++){
+            executor.newLane(1).execute(new Runnable(){
+                @Override
+                public void run(){
+                    NestedLoopJoinExecutor.Lane nested=executor.newLane(1);
+                    ExecutorCompletionService<Boolean> completionService=new ExecutorCompletionService<>(nested);
+                    completionService.submit(new Callable<Boolean>(){
+                        @Override
+                        public Boolean call() throws Exception{
+                            return Boolean.TRUE;
+                        }
+                    });
+                    try{
+                        if(completionService.take().get())
+                            finished.countDown();
+                    }catch(Exception e){
+                        throw new RuntimeException(e);
+                    }
+                }
+            });
+        }
+        Assert.assertTrue("Nested probes did not complete",finished.await(10,TimeUnit.SECONDS));
+    }
+}
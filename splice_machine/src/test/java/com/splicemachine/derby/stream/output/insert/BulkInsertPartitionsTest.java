@@ -0,0 +1,91 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.output.insert;
+
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+@Category(ArchitectureIndependent.class)
+public class BulkInsertPartitionsTest{
+
+    @Test
+    public void testPrefixedKeysSortByConglomerateThenKey() throws Exception{
+        byte[] a=BulkInsertPartitions.prefixKey(0,new byte[]{(byte)0xFF,1});
+        byte[] b=BulkInsertPartitions.prefixKey(1,new byte[]{0});
+        byte[] c=BulkInsertPartitions.prefixKey(1,new byte[]{0,1});
+        Assert.assertTrue(Bytes.BASE_COMPARATOR.compare(a,b)<0);
+        Assert.assertTrue(Bytes.BASE_COMPARATOR.compare(b,c)<0);
+        Assert.assertEquals(1,BulkInsertPartitions.getConglomerateIndex(c));
+        Assert.assertArrayEquals(new byte[]{0,1},BulkInsertPartitions.getRowKey(c));
+    }
+
+    @Test
+    public void testPartitionsFollowSplitPoints() throws Exception{
+        byte[][][] splits={
+                {{10},{20}},
+                {},
+                {{5}}
+        };
+        BulkInsertPartitions partitions=new BulkInsertPartitions(splits);
+        Assert.assertEquals(6,partitions.numPartitions());
+
+        Assert.assertEquals(0,partitions.getPartition(BulkInsertPartitions.prefixKey(0,new byte[]{})));
+        Assert.assertEquals(0,partitions.getPartition(BulkInsertPartitions.prefixKey(0,new byte[]{9,100})));
+        Assert.assertEquals("A split point starts its range",1,partitions.getPartition(BulkInsertPartitions.prefixKey(0,new byte[]{10})));
+        Assert.assertEquals(1,partitions.getPartition(BulkInsertPartitions.prefixKey(0,new byte[]{19})));
+        Assert.assertEquals(2,partitions.getPartition(BulkInsertPartitions.prefixKey(0,new byte[]{20,0})));
+        Assert.assertEquals(3,partitions.getPartition(BulkInsertPartitions.prefixKey(1,new byte[]{100})));
+        Assert.assertEquals(4,partitions.getPartition(BulkInsertPartitions.prefixKey(2,new byte[]{4})));
+        Assert.assertEquals(5,partitions.getPartition(BulkInsertPartitions.prefixKey(2,new byte[]{(byte)0x80})));
+    }
+
+    @Test
+    public void testSelectSplitPoints() throws Exception{
+        List<byte[]> sample=new ArrayList<>();
+        for(int i=0;i<100;i++){
+            sample.add(Bytes.toBytes(i));
+        }
+        byte[][] splits=BulkInsertPartitions.selectSplitPoints(sample,1000,250);
+        Assert.assertEquals(3,splits.length);
+        Assert.assertArrayEquals(Bytes.toBytes(25),splits[0]);
+        Assert.assertArrayEquals(Bytes.toBytes(50),splits[1]);
+        Assert.assertArrayEquals(Bytes.toBytes(75),splits[2]);
+
+        Assert.assertEquals("Small conglomerates should not be split",0,
+                BulkInsertPartitions.selectSplitPoints(sample,100,250).length);
+        Assert.assertEquals("Cannot split more finely than the sample",0,
+                BulkInsertPartitions.selectSplitPoints(Collections.singletonList(Bytes.toBytes(1)),1000,1).length);
+    }
+
+    @Test
+    public void testSelectSplitPointsSkipsDuplicateKeys() throws Exception{
+        List<byte[]> sample=new ArrayList<>(Arrays.asList(new byte[]{},new byte[]{},new byte[]{1},new byte[]{1},
+                new byte[]{1},new byte[]{1},new byte[]{2},new byte[]{3}));
+        byte[][] splits=BulkInsertPartitions.selectSplitPoints(sample,800,100);
+        Assert.assertEquals(3,splits.length);
+        Assert.assertArrayEquals(new byte[]{1},splits[0]);
+        Assert.assertArrayEquals(new byte[]{2},splits[1]);
+        Assert.assertArrayEquals(new byte[]{3},splits[2]);
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.derby.stream.window;
+
+import com.splicemachine.db.iapi.sql.execute.ExecRow;
+import com.splicemachine.db.iapi.types.DataValueDescriptor;
+import com.splicemachine.db.iapi.types.SQLInteger;
+import com.splicemachine.db.impl.sql.execute.ValueRow;
+import com.splicemachine.derby.stream.control.ControlOperationContext;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(ArchitectureIndependent.class)
+public class SpillableRowBufferTest{
+
+    @Test
+    public void testKeepsRowsInMemoryWithinBudget() throws Exception{
+        ControlOperationContext context=new ControlOperationContext();
+        SpillableRowBuffer buffer=new SpillableRowBuffer(Long.MAX_VALUE,context);
+        slide(buffer,1000,10);
+        Assert.assertEquals(0,context.getSpillCount());
+    }
+
+    @Test
+    public void testPagesSpilledRowsBackInOrder() throws Exception{
+        ControlOperationContext context=new ControlOperationContext();
+        //only a handful of rows fit in memory
+        SpillableRowBuffer buffer=new SpillableRowBuffer(1024,context);
+        for(int i=0;i<1000;i++){
+            buffer.add(row(i));
+        }
+        Assert.assertEquals(1000,buffer.size());
+        for(int i=0;i<1000;i++){
+            Assert.assertEquals(i,buffer.get(0).getColumn(1).getInt());
+            buffer.removeFirst();
+        }
+        Assert.assertTrue(buffer.isEmpty());
+        Assert.assertTrue(context.getSpillCount()>0);
+        Assert.assertTrue(context.getSpilledBytes()>0);
+    }
+
+    @Test
+    public void testAddsWhileReadingSpilledRows() throws Exception{
+        ControlOperationContext context=new ControlOperationContext();
+        SpillableRowBuffer buffer=new SpillableRowBuffer(1024,context);
+        //a frame of 100 rows, which does not fit in memory
+        slide(buffer,1000,100);
+        Assert.assertTrue(context.getSpillCount()>1);
+        buffer.close();
+    }
+
+    /*
+     * Slide a frame of frameSize rows over numRows rows, checking the first, middle and last rows of the frame
+     */
+    private static void slide(SpillableRowBuffer buffer,int numRows,int frameSize) throws Exception{
+        int first=0;
+        for(int i=0;i<numRows;i++){
+            buffer.add(row(i));
+            if(buffer.size()>frameSize){
+                buffer.removeFirst();
+                first++;
+            }
+            Assert.assertEquals(i-first+1,buffer.size());
+            Assert.assertEquals(first,buffer.get(0).getColumn(1).getInt());
+            Assert.assertEquals((first+i)/2,buffer.get((i-first)/2).getColumn(1).getInt());
+            Assert.assertEquals(i,buffer.get(buffer.size()-1).getColumn(1).getInt());
+        }
+    }
+
+    private static ExecRow row(int value){
+        ValueRow row=new ValueRow(1);
+        row.setRowArray(new DataValueDescriptor[]{new SQLInteger(value)});
+        return row;
+    }
+}
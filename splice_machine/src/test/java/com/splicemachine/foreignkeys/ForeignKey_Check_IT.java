@@ -546,6 +546,34 @@ public class ForeignKey_Check_IT {
         }
     }
 
+    /* Deletes many parent rows at once, with references both clustered and spread thinly between them. */
+    @Test
+    public void large_deleteManyParentRows() throws Exception {
+
+        new TableCreator(conn).withCreate("create table P (a int primary key, b int)").create();
+        new TableCreator(conn).withCreate("create table C (a int CONSTRAINT c1 REFERENCES P(a), b int)").create();
+
+        try(Statement s = conn.createStatement()){
+            s.executeUpdate("insert into P values(1,1),(2,2),(3,3),(4,4),(5,5),(6,6),(7,7),(8,8)");
+            for(int i=0;i<9;i++){
+                s.executeUpdate("insert into P select a+"+(8<<i)+",b from P");
+            }
+            assertEquals(4096L,conn.count(s,"select * from P"));
+
+            // a dense run of referenced keys, and a few keys far apart
+            s.executeUpdate("insert into C select a,b from P where a between 1000 and 1100");
+            s.executeUpdate("insert into C values(7,7),(2500,2500),(4096,4096)");
+
+            assertQueryFail("delete from P","Operation on table 'P' caused a violation of foreign key constraint 'C1' for key (A).  The statement has been rolled back.");
+            assertQueryFail("delete from P where a > 4000","Operation on table 'P' caused a violation of foreign key constraint 'C1' for key (A).  The statement has been rolled back.");
+            assertEquals(4096L,conn.count(s,"select * from P"));
+
+            // every unreferenced row can be deleted
+            assertEquals(3992,s.executeUpdate("delete from P where a not in (select a from C)"));
+            assertEquals(104L,conn.count(s,"select * from P"));
+        }
+    }
+
     // - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - - -
     //
     // multiple FK per table
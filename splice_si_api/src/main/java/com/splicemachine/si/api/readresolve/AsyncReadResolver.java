@@ -20,29 +20,48 @@ import com.lmax.disruptor.dsl.Disruptor;
 import com.lmax.disruptor.dsl.ProducerType;
 import com.splicemachine.annotations.ThreadSafe;
 import com.splicemachine.si.api.txn.TxnSupplier;
+import com.splicemachine.si.impl.driver.SIDriver;
 import com.splicemachine.si.impl.rollforward.RollForwardStatus;
 import com.splicemachine.storage.Partition;
 import com.splicemachine.utils.ByteSlice;
 import com.splicemachine.utils.TrafficControl;
 import org.apache.log4j.Logger;
 import org.spark_project.guava.util.concurrent.ThreadFactoryBuilder;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Read-Resolver which asynchronously submits regions for execution, discarding
  * any entries which exceed the size of the processing queue.
  * <p/>
  * This implementation uses an LMAX disruptor to asynchronously pass Read-resolve events
- * to a background thread, which in turn uses a SynchronousReadResolver to actually perform the resolution.
+ * to background threads, which in turn use a SynchronousReadResolver to actually perform the resolution.
+ * <p/>
+ * Each region is handled by exactly one of the background threads. A thread collects the rows which it
+ * receives in one batch from the disruptor by region and transaction, drops rows which are already waiting
+ * to be resolved, and then resolves each group at once, so that the transaction is only looked up once and
+ * the region sees a single batch of mutations instead of one per row.
  *
  * @author Scott Fines
  *         Date: 7/1/14
  */
 @ThreadSafe
-public class AsyncReadResolver{
+public class AsyncReadResolver implements ReadResolverManagement{
     private static final Logger LOG=Logger.getLogger(AsyncReadResolver.class);
+    private static final String MBEAN_NAME="com.splicemachine.si.api.readresolve:type=ReadResolver"; // Same string is in JMXUtils
+    /*
+     * The most rows a handler will hold before resolving them, even if the disruptor has more available
+     * for it. Bounds the memory held by each handler, and the time before the first of them is resolved.
+     */
+    private static final int MAX_BATCH_SIZE=1024;
     private final RingBuffer<ResolveEvent> ringBuffer;
     private final Disruptor<ResolveEvent> disruptor;
 
@@ -52,6 +71,14 @@ public class AsyncReadResolver{
     private final RollForwardStatus status;
     private final TrafficControl trafficControl;
     private final KeyedReadResolver synchronousResolver;
+    private final int numHandlers;
+
+    private final LongAdder droppedEvents=new LongAdder();
+    private final LongAdder duplicateEvents=new LongAdder();
+    private final LongAdder resolvedRows=new LongAdder();
+    private long lastSampleTime=System.nanoTime();
+    private long lastSampleRows;
+    private double resolvedRowsPerSecond;
 
     public AsyncReadResolver(int maxThreads,int bufferSize,
                              TxnSupplier txnSupplier,
@@ -73,7 +100,12 @@ public class AsyncReadResolver{
         disruptor=new Disruptor<>(new ResolveEventFactory(),bSize,consumerThreads,
                 ProducerType.MULTI,
                 new BlockingWaitStrategy()); //we want low latency here, but it might cost too much in CPU
-        disruptor.handleEventsWith(new ResolveEventHandler());
+        numHandlers=maxThreads;
+        ResolveEventHandler[] handlers=new ResolveEventHandler[numHandlers];
+        for(int i=0;i<handlers.length;i++){
+            handlers[i]=new ResolveEventHandler(i);
+        }
+        disruptor.handleEventsWith(handlers);
         ringBuffer=disruptor.getRingBuffer();
     }
 
@@ -81,6 +113,15 @@ public class AsyncReadResolver{
         disruptor.start();
     }
 
+    /**
+     * Register the read resolver of this JVM's SI driver with JMX, if it has one.
+     */
+    public static void registerJMX(MBeanServer mbs) throws Exception{
+        AsyncReadResolver readResolver=SIDriver.driver().getAsyncReadResolver();
+        if(readResolver!=null)
+            mbs.registerMBean(readResolver,new ObjectName(MBEAN_NAME));
+    }
+
     public void shutdown(){
         stopped=true;
         disruptor.shutdown();
@@ -92,6 +133,49 @@ public class AsyncReadResolver{
         return new PartitionReadResolver(region,rollForward);
     }
 
+    @Override
+    public int getQueueCapacity(){
+        return ringBuffer.getBufferSize();
+    }
+
+    @Override
+    public long getQueueDepth(){
+        return ringBuffer.getBufferSize()-ringBuffer.remainingCapacity();
+    }
+
+    @Override
+    public int getHandlers(){
+        return numHandlers;
+    }
+
+    @Override
+    public long getDroppedEvents(){
+        return droppedEvents.sum();
+    }
+
+    @Override
+    public long getDuplicateEvents(){
+        return duplicateEvents.sum();
+    }
+
+    @Override
+    public long getResolvedRows(){
+        return resolvedRows.sum();
+    }
+
+    @Override
+    public synchronized double getResolvedRowsPerSecond(){
+        long now=System.nanoTime();
+        long elapsed=now-lastSampleTime;
+        if(elapsed>=TimeUnit.SECONDS.toNanos(1)){
+            long rows=resolvedRows.sum();
+            resolvedRowsPerSecond=(rows-lastSampleRows)*(double)TimeUnit.SECONDS.toNanos(1)/elapsed;
+            lastSampleRows=rows;
+            lastSampleTime=now;
+        }
+        return resolvedRowsPerSecond;
+    }
+
     private static class ResolveEvent{
         Partition region;
         long txnId;
@@ -107,23 +191,95 @@ public class AsyncReadResolver{
         }
     }
 
+    /**
+     * The rows waiting to be resolved for a single transaction on a single region.
+     */
+    private static class PendingResolution{
+        final Partition region;
+        final RollForward rollForward;
+        final long txnId;
+        final Set<ByteSlice> rowKeys=new LinkedHashSet<>();
+
+        PendingResolution(Partition region,RollForward rollForward,long txnId){
+            this.region=region;
+            this.rollForward=rollForward;
+            this.txnId=txnId;
+        }
+
+        @Override
+        public boolean equals(Object o){
+            if(this==o) return true;
+            if(!(o instanceof PendingResolution)) return false;
+            PendingResolution that=(PendingResolution)o;
+            return txnId==that.txnId && region==that.region && rollForward==that.rollForward;
+        }
+
+        @Override
+        public int hashCode(){
+            int result=System.identityHashCode(region);
+            result=31*result+System.identityHashCode(rollForward);
+            result=31*result+(int)(txnId^(txnId>>>32));
+            return result;
+        }
+    }
+
     private class ResolveEventHandler implements EventHandler<ResolveEvent>{
+        private final int handlerId;
+        private final Map<PendingResolution,PendingResolution> pending=new HashMap<>();
+        private int pendingRows;
+
+        ResolveEventHandler(int handlerId){
+            this.handlerId=handlerId;
+        }
 
         @Override
         public void onEvent(ResolveEvent event,long sequence,boolean endOfBatch) throws Exception{
+            if((event.region.getName().hashCode()&Integer.MAX_VALUE)%numHandlers==handlerId){
+                PendingResolution key=new PendingResolution(event.region,event.rollForward,event.txnId);
+                PendingResolution resolution=pending.get(key);
+                if(resolution==null){
+                    resolution=key;
+                    pending.put(key,key);
+                }
+                /*
+                 * The event is reused once we return, but its row key is a copy which was made for this event
+                 * alone, so we can keep the array without copying it again.
+                 */
+                ByteSlice rowKey=event.rowKey;
+                if(resolution.rowKeys.add(ByteSlice.wrap(rowKey.array(),rowKey.offset(),rowKey.length())))
+                    pendingRows++;
+                else
+                    duplicateEvents.increment();
+            }
+            if(endOfBatch || pendingRows>=MAX_BATCH_SIZE)
+                flush();
+        }
+
+        private void flush(){
+            if(pendingRows<=0) return;
             try{
-                if(synchronousResolver.resolve(event.region,
-                        event.rowKey,
-                        event.txnId,
-                        txnSupplier,
-                        status,
-                        false,
-                        trafficControl)){
-                    event.rollForward.recordResolved(event.rowKey,event.txnId);
+                for(PendingResolution resolution:pending.values()){
+                    try{
+                        int resolved=synchronousResolver.resolve(resolution.region,
+                                resolution.rowKeys,
+                                resolution.txnId,
+                                txnSupplier,
+                                status,
+                                false,
+                                trafficControl);
+                        if(resolved>0){
+                            for(ByteSlice rowKey:resolution.rowKeys){
+                                resolution.rollForward.recordResolved(rowKey,resolution.txnId);
+                            }
+                            resolvedRows.add(resolved);
+                        }
+                    }catch(Exception e){
+                        LOG.info("Error during read resolution",e);
+                    }
                 }
-            }catch(Exception e){
-                LOG.info("Error during read resolution",e);
-                throw e;
+            }finally{
+                pending.clear();
+                pendingRows=0;
             }
         }
     }
@@ -144,6 +300,7 @@ public class AsyncReadResolver{
             try{
                 sequence=ringBuffer.tryNext();
             }catch(InsufficientCapacityException e){
+                droppedEvents.increment();
                 if(LOG.isTraceEnabled())
                     LOG.trace("Unable to submit for read resolution");
                 return;
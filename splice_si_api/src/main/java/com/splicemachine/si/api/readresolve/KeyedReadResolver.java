@@ -21,6 +21,8 @@ import com.splicemachine.storage.Partition;
 import com.splicemachine.utils.ByteSlice;
 import com.splicemachine.utils.TrafficControl;
 
+import java.util.Collection;
+
 /**
  * @author Scott Fines
  *         Date: 12/21/15
@@ -33,4 +35,18 @@ public interface KeyedReadResolver{
                     RollForwardStatus status,
                     boolean failOnError,
                     TrafficControl trafficControl);
+
+    /**
+     * Resolve many rows of the same region, all written by the same transaction, with a single lookup
+     * of the transaction and a single batch of mutations to the region.
+     *
+     * @return the number of rows which were resolved
+     */
+    int resolve(Partition region,
+                Collection<ByteSlice> rowKeys,
+                long txnId,
+                TxnSupplier txnSupplier,
+                RollForwardStatus status,
+                boolean failOnError,
+                TrafficControl trafficControl);
 }
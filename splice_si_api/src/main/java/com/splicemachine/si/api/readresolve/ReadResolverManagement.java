@@ -0,0 +1,63 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.si.api.readresolve;
+
+import javax.management.MXBean;
+
+/**
+ * Statistics about the asynchronous read resolution queue.
+ */
+@SuppressWarnings("unused")
+@MXBean(true)
+public interface ReadResolverManagement{
+
+    /**
+     * @return the number of events the queue can hold
+     */
+    int getQueueCapacity();
+
+    /**
+     * @return the number of events which are waiting in the queue
+     */
+    long getQueueDepth();
+
+    /**
+     * @return the number of handler threads consuming the queue
+     */
+    int getHandlers();
+
+    /**
+     * @return the number of events which were discarded because the queue was full
+     */
+    long getDroppedEvents();
+
+    /**
+     * @return the number of events which were discarded because the same row was already
+     * waiting to be resolved for the same transaction
+     */
+    long getDuplicateEvents();
+
+    /**
+     * @return the total number of rows which have been resolved
+     */
+    long getResolvedRows();
+
+    /**
+     * @return the number of rows resolved per second, measured since the last time this was called (or over the
+     * last second, whichever is longer)
+     */
+    double getResolvedRowsPerSecond();
+}
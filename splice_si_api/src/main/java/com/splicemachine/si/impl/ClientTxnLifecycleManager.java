@@ -102,6 +102,11 @@ public class ClientTxnLifecycleManager implements TxnLifecycleManager{
             throw exceptionFactory.doNotRetry("Cannot create a writable child of a read-only transaction. Elevate the parent transaction("+parentTxn.getTxnId()+") first");
         if(parentTxn.getState()!=Txn.State.ACTIVE)
             throw exceptionFactory.doNotRetry("Cannot create a child of an inactive transaction. Parent: "+parentTxn);
+        /*
+         * The parent may have begun on another node; move our clock past it, so that the child's timestamp
+         * is ordered after its parent's
+         */
+        timestampSource.observeTimestamp(parentTxn.getBeginTimestamp());
         if(destinationTable!=null){
             long timestamp=timestampSource.nextTimestamp();
             return createWritableTransaction(timestamp,isolationLevel,additive,parentTxn,destinationTable);
@@ -134,6 +139,8 @@ public class ClientTxnLifecycleManager implements TxnLifecycleManager{
              */
             throw exceptionFactory.doNotRetry("Cannot chain a read-only parent transaction from a read-only transaction. Elevate the transaction("+txnToCommit.getTxnId()+") first");
         }
+        //as for a child transaction, the parent may have begun on another node
+        timestampSource.observeTimestamp(parentTxn.getBeginTimestamp());
         txnToCommit.commit();
         long oldTs=txnToCommit.getCommitTimestamp();
 
@@ -155,6 +162,11 @@ public class ClientTxnLifecycleManager implements TxnLifecycleManager{
 
     @Override
     public Txn elevateTransaction(Txn txn,byte[] destinationTable) throws IOException{
+        /*
+         * The transaction keeps its begin timestamp, which may have come from another node; writes made under it
+         * must be ordered before the timestamps we generate from now on
+         */
+        timestampSource.observeTimestamp(txn.getBeginTimestamp());
         if(!txn.allowsWrites()){
             //we've elevated from a read-only to a writable, so make sure that we add
             //it to the keep alive
@@ -172,7 +184,16 @@ public class ClientTxnLifecycleManager implements TxnLifecycleManager{
         if(restoreMode){
             return -1; // we are in restore mode, don't try to access the store
         }
-        return store.commit(txnId);
+        long commitTs=store.commit(txnId);
+        if(commitTs>0){
+            /*
+             * The commit timestamp may have come from another node's clock; move ours past it, then make sure
+             * that no other node can hand out a smaller timestamp before we report the commit
+             */
+            timestampSource.observeTimestamp(commitTs);
+            timestampSource.awaitCommit(commitTs);
+        }
+        return commitTs;
         //TODO -sf- add the transaction to the global cache?
     }
 
@@ -66,6 +66,7 @@ public class StripedTxnLifecycleStore implements TxnLifecycleStore{
 
     @Override
     public void beginTransaction(TxnMessage.TxnInfo txn) throws IOException{
+        timestampSource.observeTimestamp(txn.getBeginTs()); //so that the commit timestamp comes after it
         Lock lock=lockStriper.get(txn.getTxnId()).writeLock();
         acquireLock(lock);
         try{
@@ -105,6 +106,7 @@ public class StripedTxnLifecycleStore implements TxnLifecycleStore{
                 SpliceLogUtils.error(LOG,"attempting to commit rolled back txn=%d",txnId);
                 throw baseStore.cannotCommit(txnId, state);
             }
+            timestampSource.observeTimestamp(txnId); //in case the transaction began before this server picked it up
             long commitTs=timestampSource.nextTimestamp();
             baseStore.recordCommit(txnId,commitTs);
             return commitTs;
@@ -188,6 +188,13 @@ public class SIDriver {
         return readResolver.getResolver(basePartition,getRollForward());
     }
 
+    /**
+     * @return the asynchronous read resolver, or {@code null} if asynchronous read resolution is disabled
+     */
+    public AsyncReadResolver getAsyncReadResolver(){
+        return readResolver;
+    }
+
     public TxnLifecycleManager lifecycleManager(){
         return lifecycleManager;
     }
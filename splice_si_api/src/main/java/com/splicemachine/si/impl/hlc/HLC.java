@@ -15,6 +15,9 @@
 
 package com.splicemachine.si.impl.hlc;
 
+import com.splicemachine.concurrent.Clock;
+import com.splicemachine.concurrent.SystemClock;
+
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -29,6 +32,15 @@ public class HLC {
     public static final int hlcNumBitsToShift = 12;
     public static final int hlcLogicalBitsMask = (1 << hlcNumBitsToShift) - 1;
     AtomicLong atomicHLC = new AtomicLong(physicalAndLogicalToHLC(0l, 0l));
+    private final Clock clock;
+
+    public HLC() {
+        this(SystemClock.INSTANCE);
+    }
+
+    public HLC(Clock clock) {
+        this.clock = clock;
+    }
 
     public long sendOrLocalEvent() {
         long currentHLC;
@@ -36,11 +48,11 @@ public class HLC {
         while (true) {
             currentHLC = atomicHLC.get();
             long[] hlc = HLCToPhysicalAndLogical(currentHLC);
-            long logical = Math.max(hlc[0], System.currentTimeMillis());
-            if (logical == hlc[0])
+            long physical = Math.max(hlc[0], clock.currentTimeMillis());
+            if (physical == hlc[0])
                 hlc[1]++;
             else {
-                hlc[0] = logical;
+                hlc[0] = physical;
                 hlc[1] = 0l;
             }
             returnHLC = physicalAndLogicalToHLC(hlc[0],hlc[1]);
@@ -55,18 +67,18 @@ public class HLC {
         long[] messageHLC = HLCToPhysicalAndLogical(message);
         while (true) {
             currentHLC = atomicHLC.get();
-            long[] hlc = HLCToPhysicalAndLogical(atomicHLC.get());
-            long logical = Math.max(hlc[0],Math.max(messageHLC[0], System.currentTimeMillis()));
-            if (logical == hlc[0] && logical==messageHLC[0])
-                hlc[1] = Math.max(hlc[0],messageHLC[0]) +1;
-            else if (logical == hlc[0])
+            long[] hlc = HLCToPhysicalAndLogical(currentHLC);
+            long physical = Math.max(hlc[0],Math.max(messageHLC[0], clock.currentTimeMillis()));
+            if (physical == hlc[0] && physical==messageHLC[0])
+                hlc[1] = Math.max(hlc[1],messageHLC[1]) +1;
+            else if (physical == hlc[0])
                 hlc[1]++;
-            else if (logical == messageHLC[0]) {
-                hlc[0] = logical;
+            else if (physical == messageHLC[0]) {
+                hlc[0] = physical;
                 hlc[1] = messageHLC[1]+1;
             }
             else {
-                hlc[0] = logical;
+                hlc[0] = physical;
                 hlc[1] = 0;
             }
             returnHLC = physicalAndLogicalToHLC(hlc[0],hlc[1]);
@@ -75,6 +87,20 @@ public class HLC {
         }
     }
 
+    /**
+     * @return the last value handed out (or received), without advancing the clock
+     */
+    public long current() {
+        return atomicHLC.get();
+    }
+
+    /**
+     * @return the wall clock time which the physical component is taken from, in milliseconds
+     */
+    public long wallClock() {
+        return clock.currentTimeMillis();
+    }
+
     /**
      * Converts the provided timestamp, in the provided unit, to the HybridTime timestamp
      * format. Logical bits are set to 0.
@@ -87,8 +113,8 @@ public class HLC {
         if (timestamp < 0) {
             throw new IllegalArgumentException("Timestamp cannot be less than 0");
         }
-        long timestampInMicros = TimeUnit.MICROSECONDS.convert(timestamp, timeUnit);
-        return timestampInMicros << hlcNumBitsToShift;
+        long timestampInMillis = TimeUnit.MILLISECONDS.convert(timestamp, timeUnit);
+        return timestampInMillis << hlcNumBitsToShift;
     }
 
     /**
@@ -98,15 +124,15 @@ public class HLC {
      * @return a pair of {physical, logical} long values in an array
      */
     public static long[] HLCToPhysicalAndLogical(long htTimestamp) {
-        long timestampInMicros = htTimestamp >> hlcNumBitsToShift;
+        long timestampInMillis = htTimestamp >> hlcNumBitsToShift;
         long logicalValues = htTimestamp & hlcLogicalBitsMask;
-        return new long[] {timestampInMicros, logicalValues};
+        return new long[] {timestampInMillis, logicalValues};
     }
 
     /**
      * Encodes separate physical and logical components into a single HT timestamp
      *
-     * @param physical the physical component, in microseconds
+     * @param physical the physical component, in milliseconds
      * @param logical  the logical component
      * @return an encoded HT timestamp
      */
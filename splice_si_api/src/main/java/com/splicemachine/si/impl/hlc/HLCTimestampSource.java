@@ -12,38 +12,129 @@
  * CONDITIONS OF ANY KIND, either express or implied. See the License for the
  * specific language governing permissions and limitations under the License.
  */
-
 package com.splicemachine.si.impl.hlc;
 
+import com.splicemachine.concurrent.Clock;
+import com.splicemachine.timestamp.api.TimestampIOException;
 import com.splicemachine.timestamp.api.TimestampSource;
 
+import java.util.concurrent.TimeUnit;
+
 /**
+ * A TimestampSource which reads timestamps off a hybrid logical clock kept by this node, rather than
+ * asking the timestamp server for them.
+ * <p/>
+ * The low bits of each timestamp hold the id of the node which generated it (mixed with the clock, so that
+ * the timestamps of a single node still spread over the buckets of the transaction table), which keeps
+ * timestamps unique across the cluster. The clock is moved past every timestamp this node hears about
+ * through {@link #observeTimestamp(long)}, so that a transaction is always ordered after those it may have
+ * seen. Transactions which cannot have seen one another are ordered by wall clock time, which is only sound
+ * while the wall clocks of all the nodes are within the maximum clock skew of one another. Commits wait that
+ * skew out before returning (see {@link #awaitCommit(long)}), and timestamps from a node whose clock is further
+ * ahead than that are refused.
+ * <p/>
+ * The minimum active timestamp is not a clock reading; it is left to the given memory (usually the timestamp
+ * source which this one replaces).
+ *
  * Created by jleach on 4/21/16.
  */
 public class HLCTimestampSource implements TimestampSource {
-    public static HLC hlc = new HLC();
+    /**
+     * The number of low bits of a timestamp which tell apart the nodes that generate timestamps.
+     */
+    public static final int NODE_ID_BITS = 10;
+    private static final long NODE_ID_MASK = (1L << NODE_ID_BITS) - 1;
+    /*
+     * 2016-01-01T00:00:00Z. The clock is counted from here rather than from 1970, so that there is room for the
+     * node id bits until well into the future.
+     */
+    private static final long EPOCH = HLC.physicalAndLogicalToHLC(1451606400000L, 0L);
 
-    public HLCTimestampSource() {
-    }
+    private final Clock clock;
+    private final HLC hlc;
+    private final long nodeId;
+    private final long maxClockSkew;
+    private final TimestampSource memory;
 
+    /**
+     * @param clock the wall clock
+     * @param nodeId the id of this node, which must differ from that of every other live node generating
+     *               timestamps. Only the low {@link #NODE_ID_BITS} bits are used.
+     * @param maxClockSkew the most (in milliseconds) the wall clocks of two nodes may differ by
+     * @param memory the source which remembers the minimum active timestamp
+     */
+    public HLCTimestampSource(Clock clock, int nodeId, long maxClockSkew, TimestampSource memory) {
+        this.clock = clock;
+        this.hlc = new HLC(clock);
+        this.nodeId = nodeId & NODE_ID_MASK;
+        this.maxClockSkew = maxClockSkew;
+        this.memory = memory;
+    }
 
     @Override
     public long nextTimestamp() {
-        return hlc.sendOrLocalEvent();
+        return toTimestamp(hlc.sendOrLocalEvent());
     }
 
     @Override
     public void rememberTimestamp(long timestamp) {
-        // No Op
+        memory.rememberTimestamp(timestamp);
     }
 
     @Override
     public long retrieveTimestamp() {
-        return 0;
+        return memory.retrieveTimestamp();
     }
 
     @Override
     public void shutdown() {
+        memory.shutdown();
+    }
+
+    @Override
+    public void observeTimestamp(long timestamp) throws TimestampIOException {
+        if (timestamp <= 0) return;
+        long remote = toHLC(timestamp);
+        if (remote <= hlc.current()) return; // nothing new
+        long ahead = HLC.HLCToPhysicalAndLogical(remote)[0] - clock.currentTimeMillis();
+        if (ahead > maxClockSkew)
+            throw new TimestampIOException(String.format("Timestamp %d is %d ms ahead of the local clock, which is " +
+                    "more than the maximum clock skew of %d ms", timestamp, ahead, maxClockSkew));
+        hlc.receiveEvent(remote);
+    }
+
+    @Override
+    public void awaitCommit(long commitTimestamp) {
+        if (commitTimestamp <= 0) return;
+        /*
+         * Once our wall clock is past the commit timestamp by more than the skew, every other wall clock is
+         * past it too, so every clock generates larger timestamps from then on.
+         */
+        long waitUntil = HLC.HLCToPhysicalAndLogical(toHLC(commitTimestamp))[0] + maxClockSkew + 1;
+        long remaining;
+        while ((remaining = waitUntil - clock.currentTimeMillis()) > 0) {
+            try {
+                clock.sleep(remaining, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private long toTimestamp(long hlcValue) {
+        long relative = hlcValue - EPOCH;
+        /*
+         * Mixing in the clock keeps the id recoverable, and unique among the timestamps with the same clock value,
+         * while it spreads the timestamps of one node over the buckets of the transaction table
+         */
+        long mix = relative ^ (relative >>> HLC.hlcNumBitsToShift);
+        return (relative << NODE_ID_BITS) | ((nodeId ^ mix) & NODE_ID_MASK);
+    }
 
+    private static long toHLC(long timestamp) {
+        return (timestamp >>> NODE_ID_BITS) + EPOCH;
     }
 }
@@ -0,0 +1,323 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.si.impl.server;
+
+import com.splicemachine.si.api.txn.TxnSupplier;
+import com.splicemachine.si.api.txn.TxnView;
+import org.apache.log4j.Logger;
+import org.spark_project.guava.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static com.splicemachine.si.constants.SIConstants.TRANSACTION_TABLE_BUCKET_COUNT;
+
+/**
+ * Looks up the transactions which a compaction comes across in the background, so that the compaction does
+ * not have to wait on the transaction table for each of them in turn.
+ * <p/>
+ * Lookups are grouped by the bucket of the transaction table which holds the transaction, and the lookups of
+ * each bucket are performed one after the other, so a compaction has at most one request outstanding against
+ * each region of the transaction table at a time. The lookups of a row are all started before any of them is
+ * waited on, and a compaction only waits a bounded time for them; a transaction which is not known by then is
+ * reported as such, and the compaction is expected to leave its data alone for read resolution (or a later
+ * compaction) to deal with.
+ * <p/>
+ * Each lookup is a single {@link TxnSupplier#getTransaction(long)} call, as the transaction table has no
+ * multi-transaction lookup. The lookups of all compactions which share an {@link InFlightLookups} are
+ * deduplicated instead: a transaction which another compaction is already looking up is not looked up again,
+ * and its result is handed to every compaction waiting for it. Concurrent compactions often come across the
+ * same transactions, as a large write touches many regions.
+ * <p/>
+ * Apart from the background lookups themselves, instances are meant to be used by a single compaction thread.
+ */
+public class CompactionTxnLookup{
+    private static final Logger LOG=Logger.getLogger(CompactionTxnLookup.class);
+    private static final int MAX_OUTSTANDING_LOOKUPS=4096;
+    private static final long MAX_WAIT_MILLIS=50;
+    private static volatile Executor SHARED_EXECUTOR;
+    private static final InFlightLookups SHARED_LOOKUPS=new InFlightLookups();
+
+    private final TxnSupplier cache;
+    private final TxnSupplier delegate;
+    private final Executor executor;
+    private final int maxOutstanding;
+    private final long maxWaitMillis;
+    private final InFlightLookups inFlight;
+    private final Bucket[] buckets;
+
+    /*
+     * Lookups which have been started but whose result has not been taken by the compaction yet. Only
+     * accessed by the compaction thread.
+     */
+    private final Set<Long> pending=new HashSet<>();
+    private final List<Long> prefetched=new ArrayList<>();
+
+    /*Lookups which have finished, guarded by this*/
+    private final Map<Long,TxnView> found=new HashMap<>();
+    private final Set<Long> failed=new HashSet<>();
+
+    /**
+     * @param cache the (compaction-local) supplier which remembers the transactions this compaction has seen
+     * @param delegate the supplier which performs the lookups. Must be safe to use from several threads.
+     * @param executor runs the lookups
+     * @param maxOutstanding the most lookups to have in flight at once. Transactions requested beyond this
+     *                       are looked up synchronously.
+     * @param maxWaitMillis the longest {@link #awaitPrefetched()} will wait for the lookups of a row
+     */
+    public CompactionTxnLookup(TxnSupplier cache,TxnSupplier delegate,Executor executor,int maxOutstanding,long maxWaitMillis){
+        this(cache,delegate,executor,maxOutstanding,maxWaitMillis,new InFlightLookups());
+    }
+
+    /**
+     * @param inFlight the lookups to share with other compactions. They must all look transactions up
+     *                 through equivalent delegates.
+     */
+    CompactionTxnLookup(TxnSupplier cache,TxnSupplier delegate,Executor executor,int maxOutstanding,long maxWaitMillis,
+                        InFlightLookups inFlight){
+        this.cache=cache;
+        this.delegate=delegate;
+        this.executor=executor;
+        this.maxOutstanding=maxOutstanding;
+        this.maxWaitMillis=maxWaitMillis;
+        this.inFlight=inFlight;
+        this.buckets=new Bucket[TRANSACTION_TABLE_BUCKET_COUNT];
+        for(int i=0;i<buckets.length;i++){
+            buckets[i]=new Bucket();
+        }
+    }
+
+    public static CompactionTxnLookup newLookup(TxnSupplier cache,TxnSupplier delegate){
+        return new CompactionTxnLookup(cache,delegate,sharedExecutor(),MAX_OUTSTANDING_LOOKUPS,MAX_WAIT_MILLIS,SHARED_LOOKUPS);
+    }
+
+    /**
+     * Start looking up the transaction in the background, unless it is known already, or another compaction
+     * is already looking it up.
+     *
+     * @param txnId the transaction to look up
+     */
+    public void prefetch(long txnId){
+        if(pending.contains(txnId) || isKnown(txnId) || pending.size()>=maxOutstanding) return;
+        pending.add(txnId);
+        prefetched.add(txnId);
+        SharedLookup lookup=inFlight.join(txnId,this);
+        if(lookup!=null)
+            buckets[(int)(txnId&(TRANSACTION_TABLE_BUCKET_COUNT-1))].add(lookup);
+    }
+
+    /**
+     * Wait (for a bounded time) for the lookups started by {@link #prefetch(long)} since the last call to finish.
+     */
+    public void awaitPrefetched(){
+        if(prefetched.isEmpty()) return;
+        try{
+            long remaining=TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+            long deadline=System.nanoTime()+remaining;
+            synchronized(this){
+                while(remaining>0 && !finished(prefetched)){
+                    TimeUnit.NANOSECONDS.timedWait(this,remaining);
+                    remaining=deadline-System.nanoTime();
+                }
+            }
+        }catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+        }finally{
+            prefetched.clear();
+        }
+    }
+
+    /**
+     * @param txnId the transaction to fetch
+     * @return the transaction, or {@code null} if it is still being looked up in the background (or that lookup
+     * failed).
+     * @throws IOException if the transaction had to be looked up synchronously, and that failed
+     */
+    public TxnView getTransaction(long txnId) throws IOException{
+        TxnView txn=cache.getTransactionFromCache(txnId);
+        if(txn!=null) return txn;
+        if(pending.contains(txnId)){
+            synchronized(this){
+                txn=found.remove(txnId);
+                if(txn==null){
+                    if(failed.remove(txnId))
+                        pending.remove(txnId); //let the next request try again
+                    return null;
+                }
+            }
+            pending.remove(txnId);
+            cache.cache(txn);
+            return txn;
+        }
+        return cache.getTransaction(txnId);
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private boolean isKnown(long txnId){
+        return cache.transactionCached(txnId) || delegate.transactionCached(txnId);
+    }
+
+    private boolean finished(List<Long> txnIds){
+        for(Long txnId:txnIds){
+            if(!found.containsKey(txnId) && !failed.contains(txnId)) return false;
+        }
+        return true;
+    }
+
+    private void lookup(SharedLookup lookup){
+        long txnId=lookup.txnId;
+        TxnView txn=null;
+        try{
+            txn=delegate.getTransaction(txnId);
+        }catch(IOException e){
+            LOG.info("Unable to fetch transaction for id "+txnId+", will not resolve during compaction",e);
+        }catch(RuntimeException e){
+            LOG.info("Unable to fetch transaction for id "+txnId+", will not resolve during compaction",e);
+        }
+        for(CompactionTxnLookup waiter:inFlight.complete(lookup)){
+            waiter.deliver(txnId,txn);
+        }
+    }
+
+    private void deliver(long txnId,TxnView txn){
+        synchronized(this){
+            if(txn!=null)
+                found.put(txnId,txn);
+            else
+                failed.add(txnId);
+            notifyAll();
+        }
+    }
+
+    private static Executor sharedExecutor(){
+        Executor executor=SHARED_EXECUTOR;
+        if(executor==null){
+            synchronized(CompactionTxnLookup.class){
+                executor=SHARED_EXECUTOR;
+                if(executor==null){
+                    ThreadPoolExecutor pool=new ThreadPoolExecutor(TRANSACTION_TABLE_BUCKET_COUNT,TRANSACTION_TABLE_BUCKET_COUNT,
+                            60,TimeUnit.SECONDS,
+                            new LinkedBlockingQueue<Runnable>(),
+                            new ThreadFactoryBuilder().setNameFormat("compactionTxnLookup-%d").setDaemon(true).build());
+                    pool.allowCoreThreadTimeOut(true);
+                    executor=SHARED_EXECUTOR=pool;
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * The transactions being looked up, and the compactions waiting for each of them.
+     */
+    static final class InFlightLookups{
+        private final ConcurrentMap<Long,SharedLookup> lookups=new ConcurrentHashMap<>();
+
+        /**
+         * Wait for the transaction to be looked up.
+         *
+         * @return the lookup to run, or {@code null} if another compaction is already running it.
+         */
+        SharedLookup join(long txnId,CompactionTxnLookup waiter){
+            SharedLookup lookup=new SharedLookup(txnId);
+            lookup.waiters.add(waiter);
+            while(true){
+                SharedLookup running=lookups.putIfAbsent(txnId,lookup);
+                if(running==null) return lookup;
+                synchronized(running){
+                    if(!running.completed){
+                        running.waiters.add(waiter);
+                        return null;
+                    }
+                }
+                //it finished just now; start a new one
+                lookups.remove(txnId,running);
+            }
+        }
+
+        /**
+         * @return the compactions waiting for the lookup
+         */
+        List<CompactionTxnLookup> complete(SharedLookup lookup){
+            synchronized(lookup){
+                lookup.completed=true;
+            }
+            lookups.remove(lookup.txnId,lookup);
+            return lookup.waiters;
+        }
+    }
+
+    private static final class SharedLookup{
+        private final long txnId;
+        /*guarded by this until the lookup completes*/
+        private final List<CompactionTxnLookup> waiters=new ArrayList<>(1);
+        private boolean completed;
+
+        SharedLookup(long txnId){
+            this.txnId=txnId;
+        }
+    }
+
+    /**
+     * The lookups for a single bucket of the transaction table, which are run one at a time.
+     */
+    private class Bucket implements Runnable{
+        private final ArrayDeque<SharedLookup> queue=new ArrayDeque<>();
+        private boolean scheduled;
+
+        void add(SharedLookup lookup){
+            synchronized(this){
+                queue.add(lookup);
+                if(scheduled) return;
+                scheduled=true;
+            }
+            try{
+                executor.execute(this);
+            }catch(RejectedExecutionException ree){
+                run();
+            }
+        }
+
+        @Override
+        public void run(){
+            while(true){
+                SharedLookup next;
+                synchronized(this){
+                    next=queue.poll();
+                    if(next==null){
+                        scheduled=false;
+                        return;
+                    }
+                }
+                lookup(next);
+            }
+        }
+    }
+}
@@ -15,40 +15,75 @@
 
 package com.splicemachine.si.impl.store;
 
-import com.googlecode.concurrentlinkedhashmap.ConcurrentLinkedHashMap;
 import com.splicemachine.si.api.txn.Txn;
 import com.splicemachine.si.api.txn.TxnSupplier;
 import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.impl.txn.InheritingTxnView;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
 import java.io.IOException;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * TxnSupplier which caches transaction which have "Completed"--i.e. which have entered the COMMITTED or ROLLEDBACK
  * state.
  * <p/>
+ * The cache is a fixed-size, set-associative table keyed directly by the (primitive) transaction id: each
+ * id hashes to a set of {@link #WAYS} slots, and is stored in one of them. Lookups and inserts are lock-free, and
+ * when a set is full an entry is evicted using the CLOCK algorithm (an approximation of LRU which only requires
+ * setting a flag on a hit, rather than reordering a list). Since the cache is lossy, an insert which loses a race
+ * with another thread is simply dropped.
+ * <p/>
+ * Top-level transactions (by far the most common kind) are stored as their begin and commit timestamps plus a
+ * few flags, rather than as the TxnView which was given to us, and a lightweight view is built from those the first
+ * time the entry is read. Child transactions are held as-is, since their visibility depends on their parents.
+ * <p/>
  * This class is thread-safe, and safe to be shared between many threads.
  *
  * @author Scott Fines
  *         Date: 6/18/14
  */
 public class CompletedTxnCacheSupplier implements TxnSupplier{
-    private ConcurrentLinkedHashMap<Long, TxnView> cache; // autobox for now
+    static final int WAYS=8;
+
+    private final AtomicReferenceArray<Entry> table;
+    private final AtomicIntegerArray clockHands;
+    private final int setMask;
     private final TxnSupplier delegate;
-    private final AtomicLong hits=new AtomicLong();
-    private final AtomicLong requests=new AtomicLong();
+    private final LongAdder hits=new LongAdder();
+    private final LongAdder requests=new LongAdder();
+    private final LongAdder evictions=new LongAdder();
 
+    /**
+     * @param concurrencyLevel ignored, as the cache does not lock. Retained for compatibility with
+     *                         the configuration.
+     */
     public CompletedTxnCacheSupplier(TxnSupplier delegate,int maxSize,int concurrencyLevel){
-        cache=new ConcurrentLinkedHashMap.Builder<Long, TxnView>()
-                .maximumWeightedCapacity(maxSize)
-                .concurrencyLevel(concurrencyLevel)
-                .build();
+        int numSets=1;
+        while(numSets*WAYS<maxSize)
+            numSets<<=1;
+        this.table=new AtomicReferenceArray<>(numSets*WAYS);
+        this.clockHands=new AtomicIntegerArray(numSets);
+        this.setMask=numSets-1;
         this.delegate=delegate;
     }
 
     public int getMaxSize(){
-        return cache.size();
+        return table.length();
+    }
+
+    public long getHitCount(){
+        return hits.sum();
+    }
+
+    public long getRequestCount(){
+        return requests.sum();
+    }
+
+    public long getEvictionCount(){
+        return evictions.sum();
     }
 
     @Override
@@ -63,11 +98,12 @@ public class CompletedTxnCacheSupplier implements TxnSupplier{
     public TxnView getTransaction(long txnId,boolean getDestinationTables) throws IOException{
         if(txnId==-1)
             return Txn.ROOT_TRANSACTION;
-        requests.incrementAndGet();
-        TxnView txn=cache.get(txnId); // autobox until Cliff C merge
-        if(txn!=null){
-            hits.incrementAndGet();
-            return txn;
+        requests.increment();
+        Entry entry=find(txnId);
+        //compact entries don't keep destination tables, so we have to go to the delegate for those
+        if(entry!=null && (!getDestinationTables || entry.original!=null)){
+            hits.increment();
+            return entry.view();
         }
         //bummer, we aren't in the cache, need to check the delegate
         TxnView transaction=delegate.getTransaction(txnId,getDestinationTables);
@@ -77,28 +113,142 @@ public class CompletedTxnCacheSupplier implements TxnSupplier{
         switch(transaction.getEffectiveState()){
             case COMMITTED:
             case ROLLEDBACK:
-                cache.put(transaction.getTxnId(),transaction); // Cache for Future Use
+                insert(transaction); // Cache for Future Use
         }
         return transaction;
     }
 
     @Override
     public boolean transactionCached(long txnId){
-        return cache.get(txnId)!=null;
+        return find(txnId)!=null;
     }
 
     @Override
     public void cache(TxnView toCache){
         if(toCache.getState()==Txn.State.ACTIVE) return; //cannot cache incomplete transactions
-        cache.put(toCache.getTxnId(),toCache);
+        insert(toCache);
     }
 
     @Override
     public TxnView getTransactionFromCache(long txnId){
-        requests.incrementAndGet();
-        TxnView txn=cache.get(txnId);
-        if(txn!=null)
-            hits.incrementAndGet();
-        return txn;
+        requests.increment();
+        Entry entry=find(txnId);
+        if(entry==null) return null;
+        hits.increment();
+        return entry.view();
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private Entry find(long txnId){
+        int base=setFor(txnId)*WAYS;
+        for(int i=0;i<WAYS;i++){
+            Entry e=table.get(base+i);
+            if(e!=null && e.txnId==txnId){
+                if(!e.referenced) //avoid dirtying the cache line on every hit
+                    e.referenced=true;
+                return e;
+            }
+        }
+        return null;
+    }
+
+    private void insert(TxnView txn){
+        long txnId=txn.getTxnId();
+        Entry newEntry=Entry.create(txn);
+        int set=setFor(txnId);
+        int base=set*WAYS;
+        for(int i=0;i<WAYS;i++){
+            int slot=base+i;
+            Entry e=table.get(slot);
+            if(e==null){
+                if(table.compareAndSet(slot,null,newEntry)) return;
+            }else if(e.txnId==txnId){
+                table.compareAndSet(slot,e,newEntry); //replace it, in case it's changed
+                return;
+            }
+        }
+        /*
+         * The set is full, so move the clock hand around the set looking for an entry which
+         * hasn't been referenced since the hand last passed it, clearing reference bits as we go. After
+         * two full revolutions we've either found one, or we are losing races and just give up.
+         */
+        for(int attempt=0;attempt<2*WAYS;attempt++){
+            int slot=base+(clockHands.getAndIncrement(set)&(WAYS-1));
+            Entry e=table.get(slot);
+            if(e!=null && e.referenced){
+                e.referenced=false;
+                continue;
+            }
+            if(table.compareAndSet(slot,e,newEntry)){
+                if(e!=null)
+                    evictions.increment();
+                return;
+            }
+        }
+    }
+
+    private int setFor(long txnId){
+        //transaction ids are sequential (with a fixed stride), so spread them across the sets
+        long h=txnId*0x9E3779B97F4A7C15L;
+        return (int)(h^(h>>>32))&setMask;
+    }
+
+    private static final class Entry{
+        private static final int ADDITIVE=0x01;
+        private static final int ALLOWS_WRITES=0x02;
+
+        private final long txnId;
+        private final long beginTimestamp;
+        private final long commitTimestamp;
+        private final long globalCommitTimestamp;
+        private final Txn.State state;
+        private final Txn.IsolationLevel isolationLevel;
+        private final byte flags;
+        /*
+         * Non-null only for transactions which cannot be held compactly (i.e. child transactions)
+         */
+        private final TxnView original;
+        /*
+         * The view built from the compact form. Racing threads may each build one, but they
+         * are equivalent, so whichever gets published last wins.
+         */
+        private TxnView view;
+        private volatile boolean referenced;
+
+        private Entry(long txnId,long beginTimestamp,long commitTimestamp,long globalCommitTimestamp,
+                      Txn.State state,Txn.IsolationLevel isolationLevel,byte flags,TxnView original){
+            this.txnId=txnId;
+            this.beginTimestamp=beginTimestamp;
+            this.commitTimestamp=commitTimestamp;
+            this.globalCommitTimestamp=globalCommitTimestamp;
+            this.state=state;
+            this.isolationLevel=isolationLevel;
+            this.flags=flags;
+            this.original=original;
+        }
+
+        static Entry create(TxnView txn){
+            if(!Txn.ROOT_TRANSACTION.equals(txn.getParentTxnView()))
+                return new Entry(txn.getTxnId(),txn.getBeginTimestamp(),-1l,-1l,txn.getState(),null,(byte)0,txn);
+            byte flags=0;
+            if(txn.isAdditive()) flags|=ADDITIVE;
+            if(txn.allowsWrites()) flags|=ALLOWS_WRITES;
+            return new Entry(txn.getTxnId(),txn.getBeginTimestamp(),txn.getCommitTimestamp(),txn.getGlobalCommitTimestamp(),
+                    txn.getState(),txn.getIsolationLevel(),flags,null);
+        }
+
+        TxnView view(){
+            if(original!=null) return original;
+            TxnView v=view;
+            if(v==null){
+                v=new InheritingTxnView(Txn.ROOT_TRANSACTION,txnId,beginTimestamp,isolationLevel,
+                        true,(flags&ADDITIVE)!=0,
+                        true,(flags&ALLOWS_WRITES)!=0,
+                        commitTimestamp,globalCommitTimestamp,state);
+                view=v;
+            }
+            return v;
+        }
     }
 }
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.si.api.readresolve;
+
+import com.splicemachine.primitives.Bytes;
+import com.splicemachine.si.api.txn.TxnSupplier;
+import com.splicemachine.si.impl.rollforward.RollForwardStatus;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import com.splicemachine.storage.Partition;
+import com.splicemachine.utils.ByteSlice;
+import com.splicemachine.utils.GreenLight;
+import com.splicemachine.utils.TrafficControl;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@Category(ArchitectureIndependent.class)
+public class AsyncReadResolverTest{
+
+    @Test
+    public void testRowsAreCoalescedByTransactionAndDeduplicated() throws Exception{
+        RecordingResolver keyedResolver=new RecordingResolver();
+        AsyncReadResolver asyncResolver=new AsyncReadResolver(1,64,mock(TxnSupplier.class),
+                new RollForwardStatus(),GreenLight.INSTANCE,keyedResolver);
+        asyncResolver.start();
+        try{
+            Partition region=mock(Partition.class);
+            when(region.getName()).thenReturn("region");
+            ReadResolver resolver=asyncResolver.getResolver(region,mock(RollForward.class));
+
+            //the first row holds up the handler, so that the rest of them reach it in a single batch
+            resolver.resolve(row("first"),1L);
+            Assert.assertTrue("Handler did not start",keyedResolver.started.await(10,TimeUnit.SECONDS));
+            resolver.resolve(row("a"),2L);
+            resolver.resolve(row("b"),2L);
+            resolver.resolve(row("a"),2L);
+            resolver.resolve(row("c"),3L);
+            keyedResolver.proceed.countDown();
+
+            Assert.assertTrue("Rows were not resolved",keyedResolver.finished.await(10,TimeUnit.SECONDS));
+        }finally{
+            asyncResolver.shutdown();
+        }
+        synchronized(keyedResolver){
+            Assert.assertEquals("Rows were not grouped by transaction",3,keyedResolver.batches.size());
+            Assert.assertEquals("Duplicate row was resolved",2,keyedResolver.batches.get(2L).size());
+            Assert.assertEquals(1,keyedResolver.batches.get(3L).size());
+        }
+        Assert.assertEquals(1L,asyncResolver.getDuplicateEvents());
+        Assert.assertEquals(4L,asyncResolver.getResolvedRows());
+    }
+
+    private static ByteSlice row(String key){
+        return ByteSlice.wrap(Bytes.toBytes(key));
+    }
+
+    private static class RecordingResolver implements KeyedReadResolver{
+        final CountDownLatch started=new CountDownLatch(1);
+        final CountDownLatch proceed=new CountDownLatch(1);
+        final CountDownLatch finished=new CountDownLatch(3);
+        final Map<Long,List<ByteSlice>> batches=new HashMap<>();
+
+        @Override
+        public boolean resolve(Partition region,ByteSlice rowKey,long txnId,TxnSupplier supplier,RollForwardStatus status,boolean failOnError,TrafficControl trafficControl){
+            throw new UnsupportedOperationException("Rows should be resolved in batches");
+        }
+
+        @Override
+        public int resolve(Partition region,Collection<ByteSlice> rowKeys,long txnId,TxnSupplier supplier,RollForwardStatus status,boolean failOnError,TrafficControl trafficControl){
+            started.countDown();
+            try{
+                proceed.await();
+            }catch(InterruptedException e){
+                Thread.currentThread().interrupt();
+                return 0;
+            }
+            synchronized(this){
+                batches.put(txnId,new ArrayList<>(rowKeys));
+            }
+            finished.countDown();
+            return rowKeys.size();
+        }
+    }
+}
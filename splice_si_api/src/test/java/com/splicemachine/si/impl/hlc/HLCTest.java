@@ -15,9 +15,12 @@
 
 package com.splicemachine.si.impl.hlc;
 
+import com.splicemachine.concurrent.IncrementingClock;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * Created by jleach on 4/21/16.
  */
@@ -33,4 +36,28 @@ public class HLCTest {
             value = comparison;
         }
     }
+
+    @Test
+    public void receiveEventMovesPastMessage() {
+        IncrementingClock clock = new IncrementingClock();
+        clock.increment(TimeUnit.MILLISECONDS.toNanos(10));
+        HLC hlc = new HLC(clock);
+        long local = hlc.sendOrLocalEvent();
+
+        // a message from a clock which is ahead of ours
+        long ahead = HLC.physicalAndLogicalToHLC(20, 5);
+        long received = hlc.receiveEvent(ahead);
+        Assert.assertTrue("did not move past the message",received>ahead);
+        Assert.assertTrue("went backwards, catastophic",received>local);
+
+        // a message with the same physical time, but further along logically
+        long sameTime = HLC.physicalAndLogicalToHLC(20, 9);
+        long next = hlc.receiveEvent(sameTime);
+        Assert.assertTrue("did not move past the message",next>sameTime);
+        Assert.assertTrue("went backwards, catastophic",next>received);
+
+        // a message from the past only ticks the clock
+        Assert.assertTrue("went backwards, catastophic",hlc.receiveEvent(local)>next);
+        Assert.assertTrue("went backwards, catastophic",hlc.sendOrLocalEvent()>next);
+    }
 }
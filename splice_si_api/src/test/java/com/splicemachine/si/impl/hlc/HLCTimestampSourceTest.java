@@ -0,0 +1,179 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.si.impl.hlc;
+
+import com.splicemachine.concurrent.IncrementingClock;
+import com.splicemachine.si.api.data.ExceptionFactory;
+import com.splicemachine.si.api.txn.Txn;
+import com.splicemachine.si.api.txn.TxnStore;
+import com.splicemachine.si.impl.ClientTxnLifecycleManager;
+import com.splicemachine.si.impl.ManualKeepAliveScheduler;
+import com.splicemachine.si.impl.store.TestingTimestampSource;
+import com.splicemachine.si.impl.store.TestingTxnStore;
+import com.splicemachine.si.impl.txn.ReadOnlyTxn;
+import com.splicemachine.si.impl.txn.WritableTxn;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import com.splicemachine.timestamp.api.TimestampIOException;
+import com.splicemachine.timestamp.api.TimestampSource;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+@Category(ArchitectureIndependent.class)
+public class HLCTimestampSourceTest{
+    private static final long MAX_SKEW=100;
+    private static final long NOW=TimeUnit.DAYS.toMillis(365*50); //late 2019
+
+    @Test
+    public void timestampsAreUniqueAcrossNodes() throws Exception{
+        IncrementingClock clock=newClock();
+        HLCTimestampSource first=new HLCTimestampSource(clock,1,MAX_SKEW,new TestingTimestampSource());
+        HLCTimestampSource second=new HLCTimestampSource(clock,2,MAX_SKEW,new TestingTimestampSource());
+        Set<Long> seen=new HashSet<>();
+        long lastFirst=0;
+        long lastSecond=0;
+        for(int i=0;i<10000;i++){
+            long a=first.nextTimestamp();
+            long b=second.nextTimestamp();
+            Assert.assertTrue("went backwards",a>lastFirst);
+            Assert.assertTrue("went backwards",b>lastSecond);
+            Assert.assertTrue("Duplicate timestamp "+a,seen.add(a));
+            Assert.assertTrue("Duplicate timestamp "+b,seen.add(b));
+            lastFirst=a;
+            lastSecond=b;
+            if(i%100==0)
+                clock.increment(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+
+    @Test
+    public void timestampsSpreadOverBuckets() throws Exception{
+        IncrementingClock clock=newClock();
+        HLCTimestampSource source=new HLCTimestampSource(clock,1,MAX_SKEW,new TestingTimestampSource());
+        Set<Long> buckets=new HashSet<>();
+        for(int i=0;i<64;i++){
+            buckets.add(source.nextTimestamp()&0xF);
+            clock.increment(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        Assert.assertEquals("Timestamps of one node should use every bucket",16,buckets.size());
+    }
+
+    @Test
+    public void observedTimestampsAreOrderedBefore() throws Exception{
+        IncrementingClock aheadClock=newClock();
+        aheadClock.increment(TimeUnit.MILLISECONDS.toNanos(MAX_SKEW/2));
+        HLCTimestampSource ahead=new HLCTimestampSource(aheadClock,1,MAX_SKEW,new TestingTimestampSource());
+        HLCTimestampSource behind=new HLCTimestampSource(newClock(),2,MAX_SKEW,new TestingTimestampSource());
+
+        long remote=ahead.nextTimestamp();
+        Assert.assertTrue("Clock behind should generate smaller timestamps",behind.nextTimestamp()<remote);
+        behind.observeTimestamp(remote);
+        Assert.assertTrue("Did not move past the observed timestamp",behind.nextTimestamp()>remote);
+    }
+
+    @Test
+    public void childTransactionsAreOrderedAfterTheirParent() throws Exception{
+        IncrementingClock aheadClock=newClock();
+        aheadClock.increment(TimeUnit.MILLISECONDS.toNanos(MAX_SKEW/2));
+        HLCTimestampSource ahead=new HLCTimestampSource(aheadClock,1,MAX_SKEW,new TestingTimestampSource());
+        HLCTimestampSource behind=new HLCTimestampSource(newClock(),2,MAX_SKEW,new TestingTimestampSource());
+        ClientTxnLifecycleManager lifecycleManager=newLifecycleManager(behind);
+
+        long parentTs=ahead.nextTimestamp();
+        Txn parent=new WritableTxn(parentTs,parentTs,Txn.IsolationLevel.SNAPSHOT_ISOLATION,Txn.ROOT_TRANSACTION,
+                lifecycleManager,false,mock(ExceptionFactory.class));
+        Txn child=lifecycleManager.beginChildTransaction(parent,new byte[]{1});
+        Assert.assertTrue("Child began before its parent",child.getBeginTimestamp()>parent.getBeginTimestamp());
+    }
+
+    @Test
+    public void elevatedTransactionsAreOrderedBeforeLaterOnes() throws Exception{
+        IncrementingClock aheadClock=newClock();
+        aheadClock.increment(TimeUnit.MILLISECONDS.toNanos(MAX_SKEW/2));
+        HLCTimestampSource ahead=new HLCTimestampSource(aheadClock,1,MAX_SKEW,new TestingTimestampSource());
+        HLCTimestampSource behind=new HLCTimestampSource(newClock(),2,MAX_SKEW,new TestingTimestampSource());
+        ClientTxnLifecycleManager lifecycleManager=newLifecycleManager(behind);
+
+        long remoteTs=ahead.nextTimestamp();
+        Txn readOnly=ReadOnlyTxn.createReadOnlyParentTransaction(remoteTs,remoteTs,Txn.IsolationLevel.SNAPSHOT_ISOLATION,
+                lifecycleManager,mock(ExceptionFactory.class),false);
+        lifecycleManager.elevateTransaction(readOnly,new byte[]{1});
+        Assert.assertTrue("Did not move past the elevated transaction",behind.nextTimestamp()>remoteTs);
+    }
+
+    @Test(expected=TimestampIOException.class)
+    public void refusesTimestampsBeyondSkew() throws Exception{
+        IncrementingClock aheadClock=newClock();
+        aheadClock.increment(TimeUnit.MILLISECONDS.toNanos(2*MAX_SKEW));
+        HLCTimestampSource ahead=new HLCTimestampSource(aheadClock,1,MAX_SKEW,new TestingTimestampSource());
+        HLCTimestampSource behind=new HLCTimestampSource(newClock(),2,MAX_SKEW,new TestingTimestampSource());
+
+        behind.observeTimestamp(ahead.nextTimestamp());
+    }
+
+    @Test
+    public void ignoresTimestampServerTimestamps() throws Exception{
+        HLCTimestampSource source=new HLCTimestampSource(newClock(),1,MAX_SKEW,new TestingTimestampSource());
+        long oracleTs=new TestingTimestampSource().nextTimestamp();
+        source.observeTimestamp(oracleTs);
+        Assert.assertTrue("Clock timestamps should be larger than timestamp server ones",source.nextTimestamp()>oracleTs);
+    }
+
+    @Test
+    public void commitWaitsOutTheSkew() throws Exception{
+        IncrementingClock clock=newClock();
+        HLCTimestampSource source=new HLCTimestampSource(clock,1,MAX_SKEW,new TestingTimestampSource());
+        long commitTs=source.nextTimestamp();
+        source.awaitCommit(commitTs);
+        Assert.assertTrue("Did not wait out the skew",clock.currentTimeMillis()>NOW+MAX_SKEW);
+
+        //every clock within the skew is now past the commit
+        IncrementingClock slowest=new IncrementingClock();
+        slowest.increment(TimeUnit.MILLISECONDS.toNanos(clock.currentTimeMillis()-MAX_SKEW));
+        HLCTimestampSource other=new HLCTimestampSource(slowest,2,MAX_SKEW,new TestingTimestampSource());
+        Assert.assertTrue("Commit was not ordered before a later transaction",other.nextTimestamp()>commitTs);
+    }
+
+    @Test
+    public void remembersThroughMemory() throws Exception{
+        TestingTimestampSource memory=new TestingTimestampSource();
+        HLCTimestampSource source=new HLCTimestampSource(newClock(),1,MAX_SKEW,memory);
+        source.rememberTimestamp(1234L);
+        Assert.assertEquals(1234L,memory.retrieveTimestamp());
+        Assert.assertEquals(1234L,source.retrieveTimestamp());
+    }
+
+    private static ClientTxnLifecycleManager newLifecycleManager(TimestampSource timestampSource){
+        ExceptionFactory exceptionFactory=mock(ExceptionFactory.class);
+        TxnStore store=new TestingTxnStore(new IncrementingClock(),timestampSource,exceptionFactory,Long.MAX_VALUE);
+        ClientTxnLifecycleManager lifecycleManager=new ClientTxnLifecycleManager(timestampSource,exceptionFactory);
+        lifecycleManager.setTxnStore(store);
+        lifecycleManager.setKeepAliveScheduler(new ManualKeepAliveScheduler(store));
+        return lifecycleManager;
+    }
+
+    private static IncrementingClock newClock(){
+        IncrementingClock clock=new IncrementingClock();
+        clock.increment(TimeUnit.MILLISECONDS.toNanos(NOW));
+        return clock;
+    }
+}
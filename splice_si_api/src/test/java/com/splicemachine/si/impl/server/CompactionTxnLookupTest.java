@@ -0,0 +1,181 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.si.impl.server;
+
+import com.splicemachine.si.api.txn.TxnSupplier;
+import com.splicemachine.si.api.txn.TxnView;
+import com.splicemachine.si.impl.store.ActiveTxnCacheSupplier;
+import com.splicemachine.si.impl.txn.CommittedTxn;
+import com.splicemachine.si.testenv.ArchitectureIndependent;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static com.splicemachine.si.constants.SIConstants.TRANSACTION_TABLE_BUCKET_COUNT;
+
+@Category(ArchitectureIndependent.class)
+public class CompactionTxnLookupTest{
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() throws Exception{
+        executor=Executors.newFixedThreadPool(TRANSACTION_TABLE_BUCKET_COUNT);
+    }
+
+    @After
+    public void tearDown() throws Exception{
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testPrefetchedTransactionsAreLookedUpOncePerBucketAtATime() throws Exception{
+        CountingSupplier delegate=new CountingSupplier(null);
+        CompactionTxnLookup lookup=new CompactionTxnLookup(new ActiveTxnCacheSupplier(delegate,1024),delegate,executor,1024,10000);
+        int numTxns=4*TRANSACTION_TABLE_BUCKET_COUNT;
+        for(int i=0;i<numTxns;i++){
+            lookup.prefetch(i);
+            lookup.prefetch(i);
+        }
+        lookup.awaitPrefetched();
+        for(int i=0;i<numTxns;i++){
+            TxnView txn=lookup.getTransaction(i);
+            Assert.assertNotNull("Transaction "+i+" was not looked up",txn);
+            Assert.assertEquals(i,txn.getTxnId());
+            Assert.assertSame("Transaction was not cached",txn,lookup.getTransaction(i));
+        }
+        Assert.assertEquals("Transactions were looked up more than once",numTxns,delegate.lookups.get());
+        Assert.assertEquals("More than one lookup ran against the same bucket",1,delegate.maxConcurrentPerBucket.get());
+    }
+
+    @Test
+    public void testSlowLookupIsDeferred() throws Exception{
+        CountDownLatch release=new CountDownLatch(1);
+        CountingSupplier delegate=new CountingSupplier(release);
+        CompactionTxnLookup lookup=new CompactionTxnLookup(new ActiveTxnCacheSupplier(delegate,1024),delegate,executor,1024,10);
+        lookup.prefetch(1L);
+        lookup.awaitPrefetched();
+        Assert.assertNull("Transaction should not be known yet",lookup.getTransaction(1L));
+
+        release.countDown();
+        TxnView txn=null;
+        long deadline=System.currentTimeMillis()+10000;
+        while(txn==null && System.currentTimeMillis()<deadline){
+            Thread.sleep(5);
+            txn=lookup.getTransaction(1L);
+        }
+        Assert.assertNotNull("Transaction was never looked up",txn);
+        Assert.assertEquals(1,delegate.lookups.get());
+    }
+
+    @Test
+    public void testLookupsBeyondLimitAreSynchronous() throws Exception{
+        CountDownLatch release=new CountDownLatch(1);
+        CountingSupplier delegate=new CountingSupplier(release);
+        CompactionTxnLookup lookup=new CompactionTxnLookup(new ActiveTxnCacheSupplier(delegate,1024),delegate,executor,1,10);
+        lookup.prefetch(1L);
+        lookup.prefetch(2L);
+        lookup.awaitPrefetched();
+        release.countDown();
+        Assert.assertNotNull("Transaction should be looked up synchronously",lookup.getTransaction(2L));
+    }
+
+    @Test
+    public void testCompactionsShareLookupsOfTheSameTransaction() throws Exception{
+        CountDownLatch release=new CountDownLatch(1);
+        CountingSupplier delegate=new CountingSupplier(release);
+        CompactionTxnLookup.InFlightLookups inFlight=new CompactionTxnLookup.InFlightLookups();
+        CompactionTxnLookup first=new CompactionTxnLookup(new ActiveTxnCacheSupplier(delegate,1024),delegate,executor,1024,10000,inFlight);
+        CompactionTxnLookup second=new CompactionTxnLookup(new ActiveTxnCacheSupplier(delegate,1024),delegate,executor,1024,10000,inFlight);
+        first.prefetch(1L);
+        second.prefetch(1L);
+        second.prefetch(2L);
+        release.countDown();
+        first.awaitPrefetched();
+        second.awaitPrefetched();
+
+        Assert.assertEquals(1L,first.getTransaction(1L).getTxnId());
+        Assert.assertEquals(1L,second.getTransaction(1L).getTxnId());
+        Assert.assertEquals(2L,second.getTransaction(2L).getTxnId());
+        Assert.assertEquals("The shared transaction should be looked up once",2,delegate.lookups.get());
+
+        //once a lookup has finished, the transaction can be looked up again
+        CompactionTxnLookup third=new CompactionTxnLookup(new ActiveTxnCacheSupplier(delegate,1024),delegate,executor,1024,10000,inFlight);
+        third.prefetch(1L);
+        third.awaitPrefetched();
+        Assert.assertEquals(1L,third.getTransaction(1L).getTxnId());
+        Assert.assertEquals(3,delegate.lookups.get());
+    }
+
+    private static class CountingSupplier implements TxnSupplier{
+        private final CountDownLatch release;
+        private final AtomicInteger lookups=new AtomicInteger();
+        private final AtomicIntegerArray runningPerBucket=new AtomicIntegerArray(TRANSACTION_TABLE_BUCKET_COUNT);
+        private final AtomicInteger maxConcurrentPerBucket=new AtomicInteger();
+
+        CountingSupplier(CountDownLatch release){
+            this.release=release;
+        }
+
+        @Override
+        public TxnView getTransaction(long txnId) throws IOException{
+            return getTransaction(txnId,false);
+        }
+
+        @Override
+        public TxnView getTransaction(long txnId,boolean getDestinationTables) throws IOException{
+            int bucket=(int)(txnId&(TRANSACTION_TABLE_BUCKET_COUNT-1));
+            int running=runningPerBucket.incrementAndGet(bucket);
+            int max;
+            while((max=maxConcurrentPerBucket.get())<running && !maxConcurrentPerBucket.compareAndSet(max,running));
+            try{
+                if(release!=null)
+                    release.await(10,TimeUnit.SECONDS);
+                else
+                    Thread.sleep(1);
+            }catch(InterruptedException e){
+                throw new IOException(e);
+            }finally{
+                runningPerBucket.decrementAndGet(bucket);
+            }
+            lookups.incrementAndGet();
+            return new CommittedTxn(txnId,txnId+1);
+        }
+
+        @Override
+        public boolean transactionCached(long txnId){
+            return false;
+        }
+
+        @Override
+        public void cache(TxnView toCache){
+        }
+
+        @Override
+        public TxnView getTransactionFromCache(long txnId){
+            return null;
+        }
+    }
+}
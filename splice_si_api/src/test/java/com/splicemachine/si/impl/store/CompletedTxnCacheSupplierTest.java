@@ -17,6 +17,8 @@ package com.splicemachine.si.impl.store;
 
 import com.splicemachine.concurrent.IncrementingClock;
 import com.splicemachine.si.api.txn.*;
+import com.splicemachine.si.impl.txn.CommittedTxn;
+import com.splicemachine.si.impl.txn.InheritingTxnView;
 import com.splicemachine.si.impl.txn.WritableTxn;
 import com.splicemachine.si.testenv.ArchitectureIndependent;
 import org.junit.Assert;
@@ -160,4 +162,35 @@ public class CompletedTxnCacheSupplierTest{
         TxnView fromCache=store.getTransaction(txn.getTxnId());
         assertTxnsMatch("Transaction from store is not correct!",txn,fromCache);
     }
+
+    @Test
+    public void testEvictsWhenFull() throws Exception{
+        CompletedTxnCacheSupplier store=new CompletedTxnCacheSupplier(mock(TxnSupplier.class),16,16);
+        int cached=0;
+        for(int i=1;i<=1000;i++){
+            TxnView txn=new CommittedTxn(i*0x100l,i*0x100l+1);
+            store.cache(txn);
+            //the most recently cached transaction is never the one evicted
+            assertTxnsMatch("Incorrect cached transaction",txn,store.getTransactionFromCache(txn.getTxnId()));
+        }
+        for(int i=1;i<=1000;i++){
+            if(store.transactionCached(i*0x100l)) cached++;
+        }
+        Assert.assertTrue("Cache exceeded its size: "+cached,cached<=store.getMaxSize());
+        Assert.assertTrue("Cache did not evict anything!",store.getEvictionCount()>0);
+        Assert.assertEquals(1000,store.getHitCount());
+    }
+
+    @Test
+    public void testCachesChildTransactionsWithTheirParent() throws Exception{
+        TxnView parent=new CommittedTxn(0x100l,0x300l);
+        TxnView child=new InheritingTxnView(parent,0x200l,0x200l,Txn.IsolationLevel.SNAPSHOT_ISOLATION,
+                false,false,true,true,0x250l,-1l,Txn.State.COMMITTED);
+        TxnSupplier store=new CompletedTxnCacheSupplier(mock(TxnSupplier.class),10,16);
+        store.cache(child);
+
+        TxnView fromCache=store.getTransactionFromCache(child.getTxnId());
+        Assert.assertSame("Child transaction should be held as-is",child,fromCache);
+        Assert.assertEquals("Incorrect effective commit timestamp",0x300l,fromCache.getEffectiveCommitTimestamp());
+    }
 }
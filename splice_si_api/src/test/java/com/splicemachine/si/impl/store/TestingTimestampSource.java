@@ -47,4 +47,14 @@ public class TestingTimestampSource implements TimestampSource{
     public void shutdown() {
 
     }
+
+    @Override
+    public void observeTimestamp(long timestamp) {
+
+    }
+
+    @Override
+    public void awaitCommit(long commitTimestamp) {
+
+    }
 }
@@ -30,5 +30,39 @@ public interface TimestampClientStatistics{
 	long getNumberTimestampRequests();
 	
  	double getAvgTimestampRequestDuration();
+
+	/**
+	 * @return the number of requests which took each duration, in microseconds. Element 0 counts requests
+	 * which took less than a microsecond, and element {@code i>0} counts requests which took
+	 * {@code [2^(i-1), 2^i)} microseconds.
+	 */
+	long[] getTimestampRequestDurationHistogram();
+
+	/**
+	 * @return an upper bound on the median duration of a request, in microseconds
+	 */
+	long getTimestampRequestDurationP50Micros();
+
+	/**
+	 * @return an upper bound on the 99th percentile duration of a request, in microseconds
+	 */
+	long getTimestampRequestDurationP99Micros();
+
+	/**
+	 * @return the number of requests for a range of timestamps sent to the server on behalf of
+	 * concurrent callers. This is 0 unless client batching is enabled.
+	 */
+	long getNumberTimestampBatches();
+
+	/**
+	 * @return the average number of callers served by each batch
+	 */
+	double getAvgTimestampBatchSize();
+
+	/**
+	 * @return the number of batches of each size, bucketed in the same way as
+	 * {@link #getTimestampRequestDurationHistogram()}
+	 */
+	long[] getTimestampBatchSizeHistogram();
 	
 }
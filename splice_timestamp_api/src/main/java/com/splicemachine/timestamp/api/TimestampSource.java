@@ -23,4 +23,20 @@ public interface TimestampSource {
     void rememberTimestamp(long timestamp);
     long retrieveTimestamp();
     void shutdown();
+
+    /**
+     * Take note of a timestamp which was generated by another node, so that the timestamps generated here from
+     * now on are larger than it. Sources which hand out all timestamps from a single place have nothing to do.
+     *
+     * @throws TimestampIOException if the timestamp could not have been generated by a node whose clock is
+     * within the allowed skew of this one.
+     */
+    void observeTimestamp(long timestamp) throws TimestampIOException;
+
+    /**
+     * Wait until no node can generate a timestamp which is smaller than the given commit timestamp, so that a
+     * transaction which begins anywhere after a commit has returned is ordered after it. Sources which hand
+     * out all timestamps from a single place have nothing to wait for.
+     */
+    void awaitCommit(long commitTimestamp);
 }
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.timestamp.impl;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A concurrent histogram of non-negative values, with buckets at powers of two: bucket 0 counts
+ * the value 0, and bucket {@code i>0} counts values in {@code [2^(i-1), 2^i)}. Recording is a single
+ * uncontended add, so it is cheap enough to do on every request.
+ */
+class PowerOfTwoHistogram{
+    private static final int NUM_BUCKETS=64;
+
+    private final LongAdder[] buckets=new LongAdder[NUM_BUCKETS];
+    private final LongAdder count=new LongAdder();
+    private final LongAdder total=new LongAdder();
+
+    PowerOfTwoHistogram(){
+        for(int i=0;i<NUM_BUCKETS;i++){
+            buckets[i]=new LongAdder();
+        }
+    }
+
+    void record(long value){
+        if(value<0) value=0;
+        buckets[64-Long.numberOfLeadingZeros(value)].increment();
+        count.increment();
+        total.add(value);
+    }
+
+    long count(){
+        return count.sum();
+    }
+
+    double mean(){
+        long c=count.sum();
+        return c==0?0d:((double)total.sum())/c;
+    }
+
+    /**
+     * @return the bucket counts, trimmed after the highest non-empty bucket
+     */
+    long[] buckets(){
+        long[] counts=new long[NUM_BUCKETS];
+        int length=0;
+        for(int i=0;i<NUM_BUCKETS;i++){
+            counts[i]=buckets[i].sum();
+            if(counts[i]>0) length=i+1;
+        }
+        long[] trimmed=new long[length];
+        System.arraycopy(counts,0,trimmed,0,length);
+        return trimmed;
+    }
+
+    /**
+     * @return an upper bound on the given percentile (between 0 and 1) of the recorded values, i.e. the
+     * upper end of the bucket which holds it.
+     */
+    long percentile(double percentile){
+        long[] counts=buckets();
+        long c=0;
+        for(long bucketCount:counts){
+            c+=bucketCount;
+        }
+        if(c==0) return 0;
+        long rank=Math.max(1,(long)Math.ceil(percentile*c));
+        long seen=0;
+        for(int i=0;i<counts.length;i++){
+            seen+=counts[i];
+            if(seen>=rank)
+                return i==0?0:(i==63?Long.MAX_VALUE:(1L<<i)-1);
+        }
+        return Long.MAX_VALUE;
+    }
+}
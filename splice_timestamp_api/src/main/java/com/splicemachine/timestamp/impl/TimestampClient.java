@@ -17,6 +17,9 @@ package com.splicemachine.timestamp.impl;
 
 import java.lang.management.ManagementFactory;
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -53,6 +56,13 @@ import org.apache.log4j.Logger;
  * For the caller, the invocation of {@link #getNextTimestamp()}
  * is synchronous.
  * <p>
+ * By default, each caller sends its own request to the server. When batching is enabled, callers
+ * which arrive while a request is outstanding queue up, and are all served by the next request, which
+ * asks the server for a contiguous range of timestamps (one per caller). Since each timestamp is still
+ * allocated by the server between the moment its caller asked for it and the moment it is returned,
+ * timestamps remain ordered with those handed out to other servers. Batching requires a server which
+ * understands range requests.
+ * <p>
  * This class should generally not be constructed directly.
  *
  * @author Walt Koetke
@@ -102,12 +112,26 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
     // for solid definitions of each metric.
     private AtomicLong numRequests = new AtomicLong(0);
     private AtomicLong totalRequestDuration = new AtomicLong(0);
+    private final PowerOfTwoHistogram requestDurationMicros = new PowerOfTwoHistogram();
+    private final PowerOfTwoHistogram batchSizes = new PowerOfTwoHistogram();
     private TimestampHostProvider timestampHostProvider;
 
+    /**
+     * The most callers to serve with a single request, or 1 to send one request per caller.
+     */
+    private final int maxBatchSize;
+    private final Queue<BatchedCaller> waitingCallers = new ConcurrentLinkedQueue<>();
+    private final AtomicReference<BatchCallback> inFlightBatch = new AtomicReference<>();
+
 
     public TimestampClient(int timeoutMillis,TimestampHostProvider timestampHostProvider) {
+        this(timeoutMillis,timestampHostProvider,1);
+    }
+
+    public TimestampClient(int timeoutMillis,TimestampHostProvider timestampHostProvider,int maxBatchSize) {
         this.timeoutMillis = timeoutMillis;
         this.timestampHostProvider = timestampHostProvider;
+        this.maxBatchSize = Math.max(1,Math.min(maxBatchSize,TimestampServer.MAX_BATCH_SIZE));
         clientCallbacks = new ConcurrentHashMap<>();
 
         ExecutorService workerExecutor = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat("timestampClient-worker-%d").setDaemon(true).build());
@@ -209,13 +233,17 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
     }
 
     public long getNextTimestamp() throws TimestampIOException {
+        if (maxBatchSize > 1) {
+            return getNextBatchedTimestamp();
+        }
 
         // Measure duration of full client request for JMX
         long requestStartTime = System.currentTimeMillis();
+        long requestStartNanos = System.nanoTime();
 
         connectIfNeeded();
 
-        short clientCallId = (short) clientCallCounter.getAndIncrement();
+        short clientCallId = nextCallerId();
         final ClientCallback callback = new ClientCallback(clientCallId);
         SpliceLogUtils.debug(LOG, "Starting new client call with id %s", clientCallId);
 
@@ -273,10 +301,116 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
         // Since request was successful, update JMX metrics
         numRequests.incrementAndGet();
         totalRequestDuration.addAndGet(System.currentTimeMillis() - requestStartTime);
+        requestDurationMicros.record((System.nanoTime() - requestStartNanos) / 1000);
+
+        return timestamp;
+    }
+
+    private long getNextBatchedTimestamp() throws TimestampIOException {
+        long requestStartTime = System.currentTimeMillis();
+        long requestStartNanos = System.nanoTime();
+
+        connectIfNeeded();
+
+        BatchedCaller caller = new BatchedCaller();
+        waitingCallers.add(caller);
+        sendBatchIfIdle();
+
+        try {
+            boolean success = caller.await(timeoutMillis);
+            if (!success) {
+                abandon(caller);
+                doClientErrorThrow(LOG, "Client timed out after %s ms waiting for new timestamp: %s", null, timeoutMillis, caller);
+            }
+        } catch (InterruptedException e) {
+            abandon(caller);
+            doClientErrorThrow(LOG, "Interrupted waiting for timestamp client: %s", e, caller);
+        }
+
+        long timestamp = caller.getNewTimestamp();
+        if (timestamp < 0) {
+            doClientErrorThrow(LOG, "Invalid timestamp found for client: %s", caller.getException(), caller);
+        }
+
+        numRequests.incrementAndGet();
+        totalRequestDuration.addAndGet(System.currentTimeMillis() - requestStartTime);
+        requestDurationMicros.record((System.nanoTime() - requestStartNanos) / 1000);
 
         return timestamp;
     }
 
+    /**
+     * Send a request on behalf of all waiting callers, unless a request is already outstanding (in which
+     * case the callers will be picked up when it completes).
+     */
+    private void sendBatchIfIdle() {
+        while (!waitingCallers.isEmpty()) {
+            BatchCallback batch = new BatchCallback(nextCallerId());
+            if (!inFlightBatch.compareAndSet(null, batch)) return;
+
+            BatchedCaller caller;
+            while (batch.callers.size() < maxBatchSize && (caller = waitingCallers.poll()) != null) {
+                caller.batch = batch;
+                batch.callers.add(caller);
+            }
+            if (batch.callers.isEmpty()) {
+                // someone else took the callers, so look again
+                inFlightBatch.compareAndSet(batch, null);
+                continue;
+            }
+            sendBatch(batch);
+            return;
+        }
+    }
+
+    private void sendBatch(final BatchCallback batch) {
+        if (clientCallbacks.putIfAbsent(batch.callerId, batch) != null) {
+            batch.error(new TimestampIOException("Found existing client callback with caller id " + batch.callerId));
+            return;
+        }
+        try {
+            ChannelBuffer buffer = ChannelBuffers.buffer(6);
+            buffer.writeShort(TimestampServer.BATCH_REQUEST_MARKER);
+            buffer.writeShort(batch.callerId);
+            buffer.writeShort(batch.callers.size());
+            SpliceLogUtils.trace(LOG, "Writing request message to server for %s callers: %s", batch.callers.size(), batch);
+            ChannelFuture futureWrite = channel.write(buffer);
+            futureWrite.addListener(new ChannelFutureListener() {
+                @Override
+                public void operationComplete(ChannelFuture future) throws Exception {
+                    if (!future.isSuccess()) {
+                        clientCallbacks.remove(batch.callerId);
+                        batch.error(new TimestampIOException("Error writing message from timestamp client to server", future.getCause()));
+                    }
+                }
+            });
+        } catch (Exception e) { // Correct to catch all Exceptions in this case so we can remove client call
+            clientCallbacks.remove(batch.callerId);
+            batch.error(e);
+        }
+    }
+
+    /**
+     * Called when a caller gives up waiting. If the caller's request has been lost, we don't want it to
+     * hold up everybody else, so we allow another request to be sent.
+     */
+    private void abandon(BatchedCaller caller) {
+        if (waitingCallers.remove(caller)) return; // never sent
+        BatchCallback batch = caller.batch;
+        if (batch != null && inFlightBatch.compareAndSet(batch, null)) {
+            clientCallbacks.remove(batch.callerId, batch);
+            sendBatchIfIdle();
+        }
+    }
+
+    private short nextCallerId() {
+        short callerId = (short) clientCallCounter.getAndIncrement();
+        if (callerId == TimestampServer.BATCH_REQUEST_MARKER) {
+            callerId = (short) clientCallCounter.getAndIncrement();
+        }
+        return callerId;
+    }
+
     @Override
     public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
         ChannelBuffer buf = (ChannelBuffer) e.getMessage();
@@ -353,6 +487,36 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
         return a / b;
     }
 
+    @Override
+    public long[] getTimestampRequestDurationHistogram() {
+        return requestDurationMicros.buckets();
+    }
+
+    @Override
+    public long getTimestampRequestDurationP50Micros() {
+        return requestDurationMicros.percentile(0.5d);
+    }
+
+    @Override
+    public long getTimestampRequestDurationP99Micros() {
+        return requestDurationMicros.percentile(0.99d);
+    }
+
+    @Override
+    public long getNumberTimestampBatches() {
+        return batchSizes.count();
+    }
+
+    @Override
+    public double getAvgTimestampBatchSize() {
+        return batchSizes.mean();
+    }
+
+    @Override
+    public long[] getTimestampBatchSizeHistogram() {
+        return batchSizes.buckets();
+    }
+
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, ExceptionEvent e) throws Exception {
         if(state.get() != State.SHUTDOWN) {
@@ -360,6 +524,64 @@ public class TimestampClient extends TimestampBaseHandler implements TimestampCl
         }
     }
 
+    private static class BatchedCaller extends ClientCallback {
+        private volatile BatchCallback batch;
+
+        BatchedCaller() {
+            super((short) -1);
+        }
+
+        @Override
+        public String toString() {
+            return "Batched" + super.toString();
+        }
+    }
+
+    /**
+     * Receives the response to a request for a range of timestamps, and hands them out to the callers
+     * the request was made for.
+     */
+    private class BatchCallback implements Callback {
+        private final short callerId;
+        private final List<BatchedCaller> callers = new ArrayList<>();
+
+        BatchCallback(short callerId) {
+            this.callerId = callerId;
+        }
+
+        @Override
+        public void complete(long timestamp) {
+            for (int i = 0; i < callers.size(); i++) {
+                callers.get(i).complete(timestamp + i);
+            }
+            batchSizes.record(callers.size());
+            if (inFlightBatch.compareAndSet(this, null)) {
+                sendBatchIfIdle();
+            }
+        }
+
+        @Override
+        public void error(Exception e) {
+            for (BatchedCaller caller : callers) {
+                caller.error(e);
+            }
+            /*
+             * Fail everyone who is waiting as well, rather than immediately retrying on what is
+             * likely to be a broken connection.
+             */
+            BatchedCaller caller;
+            while ((caller = waitingCallers.poll()) != null) {
+                caller.error(e);
+            }
+            inFlightBatch.compareAndSet(this, null);
+        }
+
+        @Override
+        public String toString() {
+            return "BatchCallback (callerId = " + callerId + ", callers = " + callers.size() + ")";
+        }
+    }
+
     public static void doClientErrorThrow(Logger logger, String message, Throwable t, Object... args) throws TimestampIOException {
         if (message == null) message = "";
         TimestampIOException t1 = t != null ? new TimestampIOException(message, t) : new TimestampIOException(message);
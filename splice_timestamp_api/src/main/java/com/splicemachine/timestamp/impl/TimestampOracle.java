@@ -22,6 +22,7 @@ import com.splicemachine.utils.SpliceLogUtils;
 import org.apache.log4j.Logger;
 import java.lang.management.ManagementFactory;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import javax.management.InstanceAlreadyExistsException;
 import javax.management.MBeanRegistrationException;
 import javax.management.MBeanServer;
@@ -44,8 +45,8 @@ public class TimestampOracle implements TimestampOracleStatistics{
 	
 	// Metrics to expose via JMX. See TimestampOracleStatistics
 	// for solid definitions of each metric.
-    private AtomicLong _numBlocksReserved = new AtomicLong(0);
-    private AtomicLong _numTimestampsCreated = new AtomicLong(0);
+    private LongAdder _numBlocksReserved = new LongAdder();
+    private LongAdder _numTimestampsCreated = new LongAdder();
 
     private TimestampBlockManager timestampBlockManager;
     private int blockSize;
@@ -64,7 +65,8 @@ public class TimestampOracle implements TimestampOracleStatistics{
 		return to;
 	}
 	
-	private TimestampOracle(TimestampBlockManager timestampBlockManager, int blockSize) throws TimestampIOException {
+	// visible for testing; everything else shares the singleton
+	TimestampOracle(TimestampBlockManager timestampBlockManager, int blockSize) throws TimestampIOException {
         this.timestampBlockManager=timestampBlockManager;
         this.blockSize = blockSize;
 		initialize();
@@ -88,22 +90,37 @@ public class TimestampOracle implements TimestampOracleStatistics{
     }
 
 	public long getNextTimestamp() throws TimestampIOException {
-		long nextTS = _timestampCounter.getAndIncrement();
-		long maxTS = _maxReservedTimestamp; // avoid the double volatile read
-		if (nextTS > maxTS) {
-			reserveNextBlock(maxTS);
+		return getNextTimestamps(1);
+	}
+
+	/**
+	 * Allocate a contiguous range of timestamps. Allocation is a single atomic add; only the (rare)
+	 * caller whose range crosses the end of the reserved block has to wait for the next block to be reserved.
+	 *
+	 * @param count the number of timestamps to allocate
+	 * @return the first timestamp of the range, which runs through {@code first+count-1}
+	 */
+	public long getNextTimestamps(int count) throws TimestampIOException {
+		assert count>0: "Cannot allocate "+count+" timestamps";
+		long firstTS = _timestampCounter.getAndAdd(count);
+		long lastTS = firstTS+count-1;
+		if (lastTS > _maxReservedTimestamp) {
+			reserveThrough(lastTS);
 		}
-		_numTimestampsCreated.incrementAndGet(); // JMX metric
-		return nextTS;
+		_numTimestampsCreated.add(count); // JMX metric
+		return firstTS;
 	}
 
-    private void reserveNextBlock(long priorMaxReservedTimestamp) throws TimestampIOException {
+    private void reserveThrough(long timestamp) throws TimestampIOException {
         synchronized(this)  {
-            if (_maxReservedTimestamp > priorMaxReservedTimestamp) return; // some other thread got there first
-            long nextMax = _maxReservedTimestamp + blockSize;
+            long currentMax = _maxReservedTimestamp;
+            if (currentMax >= timestamp) return; // some other thread got there first
+            // reserve as many whole blocks as are needed to cover the timestamp, in a single step
+            long numBlocks = (timestamp - currentMax + blockSize - 1) / blockSize;
+            long nextMax = currentMax + numBlocks*blockSize;
             timestampBlockManager.reserveNextBlock(nextMax);
             _maxReservedTimestamp = nextMax;
-            _numBlocksReserved.incrementAndGet(); // JMX metric
+            _numBlocksReserved.increment(); // JMX metric
             SpliceLogUtils.debug(LOG, "Next timestamp block reserved with max = %s", _maxReservedTimestamp);
         }
 	}
@@ -121,11 +138,11 @@ public class TimestampOracle implements TimestampOracleStatistics{
 
 	@Override
 	public long getNumberTimestampsCreated() {
-		return _numTimestampsCreated.get();
+		return _numTimestampsCreated.sum();
 	}
 
 	@Override
 	public long getNumberBlocksReserved() {
-		return _numBlocksReserved.get();
+		return _numBlocksReserved.sum();
 	}
 }
@@ -41,6 +41,18 @@ public class TimestampServer {
      */
     static final int FIXED_MSG_SENT_LENGTH = 10; // 2 byte client id + 8 byte timestamp
 
+    /**
+     * A request for a range of timestamps is sent as three consecutive 2-byte messages: this marker, the
+     * client id and the number of timestamps requested. The response is the same as for a single timestamp,
+     * carrying the first timestamp of the range. Clients never use the marker as a client id.
+     */
+    static final short BATCH_REQUEST_MARKER = Short.MIN_VALUE;
+
+    /**
+     * The largest number of timestamps that may be requested at once.
+     */
+    static final int MAX_BATCH_SIZE = 4096;
+
     private int port;
     private ChannelFactory factory;
     private Channel channel;
@@ -59,11 +59,39 @@ public class TimestampServerHandler extends TimestampBaseHandler {
         assert buf != null;
         ensureReadableBytes(buf, TimestampServer.FIXED_MSG_RECEIVED_LENGTH);
 
-        final short callerId = buf.readShort();
+        final short value = buf.readShort();
         ensureReadableBytes(buf, 0);
 
-        SpliceLogUtils.trace(LOG, "Received timestamp request from client. Caller id = %s", callerId);
-        long nextTimestamp = oracle.getNextTimestamp();
+        /*
+         * Requests for a range of timestamps span several messages, so we keep the part of the request
+         * received so far attached to the channel's context (the handler itself is shared between channels).
+         */
+        BatchRequest batch = (BatchRequest)ctx.getAttachment();
+        final short callerId;
+        int count = 1;
+        if (batch != null) {
+            if (!batch.hasCallerId) {
+                batch.callerId = value;
+                batch.hasCallerId = true;
+                super.messageReceived(ctx, e);
+                return;
+            }
+            ctx.setAttachment(null);
+            callerId = batch.callerId;
+            count = value;
+            if (count < 1 || count > TimestampServer.MAX_BATCH_SIZE) {
+                throw new TimestampIOException("Invalid number of timestamps requested by caller id " + callerId + ": " + count);
+            }
+        } else if (value == TimestampServer.BATCH_REQUEST_MARKER) {
+            ctx.setAttachment(new BatchRequest());
+            super.messageReceived(ctx, e);
+            return;
+        } else {
+            callerId = value;
+        }
+
+        SpliceLogUtils.trace(LOG, "Received request for %s timestamps from client. Caller id = %s", count, callerId);
+        long nextTimestamp = oracle.getNextTimestamps(count);
         assert nextTimestamp > 0;
 
 
@@ -94,4 +122,9 @@ public class TimestampServerHandler extends TimestampBaseHandler {
         SpliceLogUtils.error(LOG, message, t, args);
     }
 
+    private static class BatchRequest {
+        private short callerId;
+        private boolean hasCallerId;
+    }
+
 }
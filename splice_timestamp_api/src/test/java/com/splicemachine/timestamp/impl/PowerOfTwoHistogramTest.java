@@ -0,0 +1,100 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.timestamp.impl;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PowerOfTwoHistogramTest{
+
+    @Test
+    public void emptyHistogram(){
+        PowerOfTwoHistogram histogram=new PowerOfTwoHistogram();
+        Assert.assertEquals(0,histogram.count());
+        Assert.assertEquals(0d,histogram.mean(),0d);
+        Assert.assertArrayEquals(new long[0],histogram.buckets());
+        Assert.assertEquals(0,histogram.percentile(0.5d));
+        Assert.assertEquals(0,histogram.percentile(0.99d));
+    }
+
+    @Test
+    public void valuesFallInPowerOfTwoBuckets(){
+        PowerOfTwoHistogram histogram=new PowerOfTwoHistogram();
+        histogram.record(0);
+        histogram.record(1);
+        histogram.record(2);
+        histogram.record(3);
+        histogram.record(4);
+        histogram.record(7);
+        histogram.record(8);
+        histogram.record(1023);
+        histogram.record(1024);
+
+        long[] expected=new long[12];
+        expected[0]=1;  //0
+        expected[1]=1;  //1
+        expected[2]=2;  //2..3
+        expected[3]=2;  //4..7
+        expected[4]=1;  //8..15
+        expected[10]=1; //512..1023
+        expected[11]=1; //1024..2047
+        Assert.assertArrayEquals(expected,histogram.buckets());
+        Assert.assertEquals(9,histogram.count());
+        Assert.assertEquals((0+1+2+3+4+7+8+1023+1024)/9d,histogram.mean(),1e-9);
+    }
+
+    @Test
+    public void extremeValues(){
+        PowerOfTwoHistogram histogram=new PowerOfTwoHistogram();
+        histogram.record(Long.MAX_VALUE);
+        long[] buckets=histogram.buckets();
+        Assert.assertEquals(64,buckets.length);
+        Assert.assertEquals(1,buckets[63]);
+        Assert.assertEquals(Long.MAX_VALUE,histogram.percentile(0.5d));
+    }
+
+    @Test
+    public void negativeValuesCountAsZero(){
+        PowerOfTwoHistogram histogram=new PowerOfTwoHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MIN_VALUE);
+        Assert.assertArrayEquals(new long[]{2},histogram.buckets());
+        Assert.assertEquals(2,histogram.count());
+        Assert.assertEquals(0d,histogram.mean(),0d);
+        Assert.assertEquals(0,histogram.percentile(1d));
+    }
+
+    @Test
+    public void percentilesAreTheUpperEndOfTheirBucket(){
+        PowerOfTwoHistogram histogram=new PowerOfTwoHistogram();
+        //90 small values, 9 medium ones and one outlier
+        for(int i=0;i<90;i++){
+            histogram.record(5);
+        }
+        for(int i=0;i<9;i++){
+            histogram.record(100);
+        }
+        histogram.record(100000);
+
+        Assert.assertEquals(7,histogram.percentile(0.5d));
+        Assert.assertEquals(7,histogram.percentile(0.9d));
+        Assert.assertEquals(127,histogram.percentile(0.91d));
+        Assert.assertEquals(127,histogram.percentile(0.99d));
+        Assert.assertEquals(131071,histogram.percentile(1d));
+        //the lowest percentile is the first recorded value's bucket
+        Assert.assertEquals(7,histogram.percentile(0d));
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.timestamp.impl;
+
+import com.splicemachine.timestamp.api.TimestampHostProvider;
+import com.splicemachine.timestamp.api.TimestampIOException;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelStateEvent;
+import org.jboss.netty.channel.MessageEvent;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests how the client turns concurrent callers into range requests, and hands out the replies, by
+ * talking to it over a mocked channel instead of a server.
+ */
+public class TimestampClientTest{
+    private static final int TIMEOUT_MILLIS=10000;
+
+    private final BlockingQueue<ChannelBuffer> requests=new LinkedBlockingQueue<>();
+    private final ChannelHandlerContext ctx=Mockito.mock(ChannelHandlerContext.class);
+    private TimestampClient client;
+
+    @After
+    public void tearDown(){
+        if(client!=null)
+            client.shutdown();
+    }
+
+    @Test
+    public void unbatchedCallerSendsItsOwnRequest() throws Exception{
+        client=connectedClient(1,TIMEOUT_MILLIS);
+
+        FutureTask<Long> caller=startCaller();
+        ChannelBuffer request=nextRequest();
+        Assert.assertEquals("Should send a plain request",2,request.readableBytes());
+        reply(request.readShort(),100L);
+
+        Assert.assertEquals(100L,(long)caller.get(TIMEOUT_MILLIS,TimeUnit.MILLISECONDS));
+        Assert.assertEquals(1,client.getNumberTimestampRequests());
+        Assert.assertEquals(0,client.getNumberTimestampBatches());
+    }
+
+    @Test
+    public void loneCallerSendsARangeRequestOfOne() throws Exception{
+        client=connectedClient(8,TIMEOUT_MILLIS);
+
+        FutureTask<Long> caller=startCaller();
+        RangeRequest request=nextRangeRequest();
+        Assert.assertEquals(1,request.count);
+        reply(request.callerId,100L);
+
+        Assert.assertEquals(100L,(long)caller.get(TIMEOUT_MILLIS,TimeUnit.MILLISECONDS));
+        Assert.assertEquals(1,client.getNumberTimestampBatches());
+        Assert.assertNull("Should not send another request",requests.poll(100,TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void callersArrivingDuringARequestShareTheNextOne() throws Exception{
+        client=connectedClient(8,TIMEOUT_MILLIS);
+
+        FutureTask<Long> first=startCaller();
+        RangeRequest firstRequest=nextRangeRequest();
+        Assert.assertEquals(1,firstRequest.count);
+
+        FutureTask<Long> second=startCaller();
+        FutureTask<Long> third=startCaller();
+        FutureTask<Long> fourth=startCaller();
+        Assert.assertNull("Should wait for the outstanding request",requests.poll(100,TimeUnit.MILLISECONDS));
+
+        reply(firstRequest.callerId,100L);
+        Assert.assertEquals(100L,(long)first.get(TIMEOUT_MILLIS,TimeUnit.MILLISECONDS));
+
+        RangeRequest secondRequest=nextRangeRequest();
+        Assert.assertEquals("Should ask for one timestamp per waiting caller",3,secondRequest.count);
+        Assert.assertNotEquals(firstRequest.callerId,secondRequest.callerId);
+        reply(secondRequest.callerId,200L);
+
+        //the range is handed out in the order the callers arrived
+        Assert.assertEquals(200L,(long)second.get(TIMEOUT_MILLIS,TimeUnit.MILLISECONDS));
+        Assert.assertEquals(201L,(long)third.get(TIMEOUT_MILLIS,TimeUnit.MILLISECONDS));
+        Assert.assertEquals(202L,(long)fourth.get(TIMEOUT_MILLIS,TimeUnit.MILLISECONDS));
+
+        Assert.assertEquals(4,client.getNumberTimestampRequests());
+        Assert.assertEquals(2,client.getNumberTimestampBatches());
+        Assert.assertEquals(2d,client.getAvgTimestampBatchSize(),0d);
+        Assert.assertArrayEquals(new long[]{0,1,1},client.getTimestampBatchSizeHistogram());
+    }
+
+    @Test
+    public void batchesAreCappedAtTheMaximumSize() throws Exception{
+        client=connectedClient(2,TIMEOUT_MILLIS);
+
+        FutureTask<Long> first=startCaller();
+        RangeRequest request=nextRangeRequest();
+        FutureTask<Long> second=startCaller();
+        FutureTask<Long> third=startCaller();
+        FutureTask<Long> fourth=startCaller();
+
+        reply(request.callerId,100L);
+        Assert.assertEquals(100L,(long)first.get(TIMEOUT_MILLIS,TimeUnit.MILLISECONDS));
+
+        request=nextRangeRequest();
+        Assert.assertEquals(2,request.count);
+        reply(request.callerId,200L);
+        Assert.assertEquals(200L,(long)second.get(TIMEOUT_MILLIS,TimeUnit.MILLISECONDS));
+        Assert.assertEquals(201L,(long)third.get(TIMEOUT_MILLIS,TimeUnit.MILLISECONDS));
+
+        request=nextRangeRequest();
+        Assert.assertEquals("The caller left out of the full batch should get the next one",1,request.count);
+        reply(request.callerId,300L);
+        Assert.assertEquals(300L,(long)fourth.get(TIMEOUT_MILLIS,TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void lostReplyDoesNotHoldUpLaterCallers() throws Exception{
+        client=connectedClient(8,500);
+
+        FutureTask<Long> lost=startCaller();
+        RangeRequest lostRequest=nextRangeRequest();
+        try{
+            lost.get(TIMEOUT_MILLIS,TimeUnit.MILLISECONDS);
+            Assert.fail("Expected the caller to time out");
+        }catch(ExecutionException e){
+            Assert.assertTrue(e.getCause() instanceof TimestampIOException);
+        }
+
+        FutureTask<Long> next=startCaller();
+        RangeRequest nextRequest=nextRangeRequest();
+        Assert.assertEquals(1,nextRequest.count);
+        Assert.assertNotEquals(lostRequest.callerId,nextRequest.callerId);
+        reply(nextRequest.callerId,200L);
+        Assert.assertEquals(200L,(long)next.get(TIMEOUT_MILLIS,TimeUnit.MILLISECONDS));
+
+        //a late reply to the abandoned request has nobody to go to
+        try{
+            reply(lostRequest.callerId,100L);
+            Assert.fail("Expected the late reply to be rejected");
+        }catch(TimestampIOException expected){
+            //expected
+        }
+    }
+
+    /* ****************************************************************************************************************/
+    /*private helper methods*/
+    private TimestampClient connectedClient(int maxBatchSize,int timeoutMillis) throws Exception{
+        Channel channel=Mockito.mock(Channel.class);
+        final ChannelFuture writeFuture=Mockito.mock(ChannelFuture.class);
+        Mockito.when(channel.write(Mockito.any())).thenAnswer(new Answer<ChannelFuture>(){
+            @Override
+            public ChannelFuture answer(InvocationOnMock invocation) throws Throwable{
+                requests.add((ChannelBuffer)invocation.getArguments()[0]);
+                return writeFuture;
+            }
+        });
+        TimestampClient timestampClient=new TimestampClient(timeoutMillis,
+                Mockito.mock(TimestampHostProvider.class),maxBatchSize);
+        ChannelStateEvent connected=Mockito.mock(ChannelStateEvent.class);
+        Mockito.when(connected.getChannel()).thenReturn(channel);
+        timestampClient.channelConnected(ctx,connected);
+        return timestampClient;
+    }
+
+    /**
+     * Start a caller, and wait until it is waiting for its timestamp.
+     */
+    private FutureTask<Long> startCaller() throws InterruptedException{
+        FutureTask<Long> caller=new FutureTask<>(client::getNextTimestamp);
+        Thread thread=new Thread(caller);
+        thread.setDaemon(true);
+        thread.start();
+        long deadline=System.currentTimeMillis()+TIMEOUT_MILLIS;
+        while(thread.getState()!=Thread.State.TIMED_WAITING && !caller.isDone()){
+            Assert.assertTrue("Caller did not start waiting",System.currentTimeMillis()<deadline);
+            Thread.sleep(1);
+        }
+        return caller;
+    }
+
+    private ChannelBuffer nextRequest() throws InterruptedException{
+        ChannelBuffer request=requests.poll(TIMEOUT_MILLIS,TimeUnit.MILLISECONDS);
+        Assert.assertNotNull("No request was sent",request);
+        return request;
+    }
+
+    private RangeRequest nextRangeRequest() throws InterruptedException{
+        ChannelBuffer request=nextRequest();
+        Assert.assertEquals("Should send a range request",6,request.readableBytes());
+        Assert.assertEquals(TimestampServer.BATCH_REQUEST_MARKER,request.readShort());
+        return new RangeRequest(request.readShort(),request.readShort());
+    }
+
+    private void reply(short callerId,long timestamp) throws Exception{
+        ChannelBuffer buffer=ChannelBuffers.buffer(TimestampServer.FIXED_MSG_SENT_LENGTH);
+        buffer.writeShort(callerId);
+        buffer.writeLong(timestamp);
+        MessageEvent event=Mockito.mock(MessageEvent.class);
+        Mockito.when(event.getMessage()).thenReturn(buffer);
+        client.messageReceived(ctx,event);
+    }
+
+    private static class RangeRequest{
+        private final short callerId;
+        private final short count;
+
+        RangeRequest(short callerId,short count){
+            this.callerId=callerId;
+            this.count=count;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2012 - 2016 Splice Machine, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR
+ * CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package com.splicemachine.timestamp.impl;
+
+import com.splicemachine.timestamp.api.TimestampBlockManager;
+import com.splicemachine.timestamp.api.TimestampIOException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class TimestampOracleTest{
+    private static final int BLOCK_SIZE=100;
+
+    @Test
+    public void startsAfterThePreviouslyReservedBlock() throws Exception{
+        RecordingBlockManager blocks=new RecordingBlockManager(1000);
+        TimestampOracle oracle=new TimestampOracle(blocks,BLOCK_SIZE);
+
+        //the previous block may have been used up by another server, so a new one is reserved straight away
+        Assert.assertEquals(1001,oracle.getNextTimestamp());
+        Assert.assertEquals(Collections.singletonList(1100L),blocks.reserved);
+        Assert.assertEquals(1002,oracle.getNextTimestamp());
+        Assert.assertEquals(1,oracle.getNumberBlocksReserved());
+    }
+
+    @Test
+    public void reservesTheNextBlockWhenTheCurrentOneRunsOut() throws Exception{
+        RecordingBlockManager blocks=new RecordingBlockManager(0);
+        TimestampOracle oracle=new TimestampOracle(blocks,BLOCK_SIZE);
+
+        Assert.assertEquals(1,oracle.getNextTimestamp());
+        Assert.assertEquals(Collections.singletonList(100L),blocks.reserved);
+        for(long i=2;i<=100;i++){
+            Assert.assertEquals(i,oracle.getNextTimestamp());
+        }
+        Assert.assertEquals(Collections.singletonList(100L),blocks.reserved);
+
+        Assert.assertEquals(101,oracle.getNextTimestamp());
+        Assert.assertEquals(Arrays.asList(100L,200L),blocks.reserved);
+        Assert.assertEquals(2,oracle.getNumberBlocksReserved());
+        Assert.assertEquals(101,oracle.getNumberTimestampsCreated());
+    }
+
+    @Test
+    public void batchWithinTheReservedBlock() throws Exception{
+        RecordingBlockManager blocks=new RecordingBlockManager(100);
+        TimestampOracle oracle=new TimestampOracle(blocks,BLOCK_SIZE);
+
+        Assert.assertEquals(101,oracle.getNextTimestamps(10));
+        Assert.assertEquals(Collections.singletonList(200L),blocks.reserved);
+        Assert.assertEquals(111,oracle.getNextTimestamps(10));
+        Assert.assertEquals(121,oracle.getNextTimestamp());
+        Assert.assertEquals(Collections.singletonList(200L),blocks.reserved);
+        Assert.assertEquals(21,oracle.getNumberTimestampsCreated());
+    }
+
+    @Test
+    public void batchEndingOnTheBlockBoundaryDoesNotReserveAnother() throws Exception{
+        RecordingBlockManager blocks=new RecordingBlockManager(100);
+        TimestampOracle oracle=new TimestampOracle(blocks,BLOCK_SIZE);
+
+        Assert.assertEquals(101,oracle.getNextTimestamps(100));
+        Assert.assertEquals(Collections.singletonList(200L),blocks.reserved);
+
+        Assert.assertEquals(201,oracle.getNextTimestamp());
+        Assert.assertEquals(Arrays.asList(200L,300L),blocks.reserved);
+    }
+
+    @Test
+    public void batchCrossingTheBlockBoundaryReservesTheNextBlock() throws Exception{
+        RecordingBlockManager blocks=new RecordingBlockManager(100);
+        TimestampOracle oracle=new TimestampOracle(blocks,BLOCK_SIZE);
+
+        Assert.assertEquals(101,oracle.getNextTimestamps(95));
+        //196..205 straddles the end of the block at 200
+        Assert.assertEquals(196,oracle.getNextTimestamps(10));
+        Assert.assertEquals(Arrays.asList(200L,300L),blocks.reserved);
+        Assert.assertEquals(206,oracle.getNextTimestamp());
+        Assert.assertEquals(Arrays.asList(200L,300L),blocks.reserved);
+        Assert.assertEquals(2,oracle.getNumberBlocksReserved());
+        Assert.assertEquals(106,oracle.getNumberTimestampsCreated());
+    }
+
+    @Test
+    public void batchSpanningSeveralBlocksReservesThemAtOnce() throws Exception{
+        RecordingBlockManager blocks=new RecordingBlockManager(100);
+        TimestampOracle oracle=new TimestampOracle(blocks,BLOCK_SIZE);
+
+        Assert.assertEquals(101,oracle.getNextTimestamps(50));
+        //151..450 needs two more blocks, and a part of a third one
+        Assert.assertEquals(151,oracle.getNextTimestamps(300));
+        Assert.assertEquals("Should reserve whole blocks in a single step",
+                Arrays.asList(200L,500L),blocks.reserved);
+        Assert.assertEquals(2,oracle.getNumberBlocksReserved());
+
+        Assert.assertEquals(451,oracle.getNextTimestamps(50));
+        Assert.assertEquals(Arrays.asList(200L,500L),blocks.reserved);
+        Assert.assertEquals(501,oracle.getNextTimestamp());
+        Assert.assertEquals(Arrays.asList(200L,500L,600L),blocks.reserved);
+    }
+
+    @Test
+    public void failedReservationDoesNotAdvanceTheReservedBlock() throws Exception{
+        RecordingBlockManager blocks=new RecordingBlockManager(100);
+        TimestampOracle oracle=new TimestampOracle(blocks,BLOCK_SIZE);
+
+        oracle.getNextTimestamps(95);
+        blocks.fail=true;
+        try{
+            oracle.getNextTimestamps(10);
+            Assert.fail("Expected the reservation to fail");
+        }catch(TimestampIOException expected){
+            //expected
+        }
+        Assert.assertEquals(1,oracle.getNumberBlocksReserved());
+        blocks.fail=false;
+        //the failed range is lost, but the next one is still only handed out once its block is reserved
+        Assert.assertEquals(206,oracle.getNextTimestamp());
+        Assert.assertEquals(Arrays.asList(200L,300L),blocks.reserved);
+    }
+
+    @Test
+    public void concurrentBatchesAreDisjointAndReserved() throws Exception{
+        final RecordingBlockManager blocks=new RecordingBlockManager(0);
+        final TimestampOracle oracle=new TimestampOracle(blocks,BLOCK_SIZE);
+        final int threads=8;
+        final int batchesPerThread=500;
+
+        ExecutorService executor=Executors.newFixedThreadPool(threads);
+        try{
+            List<Future<long[]>> futures=new ArrayList<>(threads);
+            for(int t=0;t<threads;t++){
+                final int seed=t;
+                futures.add(executor.submit(new Callable<long[]>(){
+                    @Override
+                    public long[] call() throws Exception{
+                        //pairs of first timestamp and count
+                        long[] ranges=new long[2*batchesPerThread];
+                        for(int i=0;i<batchesPerThread;i++){
+                            int count=1+(seed*31+i*7)%37;
+                            long first=oracle.getNextTimestamps(count);
+                            //the whole range must be covered before it is handed out
+                            Assert.assertTrue(blocks.maxReserved()>=first+count-1);
+                            ranges[2*i]=first;
+                            ranges[2*i+1]=count;
+                        }
+                        return ranges;
+                    }
+                }));
+            }
+
+            long total=0;
+            List<long[]> allRanges=new ArrayList<>();
+            for(Future<long[]> future:futures){
+                long[] ranges=future.get();
+                for(int i=0;i<ranges.length;i+=2){
+                    allRanges.add(new long[]{ranges[i],ranges[i+1]});
+                    total+=ranges[i+1];
+                }
+            }
+            Collections.sort(allRanges,(a,b)->Long.compare(a[0],b[0]));
+            long next=1;
+            for(long[] range:allRanges){
+                Assert.assertEquals("Ranges should be contiguous and disjoint",next,range[0]);
+                next=range[0]+range[1];
+            }
+            Assert.assertEquals(total,oracle.getNumberTimestampsCreated());
+            Assert.assertEquals(blocks.reserved.size(),oracle.getNumberBlocksReserved());
+            for(int i=1;i<blocks.reserved.size();i++){
+                Assert.assertTrue("Reservations should only move forward",
+                        blocks.reserved.get(i)>blocks.reserved.get(i-1));
+            }
+        }finally{
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Records the blocks the oracle asks for, in order.
+     */
+    private static class RecordingBlockManager implements TimestampBlockManager{
+        private final long initialMax;
+        private final List<Long> reserved=Collections.synchronizedList(new ArrayList<Long>());
+        private volatile boolean fail;
+
+        RecordingBlockManager(long initialMax){
+            this.initialMax=initialMax;
+        }
+
+        @Override
+        public void reserveNextBlock(long currentMaxReserved) throws TimestampIOException{
+            if(fail) throw new TimestampIOException("unable to reserve block");
+            reserved.add(currentMaxReserved);
+        }
+
+        @Override
+        public long initialize() throws TimestampIOException{
+            return initialMax;
+        }
+
+        long maxReserved(){
+            synchronized(reserved){
+                return reserved.isEmpty()?initialMax:reserved.get(reserved.size()-1);
+            }
+        }
+    }
+}
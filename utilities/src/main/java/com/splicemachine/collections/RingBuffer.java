@@ -15,8 +15,6 @@
 
 package com.splicemachine.collections;
 
-import java.util.Arrays;
-
 /**
  * Simple non-thread-safe ring buffer.
  *
@@ -67,6 +65,16 @@ public class RingBuffer<T> {
         return buffer.length;
     }
 
+    /**
+     * @param index the position of the item, counting from the read position
+     * @return the item at {@code index}, without moving the read position
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        assert index >= 0 && index < size() : "Index " + index + " out of bounds for size " + size();
+        return (T) buffer[(readPosition + index) & mask];
+    }
+
     @SuppressWarnings("unchecked")
     public T peek() {
         if(readPosition>=writePosition) return null; //buffer has already been fully read
@@ -82,8 +90,15 @@ public class RingBuffer<T> {
     }
 
     public void expand() {
-        buffer = Arrays.copyOf(buffer, 2 * buffer.length);
-        mask = buffer.length - 1;
+        Object[] newBuffer = new Object[2 * buffer.length];
+        int newMask = newBuffer.length - 1;
+        //the items may have wrapped around the end of the buffer, so move each one to its new slot
+        int from = Math.max(Math.min(offsetReadPosition, readPosition), writePosition - buffer.length);
+        for (int position = from; position < writePosition; position++) {
+            newBuffer[position & newMask] = buffer[position & mask];
+        }
+        buffer = newBuffer;
+        mask = newMask;
     }
 
     public void readReset() {
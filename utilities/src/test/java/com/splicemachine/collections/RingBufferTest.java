@@ -146,6 +146,41 @@ public class RingBufferTest {
 
     }
 
+    @Test
+    public void expandWrapped() {
+        RingBuffer<Integer> buffer = new RingBuffer<Integer>(4);
+        for (int i = 0; i < 4; i++) {
+            buffer.add(i);
+        }
+        buffer.next();
+        buffer.next();
+        buffer.add(4);
+        buffer.add(5);
+        assertTrue(buffer.isFull());
+        buffer.expand();
+        buffer.add(6);
+
+        assertEquals(5, buffer.size());
+        for (int i = 2; i <= 6; i++) {
+            assertEquals(i, buffer.next().intValue());
+        }
+    }
+
+    @Test
+    public void get() {
+        RingBuffer<Integer> buffer = new RingBuffer<Integer>(4);
+        for (int i = 0; i < 6; i++) {
+            buffer.add(i);
+            if (buffer.size() > 3) {
+                buffer.readAdvance();
+            }
+        }
+        assertEquals(3, buffer.size());
+        for (int i = 0; i < buffer.size(); i++) {
+            assertEquals(i + 3, buffer.get(i).intValue());
+        }
+    }
+
     @Test
     public void mark_readReset() {
         RingBuffer<Integer> buffer = new RingBuffer<Integer>(8);